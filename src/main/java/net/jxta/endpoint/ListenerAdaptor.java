@@ -86,6 +86,9 @@ import java.util.logging.Logger;
  * <p/>
  * Note: one instance of this class gets instantiated by each EndpointService interface. However, it does not start using any
  * resources until it first gets used.<p/>
+ * <p/>
+ * The background thread spends its life waiting on the selector, so it is never run by the pool shared by the messengers; in
+ * the <code>virtual</code> messenger mode it is a virtual thread.<p/>
  */
 public class ListenerAdaptor implements Runnable {
 
@@ -156,8 +159,7 @@ public class ListenerAdaptor implements Runnable {
             return;
         }
 
-        bgThread = new Thread(threadGroup, this, "Listener Adaptor");
-        bgThread.setDaemon(true);
+        bgThread = MessengerExecution.newThread(threadGroup, this, "Listener Adaptor");
         bgThread.start();
     }
 
@@ -161,14 +161,26 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
 
     /**
      * the namespaces in this message and the elements in each.
+     * <p/>
+     * May be shared with clones of this message, see {@link #sharedElements}.
      */
     protected transient Map<String, List<MessageElement>> namespaces = new HashMap<String, List<MessageElement>>();
 
     /**
      * List of the elements.
+     * <p/>
+     * May be shared with clones of this message, see {@link #sharedElements}.
      */
     protected transient List<element> elements = new ArrayList<element>();
 
+    /**
+     * If {@code true} then {@link #elements} and {@link #namespaces} are
+     * shared with a clone of this message or with the message this message
+     * was cloned from. Shared lists are never modified, they are copied by
+     * {@link #unshareElements()} before the first modification.
+     */
+    protected transient boolean sharedElements = false;
+
     /**
      * Message properties HashMap
      */
@@ -391,6 +403,8 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
                 throw new IllegalStateException("no current element, call next() or previous()");
             }
 
+            Message.this.unshareElements();
+
             ListIterator<element> elsPosition = Message.this.elements.listIterator();
             ListIterator<MessageElement> nsPosition = namespaces.get(current.namespace).listIterator();
 
@@ -473,6 +487,8 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
                 throw new IllegalStateException("no current element, call next() or previous()");
             }
 
+            Message.this.unshareElements();
+
             ListIterator<element> elsPosition = Message.this.elements.listIterator();
             ListIterator<MessageElement> nsPosition = namespaces.get(current.namespace).listIterator();
 
@@ -628,6 +644,10 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
      * Duplicates the Message. The returned duplicate is a real copy. It may
      * be freely modified without causing change to the originally cloned
      * message.
+     * <p/>
+     * The clone shares the element lists of this message until either of
+     * them is modified, so cloning does not copy the elements of messages
+     * which are delivered to several listeners and never modified.
      *
      * @return Message a Message that is a copy of the original message
      */
@@ -636,16 +656,11 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
         Message clone = new Message(getDefaultNamespace(), true );
 
         clone.lineage.addAll(lineage);
-        clone.elements.addAll(elements);
-
-        for (String aNamespace : namespaces.keySet()) {
-            List<MessageElement> namespaceElements = namespaces.get(aNamespace);
-
-            List<MessageElement> newNamespaceElements = new ArrayList<MessageElement>(namespaceElements.size());
 
-            newNamespaceElements.addAll(namespaceElements);
-            clone.namespaces.put(aNamespace, newNamespaceElements);
-        }
+        sharedElements = true;
+        clone.elements = elements;
+        clone.namespaces = namespaces;
+        clone.sharedElements = true;
 
         Logging.logCheckedFiner(LOG, "Created clone ", clone, " of ", this);
 
@@ -873,6 +888,8 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
             throw new IllegalArgumentException("Message Element must be non-null");
         }
 
+        unshareElements();
+
         elements.add(new element(namespace, add, signature));
 
         List<MessageElement> namespaceElements = namespaces.get(namespace);
@@ -1237,8 +1254,15 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
      * clears any properties set for this message.
      */
     public void clear() {
-        elements.clear();
-        namespaces.clear();
+        if (sharedElements) {
+            elements = new ArrayList<element>();
+            namespaces = new HashMap<String, List<MessageElement>>();
+            sharedElements = false;
+        } else {
+            elements.clear();
+            namespaces.clear();
+        }
+
         properties.clear();
         // a cleared message has no ancestors
         lineage.retainAll(Collections.singletonList(lineage.get(0)));
@@ -1249,6 +1273,27 @@ public class Message extends AbstractSimpleSelectable implements Serializable {
 
     }
 
+    /**
+     * Copies {@link #elements} and {@link #namespaces} if they are shared
+     * with another message. Must be called before they are modified.
+     */
+    protected void unshareElements() {
+        if (!sharedElements) {
+            return;
+        }
+
+        elements = new ArrayList<element>(elements);
+
+        Map<String, List<MessageElement>> newNamespaces = new HashMap<String, List<MessageElement>>();
+
+        for (Map.Entry<String, List<MessageElement>> aNamespace : namespaces.entrySet()) {
+            newNamespaces.put(aNamespace.getKey(), new ArrayList<MessageElement>(aNamespace.getValue()));
+        }
+
+        namespaces = newNamespaces;
+        sharedElements = false;
+    }
+
     /**
      * Returns the aggregate size of all the member elements.
      *
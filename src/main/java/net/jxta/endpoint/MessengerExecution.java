@@ -0,0 +1,209 @@
+package net.jxta.endpoint;
+
+import net.jxta.logging.Logging;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Selects what drives the background work of the {@link ThreadedMessenger}s
+ * and of the {@link ListenerAdaptor}s.
+ * <p/>
+ * The mode is chosen with the {@code net.jxta.endpoint.ThreadedMessenger.mode}
+ * system property :
+ * <ul>
+ * <li>{@code thread} (the default) : each messenger starts its own
+ * background thread when it has work, which lingers while idle.</li>
+ * <li>{@code shared} : all messengers are run as tasks of one bounded pool
+ * of {@code net.jxta.endpoint.ThreadedMessenger.sharedThreads} threads.
+ * Connecting and sending are performed on these threads : a messenger whose
+ * transport blocks while connecting or sending, for instance on a slow
+ * reader, holds one of them meanwhile and a few such messengers stall all the
+ * others. This mode must not be used with such transports.</li>
+ * <li>{@code virtual} : messengers and listener adaptors are run on virtual
+ * threads, if the JVM supports them, otherwise as in {@code shared} mode.</li>
+ * </ul>
+ */
+final class MessengerExecution {
+
+    /**
+     * Logger
+     */
+    private final static transient Logger LOG = Logger.getLogger(MessengerExecution.class.getName());
+
+    /**
+     * The execution modes.
+     */
+    enum Mode {
+        THREAD, SHARED, VIRTUAL
+    }
+
+    /**
+     * The configured mode.
+     */
+    static final Mode MODE = parseMode(System.getProperty(ThreadedMessenger.class.getName() + ".mode", "thread"));
+
+    /**
+     * The number of threads of the shared pool.
+     */
+    private static final int SHARED_THREADS = Integer.getInteger(ThreadedMessenger.class.getName() + ".sharedThreads",
+            Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * How long in milliseconds an idle thread of the shared pool remains.
+     */
+    private static final long SHARED_IDLE_DEAD = 15000;
+
+    /**
+     * Our thread group.
+     */
+    final static ThreadGroup THREAD_GROUP = new ThreadGroup("Threaded Messengers");
+
+    /**
+     * {@code Thread.ofVirtual()} or {@code null} if virtual threads are not
+     * supported.
+     */
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+    /**
+     * The executor for messengers in the configured mode.
+     */
+    private static volatile Executor defaultExecutor = null;
+
+    private MessengerExecution() {
+        // never instantiated
+    }
+
+    private static Mode parseMode(String mode) {
+        try {
+            return Mode.valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException badMode) {
+            Logging.logCheckedWarning(LOG, "Unknown threaded messenger mode : ", mode);
+            return Mode.THREAD;
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... params) {
+        try {
+            return clazz.getMethod(name, params);
+        } catch (NoSuchMethodException notSupported) {
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if this JVM supports virtual threads.
+     */
+    static boolean isVirtualSupported() {
+        return null != OF_VIRTUAL;
+    }
+
+    /**
+     * Returns the executor which drives messengers in the configured mode.
+     *
+     * @return The executor or {@code null} if each messenger should use its
+     * own thread.
+     */
+    static Executor getDefaultExecutor() {
+        if (Mode.THREAD == MODE) {
+            return null;
+        }
+
+        Executor executor = defaultExecutor;
+
+        if (null == executor) {
+            synchronized (MessengerExecution.class) {
+                executor = defaultExecutor;
+
+                if (null == executor) {
+                    executor = (Mode.VIRTUAL == MODE && isVirtualSupported())
+                            ? newVirtualExecutor()
+                            : newSharedExecutor(SHARED_THREADS);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+
+        return executor;
+    }
+
+    /**
+     * Creates a bounded pool of daemon threads whose threads go away when they
+     * are idle.
+     *
+     * @param threads The maximum number of threads.
+     * @return The pool.
+     */
+    static ExecutorService newSharedExecutor(int threads) {
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, SHARED_IDLE_DEAD, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(THREAD_GROUP, r, "Shared ThreadedMessenger-" + threadNumber.getAndIncrement());
+
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates an executor which runs each task on a new virtual thread.
+     *
+     * @return The executor or a shared pool if virtual threads are not
+     * supported.
+     */
+    static ExecutorService newVirtualExecutor() {
+        Method newVirtual = findMethod(java.util.concurrent.Executors.class, "newVirtualThreadPerTaskExecutor");
+
+        if (null != newVirtual) {
+            try {
+                return (ExecutorService) newVirtual.invoke(null);
+            } catch (Exception failed) {
+                Logging.logCheckedWarning(LOG, "Could not create virtual thread executor\n", failed);
+            }
+        }
+
+        return newSharedExecutor(SHARED_THREADS);
+    }
+
+    /**
+     * Creates an unstarted daemon thread, a virtual thread in {@code virtual}
+     * mode when supported.
+     *
+     * @param group The thread group of a platform thread.
+     * @param task The task.
+     * @param name The name of the thread.
+     * @return The thread.
+     */
+    static Thread newThread(ThreadGroup group, Runnable task, String name) {
+        if ((Mode.VIRTUAL == MODE) && isVirtualSupported()) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+                builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+                return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, task);
+            } catch (Exception failed) {
+                Logging.logCheckedWarning(LOG, "Could not create virtual thread\n", failed);
+            }
+        }
+
+        Thread thread = new Thread(group, task, name);
+
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -61,13 +61,20 @@ import net.jxta.peergroup.PeerGroupID;
 import java.io.IOException;
 import java.util.WeakHashMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
  * This is a messenger meant to be shared by multiple channels and automatically
- * distribute the available bandwidth among the channels. This one is implemented
- * with a dedicated background thread.
+ * distribute the available bandwidth among the channels. By default this one is
+ * implemented with a dedicated background thread. It may also be driven by an
+ * executor shared by many messengers, in which case it is run as a task whenever
+ * it has work and at most one such task runs at a time, so that the order of the
+ * messages sent to its destination is kept. The default is chosen with the
+ * {@code net.jxta.endpoint.ThreadedMessenger.mode} system property :
+ * {@code thread}, {@code shared} or {@code virtual}.
  */
 public abstract class ThreadedMessenger extends AbstractMessenger implements Runnable {
 
@@ -79,7 +86,7 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
     /**
      * Our thread group.
      */
-    private final static transient ThreadGroup myThreadGroup = new ThreadGroup("Threaded Messengers");
+    private final static transient ThreadGroup myThreadGroup = MessengerExecution.THREAD_GROUP;
 
     /**
      * The logical destination address of the other party (if we know it).
@@ -103,6 +110,12 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
      */
     private static final long THREAD_IDLE_DEAD = 15000;
 
+    /**
+     * The number of messages sent by a task of a shared executor before it
+     * gives its thread to the other messengers.
+     */
+    private static final int SEND_QUANTUM = 32;
+
     /*
      * Actions that we defer to after returning from event methods. In other 
      * words, they cannot be done with the lock held, or they require calling 
@@ -137,9 +150,16 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
     private DeferredAction deferredAction = DeferredAction.ACTION_NONE;
 
     /**
-     * The current background thread.
+     * The executor driving this messenger or {@code null} if it uses a
+     * dedicated background thread.
+     */
+    private final Executor executor;
+
+    /**
+     * {@code true} while a background thread or task is started and will
+     * perform the deferred action. Guarded by the state machine.
      */
-    private volatile Thread bgThread = null;
+    private boolean bgRunning = false;
 
     /**
      * The number of messages which may be queued for in each channel.
@@ -339,11 +359,30 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
      * @param destination        where messages should be addressed to
      * @param logicalDestination the expected logical address of the destination. Pass null if unknown/irrelevant
      * @param channelQueueSize   The queue size that channels should have.
+     * <p/>
+     * The messenger is driven as configured by the {@code net.jxta.endpoint.ThreadedMessenger.mode} system property.
      */
     public ThreadedMessenger(PeerGroupID homeGroupID, EndpointAddress destination, EndpointAddress logicalDestination, int channelQueueSize) {
+        this(homeGroupID, destination, logicalDestination, channelQueueSize, MessengerExecution.getDefaultExecutor());
+    }
+
+    /**
+     * Create a new ThreadedMessenger driven by the given executor.
+     *
+     * @param homeGroupID        the group that this messenger works for. This is the group of the endpoint service or transport
+     *                           that created this messenger.
+     * @param destination        where messages should be addressed to
+     * @param logicalDestination the expected logical address of the destination. Pass null if unknown/irrelevant
+     * @param channelQueueSize   The queue size that channels should have.
+     * @param executor           The executor running this messenger whenever it has work or {@code null} to use a
+     *                           dedicated background thread.
+     */
+    public ThreadedMessenger(PeerGroupID homeGroupID, EndpointAddress destination, EndpointAddress logicalDestination, int channelQueueSize, Executor executor) {
 
         super(destination);
 
+        this.executor = executor;
+
         this.homeGroupID = homeGroupID;
         stateMachine = new ThreadedMessengerState(distributingListener);
 
@@ -366,14 +405,21 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
      * while an action is already deferred. So, there is at most one deferred action after returning from an event method,
      * regardless the number of concurrent threads invoking the exposed methods, and it can only happen once per deferred action
      * performed.
+     * <p/>
+     * When driven by an executor, a single action is performed per task and the messenger is then queued again behind the
+     * other messengers sharing the executor.
      */
     public void run() {
 
+        // true if we are done and someone else (nextAction or a requeued task) owns bgRunning
+        boolean released = false;
+
         try {
             while (true) {
                 final DeferredAction nextAction = nextAction();
                 switch (nextAction) {
                 case ACTION_NONE:
+                    released = true;
                     return;
 
                 case ACTION_SEND:
@@ -384,6 +430,13 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
                     connect();
                     break;
                 }
+
+                if (executor != null) {
+                    // Let the other messengers have the thread. We still own bgRunning; the next task will check for more work.
+                    executor.execute(this);
+                    released = true;
+                    return;
+                }
             }
 
         } catch (Throwable any) {
@@ -393,27 +446,64 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
 
         } finally {
 
-            synchronized (stateMachine) {
-                bgThread = null;
-                if (stateMachine.getState() == SENDING)
-                {
-                    stateMachine.idleEvent();
+            if (!released) {
+                synchronized (stateMachine) {
+                    bgRunning = false;
+                    if (stateMachine.getState() == SENDING)
+                    {
+                        stateMachine.idleEvent();
+                    }
                 }
             }
 
         }
     }
 
+    /**
+     * Defers an action to the background thread or task, starting one if
+     * none is running. Called with the state machine lock held.
+     *
+     * @param action The action.
+     */
     private void deferAction(DeferredAction action) {
         deferredAction = action;
 
-        if (bgThread == null) {
-            bgThread = new Thread(myThreadGroup, this, "ThreadedMessenger for " + getDestinationAddress());
-            bgThread.setDaemon(true);
-            bgThread.start();
+        if (!bgRunning) {
+            bgRunning = true;
+
+            if (executor == null) {
+                Thread bgThread = new Thread(myThreadGroup, this, "ThreadedMessenger for " + getDestinationAddress());
+                bgThread.setDaemon(true);
+                bgThread.start();
+            } else {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException rejected) {
+                    Logging.logCheckedSevere(LOG, "Could not schedule messenger for ", getDestinationAddress(), "\n", rejected);
+
+                    // As if the action had been performed and had failed, like run() does when it quits.
+                    // Otherwise the state machine waits forever for the end event of the action.
+                    bgRunning = false;
+                    deferredAction = DeferredAction.ACTION_NONE;
+
+                    if (DeferredAction.ACTION_CONNECT == action) {
+                        stateMachine.downEvent();
+                    } else if (stateMachine.getState() == SENDING) {
+                        stateMachine.idleEvent();
+                    }
+                }
+            }
         }
     }
 
+    /**
+     * Returns the deferred action. A dedicated background thread waits for
+     * one for up to {@link #THREAD_IDLE_DEAD}, a task does not wait. When there
+     * is none the background thread or task is done.
+     *
+     * @return The deferred action or {@code ACTION_NONE} if the background
+     * thread or task should quit.
+     */
     private DeferredAction nextAction() {
 
         long quitAt = System.currentTimeMillis() + THREAD_IDLE_DEAD;
@@ -421,8 +511,9 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
         synchronized (stateMachine) {
             while (deferredAction == DeferredAction.ACTION_NONE) {
                 // Still nothing to do. Is it time to quit, or where we just awakened for nothing ?
-                if (System.currentTimeMillis() > quitAt) {
-                    // Ok. Time to quit.
+                if ((executor != null) || (System.currentTimeMillis() > quitAt)) {
+                    // Ok. Time to quit. Releasing in the same lock ensures that the next deferred action starts a new one.
+                    bgRunning = false;
                     return DeferredAction.ACTION_NONE;
                 }
 
@@ -451,6 +542,7 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
     private void send() throws InterruptedException {
 
         ThreadedMessengerChannel theChannel;
+        int sent = 0;
 
         synchronized (stateMachine) {
             theChannel = activeChannels.peek();
@@ -543,6 +635,16 @@ public abstract class ThreadedMessenger extends AbstractMessenger implements Run
                 Thread.yield();
                 return;
             }
+
+            if ((executor != null) && (++sent >= SEND_QUANTUM)) {
+                // Still sending, but give the other messengers a turn. We will resume with the current channel.
+                synchronized (stateMachine) {
+                    if (deferredAction == DeferredAction.ACTION_NONE) {
+                        deferredAction = DeferredAction.ACTION_SEND;
+                    }
+                }
+                return;
+            }
         }
     }
 
@@ -57,6 +57,7 @@
 package net.jxta.endpoint;
 
 import net.jxta.document.MimeMediaType;
+import net.jxta.id.ID;
 import net.jxta.logging.Logging;
 import net.jxta.peergroup.PeerGroup;
 import net.jxta.util.ClassFactory;
@@ -99,6 +100,13 @@ public final class WireFormatMessageFactory extends ClassFactory<MimeMediaType,
     public static final boolean CBJX_DISABLE=Boolean.getBoolean(WireFormatMessageFactory.class.getName()+".CBJX_DISABLE");
     public static final String  CBJX_SIG_ALG=System.getProperty(WireFormatMessageFactory.class.getName()+".CBJX_SIG_ALG","SHA256withRSA");
 
+    /**
+     * If {@code true} the endpoint service verifies the CBJX signatures of
+     * messages received by the message transports on a pool of threads
+     * rather than on the transport threads.
+     */
+    public static final boolean PARALLEL_VERIFICATION=Boolean.getBoolean(WireFormatMessageFactory.class.getName()+".PARALLEL_VERIFICATION");
+
     /**
      * Interface for instantiators of wire format messages.
      */
@@ -168,10 +176,44 @@ public final class WireFormatMessageFactory extends ClassFactory<MimeMediaType,
         public Message fromBuffer(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding) throws IOException;
 
         public WireFormatMessage toWireExternal(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup);
+
+        /**
+         * As {@link #toWireExternal(Message, MimeMediaType, MimeMediaType[], boolean, PeerGroup)}
+         * for a message which will be sent to a single peer. Serializations
+         * which do not use CBJX MAC sessions may ignore the destination.
+         *
+         * @param destination the peer to which the message will be sent.
+         */
+        public default WireFormatMessage toWireExternal(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, ID destination) {
+            return toWireExternal(msg, type, preferedContentEncoding, paramDisableCbjx, paramGroup);
+        }
+
         public WireFormatMessage toWireExternalWithTls(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup);
         public Message fromWireExternal(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isTls) throws IOException;
         public Message fromBufferExternal(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) throws IOException;
 
+        /**
+         * As {@link #fromWireExternal(InputStream, MimeMediaType, MimeMediaType, boolean, PeerGroup, boolean)}
+         * but the signature check may be left to the endpoint service. Only
+         * for messages which will be passed to
+         * {@link net.jxta.endpoint.EndpointService#processIncomingMessage(Message, EndpointAddress, EndpointAddress)}.
+         * Serializations which cannot defer the check verify the message here.
+         */
+        public default Message fromWireExternalDeferred(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) throws IOException {
+            return fromWireExternal(is, type, contentEncoding, paramDisableCbjx, paramGroup, false);
+        }
+
+        /**
+         * As {@link #fromBufferExternal(ByteBuffer, MimeMediaType, MimeMediaType, boolean, PeerGroup)}
+         * but the signature check may be left to the endpoint service. Only
+         * for messages which will be passed to
+         * {@link net.jxta.endpoint.EndpointService#processIncomingMessage(Message, EndpointAddress, EndpointAddress)}.
+         * Serializations which cannot defer the check verify the message here.
+         */
+        public default Message fromBufferExternalDeferred(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) throws IOException {
+            return fromBufferExternal(buffer, type, contentEncoding, paramDisableCbjx, paramGroup);
+        }
+
     }
 
     /**
@@ -326,6 +368,52 @@ public final class WireFormatMessageFactory extends ClassFactory<MimeMediaType,
     }
 
 
+    /**
+     * Read a message received by a message transport. If the endpoint service
+     * verifies signatures in parallel the signature check is left to it,
+     * otherwise the message is verified before it is returned.
+     */
+    public static Message fromBufferExternalDeferred(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding, PeerGroup paramGroup) throws IOException {
+        factory.loadProviders();
+
+        Instantiator instantiator;
+
+        try {
+            instantiator = factory.getInstantiator(type.getBaseMimeMediaType());
+        } catch (NoSuchElementException badType) {
+            throw new IOException("Unable to deserialize message of type: " + type);
+        }
+
+        if (PARALLEL_VERIFICATION) {
+            return instantiator.fromBufferExternalDeferred(buffer, type, contentEncoding, CBJX_DISABLE, paramGroup);
+        } else {
+            return instantiator.fromBufferExternal(buffer, type, contentEncoding, CBJX_DISABLE, paramGroup);
+        }
+    }
+
+    /**
+     * Read a message received by a message transport. If the endpoint service
+     * verifies signatures in parallel the signature check is left to it,
+     * otherwise the message is verified before it is returned.
+     */
+    public static Message fromWireExternalDeferred(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, PeerGroup paramGroup) throws IOException {
+        factory.loadProviders();
+
+        Instantiator instantiator;
+
+        try {
+            instantiator = factory.getInstantiator(type.getBaseMimeMediaType());
+        } catch (NoSuchElementException badType) {
+            throw new IOException("Unable to deserialize message of type: " + type);
+        }
+
+        if (PARALLEL_VERIFICATION) {
+            return instantiator.fromWireExternalDeferred(is, type, contentEncoding, CBJX_DISABLE, paramGroup);
+        } else {
+            return instantiator.fromWireExternal(is, type, contentEncoding, CBJX_DISABLE, paramGroup, false);
+        }
+    }
+
     public static Message fromWireExternalWithTls(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, PeerGroup paramGroup) throws IOException {
         factory.loadProviders();
 
@@ -373,6 +461,21 @@ public final class WireFormatMessageFactory extends ClassFactory<MimeMediaType,
         return instantiator.toWireExternal(msg, type, preferedEncodings, CBJX_DISABLE, paramGroup);
     }
 
+    /**
+     * Serialize a message which will be sent to a single peer. Messages to a
+     * known destination may be authenticated by a CBJX MAC session rather
+     * than signed.
+     *
+     * @param destination the peer to which the message will be sent.
+     */
+    public static WireFormatMessage toWireExternal(Message msg, MimeMediaType type, MimeMediaType[] preferedEncodings, PeerGroup paramGroup, ID destination) {
+        factory.loadProviders();
+
+        Instantiator instantiator = factory.getInstantiator(type.getBaseMimeMediaType());
+
+        return instantiator.toWireExternal(msg, type, preferedEncodings, CBJX_DISABLE, paramGroup, destination);
+    }
+
     /**
      * Constructs an instance of <CODE>Message</CODE> from matching the type
      * specified by the <CODE>type</CODE> parameter.
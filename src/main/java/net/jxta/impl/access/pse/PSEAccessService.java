@@ -67,8 +67,11 @@ import net.jxta.impl.membership.pse.PSECredential;
 import net.jxta.impl.membership.pse.PSEMembershipService;
 import net.jxta.logging.Logging;
 import net.jxta.membership.MembershipService;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.platform.ModuleSpecID;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.service.Service;
@@ -84,6 +87,7 @@ import java.security.cert.CertPathValidator;
 import java.security.cert.CertPathValidatorException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -98,7 +102,7 @@ import java.util.logging.Logger;
  * @see net.jxta.access.AccessService
  * @see net.jxta.impl.membership.pse.PSEMembershipService
  */
-public class PSEAccessService implements AccessService {
+public class PSEAccessService implements AccessService, DependentModule {
 
     /**
      *  Logger.
@@ -344,6 +348,13 @@ public class PSEAccessService implements AccessService {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.membershipClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -76,4 +76,10 @@ public abstract class AbstractAdvertisementCache implements AdvertisementCache {
         return getRecords(dn, threshold, expirations, false);
     }
 
+    public void saveAll(List<Publication> publications) throws IOException {
+        for (Publication each : publications) {
+            save(each.dn, each.fn, each.adv, each.lifetime, each.expiration);
+        }
+    }
+
 }
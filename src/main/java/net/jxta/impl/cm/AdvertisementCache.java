@@ -167,6 +167,16 @@ public interface AdvertisementCache {
      */
     void save(String dn, String fn, byte[] data, long lifetime, long expiration) throws IOException;
 
+    /**
+     * Stores several advertisements. Implementations may store them more
+     * efficiently than by separate calls to
+     * {@link #save(String, String, Advertisement, long, long)}.
+     *
+     * @param publications the advertisements to save
+     * @throws IOException Thrown if there is a problem saving the documents.
+     */
+    void saveAll(List<Publication> publications) throws IOException;
+
     /**
      * Search and recovers documents that contains at least
      * a matching pair of tag/value.
@@ -191,4 +201,31 @@ public interface AdvertisementCache {
     public void stop() throws IOException;
 
     public void garbageCollect() throws IOException;
+
+    /**
+     * An advertisement to save, with its location and timeouts.
+     */
+    public static final class Publication {
+
+        public final String dn;
+        public final String fn;
+        public final Advertisement adv;
+        public final long lifetime;
+        public final long expiration;
+
+        /**
+         * @param dn         directory name
+         * @param fn         file name
+         * @param adv        Advertisement to save
+         * @param lifetime   Document (local) lifetime in relative ms
+         * @param expiration Document (global) expiration time in relative ms
+         */
+        public Publication(String dn, String fn, Advertisement adv, long lifetime, long expiration) {
+            this.dn = dn;
+            this.fn = fn;
+            this.adv = adv;
+            this.lifetime = lifetime;
+            this.expiration = expiration;
+        }
+    }
 }
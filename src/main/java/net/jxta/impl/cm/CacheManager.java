@@ -274,6 +274,10 @@ public final class CacheManager {
         wrappedImpl.save(dn, fn, data, lifetime, expiration);
     }
 
+    public void saveAll(List<AdvertisementCache.Publication> publications) throws IOException {
+        wrappedImpl.saveAll(publications);
+    }
+
     public List<InputStream> search(String dn, String attribute, String value, int threshold, List<Long> expirations) {
         try {
 			return wrappedImpl.search(dn, attribute, value, threshold, expirations);
@@ -0,0 +1,156 @@
+package net.jxta.impl.cm;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+
+/**
+ * An immutable consistent hash ring mapping SRDI expressions to the members
+ * of a peer view.
+ * <p/>
+ * Each member is placed on the ring at a number of virtual node positions
+ * derived from its string form, and an expression maps to the member owning
+ * the first position at or after the hash of the expression. When a member
+ * joins or leaves only the expressions adjacent to its own positions change
+ * owner, roughly {@code 1/n} of the total rather than nearly all of them.
+ * <p/>
+ * Every peer computing the mapping over the same view gets the same result,
+ * so the hash is defined over the characters of the strings rather than over
+ * any platform dependent encoding.
+ *
+ * @param <T> the type of the members.
+ */
+public final class ConsistentHashRing<T> {
+
+    /**
+     * The positions of the virtual nodes, in ascending order.
+     */
+    private final long[] points;
+
+    /**
+     * The member owning each position.
+     */
+    private final Object[] owners;
+
+    /**
+     * The number of distinct members.
+     */
+    private final int size;
+
+    /**
+     * Builds a ring.
+     *
+     * @param members the members of the ring. Duplicates are ignored.
+     * @param virtualNodes the number of positions of each member.
+     */
+    public ConsistentHashRing(Collection<? extends T> members, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be > 0");
+        }
+
+        final Object[] unique = new LinkedHashSet<T>(members).toArray();
+        final int count = unique.length * virtualNodes;
+        final long[] keys = new long[count];
+        final int perMember = virtualNodes;
+        Integer[] order = new Integer[count];
+
+        for (int each = 0; each < unique.length; each++) {
+            String name = unique[each].toString();
+
+            for (int vnode = 0; vnode < virtualNodes; vnode++) {
+                int at = each * virtualNodes + vnode;
+
+                keys[at] = hash(name + "#" + vnode);
+                order[at] = at;
+            }
+        }
+
+        // Sort by position, ties (vanishingly rare) by member so that every
+        // peer builds the same ring.
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                long ka = keys[a];
+                long kb = keys[b];
+
+                if (ka != kb) {
+                    return (ka < kb) ? -1 : 1;
+                }
+
+                return unique[a / perMember].toString().compareTo(unique[b / perMember].toString());
+            }
+        });
+
+        points = new long[count];
+        owners = new Object[count];
+
+        for (int each = 0; each < count; each++) {
+            points[each] = keys[order[each]];
+            owners[each] = unique[order[each] / perMember];
+        }
+
+        size = unique.length;
+    }
+
+    /**
+     * @return the number of distinct members of the ring.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the member responsible for an expression.
+     *
+     * @param expression the expression.
+     * @return the member or {@code null} if the ring is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String expression) {
+        if (0 == points.length) {
+            return null;
+        }
+
+        int at = Arrays.binarySearch(points, hash(expression));
+
+        if (at < 0) {
+            at = -at - 1;
+
+            if (at == points.length) {
+                // Wrap around.
+                at = 0;
+            }
+        }
+
+        return (T) owners[at];
+    }
+
+    /**
+     * A 64 bit hash of the characters of a string: FNV-1a over the UTF-16
+     * code units followed by the MurmurHash3 finalizer to spread the bits.
+     * Allocates nothing.
+     *
+     * @param value the string to hash.
+     * @return the hash.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+
+        for (int each = 0, length = value.length(); each < length; each++) {
+            char c = value.charAt(each);
+
+            h ^= (c & 0xff);
+            h *= 0x100000001b3L;
+            h ^= (c >>> 8);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
@@ -0,0 +1,37 @@
+package net.jxta.impl.cm;
+
+import java.io.IOException;
+import net.jxta.peer.PeerID;
+
+/**
+ * A Srdi backend whose records can be enumerated. {@link Srdi} uses it to save
+ * the records of backends which are not persistent when the index stops, and
+ * to restore them when the index is created again.
+ */
+public interface EnumerableSrdiAPI extends SrdiAPI {
+
+    /**
+     * Receives the records of an index.
+     */
+    public interface Visitor {
+
+        /**
+         * @param primaryKey primary key
+         * @param attribute  attribute of the record
+         * @param value      value of the attribute
+         * @param pid        peerid reference
+         * @param expiration when the record expires, in absolute milliseconds
+         * @throws IOException if the record could not be processed
+         */
+        void visit(String primaryKey, String attribute, String value, PeerID pid, long expiration) throws IOException;
+    }
+
+    /**
+     * Passes every record of the index which has not expired to the visitor.
+     * The visitor is not invoked while the index is locked.
+     *
+     * @param visitor receives the records
+     * @throws IOException if the index could not be read or the visitor failed
+     */
+    void visitRecords(Visitor visitor) throws IOException;
+}
@@ -96,7 +96,7 @@ import java.util.logging.Logger;
  * @author Bruno Grieder (bruno.grieder@amalto.com) & Simon Temple (simon.temple@amalto.com)
  *
  */
-public class InMemorySrdi implements SrdiAPI {
+public class InMemorySrdi implements EnumerableSrdiAPI {
 
     private final static transient Logger LOG = Logger.getLogger( InMemorySrdi.class.getName(  ) );
 
@@ -519,6 +519,48 @@ public class InMemorySrdi implements SrdiAPI {
         this.stopped = true;
     }
 
+    /* (non-Javadoc)
+     * @see net.jxta.impl.cm.EnumerableSrdiAPI#visitRecords(net.jxta.impl.cm.EnumerableSrdiAPI.Visitor)
+     */
+    public void visitRecords( Visitor visitor ) throws IOException {
+
+        long now = TimeUtils.timeNow(  );
+
+        // The expirations are sorted: the live records are at the end
+        Long[] expirations = this.gcIndex.getAllKeys(  );
+
+        for ( int i = 0; i < expirations.length; i++ ) {
+
+            Long expiration = expirations [ i ];
+
+            if ( expiration.longValue(  ) <= now ) {
+
+                continue;
+            }
+
+            Set<GcKey> items;
+
+            synchronized ( indexLock ) {
+
+                items = this.gcIndex.get( expiration );
+            }
+
+            if ( null == items ) {
+
+                // Updated or collected since we listed the expirations
+                continue;
+            }
+
+            for ( GcKey gcKey : items ) {
+
+                SearchKey searchKey = gcKey.getSearchKey(  );
+
+                visitor.visit( searchKey.getPrimaryKey(  ), searchKey.getAttribute(  ), searchKey.getValue(  ),
+                    gcKey.getPeerIdKey(  ).getPeerID(  ), expiration );
+            }
+        }
+    }
+
     /* (non-Javadoc)
      * @see net.jxta.impl.cm.SrdiAPI#add(java.lang.String, java.lang.String, java.lang.String, net.jxta.peer.PeerID, long)
      */
@@ -56,10 +56,14 @@
 
 package net.jxta.impl.cm;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
@@ -67,6 +71,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.WarmRestartSnapshot;
 import net.jxta.impl.xindice.core.data.Key;
 import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
@@ -79,6 +84,9 @@ import net.jxta.peergroup.PeerGroup;
  * Internally, this is a wrapper around an {@link net.jxta.impl.cm.SrdiAPI} selected using the system property
  * {@link #SRDI_INDEX_BACKEND_SYSPROP}. If no backend is specified through this system property, the default
  * implementation specified by {@link #DEFAULT_SRDI_INDEX_BACKEND} is used.
+ * <p>
+ * The records of backends implementing {@link EnumerableSrdiAPI} are saved in a
+ * {@link WarmRestartSnapshot} when the index stops, and restored when it is created again.
  */
 public class Srdi implements SrdiAPI {
 
@@ -93,6 +101,8 @@ public class Srdi implements SrdiAPI {
     private SrdiAPI backend;
     private ScheduledFuture<?> gcHandle;
     private final ScheduledExecutorService scheduledExecutor;
+    private final PeerGroup group;
+    private final String indexName;
 
     /**
      * Constructor for the Srdi
@@ -115,12 +125,15 @@ public class Srdi implements SrdiAPI {
 
     public Srdi(PeerGroup group, String indexName, long interval) {
     	this.scheduledExecutor = group.getTaskManager().getScheduledExecutorService();
+    	this.group = group;
+    	this.indexName = indexName;
     	
     	if(System.getProperty(SRDI_INDEX_BACKEND_SYSPROP) == null) {
     		Logging.logCheckedConfig(LOG, "No Srdi implementation specified through system property - using default implementation");
     	}
     	String backendClassName = System.getProperty(SRDI_INDEX_BACKEND_SYSPROP, DEFAULT_SRDI_INDEX_BACKEND);
     	createBackend(backendClassName, group, indexName);
+    	restoreRecords();
 
         Logging.logCheckedInfo(LOG, "[", group.toString(), "] : Starting SRDI GC Thread for ", indexName);
 
@@ -157,6 +170,8 @@ public class Srdi implements SrdiAPI {
     public Srdi(SrdiAPI backend, long gcInterval, ScheduledExecutorService scheduledExecutor) {
     	this.backend = backend;
     	this.scheduledExecutor = scheduledExecutor;
+    	this.group = null;
+    	this.indexName = null;
     	startGC(gcInterval);
     }
 
@@ -293,9 +308,91 @@ public class Srdi implements SrdiAPI {
             gcHandle.cancel(false);
         }
 
+        saveRecords();
+
     	backend.stop();
     }
 
+    /**
+     * Saves the records which have not expired, for a warm restart.
+     */
+    private void saveRecords() {
+        if ((null == group) || !(backend instanceof EnumerableSrdiAPI)) {
+            return;
+        }
+
+        final EnumerableSrdiAPI records = (EnumerableSrdiAPI) backend;
+
+        WarmRestartSnapshot.save(group, getSnapshotName(), new WarmRestartSnapshot.Writer() {
+            public void write(final DataOutput out) throws IOException {
+                records.visitRecords(new EnumerableSrdiAPI.Visitor() {
+                    public void visit(String primaryKey, String attribute, String value, PeerID pid, long expiration) throws IOException {
+                        out.writeBoolean(true);
+                        writeNullable(out, primaryKey);
+                        writeNullable(out, attribute);
+                        writeNullable(out, value);
+                        out.writeUTF(pid.toString());
+                        out.writeLong(expiration);
+                    }
+                });
+
+                out.writeBoolean(false);
+            }
+        });
+    }
+
+    /**
+     * Restores the records saved by {@link #saveRecords()} which have not expired.
+     */
+    private void restoreRecords() {
+        if (!(backend instanceof EnumerableSrdiAPI)) {
+            return;
+        }
+
+        WarmRestartSnapshot.load(group, getSnapshotName(), new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                int restored = 0;
+
+                while (in.readBoolean()) {
+                    String primaryKey = readNullable(in);
+                    String attribute = readNullable(in);
+                    String value = readNullable(in);
+                    String pid = in.readUTF();
+                    long expiresIn = TimeUtils.toRelativeTimeMillis(in.readLong());
+
+                    if (expiresIn <= 0) {
+                        continue;
+                    }
+
+                    try {
+                        backend.add(primaryKey, attribute, value, PeerID.create(new URI(pid)), expiresIn);
+                        restored++;
+                    } catch (URISyntaxException badID) {
+                        throw new IOException("Bad peer ID in snapshot : " + pid, badID);
+                    }
+                }
+
+                Logging.logCheckedFine(LOG, "Restored ", restored, " records of ", indexName);
+            }
+        });
+    }
+
+    private String getSnapshotName() {
+        return "Srdi-" + indexName;
+    }
+
+    private static void writeNullable(DataOutput out, String text) throws IOException {
+        out.writeBoolean(null != text);
+
+        if (null != text) {
+            WarmRestartSnapshot.writeString(out, text);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? WarmRestartSnapshot.readString(in) : null;
+    }
+
     /**
      * Flushes the Srdi directory for a specified group
      * this method should only be called before initialization of a given group
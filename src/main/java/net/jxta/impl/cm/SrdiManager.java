@@ -57,7 +57,6 @@
 package net.jxta.impl.cm;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.MessageFormat;
@@ -71,13 +70,19 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.Vector;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import net.jxta.credential.Credential;
 import net.jxta.id.ID;
 import net.jxta.id.IDFactory;
 import net.jxta.impl.protocol.ResolverSrdiMsgImpl;
 import net.jxta.impl.protocol.SrdiMessageImpl;
-import net.jxta.impl.util.JxtaHash;
+import net.jxta.impl.rendezvous.RendezVousServiceImpl;
+import net.jxta.impl.rendezvous.rpv.PeerView;
+import net.jxta.impl.rendezvous.rpv.PeerViewEvent;
+import net.jxta.impl.rendezvous.rpv.PeerViewListener;
+import net.jxta.impl.resolver.QuerySessions;
+import net.jxta.impl.resolver.ResolverServiceImpl;
 import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
 import net.jxta.peergroup.PeerGroup;
@@ -118,7 +123,7 @@ import net.jxta.resolver.ResolverService;
  *
  * @see <a href="https://jxta-spec.dev.java.net/nonav/JXTAProtocols.html#proto-prp" target="_blank">JXTA Protocols Specification : Peer Resolver Protocol</a>
  */
-public class SrdiManager implements RendezvousListener {
+public class SrdiManager implements RendezvousListener, PeerViewListener {
 
     /**
      * Logger
@@ -131,7 +136,6 @@ public class SrdiManager implements RendezvousListener {
     private SrdiAPI srdi;
 
     private ResolverService resolver;
-    private final JxtaHash jxtaHash = new JxtaHash();
     private Credential credential = null;
 
     private SrdiManagerPeriodicPushTask srdiPushTask;
@@ -146,6 +150,28 @@ public class SrdiManager implements RendezvousListener {
      */
     public final static int RPV_REPLICATION_THRESHOLD = 2;
 
+    /**
+     * The number of positions of each rendezvous on the replica ring.
+     */
+    private final static int REPLICA_VIRTUAL_NODES = Integer.getInteger(SrdiManager.class.getName() + ".virtualNodes", 128).intValue();
+
+    /**
+     * Incremented on every change of the peer view or of the rendezvous
+     * state. The replica ring is rebuilt when it no longer matches.
+     */
+    private final AtomicInteger viewChanges = new AtomicInteger(0);
+
+    /**
+     * The cached replica ring or {@code null} if it has not been built yet.
+     */
+    private volatile ReplicaRing replicaRing = null;
+
+    /**
+     * The peer view we listen to or {@code null} if we are not a
+     * rendezvous.
+     */
+    private PeerView peerView = null;
+
     /**
      * Interface for pushing entries.
      */
@@ -181,6 +207,7 @@ public class SrdiManager implements RendezvousListener {
         resolver = group.getResolverService();
 
         group.getRendezVousService().addListener(this);
+        watchPeerView();
     }
 
     /**
@@ -194,6 +221,11 @@ public class SrdiManager implements RendezvousListener {
         if (null != rendezvous) {
             rendezvous.removeListener(this);
         }
+
+        if (null != peerView) {
+            peerView.removeListener(this);
+            peerView = null;
+        }
     }
 
     /**
@@ -207,18 +239,22 @@ public class SrdiManager implements RendezvousListener {
 
     public void replicateEntries(SrdiMessage srdiMsg) {
 
-        List<PeerID> rpv = getGlobalPeerView();
+        if (srdiMsg.getScope() < SrdiMessage.REPLICATE || !group.isRendezvous()) {
+            return;
+        }
+
+        ConsistentHashRing<PeerID> ring = getReplicaRing();
 
-        if (srdiMsg.getScope() < SrdiMessage.REPLICATE || !group.isRendezvous() || rpv.size() < RPV_REPLICATION_THRESHOLD) {
+        if (ring.size() < RPV_REPLICATION_THRESHOLD) {
             return;
         }
 
         Iterator<Entry> allEntries = srdiMsg.getEntries().iterator();
-        Map<PeerID, SrdiMessageImpl> bins = new HashMap<PeerID, SrdiMessageImpl>(rpv.size());
+        Map<PeerID, SrdiMessageImpl> bins = new HashMap<PeerID, SrdiMessageImpl>(ring.size());
 
         while (allEntries.hasNext()) {
             Entry entry = allEntries.next();
-            PeerID destPeer = getReplicaPeer(srdiMsg.getPrimaryKey() + entry.key + entry.value);
+            PeerID destPeer = ring.get(srdiMsg.getPrimaryKey() + entry.key + entry.value);
 
             if (destPeer == null || destPeer.equals(group.getPeerID())) {
                 // don't replicate message back to ourselves
@@ -290,6 +326,16 @@ public class SrdiManager implements RendezvousListener {
 
         }
 
+        QuerySessions sessions = getQuerySessions();
+
+        // The peer holds the index entry, so only skip it if it already has the query.
+        if ((null != sessions) && !sessions.addTarget(query, peer)) {
+
+            Logging.logCheckedFine(LOG, "Not forwarding query #", query.getQueryId(), " to ", peer, " : already sent or answered");
+            return;
+
+        }
+
         Logging.logCheckedFine(LOG, MessageFormat.format("[{0} / {1}] Forwarding Query to {2}",
             group.getPeerGroupName(), handlername, peer));
 
@@ -304,6 +350,19 @@ public class SrdiManager implements RendezvousListener {
      * @param query The query
      */
     public void forwardQuery(List<PeerID> peers, ResolverQueryMsg query) {
+        forwardQuery(peers, query, peers.size(), false);
+    }
+
+    /**
+     * Forwards a Query to peers chosen from a list.
+     * hopCount is incremented to indicate this query is forwarded
+     *
+     * @param peers     The peerids to forward query to
+     * @param query     The query
+     * @param count     The number of peers to forward the query to
+     * @param randomize If {@code true} pick the peers at random
+     */
+    private void forwardQuery(List<PeerID> peers, ResolverQueryMsg query, int count, boolean randomize) {
 
         query.incrementHopCount();
 
@@ -317,6 +376,15 @@ public class SrdiManager implements RendezvousListener {
 
         }
 
+        QuerySessions sessions = getQuerySessions();
+
+        if (null != sessions) {
+            // Skip the peers which already have the query, or too many of our queries in flight.
+            peers = sessions.selectTargets(query, peers, count);
+        } else if (randomize) {
+            peers = randomResult(peers, count);
+        }
+
         for (PeerID destPeer : peers) {
 
             Logging.logCheckedFine(LOG, MessageFormat.format("[{0} / {1}] Forwarding Query to {2}",
@@ -351,14 +419,28 @@ public class SrdiManager implements RendezvousListener {
 
         }
 
-        if (peers.size() <= threshold) {
-            forwardQuery(peers, query);
-        } else {
-            // pick some random entries out of the list
-            List<PeerID> newPeers = randomResult(peers, threshold);
-            forwardQuery(newPeers, query);
+        QuerySessions sessions = getQuerySessions();
+
+        if ((null != sessions) && group.getPeerID().equals(query.getSrcPeer())) {
+            // Our own query, we want responses from threshold peers.
+            sessions.open(query, threshold);
+        }
+
+        // pick some random entries out of the list
+        forwardQuery(peers, query, threshold, peers.size() > threshold);
+
+    }
+
+    /**
+     * @return the query sessions of the resolver, or {@code null} if the
+     * resolver does not track them.
+     */
+    private QuerySessions getQuerySessions() {
+        if (resolver instanceof ResolverServiceImpl) {
+            return ((ResolverServiceImpl) resolver).getQuerySessions();
         }
 
+        return null;
     }
 
     /**
@@ -385,27 +467,21 @@ public class SrdiManager implements RendezvousListener {
      * Given an expression return a peer from the list peers in the peerview
      * this function is used to to give a replication point, and entry point
      * to query on a pipe
+     * <p/>
+     * Expressions are mapped onto a consistent hash ring of the global peer
+     * view, so a rendezvous joining or leaving the peerview only moves the
+     * expressions it gains or loses.
      *
      * @param expression expression to derive the mapping from
      * @return The replicaPeer value
      */
     public PeerID getReplicaPeer(String expression) {
-        PeerID pid;
-        List<PeerID> rpv = getGlobalPeerView();
-
-        if (rpv.size() >= RPV_REPLICATION_THRESHOLD) {
-            BigInteger digest;
+        ConsistentHashRing<PeerID> ring = getReplicaRing();
 
-            synchronized (jxtaHash) {
-                jxtaHash.update(expression);
-                digest = jxtaHash.getDigestInteger().abs();
-            }
-            BigInteger sizeOfSpace = java.math.BigInteger.valueOf(rpv.size());
-            BigInteger sizeOfHashSpace = BigInteger.ONE.shiftLeft(8 * digest.toByteArray().length);
-            int pos = (digest.multiply(sizeOfSpace)).divide(sizeOfHashSpace).intValue();
+        if (ring.size() >= RPV_REPLICATION_THRESHOLD) {
 
-            pid = rpv.get(pos);
-            Logging.logCheckedFine(LOG, MessageFormat.format("[{0} / {1}] Found a direct peer {2}", group.getPeerGroupName(), handlername, pid));
+            PeerID pid = ring.get(expression);
+            Logging.logCheckedFine(LOG, "[", group.getPeerGroupName(), " / ", handlername, "] Found a direct peer ", pid);
 
             return pid;
 
@@ -416,6 +492,57 @@ public class SrdiManager implements RendezvousListener {
         }
     }
 
+    /**
+     * Returns the replica ring for the current global peer view, building it
+     * if the view has changed since it was last built.
+     *
+     * @return the replica ring.
+     */
+    private ConsistentHashRing<PeerID> getReplicaRing() {
+        int current = viewChanges.get();
+        ReplicaRing cached = replicaRing;
+
+        if ((null == cached) || (cached.viewChange != current)) {
+            cached = new ReplicaRing(current, new ConsistentHashRing<PeerID>(getGlobalPeerView(), REPLICA_VIRTUAL_NODES));
+            replicaRing = cached;
+        }
+
+        return cached.ring;
+    }
+
+    /**
+     * Listen to the peer view of the rendezvous service, which changes when
+     * we become or stop being a rendezvous.
+     */
+    private synchronized void watchPeerView() {
+        RendezVousService rendezvous = group.getRendezVousService();
+        PeerView current = null;
+
+        if (rendezvous instanceof RendezVousServiceImpl) {
+            current = ((RendezVousServiceImpl) rendezvous).getPeerView();
+        }
+
+        if (current != peerView) {
+            if (null != peerView) {
+                peerView.removeListener(this);
+            }
+
+            if (null != current) {
+                current.addListener(this);
+            }
+
+            peerView = current;
+            viewChanges.incrementAndGet();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void peerViewEvent(PeerViewEvent event) {
+        viewChanges.incrementAndGet();
+    }
+
     /**
      * forward srdimsg message to another peer
      *
@@ -456,6 +583,10 @@ public class SrdiManager implements RendezvousListener {
 
         Logging.logCheckedFine(LOG, MessageFormat.format("[{0} / {1}] Processing {2}", group.getPeerGroupName(), handlername, event));
 
+        // Connections and role changes alter the global peer view.
+        viewChanges.incrementAndGet();
+        watchPeerView();
+
         switch (theEventType) {
 
             case RendezvousEvent.RDVCONNECT:
@@ -584,5 +715,18 @@ public class SrdiManager implements RendezvousListener {
 
         return global;
     }
+
+    /**
+     * A replica ring and the view change it was built for.
+     */
+    private static final class ReplicaRing {
+        final int viewChange;
+        final ConsistentHashRing<PeerID> ring;
+
+        ReplicaRing(int viewChange, ConsistentHashRing<PeerID> ring) {
+            this.viewChange = viewChange;
+            this.ring = ring;
+        }
+    }
 }
 
@@ -74,6 +74,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Timer;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -142,6 +143,10 @@ public class XIndiceAdvertisementCache extends AbstractAdvertisementCache implem
      * The Executor we use for our tasks.
      */
     private final ScheduledExecutorService executor;
+    /**
+     * The Executor running the garbage collections.
+     */
+    private final Executor gcExecutor;
     /*
      *  record db
      */
@@ -214,6 +219,7 @@ public class XIndiceAdvertisementCache extends AbstractAdvertisementCache implem
      */
     public XIndiceAdvertisementCache(URI storeRoot, String areaName, TaskManager taskManager, long gcInterval, boolean trackDeltas) throws IOException {
         this.executor = taskManager.getScheduledExecutorService();
+        this.gcExecutor = taskManager.getExecutorLane(TaskManager.CM_LANE);
         this.trackDeltas = trackDeltas;
         this.gcMaxInterval = (0 >= gcInterval) ? DEFAULT_GC_MAX_INTERVAL : gcInterval;
 
@@ -1228,7 +1234,7 @@ public class XIndiceAdvertisementCache extends AbstractAdvertisementCache implem
                     inconvenienceLevel.set(0);
                     gcTime = TimeUtils.toAbsoluteTimeMillis(gcMaxInterval);
 
-                    executor.execute(new RecordGC());
+                    gcExecutor.execute(new RecordGC());
                 }
 
             } catch (Throwable all) {
@@ -2,7 +2,12 @@ package net.jxta.impl.cm.sql;
 
 import java.io.IOException;
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 
 import net.jxta.impl.util.threads.TaskManager;
 
@@ -31,6 +36,40 @@ public class DerbyAdvertisementCache extends JdbcAdvertisementCache {
 		return dataSource;
 	}
 	
+	@Override
+	protected String explain(Connection conn, String sql, List<String> parameters) throws SQLException {
+		// Derby only reports the plan of a statement once it has been executed,
+		// through the runtime statistics of the connection.
+		Statement control = conn.createStatement();
+		PreparedStatement st = null;
+		try {
+			control.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+
+			st = conn.prepareStatement(sql);
+			for(int i=0; i < parameters.size(); i++) {
+				st.setString(i + 1, parameters.get(i));
+			}
+
+			ResultSet rs = st.executeQuery();
+			while(rs.next()) {
+				// the statistics are only complete once the results are consumed
+			}
+			rs.close();
+
+			rs = control.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()");
+			String plan = rs.next() ? rs.getString(1) : "";
+			rs.close();
+
+			return plan;
+		} finally {
+			if(st != null) {
+				st.close();
+			}
+			control.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)");
+			control.close();
+		}
+	}
+	
 	@Override
 	protected void shutdownDb() throws SQLException {
 		// annoyingly, shutting down a derby instance involves catching an exception
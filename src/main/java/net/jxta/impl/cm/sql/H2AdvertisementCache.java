@@ -2,7 +2,11 @@ package net.jxta.impl.cm.sql;
 
 import java.io.IOException;
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import javax.sql.ConnectionPoolDataSource;
 
@@ -34,4 +38,25 @@ public class H2AdvertisementCache extends JdbcAdvertisementCache {
 		// no special shutdown is required for H2
 	}
 
+	@Override
+	protected String explain(Connection conn, String sql, List<String> parameters) throws SQLException {
+		PreparedStatement st = conn.prepareStatement("EXPLAIN " + sql);
+		try {
+			for(int i=0; i < parameters.size(); i++) {
+				st.setString(i + 1, parameters.get(i));
+			}
+
+			ResultSet rs = st.executeQuery();
+			StringBuilder plan = new StringBuilder();
+			while(rs.next()) {
+				plan.append(rs.getString(1)).append('\n');
+			}
+			rs.close();
+
+			return plan.toString();
+		} finally {
+			st.close();
+		}
+	}
+
 }
@@ -0,0 +1,172 @@
+package net.jxta.impl.cm.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates the value of an advertisement search, which may contain
+ * {@code *} wildcards, into a query on the {@code IndexField} table that
+ * the database can answer with an index range scan.
+ * <p/>
+ * <ul>
+ * <li>A value without wildcards is an equality match on
+ * {@code (dn, name, value)}.</li>
+ * <li>A value with a literal prefix, such as {@code Peer*}, is a range scan
+ * of {@code (dn, name, value)} from the prefix up to the next string which
+ * does not start with it.</li>
+ * <li>A value with only a literal suffix, such as {@code *PeerX}, is a range
+ * scan of {@code (dn, name, reversedValue)} over the reversed suffix.</li>
+ * <li>Any other wildcards are matched with {@code LIKE}, restricted by the
+ * range where there is one.</li>
+ * </ul>
+ * The {@code %} and {@code _} characters of the value are matched
+ * literally.
+ */
+final class IndexFieldQuery {
+
+	/**
+	 * The escape character of the {@code LIKE} patterns.
+	 */
+	static final char LIKE_ESCAPE = '\\';
+
+	/**
+	 * The query. Its parameters are the dn, the attribute name and then
+	 * {@link #getValueParameters()}.
+	 */
+	final String sql;
+
+	private final List<String> valueParameters = new ArrayList<String>(3);
+
+	/**
+	 * @param value the value searched for.
+	 */
+	IndexFieldQuery(String value) {
+		StringBuilder where = new StringBuilder();
+
+		int firstWildcard = value.indexOf('*');
+
+		if(firstWildcard < 0) {
+			where.append("  AND IndexField.value = ?\n");
+			valueParameters.add(value);
+		} else {
+			int lastWildcard = value.lastIndexOf('*');
+			String prefix = value.substring(0, firstWildcard);
+			String suffix = value.substring(lastWildcard + 1);
+			boolean needsLike = false;
+
+			if(prefix.length() > 0) {
+				addRange(where, "IndexField.value", prefix);
+				needsLike = (lastWildcard != value.length() - 1) || (firstWildcard != lastWildcard);
+			} else if(suffix.length() > 0) {
+				addRange(where, "IndexField.reversedValue", reverse(suffix));
+				needsLike = (firstWildcard != lastWildcard);
+			} else {
+				needsLike = (value.replace("*", "").length() > 0);
+			}
+
+			if(needsLike) {
+				where.append("  AND IndexField.value LIKE ? ESCAPE '").append(LIKE_ESCAPE).append("'\n");
+				valueParameters.add(toLikePattern(value));
+			}
+		}
+
+		sql = "SELECT Record.data, Record.lifetime, Record.expiry\n" +
+				"FROM IndexField, Record\n" +
+				"WHERE IndexField.dn = ?\n" +
+				"  AND IndexField.name = ?\n" +
+				where +
+				"  AND Record.dn = IndexField.dn\n" +
+				"  AND Record.fn = IndexField.fn\n" +
+				"  AND Record.isAdvertisement = 1";
+	}
+
+	private void addRange(StringBuilder where, String column, String prefix) {
+		where.append("  AND ").append(column).append(" >= ?\n");
+		valueParameters.add(prefix);
+
+		String upper = upperBound(prefix);
+		if(upper != null) {
+			where.append("  AND ").append(column).append(" < ?\n");
+			valueParameters.add(upper);
+		}
+	}
+
+	/**
+	 * @return the parameters of the query which follow the dn and the
+	 * attribute name.
+	 */
+	List<String> getValueParameters() {
+		return valueParameters;
+	}
+
+	/**
+	 * Sets the parameters of a statement prepared from {@link #sql}.
+	 */
+	void bind(PreparedStatement st, String dn, String attribute) throws SQLException {
+		int index = 1;
+		st.setString(index++, dn);
+		st.setString(index++, attribute);
+
+		for(String parameter : valueParameters) {
+			st.setString(index++, parameter);
+		}
+	}
+
+	/**
+	 * @return the value stored in the {@code reversedValue} column for a
+	 * value.
+	 */
+	static String reverse(String value) {
+		return new StringBuilder(value).reverse().toString();
+	}
+
+	/**
+	 * @return the least string greater than every string starting with the
+	 * prefix, or {@code null} if there is none.
+	 */
+	static String upperBound(String prefix) {
+		StringBuilder upper = new StringBuilder(prefix);
+
+		for(int last = upper.length() - 1; last >= 0; last--) {
+			char c = upper.charAt(last);
+
+			if(c != Character.MAX_VALUE) {
+				upper.setCharAt(last, (char) (c + 1));
+				upper.setLength(last + 1);
+				return upper.toString();
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the {@code LIKE} pattern matching a search value.
+	 */
+	static String toLikePattern(String value) {
+		StringBuilder pattern = new StringBuilder(value.length() + 8);
+
+		for(int each = 0; each < value.length(); each++) {
+			char c = value.charAt(each);
+
+			switch(c) {
+				case '*' :
+					pattern.append('%');
+					break;
+
+				case '%' :
+				case '_' :
+				case LIKE_ESCAPE :
+					pattern.append(LIKE_ESCAPE).append(c);
+					break;
+
+				default :
+					pattern.append(c);
+			}
+		}
+
+		return pattern.toString();
+	}
+}
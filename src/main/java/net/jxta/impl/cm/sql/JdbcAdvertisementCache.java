@@ -68,6 +68,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -95,15 +97,21 @@ import net.jxta.protocol.SrdiMessage.Entry;
  * <ul>
  * <li>A connection pool is used to deal with concurrent access, rather than attempting
  * to synchronize access to a single connection.</li>
- * <li>We assume JDBC 3.0 prepared statement pooling is available in the database, rather
- * than trying to hold on to PreparedStatement objects for as long as possible (impossible
- * with the connection pool strategy in use).</li>
+ * <li>Prepared statements are cached by each pooled connection (see
+ * {@link MiniConnectionPoolManager}), so statements are prepared once per connection
+ * rather than on every call.</li>
+ * <li>The index fields of an advertisement are inserted as a single JDBC batch, and
+ * {@link #saveAll(List)} stores many advertisements in one transaction.</li>
+ * <li>Index fields are indexed by <code>(dn, name, value)</code> and by
+ * <code>(dn, name, reversedValue)</code>, so that exact, prefix and suffix searches are
+ * index range scans rather than table scans (see {@link IndexFieldQuery}).</li>
  * </ul>
  */
 public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache {
 
 	private static final Logger LOG = Logger.getLogger(JdbcAdvertisementCache.class.getName());
 	private static final int MAX_CONNECTIONS = 16;
+	private static final int STATEMENT_CACHE_SIZE = 32;
 
 	private static final String CREATE_RECORD_TABLE_SQL 
 	= "CREATE TABLE Record \n" + 
@@ -124,6 +132,7 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 			"	fn VARCHAR(255) NOT NULL,\n" + 
 			"	name VARCHAR(255) NOT NULL,\n" + 
 			"	value VARCHAR(255) NOT NULL,\n" + 
+			"	reversedValue VARCHAR(255) NOT NULL,\n" + 
 			"	FOREIGN KEY(dn, fn) REFERENCES Record(dn, fn) ON DELETE CASCADE,\n" +
 			"   PRIMARY KEY(dn, fn, name)\n" +
 			")";
@@ -131,9 +140,23 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 	private static final String CREATE_DELTA_EXPIRY_INDEX_SQL
 	= "CREATE INDEX RecordExpiryIndex ON Record ( lifetime )";
 
-	@SuppressWarnings("unused")
-	private static final String PUT_INDEXFIELD_SQL
-	= "INSERT INTO IndexField VALUES (?,?,?,?)";
+	/**
+	 * Serves equality and prefix searches, see {@link IndexFieldQuery}.
+	 */
+	private static final String CREATE_VALUE_INDEX_SQL
+	= "CREATE INDEX IndexFieldValueIndex ON IndexField ( dn, name, value )";
+
+	/**
+	 * Serves suffix searches, see {@link IndexFieldQuery}.
+	 */
+	private static final String CREATE_REVERSED_VALUE_INDEX_SQL
+	= "CREATE INDEX IndexFieldReversedValueIndex ON IndexField ( dn, name, reversedValue )";
+
+	/**
+	 * Adds the reversed value column to a store created by an earlier version.
+	 */
+	private static final String ADD_REVERSED_VALUE_COLUMN_SQL
+	= "ALTER TABLE IndexField ADD COLUMN reversedValue VARCHAR(255) DEFAULT '' NOT NULL";
 
 	//	static {
 	//		if(!loadDbDriver(DATABASE_DRIVER)) {
@@ -188,7 +211,7 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 		File dbParentDir = new File(storeRoot);
 		dbDir = new File(dbParentDir, areaName);
 		ConnectionPoolDataSource dataSource = createDataSource();
-		connPool = new MiniConnectionPoolManager(dataSource,MAX_CONNECTIONS);
+		connPool = new MiniConnectionPoolManager(dataSource, MAX_CONNECTIONS, 60, STATEMENT_CACHE_SIZE);
 		deltaTracker = new DeltaTracker();
 		deltaTracker.setTrackingDeltas(trackDeltas);
 
@@ -217,14 +240,16 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 		try {
 			conn = getConnection();
 
-			if(testDatabaseSetUp(conn)) {
-				successful = true;
+			if(!testDatabaseSetUp(conn)) {
+				executeCreate(conn, CREATE_RECORD_TABLE_SQL);
+				executeCreate(conn, CREATE_INDEXFIELD_TABLE_SQL);
+				executeCreate(conn, CREATE_DELTA_EXPIRY_INDEX_SQL);
+				executeCreate(conn, CREATE_VALUE_INDEX_SQL);
+				executeCreate(conn, CREATE_REVERSED_VALUE_INDEX_SQL);
+			} else if(!testReversedValueSetUp(conn)) {
+				upgradeIndexFields(conn);
 			}
 
-			executeCreate(conn, CREATE_RECORD_TABLE_SQL);
-			executeCreate(conn, CREATE_INDEXFIELD_TABLE_SQL);
-			executeCreate(conn, CREATE_DELTA_EXPIRY_INDEX_SQL);
-
 			conn.commit();
 			successful = true;
 		} 
@@ -291,9 +316,59 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 
 	private boolean testDatabaseSetUp(Connection conn) throws SQLException {
 
-		// check to see if the Record table exists
-		return conn.getMetaData().getTables(null, null, "Record", null).next();
+		// check to see if the Record table exists. Both H2 and Derby store
+		// unquoted identifiers in upper case.
+		return conn.getMetaData().getTables(null, null, "RECORD", null).next();
+
+	}
+
+	private boolean testReversedValueSetUp(Connection conn) throws SQLException {
+
+		return conn.getMetaData().getColumns(null, null, "INDEXFIELD", "REVERSEDVALUE").next();
+
+	}
+
+	private static final String GET_ALL_INDEXABLES_SQL = "SELECT dn, fn, name, value FROM IndexField";
+	private static final String SET_REVERSED_VALUE_SQL = "UPDATE IndexField SET reversedValue = ? WHERE dn = ? AND fn = ? AND name = ?";
+
+	/**
+	 * Adds the reversed values and the value indexes to a store created by an
+	 * earlier version.
+	 */
+	private void upgradeIndexFields(Connection conn) throws SQLException {
+		Logging.logCheckedInfo(LOG, "Adding value indexes to advertisement cache ", dbDir);
+
+		executeCreate(conn, ADD_REVERSED_VALUE_COLUMN_SQL);
+
+		PreparedStatement fetchSt = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			fetchSt = conn.prepareStatement(GET_ALL_INDEXABLES_SQL);
+			st = conn.prepareStatement(SET_REVERSED_VALUE_SQL);
+			rs = fetchSt.executeQuery();
+
+			int batched = 0;
+			while(rs.next()) {
+				st.setString(1, IndexFieldQuery.reverse(rs.getString(4)));
+				st.setString(2, rs.getString(1));
+				st.setString(3, rs.getString(2));
+				st.setString(4, rs.getString(3));
+				st.addBatch();
+				batched++;
+			}
+
+			if(batched > 0 && !checkBatch(st.executeBatch(), batched)) {
+				throw new SQLException("Incorrect number of index fields updated");
+			}
+		} finally {
+			closeResultSet(rs);
+			closeStatement(fetchSt);
+			closeStatement(st);
+		}
 
+		executeCreate(conn, CREATE_VALUE_INDEX_SQL);
+		executeCreate(conn, CREATE_REVERSED_VALUE_INDEX_SQL);
 	}
 
 	private Connection getConnection() throws SQLException {
@@ -595,10 +670,8 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 
 			StructuredDocument<?> doc = (StructuredDocument<?>)adv.getSignedDocument();
 			Map<String, String> indexFields = CacheUtils.getIndexfields(adv.getIndexFields(), doc);
-			for(String indexField : indexFields.keySet()) {
-				if(!putIndexable(conn, dn, fn, indexField, indexFields.get(indexField))) {
-					return;
-				}
+			if(!putIndexables(conn, dn, fn, indexFields)) {
+				return;
 			}
 
 			deltaTracker.generateDeltas(dn, adv, null, expiration);
@@ -626,24 +699,120 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 		}
 	}
 
-	private static final String PUT_INDEXABLE_SQL = "INSERT INTO IndexField VALUES (?,?,?,?)";
-	private boolean putIndexable(Connection conn, String dn, String fn, String field, String value) throws SQLException {
+	/**
+	 * Stores many advertisements in a single transaction. The index fields of all the
+	 * advertisements are inserted as one JDBC batch. If the batch fails the
+	 * advertisements are saved one at a time, so that one bad advertisement does not
+	 * prevent the others from being cached.
+	 */
+	@Override
+	public void saveAll(List<Publication> publications) throws IOException {
+
+		// A later publication of the same record replaces an earlier one.
+		Map<String, Publication> unique = new LinkedHashMap<String, Publication>();
+		for(Publication each : publications) {
+			if(each.lifetime < 0 || each.expiration < 0) {
+				throw new IllegalArgumentException("Bad expiration or lifetime.");
+			}
+
+			unique.put(each.dn + "/" + each.fn, each);
+		}
+
+		if(unique.isEmpty()) {
+			return;
+		}
+
+		Connection conn = null;
 		PreparedStatement st = null;
+		boolean rollback = true;
 		try {
+			conn = getConnection();
 			st = conn.prepareStatement(PUT_INDEXABLE_SQL);
-			st.setString(1, dn);
-			st.setString(2, fn);
-			st.setString(3, field);
-			st.setString(4, value);
+			int batched = 0;
 
-			st.executeUpdate();
+			for(Publication each : unique.values()) {
+				boolean wasNew = putRecord(conn, each.dn, each.fn, true, getBytesForAdvert(each.adv), each.lifetime, each.expiration);
 
-			return st.getUpdateCount() == 1;
+				if(!wasNew) {
+					deleteIndexables(conn, each.dn, each.fn);
+				}
+
+				StructuredDocument<?> doc = (StructuredDocument<?>)each.adv.getSignedDocument();
+				batched += addIndexables(st, each.dn, each.fn, CacheUtils.getIndexfields(each.adv.getIndexFields(), doc));
+			}
+
+			if(batched > 0 && !checkBatch(st.executeBatch(), batched)) {
+				throw new SQLException("Incorrect number of index fields inserted");
+			}
+
+			conn.commit();
+			rollback = false;
+		} catch(SQLException e) {
+			Logging.logCheckedWarning(LOG, "Failed to write ", unique.size(), " advertisements in one transaction, saving them one at a time\n", e);
+		} catch(IOException e) {
+			Logging.logCheckedWarning(LOG, "Failed to write ", unique.size(), " advertisements in one transaction, saving them one at a time\n", e);
+		} finally {
+			closeResources(conn, rollback, st);
+		}
+
+		if(rollback) {
+			for(Publication each : unique.values()) {
+				save(each.dn, each.fn, each.adv, each.lifetime, each.expiration);
+			}
+		} else {
+			for(Publication each : unique.values()) {
+				deltaTracker.generateDeltas(each.dn, each.adv, null, each.expiration);
+			}
+		}
+	}
+
+	private static final String PUT_INDEXABLE_SQL = "INSERT INTO IndexField (dn, fn, name, value, reversedValue) VALUES (?,?,?,?,?)";
+	private boolean putIndexables(Connection conn, String dn, String fn, Map<String, String> indexFields) throws SQLException {
+		if(indexFields.isEmpty()) {
+			return true;
+		}
+
+		PreparedStatement st = null;
+		try {
+			st = conn.prepareStatement(PUT_INDEXABLE_SQL);
+			int batched = addIndexables(st, dn, fn, indexFields);
+
+			return checkBatch(st.executeBatch(), batched);
 		} finally {
 			closeStatement(st);
 		}
 	}
 
+	private int addIndexables(PreparedStatement st, String dn, String fn, Map<String, String> indexFields) throws SQLException {
+		for(Map.Entry<String, String> field : indexFields.entrySet()) {
+			st.setString(1, dn);
+			st.setString(2, fn);
+			st.setString(3, field.getKey());
+			st.setString(4, field.getValue());
+			st.setString(5, IndexFieldQuery.reverse(field.getValue()));
+			st.addBatch();
+		}
+
+		return indexFields.size();
+	}
+
+	/**
+	 * @return true if every statement of the batch inserted exactly one row.
+	 */
+	private boolean checkBatch(int[] updateCounts, int expected) {
+		if(updateCounts.length != expected) {
+			return false;
+		}
+
+		for(int count : updateCounts) {
+			if(count != 1 && count != Statement.SUCCESS_NO_INFO) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	private IOException createWrapper(String message, SQLException e) {
 		IOException wrapper = new IOException(message);
 		wrapper.initCause(e);
@@ -771,23 +940,12 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 		}
 	}
 
-	static String SEARCH_RECORDS_SQL(boolean withValueMatch) {
-		return "SELECT Record.data, Record.lifetime, Record.expiry\n" +
-				"FROM Record, IndexField\n" +
-				"WHERE Record.isAdvertisement = 1" +
-				"  AND IndexField.name = ?\n" +
-				((withValueMatch) ? "  AND IndexField.value LIKE ?\n" : "") +
-				"  AND IndexField.dn = ?\n" +
-				"  AND IndexField.dn = Record.dn\n" +
-				"  AND IndexField.fn = Record.fn";
-	}
-
 	public List<InputStream> search(String dn, String attribute, String value,
 			int threshold, List<Long> expirations) throws IOException {
 
 		LinkedList<InputStream> results = new LinkedList<InputStream>();
 
-		boolean withValueMatch = !("*".equals(value));
+		IndexFieldQuery query = new IndexFieldQuery(value);
 		boolean returnExpiry = (expirations != null);
 
 		Connection conn = null;
@@ -795,15 +953,8 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 		boolean rollback = true;
 		try {
 			conn = getConnection();
-			st = conn.prepareStatement(SEARCH_RECORDS_SQL(withValueMatch));
-
-			int attrIndex = 1;
-			st.setString(attrIndex++, attribute);
-			if(withValueMatch) {
-				st.setString(attrIndex++, value.replace('*', '%'));
-			}
-
-			st.setString(attrIndex++, dn);
+			st = conn.prepareStatement(query.sql);
+			query.bind(st, dn, attribute);
 			st.setMaxRows(threshold);
 
 			st.execute();
@@ -832,6 +983,36 @@ public abstract class JdbcAdvertisementCache extends AbstractAdvertisementCache
 		}
 	}
 
+	/**
+	 * Returns the plan the database uses to execute a search. For tests.
+	 */
+	String explainSearch(String dn, String attribute, String value) throws IOException {
+		IndexFieldQuery query = new IndexFieldQuery(value);
+
+		Connection conn = null;
+		try {
+			conn = getConnection();
+			List<String> parameters = new ArrayList<String>();
+			parameters.add(dn);
+			parameters.add(attribute);
+			parameters.addAll(query.getValueParameters());
+
+			return explain(conn, query.sql, parameters);
+		} catch(SQLException e) {
+			throw createWrapper("Unable to explain search. dn=[" + dn + "], attribute=[" + attribute + "], value=[" + value + "]", e);
+		} finally {
+			closeResources(conn, true);
+		}
+	}
+
+	/**
+	 * Returns the plan the database uses to execute a query.
+	 * 
+	 * @param sql the query.
+	 * @param parameters the string parameters of the query.
+	 */
+	protected abstract String explain(Connection conn, String sql, List<String> parameters) throws SQLException;
+
 	public void setTrackDeltas(boolean trackDeltas) {
 
 		deltaTracker.setTrackingDeltas(trackDeltas);
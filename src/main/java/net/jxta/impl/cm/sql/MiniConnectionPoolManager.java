@@ -12,9 +12,17 @@
 package net.jxta.impl.cm.sql;
 
 import java.util.concurrent.Semaphore;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Stack;
 import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.concurrent.TimeUnit;
 import javax.sql.ConnectionPoolDataSource;
@@ -27,6 +35,12 @@ import javax.sql.PooledConnection;
 * <p>
 * The public methods of this class are thread-safe.
 * <p>
+* Each pooled connection keeps a cache of the statements prepared through it.
+* The connections handed out by {@link #getConnection()} return a cached
+* statement from <code>prepareStatement(String)</code>, and closing such a
+* statement only resets it for the next user. Closing the connection returns
+* it, with its statements, to the pool.
+* <p>
 * Author: Christian d'Heureuse (<a href="http://www.source-code.biz">www.source-code.biz</a>)<br>
 * Multi-licensed: EPL/LGPL/MPL.
 * <p>
@@ -38,9 +52,10 @@ public class MiniConnectionPoolManager {
 private ConnectionPoolDataSource       dataSource;
 private int                            maxConnections;
 private int                            timeout;
+private int                            statementCacheSize;
 private PrintWriter                    logWriter;
 private Semaphore                      semaphore;
-private Stack<PooledConnection>        recycledConnections;
+private Stack<PooledEntry>             recycledConnections;
 private int                            activeConnections;
 private PoolConnectionEventListener    poolConnectionEventListener;
 private boolean                        isDisposed;
@@ -54,7 +69,8 @@ public static class TimeoutException extends RuntimeException {
       super ("Timeout while waiting for a free database connection."); }}
 
 /**
-* Constructs a MiniConnectionPoolManager object with a timeout of 60 seconds.
+* Constructs a MiniConnectionPoolManager object with a timeout of 60 seconds
+* and no statement cache.
 * @param dataSource      the data source for the connections.
 * @param maxConnections  the maximum number of connections.
 */
@@ -62,21 +78,33 @@ public MiniConnectionPoolManager (ConnectionPoolDataSource dataSource, int maxCo
    this (dataSource, maxConnections, 60); }
 
 /**
-* Constructs a MiniConnectionPoolManager object.
+* Constructs a MiniConnectionPoolManager object with no statement cache.
 * @param dataSource      the data source for the connections.
 * @param maxConnections  the maximum number of connections.
 * @param timeout         the maximum time in seconds to wait for a free connection.
 */
 public MiniConnectionPoolManager (ConnectionPoolDataSource dataSource, int maxConnections, int timeout) {
+   this (dataSource, maxConnections, timeout, 0); }
+
+/**
+* Constructs a MiniConnectionPoolManager object.
+* @param dataSource          the data source for the connections.
+* @param maxConnections      the maximum number of connections.
+* @param timeout             the maximum time in seconds to wait for a free connection.
+* @param statementCacheSize  the maximum number of prepared statements kept by each connection.
+*/
+public MiniConnectionPoolManager (ConnectionPoolDataSource dataSource, int maxConnections, int timeout, int statementCacheSize) {
    this.dataSource = dataSource;
    this.maxConnections = maxConnections;
    this.timeout = timeout;
+   this.statementCacheSize = statementCacheSize;
    try {
       logWriter = dataSource.getLogWriter(); }
     catch (SQLException e) {}
    if (maxConnections < 1) throw new IllegalArgumentException("Invalid maxConnections value.");
+   if (statementCacheSize < 0) throw new IllegalArgumentException("Invalid statementCacheSize value.");
    semaphore = new Semaphore(maxConnections,true);
-   recycledConnections = new Stack<PooledConnection>();
+   recycledConnections = new Stack<PooledEntry>();
    poolConnectionEventListener = new PoolConnectionEventListener(); }
 
 /**
@@ -87,9 +115,10 @@ public synchronized void dispose() throws SQLException {
    isDisposed = true;
    SQLException e = null;
    while (!recycledConnections.isEmpty()) {
-      PooledConnection pconn = recycledConnections.pop();
+      PooledEntry entry = recycledConnections.pop();
+      entry.closeStatements();
       try {
-         pconn.close(); }
+         entry.pconn.close(); }
        catch (SQLException e2) {
           if (e == null) e = e2; }}
    if (e != null) throw e; }
@@ -122,30 +151,32 @@ public Connection getConnection() throws SQLException {
 
 private synchronized Connection getConnection2() throws SQLException {
    if (isDisposed) throw new IllegalStateException("Connection pool has been disposed.");   // test again with lock
-   PooledConnection pconn;
+   PooledEntry entry;
    if (!recycledConnections.empty()) {
-      pconn = recycledConnections.pop(); }
+      entry = recycledConnections.pop(); }
     else {
-      pconn = dataSource.getPooledConnection(); }
-   Connection conn = pconn.getConnection();
+      PooledConnection pconn = dataSource.getPooledConnection();
+      entry = new PooledEntry(pconn, pconn.getConnection());
+      pconn.addConnectionEventListener (poolConnectionEventListener); }
    activeConnections++;
-   pconn.addConnectionEventListener (poolConnectionEventListener);
    assertInnerState();
-   return conn; }
+   return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+         new Class<?>[] {Connection.class}, new ConnectionHandle(entry)); }
 
-private synchronized void recycleConnection (PooledConnection pconn) {
-   if (isDisposed) { disposeConnection (pconn); return; }
+private synchronized void recycleConnection (PooledEntry entry) {
+   if (isDisposed || entry.broken) { disposeConnection (entry); return; }
    if (activeConnections <= 0) throw new AssertionError();
    activeConnections--;
    semaphore.release();
-   recycledConnections.push (pconn);
+   recycledConnections.push (entry);
    assertInnerState(); }
 
-private synchronized void disposeConnection (PooledConnection pconn) {
+private synchronized void disposeConnection (PooledEntry entry) {
    if (activeConnections <= 0) throw new AssertionError();
    activeConnections--;
    semaphore.release();
-   closeConnectionNoEx (pconn);
+   entry.closeStatements();
+   closeConnectionNoEx (entry.pconn);
    assertInnerState(); }
 
 private void closeConnectionNoEx (PooledConnection pconn) {
@@ -170,13 +201,160 @@ private void assertInnerState() {
 
 private class PoolConnectionEventListener implements ConnectionEventListener {
    public void connectionClosed (ConnectionEvent event) {
-      PooledConnection pconn = (PooledConnection)event.getSource();
-      pconn.removeConnectionEventListener (this);
-      recycleConnection (pconn); }
+      // We only close our connections when we dispose of them.
+      }
    public void connectionErrorOccurred (ConnectionEvent event) {
       PooledConnection pconn = (PooledConnection)event.getSource();
       pconn.removeConnectionEventListener (this);
-      disposeConnection (pconn); }}
+      connectionBroken (pconn); }}
+
+/**
+* Connections in use, by pooled connection.
+*/
+private final Map<PooledConnection,PooledEntry> inUse = new IdentityHashMap<PooledConnection,PooledEntry>();
+
+/**
+* A connection in use is disposed of when it is closed, an idle one right away.
+*/
+private synchronized void connectionBroken (PooledConnection pconn) {
+   PooledEntry entry = inUse.get(pconn);
+   if (entry != null) {
+      entry.broken = true;
+      return; }
+   for (PooledEntry idle : recycledConnections) {
+      if (idle.pconn == pconn) {
+         recycledConnections.remove(idle);
+         idle.closeStatements();
+         closeConnectionNoEx (pconn);
+         return; }}}
+
+/**
+* A pooled connection, the connection we hold open on it and its cached statements.
+*/
+private final class PooledEntry {
+   final PooledConnection pconn;
+   final Connection conn;
+   final Map<String,PreparedStatement> statements;
+   final Map<PreparedStatement,PreparedStatement> lent = new IdentityHashMap<PreparedStatement,PreparedStatement>();
+   volatile boolean broken;
+   PooledEntry (PooledConnection pconn, Connection conn) {
+      this.pconn = pconn;
+      this.conn = conn;
+      this.statements = new LinkedHashMap<String,PreparedStatement>(16, 0.75f, true) {
+         private static final long serialVersionUID = 1;
+         @Override
+         protected boolean removeEldestEntry (Map.Entry<String,PreparedStatement> eldest) {
+            if ((size() <= statementCacheSize) || lent.containsKey(eldest.getValue())) return false;
+            closeStatementNoEx (eldest.getValue());
+            return true; }}; }
+   /**
+   * @return the cached statement or <code>null</code> if it is already in use.
+   */
+   PreparedStatement lend (String sql) throws SQLException {
+      PreparedStatement st = statements.get(sql);
+      if (st == null) {
+         st = conn.prepareStatement(sql);
+         statements.put(sql, st); }
+       else if (lent.containsKey(st)) {
+         return null; }
+      lent.put(st, st);
+      return st; }
+   void giveBack (PreparedStatement st) {
+      lent.remove(st); }
+   void closeStatements() {
+      lent.clear();
+      for (PreparedStatement st : statements.values()) {
+         closeStatementNoEx (st); }
+      statements.clear(); }}
+
+private void closeStatementNoEx (PreparedStatement st) {
+   try {
+      st.close(); }
+    catch (SQLException e) {
+      log ("Error while closing statement: "+e.toString()); }}
+
+/**
+* The connection handed to the application. Closing it returns the pooled
+* connection to the pool, statements are taken from the statement cache.
+*/
+private final class ConnectionHandle implements InvocationHandler {
+   private final PooledEntry entry;
+   private boolean closed;
+   ConnectionHandle (PooledEntry entry) {
+      this.entry = entry;
+      synchronized (MiniConnectionPoolManager.this) {
+         inUse.put(entry.pconn, entry); }}
+   public Object invoke (Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.equals("close")) {
+         close();
+         return null; }
+      if (name.equals("isClosed")) {
+         return closed || entry.conn.isClosed(); }
+      if (name.equals("equals")) {
+         return proxy == args[0]; }
+      if (name.equals("hashCode")) {
+         return System.identityHashCode(proxy); }
+      if (closed) {
+         if (name.equals("toString")) return "closed pooled connection";
+         throw new SQLException("Connection has been returned to the pool."); }
+      try {
+         if (name.equals("prepareStatement") && (args.length == 1) && (statementCacheSize > 0)) {
+            PreparedStatement st = entry.lend((String) args[0]);
+            if (st != null) {
+               return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                     new Class<?>[] {PreparedStatement.class}, new StatementHandle(entry, proxy, st)); }}
+         return method.invoke(entry.conn, args); }
+       catch (InvocationTargetException e) {
+         throw e.getCause(); }}
+   private void close() {
+      if (closed) return;
+      closed = true;
+      synchronized (MiniConnectionPoolManager.this) {
+         inUse.remove(entry.pconn); }
+      try {
+         if (!entry.conn.getAutoCommit()) entry.conn.rollback(); }
+       catch (SQLException e) {
+         entry.broken = true; }
+      recycleConnection (entry); }}
+
+/**
+* A cached statement handed to the application. Closing it resets it.
+*/
+private final class StatementHandle implements InvocationHandler {
+   private final PooledEntry entry;
+   private final Object connection;
+   private final PreparedStatement st;
+   private boolean closed;
+   StatementHandle (PooledEntry entry, Object connection, PreparedStatement st) {
+      this.entry = entry;
+      this.connection = connection;
+      this.st = st; }
+   public Object invoke (Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.equals("close")) {
+         if (!closed) {
+            closed = true;
+            try {
+               st.clearParameters();
+               st.clearBatch();
+               st.setMaxRows(0); }
+             finally {
+               entry.giveBack(st); }}
+         return null; }
+      if (name.equals("isClosed")) {
+         return closed || st.isClosed(); }
+      if (name.equals("getConnection")) {
+         return connection; }
+      if (name.equals("equals")) {
+         return proxy == args[0]; }
+      if (name.equals("hashCode")) {
+         return System.identityHashCode(proxy); }
+      if (closed) throw new SQLException("Statement has been closed.");
+      try {
+         return method.invoke(st, args); }
+       catch (InvocationTargetException e) {
+         throw e.getCause(); }}}
 
 /**
 * Returns the number of active (open) connections of this pool.
@@ -175,6 +175,25 @@ public class GcIndex {
         return expirations;
     }
 
+    /**
+     * @param expiry The absolute time at which the items expire
+     * @return A copy of the items expiring at that time, or null if there are none
+     */
+    public Set<GcKey> get( final Long expiry ) {
+
+        Set<GcKey> gcKeys = this.gcIndex.get( expiry );
+
+        if ( null == gcKeys ) {
+
+            return null;
+        }
+
+        synchronized ( gcKeys ) {
+
+            return new HashSet<GcKey>( gcKeys );
+        }
+    }
+
     public Set<GcKey> remove( final Long expiry ) {
 
         return this.gcIndex.remove( expiry );
@@ -0,0 +1,169 @@
+package net.jxta.impl.cm.srdi.inmemory;
+
+import java.util.Arrays;
+
+/**
+ * The expiration of each peer registered under a {@link SearchKey}.
+ *
+ * An open addressing hash map from {@link PeerIdKey} to a primitive long, replacing a synchronized
+ * <code>HashMap&lt;PeerIdKey, Long&gt;</code> which costs an entry object, a boxed Long and a wrapper
+ * per key. Most keys are registered by a single peer, so the map starts small.
+ *
+ * Not thread safe: the {@link SearchIndex} only accesses it while holding its lock.
+ */
+final class PeerExpirations {
+
+    /**
+     * Returned by {@link #put(PeerIdKey, long)} when the peer had no expiration
+     */
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    private PeerIdKey[] keys = new PeerIdKey[ INITIAL_CAPACITY ];
+    private long[] expirations = new long[ INITIAL_CAPACITY ];
+    private int size = 0;
+
+    int size(  ) {
+
+        return this.size;
+    }
+
+    /**
+     * @return The number of slots, for iterating with {@link #keyAt(int)} and {@link #expirationAt(int)}
+     */
+    int capacity(  ) {
+
+        return this.keys.length;
+    }
+
+    /**
+     * @return The peer in a slot, or null if the slot is empty
+     */
+    PeerIdKey keyAt( int slot ) {
+
+        return this.keys[slot];
+    }
+
+    long expirationAt( int slot ) {
+
+        return this.expirations[slot];
+    }
+
+    /**
+     * @return The previous expiration of the peer, or {@link #NONE}
+     */
+    long put( PeerIdKey peerIdKey, long expiration ) {
+
+        int slot = find( peerIdKey );
+
+        if ( this.keys[slot] != null ) {
+
+            long previous = this.expirations[slot];
+
+            this.expirations[slot] = expiration;
+
+            return previous;
+        }
+
+        // Keep the load factor at or below 3/4
+        if ( ( ( this.size + 1 ) * 4 ) > ( this.keys.length * 3 ) ) {
+
+            resize( this.keys.length * 2 );
+            slot = find( peerIdKey );
+        }
+
+        this.keys[slot] = peerIdKey;
+        this.expirations[slot] = expiration;
+        this.size++;
+
+        return NONE;
+    }
+
+    /**
+     * @return true if the peer was registered
+     */
+    boolean remove( PeerIdKey peerIdKey ) {
+
+        int slot = find( peerIdKey );
+
+        if ( this.keys[slot] == null ) {
+
+            return false;
+        }
+
+        this.keys[slot] = null;
+        this.size--;
+
+        // Shift back the entries of the probe sequence which follows the freed slot
+        int mask = this.keys.length - 1;
+        int free = slot;
+
+        for ( int each = ( slot + 1 ) & mask; this.keys[each] != null; each = ( each + 1 ) & mask ) {
+
+            int home = home( this.keys[each] );
+
+            // Move the entry unless its home slot lies cyclically in (free, each]
+            boolean inRange = ( free <= each ) ? ( ( free < home ) && ( home <= each ) ) : ( ( free < home ) || ( home <= each ) );
+
+            if ( !inRange ) {
+
+                this.keys[free] = this.keys[each];
+                this.expirations[free] = this.expirations[each];
+                this.keys[each] = null;
+                free = each;
+            }
+        }
+
+        return true;
+    }
+
+    private int home( PeerIdKey peerIdKey ) {
+
+        int h = peerIdKey.hashCode(  );
+
+        return ( h ^ ( h >>> 16 ) ) & ( this.keys.length - 1 );
+    }
+
+    /**
+     * @return The slot holding the peer, or the empty slot where it would be inserted
+     */
+    private int find( PeerIdKey peerIdKey ) {
+
+        int mask = this.keys.length - 1;
+        int slot = home( peerIdKey );
+
+        while ( ( this.keys[slot] != null ) && !this.keys[slot].equals( peerIdKey ) ) {
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize( int capacity ) {
+
+        PeerIdKey[] oldKeys = this.keys;
+        long[] oldExpirations = this.expirations;
+
+        this.keys = new PeerIdKey[ capacity ];
+        this.expirations = new long[ capacity ];
+
+        for ( int each = 0; each < oldKeys.length; each++ ) {
+
+            if ( oldKeys[each] != null ) {
+
+                int slot = find( oldKeys[each] );
+
+                this.keys[slot] = oldKeys[each];
+                this.expirations[slot] = oldExpirations[each];
+            }
+        }
+    }
+
+    @Override
+    public String toString(  ) {
+
+        return "PeerExpirations[" + this.size + "]" + Arrays.toString( this.keys );
+    }
+}
@@ -57,6 +57,7 @@ package net.jxta.impl.cm.srdi.inmemory;
 
 import net.jxta.impl.cm.Srdi.Entry;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.ternary.CompactTernarySearchTree;
 import net.jxta.impl.util.ternary.wild.WildcardTernarySearchTree;
 import net.jxta.impl.util.ternary.wild.WildcardTernarySearchTreeImpl;
 import net.jxta.impl.util.ternary.wild.WildcardTernarySearchTreeMatchListener;
@@ -66,33 +67,101 @@ import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This implementation relies on the use of a Ternary Tree (@see {@link TernarySearchTree})
  * to store the PeerIDs for every key/attribute/value combination (hereafter called a {@link SearchKey}).
+ *
+ * Optionally the values of some attributes are also indexed by trigram (@see {@link TrigramIndex}) so that
+ * wild-card queries starting with a wild-card, such as <code>*foo*</code>, do not have to walk every value
+ * of the attribute. The attributes are set by the
+ * <code>net.jxta.impl.cm.srdi.inmemory.SearchIndex.trigramAttributes</code> system property as a comma
+ * separated list, for instance <code>Name,Desc</code>. By default no attribute is indexed by trigram.
  */
 public class SearchIndex {
 
     private final static transient Logger LOG = Logger.getLogger( SearchIndex.class.getName(  ) );
 
+    // If true (the default) the keys are held in compact array based trees, otherwise in one object per tree node
+    private final static boolean COMPACT_TREES = Boolean.parseBoolean( System.getProperty( SearchIndex.class.getName(  ) + ".compactTrees", "true" ) );
+
     // The Ternary Tree key index that organises Peers Ids per key (Ternary tree Key)
     // An alternative - tested successfully - is to make the Peer ID URI part of the Ternary Tree Key instead of using an HashMap
     // This implementation relies on the fact that the HasMap is likely faster than the Tree for non partial matches on the Peer ID URI
-    private WildcardTernarySearchTree<Map<PeerIdKey, Long>> searchIndex = new WildcardTernarySearchTreeImpl<Map<PeerIdKey, Long>>(  );
+    // The per key maps are only accessed while holding the searchIndex lock so need no synchronization of their own
+    private final WildcardTernarySearchTree<PeerExpirations> searchIndex;
     private final String indexName;
 
+    // Attributes whose values are indexed by trigram, and the trigram index guarded by the searchIndex lock
+    private final Set<String> trigramAttributes;
+    private final TrigramIndex trigramIndex = new TrigramIndex(  );
+
     // Counter used for statistics only
     private volatile int registrations;
 
     public SearchIndex( String indexName ) {
 
+        this( indexName, getTrigramAttributesProperty(  ) );
+    }
+
+    /**
+     * @param indexName The index name, used for logging
+     * @param trigramAttributes The attributes whose values are indexed by trigram
+     */
+    public SearchIndex( String indexName, Set<String> trigramAttributes ) {
+
+        this( indexName, trigramAttributes, COMPACT_TREES );
+    }
+
+    /**
+     * @param indexName The index name, used for logging
+     * @param trigramAttributes The attributes whose values are indexed by trigram
+     * @param compactTrees If true the keys are held in {@link CompactTernarySearchTree}s
+     */
+    public SearchIndex( String indexName, Set<String> trigramAttributes, boolean compactTrees ) {
+
         this.indexName = indexName;
+        this.trigramAttributes = new HashSet<String>( trigramAttributes );
+
+        if ( compactTrees ) {
+
+            this.searchIndex = new WildcardTernarySearchTreeImpl<PeerExpirations>( '*', new CompactTernarySearchTree<PeerExpirations>(  ),
+                    new CompactTernarySearchTree<PeerExpirations>(  ) );
+        } else {
+
+            this.searchIndex = new WildcardTernarySearchTreeImpl<PeerExpirations>(  );
+        }
+    }
+
+    private static Set<String> getTrigramAttributesProperty(  ) {
+
+        Set<String> attributes = new HashSet<String>(  );
+        String property = System.getProperty( SearchIndex.class.getName(  ) + ".trigramAttributes", "" );
+
+        for ( String attribute : property.split( "," ) ) {
+
+            if ( attribute.trim(  ).length(  ) > 0 ) {
+
+                attributes.add( attribute.trim(  ) );
+            }
+        }
+
+        return attributes;
+    }
+
+    private boolean isTrigramIndexed( final SearchKey searchKey ) {
+
+        return ( searchKey.getAttribute(  ) != null ) && ( searchKey.getValue(  ) != null ) &&
+        this.trigramAttributes.contains( searchKey.getAttribute(  ) );
     }
 
     public void clear(  ) {
@@ -100,6 +169,7 @@ public class SearchIndex {
         synchronized ( this.searchIndex ) {
 
             this.searchIndex.deleteTree(  );
+            this.trigramIndex.clear(  );
         }
     }
 
@@ -112,9 +182,9 @@ public class SearchIndex {
         int prefixRegistrations = 0;
         int suffixRegistrations = 0;
 
-        WildcardTernarySearchTreeMatchListener<Map<PeerIdKey, Long>> listener = new WildcardTernarySearchTreeMatchListener<Map<PeerIdKey, Long>>(  ) {
+        WildcardTernarySearchTreeMatchListener<PeerExpirations> listener = new WildcardTernarySearchTreeMatchListener<PeerExpirations>(  ) {
 
-                public void resultFound( String key, Map<PeerIdKey, Long> map ) {
+                public void resultFound( String key, PeerExpirations map ) {
 
                     SearchIndex.this.registrations += map.size(  );
                 }
@@ -137,7 +207,7 @@ public class SearchIndex {
         }
 
         return "SearchIndex[" + this.indexName + "]: " + this.searchIndex.getSize(  ) + " search terms\t" + prefixRegistrations +
-        " prefix map elements\t" + suffixRegistrations + " suffix map elements.";
+        " prefix map elements\t" + suffixRegistrations + " suffix map elements\t" + this.trigramIndex.size(  ) + " trigram posting lists.";
     }
 
     public boolean remove( final SearchKey searchKey, final PeerIdKey peerIdKey ) {
@@ -146,12 +216,12 @@ public class SearchIndex {
 
         synchronized ( this.searchIndex ) {
 
-            Map<PeerIdKey, Long> peerIdsMap = this.searchIndex.get( searchKey.getKey(  ) );
+            PeerExpirations peerIdsMap = this.searchIndex.get( searchKey.getKey(  ) );
 
             if ( peerIdsMap != null ) {
 
                 // Clean up the Peer Ids to IndexItems Map
-                if ( null == peerIdsMap.remove( peerIdKey ) ) {
+                if ( !peerIdsMap.remove( peerIdKey ) ) {
 
                     if ( Logging.SHOW_WARNING && LOG.isLoggable( Level.WARNING ) ) {
 
@@ -180,6 +250,9 @@ public class SearchIndex {
                         }
 
                         ret = false;
+                    } else if ( isTrigramIndexed( searchKey ) ) {
+
+                        this.trigramIndex.remove( searchKey.getAttributeKey(  ), searchKey.getValue(  ), searchKey.getKey(  ) );
                     }
                 }
             }
@@ -198,16 +271,16 @@ public class SearchIndex {
             // Only returns non-expired entries
             long now = TimeUtils.timeNow(  );
 
-            Map<PeerIdKey, Long> map = this.searchIndex.get( searchKey.getKey(  ) );
+            PeerExpirations map = this.searchIndex.get( searchKey.getKey(  ) );
 
             if ( map != null ) {
 
-                for ( java.util.Map.Entry<PeerIdKey, Long> entry : map.entrySet(  ) ) {
+                for ( int slot = 0; slot < map.capacity(  ); slot++ ) {
 
-                    PeerIdKey peerIdKey = entry.getKey(  );
-                    Long expiration = entry.getValue(  );
+                    PeerIdKey peerIdKey = map.keyAt( slot );
+                    long expiration = map.expirationAt( slot );
 
-                    if ( expiration.longValue(  ) >= now ) {
+                    if ( ( peerIdKey != null ) && ( expiration >= now ) ) {
 
                         Entry srdiEntry = new Entry( peerIdKey.getPeerID(  ), expiration );
 
@@ -230,12 +303,18 @@ public class SearchIndex {
 
         synchronized ( this.searchIndex ) {
 
+            if ( isTrigramIndexed( searchKey ) && !this.searchIndex.contains( searchKey.getKey(  ) ) ) {
+
+                this.trigramIndex.add( searchKey.getAttributeKey(  ), searchKey.getValue(  ), searchKey.getKey(  ) );
+            }
+
             // Get the map at this index or create the node with the default map
-            Map<PeerIdKey, Long> map = this.searchIndex.getOrCreate( searchKey.getKey(  ),
-                    Collections.synchronizedMap( new HashMap<PeerIdKey, Long>(  ) ) );
+            PeerExpirations map = this.searchIndex.getOrCreate( searchKey.getKey(  ), new PeerExpirations(  ) );
 
             // Update the value
-            return map.put( peerIdKey, expiry );
+            long previous = map.put( peerIdKey, expiry );
+
+            return ( previous == PeerExpirations.NONE ) ? null : Long.valueOf( previous );
         }
     }
 
@@ -248,21 +327,21 @@ public class SearchIndex {
         final Map<PeerIdKey, PeerID> peerIdsMap = Collections.synchronizedMap( new HashMap<PeerIdKey, PeerID>(  ) );
 
         // A wild-card tree listener that will stop the search when the threshold is reached
-        WildcardTernarySearchTreeMatchListener<Map<PeerIdKey, Long>> listener = new WildcardTernarySearchTreeMatchListener<Map<PeerIdKey, Long>>(  ) {
+        WildcardTernarySearchTreeMatchListener<PeerExpirations> listener = new WildcardTernarySearchTreeMatchListener<PeerExpirations>(  ) {
 
-                public void resultFound( String key, Map<PeerIdKey, Long> map ) {
+                public void resultFound( String key, PeerExpirations map ) {
 
-                    for ( java.util.Map.Entry<PeerIdKey, Long> entry : map.entrySet(  ) ) {
+                    for ( int slot = 0; slot < map.capacity(  ); slot++ ) {
 
                         if ( peerIdsMap.size(  ) == threshold ) {
 
                             break;
                         }
 
-                        PeerIdKey peerIdKey = entry.getKey(  );
-                        Long expiration = entry.getValue(  );
+                        PeerIdKey peerIdKey = map.keyAt( slot );
+                        long expiration = map.expirationAt( slot );
 
-                        if ( expiration.longValue(  ) >= now ) {
+                        if ( ( peerIdKey != null ) && ( expiration >= now ) ) {
 
                             peerIdsMap.put( peerIdKey, peerIdKey.getPeerID(  ) );
                         }
@@ -286,6 +365,17 @@ public class SearchIndex {
 
             LOG.fine( "[" + this.indexName + "] primary key query on  '" + searchKey.getKey(  ) + "' returned " + peerIdsMap.size(  ) +
                 " item(s) from the index" );
+        } else if ( isTrigramIndexed( searchKey ) && ( searchKey.getValue(  ).length(  ) > 0 ) &&
+                ( searchKey.getValue(  ).charAt( 0 ) == '*' ) && searchTrigrams( searchKey, listener ) ) {
+
+            //////////////////////////////////////////////////
+            //
+            // Infix or Suffix Search
+            // Candidates from the trigram posting lists, checked against the value
+            //
+            //////////////////////////////////////////////////
+            LOG.fine( "[" + this.indexName + "] trigram query on  '" + searchKey.getKey(  ) + "' returned " + peerIdsMap.size(  ) +
+                " item(s) from the index" );
         } else {
 
             //////////////////////////////////////////////////
@@ -307,4 +397,45 @@ public class SearchIndex {
 
         return Collections.synchronizedList( new ArrayList<PeerID>( peerIdsMap.values(  ) ) );
     }
+
+    /**
+     * Searches the trigram index
+     * @return false if the value has no literal part long enough to be searched for in the trigram index
+     */
+    private boolean searchTrigrams( final SearchKey searchKey,
+        final WildcardTernarySearchTreeMatchListener<PeerExpirations> listener ) {
+
+        String attributeKey = searchKey.getAttributeKey(  );
+        String pattern = searchKey.getValue(  );
+
+        synchronized ( this.searchIndex ) {
+
+            Collection<String> candidates = this.trigramIndex.candidates( attributeKey, pattern );
+
+            if ( candidates == null ) {
+
+                return false;
+            }
+
+            for ( String key : candidates ) {
+
+                if ( !listener.continueSearch(  ) ) {
+
+                    break;
+                }
+
+                if ( TrigramIndex.matches( key.substring( attributeKey.length(  ) ), pattern ) ) {
+
+                    PeerExpirations map = this.searchIndex.get( key );
+
+                    if ( map != null ) {
+
+                        listener.resultFound( key, map );
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
 }
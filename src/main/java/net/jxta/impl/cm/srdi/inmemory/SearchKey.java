@@ -69,6 +69,7 @@ public class SearchKey {
     private static final String KEY_SEP = ".";
     private static final String VALUE_SEP = "=";
     private final String strSearchKey;
+    private final String attributeKey;
     private int hashCode = 0;
     private String primaryKey;
     private String attribute;
@@ -87,12 +88,15 @@ public class SearchKey {
         if ( null == attribute ) {
 
             sb.append( "" );
+            this.attributeKey = null;
         } else {
 
             sb.append( attribute );
 
             sb.append( VALUE_SEP );
 
+            this.attributeKey = sb.toString(  );
+
             if ( null == value ) {
 
                 //In JXTA a null value is a wild-card
@@ -111,6 +115,33 @@ public class SearchKey {
         return this.strSearchKey;
     }
 
+    /**
+     * @return The part of the key which precedes the value, shared by all the keys for
+     * the same primary key and attribute, or null if there is no attribute
+     */
+    public String getAttributeKey(  ) {
+
+        return this.attributeKey;
+    }
+
+    public String getPrimaryKey(  ) {
+
+        return this.primaryKey;
+    }
+
+    public String getAttribute(  ) {
+
+        return this.attribute;
+    }
+
+    /**
+     * @return The value, null meaning a wild-card
+     */
+    public String getValue(  ) {
+
+        return this.value;
+    }
+
     @Override
     public boolean equals( Object aThat ) {
 
@@ -0,0 +1,233 @@
+package net.jxta.impl.cm.srdi.inmemory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Posting lists of the trigrams (the three character substrings) of the values held in a
+ * {@link SearchIndex}, used to answer wild-card queries which do not start with a literal prefix
+ * such as <code>*foo*</code>.
+ *
+ * The keys containing every trigram of the literal parts of a query are found by intersecting the
+ * posting lists of those trigrams, starting with the shortest, rather than by walking every key of
+ * the attribute in the ternary trees. The candidates must still be matched against the query.
+ *
+ * Posting lists are kept per primary key and attribute. This class is not thread safe, the
+ * {@link SearchIndex} guards it with its own lock.
+ */
+class TrigramIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final char WILDCARD = '*';
+
+    // Attribute key (see SearchKey#getAttributeKey()) -> trigram -> the keys whose value contains the trigram
+    private final Map<String, Map<String, Set<String>>> postings = new HashMap<String, Map<String, Set<String>>>(  );
+
+    /**
+     * Records the trigrams of the value of a new key
+     */
+    void add( String attributeKey, String value, String key ) {
+
+        Map<String, Set<String>> grams = this.postings.get( attributeKey );
+
+        if ( grams == null ) {
+
+            grams = new HashMap<String, Set<String>>(  );
+            this.postings.put( attributeKey, grams );
+        }
+
+        for ( String gram : trigrams( value ) ) {
+
+            Set<String> keys = grams.get( gram );
+
+            if ( keys == null ) {
+
+                keys = new HashSet<String>( 4 );
+                grams.put( gram, keys );
+            }
+
+            keys.add( key );
+        }
+    }
+
+    /**
+     * Forgets the trigrams of the value of a removed key
+     */
+    void remove( String attributeKey, String value, String key ) {
+
+        Map<String, Set<String>> grams = this.postings.get( attributeKey );
+
+        if ( grams == null ) {
+
+            return;
+        }
+
+        for ( String gram : trigrams( value ) ) {
+
+            Set<String> keys = grams.get( gram );
+
+            if ( ( keys != null ) && keys.remove( key ) && keys.isEmpty(  ) ) {
+
+                grams.remove( gram );
+            }
+        }
+
+        if ( grams.isEmpty(  ) ) {
+
+            this.postings.remove( attributeKey );
+        }
+    }
+
+    void clear(  ) {
+
+        this.postings.clear(  );
+    }
+
+    /**
+     * @return The number of posting lists
+     */
+    int size(  ) {
+
+        int size = 0;
+
+        for ( Map<String, Set<String>> grams : this.postings.values(  ) ) {
+
+            size += grams.size(  );
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the keys whose value may match a wild-card pattern.
+     *
+     * @param attributeKey The primary key and attribute searched
+     * @param pattern The value searched for
+     * @return The candidate keys, or null if the pattern has no literal part long enough to be
+     * looked up in the index
+     */
+    Collection<String> candidates( String attributeKey, String pattern ) {
+
+        Set<String> grams = new HashSet<String>(  );
+
+        for ( String literal : pattern.split( "\\" + WILDCARD ) ) {
+
+            grams.addAll( trigrams( literal ) );
+        }
+
+        if ( grams.isEmpty(  ) ) {
+
+            return null;
+        }
+
+        Map<String, Set<String>> attributeGrams = this.postings.get( attributeKey );
+
+        if ( attributeGrams == null ) {
+
+            return Collections.emptyList(  );
+        }
+
+        List<Set<String>> lists = new ArrayList<Set<String>>( grams.size(  ) );
+
+        for ( String gram : grams ) {
+
+            Set<String> keys = attributeGrams.get( gram );
+
+            if ( keys == null ) {
+
+                return Collections.emptyList(  );
+            }
+
+            lists.add( keys );
+        }
+
+        Collections.sort( lists, new Comparator<Set<String>>(  ) {
+
+                public int compare( Set<String> a, Set<String> b ) {
+
+                    return a.size(  ) - b.size(  );
+                }
+            } );
+
+        List<String> candidates = new ArrayList<String>(  );
+
+        for ( String key : lists.get( 0 ) ) {
+
+            boolean inAll = true;
+
+            for ( int each = 1; inAll && ( each < lists.size(  ) ); each++ ) {
+
+                inAll = lists.get( each ).contains( key );
+            }
+
+            if ( inAll ) {
+
+                candidates.add( key );
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * @return true if the value matches the pattern, in which '*' matches any sequence of characters
+     */
+    static boolean matches( String value, String pattern ) {
+
+        String[] literals = pattern.split( "\\" + WILDCARD, -1 );
+
+        if ( literals.length == 1 ) {
+
+            return value.equals( pattern );
+        }
+
+        String first = literals[0];
+        String last = literals[literals.length - 1];
+
+        if ( !value.startsWith( first ) || ( value.length(  ) < ( first.length(  ) + last.length(  ) ) ) || !value.endsWith( last ) ) {
+
+            return false;
+        }
+
+        int from = first.length(  );
+        int to = value.length(  ) - last.length(  );
+
+        for ( int each = 1; each < ( literals.length - 1 ); each++ ) {
+
+            int at = value.indexOf( literals[each], from );
+
+            if ( ( at < 0 ) || ( ( at + literals[each].length(  ) ) > to ) ) {
+
+                return false;
+            }
+
+            from = at + literals[each].length(  );
+        }
+
+        return true;
+    }
+
+    private static Set<String> trigrams( String value ) {
+
+        if ( value.length(  ) < GRAM_LENGTH ) {
+
+            return Collections.emptySet(  );
+        }
+
+        Set<String> grams = new HashSet<String>(  );
+
+        for ( int each = 0; each <= ( value.length(  ) - GRAM_LENGTH ); each++ ) {
+
+            grams.add( value.substring( each, each + GRAM_LENGTH ) );
+        }
+
+        return grams;
+    }
+}
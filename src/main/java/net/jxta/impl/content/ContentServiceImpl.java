@@ -62,7 +62,9 @@ import net.jxta.exception.PeerGroupException;
 import net.jxta.id.ID;
 import net.jxta.logging.Logging;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.platform.ModuleSpecID;
 import net.jxta.protocol.ContentShareAdvertisement;
 import net.jxta.protocol.ModuleImplAdvertisement;
@@ -84,7 +86,7 @@ import java.util.logging.Logger;
  * service provider interface to locate transfer provider implementations
  * which will perform the real work.
  */
-public class ContentServiceImpl implements ContentService {
+public class ContentServiceImpl implements ContentService, DependentModule {
 
     /**
      * Well known service spec identifier: reference implementation of the
@@ -255,6 +257,13 @@ public class ContentServiceImpl implements ContentService {
     	manager.init();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Collections.<ModuleClassID>emptyList();
+    }
+
     /**
      * {@inheritDoc}
      */
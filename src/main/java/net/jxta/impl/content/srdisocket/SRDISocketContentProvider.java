@@ -64,6 +64,7 @@ import net.jxta.document.MimeMediaType;
 import net.jxta.id.ID;
 import net.jxta.id.IDFactory;
 import net.jxta.impl.content.ModuleWrapperFactory;
+import net.jxta.impl.util.threads.TaskManager;
 import net.jxta.logging.Logging;
 import net.jxta.peergroup.PeerGroup;
 import net.jxta.pipe.PipeID;
@@ -520,7 +521,7 @@ public class SRDISocketContentProvider
 
                     if (socket != null) {
                         Logging.logCheckedFine(LOG, "Incoming socket connection");
-                        executor.execute(new Client(socket));
+                        peerGroup.getTaskManager().getExecutorLane(TaskManager.CONTENT_LANE).execute(new Client(socket));
                     }
 
                 } catch (SocketTimeoutException socktox) {
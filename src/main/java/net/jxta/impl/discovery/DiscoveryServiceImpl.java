@@ -68,6 +68,7 @@ import net.jxta.endpoint.EndpointAddress;
 import net.jxta.endpoint.OutgoingMessageEvent;
 import net.jxta.exception.PeerGroupException;
 import net.jxta.id.ID;
+import net.jxta.impl.cm.AdvertisementCache;
 import net.jxta.impl.cm.CacheManager;
 import net.jxta.impl.cm.SrdiManager;
 import net.jxta.impl.cm.XIndiceAdvertisementCache;
@@ -84,8 +85,11 @@ import net.jxta.impl.util.TimeUtils;
 import net.jxta.logging.Logging;
 import net.jxta.membership.MembershipService;
 import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.*;
 import net.jxta.rendezvous.RendezVousService;
 import net.jxta.rendezvous.RendezvousEvent;
@@ -124,7 +128,7 @@ import java.util.logging.Logger;
  * @see net.jxta.resolver.ResolverService
  * @see <a href="https://jxta-spec.dev.java.net/nonav/JXTAProtocols.html#proto-pdp" target="_blank">JXTA Protocols Specification : Peer Discovery Protocol</a>
  */
-public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHandler, RendezvousListener, SrdiHandler, SrdiManager.SrdiPushEntriesInterface {
+public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHandler, RendezvousListener, SrdiHandler, SrdiManager.SrdiPushEntriesInterface, DependentModule {
 
     /**
      * Logger
@@ -480,6 +484,13 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.resolverClassID, IModuleDefinitions.membershipClassID, IModuleDefinitions.rendezvousClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -683,6 +694,24 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
             return;
         }
 
+        AdvertisementCache.Publication publication = newPublication(adv, lifetime, expiration);
+
+        // save it
+        cm.save(publication.dn, publication.fn, adv, lifetime, expiration);
+    }
+
+    /**
+     * Determines where an advertisement is to be saved in the cache.
+     *
+     * @param adv        the advertisement.
+     * @param lifetime   the local lifetime in relative ms.
+     * @param expiration the global expiration in relative ms.
+     * @return the advertisement to save.
+     * @throws IOException if no cache name could be computed for the
+     *                     advertisement.
+     */
+    private AdvertisementCache.Publication newPublication(Advertisement adv, long lifetime, long expiration) throws IOException {
+
         ID advID;
         String advName;
 
@@ -731,8 +760,7 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
 
         Logging.logCheckedFine(LOG, "Publishing a ", adv.getAdvType(), " as ", dirname[type], " / ", advName, "\n\texpiration : ", expiration, "\tlifetime :", lifetime);
 
-        // save it
-        cm.save(dirname[type], advName, adv, lifetime, expiration);
+        return new AdvertisementCache.Publication(dirname[type], advName, adv, lifetime, expiration);
     }
 
     /**
@@ -819,6 +847,7 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
 
         Enumeration<Advertisement> en = res.getAdvertisements();
         Enumeration<Long> exps = res.getExpirations();
+        List<AdvertisementCache.Publication> publications = new ArrayList<AdvertisementCache.Publication>();
 
         while (en.hasMoreElements()) {
             adv = en.nextElement();
@@ -828,7 +857,7 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
 
                 try {
 
-                    publish(adv, exp, exp);
+                    publications.add(newPublication(adv, exp, exp));
 
                 } catch (Exception e) {
 
@@ -838,6 +867,20 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
             }
         }
 
+        // Save the advertisements of the response together.
+        if (!publications.isEmpty() && !stopped) {
+
+            try {
+
+                cm.saveAll(publications);
+
+            } catch (Exception e) {
+
+                Logging.logCheckedWarning(LOG, "Error publishing Advertisements\n", e);
+
+            }
+        }
+
         // Generate an event and callback the query listener (if any).
         DiscoveryEvent newevent = new DiscoveryEvent(srcAddress, res, response.getQueryId());
 
@@ -1651,7 +1694,7 @@ public class DiscoveryServiceImpl implements DiscoveryService, InternalQueryHand
         if (!localonly) {
             // Create a new SRDI manager
             srdiManager = new SrdiManager(group, handlerName, this, null);
-            srdiManager.startPush(group.getTaskManager().getScheduledExecutorService(), runInterval);
+            srdiManager.startPush(group.getTaskManager().getCoarseScheduledExecutorService(), runInterval);
         }
 
         Logging.logCheckedInfo(LOG, "Switched to a Edge peer role.");
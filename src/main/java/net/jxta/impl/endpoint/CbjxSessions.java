@@ -0,0 +1,338 @@
+package net.jxta.impl.endpoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.jxta.document.MimeMediaType;
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.MessageElement;
+import net.jxta.endpoint.WireFormatMessageFactory;
+import net.jxta.impl.util.LRUCache;
+import net.jxta.logging.Logging;
+import net.jxta.peergroup.PeerGroup;
+
+/**
+ * The CBJX MAC sessions of a peer.
+ * <p/>
+ * By default every CBJX message carries an RSA signature. When the
+ * {@code net.jxta.endpoint.WireFormatMessageFactory.CBJX_HMAC} system
+ * property is set, two peers which exchange unicast messages instead agree
+ * on a symmetric key and authenticate further messages with a MAC:
+ * <ol>
+ * <li>Signed messages to a peer carry a key agreement element holding our
+ * ephemeral EC public key and the digest of the peer's public key, if we
+ * know it. The element is covered by the message signature.</li>
+ * <li>On receiving a signed key agreement from a peer, whose peer id
+ * matches its certificate, the session key is derived by ECDH.</li>
+ * <li>Once the peer has shown that it knows our public key, either through
+ * the digest in its key agreement or by sending a valid MAC, messages to it
+ * carry a MAC instead of a signature.</li>
+ * </ol>
+ * Propagated messages and messages to peers without a session are always
+ * signed. A peer which restarts has a new key pair and falls back to
+ * signatures until the exchange is repeated.
+ */
+final class CbjxSessions {
+
+    private static final Logger LOG = Logger.getLogger(CbjxSessions.class.getName());
+
+    /**
+     * If {@code true} then MAC sessions are used for unicast messages.
+     */
+    static final boolean CBJX_HMAC = Boolean.getBoolean(WireFormatMessageFactory.class.getName() + ".CBJX_HMAC");
+
+    /**
+     * The MAC algorithm.
+     */
+    static final String CBJX_MAC_ALG = System.getProperty(WireFormatMessageFactory.class.getName() + ".CBJX_MAC_ALG", "HmacSHA256");
+
+    /**
+     * The maximum number of remote peers for which a session is kept.
+     */
+    static final int MAX_SESSIONS = Integer.getInteger(CbjxSessions.class.getName() + ".maxSessions", 1024).intValue();
+
+    /**
+     * Name of the key agreement element in the "jxta" namespace.
+     */
+    static final String KEY_AGREEMENT_ELEMENT_NAME = "CbjxKeyAgreement";
+
+    /**
+     * The sessions of each local peer, by peer group.
+     */
+    private static final ConcurrentMap<String, CbjxSessions> SESSIONS = new ConcurrentHashMap<String, CbjxSessions>();
+
+    /**
+     * Our ephemeral key agreement key pair.
+     */
+    private final KeyPair keyPair;
+
+    /**
+     * Our encoded public key.
+     */
+    private final byte[] publicKey;
+
+    /**
+     * The digest of {@link #publicKey}.
+     */
+    private final byte[] publicKeyDigest;
+
+    /**
+     * The sessions by the source address of the remote peer.
+     */
+    private final LRUCache<String, Session> sessions = new LRUCache<String, Session>(MAX_SESSIONS);
+
+    /**
+     * Returns the sessions of the local peer in a peer group.
+     *
+     * @param group the peer group.
+     * @return the sessions or {@code null} if MAC sessions are not available.
+     */
+    static CbjxSessions getSessions(PeerGroup group) {
+        String key = group.getPeerGroupID() + "/" + group.getPeerID();
+
+        CbjxSessions result = SESSIONS.get(key);
+
+        if (null == result) {
+            try {
+                SESSIONS.putIfAbsent(key, new CbjxSessions());
+            } catch (GeneralSecurityException unavailable) {
+                Logging.logCheckedWarning(LOG, "CBJX MAC sessions not available\n", unavailable);
+                return null;
+            }
+            result = SESSIONS.get(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a new set of sessions with a fresh key pair.
+     *
+     * @throws GeneralSecurityException if EC key agreement is not available.
+     */
+    CbjxSessions() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+
+        keyPair = generator.generateKeyPair();
+        publicKey = keyPair.getPublic().getEncoded();
+        publicKeyDigest = digest(publicKey);
+    }
+
+    /**
+     * Returns the session with a remote peer if the remote peer is known to
+     * be able to verify our MACs.
+     *
+     * @param remote the source address of the remote peer.
+     * @return the session or {@code null} if messages to the peer must be
+     * signed.
+     */
+    Session getConfirmedSession(String remote) {
+        Session session = sessions.get(remote);
+
+        return ((null != session) && session.confirmed) ? session : null;
+    }
+
+    /**
+     * Returns the session with a remote peer.
+     *
+     * @param remote the source address of the remote peer.
+     * @return the session or {@code null} if there is none.
+     */
+    Session getSession(String remote) {
+        return sessions.get(remote);
+    }
+
+    /**
+     * Returns the key agreement element to add to a signed message.
+     *
+     * @param remote the source address of the destination peer.
+     * @return the key agreement element.
+     */
+    MessageElement getKeyAgreementElement(String remote) {
+        Session session = sessions.get(remote);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(publicKey.length + 48);
+        DataOutputStream dos = new DataOutputStream(bytes);
+
+        try {
+            dos.writeInt(publicKey.length);
+            dos.write(publicKey);
+
+            if (null != session) {
+                dos.writeInt(session.remoteKeyDigest.length);
+                dos.write(session.remoteKeyDigest);
+            } else {
+                dos.writeInt(0);
+            }
+
+            dos.flush();
+        } catch (IOException never) {
+            throw new IllegalStateException(never);
+        }
+
+        return new ByteArrayMessageElement(KEY_AGREEMENT_ELEMENT_NAME, MimeMediaType.AOS, bytes.toByteArray(), null);
+    }
+
+    /**
+     * Process the key agreement element of a message whose signature has
+     * been verified.
+     *
+     * @param remote the source address of the remote peer.
+     * @param certificate the certificate which signed the message.
+     * @param element the key agreement element.
+     */
+    void keyAgreementReceived(String remote, X509Certificate certificate, MessageElement element) {
+        try {
+            DataInputStream dis = new DataInputStream(element.getStream());
+
+            byte[] remoteKey = new byte[dis.readInt()];
+            dis.readFully(remoteKey);
+
+            byte[] echoed = new byte[dis.readInt()];
+            dis.readFully(echoed);
+
+            boolean knowsOurKey = Arrays.equals(echoed, publicKeyDigest);
+
+            synchronized (sessions) {
+                Session session = sessions.get(remote);
+
+                if ((null == session) || !Arrays.equals(session.remoteKey, remoteKey)) {
+                    // New peer or the peer restarted.
+                    session = new Session(certificate, remoteKey, agree(remoteKey));
+                    sessions.put(remote, session);
+
+                    Logging.logCheckedFine(LOG, "New CBJX session with ", remote);
+                }
+
+                // A stale digest means the peer has lost our key.
+                session.confirmed = knowsOurKey;
+            }
+        } catch (IOException badElement) {
+            Logging.logCheckedWarning(LOG, "Bad CBJX key agreement from ", remote, "\n", badElement);
+        } catch (GeneralSecurityException badKey) {
+            Logging.logCheckedWarning(LOG, "Bad CBJX key agreement from ", remote, "\n", badKey);
+        }
+    }
+
+    /**
+     * Derive the session key.
+     *
+     * @param remoteKey the encoded public key of the remote peer.
+     * @return the session key.
+     */
+    private SecretKeySpec agree(byte[] remoteKey) throws GeneralSecurityException {
+        PublicKey remotePublic = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(remoteKey));
+
+        KeyAgreement agreement = KeyAgreement.getInstance("ECDH");
+        agreement.init(keyPair.getPrivate());
+        agreement.doPhase(remotePublic, true);
+
+        return new SecretKeySpec(digest(agreement.generateSecret()), CBJX_MAC_ALG);
+    }
+
+    private static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (GeneralSecurityException never) {
+            throw new IllegalStateException(never);
+        }
+    }
+
+    /**
+     * A MAC session with a remote peer.
+     */
+    static final class Session {
+
+        /**
+         * The certificate which signed the key agreement of the remote peer.
+         */
+        final X509Certificate certificate;
+
+        final byte[] remoteKey;
+        final byte[] remoteKeyDigest;
+
+        private final SecretKeySpec key;
+
+        /**
+         * If {@code true} the remote peer can verify our MACs.
+         */
+        volatile boolean confirmed = false;
+
+        Session(X509Certificate certificate, byte[] remoteKey, SecretKeySpec key) {
+            this.certificate = certificate;
+            this.remoteKey = remoteKey;
+            this.remoteKeyDigest = digest(remoteKey);
+            this.key = key;
+        }
+
+        /**
+         * Compute the MAC of a message.
+         *
+         * @param unsigned the serialized message.
+         * @param src our source address.
+         * @return the MAC.
+         */
+        byte[] mac(ByteBuffer[] unsigned, byte[] src) throws NoSuchAlgorithmException, InvalidKeyException {
+            Mac mac = Mac.getInstance(CBJX_MAC_ALG);
+            mac.init(key);
+
+            for (ByteBuffer each : unsigned) {
+                mac.update(each.duplicate());
+            }
+            mac.update(src);
+
+            return mac.doFinal();
+        }
+
+        /**
+         * Verify the MAC of a received message. A valid MAC proves that the
+         * remote peer knows our key, so the session becomes confirmed.
+         *
+         * @param unsigned the message as it was received.
+         * @param src the source address of the remote peer.
+         * @param received the received MAC.
+         * @return {@code true} if the MAC is valid.
+         */
+        boolean verify(ByteBuffer unsigned, byte[] src, byte[] received) throws NoSuchAlgorithmException, InvalidKeyException {
+            Mac mac = Mac.getInstance(CBJX_MAC_ALG);
+            mac.init(key);
+
+            mac.update(unsigned);
+            mac.update(src);
+
+            boolean valid = MessageDigest.isEqual(mac.doFinal(), received);
+
+            if (valid) {
+                confirmed = true;
+            } else if (Logging.SHOW_FINE && LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Invalid CBJX MAC from " + new String(src));
+            }
+
+            return valid;
+        }
+    }
+}
@@ -83,7 +83,9 @@ import net.jxta.impl.util.SequenceIterator;
 import net.jxta.logging.Logging;
 import net.jxta.meter.MonitorResources;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.AccessPointAdvertisement;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
@@ -99,6 +101,7 @@ import java.util.logging.Logger;
 import net.jxta.endpoint.router.EndpointRoutingTransport;
 import net.jxta.endpoint.router.RouteController;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.threads.TaskManager;
 
 /**
  * This class implements the frontend for all the JXTA  endpoint protocols, as
@@ -107,7 +110,7 @@ import net.jxta.impl.util.TimeUtils;
  * legacy or convenience methods should stay out. However, that would require
  * a two-level interface for the service (internal and public). May be later.
  */
-public class EndpointServiceImpl implements EndpointService, MessengerEventListener {
+public class EndpointServiceImpl implements EndpointService, MessengerEventListener, DependentModule {
 
     /**
      * Logger
@@ -259,6 +262,24 @@ public class EndpointServiceImpl implements EndpointService, MessengerEventListe
      */
     private static volatile ListenerAdaptor listenerAdaptor;
 
+    /**
+     * The number of threads verifying message signatures when
+     * {@link WireFormatMessageFactory#PARALLEL_VERIFICATION} is set.
+     */
+    private static final int VERIFICATION_THREADS = Integer.getInteger(EndpointServiceImpl.class.getName() + ".verificationThreads", Runtime.getRuntime().availableProcessors()).intValue();
+
+    /**
+     * The maximum number of received messages awaiting signature
+     * verification. Transports block once it is reached.
+     */
+    private static final int VERIFICATION_QUEUE = Integer.getInteger(EndpointServiceImpl.class.getName() + ".verificationQueue", 256).intValue();
+
+    /**
+     * Verifies message signatures ahead of dispatch or {@code null} if
+     * signatures are verified by the transports.
+     */
+    private volatile VerificationStage verificationStage = null;
+
     /**
      * The cache of channels. If a given owner of this EndpointService interface
      * object requests channels for the same exact destination multiple times,
@@ -587,6 +608,13 @@ public class EndpointServiceImpl implements EndpointService, MessengerEventListe
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Collections.<ModuleClassID>emptyList();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -597,7 +625,7 @@ public class EndpointServiceImpl implements EndpointService, MessengerEventListe
         }
 
         // TODO: This listener should probably go at some stage (legacy stuff)
-        listenerAdaptor = new ListenerAdaptor(Thread.currentThread().getThreadGroup(), group.getTaskManager().getExecutorService());
+        listenerAdaptor = new ListenerAdaptor(Thread.currentThread().getThreadGroup(), group.getTaskManager().getExecutorLane(TaskManager.ENDPOINT_LANE));
 
         // FIXME  when Load order Issue is resolved this should fail
         // until it is able to get a non-failing service Monitor (or
@@ -626,6 +654,10 @@ public class EndpointServiceImpl implements EndpointService, MessengerEventListe
         
         this.addIncomingMessageFilterListener(new CbjxFilter(), null, null);
 
+        if (WireFormatMessageFactory.PARALLEL_VERIFICATION) {
+            verificationStage = new VerificationStage(this, VERIFICATION_THREADS, VERIFICATION_QUEUE);
+        }
+
         return Module.START_OK;
     }
 
@@ -637,6 +669,11 @@ public class EndpointServiceImpl implements EndpointService, MessengerEventListe
      */
     public void stopApp() {
 
+        if (verificationStage != null) {
+            verificationStage.shutdown();
+            verificationStage = null;
+        }
+
         if (parentEndpoint != null) {
             parentEndpoint.removeMessengerEventListener(this, EndpointService.LowPrecedence);
         }
@@ -927,6 +964,46 @@ public class EndpointServiceImpl implements EndpointService, MessengerEventListe
             }
         }
 
+        VerificationStage stage = verificationStage;
+
+        if ((null != stage) && stage.submit(msg, srcAddress, dstAddress)) {
+            return;
+        }
+
+        WireFormatMessageBinary.PendingVerification pending =
+                (WireFormatMessageBinary.PendingVerification) msg.getMessageProperty(WireFormatMessageBinary.PendingVerification.class);
+
+        if (null != pending) {
+            msg.setMessageProperty(WireFormatMessageBinary.PendingVerification.class, null);
+
+            boolean verified;
+
+            try {
+                verified = pending.verify();
+            } catch (IOException badTrailer) {
+                Logging.logCheckedWarning(LOG, "Bad signature trailer on ", msg, "\n", badTrailer);
+                verified = false;
+            }
+
+            if (!verified) {
+                Logging.logCheckedWarning(LOG, "Discarding ", msg, " which failed verification");
+                return;
+            }
+        }
+
+        dispatchIncomingMessage(msg, srcAddress, dstAddress);
+    }
+
+    /**
+     * Deliver a received message, whose signature has been verified, to the
+     * filters and the listener for its destination.
+     *
+     * @param msg the message.
+     * @param srcAddress the source of the message.
+     * @param dstAddress the destination of the message.
+     */
+    void dispatchIncomingMessage(Message msg, EndpointAddress srcAddress, EndpointAddress dstAddress) {
+
         if (null == srcAddress) {
 
             Logging.logCheckedWarning(LOG, "null src address, discarding message ", msg);
@@ -0,0 +1,240 @@
+package net.jxta.impl.endpoint;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.Message;
+import net.jxta.impl.util.threads.NamedThreadFactory;
+import net.jxta.logging.Logging;
+
+/**
+ * Verifies the CBJX signatures of incoming messages on a pool of worker
+ * threads ahead of dispatch to the endpoint listeners.
+ * <p/>
+ * Signatures of messages from the same source are checked in parallel, but
+ * the messages are dispatched in the order in which they were received.
+ * The number of messages awaiting verification is bounded: once the bound is
+ * reached the transport threads handing in messages block until a
+ * verification completes.
+ */
+class VerificationStage {
+
+    private static final Logger LOG = Logger.getLogger(VerificationStage.class.getName());
+
+    /**
+     * The endpoint to which verified messages are dispatched.
+     */
+    private final EndpointServiceImpl endpoint;
+
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Permits for the messages awaiting verification.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * The messages received from each source which have not yet been
+     * dispatched. Also protects the state of the queues.
+     */
+    private final Map<EndpointAddress, SourceQueue> sources = new HashMap<EndpointAddress, SourceQueue>();
+
+    /**
+     * @param endpoint the endpoint to which verified messages are dispatched.
+     * @param threads the number of verification threads.
+     * @param maxInFlight the maximum number of messages awaiting verification.
+     */
+    VerificationStage(EndpointServiceImpl endpoint, int threads, int maxInFlight) {
+        this.endpoint = endpoint;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("JxtaSignatureVerifier"));
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stop the worker threads. Messages which have not been verified are
+     * discarded.
+     */
+    void shutdown() {
+        workers.shutdownNow();
+
+        synchronized (sources) {
+            sources.clear();
+        }
+    }
+
+    /**
+     * Queue an incoming message. A message which awaits verification is
+     * verified in the background. A message which was already verified is
+     * queued only if earlier messages from the same source have not yet
+     * been dispatched.
+     *
+     * @param msg the message.
+     * @param srcAddress the source of the message.
+     * @param dstAddress the destination of the message.
+     * @return {@code true} if the message was queued and will be dispatched
+     * by the stage, {@code false} if the caller should dispatch it.
+     */
+    boolean submit(Message msg, EndpointAddress srcAddress, EndpointAddress dstAddress) {
+        if (null == srcAddress) {
+            return false;
+        }
+
+        final WireFormatMessageBinary.PendingVerification pending =
+                (WireFormatMessageBinary.PendingVerification) msg.getMessageProperty(WireFormatMessageBinary.PendingVerification.class);
+
+        if (null != pending) {
+            msg.setMessageProperty(WireFormatMessageBinary.PendingVerification.class, null);
+
+            // Back pressure on the transport.
+            inFlight.acquireUninterruptibly();
+        }
+
+        final Entry entry = new Entry(msg, srcAddress, dstAddress);
+        final SourceQueue queue;
+
+        synchronized (sources) {
+            SourceQueue existing = sources.get(srcAddress);
+
+            if ((null == pending) && (null == existing)) {
+                // Nothing to keep in order with.
+                return false;
+            }
+
+            if (null == existing) {
+                existing = new SourceQueue(srcAddress);
+                sources.put(srcAddress, existing);
+            }
+
+            queue = existing;
+            queue.entries.add(entry);
+
+            if (null == pending) {
+                entry.done = true;
+                entry.verified = true;
+            }
+        }
+
+        if (null == pending) {
+            drain(queue);
+            return true;
+        }
+
+        try {
+            workers.execute(new Runnable() {
+                public void run() {
+                    boolean verified = false;
+
+                    try {
+                        verified = pending.verify();
+                    } catch (Throwable all) {
+                        Logging.logCheckedWarning(LOG, "Failed verifying message from ", entry.srcAddress, "\n", all);
+                    } finally {
+                        inFlight.release();
+                    }
+
+                    completed(queue, entry, verified);
+                }
+            });
+        } catch (RejectedExecutionException shutdown) {
+            inFlight.release();
+            completed(queue, entry, false);
+        }
+
+        return true;
+    }
+
+    /**
+     * Record the outcome of a verification and dispatch what can be.
+     */
+    private void completed(SourceQueue queue, Entry entry, boolean verified) {
+        synchronized (sources) {
+            entry.verified = verified;
+            entry.done = true;
+        }
+
+        drain(queue);
+    }
+
+    /**
+     * Dispatch the verified messages at the head of a source queue. Only one
+     * thread at a time dispatches the messages of a source.
+     */
+    private void drain(SourceQueue queue) {
+        while (true) {
+            Entry head;
+
+            synchronized (sources) {
+                if (queue.draining) {
+                    return;
+                }
+
+                head = queue.entries.peek();
+
+                if ((null == head) || !head.done) {
+                    if ((null == head) && (sources.get(queue.srcAddress) == queue)) {
+                        sources.remove(queue.srcAddress);
+                    }
+                    return;
+                }
+
+                queue.entries.poll();
+                queue.draining = true;
+            }
+
+            try {
+                if (head.verified) {
+                    endpoint.dispatchIncomingMessage(head.msg, head.srcAddress, head.dstAddress);
+                } else {
+                    Logging.logCheckedWarning(LOG, "Discarding message from ", head.srcAddress, " which failed verification");
+                }
+            } catch (Throwable all) {
+                Logging.logCheckedSevere(LOG, "Uncaught Throwable dispatching message from ", head.srcAddress, "\n", all);
+            } finally {
+                synchronized (sources) {
+                    queue.draining = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * The undispatched messages of a source.
+     */
+    private static class SourceQueue {
+        final EndpointAddress srcAddress;
+        final Queue<Entry> entries = new ArrayDeque<Entry>();
+        boolean draining = false;
+
+        SourceQueue(EndpointAddress srcAddress) {
+            this.srcAddress = srcAddress;
+        }
+    }
+
+    /**
+     * A received message.
+     */
+    private static class Entry {
+        final Message msg;
+        final EndpointAddress srcAddress;
+        final EndpointAddress dstAddress;
+        boolean done = false;
+        boolean verified = false;
+
+        Entry(Message msg, EndpointAddress srcAddress, EndpointAddress dstAddress) {
+            this.msg = msg;
+            this.srcAddress = srcAddress;
+            this.dstAddress = dstAddress;
+        }
+    }
+}
@@ -61,17 +61,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
@@ -96,10 +98,12 @@ import net.jxta.endpoint.Message;
 import net.jxta.endpoint.MessageElement;
 import net.jxta.endpoint.WireFormatMessage;
 import net.jxta.endpoint.WireFormatMessageFactory;
+import net.jxta.id.ID;
 import net.jxta.id.IDFactory;
 import net.jxta.impl.endpoint.router.EndpointRouterMessage;
 import net.jxta.impl.membership.pse.PSECredential;
 import net.jxta.impl.membership.pse.PSEMembershipService;
+import net.jxta.impl.util.LRUCache;
 import net.jxta.logging.Logging;
 import net.jxta.peergroup.PeerGroup;
 import net.jxta.util.LimitInputStream;
@@ -145,6 +149,17 @@ public class WireFormatMessageBinary implements WireFormatMessage {
         null
     };
 
+    /**
+     * The number of validated sender certificates which are remembered.
+     */
+    private static final int CERT_CACHE_SIZE = Integer.getInteger(WireFormatMessageBinary.class.getName() + ".certCacheSize", 256).intValue();
+
+    /**
+     * The CBJX sender certificates whose self-signature has already been
+     * checked, keyed by the SHA-256 digest of their encoding.
+     */
+    private static final LRUCache<ByteBuffer, X509Certificate> VALIDATED_CERTS = new LRUCache<ByteBuffer, X509Certificate>(CERT_CACHE_SIZE);
+
     /**
      * Our instantiator for the factory.
      */
@@ -640,37 +655,136 @@ public class WireFormatMessageBinary implements WireFormatMessage {
             return tempMsg;
         }
 
-        private static Message enforceCbjxOnIncoming(Message paramMsg, MimeMediaType paramType, DataInputStream paramDIS, PeerGroup paramGroup, boolean isTls) throws IOException
+        /**
+         * Parse a self-signed certificate and check its signature. Certificates
+         * which have already been checked are returned from
+         * {@link #VALIDATED_CERTS} instead.
+         *
+         * @param encoded the encoded certificate.
+         * @return the certificate.
+         */
+        private static X509Certificate getValidatedCertificate(byte[] encoded) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException
+        {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(encoded));
+
+            X509Certificate cert = VALIDATED_CERTS.get(digest);
+
+            if (null == cert) {
+                CertificateFactory tempCF = CertificateFactory.getInstance( "X.509" );
+                cert = (X509Certificate) tempCF.generateCertificate( new ByteArrayInputStream(encoded));
+                cert.verify(cert.getPublicKey());
+
+                VALIDATED_CERTS.put(digest, cert);
+            }
+
+            return cert;
+        }
+
+        /**
+         * An offered MAC session is never passed on to the application, even
+         * when the message is read without checking its CBJX trailer.
+         *
+         * @param paramMsg the message which was read.
+         * @return the message.
+         */
+        private static Message removeKeyAgreement(Message paramMsg)
+        {
+            MessageElement tempKeyAgreement = paramMsg.getMessageElement("jxta", CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME);
+            if (null != tempKeyAgreement) {
+                paramMsg.removeMessageElement(tempKeyAgreement);
+            }
+
+            return paramMsg;
+        }
+
+        private static Message enforceCbjxOnIncoming(Message paramMsg, ByteBuffer paramUnsigned, DataInputStream paramDIS, PeerGroup paramGroup, boolean isTls, boolean isDeferred) throws IOException
         {
-            return enforceCbjxOnIncoming(paramMsg, paramType, readBytes(paramDIS), readBytes(paramDIS), readBytes(paramDIS), paramGroup, isTls);
+            return enforceCbjxOnIncoming(paramMsg, paramUnsigned, readBytes(paramDIS), readBytes(paramDIS), readBytes(paramDIS), paramGroup, isTls, isDeferred);
         }
 
-        private static Message enforceCbjxOnIncoming(Message paramMsg, MimeMediaType paramType, ByteBuffer paramBuf, PeerGroup paramGroup) throws IOException
+        private static Message enforceCbjxOnIncoming(Message paramMsg, ByteBuffer paramUnsigned, ByteBuffer paramBuf, PeerGroup paramGroup, boolean isDeferred) throws IOException
         {
-            return enforceCbjxOnIncoming(paramMsg, paramType, readBytes(paramBuf), readBytes(paramBuf), readBytes(paramBuf), paramGroup, false);
+            return enforceCbjxOnIncoming(paramMsg, paramUnsigned, readBytes(paramBuf), readBytes(paramBuf), readBytes(paramBuf), paramGroup, false, isDeferred);
         }
 
-        private static Message enforceCbjxOnIncoming(Message paramMsg, MimeMediaType paramType, byte[] tempCertFromWire, byte[] tempSrcFromWire, byte[] tempSigFromWire, PeerGroup paramGroup, boolean isTLS) throws IOException
+        /**
+         * Verify the CBJX signature of a received message now or, if the
+         * caller allows it, leave a {@link PendingVerification} on the message
+         * for the endpoint service to run. Only signed messages are deferred;
+         * MACs are cheap and a key agreement must be processed before the
+         * next message from the same peer is read.
+         */
+        private static Message enforceCbjxOnIncoming(Message paramMsg, ByteBuffer paramUnsigned, byte[] tempCertFromWire, byte[] tempSrcFromWire, byte[] tempSigFromWire, PeerGroup paramGroup, boolean isTLS, boolean isDeferred) throws IOException
         {
+            if (!isDeferred || (0 == tempCertFromWire.length) || (null != paramMsg.getMessageElement("jxta", CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME))) {
+                return enforceCbjxOnIncoming(paramMsg, paramUnsigned, tempCertFromWire, tempSrcFromWire, tempSigFromWire, paramGroup, isTLS);
+            }
+
+            // The transport may reuse its buffer once we return.
+            ByteBuffer tempUnsigned = ByteBuffer.allocate(paramUnsigned.remaining());
+            tempUnsigned.put(paramUnsigned);
+            tempUnsigned.flip();
+
             paramMsg.setMessageProperty(EndpointServiceImpl.MESSAGE_LOOPBACK, false);
-            WireFormatMessage tempWFM = WireFormatMessageFactory.toWire(paramMsg,paramType, null);
+            paramMsg.setMessageProperty(PendingVerification.class,
+                    new PendingVerification(paramMsg, tempUnsigned, tempCertFromWire, tempSrcFromWire, tempSigFromWire, paramGroup, isTLS));
+
+            return paramMsg;
+        }
+
+        /**
+         * Verify the CBJX signature of a received message.
+         *
+         * @param paramMsg the message which was read.
+         * @param paramUnsigned the bytes of the message as they were received,
+         * without the CBJX trailer. These are the bytes the sender signed.
+         */
+        private static Message enforceCbjxOnIncoming(Message paramMsg, ByteBuffer paramUnsigned, byte[] tempCertFromWire, byte[] tempSrcFromWire, byte[] tempSigFromWire, PeerGroup paramGroup, boolean isTLS) throws IOException
+        {
+            paramMsg.setMessageProperty(EndpointServiceImpl.MESSAGE_LOOPBACK, false);
+
+            MessageElement tempKeyAgreement = paramMsg.getMessageElement("jxta", CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME);
+            removeKeyAgreement(paramMsg);
+
+            CbjxSessions tempSessions = (CbjxSessions.CBJX_HMAC && (null != paramGroup) && !isTLS) ? CbjxSessions.getSessions(paramGroup) : null;
+
             try {
 
-                //fingerprint
-                CertificateFactory tempCF = CertificateFactory.getInstance( "X.509" );
-                Certificate tempCert = tempCF.generateCertificate( new ByteArrayInputStream(tempCertFromWire));
-                tempCert.verify(tempCert.getPublicKey());
+                X509Certificate tempCert;
+                boolean tempVerified;
 
-                Signature tempSig = Signature.getInstance(WireFormatMessageFactory.CBJX_SIG_ALG);
-                tempSig.initVerify(tempCert);
-                ByteBuffer[] tempBBs =tempWFM.getUnsignedByteBuffers();
-                for(ByteBuffer tempBB:tempBBs)
-                {
-                    tempSig.update(tempBB);
+                if (0 == tempCertFromWire.length) {
+                    // MAC session
+                    CbjxSessions.Session tempSession = (null == tempSessions) ? null : tempSessions.getSession(new String(tempSrcFromWire));
+
+                    if (null == tempSession) {
+                        Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, "No CBJX session for the MAC of the message from the wire.");
+                        return emptyMsg();
+                    }
+
+                    tempCert = tempSession.certificate;
+                    tempVerified = tempSession.verify(paramUnsigned, tempSrcFromWire, tempSigFromWire);
+                } else {
+                    //fingerprint
+                    tempCert = getValidatedCertificate(tempCertFromWire);
+
+                    Signature tempSig = Signature.getInstance(WireFormatMessageFactory.CBJX_SIG_ALG);
+                    tempSig.initVerify(tempCert);
+                    tempSig.update(paramUnsigned);
+                    tempSig.update(tempCertFromWire);
+                    tempSig.update(tempSrcFromWire);
+                    tempVerified = tempSig.verify(tempSigFromWire);
+
+                    if (tempVerified && (null != tempSessions) && (null != tempKeyAgreement)) {
+                        // Only the owner of a peer id may offer a session for it.
+                        String tempSrc = new String(tempSrcFromWire);
+                        ID tempSigner = IDFactory.newPeerID(paramGroup.getPeerGroupID(), tempCert.getPublicKey().getEncoded());
+
+                        if (tempSigner.toURI().toString().equals(tempSrc)) {
+                            tempSessions.keyAgreementReceived(tempSrc, tempCert, tempKeyAgreement);
+                        }
+                    }
                 }
-                tempSig.update(tempCertFromWire);
-                tempSig.update(tempSrcFromWire);
-                boolean tempVerified = tempSig.verify(tempSigFromWire);
 
                 if(tempVerified)
                 {
@@ -691,7 +805,7 @@ public class WireFormatMessageBinary implements WireFormatMessage {
                     {
                         tempCertSet = new HashSet<X509Certificate>();
                     }
-                    tempCertSet.add((X509Certificate)tempCert);
+                    tempCertSet.add(tempCert);
 
                     MessageElement tempERM = paramMsg.getMessageElement(EndpointRouterMessage.MESSAGE_NS, EndpointRouterMessage.MESSAGE_NAME+"-fingerprint");
                     if(tempERM==null)
@@ -706,8 +820,8 @@ public class WireFormatMessageBinary implements WireFormatMessage {
                         byte[] tempCertFromERM     = readBytes(tempDIS);
                         byte[] tempSigFromERM      = readBytes(tempDIS);
 
-                        Certificate tempCertERM = tempCF.generateCertificate( new ByteArrayInputStream(tempCertFromERM));
-                        tempCertERM.verify(tempCertERM.getPublicKey());
+                        X509Certificate tempCertERM = getValidatedCertificate(tempCertFromERM);
+                        Signature tempSig = Signature.getInstance(WireFormatMessageFactory.CBJX_SIG_ALG);
                         tempSig.initVerify(tempCertERM);
                         tempSig.update(tempPayloadFromERM);
                         tempSig.update(tempCertFromERM);
@@ -726,7 +840,7 @@ public class WireFormatMessageBinary implements WireFormatMessage {
                                 } else {
                                     tempSet.add(tempEASuposedToBe);
                                 }
-                                tempCertSet.add((X509Certificate)tempCertERM);
+                                tempCertSet.add(tempCertERM);
                                 paramMsg.setMessageProperty(EndpointServiceImpl.VERIFIED_ADDRESS_SET, tempSet);
                                 paramMsg.setMessageProperty(EndpointServiceImpl.MESSAGE_SIGNER_SET, tempCertSet);
                             }
@@ -768,16 +882,28 @@ public class WireFormatMessageBinary implements WireFormatMessage {
         }
 
         public Message fromWireExternal(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isTls) throws IOException {
-            return fromWireExternal(is, type, contentEncoding, paramDisableCbjx, paramGroup, true, isTls);
+            return fromWireExternal(is, type, contentEncoding, paramDisableCbjx, paramGroup, true, isTls, false);
+        }
+
+        public Message fromWireExternalDeferred(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) throws IOException {
+            return fromWireExternal(is, type, contentEncoding, paramDisableCbjx, paramGroup, true, false, true);
         }
 
-        private Message fromWireExternal(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isEnforce, boolean isTls) throws IOException {
+        private Message fromWireExternal(InputStream is, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isEnforce, boolean isTls, boolean isDeferred) throws IOException {
             Message msg = new Message();
 
             if (Logging.SHOW_FINE && LOG.isLoggable(Level.FINE)) {
                 LOG.fine("Reading " + msg + " from " + is);
             }
 
+            // Keep the bytes we read if we will have to check their signature.
+            CapturingInputStream capture = null;
+
+            if (!paramDisableCbjx && isEnforce && (paramGroup != null)) {
+                capture = new CapturingInputStream(is);
+                is = capture;
+            }
+
             DataInputStream dis = new DataInputStream(is);
 
             HashMap idToNamespace = readHeader(dis);
@@ -841,14 +967,14 @@ public class WireFormatMessageBinary implements WireFormatMessage {
 
             if(paramDisableCbjx)
             {
-                return msg;
+                return removeKeyAgreement(msg);
             }
             else
             {
-                if (isEnforce && paramGroup != null) { //paramGroup != null - to aid MessageTest.testMessageSerialization()
-                    return enforceCbjxOnIncoming(msg, type, dis, paramGroup, isTls);
+                if (null != capture) { //paramGroup != null - to aid MessageTest.testMessageSerialization()
+                    return enforceCbjxOnIncoming(msg, capture.getCaptured(), dis, paramGroup, isTls, isDeferred);
                 }  else
-                    return msg;
+                    return removeKeyAgreement(msg);
             }
         }
 
@@ -856,7 +982,15 @@ public class WireFormatMessageBinary implements WireFormatMessage {
             return fromBufferExternal(buffer, type, contentEncoding, paramDisableCbjx, paramGroup, true);
         }
 
+        public Message fromBufferExternalDeferred(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) throws IOException {
+            return fromBufferExternal(buffer, type, contentEncoding, paramDisableCbjx, paramGroup, true, true);
+        }
+
         public Message fromBufferExternal(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isEnforce) throws IOException {
+            return fromBufferExternal(buffer, type, contentEncoding, paramDisableCbjx, paramGroup, isEnforce, false);
+        }
+
+        private Message fromBufferExternal(ByteBuffer buffer, MimeMediaType type, MimeMediaType contentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isEnforce, boolean isDeferred) throws IOException {
             // FIXME 20020504 bondolo@jxta.org  Ignores type and contentEncoding completely.
             Message msg = new Message();
 
@@ -864,6 +998,8 @@ public class WireFormatMessageBinary implements WireFormatMessage {
                 LOG.fine("Reading " + msg + " from " + buffer);
             }
 
+            int messageStart = buffer.position();
+
             HashMap idToNamespace = readHeader(buffer);
 
             int elementCnt = buffer.getShort();
@@ -921,24 +1057,32 @@ public class WireFormatMessageBinary implements WireFormatMessage {
 
             if(paramDisableCbjx)
             {
-                return msg;
+                return removeKeyAgreement(msg);
             }
             else
             {
                 if (isEnforce) {
-                    return enforceCbjxOnIncoming(msg, type, buffer, paramGroup);
+                    ByteBuffer unsigned = buffer.duplicate();
+                    unsigned.limit(buffer.position());
+                    unsigned.position(messageStart);
+
+                    return enforceCbjxOnIncoming(msg, unsigned, buffer, paramGroup, isDeferred);
                 }  else
-                    return msg;
+                    return removeKeyAgreement(msg);
             }
         }
 
         public WireFormatMessage toWireExternal(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) {
+            return toWireExternal(msg, type, preferedContentEncoding, paramDisableCbjx, paramGroup, null);
+        }
+
+        public WireFormatMessage toWireExternal(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup, ID destination) {
             try {
-                return new WireFormatMessageBinary(msg, type, preferedContentEncoding, paramDisableCbjx, paramGroup, false);
+                return new WireFormatMessageBinary(msg, type, preferedContentEncoding, paramDisableCbjx, paramGroup, false, destination);
             } catch (IOException caught) {
                 throw new IllegalStateException("Could not build wire format for message due to " + caught.getMessage());
             }
-    }
+        }
 
         public WireFormatMessage toWireExternalWithTls(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncoding, boolean paramDisableCbjx, PeerGroup paramGroup) {
             try {
@@ -947,6 +1091,109 @@ public class WireFormatMessageBinary implements WireFormatMessage {
                 throw new IllegalStateException("Could not build wire format for message due to " + caught.getMessage());
             }
         }
+
+        /**
+         * Keeps a copy of the bytes read from the underlying stream so that
+         * the CBJX signature can be checked against the bytes which were
+         * actually received.
+         */
+        private static class CapturingInputStream extends FilterInputStream {
+
+            private byte[] captured = new byte[4096];
+            private int count = 0;
+
+            CapturingInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int c = in.read();
+
+                if (c >= 0) {
+                    ensureCapacity(1);
+                    captured[count++] = (byte) c;
+                }
+
+                return c;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = in.read(b, off, len);
+
+                if (read > 0) {
+                    ensureCapacity(read);
+                    System.arraycopy(b, off, captured, count, read);
+                    count += read;
+                }
+
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // Skipped bytes must be captured too.
+                byte[] skipped = new byte[(int) Math.min(n, 4096)];
+                int read = read(skipped, 0, skipped.length);
+
+                return Math.max(read, 0);
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            /**
+             * @return the bytes read so far.
+             */
+            ByteBuffer getCaptured() {
+                return ByteBuffer.wrap(captured, 0, count);
+            }
+
+            private void ensureCapacity(int more) {
+                if (count + more > captured.length) {
+                    captured = Arrays.copyOf(captured, Math.max(captured.length * 2, count + more));
+                }
+            }
+        }
+    }
+
+    /**
+     * The CBJX signature check of a received message, left on the message as
+     * a message property when verification was deferred to the endpoint
+     * service.
+     */
+    static class PendingVerification {
+        private final Message msg;
+        private final ByteBuffer unsigned;
+        private final byte[] cert;
+        private final byte[] src;
+        private final byte[] sig;
+        private final PeerGroup group;
+        private final boolean isTls;
+
+        PendingVerification(Message msg, ByteBuffer unsigned, byte[] cert, byte[] src, byte[] sig, PeerGroup group, boolean isTls) {
+            this.msg = msg;
+            this.unsigned = unsigned;
+            this.cert = cert;
+            this.src = src;
+            this.sig = sig;
+            this.group = group;
+            this.isTls = isTls;
+        }
+
+        /**
+         * Verify the signature and record the verified addresses and signers
+         * on the message.
+         *
+         * @return {@code true} if the message may be delivered.
+         * @throws IOException if the CBJX trailer is malformed.
+         */
+        boolean verify() throws IOException {
+            return msg == Instantiator.enforceCbjxOnIncoming(msg, unsigned.duplicate(), cert, src, sig, group, isTls);
+        }
     }
 
 
@@ -973,7 +1220,13 @@ public class WireFormatMessageBinary implements WireFormatMessage {
         private PeerGroup group;
         private boolean isTls = false;
 
-        binaryMessageProxy(Message msg, MimeMediaType type, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isTls) throws IOException {
+        /**
+         * If not {@code null}, the session whose MAC replaces the CBJX
+         * signature.
+         */
+        private CbjxSessions.Session macSession = null;
+
+        binaryMessageProxy(Message msg, MimeMediaType type, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isTls, ID destination) throws IOException {
             message = msg;
             this.isTls = isTls;
 
@@ -995,6 +1248,21 @@ public class WireFormatMessageBinary implements WireFormatMessage {
                 elements.add(new binaryElementProxy(namespaceid, anElement));
             }
 
+            if (!disableCbjx && CbjxSessions.CBJX_HMAC && (null != group) && !isTls && (null != destination)) {
+                CbjxSessions sessions = CbjxSessions.getSessions(group);
+
+                if (null != sessions) {
+                    String remote = destination.toURI().toString();
+
+                    macSession = sessions.getConfirmedSession(remote);
+
+                    if (null == macSession) {
+                        // Signed. Offer a session, the signature covers the offer.
+                        elements.add(new binaryElementProxy(namespaceIDs.get("jxta").byteValue(), sessions.getKeyAgreementElement(remote)));
+                    }
+                }
+            }
+
             buildHeader();
         }
 
@@ -1052,48 +1320,7 @@ public class WireFormatMessageBinary implements WireFormatMessage {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             DataOutputStream tempDOS = new DataOutputStream(baos);
             try {
-                try {
-                    PSEMembershipService tempPSE = (PSEMembershipService) this.group.getMembershipService();
-                    PSECredential tempCred = (PSECredential) tempPSE.getDefaultCredential();
-
-                    //Cert
-                    byte[] tempCert = tempCred.getCertificate().getEncoded();
-                    tempDOS.writeInt(tempCert.length);
-                    tempDOS.write(tempCert);
-
-                    byte[] tempSrc;
-
-                    //Source
-                    if (isTls) {
-                        tempSrc = new String("jxtatls://" + (String)this.group.getPeerID().getUniqueValue()).getBytes();
-                        tempDOS.writeInt(tempSrc.length);
-                        tempDOS.write(tempSrc);
-                    } else {
-                        tempSrc = this.group.getPeerID().toURI().toString().getBytes();
-                        tempDOS.writeInt(tempSrc.length);
-                        tempDOS.write(tempSrc);
-                    }
-
-                    ByteBuffer[] tempBBs = this.getUnsignedByteBuffers();
-
-                    CbjxSigInputStream mbais = new CbjxSigInputStream(tempCert, tempSrc, tempBBs);
-
-                    WireFormatMessageBinarySignatureBridge wireFormatMessageBinarySignatureBridge = new WireFormatMessageBinarySignatureBridge(WireFormatMessageFactory.CBJX_SIG_ALG, mbais);
-                    byte[] tempSigned = tempPSE.signWireFormatMessageBinary(wireFormatMessageBinarySignatureBridge);
-
-                    tempDOS.writeInt(tempSigned.length);
-                    tempDOS.write(tempSigned);
-
-                } catch (InvalidKeyException ex){
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (SignatureException ex) {
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (CertificateEncodingException ex) {
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                writeCbjxTrailer(tempDOS);
 
                 tempDOS.flush();
 
@@ -1149,48 +1376,7 @@ public class WireFormatMessageBinary implements WireFormatMessage {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             DataOutputStream tempDOS = new DataOutputStream(baos);
             try {
-                try {
-                    PSEMembershipService tempPSE = (PSEMembershipService) this.group.getMembershipService();
-                    PSECredential tempCred = (PSECredential) tempPSE.getDefaultCredential();
-
-                    //Cert
-                    byte[] tempCert = tempCred.getCertificate().getEncoded();
-                    tempDOS.writeInt(tempCert.length);
-                    tempDOS.write(tempCert);
-
-                    byte[] tempSrc;
-
-                    //Source
-                    if (isTls) {
-                        tempSrc = new String("jxtatls://" + (String)this.group.getPeerID().getUniqueValue()).getBytes();
-                        tempDOS.writeInt(tempSrc.length);
-                        tempDOS.write(tempSrc);
-                    } else {
-                        tempSrc = this.group.getPeerID().toURI().toString().getBytes();
-                        tempDOS.writeInt(tempSrc.length);
-                        tempDOS.write(tempSrc);
-                    }
-
-                    ByteBuffer[] tempBBs = this.getUnsignedByteBuffers();
-
-                    CbjxSigInputStream mbais = new CbjxSigInputStream(tempCert, tempSrc, tempBBs);
-
-                    WireFormatMessageBinarySignatureBridge wireFormatMessageBinarySignatureBridge = new WireFormatMessageBinarySignatureBridge(WireFormatMessageFactory.CBJX_SIG_ALG, mbais);
-                    byte[] tempSigned = tempPSE.signWireFormatMessageBinary(wireFormatMessageBinarySignatureBridge);
-
-                    tempDOS.writeInt(tempSigned.length);
-                    tempDOS.write(tempSigned);
-
-                } catch (InvalidKeyException ex){
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (SignatureException ex) {
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (CertificateEncodingException ex) {
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                writeCbjxTrailer(tempDOS);
 
                 tempDOS.flush();
 
@@ -1236,52 +1422,82 @@ public class WireFormatMessageBinary implements WireFormatMessage {
             }
             else
             {
-                try {
-                    PSEMembershipService tempPSE = (PSEMembershipService) this.group.getMembershipService();
-                    PSECredential tempCred = (PSECredential) tempPSE.getDefaultCredential();
+                writeCbjxTrailer(tempDOS);
 
-                    //Cert
-                    byte[] tempCert = tempCred.getCertificate().getEncoded();
-                    tempDOS.writeInt(tempCert.length);
-                    tempDOS.write(tempCert);
+                tempDOS.flush();
+            }
 
-                    byte[] tempSrc;
+        }
 
-                    //Source
-                    if (isTls) {
-                        tempSrc = new String("jxtatls://" + (String)this.group.getPeerID().getUniqueValue()).getBytes();
-                        tempDOS.writeInt(tempSrc.length);
-                        tempDOS.write(tempSrc);
-                    } else {
-                        tempSrc = this.group.getPeerID().toURI().toString().getBytes();
-                        tempDOS.writeInt(tempSrc.length);
-                        tempDOS.write(tempSrc);
-                    }
+        /**
+         * Write the CBJX trailer: our certificate, our source address and the
+         * signature of the message. Within a confirmed MAC session the
+         * certificate is left empty and the signature is replaced by the MAC.
+         *
+         * @param tempDOS the stream to write to.
+         * @throws IOException for errors writing to the stream.
+         */
+        private void writeCbjxTrailer(DataOutputStream tempDOS) throws IOException
+        {
+            if (null != macSession) {
+                byte[] tempSrc = this.group.getPeerID().toURI().toString().getBytes();
+
+                try {
+                    byte[] tempMac = macSession.mac(this.getUnsignedByteBuffers(), tempSrc);
 
-                    ByteBuffer[] tempBBs = this.getUnsignedByteBuffers();
+                    tempDOS.writeInt(0);
+                    tempDOS.writeInt(tempSrc.length);
+                    tempDOS.write(tempSrc);
+                    tempDOS.writeInt(tempMac.length);
+                    tempDOS.write(tempMac);
+                    return;
+                } catch (GeneralSecurityException ex) {
+                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, "CBJX MAC failed, signing instead", ex);
+                }
+            }
 
-                    CbjxSigInputStream mbais = new CbjxSigInputStream(tempCert, tempSrc, tempBBs);
+            try {
+                PSEMembershipService tempPSE = (PSEMembershipService) this.group.getMembershipService();
+                PSECredential tempCred = (PSECredential) tempPSE.getDefaultCredential();
 
-                    WireFormatMessageBinarySignatureBridge wireFormatMessageBinarySignatureBridge = new WireFormatMessageBinarySignatureBridge(WireFormatMessageFactory.CBJX_SIG_ALG, mbais);
-                    byte[] tempSigned = tempPSE.signWireFormatMessageBinary(wireFormatMessageBinarySignatureBridge);
+                //Cert
+                byte[] tempCert = tempCred.getCertificate().getEncoded();
+                tempDOS.writeInt(tempCert.length);
+                tempDOS.write(tempCert);
 
-                    tempDOS.writeInt(tempSigned.length);
-                    tempDOS.write(tempSigned);
+                byte[] tempSrc;
 
-                } catch (InvalidKeyException ex){
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (SignatureException ex) {
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (CertificateEncodingException ex) {
-                    tempDOS.writeInt(0);
-                    Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
+                //Source
+                if (isTls) {
+                    tempSrc = new String("jxtatls://" + (String)this.group.getPeerID().getUniqueValue()).getBytes();
+                    tempDOS.writeInt(tempSrc.length);
+                    tempDOS.write(tempSrc);
+                } else {
+                    tempSrc = this.group.getPeerID().toURI().toString().getBytes();
+                    tempDOS.writeInt(tempSrc.length);
+                    tempDOS.write(tempSrc);
                 }
 
-                tempDOS.flush();
-            }
+                ByteBuffer[] tempBBs = this.getUnsignedByteBuffers();
+
+                CbjxSigInputStream mbais = new CbjxSigInputStream(tempCert, tempSrc, tempBBs);
 
+                WireFormatMessageBinarySignatureBridge wireFormatMessageBinarySignatureBridge = new WireFormatMessageBinarySignatureBridge(WireFormatMessageFactory.CBJX_SIG_ALG, mbais);
+                byte[] tempSigned = tempPSE.signWireFormatMessageBinary(wireFormatMessageBinarySignatureBridge);
+
+                tempDOS.writeInt(tempSigned.length);
+                tempDOS.write(tempSigned);
+
+            } catch (InvalidKeyException ex){
+                tempDOS.writeInt(0);
+                Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
+            } catch (SignatureException ex) {
+                tempDOS.writeInt(0);
+                Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
+            } catch (CertificateEncodingException ex) {
+                tempDOS.writeInt(0);
+                Logger.getLogger(WireFormatMessageBinary.class.getName()).log(Level.SEVERE, null, ex);
+            }
         }
 
         private class CbjxSigInputStream extends InputStream {
@@ -1682,10 +1898,19 @@ public class WireFormatMessageBinary implements WireFormatMessage {
         // FIXME  20020504 bondolo@jxta.org Do something with encodings.
         this.contentEncoding = myContentEncodings[0];
 
-        msgProxy = new binaryMessageProxy(msg, type, false, null, false);
+        msgProxy = new binaryMessageProxy(msg, type, false, null, false, null);
     }
 
     WireFormatMessageBinary(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncodings, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isTls) throws IOException {
+        this(msg, type, preferedContentEncodings, paramDisableCbjx, paramGroup, isTls, null);
+    }
+
+    /**
+     * @param destination the peer to which the message will be sent or
+     * {@code null} if it will be propagated or the destination is unknown.
+     * Only messages with a destination may use a CBJX MAC session.
+     */
+    WireFormatMessageBinary(Message msg, MimeMediaType type, MimeMediaType[] preferedContentEncodings, boolean paramDisableCbjx, PeerGroup paramGroup, boolean isTls, ID destination) throws IOException {
         if (null == msg) {
             throw new IllegalArgumentException("Null message!");
         }
@@ -1718,7 +1943,7 @@ public class WireFormatMessageBinary implements WireFormatMessage {
         // FIXME  20020504 bondolo@jxta.org Do something with encodings.
         this.contentEncoding = myContentEncodings[0];
 
-        msgProxy = new binaryMessageProxy(msg, type, paramDisableCbjx, paramGroup, isTls);
+        msgProxy = new binaryMessageProxy(msg, type, paramDisableCbjx, paramGroup, isTls, destination);
     }
 
     /**
@@ -62,10 +62,12 @@ package net.jxta.impl.endpoint.endpointMeter;
 public class EndpointMeter {
 	
     private EndpointMetric total;
-    private EndpointMetric delta;
+    private final EndpointMetric delta;
+    private volatile boolean deltaChanged = false;
 
     public EndpointMeter() {
         total = new EndpointMetric();
+        delta = createDeltaMetric();
     }
 
     public EndpointMetric getCumulativeMetrics() {
@@ -74,100 +76,92 @@ public class EndpointMeter {
     }
 	
     public synchronized EndpointMetric collectMetrics() {
-        if (delta != null) {
-            delta.setEndpointUpTime(System.currentTimeMillis() - total.getEndpointStartTime());
+        if (!deltaChanged) {
+            return null;
         }
 
-        EndpointMetric oldDelta = delta;
-		
-        delta = null;
+        deltaChanged = false;
+
+        EndpointMetric collected = createDeltaMetric();
+
+        collected.drainMetrics(delta);
+        collected.setEndpointUpTime(System.currentTimeMillis() - total.getEndpointStartTime());
 		
-        return oldDelta;
+        return collected;
     }
 
     public void invalidIncomingMessage() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-
         delta.invalidIncomingMessage();
         total.invalidIncomingMessage();
+
+        markDeltaChanged();
     }
 
     public void noListenerForIncomingMessage() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-
         delta.noListenerForIncomingMessage();
         total.noListenerForIncomingMessage();
+
+        markDeltaChanged();
     }
 
     public void errorProcessingIncomingMessage() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-
         delta.errorProcessingIncomingMessage();
         total.errorProcessingIncomingMessage();
+
+        markDeltaChanged();
     }
 
     public void noDestinationAddressForDemuxMessage() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-
         delta.noDestinationAddressForDemuxMessage();
         total.noDestinationAddressForDemuxMessage();
+
+        markDeltaChanged();
     }
 
     public void noSourceAddressForDemuxMessage() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-
         delta.noSourceAddressForDemuxMessage();
         total.noSourceAddressForDemuxMessage();
+
+        markDeltaChanged();
     }
 
     public void discardedLoopbackDemuxMessage() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-	
         delta.discardedLoopbackDemuxMessage();
         total.discardedLoopbackDemuxMessage();
+
+        markDeltaChanged();
     }
 
     public void incomingMessageFilteredOut() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-	
         delta.incomingMessageFilteredOut();
         total.incomingMessageFilteredOut();
+
+        markDeltaChanged();
     }
 
     public void incomingMessageSentToEndpointListener() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-	
         delta.incomingMessageSentToEndpointListener();
         total.incomingMessageSentToEndpointListener();
+
+        markDeltaChanged();
     }
 
     public void demuxMessageProcessed() {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-	
         delta.demuxMessageProcessed();
         total.demuxMessageProcessed();
+
+        markDeltaChanged();
     }
 		
-    private void createDeltaMetric() {
-        delta = new EndpointMetric(total);
+    private EndpointMetric createDeltaMetric() {
+        return new EndpointMetric(total);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     @Override
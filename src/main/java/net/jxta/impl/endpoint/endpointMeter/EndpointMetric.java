@@ -63,6 +63,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *    Aggregate Metric for Endpoint Monitoring
@@ -70,15 +71,15 @@ import java.util.Enumeration;
 public class EndpointMetric implements DocumentSerializable {
     private long endpointStartTime;
     private long endpointUpTime;
-    private int invalidIncomingMessage;
-    private int noListenerForIncomingMessage;
-    private int errorProcessingIncomingMessage;
-    private int noDestinationAddressForDemuxMessage;
-    private int noSourceAddressForDemuxMessage;
-    private int discardedLoopbackDemuxMessage;
-    private int incomingMessageFilteredOut;
-    private int incomingMessageSentToEndpointListener;
-    private int demuxMessageProcessed;
+    private final LongAdder invalidIncomingMessage = new LongAdder();
+    private final LongAdder noListenerForIncomingMessage = new LongAdder();
+    private final LongAdder errorProcessingIncomingMessage = new LongAdder();
+    private final LongAdder noDestinationAddressForDemuxMessage = new LongAdder();
+    private final LongAdder noSourceAddressForDemuxMessage = new LongAdder();
+    private final LongAdder discardedLoopbackDemuxMessage = new LongAdder();
+    private final LongAdder incomingMessageFilteredOut = new LongAdder();
+    private final LongAdder incomingMessageSentToEndpointListener = new LongAdder();
+    private final LongAdder demuxMessageProcessed = new LongAdder();
 	
     public EndpointMetric() { 
         endpointStartTime = System.currentTimeMillis();
@@ -89,39 +90,39 @@ public class EndpointMetric implements DocumentSerializable {
     }
 	
     void invalidIncomingMessage() {
-        invalidIncomingMessage++;
+        invalidIncomingMessage.increment();
     }
 
     void noListenerForIncomingMessage() {
-        noListenerForIncomingMessage++;
+        noListenerForIncomingMessage.increment();
     }
 
     void errorProcessingIncomingMessage() {
-        errorProcessingIncomingMessage++;
+        errorProcessingIncomingMessage.increment();
     }
 
     void noDestinationAddressForDemuxMessage() {
-        noDestinationAddressForDemuxMessage++;
+        noDestinationAddressForDemuxMessage.increment();
     }
 
     void noSourceAddressForDemuxMessage() {
-        noSourceAddressForDemuxMessage++;
+        noSourceAddressForDemuxMessage.increment();
     }
 
     void discardedLoopbackDemuxMessage() {
-        discardedLoopbackDemuxMessage++;
+        discardedLoopbackDemuxMessage.increment();
     }
 
     void incomingMessageFilteredOut() {
-        incomingMessageFilteredOut++;
+        incomingMessageFilteredOut.increment();
     }
 
     void incomingMessageSentToEndpointListener() {
-        incomingMessageSentToEndpointListener++;
+        incomingMessageSentToEndpointListener.increment();
     }
 
     void demuxMessageProcessed() {
-        demuxMessageProcessed++;
+        demuxMessageProcessed.increment();
     }
 
     void setEndpointUpTime(long endpointUpTime) {
@@ -140,47 +141,47 @@ public class EndpointMetric implements DocumentSerializable {
 
     /** The number of messages received that had invalid formats **/
     public int getInvalidIncomingMessage() {
-        return invalidIncomingMessage;
+        return (int) invalidIncomingMessage.sum();
     }
 
     /** The number of messages received that had no listeners **/
     public int getNoListenerForIncomingMessage() {
-        return noListenerForIncomingMessage;
+        return (int) noListenerForIncomingMessage.sum();
     }
 
     /** The number of messages whose local listeners threw exceptions **/
     public int getErrorProcessingIncomingMessage() {
-        return errorProcessingIncomingMessage;
+        return (int) errorProcessingIncomingMessage.sum();
     }
 
     /** The number of messages that couldn't be demuxed because there was no destination address **/
     public int getNoDestinationAddressForDemuxMessage() {
-        return noDestinationAddressForDemuxMessage;
+        return (int) noDestinationAddressForDemuxMessage.sum();
     }
 
     /** The number of messages that couldn't be demuxed because there was no source address **/
     public int getNoSourceAddressForDemuxMessage() {
-        return noSourceAddressForDemuxMessage;
+        return (int) noSourceAddressForDemuxMessage.sum();
     }
 
     /** The number of messages that were discarded because of loopback detection **/
     public int getDiscardedLoopbackDemuxMessage() {
-        return discardedLoopbackDemuxMessage;
+        return (int) discardedLoopbackDemuxMessage.sum();
     }
 
     /** The number of messages that were discarded because of filtering **/
     public int getIncomingMessageFilteredOut() {
-        return incomingMessageFilteredOut;
+        return (int) incomingMessageFilteredOut.sum();
     }
 
     /** The number of messages that sent to registered listeners **/
     public int getIncomingMessageSentToEndpointListener() {
-        return incomingMessageSentToEndpointListener;
+        return (int) incomingMessageSentToEndpointListener.sum();
     }
 
     /** The number of messages that were processed through demux **/
     public int getDemuxMessageProcessed() {
-        return demuxMessageProcessed;
+        return (int) demuxMessageProcessed.sum();
     }
 		
     public void serializeTo(Element element) throws DocumentSerializationException {
@@ -190,36 +191,36 @@ public class EndpointMetric implements DocumentSerializable {
         if (endpointUpTime != 0) {
             DocumentSerializableUtilities.addLong(element, "endpointUpTime", endpointUpTime);
         }
-        if (invalidIncomingMessage != 0) {
-            DocumentSerializableUtilities.addInt(element, "invalidIncomingMessage", invalidIncomingMessage);
+        if (invalidIncomingMessage.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "invalidIncomingMessage", (int) invalidIncomingMessage.sum());
         }
-        if (noListenerForIncomingMessage != 0) {
-            DocumentSerializableUtilities.addInt(element, "noListenerForIncomingMessage", noListenerForIncomingMessage);
+        if (noListenerForIncomingMessage.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "noListenerForIncomingMessage", (int) noListenerForIncomingMessage.sum());
         }
-        if (errorProcessingIncomingMessage != 0) { 	
-            DocumentSerializableUtilities.addInt(element, "errorProcessingIncomingMessage", errorProcessingIncomingMessage);
+        if (errorProcessingIncomingMessage.sum() != 0) { 	
+            DocumentSerializableUtilities.addInt(element, "errorProcessingIncomingMessage", (int) errorProcessingIncomingMessage.sum());
         }
-        if (noDestinationAddressForDemuxMessage != 0) {
+        if (noDestinationAddressForDemuxMessage.sum() != 0) {
             DocumentSerializableUtilities.addInt(element, "noDestinationAddressForDemuxMessage"
                     ,
-                    noDestinationAddressForDemuxMessage);
+                    (int) noDestinationAddressForDemuxMessage.sum());
         }
-        if (noSourceAddressForDemuxMessage != 0) {
-            DocumentSerializableUtilities.addInt(element, "noSourceAddressForDemuxMessage", noSourceAddressForDemuxMessage);
+        if (noSourceAddressForDemuxMessage.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "noSourceAddressForDemuxMessage", (int) noSourceAddressForDemuxMessage.sum());
         }
-        if (discardedLoopbackDemuxMessage != 0) {
-            DocumentSerializableUtilities.addInt(element, "discardedLoopbackDemuxMessage", discardedLoopbackDemuxMessage);
+        if (discardedLoopbackDemuxMessage.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "discardedLoopbackDemuxMessage", (int) discardedLoopbackDemuxMessage.sum());
         }
-        if (incomingMessageFilteredOut != 0) {
-            DocumentSerializableUtilities.addInt(element, "incomingMessageFilteredOut", incomingMessageFilteredOut);
+        if (incomingMessageFilteredOut.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "incomingMessageFilteredOut", (int) incomingMessageFilteredOut.sum());
         }
-        if (incomingMessageSentToEndpointListener != 0) {
+        if (incomingMessageSentToEndpointListener.sum() != 0) {
             DocumentSerializableUtilities.addInt(element, "incomingMessageSentToEndpointListener"
                     ,
-                    incomingMessageSentToEndpointListener);
+                    (int) incomingMessageSentToEndpointListener.sum());
         }
-        if (demuxMessageProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "demuxMessageProcessed", demuxMessageProcessed);
+        if (demuxMessageProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "demuxMessageProcessed", (int) demuxMessageProcessed.sum());
         }
     }
 
@@ -235,25 +236,25 @@ public class EndpointMetric implements DocumentSerializable {
                 endpointUpTime = DocumentSerializableUtilities.getLong(childElement);
             }
             if (tagName.equals("invalidIncomingMessage")) {
-                invalidIncomingMessage = DocumentSerializableUtilities.getInt(childElement);
+                invalidIncomingMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("noListenerForIncomingMessage")) {
-                noListenerForIncomingMessage = DocumentSerializableUtilities.getInt(childElement);
+                noListenerForIncomingMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("errorProcessingIncomingMessage")) {
-                errorProcessingIncomingMessage = DocumentSerializableUtilities.getInt(childElement);
+                errorProcessingIncomingMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("noDestinationAddressForDemuxMessage")) {
-                noDestinationAddressForDemuxMessage = DocumentSerializableUtilities.getInt(childElement);
+                noDestinationAddressForDemuxMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("noSourceAddressForDemuxMessage")) {
-                noSourceAddressForDemuxMessage = DocumentSerializableUtilities.getInt(childElement);
+                noSourceAddressForDemuxMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("invalidIncomingMessage")) {
-                invalidIncomingMessage = DocumentSerializableUtilities.getInt(childElement);
+                invalidIncomingMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("discardedLoopbackDemuxMessage")) {
-                discardedLoopbackDemuxMessage = DocumentSerializableUtilities.getInt(childElement);
+                discardedLoopbackDemuxMessage.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("incomingMessageFilteredOut")) {
-                incomingMessageFilteredOut = DocumentSerializableUtilities.getInt(childElement);
+                incomingMessageFilteredOut.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("incomingMessageSentToEndpointListener")) {
-                incomingMessageSentToEndpointListener = DocumentSerializableUtilities.getInt(childElement);
+                incomingMessageSentToEndpointListener.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("demuxMessageProcessed")) {
-                demuxMessageProcessed = DocumentSerializableUtilities.getInt(childElement);
+                demuxMessageProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
 
@@ -270,13 +271,36 @@ public class EndpointMetric implements DocumentSerializable {
             endpointUpTime = other.endpointUpTime;
         }
 			
-        invalidIncomingMessage += other.invalidIncomingMessage;
-        noListenerForIncomingMessage += other.noListenerForIncomingMessage;
-        errorProcessingIncomingMessage += other.errorProcessingIncomingMessage;
-        noDestinationAddressForDemuxMessage += other.noDestinationAddressForDemuxMessage;
-        noSourceAddressForDemuxMessage += other.noSourceAddressForDemuxMessage;
-        discardedLoopbackDemuxMessage += other.discardedLoopbackDemuxMessage;
-        incomingMessageSentToEndpointListener += other.incomingMessageSentToEndpointListener;
-        demuxMessageProcessed += other.demuxMessageProcessed;		
+        invalidIncomingMessage.add(other.invalidIncomingMessage.sum());
+        noListenerForIncomingMessage.add(other.noListenerForIncomingMessage.sum());
+        errorProcessingIncomingMessage.add(other.errorProcessingIncomingMessage.sum());
+        noDestinationAddressForDemuxMessage.add(other.noDestinationAddressForDemuxMessage.sum());
+        noSourceAddressForDemuxMessage.add(other.noSourceAddressForDemuxMessage.sum());
+        discardedLoopbackDemuxMessage.add(other.discardedLoopbackDemuxMessage.sum());
+        incomingMessageSentToEndpointListener.add(other.incomingMessageSentToEndpointListener.sum());
+        demuxMessageProcessed.add(other.demuxMessageProcessed.sum());		
+    }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(EndpointMetric other) {
+        endpointStartTime = other.endpointStartTime;
+
+        if (other.endpointUpTime != 0) {
+            endpointUpTime = other.endpointUpTime;
+        }
+
+        invalidIncomingMessage.add(other.invalidIncomingMessage.sumThenReset());
+        noListenerForIncomingMessage.add(other.noListenerForIncomingMessage.sumThenReset());
+        errorProcessingIncomingMessage.add(other.errorProcessingIncomingMessage.sumThenReset());
+        noDestinationAddressForDemuxMessage.add(other.noDestinationAddressForDemuxMessage.sumThenReset());
+        noSourceAddressForDemuxMessage.add(other.noSourceAddressForDemuxMessage.sumThenReset());
+        discardedLoopbackDemuxMessage.add(other.discardedLoopbackDemuxMessage.sumThenReset());
+        incomingMessageFilteredOut.add(other.incomingMessageFilteredOut.sumThenReset());
+        incomingMessageSentToEndpointListener.add(other.incomingMessageSentToEndpointListener.sumThenReset());
+        demuxMessageProcessed.add(other.demuxMessageProcessed.sumThenReset());
     }
 }
@@ -66,52 +66,53 @@ public class InboundMeter {
     private String serviceParameter;
 	
     private InboundMetric totals;
-    private InboundMetric delta;
+    private final InboundMetric delta;
+    private volatile boolean deltaChanged = false;
 
     public InboundMeter(String serviceName, String serviceParameter) {
         this.serviceName = serviceName;
         this.serviceParameter = serviceParameter;
         this.totals = new InboundMetric(this);
+        delta = createDeltaMetric();
     }
 
-    private void createDeltaMetric() {
-        delta = new InboundMetric(this);
+    private InboundMetric createDeltaMetric() {
+        return new InboundMetric(this);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }	
 	
     public void inboundMessageQueued(Message message) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.inboundMessageQueued(message);
         totals.inboundMessageQueued(message);
+
+        markDeltaChanged();
     }
 
     public void inboundMessageDropped(Message message, long time) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.inboundMessageDropped(message, time);
         totals.inboundMessageDropped(message, time);
+
+        markDeltaChanged();
     }
 
     public void inboundMessageDeQueued(Message message, long time) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.inboundMessageDeQueued(message, time);
         totals.inboundMessageDeQueued(message, time);
+
+        markDeltaChanged();
     }
 
     public void inboundMessageProcessed(Message message, long time) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.inboundMessageProcessed(message, time);
         totals.inboundMessageProcessed(message, time);
+
+        markDeltaChanged();
     }
 
     String getServiceName() {
@@ -132,10 +133,16 @@ public class InboundMeter {
     }
 
     public synchronized InboundMetric collectMetrics() {
-        InboundMetric prevDelta = delta;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        InboundMetric collected = createDeltaMetric();
 
-        delta = null;
-        return prevDelta;
+        collected.drainMetrics(delta);
+        return collected;
     }
 	
     /* Fix-Me: delete after next build.. unused
@@ -64,6 +64,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *    Meter corresponding to inbound queue for registered EndpointListeners ServiceName/ServiceParam pair
@@ -74,13 +75,13 @@ public class InboundMetric implements DocumentSerializable {
 
     private String serviceIdString; // internally used to speed up Hashing
 
-    private int numInboundQueued;
-    private int numInboundDropped;
-    private long timeToDropInbound;
-    private int numInboundDeQueued;
-    private long timeInInboundQueue;
-    private int numInboundProcessed;
-    private long timeToProcessInbound;
+    private final LongAdder numInboundQueued = new LongAdder();
+    private final LongAdder numInboundDropped = new LongAdder();
+    private final LongAdder timeToDropInbound = new LongAdder();
+    private final LongAdder numInboundDeQueued = new LongAdder();
+    private final LongAdder timeInInboundQueue = new LongAdder();
+    private final LongAdder numInboundProcessed = new LongAdder();
+    private final LongAdder timeToProcessInbound = new LongAdder();
 
     public InboundMetric(InboundMeter inboundMeter) {
         this.serviceName = inboundMeter.getServiceName();
@@ -110,51 +111,51 @@ public class InboundMetric implements DocumentSerializable {
 	
     /** The Number of Inbound Messages Queued **/
     public int getNumInboundQueued() {
-        return numInboundQueued;
+        return (int) numInboundQueued.sum();
     }
 
     /** The Number of Inbound Messages Dropped **/
     public int getNumInboundDropped() {
-        return numInboundDropped;
+        return (int) numInboundDropped.sum();
     }
 
     /** The Sum of time for all dropped messages from queue **/
     public long getTimeToDropInbound() {
-        return timeToDropInbound;
+        return timeToDropInbound.sum();
     }
 
     /** The Number of Inbound Messages Dequeued **/
     public int getNumInboundDeQueued() {
-        return numInboundDeQueued;
+        return (int) numInboundDeQueued.sum();
     }
 
     /** The Sum of time in queue for messages in queue **/
     public long getTimeInInboundQueue() {
-        return timeInInboundQueue;
+        return timeInInboundQueue.sum();
     }
 
     public int getNumInboundProcessed() {
-        return numInboundProcessed;
+        return (int) numInboundProcessed.sum();
     }
 
     /** The Sum of time for local listeners to process messages **/
     public long getTimeToProcessInbound() {
-        return timeToProcessInbound;
+        return timeToProcessInbound.sum();
     }
 	
     /** The Average of time in queue for messages **/
     public long getAverageTimeInInboundQueue() {
-        return  (numInboundDeQueued == 0) ? 0 : (timeInInboundQueue / numInboundDeQueued);
+        return  (numInboundDeQueued.sum() == 0) ? 0 : (timeInInboundQueue.sum() / numInboundDeQueued.sum());
     }
 
     /** The Average of time in queue for dropped messages **/
     public long getAverageInboundDropTime() {
-        return   (numInboundDropped == 0) ? 0 : (timeToDropInbound / numInboundDropped);
+        return   (numInboundDropped.sum() == 0) ? 0 : (timeToDropInbound.sum() / numInboundDropped.sum());
     }
 
     /** The Average clock time for local listeners to process messages **/
     public long getAverageInboundProcessTime() {
-        return  (numInboundProcessed == 0) ? 0 : (timeToProcessInbound / numInboundProcessed);
+        return  (numInboundProcessed.sum() == 0) ? 0 : (timeToProcessInbound.sum() / numInboundProcessed.sum());
     }
 
     @Override
@@ -186,65 +187,80 @@ public class InboundMetric implements DocumentSerializable {
     }
 	
     void inboundMessageQueued(Message message) {
-        numInboundQueued++;
+        numInboundQueued.increment();
     }
 
     void inboundMessageDropped(Message message, long time) {
-        numInboundDropped++;
-        timeToDropInbound += time;
+        numInboundDropped.increment();
+        timeToDropInbound.add(time);
     }
 
     void inboundMessageDeQueued(Message message, long time) {
-        numInboundDeQueued++;
-        timeInInboundQueue += time;
+        numInboundDeQueued.increment();
+        timeInInboundQueue.add(time);
     }
 
     void inboundMessageProcessed(Message message, long time) {
-        numInboundProcessed++;
-        timeToProcessInbound += time;
+        numInboundProcessed.increment();
+        timeToProcessInbound.add(time);
     }
 	
     public void mergeMetrics(InboundMetric other) {
-        numInboundQueued += other.numInboundQueued;
-        numInboundDropped += other.numInboundDropped;
-        timeToDropInbound += other.timeToDropInbound;
-        numInboundDeQueued += other.numInboundDeQueued;
-        timeInInboundQueue += other.timeInInboundQueue;
-        numInboundProcessed += other.numInboundProcessed;
-        timeToProcessInbound += other.timeToProcessInbound;
+        numInboundQueued.add(other.numInboundQueued.sum());
+        numInboundDropped.add(other.numInboundDropped.sum());
+        timeToDropInbound.add(other.timeToDropInbound.sum());
+        numInboundDeQueued.add(other.numInboundDeQueued.sum());
+        timeInInboundQueue.add(other.timeInInboundQueue.sum());
+        numInboundProcessed.add(other.numInboundProcessed.sum());
+        timeToProcessInbound.add(other.timeToProcessInbound.sum());
     }	
 
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(InboundMetric other) {
+        numInboundQueued.add(other.numInboundQueued.sumThenReset());
+        numInboundDropped.add(other.numInboundDropped.sumThenReset());
+        timeToDropInbound.add(other.timeToDropInbound.sumThenReset());
+        numInboundDeQueued.add(other.numInboundDeQueued.sumThenReset());
+        timeInInboundQueue.add(other.timeInInboundQueue.sumThenReset());
+        numInboundProcessed.add(other.numInboundProcessed.sumThenReset());
+        timeToProcessInbound.add(other.timeToProcessInbound.sumThenReset());
+    }
+
     public void serializeTo(Element element) throws DocumentSerializationException {
 
         DocumentSerializableUtilities.addString(element, "serviceName", serviceName);
         DocumentSerializableUtilities.addString(element, "serviceParam", serviceParameter);
 
-        if (numInboundQueued != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInboundQueued", numInboundQueued);
+        if (numInboundQueued.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInboundQueued", (int) numInboundQueued.sum());
         }
 		
-        if (numInboundDropped != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInboundDropped", numInboundDropped);
+        if (numInboundDropped.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInboundDropped", (int) numInboundDropped.sum());
         }
 		
-        if (timeToDropInbound != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeToDropInbound", timeToDropInbound);
+        if (timeToDropInbound.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeToDropInbound", timeToDropInbound.sum());
         }
 		
-        if (numInboundDeQueued != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInboundDeQueued", numInboundDeQueued);
+        if (numInboundDeQueued.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInboundDeQueued", (int) numInboundDeQueued.sum());
         }
 		
-        if (timeInInboundQueue != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeInInboundQueue", timeInInboundQueue);
+        if (timeInInboundQueue.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeInInboundQueue", timeInInboundQueue.sum());
         }
 		
-        if (numInboundProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInboundProcessed", numInboundProcessed);
+        if (numInboundProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInboundProcessed", (int) numInboundProcessed.sum());
         }
 		
-        if (timeToProcessInbound != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeToProcessInbound", timeToProcessInbound);
+        if (timeToProcessInbound.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeToProcessInbound", timeToProcessInbound.sum());
         }
     }
 
@@ -258,19 +274,19 @@ public class InboundMetric implements DocumentSerializable {
             } else if (tagName.equals("serviceParam")) { 
                 serviceParameter = DocumentSerializableUtilities.getString(childElement);
             } else if (tagName.equals("numInboundQueued")) {
-                numInboundQueued = DocumentSerializableUtilities.getInt(childElement);
+                numInboundQueued.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numInboundDropped")) {
-                numInboundDropped = DocumentSerializableUtilities.getInt(childElement);
+                numInboundDropped.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeToDropInbound")) {
-                timeToDropInbound = DocumentSerializableUtilities.getLong(childElement);
+                timeToDropInbound.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numInboundDeQueued")) {
-                numInboundDeQueued = DocumentSerializableUtilities.getInt(childElement);
+                numInboundDeQueued.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeInInboundQueue")) {
-                timeInInboundQueue = DocumentSerializableUtilities.getLong(childElement);
+                timeInInboundQueue.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numInboundProcessed")) {
-                numInboundProcessed = DocumentSerializableUtilities.getInt(childElement);
+                numInboundProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeToProcessInbound")) {
-                timeToProcessInbound = DocumentSerializableUtilities.getLong(childElement);
+                timeToProcessInbound.add(DocumentSerializableUtilities.getLong(childElement));
             }
         }
 
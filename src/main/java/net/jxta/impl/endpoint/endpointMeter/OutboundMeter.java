@@ -66,60 +66,59 @@ public class OutboundMeter {
     private EndpointAddress endpointAddress;
 	
     private OutboundMetric totals;
-    private OutboundMetric delta;
+    private final OutboundMetric delta;
+    private volatile boolean deltaChanged = false;
 
     public OutboundMeter(EndpointAddress endpointAddress) {
         this.endpointAddress = endpointAddress;
         totals = new OutboundMetric(this);
+        delta = createDeltaMetric();
     }
 
-    private void createDeltaMetric() {
-        delta = new OutboundMetric(this);
+    private OutboundMetric createDeltaMetric() {
+        return new OutboundMetric(this);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }	
 	
     public void outboundMessageQueued(Message message) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.outboundMessageQueued(message);
         totals.outboundMessageQueued(message);
+
+        markDeltaChanged();
     }
 
     public void outboundMessageDropped(Message message, long time) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.outboundMessageDropped(message, time);
         totals.outboundMessageDropped(message, time);
+
+        markDeltaChanged();
     }
 
     public void outboundMessageFailed(Message message, long time) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.outboundMessageFailed(message, time);
         totals.outboundMessageFailed(message, time);
+
+        markDeltaChanged();
     }
 
     public void outboundMessageDeQueued(Message message, long time) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.outboundMessageDeQueued(message, time);
         totals.outboundMessageDeQueued(message, time);
+
+        markDeltaChanged();
     }
 
     public void outboundMessageProcessed(Message message, long time) {	
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.outboundMessageProcessed(message, time);
         totals.outboundMessageProcessed(message, time);
+
+        markDeltaChanged();
     }
 
     EndpointAddress getEndpointAddress() {
@@ -136,9 +135,15 @@ public class OutboundMeter {
     }
 
     public synchronized OutboundMetric collectMetrics() {
-        OutboundMetric prevDelta = delta;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        OutboundMetric collected = createDeltaMetric();
 
-        delta = null;
-        return prevDelta;
+        collected.drainMetrics(delta);
+        return collected;
     }
 }
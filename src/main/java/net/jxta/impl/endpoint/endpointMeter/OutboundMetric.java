@@ -65,6 +65,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *    Metric corresponding to a message queue to for outbound messengers based upon an endpoint address
@@ -72,15 +73,15 @@ import java.util.Enumeration;
 public class OutboundMetric implements DocumentSerializable {
     private EndpointAddress endpointAddress;
 
-    private int numOutboundQueued;
-    private int numOutboundDropped;
-    private long timeToDropOutbound;
-    private int numOutboundDeQueued;
-    private long timeInOutboundQueue;
-    private int numOutboundProcessed;
-    private long timeToProcessOutbound;
-    private int numOutboundFailed;
-    private long timeOutboundToFail;
+    private final LongAdder numOutboundQueued = new LongAdder();
+    private final LongAdder numOutboundDropped = new LongAdder();
+    private final LongAdder timeToDropOutbound = new LongAdder();
+    private final LongAdder numOutboundDeQueued = new LongAdder();
+    private final LongAdder timeInOutboundQueue = new LongAdder();
+    private final LongAdder numOutboundProcessed = new LongAdder();
+    private final LongAdder timeToProcessOutbound = new LongAdder();
+    private final LongAdder numOutboundFailed = new LongAdder();
+    private final LongAdder timeOutboundToFail = new LongAdder();
 
     public OutboundMetric(OutboundMeter outboundMeter) {
         this.endpointAddress = outboundMeter.getEndpointAddress();
@@ -99,62 +100,62 @@ public class OutboundMetric implements DocumentSerializable {
 	
     /** The Number of Outbound Messages Queued **/
     public int getNumOutboundQueued() {
-        return numOutboundQueued;
+        return (int) numOutboundQueued.sum();
     }
 
     /** The Number of Outbound Messages Dropped from Queue **/
     public int getNumOutboundDropped() {
-        return numOutboundDropped;
+        return (int) numOutboundDropped.sum();
     }
 
     /** The Sum of the times in queue for all dropped messages  **/
     public long getTimeToDropOutbound() {
-        return timeToDropOutbound;
+        return timeToDropOutbound.sum();
     }
 
     /** The Number of Outbound Messages DeQueued **/
     public int getNumOutboundDeQueued() {
-        return numOutboundDeQueued;
+        return (int) numOutboundDeQueued.sum();
     }
 
     /** The Sum of the times in queue for all messages  **/
     public long getTimeInOutboundQueue() {
-        return timeInOutboundQueue;
+        return timeInOutboundQueue.sum();
     }
 
     /** The Number of Outbound Messages Processed Successfully **/
     public int getNumOutboundProcessed() {
-        return numOutboundProcessed;
+        return (int) numOutboundProcessed.sum();
     }
 
     /** The Sum of the times from sending to handling by messenger **/
     public long getTimeToProcessOutbound() {
-        return timeToProcessOutbound;
+        return timeToProcessOutbound.sum();
     }
 
     /** The Number of Outbound Messages Failed in sending **/
     public int getNumOutboundFailed() {
-        return numOutboundFailed;
+        return (int) numOutboundFailed.sum();
     }
 
     /** The Sum of the times in queue for all failed messages  **/
     public long getTimeOutboundToFail() {
-        return timeOutboundToFail;
+        return timeOutboundToFail.sum();
     }
 
     /** The Average of the times in queue for all messages  **/
     public long getAverageTimeInOutboundQueue() {
-        return  (numOutboundDeQueued == 0) ? 0 : (timeInOutboundQueue / numOutboundDeQueued);
+        return  (numOutboundDeQueued.sum() == 0) ? 0 : (timeInOutboundQueue.sum() / numOutboundDeQueued.sum());
     }
 
     /** The Average of the times in queue for all dropped messages  **/
     public long getAverageOutboundDropTime() {
-        return  (numOutboundDropped == 0) ? 0 : (timeToDropOutbound / numOutboundDropped);
+        return  (numOutboundDropped.sum() == 0) ? 0 : (timeToDropOutbound.sum() / numOutboundDropped.sum());
     }
 
     /** The Average of the times from sending to handling by messenger **/
     public long getAverageOutboundProcessTime() {
-        return  (numOutboundProcessed == 0) ? 0 : (timeToProcessOutbound / numOutboundProcessed);
+        return  (numOutboundProcessed.sum() == 0) ? 0 : (timeToProcessOutbound.sum() / numOutboundProcessed.sum());
     }
 	
     @Override
@@ -179,80 +180,97 @@ public class OutboundMetric implements DocumentSerializable {
     }	
 
     void outboundMessageQueued(Message message) {
-        numOutboundQueued++;
+        numOutboundQueued.increment();
     }
 
     void outboundMessageDropped(Message message, long time) {
-        numOutboundDropped++;
-        timeToDropOutbound += time;
+        numOutboundDropped.increment();
+        timeToDropOutbound.add(time);
     }
 
     void outboundMessageFailed(Message message, long time) {
-        numOutboundFailed++;
-        timeOutboundToFail += time;
+        numOutboundFailed.increment();
+        timeOutboundToFail.add(time);
     }
 
     void outboundMessageDeQueued(Message message, long time) {
-        numOutboundDeQueued++;
-        timeInOutboundQueue += time;
+        numOutboundDeQueued.increment();
+        timeInOutboundQueue.add(time);
     }
 
     void outboundMessageProcessed(Message message, long time) {	
-        numOutboundProcessed++;
-        timeToProcessOutbound += time;
+        numOutboundProcessed.increment();
+        timeToProcessOutbound.add(time);
     }
 
     public void mergeMetrics(OutboundMetric other) {
 	
-        numOutboundQueued += other.numOutboundQueued;
-        numOutboundDropped += other.numOutboundDropped;
-        timeToDropOutbound += other.timeToDropOutbound;
-        numOutboundDeQueued += other.numOutboundDeQueued;
-        timeInOutboundQueue += other.timeInOutboundQueue;
-        numOutboundProcessed += other.numOutboundProcessed;
-        timeToProcessOutbound += other.timeToProcessOutbound;
-        numOutboundFailed += other.numOutboundFailed;
-        timeOutboundToFail += other.timeOutboundToFail;
+        numOutboundQueued.add(other.numOutboundQueued.sum());
+        numOutboundDropped.add(other.numOutboundDropped.sum());
+        timeToDropOutbound.add(other.timeToDropOutbound.sum());
+        numOutboundDeQueued.add(other.numOutboundDeQueued.sum());
+        timeInOutboundQueue.add(other.timeInOutboundQueue.sum());
+        numOutboundProcessed.add(other.numOutboundProcessed.sum());
+        timeToProcessOutbound.add(other.timeToProcessOutbound.sum());
+        numOutboundFailed.add(other.numOutboundFailed.sum());
+        timeOutboundToFail.add(other.timeOutboundToFail.sum());
     }	
 
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(OutboundMetric other) {
+        numOutboundQueued.add(other.numOutboundQueued.sumThenReset());
+        numOutboundDropped.add(other.numOutboundDropped.sumThenReset());
+        timeToDropOutbound.add(other.timeToDropOutbound.sumThenReset());
+        numOutboundDeQueued.add(other.numOutboundDeQueued.sumThenReset());
+        timeInOutboundQueue.add(other.timeInOutboundQueue.sumThenReset());
+        numOutboundProcessed.add(other.numOutboundProcessed.sumThenReset());
+        timeToProcessOutbound.add(other.timeToProcessOutbound.sumThenReset());
+        numOutboundFailed.add(other.numOutboundFailed.sumThenReset());
+        timeOutboundToFail.add(other.timeOutboundToFail.sumThenReset());
+    }
+
     public void serializeTo(Element element) throws DocumentSerializationException {
 
         DocumentSerializableUtilities.addString(element, "endpointAddress", endpointAddress.toString());
 
-        if (numOutboundQueued != 0) {
-            DocumentSerializableUtilities.addInt(element, "numOutboundQueued", numOutboundQueued);
+        if (numOutboundQueued.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numOutboundQueued", (int) numOutboundQueued.sum());
         }
 				
-        if (numOutboundDropped != 0) {
-            DocumentSerializableUtilities.addInt(element, "numOutboundDropped", numOutboundDropped);
+        if (numOutboundDropped.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numOutboundDropped", (int) numOutboundDropped.sum());
         }
 
-        if (timeToDropOutbound != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeToDropOutbound", timeToDropOutbound);
+        if (timeToDropOutbound.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeToDropOutbound", timeToDropOutbound.sum());
         }
 		
-        if (numOutboundDeQueued != 0) {
-            DocumentSerializableUtilities.addInt(element, "numOutboundDeQueued", numOutboundDeQueued);
+        if (numOutboundDeQueued.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numOutboundDeQueued", (int) numOutboundDeQueued.sum());
         }
 		
-        if (timeInOutboundQueue != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeInOutboundQueue", timeInOutboundQueue);
+        if (timeInOutboundQueue.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeInOutboundQueue", timeInOutboundQueue.sum());
         }
 		
-        if (numOutboundProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "numOutboundProcessed", numOutboundProcessed);
+        if (numOutboundProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numOutboundProcessed", (int) numOutboundProcessed.sum());
         }
 				
-        if (timeToProcessOutbound != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeToProcessOutbound", timeToProcessOutbound);
+        if (timeToProcessOutbound.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeToProcessOutbound", timeToProcessOutbound.sum());
         }
 		
-        if (numOutboundFailed != 0) {
-            DocumentSerializableUtilities.addInt(element, "numOutboundFailed", numOutboundFailed);
+        if (numOutboundFailed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numOutboundFailed", (int) numOutboundFailed.sum());
         }
 
-        if (timeOutboundToFail != 0) {
-            DocumentSerializableUtilities.addLong(element, "timeOutboundToFail", timeOutboundToFail);
+        if (timeOutboundToFail.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "timeOutboundToFail", timeOutboundToFail.sum());
         }
 				
     }
@@ -267,23 +285,23 @@ public class OutboundMetric implements DocumentSerializable {
 
                 endpointAddress = new EndpointAddress(endpointAddressString);
             } else if (tagName.equals("numOutboundQueued")) {
-                numOutboundQueued = DocumentSerializableUtilities.getInt(childElement);
+                numOutboundQueued.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numOutboundDropped")) {
-                numOutboundDropped = DocumentSerializableUtilities.getInt(childElement);
+                numOutboundDropped.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeToDropOutbound")) {
-                timeToDropOutbound = DocumentSerializableUtilities.getLong(childElement);
+                timeToDropOutbound.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numOutboundDeQueued")) {
-                numOutboundDeQueued = DocumentSerializableUtilities.getInt(childElement);
+                numOutboundDeQueued.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeInOutboundQueue")) {
-                timeInOutboundQueue = DocumentSerializableUtilities.getLong(childElement);
+                timeInOutboundQueue.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numOutboundProcessed")) {
-                numOutboundProcessed = DocumentSerializableUtilities.getInt(childElement);
+                numOutboundProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeToProcessOutbound")) {
-                timeToProcessOutbound = DocumentSerializableUtilities.getLong(childElement);
+                timeToProcessOutbound.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numOutboundFailed")) {
-                numOutboundFailed = DocumentSerializableUtilities.getInt(childElement);
+                numOutboundFailed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("timeOutboundToFail")) {
-                timeOutboundToFail = DocumentSerializableUtilities.getLong(childElement);
+                timeOutboundToFail.add(DocumentSerializableUtilities.getLong(childElement));
             }
         }
     }
@@ -64,25 +64,32 @@ public class PropagationMeter {
     private String serviceParameter;
 	
     private PropagationMetric totals;
-    private PropagationMetric delta;
+    private final PropagationMetric delta;
+    private volatile boolean deltaChanged = false;
 
     public PropagationMeter(String serviceName, String serviceParameter) {
         this.serviceName = serviceName;
         this.serviceParameter = serviceParameter;
         this.totals = new PropagationMetric(this);
+        delta = createDeltaMetric();
     }
 
-    private void createDeltaMetric() {
-        delta = new PropagationMetric(this);
+    private PropagationMetric createDeltaMetric() {
+        return new PropagationMetric(this);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }	
 	
     public void registerPropagateMessageStats(int numPropagatedTo, int numFilteredOut, int numErrorsPropagated, long propagationTime) {
-        if (delta == null) {	
-            createDeltaMetric();
-        }
-			
         delta.registerPropagateMessageStats(numPropagatedTo, numFilteredOut, numErrorsPropagated, propagationTime);
         totals.registerPropagateMessageStats(numPropagatedTo, numFilteredOut, numErrorsPropagated, propagationTime);
+
+        markDeltaChanged();
     }
 
     String getServiceName() {
@@ -103,10 +110,16 @@ public class PropagationMeter {
     }
 
     public synchronized PropagationMetric collectMetrics() {
-        PropagationMetric prevDelta = delta;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        PropagationMetric collected = createDeltaMetric();
 
-        delta = null;
-        return prevDelta;
+        collected.drainMetrics(delta);
+        return collected;
     }
 
     /* Fix-Me: delete after next build.. unused
@@ -63,6 +63,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *    Metric corresponding to a propagated messages 
@@ -73,11 +74,11 @@ public class PropagationMetric implements DocumentSerializable {
     private String serviceParameter = "";
 
     private String serviceIdString; // for Hashing
-    int numPropagations;
-    int numPropagatedTo;
-    int numFilteredOut;
-    int numErrorsPropagated;
-    long propagationTime;
+    final LongAdder numPropagations = new LongAdder();
+    final LongAdder numPropagatedTo = new LongAdder();
+    final LongAdder numFilteredOut = new LongAdder();
+    final LongAdder numErrorsPropagated = new LongAdder();
+    final LongAdder propagationTime = new LongAdder();
 
     public PropagationMetric() {
         serviceIdString = serviceName + serviceParameter;		
@@ -98,11 +99,11 @@ public class PropagationMetric implements DocumentSerializable {
     }
 
     void registerPropagateMessageStats(int numPropagatedTo, int numFilteredOut, int numErrorsPropagated, long propagationTime) {
-        this.numPropagations++;
-        this.numPropagatedTo += numPropagatedTo;
-        this.numFilteredOut += numFilteredOut;
-        this.numErrorsPropagated += numErrorsPropagated;
-        this.propagationTime += propagationTime;
+        this.numPropagations.increment();
+        this.numPropagatedTo.add(numPropagatedTo);
+        this.numFilteredOut.add(numFilteredOut);
+        this.numErrorsPropagated.add(numErrorsPropagated);
+        this.propagationTime.add(propagationTime);
     }
 
     /** The Endpoint address for this outbound message queue **/
@@ -117,38 +118,38 @@ public class PropagationMetric implements DocumentSerializable {
 
     /** The Number of Propagated Messages  **/
     public int getNumPropagations() {
-        return numPropagations;
+        return (int) numPropagations.sum();
     }
 
     /** Total number of transports messagess were propagated to  **/
     public int getNumPropagatedTo() {
-        return numPropagatedTo;
+        return (int) numPropagatedTo.sum();
     }
 
     /** The Number of Filtered out  Messages  **/
 
     /** The Average of number of Transports propagated To from propagation to transport **/
     public int getAverageNumTransports() {
-        return (numPropagatedTo == 0) ? 0 : (numPropagations / numPropagatedTo);
+        return (numPropagatedTo.sum() == 0) ? 0 : (int) (numPropagations.sum() / numPropagatedTo.sum());
     }
 
     public int getNumFilteredOut() {
-        return numFilteredOut;
+        return (int) numFilteredOut.sum();
     }
 
     /** The Number of Errors propagating Messages  **/
     public int getNumErrorsPropagated() {
-        return numErrorsPropagated;
+        return (int) numErrorsPropagated.sum();
     }
 
     /** The Sum of (clock) times from propagation to transport **/
     public long getPropagationTime() {
-        return propagationTime;
+        return propagationTime.sum();
     }
 
     /** The Average of (clock) times from propagation to transport **/
     public long getAveragePropagationTime() {
-        return (numPropagatedTo == 0) ? 0 : (propagationTime / numPropagatedTo);
+        return (numPropagatedTo.sum() == 0) ? 0 : (propagationTime.sum() / numPropagatedTo.sum());
     }
 
     @Override
@@ -184,35 +185,48 @@ public class PropagationMetric implements DocumentSerializable {
     }	
 
     public void mergeMetrics(PropagationMetric other) {
-        numPropagatedTo += other.numPropagatedTo;
-        numFilteredOut += other.numFilteredOut;
-        numErrorsPropagated += other.numErrorsPropagated;
-        propagationTime += other.propagationTime;
+        numPropagatedTo.add(other.numPropagatedTo.sum());
+        numFilteredOut.add(other.numFilteredOut.sum());
+        numErrorsPropagated.add(other.numErrorsPropagated.sum());
+        propagationTime.add(other.propagationTime.sum());
     }	
 
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(PropagationMetric other) {
+        numPropagations.add(other.numPropagations.sumThenReset());
+        numPropagatedTo.add(other.numPropagatedTo.sumThenReset());
+        numFilteredOut.add(other.numFilteredOut.sumThenReset());
+        numErrorsPropagated.add(other.numErrorsPropagated.sumThenReset());
+        propagationTime.add(other.propagationTime.sumThenReset());
+    }
+
     public void serializeTo(Element element) throws DocumentSerializationException {
 
         DocumentSerializableUtilities.addString(element, "serviceName", serviceName);
         DocumentSerializableUtilities.addString(element, "serviceParam", serviceParameter);
 
-        if (numPropagations != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagations", numPropagatedTo);
+        if (numPropagations.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagations", (int) numPropagatedTo.sum());
         }
 		
-        if (numPropagatedTo != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagatedTo", numPropagatedTo);
+        if (numPropagatedTo.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagatedTo", (int) numPropagatedTo.sum());
         }
 		
-        if (numFilteredOut != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFilteredOut", numFilteredOut);
+        if (numFilteredOut.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFilteredOut", (int) numFilteredOut.sum());
         }
 		
-        if (numErrorsPropagated != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsPropagated", numErrorsPropagated);
+        if (numErrorsPropagated.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsPropagated", (int) numErrorsPropagated.sum());
         }
 		
-        if (propagationTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "propagationTime", propagationTime);
+        if (propagationTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "propagationTime", propagationTime.sum());
         }
     }
 
@@ -226,15 +240,15 @@ public class PropagationMetric implements DocumentSerializable {
             } else if (tagName.equals("serviceParam")) { 
                 serviceParameter = DocumentSerializableUtilities.getString(childElement);
             } else if (tagName.equals("numPropagations")) {
-                numPropagations = DocumentSerializableUtilities.getInt(childElement);
+                numPropagations.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagatedTo")) {
-                numPropagatedTo = DocumentSerializableUtilities.getInt(childElement);
+                numPropagatedTo.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFilteredOut")) {
-                numFilteredOut = DocumentSerializableUtilities.getInt(childElement);
+                numFilteredOut.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("propagationTime")) {
-                propagationTime = DocumentSerializableUtilities.getLong(childElement);
+                propagationTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numErrorsPropagated")) {
-                numErrorsPropagated = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsPropagated.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
 
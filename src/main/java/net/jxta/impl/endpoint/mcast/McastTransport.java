@@ -85,6 +85,7 @@ import net.jxta.logging.Logging;
 import net.jxta.meter.MonitorResources;
 import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
 import net.jxta.platform.ModuleClassID;
 import net.jxta.platform.ModuleSpecID;
@@ -95,18 +96,33 @@ import net.jxta.protocol.TransportAdvertisement;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.net.DatagramPacket;
+import java.io.OutputStream;
+import java.net.Inet6Address;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -118,19 +134,34 @@ import net.jxta.impl.protocol.MulticastAdv;
  * <b>Important Note:</b> This implementation was formerly a portion of the TCP
  * Message Transport and currently uses the TCP Transport's configuration
  * advertisement.
+ * <p/>
+ * Datagrams are sent and received through a {@code DatagramChannel} using a
+ * small pool of recycled buffers, so receiving does not allocate a new buffer
+ * for every packet. When the {@code net.jxta.impl.endpoint.mcast.McastTransport.batchDelay}
+ * system property is set to a positive number of milliseconds, propagated
+ * messages which fit are batched into a single datagram and sent when the
+ * datagram fills up or the delay expires. Receivers always accept datagrams
+ * which contain several framed messages.
  *
  * @see net.jxta.endpoint.MessageTransport
  * @see net.jxta.endpoint.MessagePropagater
  * @see net.jxta.endpoint.EndpointService
  * @see <a href="http://spec.jxta.org/v1.0/docbook/JXTAProtocols.html#trans-tcpipt">JXTA Protocols Specification : Standard JXTA Transport Bindings</a>
  */
-public class McastTransport implements Runnable, Module, MessagePropagater {
+public class McastTransport implements Runnable, DependentModule, MessagePropagater {
 
     /**
      * Logger
      */
     private static final Logger LOG = Logger.getLogger(McastTransport.class.getName());
 
+    /**
+     * The number of milliseconds we will hold a partially filled datagram
+     * waiting for more propagated messages. Zero disables batching.
+     */
+    private static final long BATCH_DELAY =
+            Long.getLong(McastTransport.class.getName() + ".batchDelay", 0).longValue();
+
     /**
      * Well known service class identifier: mcast message transport
      */
@@ -199,14 +230,56 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
 
     /**
      * The maximum size of multicast messages we will send and the size of the
-     * {@code DatagramPacket}s we will allocate.
+     * datagram buffers we will allocate.
      */
     private int multicastPacketSize = 16384;
 
     /**
-     * The socket we use to send and receive.
+     * The multicast group and port as a socket address.
+     */
+    private InetSocketAddress multicastSocketAddress;
+
+    /**
+     * The channel we use to send and receive. Replaced if it is closed
+     * unexpectedly.
+     */
+    private volatile DatagramChannel multicastChannel = null;
+
+    /**
+     * The memberships of the multicast group we hold on the channel.
+     */
+    private final List<MembershipKey> memberships = new ArrayList<MembershipKey>();
+
+    /**
+     * Lock for replacing the channel and its memberships. Never held while
+     * acquiring the transport or the batch lock.
+     */
+    private final Object channelLock = new Object();
+
+    /**
+     * Recycled datagram buffers, each {@code multicastPacketSize} bytes.
+     */
+    private BlockingQueue<ByteBuffer> bufferPool;
+
+    /**
+     * Lock for the pending batch.
      */
-    private MulticastSocket multicastSocket = null;
+    private final Object batchLock = new Object();
+
+    /**
+     * The datagram into which propagated messages are currently being batched.
+     */
+    private ByteBuffer pendingBatch = null;
+
+    /**
+     * The number of messages in the pending batch.
+     */
+    private int pendingBatchMessages = 0;
+
+    /**
+     * The task which will send the pending batch.
+     */
+    private ScheduledFuture<?> pendingBatchFlush = null;
 
     /**
      * Daemon thread which services the multicast socket and receives datagrams.
@@ -407,23 +480,14 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
         publicAddress = new EndpointAddress(protocolName, multicastAddress + ":" + Integer.toString(multicastPort), null, null);
         multicastPacketSize = adv.getMulticastSize();
 
-        // Create the multicast input socket
-        try {
-            multicastSocket = new MulticastSocket(multicastPort);
-            if (!usingInterface.equals(IPUtils.ANYADDRESS)) {
-                multicastSocket.setInterface(usingInterface);
-            }
-        } catch (IOException failed) {
-            throw new PeerGroupException("Could not open multicast socket", failed);
-        }
+        multicastSocketAddress = new InetSocketAddress(multicastInetAddress, multicastPort);
+        bufferPool = new ArrayBlockingQueue<ByteBuffer>(2 * poolSize + 2);
 
+        // Create the multicast channel
         try {
-            // Surprisingly, "true" means disable....
-            multicastSocket.setLoopbackMode(false);
-        } catch (SocketException ignored) {
-            // We may not be able to set loopback mode. It is inconsistent
-            // whether an error will occur if the set fails.
-            LOG.log(Level.CONFIG, "exception occurred enabling multicastsocket loopbackmode", ignored);
+            multicastChannel = openChannel();
+        } catch (IOException failed) {
+            throw new PeerGroupException("Could not open multicast channel", failed);
         }
 
         // Tell tell the world about our configuration.
@@ -450,25 +514,32 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
             configInfo.append("\n\t\tMulticast Port: ").append(multicastPort);
             configInfo.append("\n\t\tMulticast Thread Pool Size: ").append(poolSize);
             configInfo.append("\n\t\tMulticast Packet Size: ").append(multicastPacketSize);
+            configInfo.append("\n\t\tMulticast Batch Delay: ").append(BATCH_DELAY);
 
             configInfo.append("\n\tBound To :");
             configInfo.append("\n\t\tUsing Interface: ").append(usingInterface.getHostAddress());
 
             try {
-                configInfo.append("\n\t\tUsing Interface (from socket): ").append(multicastSocket.getInterface());
-                configInfo.append("\n\t\tUsing Network Interface (from socket): ").append(multicastSocket.getNetworkInterface());
-                configInfo.append("\n\t\tLoopBackMode disabled: ").append(multicastSocket.getLoopbackMode());
-            } catch (java.net.SocketException se) {
-                LOG.log(Level.CONFIG, "SocketException handled accessing multicastSocket", se);
+                configInfo.append("\n\t\tUsing Network Interface (from channel): ").append(multicastChannel.getOption(StandardSocketOptions.IP_MULTICAST_IF));
+                configInfo.append("\n\t\tLoopBackMode enabled: ").append(multicastChannel.getOption(StandardSocketOptions.IP_MULTICAST_LOOP));
+                configInfo.append("\n\t\tMulticast Server Bind Addr: ").append(multicastChannel.getLocalAddress());
+            } catch (IOException se) {
+                LOG.log(Level.CONFIG, "IOException handled accessing multicast channel", se);
             }
 
-            configInfo.append("\n\t\tMulticast Server Bind Addr: ").append(multicastSocket.getLocalSocketAddress());
             configInfo.append("\n\t\tPublic Address: ").append(publicAddress);
 
             LOG.config(configInfo.toString());
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -522,11 +593,7 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
         multicastThread.setDaemon(true);
         multicastThread.start();
 
-        try {
-
-            multicastSocket.joinGroup(multicastInetAddress);
-
-        } catch (IOException soe) {
+        if (!joinMulticastGroup()) {
 
             Logging.logCheckedSevere(LOG, "Could not join multicast group, setting Multicast off");
             return -1;
@@ -549,9 +616,32 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
 
         isClosed = true;
 
-        if (multicastSocket != null) {
-            multicastSocket.close();
-            multicastSocket = null;
+        synchronized (batchLock) {
+            if (null != pendingBatchFlush) {
+                pendingBatchFlush.cancel(false);
+                pendingBatchFlush = null;
+            }
+
+            pendingBatch = null;
+            pendingBatchMessages = 0;
+        }
+
+        synchronized (channelLock) {
+            if (multicastChannel != null) {
+                for (MembershipKey membership : memberships) {
+                    membership.drop();
+                }
+
+                memberships.clear();
+
+                try {
+                    multicastChannel.close();
+                } catch (IOException ignored) {
+                    Logging.logCheckedFine(LOG, "Failure closing multicast channel\n", ignored);
+                }
+
+                multicastChannel = null;
+            }
         }
 
         if (null != multicastProcessor) {
@@ -599,29 +689,46 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
 
         try {
             while (!isClosed) {
-                byte[] buffer = new byte[multicastPacketSize];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                ByteBuffer buffer = acquireBuffer();
+                DatagramChannel channel = multicastChannel;
+
+                if (null == channel) return;
 
                 try {
 
-                    multicastSocket.receive(packet);
+                    // An interrupt would close the channel for every thread.
+                    Thread.interrupted();
+
+                    SocketAddress from = channel.receive(buffer);
 
                     if (isClosed) return;
 
-                    Logging.logCheckedFine(LOG, "multicast message received from :", packet.getAddress().getHostAddress());
+                    buffer.flip();
+
+                    Logging.logCheckedFine(LOG, "multicast message received from :", from);
 
                     // This operation is blocking and may take a long time to
                     // return. As a result we may lose datagram packets because
                     // we are not calling
-                    // {@link MulticastSocket#receive(DatagramPacket)} often
+                    // {@link DatagramChannel#receive(ByteBuffer)} often
                     // enough. Forcing the IP stack to do the dropping produces
                     // a better overall result than receiving the packets and
                     // dropping them ourselves.
-                    multicastProcessor.put(packet);
+                    multicastProcessor.put(buffer);
                 } catch (InterruptedException woken) {
                     Thread.interrupted();
+                    releaseBuffer(buffer);
                 } catch (InterruptedIOException woken) {
                     Thread.interrupted();
+                    releaseBuffer(buffer);
+                } catch (ClosedChannelException closed) {
+                    releaseBuffer(buffer);
+
+                    if (isClosed) return;
+
+                    Logging.logCheckedWarning(LOG, "Multicast channel closed unexpectedly, reopening\n", closed);
+
+                    if (!reopenChannel(channel)) return;
                 } catch (Exception e) {
 
                     if (isClosed) return;
@@ -666,26 +773,16 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
             header.setContentTypeHeader(serialed.getMimeType());
             header.setContentLengthHeader(serialed.getByteLength());
 
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream(multicastPacketSize);
+            ByteBuffer headerBuffer = header.getByteBuffer();
 
-            buffer.write('J');
-            buffer.write('X');
-            buffer.write('T');
-            buffer.write('A');
-            header.sendToStream(buffer);
-            serialed.sendToStream(buffer);
-            buffer.flush();
-            buffer.close();
-            numBytesInPacket = buffer.size();
+            if (isClosed || multicastChannel == null) return false;
 
-            if ((buffer.size() > multicastPacketSize) ) 
-                Logging.logCheckedWarning(LOG, "Multicast datagram exceeds multicast size.");
-
-            DatagramPacket packet = new DatagramPacket(buffer.toByteArray(), numBytesInPacket, multicastInetAddress, multicastPort);
-
-            if (isClosed || multicastSocket == null) return false;
+            if (BATCH_DELAY > 0) {
+                numBytesInPacket = batchFrame(headerBuffer, serialed);
+            } else {
+                numBytesInPacket = sendFrame(headerBuffer, serialed);
+            }
 
-            multicastSocket.send(packet);
             Logging.logCheckedFine(LOG, "Sent Multicast message to :", pName, "/", pParams);
 
             if (TransportMeterBuildSettings.TRANSPORT_METERING && (multicastTransportBindingMeter != null)) {
@@ -700,7 +797,7 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
                 multicastTransportBindingMeter.sendFailure(true, message, TimeUtils.timeNow() - sendStartTime, numBytesInPacket);
             }
 
-            if (multicastSocket != null && !multicastSocket.isClosed()) 
+            if (multicastChannel != null && multicastChannel.isOpen()) 
                 Logging.logCheckedWarning(LOG, "Multicast socket send failed\n", e);
 
             return false;
@@ -708,70 +805,376 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
     }
 
     /**
-     * Handle a byte buffer from a multi-cast.
+     * Writes a framed message, signature, package header and message body, to
+     * the provided buffer. If the frame does not fit then the buffer position
+     * is restored.
      *
-     * @param packet the message packet.
+     * @param datagram the buffer to write to.
+     * @param headerBuffer the package header for the message.
+     * @param serialed the message.
+     * @return the length of the frame or -1 if the frame did not fit.
+     * @throws IOException if the message could not be serialized.
      */
-    void processMulticast(DatagramPacket packet) {
-        int size = packet.getLength();
-        byte[] buffer = packet.getData();
+    private static int writeFrame(final ByteBuffer datagram, ByteBuffer headerBuffer, WireFormatMessage serialed) throws IOException {
+        int start = datagram.position();
 
-        long messageReceiveBeginTime = TimeUtils.timeNow();
+        try {
+            datagram.put((byte) 'J');
+            datagram.put((byte) 'X');
+            datagram.put((byte) 'T');
+            datagram.put((byte) 'A');
+            datagram.put(headerBuffer.duplicate());
+
+            serialed.sendToStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    datagram.put((byte) b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    datagram.put(b, off, len);
+                }
+            });
+        } catch (BufferOverflowException tooBig) {
+            datagram.position(start);
+            return -1;
+        }
+
+        return datagram.position() - start;
+    }
+
+    /**
+     * Sends a framed message in a datagram of its own.
+     *
+     * @param headerBuffer the package header for the message.
+     * @param serialed the message.
+     * @return the length of the datagram.
+     * @throws IOException if the datagram could not be sent.
+     */
+    private int sendFrame(ByteBuffer headerBuffer, WireFormatMessage serialed) throws IOException {
+        ByteBuffer datagram = acquireBuffer();
 
         try {
+            int frameLength = writeFrame(datagram, headerBuffer, serialed);
+
+            if (frameLength < 0) {
+                Logging.logCheckedWarning(LOG, "Multicast datagram exceeds multicast size.");
 
-            // FIXME: hard-coded constant
-            if (size < 4) {
-                Logging.logCheckedFine(LOG, "damaged multicast discarded");
-                throw new IOException("damaged multicast discarded : too short");
+                // Send it anyway in a buffer of its own.
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(2 * multicastPacketSize);
+
+                buffer.write('J');
+                buffer.write('X');
+                buffer.write('T');
+                buffer.write('A');
+                buffer.write(headerBuffer.array(), headerBuffer.arrayOffset() + headerBuffer.position(), headerBuffer.remaining());
+                serialed.sendToStream(buffer);
+                buffer.close();
+                frameLength = buffer.size();
+
+                sendDatagram(ByteBuffer.wrap(buffer.toByteArray()));
+            } else {
+                datagram.flip();
+                sendDatagram(datagram);
             }
 
-            if (('J' != buffer[0]) || ('X' != buffer[1]) || ('T' != buffer[2]) || ('A' != buffer[3])) {
-                Logging.logCheckedFine(LOG, "damaged multicast discarded");
-                throw new IOException("damaged multicast discarded : incorrect signature");
+            return frameLength;
+        } finally {
+            releaseBuffer(datagram);
+        }
+    }
+
+    /**
+     * Adds a framed message to the pending batch, starting a new batch and
+     * scheduling its sending if necessary. Messages which do not fit in an
+     * empty batch are sent on their own.
+     *
+     * @param headerBuffer the package header for the message.
+     * @param serialed the message.
+     * @return the length of the framed message.
+     * @throws IOException if the batch could not be sent.
+     */
+    private int batchFrame(ByteBuffer headerBuffer, WireFormatMessage serialed) throws IOException {
+        synchronized (batchLock) {
+            if (null != pendingBatch) {
+                int frameLength = writeFrame(pendingBatch, headerBuffer, serialed);
+
+                if (frameLength >= 0) {
+                    pendingBatchMessages++;
+                    return frameLength;
+                }
+
+                // Did not fit. Send what we have and start a new batch.
+                flushBatch();
             }
 
-            ByteBuffer bbuffer = ByteBuffer.wrap(buffer, 4, size - 4);
-            MessagePackageHeader header = new MessagePackageHeader();
+            ByteBuffer datagram = acquireBuffer();
+            int frameLength = writeFrame(datagram, headerBuffer, serialed);
 
-            if (!header.readHeader(bbuffer)) {
-                throw new IOException("Failed to read framing header");
+            if (frameLength < 0) {
+                releaseBuffer(datagram);
+                return sendFrame(headerBuffer, serialed);
             }
 
-            MimeMediaType msgMime = header.getContentTypeHeader();
-            // TODO 20020730 bondolo@jxta.org Do something with content-coding here.
+            pendingBatch = datagram;
+            pendingBatchMessages = 1;
+            pendingBatchFlush = group.getTaskManager().getScheduledExecutorService().schedule(new Runnable() {
+                public void run() {
+                    try {
+                        flushBatch();
+                    } catch (IOException failed) {
+                        if (!isClosed) Logging.logCheckedWarning(LOG, "Multicast batch send failed\n", failed);
+                    }
+                }
+            }, BATCH_DELAY, TimeUnit.MILLISECONDS);
 
-            // read the message!
-            Message msg = WireFormatMessageFactory.fromBufferExternal(bbuffer, msgMime, null, group);
+            return frameLength;
+        }
+    }
 
-            // Extract the source and destination
-            MessageElement srcAddrElem = msg.getMessageElement(EndpointServiceImpl.MESSAGE_SOURCE_NS, EndpointServiceImpl.MESSAGE_SOURCE_NAME);
-            if (null == srcAddrElem) {
-                throw new IOException("No Source Address in " + msg);
+    /**
+     * Sends the pending batch, if any.
+     *
+     * @throws IOException if the batch could not be sent.
+     */
+    private void flushBatch() throws IOException {
+        synchronized (batchLock) {
+            if (null != pendingBatchFlush) {
+                pendingBatchFlush.cancel(false);
+                pendingBatchFlush = null;
             }
 
-            msg.removeMessageElement(srcAddrElem);
-
-            EndpointAddress srcAddr = new EndpointAddress(srcAddrElem.toString());
+            ByteBuffer datagram = pendingBatch;
 
-            if (srcAddr.equals(ourSrcAddr)) {
-                Logging.logCheckedFine(LOG, "Discard loopback multicast message");
+            if (null == datagram) {
                 return;
             }
 
-            MessageElement dstAddrElem = msg.getMessageElement(EndpointServiceImpl.MESSAGE_DESTINATION_NS, EndpointServiceImpl.MESSAGE_DESTINATION_NAME);
-            if (null == dstAddrElem) throw new IOException("No Destination Address in " + msg);
+            pendingBatch = null;
 
-            msg.removeMessageElement(dstAddrElem);
+            try {
+                if (isClosed) {
+                    return;
+                }
 
-            EndpointAddress dstAddr = new EndpointAddress(dstAddrElem.toString());
+                datagram.flip();
+                sendDatagram(datagram);
 
-            // Handoff the message to the EndpointService Manager
-            endpoint.processIncomingMessage(msg, srcAddr, dstAddr);
+                Logging.logCheckedFine(LOG, "Sent batch of ", pendingBatchMessages, " multicast messages");
+            } finally {
+                pendingBatchMessages = 0;
+                releaseBuffer(datagram);
+            }
+        }
+    }
 
-            if (TransportMeterBuildSettings.TRANSPORT_METERING && (multicastTransportBindingMeter != null)) {
-                multicastTransportBindingMeter.messageReceived(false, msg, messageReceiveBeginTime - TimeUtils.timeNow(), size);
+    /**
+     * Sends a datagram to the multicast group. The channel is shared by all
+     * sending threads and the receiving thread, so the interrupt status of
+     * the calling thread is cleared for the send, rather than letting it
+     * close the channel, and restored afterwards. If the channel was closed
+     * anyway it is reopened and the send retried once.
+     *
+     * @param datagram the datagram.
+     * @throws IOException if the datagram could not be sent.
+     */
+    private void sendDatagram(ByteBuffer datagram) throws IOException {
+        boolean interrupted = Thread.interrupted();
+
+        try {
+            int start = datagram.position();
+            DatagramChannel channel = multicastChannel;
+
+            if (null == channel) {
+                throw new ClosedChannelException();
             }
+
+            try {
+                channel.send(datagram, multicastSocketAddress);
+            } catch (ClosedChannelException closed) {
+                if (isClosed || !reopenChannel(channel)) {
+                    throw closed;
+                }
+
+                datagram.position(start);
+                multicastChannel.send(datagram, multicastSocketAddress);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Opens, binds and configures a channel for the multicast port.
+     *
+     * @return the channel.
+     * @throws IOException if the channel could not be opened.
+     */
+    private DatagramChannel openChannel() throws IOException {
+        DatagramChannel channel = DatagramChannel.open((multicastInetAddress instanceof Inet6Address)
+                ? StandardProtocolFamily.INET6
+                : StandardProtocolFamily.INET);
+
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(multicastPort));
+
+            if (!usingInterface.equals(IPUtils.ANYADDRESS)) {
+                NetworkInterface networkInterface = NetworkInterface.getByInetAddress(usingInterface);
+
+                if (null != networkInterface) {
+                    channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+                }
+            }
+        } catch (IOException failed) {
+            channel.close();
+            throw failed;
+        }
+
+        try {
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+        } catch (IOException ignored) {
+            // We may not be able to set loopback mode. It is inconsistent
+            // whether an error will occur if the set fails.
+            LOG.log(Level.CONFIG, "exception occurred enabling multicast channel loopback mode", ignored);
+        }
+
+        return channel;
+    }
+
+    /**
+     * Replaces a channel which was closed while the transport is running and
+     * joins the multicast group again. If this fails the transport is stopped,
+     * so that it is no longer offered by the endpoint service.
+     *
+     * @param failed the channel which was found closed.
+     * @return {@code true} if {@link #multicastChannel} may be used.
+     */
+    private boolean reopenChannel(DatagramChannel failed) {
+        synchronized (channelLock) {
+            if (isClosed) {
+                return false;
+            }
+
+            if (multicastChannel != failed) {
+                // Another thread already replaced it.
+                return null != multicastChannel;
+            }
+
+            memberships.clear();
+
+            try {
+                multicastChannel = openChannel();
+
+                if (joinMulticastGroup()) {
+                    Logging.logCheckedInfo(LOG, "Reopened multicast channel");
+                    return true;
+                }
+
+                Logging.logCheckedSevere(LOG, "Could not join multicast group after reopening, stopping Multicast");
+            } catch (IOException reopenFailed) {
+                Logging.logCheckedSevere(LOG, "Could not reopen multicast channel, stopping Multicast\n", reopenFailed);
+                multicastChannel = null;
+            }
+        }
+
+        // The caller may hold the batch lock, which stopApp() acquires.
+        group.getTaskManager().getExecutorService().execute(new Runnable() {
+            public void run() {
+                stopApp();
+            }
+        });
+
+        return false;
+    }
+
+    /**
+     * Joins the multicast group on the configured interface or, if we are
+     * bound to all interfaces, on every multicast capable interface.
+     *
+     * @return {@code true} if at least one membership was obtained.
+     */
+    private boolean joinMulticastGroup() {
+        List<NetworkInterface> interfaces = new ArrayList<NetworkInterface>();
+
+        try {
+            if (!usingInterface.equals(IPUtils.ANYADDRESS)) {
+                NetworkInterface networkInterface = NetworkInterface.getByInetAddress(usingInterface);
+
+                if (null != networkInterface) {
+                    interfaces.add(networkInterface);
+                }
+            } else {
+                for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                    if (networkInterface.isUp() && networkInterface.supportsMulticast()) {
+                        interfaces.add(networkInterface);
+                    }
+                }
+            }
+        } catch (IOException failed) {
+            Logging.logCheckedWarning(LOG, "Could not enumerate network interfaces\n", failed);
+        }
+
+        for (NetworkInterface networkInterface : interfaces) {
+            try {
+                memberships.add(multicastChannel.join(multicastInetAddress, networkInterface));
+            } catch (Exception failed) {
+                Logging.logCheckedFine(LOG, "Could not join multicast group on ", networkInterface, "\n", failed);
+            }
+        }
+
+        return !memberships.isEmpty();
+    }
+
+    /**
+     * Returns a cleared datagram buffer, recycled if one is available.
+     *
+     * @return a cleared datagram buffer.
+     */
+    ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+
+        if (null == buffer) {
+            buffer = ByteBuffer.allocate(multicastPacketSize);
+        }
+
+        buffer.clear();
+
+        return buffer;
+    }
+
+    /**
+     * Returns a datagram buffer to the pool. Buffers are dropped if the pool
+     * is full.
+     *
+     * @param buffer the buffer to recycle.
+     */
+    void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.capacity() == multicastPacketSize) {
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * Handle a datagram from a multi-cast. The datagram may contain several
+     * framed messages.
+     *
+     * @param datagram the datagram contents.
+     */
+    void processMulticast(ByteBuffer datagram) {
+        int size = datagram.remaining();
+
+        long messageReceiveBeginTime = TimeUtils.timeNow();
+
+        try {
+
+            do {
+                processFrame(datagram, size, messageReceiveBeginTime);
+            } while (datagram.remaining() >= 4);
+
         } catch (Exception e) {
 
             if (TransportMeterBuildSettings.TRANSPORT_METERING && (multicastTransportBindingMeter != null)) {
@@ -783,6 +1186,69 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
         }
     }
 
+    /**
+     * Handle one framed message from a multi-cast datagram.
+     *
+     * @param bbuffer the datagram, positioned at the start of the frame.
+     * @param size the size of the datagram.
+     * @param messageReceiveBeginTime when we began processing the datagram.
+     * @throws IOException if the frame is damaged.
+     */
+    private void processFrame(ByteBuffer bbuffer, int size, long messageReceiveBeginTime) throws IOException {
+
+        // FIXME: hard-coded constant
+        if (bbuffer.remaining() < 4) {
+            Logging.logCheckedFine(LOG, "damaged multicast discarded");
+            throw new IOException("damaged multicast discarded : too short");
+        }
+
+        if (('J' != bbuffer.get()) || ('X' != bbuffer.get()) || ('T' != bbuffer.get()) || ('A' != bbuffer.get())) {
+            Logging.logCheckedFine(LOG, "damaged multicast discarded");
+            throw new IOException("damaged multicast discarded : incorrect signature");
+        }
+
+        MessagePackageHeader header = new MessagePackageHeader();
+
+        if (!header.readHeader(bbuffer)) {
+            throw new IOException("Failed to read framing header");
+        }
+
+        MimeMediaType msgMime = header.getContentTypeHeader();
+        // TODO 20020730 bondolo@jxta.org Do something with content-coding here.
+
+        // read the message!
+        Message msg = WireFormatMessageFactory.fromBufferExternalDeferred(bbuffer, msgMime, null, group);
+
+        // Extract the source and destination
+        MessageElement srcAddrElem = msg.getMessageElement(EndpointServiceImpl.MESSAGE_SOURCE_NS, EndpointServiceImpl.MESSAGE_SOURCE_NAME);
+        if (null == srcAddrElem) {
+            throw new IOException("No Source Address in " + msg);
+        }
+
+        msg.removeMessageElement(srcAddrElem);
+
+        EndpointAddress srcAddr = new EndpointAddress(srcAddrElem.toString());
+
+        if (srcAddr.equals(ourSrcAddr)) {
+            Logging.logCheckedFine(LOG, "Discard loopback multicast message");
+            return;
+        }
+
+        MessageElement dstAddrElem = msg.getMessageElement(EndpointServiceImpl.MESSAGE_DESTINATION_NS, EndpointServiceImpl.MESSAGE_DESTINATION_NAME);
+        if (null == dstAddrElem) throw new IOException("No Destination Address in " + msg);
+
+        msg.removeMessageElement(dstAddrElem);
+
+        EndpointAddress dstAddr = new EndpointAddress(dstAddrElem.toString());
+
+        // Handoff the message to the EndpointService Manager
+        endpoint.processIncomingMessage(msg, srcAddr, dstAddr);
+
+        if (TransportMeterBuildSettings.TRANSPORT_METERING && (multicastTransportBindingMeter != null)) {
+            multicastTransportBindingMeter.messageReceived(false, msg, messageReceiveBeginTime - TimeUtils.timeNow(), size);
+        }
+    }
+
     TransportBindingMeter getMulticastTransportBindingMeter(EndpointAddress destinationAddress) {
         if (multicastTransportMeter != null) {
             return multicastTransportMeter.getTransportBindingMeter(group.getPeerID(), destinationAddress);
@@ -792,9 +1258,9 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
     }
 
     /**
-     * Handles incoming datagram packets. This implementation uses the peer
-     * group Executor service to process the datagram packets, but limits the
-     * number of concurrent tasks.
+     * Handles incoming datagrams. This implementation uses the peer group
+     * Executor service to process the datagrams, but limits the number of
+     * concurrent tasks. Datagram buffers are recycled once processed.
      */
     private class DatagramProcessor implements Runnable {
 
@@ -813,7 +1279,7 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
          * The goal is not to cache datagrams in memory. If we can't keep up it
          * is better that we drop messages.
          */
-        final BlockingQueue<DatagramPacket> queue;
+        final BlockingQueue<ByteBuffer> queue;
 
         /**
          * The number of executor tasks we are currently using.
@@ -833,7 +1299,7 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
          */
         DatagramProcessor(Executor executor, int size) {
             poolSize = size;
-            queue = new ArrayBlockingQueue<DatagramPacket>(poolSize + 1);
+            queue = new ArrayBlockingQueue<ByteBuffer>(poolSize + 1);
             this.executor = executor;
         }
 
@@ -852,7 +1318,7 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
          * @param packet the datagram
          * @throws InterruptedException if interrupted
          */
-        void put(DatagramPacket packet) throws InterruptedException {
+        void put(ByteBuffer packet) throws InterruptedException {
             boolean execute = false;
 
             if (stopped) {
@@ -886,11 +1352,16 @@ public class McastTransport implements Runnable, Module, MessagePropagater {
 
             try {
 
-                DatagramPacket packet;
+                ByteBuffer packet;
 
                 while (!stopped && (null != (packet = queue.poll()))) {
                     Logging.logCheckedFiner(LOG, "Processing incoming datagram packet : ", packet);
-                    processMulticast(packet);
+
+                    try {
+                        processMulticast(packet);
+                    } finally {
+                        releaseBuffer(packet);
+                    }
                 }
 
             } catch (Throwable all) {
@@ -39,7 +39,7 @@ public class JxtaMessageDecoder extends OneToOneDecoder {
         
         // TODO: we should pull the "content-coding" header out and do something with it, presumably
         // pass it to the factory. However, this is not done by TCPMessenger or MCastTransport either
-        return WireFormatMessageFactory.fromBufferExternal(messageContents, contentType, null, peerGroup);
+        return WireFormatMessageFactory.fromBufferExternalDeferred(messageContents, contentType, null, peerGroup);
     }
 
 }
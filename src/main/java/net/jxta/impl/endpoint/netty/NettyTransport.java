@@ -4,6 +4,8 @@ package net.jxta.impl.endpoint.netty;
 import java.io.StringWriter;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
@@ -24,8 +26,11 @@ import net.jxta.impl.endpoint.IPUtils;
 import net.jxta.impl.endpoint.TransportUtils;
 import net.jxta.impl.protocol.TCPAdv;
 import net.jxta.logging.Logging;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.TransportAdvertisement;
@@ -47,7 +52,7 @@ import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
  * 
  * @author iain.mcginniss@onedrum.com
  */
-public class NettyTransport implements Module {
+public class NettyTransport implements DependentModule {
     
     private static final Logger LOG = Logger.getLogger(NettyTransport.class.getName());
 
@@ -238,6 +243,13 @@ public class NettyTransport implements Module {
         return new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID);
+    }
+
     /**
      * Used to take a port from the configuration, and "correct" it to a useable port number.
      * <ol>
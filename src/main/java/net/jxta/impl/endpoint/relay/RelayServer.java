@@ -63,7 +63,11 @@ import java.nio.channels.Selector;
 import java.nio.channels.spi.AbstractSelectableChannel;
 import java.nio.channels.spi.AbstractSelector;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import net.jxta.discovery.DiscoveryService;
 import net.jxta.document.Advertisement;
@@ -126,6 +130,20 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
      * The maximum number of relay servers we will cache to provide as referrals.
      */
     private final static int MAX_CACHED_SERVERS = 20;
+    /**
+     * The number of worker threads which send the queued messages of all of
+     * the relayed clients. Independent of the number of clients.
+     */
+    private final static int SENDER_THREADS = Integer.getInteger(RelayServer.class.getName() + ".senderThreads", 2).intValue();
+    /**
+     * The number of bytes each ready client may send before the sender worker
+     * moves on to the next ready client.
+     */
+    private final static int SEND_QUANTUM = Integer.getInteger(RelayServer.class.getName() + ".sendQuantum", 64 * 1024).intValue();
+    /**
+     * The maximum number of bytes which may be queued for a single client.
+     */
+    private final static long CLIENT_QUEUE_BYTES = Long.getLong(RelayServer.class.getName() + ".clientQueueBytes", 4L * 1024 * 1024).longValue();
     /**
      * The EndpointService for the RelayService
      */
@@ -162,14 +180,26 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
     RelayServerCache relayServerCache;
 
     /**
-     *  Services the selector thread and (incidentally) initiates the client GC
-     *  process.
+     *  Services the selector thread.
      */
     private Thread selectorThread = null;
+    /**
+     *  The periodic client GC, on the coarse scheduled executor.
+     */
+    private ScheduledFuture<?> clientGCHandle = null;
     /**
      *  Our selector for clients with pending sendable messages.
      */
     final ClientSelector selector = new ClientSelector();
+    /**
+     *  Clients with sendable messages in round robin order. A client is
+     *  either registered with the selector or present here, never both.
+     */
+    private final BlockingQueue<RelayServerClient> readyClients = new LinkedBlockingQueue<RelayServerClient>();
+    /**
+     *  The sender worker threads which service {@link #readyClients}.
+     */
+    private final List<Thread> senderThreads = new ArrayList<Thread>();
 
     /**
      * constructor
@@ -230,6 +260,8 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
             configInfo.append("\n\t\tMax Lease Length : ").append(MAX_LEASE_DURATION).append("ms.");
             configInfo.append("\n\t\tBroadcast Interval : ").append(minBroadcastInterval).append("ms.");
             configInfo.append("\n\t\tStall Timeout : ").append(MAX_QUEUE_STALL_DURATION).append("ms.");
+            configInfo.append("\n\t\tClient Queue Size : ").append(CLIENT_MESSAGE_QUEUE_SIZE).append(" messages, ").append(CLIENT_QUEUE_BYTES).append(" bytes.");
+            configInfo.append("\n\t\tSender Threads : ").append(SENDER_THREADS).append(" (quantum ").append(SEND_QUANTUM).append(" bytes).");
 
             LOG.config(configInfo.toString());
         }
@@ -259,6 +291,18 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
         selectorThread.setDaemon(true);
         selectorThread.start();
 
+        clientGCHandle = group.getTaskManager().getCoarseScheduledExecutorService().scheduleAtFixedRate(new DoClientGC(),
+                MAX_QUEUE_STALL_DURATION, MAX_QUEUE_STALL_DURATION, TimeUnit.MILLISECONDS);
+
+        synchronized (senderThreads) {
+            for (int eachSender = 0; eachSender < SENDER_THREADS; eachSender++) {
+                Thread sender = new Thread(new ClientSender(), "Sender Thread " + eachSender + " for Relay Server : " + publicAddress);
+                sender.setDaemon(true);
+                sender.start();
+                senderThreads.add(sender);
+            }
+        }
+
         if ((messengerEventListener = endpointService.addMessageTransport(this)) == null) {
 
             Logging.logCheckedSevere(LOG, "Transport registration refused");
@@ -292,6 +336,8 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
         relayServerCache.stopCache();
         relayServerCache = null;
 
+        clientGCHandle.cancel(false);
+
         // remove messenger events listener since we do not have any clients
         endpointService.removeMessengerEventListener(this, EndpointService.HighPrecedence);
 
@@ -314,6 +360,15 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
 
         }
 
+        synchronized (senderThreads) {
+            for (Thread sender : senderThreads) {
+                sender.interrupt();
+            }
+            senderThreads.clear();
+        }
+
+        readyClients.clear();
+
         Logging.logCheckedInfo(LOG, "Relay Server stopped : ", publicAddress);
 
     }
@@ -738,7 +793,7 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
             if (rawMessenger) {
                 // BGSend will *not* close the messenger after use
                 // Because incoming messengers do not need to be closed.
-                new BGSend(messenger, responseMessage, serviceName, peerId);
+                group.getTaskManager().getExecutorService().execute(new BGSend(messenger, responseMessage, serviceName, peerId));
             } else {
 
                 try {
@@ -812,7 +867,7 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
                 if ((relayedClients.size() < MAX_CLIENTS) && (messenger != null) && !messenger.isClosed()) {
 
                     // create a new client
-                    client = new RelayServerClient(this, clientPeerID, requestedLease, MAX_QUEUE_STALL_DURATION, CLIENT_MESSAGE_QUEUE_SIZE);
+                    client = new RelayServerClient(this, clientPeerID, requestedLease, MAX_QUEUE_STALL_DURATION, CLIENT_MESSAGE_QUEUE_SIZE, CLIENT_QUEUE_BYTES);
 
                     // add the client to the list
                     relayedClients.put(clientPeerID, client);
@@ -914,16 +969,8 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
 
         Logging.logCheckedInfo(LOG, "Starting client selector thread");
 
-        long nextGC = TimeUtils.toAbsoluteTimeMillis(MAX_QUEUE_STALL_DURATION);
-
         try {
             while (selector.isOpen()) {
-                if (nextGC <= TimeUtils.timeNow()) {
-                    // do the lease gc
-                    group.getTaskManager().getExecutorService().execute(new DoClientGC());
-                    nextGC = TimeUtils.toAbsoluteTimeMillis(MAX_QUEUE_STALL_DURATION);
-                    }
-
                 try {
                     int selected = selector.select((int) TimeUtils.ASECOND);
 
@@ -932,7 +979,7 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
                             selector.unregister(aKey);
                             RelayServerClient aClient = (RelayServerClient) aKey.channel();
 
-                            group.getTaskManager().getExecutorService().execute(aClient);
+                            readyClients.offer(aClient);
                     }
                 }
                 } catch (InterruptedIOException e) {
@@ -952,6 +999,42 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
         }
     }
 
+    /**
+     *  Services the ready clients in round robin order. Each client sends at
+     *  most {@link #SEND_QUANTUM} bytes (plus any credit left from previous
+     *  rounds) before being put at the back of the ready queue.
+     */
+    private class ClientSender implements Runnable {
+
+        /**
+         *  {@inheritDoc}
+         */
+        public void run() {
+
+            try {
+                while (selector.isOpen()) {
+                    RelayServerClient aClient = readyClients.poll(TimeUtils.ASECOND, TimeUnit.MILLISECONDS);
+
+                    if (null == aClient) {
+                        continue;
+                    }
+
+                    if (aClient.sendQueued(SEND_QUANTUM)) {
+                        readyClients.offer(aClient);
+                    }
+                }
+            } catch (InterruptedException stopping) {
+
+                Logging.logCheckedFine(LOG, "Sender interrupted : ", Thread.currentThread().getName());
+
+            } catch (Throwable all) {
+
+                Logging.logCheckedSevere(LOG, "Uncaught Throwable in thread :" + Thread.currentThread().getName(), "\n", all);
+
+            }
+        }
+    }
+
     /**
      *  Checks for expired Clients.
      */
@@ -1346,7 +1429,7 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
     /**
      *  Sends a message on an synchronous messenger.
      */
-    static class BGSend extends Thread {
+    static class BGSend implements Runnable {
 
         Messenger mr;
         Message ms;
@@ -1354,19 +1437,15 @@ public class RelayServer implements MessageSender, MessengerEventListener, Runna
         String ps;
 
         BGSend(Messenger mr, Message ms, String sn, String ps) {
-            super("Relay Background Sender");
             this.mr = mr;
             this.ms = ms;
             this.sn = sn;
             this.ps = ps;
-            setDaemon(true);
-            start();
         }
 
         /**
          *  {@inheritDoc}
          */
-        @Override
         public void run() {
 
             try {
@@ -62,6 +62,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.spi.AbstractSelectableChannel;
 import java.nio.channels.spi.AbstractSelectionKey;
+import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.logging.Logger;
@@ -69,21 +70,42 @@ import java.util.logging.Logger;
 import net.jxta.endpoint.EndpointAddress;
 import net.jxta.endpoint.Message;
 import net.jxta.endpoint.Messenger;
+import net.jxta.endpoint.MessengerStateListener;
+import net.jxta.endpoint.OutgoingMessageEvent;
 import net.jxta.impl.endpoint.BlockingMessenger;
+import net.jxta.impl.endpoint.TransportUtils;
 import net.jxta.impl.util.TimeUtils;
 import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
 
 /**
  * A client of the Relay Server
+ * <p/>
+ * Clients do not own a sending thread. When a client has sendable messages it
+ * is selected by the {@link RelayServer.ClientSelector} and handed to one of
+ * the relay server's sender workers which calls {@link #sendQueued(long)} to
+ * send up to one quantum of bytes before moving on to the next client
+ * (deficit round robin).
+ * <p/>
+ * The workers never wait for a busy messenger: a client whose messenger does
+ * not accept a message is parked until the messenger reports it is no longer
+ * saturated, and the workers move on to the other clients.
  */
-class RelayServerClient extends AbstractSelectableChannel implements Runnable {
+class RelayServerClient extends AbstractSelectableChannel {
 
 	/**
 	 * Logger
 	 */
 	private static final Logger LOG = Logger.getLogger(RelayServerClient.class.getName());
 
+	/**
+	 * Comma separated list of service name fragments identifying non-critical
+	 * traffic. When a client queue overflows, the oldest queued messages for
+	 * these services are dropped to make room for the new message.
+	 */
+	private static final String[] DROP_OLDEST_SERVICES = System.getProperty(
+			RelayServerClient.class.getName() + ".dropOldestServices", "JxtaPropagate").split(",");
+
 	/**
 	 * the Relay Server of this client
 	 */
@@ -121,11 +143,40 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 	 */
 	private QueuedMessage outOfBandMessage = null;
 
+	/**
+	 *  A message our messenger did not accept yet. It is sent before any
+	 *  other and has already been charged against the client's share.
+	 */
+	private QueuedMessage unsentMessage = null;
+
+	/**
+	 *  If {@code true} the client waits for its messenger to accept messages
+	 *  again. A parked client is not ready for the selector and is not
+	 *  handed to a sender worker until {@link #resume()}.
+	 */
+	private boolean parked = false;
+
 	/**
 	 * A queue of message for this client
 	 */
 	private final BlockingQueue<QueuedMessage> messageList;
 
+	/**
+	 * The maximum number of bytes we will hold in {@link #messageList}.
+	 */
+	private final long clientQueueBytes;
+
+	/**
+	 * The number of bytes currently held in {@link #messageList}.
+	 */
+	private long queuedBytes = 0;
+
+	/**
+	 * The number of bytes this client may still send in the current round.
+	 * Only modified by the sender worker currently servicing this client.
+	 */
+	private long deficit = 0;
+
 	/**
 	 *  Our current set of valid operations.
 	 */
@@ -138,15 +189,32 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 		final Message message;
 		final String destService;
 		final String destParam;
+		final long size;
 
 		QueuedMessage(Message message, String destService, String destParam) {
 			this.message = message;
 			this.destService = destService;
 			this.destParam = destParam;
+			this.size = message.getByteLength();
+		}
+
+		/**
+		 * Returns {@code true} if this message is for a non-critical service
+		 * and may be dropped in favour of newer messages.
+		 */
+		boolean isDroppable() {
+			for (String each : DROP_OLDEST_SERVICES) {
+				if ((each.length() > 0)
+						&& (((null != destService) && destService.contains(each)) || ((null != destParam) && destParam.contains(each)))) {
+					return true;
+				}
+			}
+
+			return false;
 		}
 	}
 
-	RelayServerClient(RelayServer server, PeerID clientPeerId, long leaseLength, long stallTimeout, int clientQueueSize) {
+	RelayServerClient(RelayServer server, PeerID clientPeerId, long leaseLength, long stallTimeout, int clientQueueSize, long clientQueueBytes) {
 		super(null);
 
 		try {
@@ -160,6 +228,7 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 		this.server = server;
 		this.clientPeerId = clientPeerId;
 		this.stallTimeout = stallTimeout;
+		this.clientQueueBytes = clientQueueBytes;
 		messageList = new ArrayBlockingQueue<QueuedMessage>(clientQueueSize);
 
 		// initialize the lease
@@ -189,15 +258,30 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Send queued messages to the client until either the queue is empty or
+	 * the client has used up its share of the current round.
+	 * <p/>
+	 * The out of band message is always sent and is not charged against the
+	 * client's share.
 	 *
-	 * <p/>Send all of the queued messages to the client.
+	 * @param quantum The number of bytes added to the client's share for this
+	 * round.
+	 * @return {@code true} if the client still has sendable messages and
+	 * should be rescheduled by the caller otherwise {@code false} in which case
+	 * the client has re-registered with the selector.
 	 */
-	public void run() {
+	boolean sendQueued(long quantum) {
+
+            boolean reschedule = false;
+            Messenger parkedOn = null;
 
             try {
 
-                Logging.logCheckedInfo(LOG, "Sending queued messages for ", this);
+                Logging.logCheckedFine(LOG, "Sending queued messages for ", this);
+
+                synchronized (this) {
+                    deficit += quantum;
+                }
 
                 int failedInARow = 0;
 
@@ -206,7 +290,6 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 
                     Messenger useMessenger;
                     QueuedMessage message;
-                    boolean wasOOB;
 
                     synchronized (this) {
 
@@ -220,84 +303,125 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
                             break;
                         }
 
-                        if (outOfBandMessage != null) {
+                        if (unsentMessage != null) {
+                            message = unsentMessage;
+                            unsentMessage = null;
+                        } else if (outOfBandMessage != null) {
                             message = outOfBandMessage;
                             outOfBandMessage = null;
-                            wasOOB = true;
                         } else {
-                            message = messageList.poll();
-                            wasOOB = false;
-                        }
+                            message = messageList.peek();
 
-                        // No messages? We are now inactive.
-                        if(null == message) {
-                            setReadyOps(0);
-                            break;
+                            // No messages? We are now inactive.
+                            if(null == message) {
+                                setReadyOps(0);
+                                break;
+                            }
+
+                            // Used up our share? Let the other clients go.
+                            if (message.size > deficit) {
+                                reschedule = true;
+                                break;
+                            }
+
+                            messageList.poll();
+                            queuedBytes -= message.size;
+                            deficit -= message.size;
                         }
 
                         useMessenger = messenger;
 
                     }
 
-                    // send the message
+                    // send the message, without waiting for a busy messenger.
+                    Throwable failure;
+
                     try {
 
-                        useMessenger.sendMessageB(message.message, message.destService, message.destParam);
+                        if (useMessenger.sendMessageN(message.message, message.destService, message.destParam)) {
 
-                        // A message was sent. Queue is no longer stalled.
-                        synchronized (this) {
-                                failedInARow = 0;
-                                queueStallAt = Long.MAX_VALUE;
+                            // A message was sent. Queue is no longer stalled.
+                            synchronized (this) {
+                                    failedInARow = 0;
+                                    queueStallAt = Long.MAX_VALUE;
+                            }
+
+                            continue;
                         }
 
-                    } catch (Exception e) {
+                        if (TransportUtils.isMarkedWithOverflow(message.message)) {
 
-                        // Check that the exception is not due to the message rather
-                        // than the messenger, and then drop the message. In this
-                        // case we give the messenger the benefit of the doubt and
-                        // keep it open, renewing the lease as above. (this could be
-                        // the last message). For now the transports do not tell the
-                        // difference, so we count the number of times we failed in
-                        // a row. After three times, kill the message rather than
-                        // the messenger.
+                            // The messenger is busy. Keep the message and let the
+                            // other clients go until the messenger can take it.
+                            synchronized (this) {
+                                    unsentMessage = message;
+                                    parked = true;
+                                    setReadyOps(0);
+                            }
 
-                        // put the message back
-                        synchronized (this) {
+                            parkedOn = useMessenger;
+                            break;
+                        }
 
-                            if (++failedInARow >= 3) {
-                                    failedInARow = 0;
-                                    queueStallAt = Long.MAX_VALUE;
-                                    continue;
-                            }
+                        Object outcome = message.message.getMessageProperty(Messenger.class);
 
-                            // Ok, if we cannot push back the message, below, we
-                            // should reset failedInARow, since we won't be retrying
-                            // the same message. But it does not realy matter so
-                            // let's keep things simple.
-                            if (outOfBandMessage == null) {
-                                    outOfBandMessage = message;
-                            }
+                        failure = (outcome instanceof OutgoingMessageEvent) ? ((OutgoingMessageEvent) outcome).getFailure() : null;
 
-                            // If we are still holding the same messenger, kill it.
-                            if(useMessenger == messenger) {
-                                    queueStallAt = Math.min(queueStallAt, TimeUtils.toAbsoluteTimeMillis(stallTimeout));
-                                    messenger = null;
-                            } else {
-                                    useMessenger = null;
-                            }
+                        if (null == failure) {
+                            failure = new IOException("Message refused by " + useMessenger);
+                        }
+
+                    } catch (Exception e) {
 
+                        failure = e;
+
+                    }
+
+                    // Check that the exception is not due to the message rather
+                    // than the messenger, and then drop the message. In this
+                    // case we give the messenger the benefit of the doubt and
+                    // keep it open, renewing the lease as above. (this could be
+                    // the last message). For now the transports do not tell the
+                    // difference, so we count the number of times we failed in
+                    // a row. After three times, kill the message rather than
+                    // the messenger.
+
+                    // put the message back
+                    synchronized (this) {
+
+                        if (++failedInARow >= 3) {
+                                failedInARow = 0;
+                                queueStallAt = Long.MAX_VALUE;
+                                continue;
                         }
 
-                        // If we're here, we decided to close the messenger. We do
-                        // that out of sync.
-                        Logging.logCheckedInfo(LOG, "Giving up on unusable messenger : ", useMessenger, "\n", e);
+                        // Ok, if we cannot push back the message, below, we
+                        // should reset failedInARow, since we won't be retrying
+                        // the same message. But it does not realy matter so
+                        // let's keep things simple.
+                        if (outOfBandMessage == null) {
+                                outOfBandMessage = message;
+                        }
 
-                        if(null != useMessenger) {
-                                useMessenger.close();
+                        // If we are still holding the same messenger, kill it.
+                        if(useMessenger == messenger) {
+                                queueStallAt = Math.min(queueStallAt, TimeUtils.toAbsoluteTimeMillis(stallTimeout));
+                                messenger = null;
+                        } else {
                                 useMessenger = null;
                         }
 
                     }
+
+                    // If we're here, we decided to close the messenger. We do
+                    // that out of sync.
+                    Logging.logCheckedInfo(LOG, "Giving up on unusable messenger : ", useMessenger, "\n", failure);
+
+                    if(null != useMessenger) {
+                            useMessenger.close();
+                            useMessenger = null;
+                    }
+
                 }
 
             } catch (Throwable all) {
@@ -310,7 +434,16 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 
                 // Re-register with the selector for future messages.
                 synchronized(this) {
-                    if((null != messenger) && isOpen()) {
+                    if (reschedule && !isOpen()) {
+                        reschedule = false;
+                    }
+
+                    // Idle clients do not accumulate credit.
+                    if (!reschedule) {
+                        deficit = 0;
+                    }
+
+                    if(!reschedule && !parked && (null != messenger) && isOpen()) {
 
                         try {
 
@@ -324,9 +457,72 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
                         }
                     }
                 }
+
+                if (null != parkedOn) {
+                    MessengerStateListener resumer = new ResumeListener();
+
+                    parkedOn.addStateListener(resumer);
+
+                    // It may have become free before we listened.
+                    if (0 == (parkedOn.getState() & Messenger.SATURATED)) {
+                        parkedOn.removeStateListener(resumer);
+                        resume();
+                    }
+                }
+            }
+
+            return reschedule;
+	}
+
+	/**
+	 *  Makes a parked client selectable again.
+	 */
+	private synchronized void resume() {
+
+            if (!parked) return;
+
+            parked = false;
+
+            if (!isOpen()) return;
+
+            try {
+
+                register(server.selector, SelectionKey.OP_WRITE, null);
+                setReadyOps(SelectionKey.OP_WRITE);
+                server.selector.wakeup();
+
+            } catch(ClosedChannelException betterNotBe) {
+
+                Logging.logCheckedSevere(LOG, "Channel unexpectedly closed!\n", betterNotBe);
+
             }
 	}
 
+	/**
+	 *  Resumes the parked client once its messenger is no longer saturated,
+	 *  or no longer usable. Messengers report their state changes holding
+	 *  their own locks, so the client is resumed from the shared executor.
+	 */
+	private class ResumeListener implements MessengerStateListener {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean messengerStateChanged(int newState) {
+			if (0 != (newState & Messenger.SATURATED)) {
+				return true;
+			}
+
+			server.group.getTaskManager().getExecutorService().execute(new Runnable() {
+				public void run() {
+					resume();
+				}
+			});
+
+			return false;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -357,7 +553,11 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
             queueStallAt = 0;
             leaseExpireAt = 0;
 
-            messageList.clear();
+            synchronized (this) {
+                messageList.clear();
+                queuedBytes = 0;
+                unsentMessage = null;
+            }
 
 	}
 
@@ -410,17 +610,52 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 	/**
 	 *  Returns the number of items we have queued for the client.
 	 *
-	 *  @return The number of queued messages including the out of band message.
+	 *  @return The number of queued messages including the out of band message
+	 *  and the message our messenger did not accept yet.
 	 */
 	private int getQueueSize() {
-		return (null != outOfBandMessage) ? 1 : 0 + messageList.size();
+		return ((null != outOfBandMessage) ? 1 : 0) + ((null != unsentMessage) ? 1 : 0) + messageList.size();
 	}
 
 	/**
 	 * Remove all queued messages. The Out of band message (if any) is retained.
 	 */
-	void flushQueue() {
+	synchronized void flushQueue() {
 		messageList.clear();
+		queuedBytes = 0;
+	}
+
+	/**
+	 * Make room for a message of the specified size by dropping the oldest
+	 * queued messages for non-critical services.
+	 *
+	 * @param size The size of the message we want to queue.
+	 * @return {@code true} if there is now room for the message.
+	 */
+	private boolean makeRoom(long size) {
+		Iterator<QueuedMessage> eachQueued = messageList.iterator();
+
+		while (!hasRoom(size) && eachQueued.hasNext()) {
+			QueuedMessage queued = eachQueued.next();
+
+			if (queued.isDroppable()) {
+				eachQueued.remove();
+				queuedBytes -= queued.size;
+
+				Logging.logCheckedFine(LOG, "Dropping oldest ", queued.message, " for peer ", clientPeerId);
+			}
+		}
+
+		return hasRoom(size);
+	}
+
+	/**
+	 * Returns {@code true} if a message of the specified size fits within the
+	 * queue length and byte budget. An empty queue always accepts a message.
+	 */
+	private boolean hasRoom(long size) {
+		return (messageList.remainingCapacity() > 0)
+				&& ((0 == queuedBytes) || (queuedBytes + size <= clientQueueBytes));
 	}
 
 	/**
@@ -499,8 +734,11 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 
                     Logging.logCheckedFine(LOG, "Messenger (", messenger, ")");
 
-                    // If we had no previous messenger then register this channel.
-                    if(null == messengerToClose) {
+                    // If we had no previous messenger, or were parked waiting
+                    // for it, then register this channel.
+                    if((null == messengerToClose) || parked) {
+
+                        parked = false;
 
                         try {
 
@@ -556,15 +794,21 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
 
                 } else {
 
-                    // We will simply discard the new msg when the queue is full
-                    // to avoid penalty of dropping earlier reliable message
-                    if (!messageList.offer(qm)) {
+                    // When the queue is full we first drop the oldest messages of
+                    // non-critical services. If that is not enough we discard
+                    // the new msg to avoid penalty of dropping earlier reliable
+                    // message
+                    if (!makeRoom(qm.size) || !messageList.offer(qm)) {
 
                         Logging.logCheckedWarning(LOG, "Dropping ", message, " for peer ", clientPeerId);
 
-                    } else if( (messageList.size() % 50 == 0) ) {
+                    } else {
 
-                        Logging.logCheckedInfo(LOG, "Message queue size for client ", clientPeerId, " now ", messageList.size());
+                        queuedBytes += qm.size;
+
+                        if( (messageList.size() % 50 == 0) ) {
+                            Logging.logCheckedInfo(LOG, "Message queue size for client ", clientPeerId, " now ", messageList.size());
+                        }
 
                     }
 
@@ -578,7 +822,7 @@ class RelayServerClient extends AbstractSelectableChannel implements Runnable {
                 // purpose.
                 if ((null == messenger) || (0 == (messenger.getState() & Messenger.USABLE))) {
                     queueStallAt = Math.min(queueStallAt, TimeUtils.toAbsoluteTimeMillis(stallTimeout));
-                } else {
+                } else if (!parked) {
                     setReadyOps(SelectionKey.OP_WRITE);
                 }
 
@@ -70,10 +70,15 @@ import net.jxta.endpoint.StringMessageElement;
 import net.jxta.exception.PeerGroupException;
 import net.jxta.id.ID;
 import net.jxta.logging.Logging;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -91,7 +96,7 @@ import net.jxta.pipe.PipeService;
  * GETSERVER - message contains PEERID.
  */
 
-public final class RelayTransport implements EndpointListener, Module {
+public final class RelayTransport implements EndpointListener, DependentModule {
 
     /**
      * Logger
@@ -224,6 +229,13 @@ public final class RelayTransport implements EndpointListener, Module {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.discoveryClassID, IModuleDefinitions.pipeClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -56,12 +56,16 @@
 
 package net.jxta.impl.endpoint.router;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -73,6 +77,7 @@ import net.jxta.endpoint.EndpointAddress;
 import net.jxta.endpoint.EndpointService;
 import net.jxta.endpoint.Messenger;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.WarmRestartSnapshot;
 import net.jxta.logging.Logging;
 
 /**
@@ -110,6 +115,11 @@ class Destinations {
 
     private final ConcurrentHashMap<EndpointAddress, Wisdom> wisdoms = new ConcurrentHashMap<EndpointAddress, Wisdom>(64);
 
+    /**
+     * Name of the warm restart snapshot of the outgoing wisdom.
+     */
+    private static final String SNAPSHOT_NAME = "Destinations";
+
     /**
      * If {@code true} then we are shutting down.
      */
@@ -187,6 +197,19 @@ class Destinations {
             }
         }
 
+        /**
+         * Restores the outgoing messenger information saved by a previous
+         * instance. The messenger itself is obtained again when first needed.
+         *
+         * @param xportDest The transport destination of the messenger.
+         * @param expiresAt When the information expires, in absolute milliseconds.
+         */
+        Wisdom(EndpointAddress xportDest, long expiresAt) {
+            this.outgoingMessenger = new SoftReference<Messenger>(null);
+            this.xportDest = xportDest;
+            this.expiresAt = expiresAt;
+        }
+
         /**
          * Reports whether a welcome message is needed. The first time we're 
          * asked we say "true". Subsequently, always "false".
@@ -412,7 +435,9 @@ class Destinations {
 
         this.endpoint = endpoint;
 
-        ScheduledExecutorService executor = endpoint.getGroup().getTaskManager().getScheduledExecutorService();
+        restore();
+
+        ScheduledExecutorService executor = endpoint.getGroup().getTaskManager().getCoarseScheduledExecutorService();
         wisdomGCHandle = executor.scheduleAtFixedRate(new WisdomGCTask(), 60, 60, TimeUnit.SECONDS);
     }
 
@@ -422,12 +447,68 @@ class Destinations {
     public void close() {
         stopped = true;
 
+        save();
+
         // forget everything.
         wisdoms.clear();
 
         wisdomGCHandle.cancel(false);
     }
 
+    /**
+     * Saves the outgoing wisdom which has not expired, for a warm restart.
+     * Incoming messengers cannot be obtained again and are not saved.
+     */
+    private void save() {
+        WarmRestartSnapshot.save(endpoint.getGroup(), SNAPSHOT_NAME, new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                for (Map.Entry<EndpointAddress, Wisdom> anEntry : wisdoms.entrySet()) {
+                    Wisdom wisdom = anEntry.getValue();
+
+                    synchronized (wisdom) {
+                        if ((null == wisdom.outgoingMessenger) || (null == wisdom.xportDest)
+                                || (TimeUtils.toRelativeTimeMillis(wisdom.expiresAt) < 0)) {
+                            continue;
+                        }
+
+                        out.writeBoolean(true);
+                        out.writeUTF(anEntry.getKey().toString());
+                        out.writeUTF(wisdom.xportDest.toString());
+                        out.writeLong(wisdom.expiresAt);
+                    }
+                }
+
+                out.writeBoolean(false);
+            }
+        });
+    }
+
+    /**
+     * Restores the outgoing wisdom saved by {@link #save()} which has not expired.
+     */
+    private void restore() {
+        WarmRestartSnapshot.load(endpoint.getGroup(), SNAPSHOT_NAME, new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                int restored = 0;
+
+                while (in.readBoolean()) {
+                    EndpointAddress destination = new EndpointAddress(in.readUTF());
+                    EndpointAddress xportDest = new EndpointAddress(in.readUTF());
+                    long expiresAt = in.readLong();
+
+                    if (TimeUtils.toRelativeTimeMillis(expiresAt) < 0) {
+                        continue;
+                    }
+
+                    addWisdom(destination, new Wisdom(xportDest, expiresAt));
+                    restored++;
+                }
+
+                Logging.logCheckedFine(LOG, "Restored wisdom about ", restored, " destinations");
+            }
+        });
+    }
+
     /**
      * Handles cleanup of expired wisdoms
      */
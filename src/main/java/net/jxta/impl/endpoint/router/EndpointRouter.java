@@ -60,6 +60,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -100,14 +101,16 @@ import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
 import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.AccessPointAdvertisement;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.PeerAdvertisement;
 import net.jxta.protocol.RouteAdvertisement;
 import net.jxta.service.Service;
 
-public class EndpointRouter implements EndpointListener, EndpointRoutingTransport, MessageReceiver, MessageSender, MessengerEventListener, Module {
+public class EndpointRouter implements EndpointListener, EndpointRoutingTransport, MessageReceiver, MessageSender, MessengerEventListener, DependentModule {
 
     /**
      * Logger
@@ -278,7 +281,7 @@ public class EndpointRouter implements EndpointListener, EndpointRoutingTranspor
             this.peerID = peerID;
             // We schedule for one tick at one minute and another at 5 minutes
             // after the second, we cancel ourselves.
-            setHandle(group.getTaskManager().getScheduledExecutorService().scheduleAtFixedRate(this, 60, 60 * 5, TimeUnit.SECONDS));
+            setHandle(group.getTaskManager().getCoarseScheduledExecutorService().scheduleAtFixedRate(this, 60, 60 * 5, TimeUnit.SECONDS));
             nextRouteResolveAt = TimeUtils.toAbsoluteTimeMillis(20L * TimeUtils.ASECOND);
         }
 
@@ -703,6 +706,13 @@ public class EndpointRouter implements EndpointListener, EndpointRoutingTranspor
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.resolverClassID, IModuleDefinitions.membershipClassID, IModuleDefinitions.rendezvousClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
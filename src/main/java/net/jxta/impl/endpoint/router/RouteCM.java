@@ -65,6 +65,7 @@ import net.jxta.id.ID;
 import net.jxta.impl.endpoint.EndpointUtils;
 import net.jxta.impl.util.LRUCache;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.WarmRestartSnapshot;
 import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
 import net.jxta.peergroup.PeerGroup;
@@ -74,6 +75,8 @@ import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.PeerAdvertisement;
 import net.jxta.protocol.RouteAdvertisement;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -109,6 +112,11 @@ class RouteCM implements Module {
      */
     public final static boolean USE_CM_DEFAULT = true;
 
+    /**
+     * Name of the warm restart snapshot of the recently published routes.
+     */
+    private final static String SNAPSHOT_NAME = "RouteCM";
+
     /**
      * If {@code true} then the CM is used to persistently store route
      * advertisements. If {@code false} then only the in-memory route table is
@@ -193,6 +201,11 @@ class RouteCM implements Module {
     public int startApp(String[] arg) {
         // ok, we are initialized, go ahead and enable CM usage desired
         useCM = useCMConfig;
+
+        if (useCM) {
+            restoreRoutes();
+        }
+
         return Module.START_OK;
     }
 
@@ -200,9 +213,69 @@ class RouteCM implements Module {
      * {@inheritDoc}
      */
     public void stopApp() {
+        if (useCM) {
+            saveRoutes();
+        }
+
         useCM = false;
     }
 
+    /**
+     * Saves the recently published routes, for a warm restart. The routes
+     * themselves are persisted by the CM; this spares looking them up there
+     * and publishing them again.
+     */
+    private void saveRoutes() {
+        final List<RouteAdvertisement> routes = lruCache.values();
+
+        if (routes.isEmpty()) {
+            return;
+        }
+
+        WarmRestartSnapshot.save(group, SNAPSHOT_NAME, new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                out.writeInt(routes.size());
+
+                for (RouteAdvertisement route : routes) {
+                    WarmRestartSnapshot.writeAdvertisement(out, route);
+                }
+            }
+        });
+    }
+
+    /**
+     * Restores the routes saved by {@link #saveRoutes()} while their
+     * publication in the CM has not expired.
+     */
+    private void restoreRoutes() {
+        WarmRestartSnapshot.load(group, SNAPSHOT_NAME, new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                if (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), savedAt) >= DEFAULT_EXPIRATION) {
+                    return;
+                }
+
+                List<RouteAdvertisement> routes = new ArrayList<RouteAdvertisement>();
+
+                for (int each = in.readInt(); each > 0; each--) {
+                    Advertisement adv = WarmRestartSnapshot.readAdvertisement(in);
+
+                    if ((adv instanceof RouteAdvertisement) && (null != ((RouteAdvertisement) adv).getDestPeerID())) {
+                        routes.add((RouteAdvertisement) adv);
+                    }
+                }
+
+                // Least recently used first, to restore the order of the cache.
+                Collections.reverse(routes);
+
+                for (RouteAdvertisement route : routes) {
+                    lruCache.put(route.getDestPeerID(), route);
+                }
+
+                Logging.logCheckedFine(LOG, "Restored ", routes.size(), " routes");
+            }
+        });
+    }
+
     /**
      * return routeCM usage
      *
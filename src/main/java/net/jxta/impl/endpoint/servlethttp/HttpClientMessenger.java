@@ -88,6 +88,13 @@ import java.util.logging.Logger;
  *
  *  <p/>URL/HttpURLConnection is used, so (depending on your JDK) you will get
  *  reasonably good persistent connection management.
+ *
+ *  <p/>When the {@code net.jxta.impl.endpoint.servlethttp.HttpClientMessenger.streaming}
+ *  system property is {@code true} the poller asks the servlet for a
+ *  streaming back channel. The servlet then keeps the (chunked) response open
+ *  for as long as messages keep flowing, pushes each message as soon
+ *  as it is available and the poller reconnects immediately once a stream
+ *  ends.
  */
 final class HttpClientMessenger extends BlockingMessenger {
 
@@ -101,6 +108,17 @@ final class HttpClientMessenger extends BlockingMessenger {
      */
     private final static int MIMIMUM_POLL_INTERVAL = (int) (5 * TimeUtils.ASECOND);
 
+    /**
+     *  Name of the system property which enables streaming polls.
+     */
+    final static String STREAMING_PROPERTY = HttpClientMessenger.class.getName() + ".streaming";
+
+    /**
+     *  Amount of time the servlet may leave a streaming back channel idle
+     *  before ending the response. Our read timeout must exceed this.
+     */
+    private final static int STREAM_IDLE_TIMEOUT = (int) (1 * TimeUtils.AMINUTE);
+
     /**
      *  Amount of time to wait for connections to open.
      */
@@ -169,6 +187,11 @@ final class HttpClientMessenger extends BlockingMessenger {
      */
     private MessagePoller poller = null;
 
+    /**
+     *  If {@code true} then we poll using a streaming back channel.
+     */
+    private final boolean streaming = Boolean.getBoolean(STREAMING_PROPERTY);
+
     /**
      *  Constructs the messenger.
      *
@@ -440,7 +463,7 @@ final class HttpClientMessenger extends BlockingMessenger {
             beginConnectTime = TimeUtils.timeNow();
         }
 
-        WireFormatMessage serialed = WireFormatMessageFactory.toWireExternal(msg, EndpointServiceImpl.DEFAULT_MESSAGE_TYPE, null, this.servletHttpTransport.group);
+        WireFormatMessage serialed = WireFormatMessageFactory.toWireExternal(msg, EndpointServiceImpl.DEFAULT_MESSAGE_TYPE, null, this.servletHttpTransport.group, ServletHttpTransport.addr2pid(logicalDest));
 
         for (int connectAttempt = 1; connectAttempt <= CONNECT_RETRIES; connectAttempt++) {
 
@@ -571,11 +594,14 @@ final class HttpClientMessenger extends BlockingMessenger {
              * The timeout's are expressed in milliseconds. -1 means do not wait
              * at all, 0 means wait forever.
              */
+            int responseTimeout = streaming ? STREAM_IDLE_TIMEOUT : RESPONSE_TIMEOUT;
+            int extraResponseTimeout = streaming ? STREAM_IDLE_TIMEOUT : EXTRA_RESPONSE_TIMEOUT;
+
             try {
                 pollingURL = new URL(senderURL,
                         "/" + pollAddress + 
-                        "?" + Integer.toString(RESPONSE_TIMEOUT) + "," +
-                        Integer.toString(EXTRA_RESPONSE_TIMEOUT) + "," + 
+                        "?" + Integer.toString(responseTimeout) + "," +
+                        Integer.toString(extraResponseTimeout) + "," + 
                         destAddr);
             } catch (MalformedURLException badAddr) {
                 IllegalArgumentException failure = new IllegalArgumentException("Could not construct polling URL");
@@ -637,6 +663,7 @@ final class HttpClientMessenger extends BlockingMessenger {
                 long beginConnectTime = 0;
                 long connectTime = 0;
                 long noReconnectBefore = 0;
+                long pollBeganTime = 0;
                 HttpURLConnection conn = null;
 
                 Logging.logCheckedInfo(LOG, "Message polling beings for ", pollingURL);
@@ -658,7 +685,13 @@ final class HttpClientMessenger extends BlockingMessenger {
                         conn.setAllowUserInteraction(false);
                         conn.setUseCaches(false);
                         conn.setConnectTimeout(CONNECT_TIMEOUT);
-                        conn.setReadTimeout(RESPONSE_TIMEOUT);
+
+                        if (streaming) {
+                            conn.setRequestProperty(HttpMessageServlet.STREAMING_REQUEST_HEADER, "true");
+                            conn.setReadTimeout(STREAM_IDLE_TIMEOUT + CONNECT_TIMEOUT);
+                        } else {
+                            conn.setReadTimeout(RESPONSE_TIMEOUT);
+                        }
 
                         if (TransportMeterBuildSettings.TRANSPORT_METERING) {
                             beginConnectTime = TimeUtils.timeNow();
@@ -691,6 +724,8 @@ final class HttpClientMessenger extends BlockingMessenger {
                             Logging.logCheckedFine(LOG, "Reconnect attempt for ", senderURL);
                         }
 
+                        pollBeganTime = TimeUtils.timeNow();
+
                         // Always connect (no cost if connected).
                         conn.connect();
 
@@ -705,7 +740,11 @@ final class HttpClientMessenger extends BlockingMessenger {
                                     conn.getHeaderField("Transfer-Encoding"));
 
                         connectTime = TimeUtils.timeNow();
-                        noReconnectBefore = TimeUtils.toAbsoluteTimeMillis(MIMIMUM_POLL_INTERVAL, connectTime);
+
+                        // A stream which stayed open for longer than the poll
+                        // interval can be re-established right away. Only
+                        // streams which end quickly are held back.
+                        noReconnectBefore = TimeUtils.toAbsoluteTimeMillis(MIMIMUM_POLL_INTERVAL, streaming ? pollBeganTime : connectTime);
 
 			if (0 == conn.getContentLength()) {
 			    conn.disconnect();
@@ -794,13 +833,14 @@ final class HttpClientMessenger extends BlockingMessenger {
 
                     // start receiving messages
                     try {
+                        // A streaming response is read until the servlet ends it.
                         while (!isStopped()
-                                && (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), connectTime) < RESPONSE_TIMEOUT)) {
+                                && (streaming || (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), connectTime) < RESPONSE_TIMEOUT))) {
                             // read a message!
                             long messageReceiveStart = TimeUtils.timeNow();
                             Message incomingMsg;
 
-                            incomingMsg = WireFormatMessageFactory.fromWireExternal(inputStream, messageType, null, HttpClientMessenger.this.servletHttpTransport.group);
+                            incomingMsg = WireFormatMessageFactory.fromWireExternalDeferred(inputStream, messageType, null, HttpClientMessenger.this.servletHttpTransport.group);
 
                             if (TransportMeterBuildSettings.TRANSPORT_METERING && (transportBindingMeter != null)) {
                                 transportBindingMeter.messageReceived(true, incomingMsg, incomingMsg.getByteLength(),
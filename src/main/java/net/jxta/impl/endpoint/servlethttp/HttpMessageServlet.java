@@ -89,6 +89,12 @@ import java.util.logging.Logger;
  *
  *  <p/>It also supports a ping operation. When the URI is <tt>/</tt> the
  *  response consists of the unique value portion of the local peer id.
+ *
+ *  <p/>Polls which carry the {@link #STREAMING_REQUEST_HEADER} header are
+ *  treated as streaming back channels. The response is kept open for as long
+ *  as messages keep arriving (the extra response timeout becomes an idle
+ *  timeout) up to {@link #MAXIMUM_STREAM_DURATION}. Each message is flushed
+ *  as soon as it is written, and only then reported as sent.
  */
 public class HttpMessageServlet extends HttpServlet {
 
@@ -103,6 +109,18 @@ public class HttpMessageServlet extends HttpServlet {
      */
     private final static long MAXIMUM_RESPONSE_DURATION = 2 * TimeUtils.AMINUTE;
 
+    /**
+     *  The HTTP request header with which clients ask for a streaming back
+     *  channel.
+     */
+    final static String STREAMING_REQUEST_HEADER = "X-JXTA-Streaming";
+
+    /**
+     *  The maximum duration in milliseconds we will keep a streaming back
+     *  channel open.
+     */
+    private final static long MAXIMUM_STREAM_DURATION = 10 * TimeUtils.AMINUTE;
+
     /**
      *  Owner of this servlet.
      */
@@ -281,7 +299,9 @@ public class HttpMessageServlet extends HttpServlet {
 
             long messengerAliveFor;
 
-            if (0 == currentRequest.responseTimeout) {
+            if (currentRequest.streaming) {
+                messengerAliveFor = MAXIMUM_STREAM_DURATION;
+            } else if (0 == currentRequest.responseTimeout) {
                 messengerAliveFor = 0;
             } else {
                 messengerAliveFor = Math.max(currentRequest.responseTimeout, currentRequest.extraResponsesTimeout);
@@ -334,7 +354,7 @@ public class HttpMessageServlet extends HttpServlet {
 
                     // FIXME 20040927 bondolo Should get message encoding from http header.
                     try {
-                        incomingMessage = WireFormatMessageFactory.fromWireExternal(in, contentMimeType, null, this.servletHttpTransport.group);
+                        incomingMessage = WireFormatMessageFactory.fromWireExternalDeferred(in, contentMimeType, null, this.servletHttpTransport.group);
                     } catch (NoSuchElementException noValidWireFormat) {
                         IOException failure = new IOException("Unrecognized content type MIME type : " + contentType);
 
@@ -387,6 +407,8 @@ public class HttpMessageServlet extends HttpServlet {
                         ? Long.MAX_VALUE
                         : TimeUtils.toAbsoluteTimeMillis(currentRequest.requestStartTime, currentRequest.responseTimeout);
 
+                long streamExpiresAt = TimeUtils.toAbsoluteTimeMillis(MAXIMUM_STREAM_DURATION, currentRequest.requestStartTime);
+
                 while ((0 != (messenger.getState() & Messenger.USABLE)) && !destroyed) {
                     long remaining = TimeUtils.toRelativeTimeMillis(quitAt);
 
@@ -452,7 +474,7 @@ public class HttpMessageServlet extends HttpServlet {
                     }
 
                     // send the message
-                    WireFormatMessage serialed = WireFormatMessageFactory.toWireExternal(outMsg, EndpointServiceImpl.DEFAULT_MESSAGE_TYPE, null, this.servletHttpTransport.group);
+                    WireFormatMessage serialed = WireFormatMessageFactory.toWireExternal(outMsg, EndpointServiceImpl.DEFAULT_MESSAGE_TYPE, null, this.servletHttpTransport.group, ServletHttpTransport.addr2pid(currentRequest.requestorAddr));
 
                     // if only one message is being returned, set the content
                     // length, otherwise try to use chunked encoding.
@@ -466,13 +488,19 @@ public class HttpMessageServlet extends HttpServlet {
                     // get the output stream for the response
                     OutputStream out = res.getOutputStream();
 
+                    // The message whose result has not yet been reported to the messenger.
+                    Message unreported = outMsg;
+
                     // send the message
                     try {
 
                         serialed.sendToStream(out);
                         out.flush();
 
+                        // Only a message which reached the client is reported
+                        // as sent. The messenger then hands us the next one.
                         messenger.messageSent(true);
+                        unreported = null;
 
                         Logging.logCheckedFine(LOG, "Successfully sent ", outMsg, " on back channel to ", req.getRemoteHost());
 
@@ -487,7 +515,8 @@ public class HttpMessageServlet extends HttpServlet {
                     } catch (IOException ex) {
 
                         Logging.logCheckedFine(LOG, "Failed sending Message on back channel to ", req.getRemoteHost());
-                        messenger.messageSent(false);
+
+                        if (null != unreported) messenger.messageSent(false);
 
                         if (TransportMeterBuildSettings.TRANSPORT_METERING && (transportBindingMeter != null)) {
                             transportBindingMeter.connectionDropped(false,
@@ -500,8 +529,13 @@ public class HttpMessageServlet extends HttpServlet {
                         res.flushBuffer();
                     }
 
-                    // Adjust the quit time based upon the extra response time available.
-                    if (0 == currentRequest.extraResponsesTimeout) {
+                    // Adjust the quit time based upon the extra response time
+                    // available. For streams it is an idle time.
+                    if (currentRequest.streaming) {
+                        quitAt = (0 == currentRequest.extraResponsesTimeout)
+                                ? streamExpiresAt
+                                : Math.min(TimeUtils.toAbsoluteTimeMillis(currentRequest.extraResponsesTimeout), streamExpiresAt);
+                    } else if (0 == currentRequest.extraResponsesTimeout) {
                         quitAt = Long.MAX_VALUE;
                     } else {
                         quitAt = TimeUtils.toAbsoluteTimeMillis(currentRequest.requestStartTime, currentRequest.extraResponsesTimeout);
@@ -690,6 +724,11 @@ public class HttpMessageServlet extends HttpServlet {
          */
         final boolean messageContent;
 
+        /**
+         *  If <tt>true</tt> then the requestor wants a streaming back channel.
+         */
+        final boolean streaming;
+
         /**
          *  Construct a request.
          */
@@ -742,10 +781,14 @@ public class HttpMessageServlet extends HttpServlet {
             // check for incoming message
             messageContent = hasMessageContent(req);
 
+            // Only polls which accept additional responses can be streamed.
+            streaming = Boolean.parseBoolean(req.getHeader(STREAMING_REQUEST_HEADER))
+                    && (responseTimeout >= 0) && (extraResponsesTimeout >= 0) && (null != destAddr);
+
             Logging.logCheckedFiner(LOG,
                         "New JXTA Request for Requestor=", requestorAddr, "\n\tResponse Timeout=", responseTimeout,
                         "\tAdditional Response Timeout=", extraResponsesTimeout, "\tRequest Destination Address=", destAddr,
-                        "\tHas Message Content=", Boolean.toString(messageContent));
+                        "\tHas Message Content=", Boolean.toString(messageContent), "\tStreaming=", Boolean.toString(streaming));
 
         }
 
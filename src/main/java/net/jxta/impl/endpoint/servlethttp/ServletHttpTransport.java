@@ -63,6 +63,7 @@ import net.jxta.endpoint.EndpointAddress;
 import net.jxta.endpoint.EndpointService;
 import net.jxta.exception.PeerGroupException;
 import net.jxta.id.ID;
+import net.jxta.id.IDFactory;
 import net.jxta.impl.endpoint.IPUtils;
 import net.jxta.impl.endpoint.transportMeter.TransportBindingMeter;
 import net.jxta.impl.endpoint.transportMeter.TransportMeter;
@@ -72,15 +73,22 @@ import net.jxta.impl.meter.MonitorManager;
 import net.jxta.impl.protocol.HTTPAdv;
 import net.jxta.logging.Logging;
 import net.jxta.meter.MonitorResources;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.TransportAdvertisement;
 
 import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
@@ -96,7 +104,7 @@ import java.util.logging.Logger;
  * <li>An HTTP-server-based message receiver</li>
  * </ul>
  */
-public final class ServletHttpTransport implements Module {
+public final class ServletHttpTransport implements DependentModule {
 
     /**
      * Logger
@@ -309,6 +317,13 @@ public final class ServletHttpTransport implements Module {
 		return group;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Collection<ModuleClassID> getStartDependencies() {
+		return Arrays.asList(IModuleDefinitions.endpointClassID);
+	}
+
 	/**
      * {@inheritDoc}
      */
@@ -474,4 +489,29 @@ public final class ServletHttpTransport implements Module {
     TransportBindingMeter getUnknownTransportBindingMeter() {
         return unknownTransportBindingMeter;
     }
+
+    /**
+     * Convert the logical address of a peer into its PeerID. Messages to a
+     * known peer may be authenticated by a CBJX MAC session.
+     *
+     * @param addr the address to extract the peer id from.
+     * @return the PeerID or {@code null} if the address is not a peer address.
+     */
+    static ID addr2pid(EndpointAddress addr) {
+        if (null == addr) {
+            return null;
+        }
+
+        try {
+
+            return IDFactory.fromURI(new URI(ID.URIEncodingName, ID.URNNamespace + ":" + addr.getProtocolAddress(), null));
+
+        } catch (URISyntaxException ex) {
+
+            Logging.logCheckedFine(LOG, "Not a peer address : ", addr, "\n", ex);
+
+        }
+
+        return null;
+    }
 }
@@ -0,0 +1,281 @@
+package net.jxta.impl.endpoint.tcp;
+
+import net.jxta.logging.Logging;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A selector event loop reading from the channels registered with it.
+ * <p/>
+ * A channel is registered once, when its connection is established, and
+ * stays registered for {@code OP_READ} until it is unregistered. When it is
+ * readable its {@link ReadHandler} is called on the loop thread to read and
+ * frame whatever is available. Only complete messages leave the loop. The
+ * interest set of a channel never changes, so reads cost no selector wakeup.
+ * <p/>
+ * The {@link TcpTransport} runs several loops and shares its connections
+ * between them.
+ */
+class MessengerSelectorLoop implements Runnable {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = Logger.getLogger(MessengerSelectorLoop.class.getName());
+
+    /**
+     * Reads from a channel registered with a loop.
+     */
+    interface ReadHandler {
+
+        /**
+         * Called on the loop thread when the channel is readable. Reads and
+         * frames the available data without blocking and hands the complete
+         * messages to other threads.
+         */
+        void readAvailable();
+
+        /**
+         * Called on the loop thread if the channel could not be registered.
+         */
+        void close();
+    }
+
+    private final String name;
+
+    private final Selector selector;
+
+    /**
+     * A channel waiting to be registered with the selector.
+     */
+    private static final class Registration {
+
+        final SocketChannel channel;
+
+        final ReadHandler handler;
+
+        Registration(SocketChannel channel, ReadHandler handler) {
+            this.channel = channel;
+            this.handler = handler;
+        }
+    }
+
+    private final Queue<Registration> pendingRegistrations = new ConcurrentLinkedQueue<Registration>();
+
+    private final Queue<SocketChannel> pendingUnregistrations = new ConcurrentLinkedQueue<SocketChannel>();
+
+    /**
+     * {@code true} if the selector has been woken for pending
+     * registrations which the loop has not yet processed.
+     */
+    private final AtomicBoolean woken = new AtomicBoolean(false);
+
+    /**
+     * The number of channels waiting to be registered.
+     */
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    /**
+     * The number of channels registered with the selector, as last seen by
+     * the loop.
+     */
+    private volatile int registered = 0;
+
+    private volatile boolean closed = false;
+
+    MessengerSelectorLoop(String name) throws IOException {
+        this.name = name;
+        this.selector = SelectorProvider.provider().openSelector();
+    }
+
+    /**
+     * @return The number of channels registered with this loop. A channel
+     * being registered may briefly be counted twice, but is never missed.
+     */
+    int getChannelCount() {
+        return registered + pending.get();
+    }
+
+    /**
+     * Registers a non-blocking channel for reading. The handler is
+     * attached to the channel.
+     *
+     * @param channel the socket channel.
+     * @param handler the handler reading from the channel.
+     */
+    void register(SocketChannel channel, ReadHandler handler) {
+        pending.incrementAndGet();
+        pendingRegistrations.add(new Registration(channel, handler));
+        wakeup();
+    }
+
+    /**
+     * Unregisters a channel. The channel is not closed.
+     *
+     * @param channel the socket channel.
+     */
+    void unregister(SocketChannel channel) {
+        pendingUnregistrations.add(channel);
+        wakeup();
+    }
+
+    /**
+     * Stops the loop.
+     */
+    void close() {
+        closed = true;
+
+        try {
+            selector.close();
+        } catch (IOException failed) {
+            Logging.logCheckedWarning(LOG, "IO error occured while closing selector\n", failed);
+        }
+    }
+
+    /**
+     * Wakes the selector unless it was already woken for changes it has not
+     * yet processed.
+     */
+    private void wakeup() {
+        if (woken.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run() {
+
+        try {
+
+            Logging.logCheckedInfo(LOG, name, " polling started");
+
+            while (!closed) {
+                try {
+
+                    // Changes queued from now on need a new wakeup.
+                    woken.set(false);
+                    updateChannelRegistrations();
+
+                    int selectedKeys = selector.select();
+
+                    // the key set also drops the keys of closed channels when selecting
+                    registered = selector.keys().size();
+
+                    if (selectedKeys == 0) {
+                        // We were probably just woken.
+                        continue;
+                    }
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+
+                        // remove it from the SelectedKeys Set
+                        it.remove();
+
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                ((ReadHandler) key.attachment()).readAvailable();
+                            }
+                        } catch (CancelledKeyException cce) {
+                            // in case the key was canceled after the selection
+                        } catch (RuntimeException failed) {
+                            // a misbehaving connection must not stop the loop
+                            Logging.logCheckedSevere(LOG, "Uncaught exception reading from ", key.channel(), "\n", failed);
+                        }
+                    }
+
+                } catch (ClosedSelectorException cse) {
+
+                    Logging.logCheckedFine(LOG, "IO Selector closed");
+
+                } catch (IOException e1) {
+
+                    Logging.logCheckedWarning(LOG, "An exception occurred while selecting keys\n", e1);
+
+                }
+            }
+
+        } catch (Throwable all) {
+
+            Logging.logCheckedSevere(LOG, "Uncaught Throwable\n", all);
+
+        } finally {
+
+            Logging.logCheckedInfo(LOG, name, " polling stopped");
+
+        }
+    }
+
+    /**
+     * Registers the newly established channels and cancels the keys of the
+     * closing ones.
+     */
+    private void updateChannelRegistrations() {
+
+        Registration registration;
+
+        while (null != (registration = pendingRegistrations.poll())) {
+            ReadHandler handler = registration.handler;
+
+            try {
+
+                registration.channel.register(selector, SelectionKey.OP_READ, handler);
+
+            } catch (ClosedChannelException e) {
+
+                Logging.logCheckedFine(LOG, "Channel closed before it could be registered\n", e);
+                handler.close();
+
+            } catch (IllegalBlockingModeException e) {
+
+                Logging.logCheckedWarning(LOG, "Invalid blocking channel mode, closing messenger\n", e);
+                handler.close();
+
+            } finally {
+
+                // count the channel as registered before it stops being pending so that it is never missed
+                registered = selector.keys().size();
+                pending.decrementAndGet();
+
+            }
+        }
+
+        SocketChannel channel;
+        int cancelled = 0;
+
+        while (null != (channel = pendingUnregistrations.poll())) {
+            SelectionKey key = channel.keyFor(selector);
+
+            if ((null != key) && key.isValid()) {
+                key.cancel();
+                cancelled++;
+            }
+        }
+
+        // cancelled keys stay in the key set until the next selection
+        registered = selector.keys().size() - cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -73,6 +73,7 @@ import java.nio.channels.SocketChannel;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
@@ -99,7 +100,7 @@ import net.jxta.peer.PeerID;
 /**
  * Implements a messenger which sends messages via raw TCP sockets.
  */
-public class TcpMessenger extends BlockingMessenger implements Runnable {
+public class TcpMessenger extends BlockingMessenger implements MessengerSelectorLoop.ReadHandler {
 
     /**
      * Logger
@@ -112,6 +113,13 @@ public class TcpMessenger extends BlockingMessenger implements Runnable {
      */
     private static final int MAX_WRITE_ATTEMPTS = 3;
 
+    /**
+     * The number of reads made from a readable channel before the selector
+     * loop moves on to its other channels. The channel is selected again if
+     * data remains.
+     */
+    private static final int MAX_INLINE_READS = 16;
+
     /**
      * Description of our current location within the stream.
      */
@@ -168,6 +176,11 @@ public class TcpMessenger extends BlockingMessenger implements Runnable {
     private SocketChannel socketChannel = null;
     private boolean selfDestruct = true;
 
+    /**
+     * The selector loop reading from our channel, once registered.
+     */
+    private volatile MessengerSelectorLoop selectorLoop = null;
+
     private TransportBindingMeter transportBindingMeter;
 
     /**
@@ -461,7 +474,11 @@ public class TcpMessenger extends BlockingMessenger implements Runnable {
         if (socketChannel != null) {
 
             // unregister from selector.
-            tcpTransport.unregister(socketChannel);
+            MessengerSelectorLoop loop = selectorLoop;
+
+            if (null != loop) {
+                loop.unregister(socketChannel);
+            }
 
             try {
 
@@ -601,7 +618,12 @@ public class TcpMessenger extends BlockingMessenger implements Runnable {
         }
         if (!closed.get()) {
             socketChannel.configureBlocking(false);
-            tcpTransport.register(socketChannel, this);
+            selectorLoop = tcpTransport.register(socketChannel, this);
+
+            // we may have been closed while registering
+            if (closed.get()) {
+                selectorLoop.unregister(socketChannel);
+            }
         }
     }
 
@@ -879,21 +901,30 @@ public class TcpMessenger extends BlockingMessenger implements Runnable {
     /**
      * {@inheritDoc}
      * <p/>
-     * This is what gets run by the Executor. It reads whatever is available,
-     * processes it and then goes back to the selector waiting for more IO
+     * This is run by the selector loop. It reads whatever is available and
+     * frames it, the complete messages are processed by the executor. The
+     * channel stays registered with the loop meanwhile.
      */
-    public void run() {
+    public void readAvailable() {
         try {
+            int reads = 0;
+
             while (read()) {
                 List<Message> msgs = processBuffer();
                 for (Message msg : msgs) {
                     // Use the group's threadpool to process the message
-                    tcpTransport.executor.execute(new MessageProcessor(msg));
+                    try {
+                        tcpTransport.executor.execute(new MessageProcessor(msg));
+                    } catch (RejectedExecutionException re) {
+                        Logging.logCheckedFine(LOG, MessageFormat.format("Executor rejected message from messenger :{0}", this), "\n", re);
+                    }
                 }
-            }
 
-            // resets the interestOPS and wakeup the selector
-            if (socketChannel != null) tcpTransport.register(socketChannel, this);
+                // leave the rest for the next selection so that the other channels of the loop are served
+                if (++reads == MAX_INLINE_READS) {
+                    break;
+                }
+            }
 
         } catch (Throwable all) {
 
@@ -78,43 +78,37 @@ import net.jxta.impl.endpoint.transportMeter.TransportServiceMonitor;
 import net.jxta.impl.meter.MonitorManager;
 import net.jxta.impl.protocol.TCPAdv;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.threads.TaskManager;
 import net.jxta.logging.Logging;
 import net.jxta.meter.MonitorResources;
 import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.TransportAdvertisement;
 import java.io.IOException;
-import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.nio.channels.CancelledKeyException;
-import java.nio.channels.ClosedChannelException;
-import java.nio.channels.ClosedSelectorException;
-import java.nio.channels.IllegalBlockingModeException;
-import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.nio.channels.spi.SelectorProvider;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EmptyStackException;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.Stack;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -128,7 +122,7 @@ import java.util.logging.Logger;
  * @see net.jxta.endpoint.EndpointService
  * @see <a href="http://spec.jxta.org/v1.0/docbook/JXTAProtocols.html#trans-tcpipt">JXTA Protocols Specification : Standard JXTA Transport Bindings</a>
  */
-public class TcpTransport implements Module, MessageSender, MessageReceiver {
+public class TcpTransport implements DependentModule, MessageSender, MessageReceiver {
 
     /**
      * Logger
@@ -185,11 +179,18 @@ public class TcpTransport implements Module, MessageSender, MessageReceiver {
 
     private MessengerEventListener messengerEventListener = null;
 
-    private Thread messengerSelectorThread;
-    Selector messengerSelector = null;
+    /**
+     * The number of selector loops reading from the connections, by default
+     * one per processor.
+     */
+    private final static int SELECTOR_LOOPS = Math.max(1, Integer.getInteger(TcpTransport.class.getName() + ".selectorLoops",
+            Runtime.getRuntime().availableProcessors()).intValue());
 
-    private final Map<TcpMessenger, SocketChannel> regisMap = new ConcurrentHashMap<TcpMessenger, SocketChannel>();
-    private final Set<SocketChannel> unregisMap = Collections.synchronizedSet(new HashSet<SocketChannel>());
+    /**
+     * The selector loops reading from the connections, a connection is
+     * read by the same loop for its whole life.
+     */
+    private MessengerSelectorLoop[] selectorLoops = new MessengerSelectorLoop[0];
 
     /**
      * This is the thread group into which we will place all of the threads
@@ -384,7 +385,7 @@ public class TcpTransport implements Module, MessageSender, MessageReceiver {
         this.group = group;
         ModuleImplAdvertisement implAdvertisement = (ModuleImplAdvertisement) impl;
 
-        this.executor = group.getTaskManager().getExecutorService();
+        this.executor = group.getTaskManager().getExecutorLane(TaskManager.ENDPOINT_LANE);
 
         ConfigParams configAdv = group.getConfigAdvertisement();
 
@@ -655,6 +656,13 @@ public class TcpTransport implements Module, MessageSender, MessageReceiver {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -669,15 +677,31 @@ public class TcpTransport implements Module, MessageSender, MessageReceiver {
 
         }
 
+        MessengerSelectorLoop[] loops = new MessengerSelectorLoop[SELECTOR_LOOPS];
+
         try {
-            messengerSelector = SelectorProvider.provider().openSelector();
+            for (int each = 0; each < loops.length; each++) {
+                loops[each] = new MessengerSelectorLoop("TCP Transport MessengerSelectorLoop " + each + " for " + this);
+            }
         } catch (IOException e) {
-            Logging.logCheckedWarning(LOG, "Could not create a messenger selector\n", e);
+            Logging.logCheckedSevere(LOG, "Could not create a messenger selector\n", e);
+
+            for (MessengerSelectorLoop loop : loops) {
+                if (null != loop) {
+                    loop.close();
+                }
+            }
+            return -1;
+        }
+
+        for (MessengerSelectorLoop loop : loops) {
+            Thread loopThread = new Thread(loop, loop.toString());
+
+            loopThread.setDaemon(true);
+            loopThread.start();
         }
 
-        messengerSelectorThread = new Thread(new MessengerSelectorThread(), "TCP Transport MessengerSelectorThread for " + this);
-        messengerSelectorThread.setDaemon(true);
-        messengerSelectorThread.start();
+        selectorLoops = loops;
 
         // We're fully ready to function.
         messengerEventListener = endpoint.addMessageTransport(this);
@@ -733,24 +757,12 @@ public class TcpTransport implements Module, MessageSender, MessageReceiver {
             unicastServer = null;
         }
 
-        Thread temp = messengerSelectorThread;
-
-        if (null != temp) {
-
-            temp.interrupt();
-
-            try {
-
-                messengerSelector.close();
-
-            } catch (IOException failed) {
-
-                Logging.logCheckedSevere(LOG, "IO error occured while closing server socket\n", failed);
-
-            }
-
+        for (MessengerSelectorLoop loop : selectorLoops) {
+            loop.close();
         }
 
+        selectorLoops = new MessengerSelectorLoop[0];
+
         // Inform the pool that we don't need as many write selectors.
         synchronized (writeSelectorCache) {
             extraWriteSelectors += MAX_WRITE_SELECTORS;
@@ -959,226 +971,32 @@ public class TcpTransport implements Module, MessageSender, MessageReceiver {
     }
 
     /**
-     * Waits for incoming data on channels and sends it to the appropriate
-     * messenger object.
-     */
-    private class MessengerSelectorThread implements Runnable {
-
-        /**
-         * {@inheritDoc}
-         */
-        public void run() {
-
-            try {
-
-                Logging.logCheckedInfo(LOG, "MessengerSelectorThread polling started");
-
-                while (!isClosed) {
-                    try {
-                        int selectedKeys = 0;
-
-                        // Update channel registerations.
-                        updateChannelRegisterations();
-
-                        try {
-                            // this can be interrupted through wakeup
-                            selectedKeys = messengerSelector.select();
-                        } catch (CancelledKeyException cke) {
-                            Logging.logCheckedFine(LOG, "Key was cancelled\n", cke);
-                        }
-
-                        Logging.logCheckedFine(LOG, MessageFormat.format("MessengerSelector has {0} selected keys", selectedKeys));
-
-                        if (selectedKeys == 0 && messengerSelector.selectNow() == 0) {
-                            // We were probably just woken.
-                            continue;
-                        }
-
-                        Set<SelectionKey> keySet = messengerSelector.selectedKeys();
-
-                        Logging.logCheckedFine(LOG, MessageFormat.format("KeySet has {0} selected keys", keySet.size()));
-
-                        Iterator<SelectionKey> it = keySet.iterator();
-
-                        while (it.hasNext()) {
-                            SelectionKey key = it.next();
-
-                            // remove it from the SelectedKeys Set
-                            it.remove();
-
-                            if (key.isValid()) {
-                                try {
-                                    if (key.isReadable() && key.channel().isOpen()) {
-                                        // ensure this channel is not selected again until the thread is done with it
-                                        // TcpMessenger is expected to reset the interestOps back to OP_READ
-                                        // Without this, expect multiple threads to execute on the same event, until
-                                        // the first thread completes reading all data available
-                                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
-
-                                        // get the messenger
-                                        TcpMessenger msgr = (TcpMessenger) key.attachment();
-
-                                        // process the data
-                                        try {
-                                            executor.execute(msgr);
-                                        } catch (RejectedExecutionException re) {
-                                            Logging.logCheckedFine(LOG, MessageFormat.format("Executor rejected task for messenger :{0}", msgr.toString()),
-                                                "\n", re);
-                                        }
-                                    }
-                                } catch (CancelledKeyException cce) {
-                                    //in case the key was canceled after the selection
-                                }
-                            } else {
-                                // unregister it, no need to keep invalid/closed channels around
-                                try {
-                                    key.channel().close();
-                                } catch (IOException io) {
-                                    // avoids breaking out of the selector loop
-                                }
-                                key.cancel();
-                                key = null;
-                            }
-                        }
-
-                    } catch (ClosedSelectorException cse) {
-
-                        Logging.logCheckedFine(LOG, "IO Selector closed");
-
-                    } catch (InterruptedIOException woken) {
-
-                        Logging.logCheckedFine(LOG, "Thread inturrupted\n", woken);
-
-                    } catch (IOException e1) {
-
-                        Logging.logCheckedWarning(LOG, "An exception occurred while selecting keys\n", e1);
-
-                    } catch (SecurityException e2) {
-
-                        Logging.logCheckedWarning(LOG, "A security exception occurred while selecting keys\n", e2);
-
-                    }
-                }
-
-                // XXX 20070205 bondolo What should we do about the channels 
-                // that are still registered with the selector and any pending 
-                // updates?
-
-            } catch (Throwable all) {
-
-                Logging.logCheckedSevere(LOG, "Uncaught Throwable\n", all);
-
-            } finally {
-
-                messengerSelectorThread = null;
-
-            }
-
-        }
-    }
-
-    /**
-     * Registers the channel with the Read selector and attaches the messenger to the channel
+     * Registers the channel with the selector loop serving the fewest
+     * connections and attaches the messenger to the channel. The channel
+     * stays registered until the messenger unregisters it from the returned
+     * loop.
      *
      * @param channel   the socket channel.
      * @param messenger the messenger to attach to the channel.
+     * @return the loop reading from the channel.
      */
-    void register(SocketChannel channel, TcpMessenger messenger) {
-        regisMap.put(messenger, channel);
-        messengerSelector.wakeup();
-    }
+    MessengerSelectorLoop register(SocketChannel channel, TcpMessenger messenger) {
+        MessengerSelectorLoop[] loops = selectorLoops;
 
-    /**
-     * Unregisters the channel with the Read selector
-     *
-     * @param channel the socket channel.
-     */
-    void unregister(SocketChannel channel) {
-        unregisMap.add(channel);
-        messengerSelector.wakeup();
-    }
-
-    /**
-     * Registers all newly accepted and returned (by TcpMessenger) channels.
-     * Removes all closing TcpMessengers.
-     */
-    private synchronized void updateChannelRegisterations() {
-
-        if (!regisMap.isEmpty() ) {
-            Logging.logCheckedFine(LOG, MessageFormat.format("Registering {0} channels with MessengerSelectorThread", regisMap.size()));
+        if (loops.length == 0) {
+            throw new IllegalStateException("TCP transport is stopped");
         }
 
-        if (!regisMap.isEmpty()) {
-            Iterator<Map.Entry<TcpMessenger, SocketChannel>> eachMsgr = regisMap.entrySet().iterator();
-
-            while (eachMsgr.hasNext()) {
-                Map.Entry<TcpMessenger, SocketChannel> anEntry = eachMsgr.next();
-                TcpMessenger msgr = anEntry.getKey();
-                SocketChannel channel = anEntry.getValue();
-                SelectionKey key = channel.keyFor(messengerSelector);
-
-                try {
-
-                    if (key == null) {
-                        key = channel.register(messengerSelector, SelectionKey.OP_READ, msgr);
-                    }
-
-                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
-
-                    Logging.logCheckedFiner(LOG, MessageFormat.format("Key interestOps on channel {0}, bit set :{1}", channel, key.interestOps()));
-
-                } catch (ClosedChannelException e) {
-
-                    Logging.logCheckedWarning(LOG, "Failed to register Channel with messenger selector\n", e);
-
-                    // it's best a new messenger is created when a new messenger is requested
-                    msgr.close();
-
-                } catch (CancelledKeyException e) {
-
-                    Logging.logCheckedFine(LOG, "Key is already cancelled, removing key from registeration map\n", e);
-
-                } catch (IllegalBlockingModeException e) {
-
-                    Logging.logCheckedFine(LOG, "Invalid blocking channel mode, closing messenger\n", e);
-                    // messenger state is unknown
-                    msgr.close();
-
-                }
-
-                // remove it from the table
-                eachMsgr.remove();
+        MessengerSelectorLoop least = loops[0];
 
+        for (MessengerSelectorLoop loop : loops) {
+            if (loop.getChannelCount() < least.getChannelCount()) {
+                least = loop;
             }
         }
 
-        // Unregister and close channels.
-        if (!unregisMap.isEmpty()) {
-            Logging.logCheckedFine(LOG, MessageFormat.format("Unregistering {0} channels with MessengerSelectorThread", unregisMap.size()));
-        }
-
-        if (!unregisMap.isEmpty()) {
-            Iterator<SocketChannel> eachChannel;
-
-            synchronized (unregisMap) {
-                List<SocketChannel> allChannels = new ArrayList<SocketChannel>(unregisMap);
-                unregisMap.clear();
-                eachChannel = allChannels.iterator();
-            }
+        least.register(channel, messenger);
 
-            while (eachChannel.hasNext()) {
-
-                SocketChannel aChannel = eachChannel.next();
-                SelectionKey key = aChannel.keyFor(messengerSelector);
-
-                if (null != key) {
-                    try {
-                        key.cancel();
-                    } catch (CancelledKeyException e) {
-                        Logging.logCheckedFine(LOG, "Key is already cancelled, removing key from registeration map\n", e);
-                    }
-                }
-            }
-        }
+        return least;
     }
 }
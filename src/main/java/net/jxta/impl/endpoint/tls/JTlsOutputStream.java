@@ -62,6 +62,8 @@ import net.jxta.endpoint.MessageElement;
 import net.jxta.endpoint.StringMessageElement;
 import net.jxta.impl.endpoint.tls.TlsConn.HandshakeState;
 import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.pipe.reliable.RetransmitQueue;
+import net.jxta.impl.util.threads.HashedTimerWheel;
 import net.jxta.logging.Logging;
 
 import java.io.IOException;
@@ -69,7 +71,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -181,7 +183,7 @@ class JTlsOutputStream extends OutputStream {
     /**
      *   The collection of messages available for re-transmission.
      */
-    final List<RetrQElt> retrQ = new Vector<RetrQElt>(25, 5);
+    final RetransmitQueue<RetrQElt> retrQ = new RetransmitQueue<RetrQElt>(32);
 
     // running average of receipients Input Queue
     private int nIQTests = 0;
@@ -253,8 +255,9 @@ class JTlsOutputStream extends OutputStream {
         this.lastACKTime = TimeUtils.timeNow();
         this.sackRetransTime = TimeUtils.timeNow();
 
-        // Start retransmission thread
+        // Start retransmission checks
         this.retransmitter = new Retransmitter();
+        this.retransmitter.schedule();
     }
 
     /**
@@ -272,6 +275,11 @@ class JTlsOutputStream extends OutputStream {
             retrQ.notifyAll();
             retrQ.clear();
         }
+
+        Retransmitter current = retransmitter;
+        if (null != current) {
+            current.stop();
+        }
     }
 
     /**
@@ -385,7 +393,7 @@ class JTlsOutputStream extends OutputStream {
                 // check if the queue has gone dead.
                 if (retrQ.size() > 0) {
 
-                    long inQueue = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), retrQ.get(0).enqueuedAt);
+                    long inQueue = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), retrQ.peekFirst().enqueuedAt);
 
                     Logging.logCheckedFine(LOG, "write : Retry queue idle for ", inQueue);
 
@@ -434,7 +442,7 @@ class JTlsOutputStream extends OutputStream {
                 // place copy on retransmission queue
                 RetrQElt r = new RetrQElt(sequenceNumber, jmsg.clone());
 
-                retrQ.add(r);
+                retrQ.add(sequenceNumber, r);
 
                 Logging.logCheckedFine(LOG, "Retrans Enqueue added seqn#", sequenceNumber, " retQ.size()=", retrQ.size());
 
@@ -543,10 +551,11 @@ class JTlsOutputStream extends OutputStream {
                 dumpRETRQ.append("\tRETRQ (size=").append(retrQ.size()).append(")");
                 dumpRETRQ.append(" : ");
 
-                for (int y = 0; y < retrQ.size(); y++) {
+                boolean first = true;
+                for (RetrQElt r : retrQ) {
 
-                    if (0 != y) dumpRETRQ.append(", ");
-                    RetrQElt r = retrQ.get(y);
+                    if (!first) dumpRETRQ.append(", ");
+                    first = false;
                     dumpRETRQ.append(r.seqnum);
 
                 }
@@ -701,8 +710,10 @@ class JTlsOutputStream extends OutputStream {
                 Logging.logCheckedFine(LOG, "RETRANSMITING [rwindow = ", numberToRetrans, "]");
             }
 
+            Iterator<RetrQElt> eachRetrQElt = retrQ.iterator();
+
             for (int j = 0; j < numberToRetrans; j++) {
-                RetrQElt r = retrQ.get(j);
+                RetrQElt r = eachRetrQElt.next();
 
                 // Mark message as retransmission
                 // need to know if a msg was retr or not for RTT eval
@@ -785,21 +796,24 @@ class JTlsOutputStream extends OutputStream {
     }
 
     /**
-     * Retransmission daemon thread
+     * Retransmission checks. Runs once per RTO on the peer group's timer
+     * wheel rather than on a thread of its own.
      **/
     private class Retransmitter implements Runnable {
 
-        Thread retransmitterThread;
+        private final HashedTimerWheel timerWheel;
+        private HashedTimerWheel.Timeout nextCheck = null;
+        private boolean stopped = false;
+
         volatile int nretransmitted = 0;
         int nAtThisRTO = 0;
+        int idleCounter = 0;
 
         public Retransmitter() {
 
-            this.retransmitterThread = new Thread(tp.myThreadGroup, this, "JXTA TLS Retransmiter for " + conn.destAddr);
-            retransmitterThread.setDaemon(true);
-            retransmitterThread.start();
+            this.timerWheel = tp.getPeerGroup().getTaskManager().getTimerWheel();
 
-            Logging.logCheckedInfo(LOG, "STARTED TLS Retransmit thread, RTO = ", RTO);
+            Logging.logCheckedInfo(LOG, "STARTED TLS Retransmitter for ", conn.destAddr, ", RTO = ", RTO);
 
         }
 
@@ -809,158 +823,185 @@ class JTlsOutputStream extends OutputStream {
         }
 
         /**
-         *  {@inheritDoc]
+         * Schedule the next check one RTO from now.
          **/
-        public void run() {
+        synchronized void schedule() {
+            if (stopped || closed) {
+                return;
+            }
 
             try {
-                int idleCounter = 0;
+                nextCheck = timerWheel.schedule(this, RTO, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException shutdown) {
+                nextCheck = null;
+                stopped = true;
+            }
+        }
 
-                while (!closed) {
-                    long conn_idle = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), conn.lastAccessed);
+        /**
+         * Cancel the next check.
+         **/
+        synchronized void stop() {
+            stopped = true;
 
-                    Logging.logCheckedFine(LOG, "RETRANS : ", conn, " idle for ", conn_idle);
+            if (null != nextCheck) {
+                nextCheck.cancel();
+                nextCheck = null;
+            }
 
-                    // check to see if we have not idled out.
-                    if (tp.CONNECTION_IDLE_TIMEOUT < conn_idle) {
+            Logging.logCheckedInfo(LOG, "STOPPED TLS Retransmitter");
+        }
 
-                        Logging.logCheckedInfo(LOG, "RETRANS : Shutting down idle connection: ", conn);
+        /**
+         *  {@inheritDoc]
+         **/
+        public void run() {
 
-                        try {
+            try {
 
-                            setClosing();
+                if (closed) {
+                    return;
+                }
 
-                            // the following call eventually closes this stream
-                            conn.close(HandshakeState.CONNECTIONDEAD);
+                if (check()) {
+                    schedule();
+                }
 
-                            // Leave. Otherwise we'll be spinning forever
-                            return;
+            } catch (Throwable all) {
 
-                        } catch (IOException ignored) {
+                Logging.logCheckedSevere(LOG, "Uncaught Throwable in thread :", Thread.currentThread().getName(), "\n", all);
 
-                        }
+            }
+        }
 
-                        continue;
+        /**
+         * Check the connection and retransmit if the RTO has expired.
+         *
+         * @return {@code true} if checks should continue.
+         **/
+        private boolean check() {
+            long conn_idle = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), conn.lastAccessed);
 
-                    }
+            Logging.logCheckedFine(LOG, "RETRANS : ", conn, " idle for ", conn_idle);
 
-                    synchronized (retrQ) {
-                        try {
-                            retrQ.wait(RTO);
-                        } catch (InterruptedException e) {
-                            Thread.interrupted();
-                        }
-                    }
-                    if (closed) {
-                        break;
-                    }
+            // check to see if we have not idled out.
+            if (tp.CONNECTION_IDLE_TIMEOUT < conn_idle) {
 
-                    // see if we recently did a retransmit triggered by a SACK
-                    long sinceLastSACKRetr = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), sackRetransTime);
+                Logging.logCheckedInfo(LOG, "RETRANS : Shutting down idle connection: ", conn);
 
-                    if (sinceLastSACKRetr < RTO) {
-                        Logging.logCheckedFine(LOG, "RETRANS : SACK retrans ", sinceLastSACKRetr, "ms ago");
-                        continue;
-                    }
+                try {
 
-                    // See how long we've waited since RTO was set
-                    long sinceLastACK = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), lastACKTime);
-                    long oldestInQueueWait;
+                    setClosing();
 
-                    synchronized (retrQ) {
-                        if (retrQ.size() > 0) {
-                            oldestInQueueWait = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), retrQ.get(0).enqueuedAt);
-                        } else {
-                            oldestInQueueWait = 0;
-                        }
-                    }
+                    // the following call eventually closes this stream
+                    conn.close(HandshakeState.CONNECTIONDEAD);
 
-                    Logging.logCheckedFine(LOG, "RETRANS : Last ACK ", sinceLastACK, "ms ago. Age of oldest in Queue ", oldestInQueueWait, "ms");
+                    // Leave. Otherwise we'll be spinning forever
+                    return false;
 
-                    // see if the queue has gone dead
-                    if (oldestInQueueWait > (tp.RETRMAXAGE * 2)) {
+                } catch (IOException ignored) {
 
-                        Logging.logCheckedInfo(LOG, "RETRANS : Shutting down stale connection: ", conn);
+                }
 
-                        try {
+                return true;
 
-                            setClosing();
-                            conn.close(HandshakeState.CONNECTIONDEAD);
+            }
 
-                            // Leave. Otherwise we'll be spinning forever.
-                            return;
+            // see if we recently did a retransmit triggered by a SACK
+            long sinceLastSACKRetr = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), sackRetransTime);
 
-                        } catch (IOException ignored) {
+            if (sinceLastSACKRetr < RTO) {
+                Logging.logCheckedFine(LOG, "RETRANS : SACK retrans ", sinceLastSACKRetr, "ms ago");
+                return true;
+            }
 
-                        }
-                        continue;
-                    }
+            // See how long we've waited since RTO was set
+            long sinceLastACK = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), lastACKTime);
+            long oldestInQueueWait;
 
-                    // get real wait as max of age of oldest in retrQ and
-                    // lastAck time
-                    long realWait = Math.max(oldestInQueueWait, sinceLastACK);
-
-                    // Retransmit only if RTO has expired.
-                    // a. real wait time is longer than RTO
-                    // b. oldest message on Q has been there longer
-                    // than RTO. This is necessary because we may
-                    // have just sent a message, and we do not
-                    // want to overrun the receiver. Also, we
-                    // do not want to restransmit a message that
-                    // has not been idle for the RTO.
-                    if ((realWait >= RTO) && (oldestInQueueWait >= RTO)) {
-
-                        Logging.logCheckedFine(LOG, "RETRANS : RTO RETRANSMISSION [", RWINDOW, "]");
-
-                        // retrasmit
-                        int retransed = retransmit(RWINDOW, TimeUtils.timeNow());
-
-                        // Total
-                        nretransmitted += retransed;
-
-                        // number at this RTO
-                        nAtThisRTO += retransed;
-
-                        // See if real wait is too long and queue is non-empty
-                        // Remote may be dead - double until max.
-                        // Double after window restransmitted msgs at this RTO
-                        // exceeds the RWINDOW, and we've had no response for
-                        // twice the current RTO.
-                        if ((retransed > 0) && (realWait >= 2 * RTO) && (nAtThisRTO >= 2 * RWINDOW)) {
-                            RTO = (realWait > maxRTO ? maxRTO : 2 * RTO);
-                            nAtThisRTO = 0;
-                        }
+            synchronized (retrQ) {
+                if (!retrQ.isEmpty()) {
+                    oldestInQueueWait = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), retrQ.peekFirst().enqueuedAt);
+                } else {
+                    oldestInQueueWait = 0;
+                }
+            }
 
-                        Logging.logCheckedFine(LOG, "RETRANS : RETRANSMISSION ", retransed, " retrans ", nAtThisRTO, " at this RTO (", RTO,
-                                    ") ", nretransmitted, " total retrans");
+            Logging.logCheckedFine(LOG, "RETRANS : Last ACK ", sinceLastACK, "ms ago. Age of oldest in Queue ", oldestInQueueWait, "ms");
 
-                    } else {
+            // see if the queue has gone dead
+            if (oldestInQueueWait > (tp.RETRMAXAGE * 2)) {
 
-                        idleCounter += 1;
+                Logging.logCheckedInfo(LOG, "RETRANS : Shutting down stale connection: ", conn);
 
-                        // reset RTO to min if we are idle
-                        if (idleCounter == 2) {
-                            RTO = minRTO;
-                            idleCounter = 0;
-                            nAtThisRTO = 0;
-                        }
+                try {
 
-                        Logging.logCheckedFine(LOG, "RETRANS : IDLE : RTO=", RTO, " WAIT=", realWait);
+                    setClosing();
+                    conn.close(HandshakeState.CONNECTIONDEAD);
+
+                    // Leave. Otherwise we'll be spinning forever.
+                    return false;
+
+                } catch (IOException ignored) {
 
-                    }
                 }
+                return true;
+            }
 
-            } catch (Throwable all) {
+            // get real wait as max of age of oldest in retrQ and
+            // lastAck time
+            long realWait = Math.max(oldestInQueueWait, sinceLastACK);
+
+            // Retransmit only if RTO has expired.
+            // a. real wait time is longer than RTO
+            // b. oldest message on Q has been there longer
+            // than RTO. This is necessary because we may
+            // have just sent a message, and we do not
+            // want to overrun the receiver. Also, we
+            // do not want to restransmit a message that
+            // has not been idle for the RTO.
+            if ((realWait >= RTO) && (oldestInQueueWait >= RTO)) {
+
+                Logging.logCheckedFine(LOG, "RETRANS : RTO RETRANSMISSION [", RWINDOW, "]");
+
+                // retrasmit
+                int retransed = retransmit(RWINDOW, TimeUtils.timeNow());
+
+                // Total
+                nretransmitted += retransed;
+
+                // number at this RTO
+                nAtThisRTO += retransed;
+
+                // See if real wait is too long and queue is non-empty
+                // Remote may be dead - double until max.
+                // Double after window restransmitted msgs at this RTO
+                // exceeds the RWINDOW, and we've had no response for
+                // twice the current RTO.
+                if ((retransed > 0) && (realWait >= 2 * RTO) && (nAtThisRTO >= 2 * RWINDOW)) {
+                    RTO = (realWait > maxRTO ? maxRTO : 2 * RTO);
+                    nAtThisRTO = 0;
+                }
 
-                Logging.logCheckedSevere(LOG, "Uncaught Throwable in thread :", Thread.currentThread().getName(), "\n", all);
+                Logging.logCheckedFine(LOG, "RETRANS : RETRANSMISSION ", retransed, " retrans ", nAtThisRTO, " at this RTO (", RTO,
+                            ") ", nretransmitted, " total retrans");
 
-            } finally {
+            } else {
 
-                Logging.logCheckedInfo(LOG, "STOPPED TLS Retransmit thread");
-                retransmitterThread = null;
-                retransmitter = null;
+                idleCounter += 1;
+
+                // reset RTO to min if we are idle
+                if (idleCounter == 2) {
+                    RTO = minRTO;
+                    idleCounter = 0;
+                    nAtThisRTO = 0;
+                }
+
+                Logging.logCheckedFine(LOG, "RETRANS : IDLE : RTO=", RTO, " WAIT=", realWait);
 
             }
+
+            return true;
         }
     }
 }
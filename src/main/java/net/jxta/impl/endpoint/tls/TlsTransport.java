@@ -73,8 +73,11 @@ import net.jxta.impl.util.TimeUtils;
 import net.jxta.logging.Logging;
 import net.jxta.membership.MembershipService;
 import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ModuleImplAdvertisement;
 
 import javax.security.auth.x500.X500Principal;
@@ -87,6 +90,8 @@ import java.security.InvalidKeyException;
 import java.security.KeyStoreException;
 import java.security.SignatureException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -99,7 +104,7 @@ import java.util.logging.Logger;
  *  A JXTA {@link net.jxta.endpoint.MessageTransport} implementation which
  *  uses TLS sockets.
  */
-public class TlsTransport implements Module, MessageSender, MessageReceiver {
+public class TlsTransport implements DependentModule, MessageSender, MessageReceiver {
 
     /**
      *   Logger
@@ -352,6 +357,13 @@ public class TlsTransport implements Module, MessageSender, MessageReceiver {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.membershipClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
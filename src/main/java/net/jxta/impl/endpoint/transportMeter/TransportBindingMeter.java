@@ -65,7 +65,8 @@ public class TransportBindingMeter {
     private EndpointAddress endpointAddress;
 
     private TransportBindingMetric cumulativeMetrics;
-    private TransportBindingMetric deltaMetrics;
+    private final TransportBindingMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     public TransportBindingMeter(PeerID peerID, EndpointAddress endpointAddress) {
         this(peerID, endpointAddress, false, false);
@@ -75,6 +76,7 @@ public class TransportBindingMeter {
         this.peerID = peerID;
         this.endpointAddress = endpointAddress;
         cumulativeMetrics = new TransportBindingMetric(this, initiatorConnected, acceptorConnected);
+        deltaMetrics = createDeltaMetric();
     }
 
     @Override
@@ -83,14 +85,27 @@ public class TransportBindingMeter {
     }
 
     public synchronized TransportBindingMetric collectMetrics() {
-        TransportBindingMetric prevDelta = deltaMetrics;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        TransportBindingMetric collected = createDeltaMetric();
 
-        deltaMetrics = null;
-        return prevDelta;
+        collected.drainMetrics(deltaMetrics);
+        return collected;
     }
 		
-    private void createDeltaMetric() {
-        deltaMetrics = new TransportBindingMetric(cumulativeMetrics);
+    private TransportBindingMetric createDeltaMetric() {
+        return new TransportBindingMetric(cumulativeMetrics);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     public TransportBindingMetric getCumulativeMetrics() {
@@ -108,134 +123,105 @@ public class TransportBindingMeter {
     public void setPeerID(PeerID peerID) { 
         this.peerID = peerID; 
         cumulativeMetrics.setPeerID(peerID);
-		
-        if (deltaMetrics != null) {	
-            deltaMetrics.setPeerID(peerID);
-        }
+        deltaMetrics.setPeerID(peerID);
     }
 
     public synchronized void connectionEstablished(boolean initator, long timeToConnect) {		
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         long now = System.currentTimeMillis();
 
         deltaMetrics.connectionEstablished(initator, timeToConnect, now);
         cumulativeMetrics.connectionEstablished(initator, timeToConnect, now);
+
+        markDeltaChanged();
     }
 
     public synchronized void connectionFailed(boolean initator, long timeToConnect) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         long now = System.currentTimeMillis();
 
         deltaMetrics.connectionFailed(initator, timeToConnect, now);
         cumulativeMetrics.connectionFailed(initator, timeToConnect, now);
+
+        markDeltaChanged();
     }
 	
     public synchronized void connectionClosed(boolean initator, long connectionLife) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         long now = System.currentTimeMillis();
 
         deltaMetrics.connectionClosed(initator, now);
         cumulativeMetrics.connectionClosed(initator, now);
+
+        markDeltaChanged();
     }
 	
     public synchronized void connectionDropped(boolean initator, long connectionLife) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         long now = System.currentTimeMillis();
 
         deltaMetrics.connectionDropped(initator, now);
         cumulativeMetrics.connectionDropped(initator, now);
+
+        markDeltaChanged();
     }
 
-    public synchronized void pingReceived() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void pingReceived() {
         deltaMetrics.pingReceived();
         cumulativeMetrics.pingReceived();
+
+        markDeltaChanged();
     }
 	
-    public synchronized void ping(long time) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void ping(long time) {
         deltaMetrics.ping(time);
         cumulativeMetrics.ping(time);
+
+        markDeltaChanged();
     }
 	
-    public synchronized void pingFailed(long time) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void pingFailed(long time) {
         deltaMetrics.pingFailed(time);
         cumulativeMetrics.pingFailed(time);
+
+        markDeltaChanged();
     }
 
-    public synchronized void dataReceived(boolean initator, int size) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void dataReceived(boolean initator, int size) {
         deltaMetrics.dataReceived(initator, size);
         cumulativeMetrics.dataReceived(initator, size);
+
+        markDeltaChanged();
     }
 
-    public synchronized void messageReceived(boolean initator, Message message, long time, long size) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void messageReceived(boolean initator, Message message, long time, long size) {
         deltaMetrics.messageReceived(initator, message, time, size);
         cumulativeMetrics.messageReceived(initator, message, time, size);
+
+        markDeltaChanged();
     }
 
-    public synchronized void receiveFailure(boolean initator, long time, long size) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void receiveFailure(boolean initator, long time, long size) {
         deltaMetrics.receiveFailure(initator, time, size);
         cumulativeMetrics.receiveFailure(initator, time, size);
+
+        markDeltaChanged();
     }
 
-    public synchronized void dataSent(boolean initator, long size) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void dataSent(boolean initator, long size) {
         deltaMetrics.dataSent(initator, size);
         cumulativeMetrics.dataSent(initator, size);
+
+        markDeltaChanged();
     }		
 	
-    public synchronized void sendFailure(boolean initator, Message message, long time, long size) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void sendFailure(boolean initator, Message message, long time, long size) {
         deltaMetrics.sendFailure(initator, message, time, size);
         cumulativeMetrics.sendFailure(initator, message, time, size);
+
+        markDeltaChanged();
     }
 
-    public synchronized void messageSent(boolean initator, Message message, long time, long size) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
+    public void messageSent(boolean initator, Message message, long time, long size) {
         deltaMetrics.messageSent(initator, message, time, size);
         cumulativeMetrics.messageSent(initator, message, time, size);
+
+        markDeltaChanged();
     }		
 }
@@ -67,6 +67,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 public class TransportBindingMetric implements DocumentSerializable {
     public static final String CONNECTED = "connected";
@@ -82,46 +83,46 @@ public class TransportBindingMetric implements DocumentSerializable {
     private long initiatorTransitionTime;
     private long acceptorTransitionTime;
 
-    private int acceptorBytesReceived;
-    private int acceptorBytesSent;
-    private int acceptorConnections;
-    private int acceptorConnectionsClosed;
-    private int acceptorConnectionsDropped;
-    private int acceptorConnectionsFailed;
-    private int acceptorMessagesReceived;
-    private int acceptorMessagesSent;
-    private long acceptorReceiveFailureProcessingTime;
-    private int acceptorReceiveFailures;
-    private long acceptorReceiveProcessingTime;
-    private long acceptorSendFailureProcessingTime;
-    private int acceptorSendFailures;
-    private long acceptorSendProcessingTime;
-    private long acceptorTotalTimeConnected;
-    private long acceptorTimeToConnect;
-    private long acceptorTimeToFail;
-    private int initiatorBytesReceived;
-    private int initiatorBytesSent;
-    private long initiatorTotalTimeConnected;
-    private int initiatorConnections;
-    private int initiatorConnectionsClosed;
-    private int initiatorConnectionsDropped;
-    private int initiatorConnectionsFailed;
-    private int initiatorMessagesReceived;
-    private int initiatorMessagesSent;
-    private long initiatorReceiveFailureProcessingTime;
-    private int initiatorReceiveFailures;
-    private long initiatorReceiveProcessingTime;
-    private long initiatorSendFailureProcessingTime;
-    private int initiatorSendFailures;
-    private long initiatorSendProcessingTime;
-    private long initiatorTimeToConnect;
-    private long initiatorTimeToFail;
-
-    private int numPings;
-    private int numFailedPings;
-    private long pingTime;
-    private long pingFailedTime;
-    private int numPingsReceived;
+    private final LongAdder acceptorBytesReceived = new LongAdder();
+    private final LongAdder acceptorBytesSent = new LongAdder();
+    private final LongAdder acceptorConnections = new LongAdder();
+    private final LongAdder acceptorConnectionsClosed = new LongAdder();
+    private final LongAdder acceptorConnectionsDropped = new LongAdder();
+    private final LongAdder acceptorConnectionsFailed = new LongAdder();
+    private final LongAdder acceptorMessagesReceived = new LongAdder();
+    private final LongAdder acceptorMessagesSent = new LongAdder();
+    private final LongAdder acceptorReceiveFailureProcessingTime = new LongAdder();
+    private final LongAdder acceptorReceiveFailures = new LongAdder();
+    private final LongAdder acceptorReceiveProcessingTime = new LongAdder();
+    private final LongAdder acceptorSendFailureProcessingTime = new LongAdder();
+    private final LongAdder acceptorSendFailures = new LongAdder();
+    private final LongAdder acceptorSendProcessingTime = new LongAdder();
+    private final LongAdder acceptorTotalTimeConnected = new LongAdder();
+    private final LongAdder acceptorTimeToConnect = new LongAdder();
+    private final LongAdder acceptorTimeToFail = new LongAdder();
+    private final LongAdder initiatorBytesReceived = new LongAdder();
+    private final LongAdder initiatorBytesSent = new LongAdder();
+    private final LongAdder initiatorTotalTimeConnected = new LongAdder();
+    private final LongAdder initiatorConnections = new LongAdder();
+    private final LongAdder initiatorConnectionsClosed = new LongAdder();
+    private final LongAdder initiatorConnectionsDropped = new LongAdder();
+    private final LongAdder initiatorConnectionsFailed = new LongAdder();
+    private final LongAdder initiatorMessagesReceived = new LongAdder();
+    private final LongAdder initiatorMessagesSent = new LongAdder();
+    private final LongAdder initiatorReceiveFailureProcessingTime = new LongAdder();
+    private final LongAdder initiatorReceiveFailures = new LongAdder();
+    private final LongAdder initiatorReceiveProcessingTime = new LongAdder();
+    private final LongAdder initiatorSendFailureProcessingTime = new LongAdder();
+    private final LongAdder initiatorSendFailures = new LongAdder();
+    private final LongAdder initiatorSendProcessingTime = new LongAdder();
+    private final LongAdder initiatorTimeToConnect = new LongAdder();
+    private final LongAdder initiatorTimeToFail = new LongAdder();
+
+    private final LongAdder numPings = new LongAdder();
+    private final LongAdder numFailedPings = new LongAdder();
+    private final LongAdder pingTime = new LongAdder();
+    private final LongAdder pingFailedTime = new LongAdder();
+    private final LongAdder numPingsReceived = new LongAdder();
 
     public TransportBindingMetric(TransportBindingMeter transportBindingMeter, boolean initiatorConnected, boolean acceptorConnected) {
         this.peerID = transportBindingMeter.getPeerID();
@@ -222,313 +223,313 @@ public class TransportBindingMetric implements DocumentSerializable {
     }
 
     public int getAcceptorBytesReceived() {
-        return acceptorBytesReceived;
+        return (int) acceptorBytesReceived.sum();
     }
 
     public int getAcceptorBytesSent() {
-        return acceptorBytesSent;
+        return (int) acceptorBytesSent.sum();
     }
 
     public int getAcceptorConnections() {
-        return acceptorConnections;
+        return (int) acceptorConnections.sum();
     }
 
     public int getAcceptorConnectionsClosed() {
-        return acceptorConnectionsClosed;
+        return (int) acceptorConnectionsClosed.sum();
     }
 
     public int getAcceptorConnectionsDropped() {
-        return acceptorConnectionsDropped;
+        return (int) acceptorConnectionsDropped.sum();
     }
 
     public int getAcceptorConnectionsFailed() {
-        return acceptorConnectionsFailed;
+        return (int) acceptorConnectionsFailed.sum();
     }
 
     public int getAcceptorMessagesReceived() {
-        return acceptorMessagesReceived;
+        return (int) acceptorMessagesReceived.sum();
     }
 
     public int getAcceptorMessagesSent() {
-        return acceptorMessagesSent;
+        return (int) acceptorMessagesSent.sum();
     }
 
     public long getAcceptorReceiveFailureProcessingTime() {
-        return acceptorReceiveFailureProcessingTime;
+        return acceptorReceiveFailureProcessingTime.sum();
     }
 
     public int getAcceptorReceiveFailures() {
-        return acceptorReceiveFailures;
+        return (int) acceptorReceiveFailures.sum();
     }
 
     public long getAcceptorReceiveProcessingTime() {
-        return acceptorReceiveProcessingTime;
+        return acceptorReceiveProcessingTime.sum();
     }
 
     public long getAcceptorSendFailureProcessingTime() {
-        return acceptorSendFailureProcessingTime;
+        return acceptorSendFailureProcessingTime.sum();
     }
 
     public int getAcceptorSendFailures() {
-        return acceptorSendFailures;
+        return (int) acceptorSendFailures.sum();
     }
 
     public long getAcceptorSendProcessingTime() {
-        return acceptorSendProcessingTime;
+        return acceptorSendProcessingTime.sum();
     }
 
     public long getAcceptorTimeToConnect() {
-        return acceptorTimeToConnect;
+        return acceptorTimeToConnect.sum();
     }
 
     public long getAcceptorTimeToFail() {
-        return acceptorTimeToFail;
+        return acceptorTimeToFail.sum();
     }
 
     public int getInitiatorBytesReceived() {
-        return initiatorBytesReceived;
+        return (int) initiatorBytesReceived.sum();
     }
 
     public int getInitiatorBytesSent() {
-        return initiatorBytesSent;
+        return (int) initiatorBytesSent.sum();
     }
 
     public int getInitiatorConnections() {
-        return initiatorConnections;
+        return (int) initiatorConnections.sum();
     }
 
     public int getInitiatorConnectionsClosed() {
-        return initiatorConnectionsClosed;
+        return (int) initiatorConnectionsClosed.sum();
     }
 
     public int getInitiatorConnectionsDropped() {
-        return initiatorConnectionsDropped;
+        return (int) initiatorConnectionsDropped.sum();
     }
 
     public int getInitiatorConnectionsFailed() {
-        return initiatorConnectionsFailed;
+        return (int) initiatorConnectionsFailed.sum();
     }
 
     public int getInitiatorMessagesReceived() {
-        return initiatorMessagesReceived;
+        return (int) initiatorMessagesReceived.sum();
     }
 
     public int getInitiatorMessagesSent() {
-        return initiatorMessagesSent;
+        return (int) initiatorMessagesSent.sum();
     }
 
     public long getInitiatorReceiveFailureProcessingTime() {
-        return initiatorReceiveFailureProcessingTime;
+        return initiatorReceiveFailureProcessingTime.sum();
     }
 
     public int getInitiatorReceiveFailures() {
-        return initiatorReceiveFailures;
+        return (int) initiatorReceiveFailures.sum();
     }
 
     public long getInitiatorReceiveProcessingTime() {
-        return initiatorReceiveProcessingTime;
+        return initiatorReceiveProcessingTime.sum();
     }
 
     public long getInitiatorSendFailureProcessingTime() {
-        return initiatorSendFailureProcessingTime;
+        return initiatorSendFailureProcessingTime.sum();
     }
 
     public int getInitiatorSendFailures() {
-        return initiatorSendFailures;
+        return (int) initiatorSendFailures.sum();
     }
 
     public long getInitiatorSendProcessingTime() {
-        return initiatorSendProcessingTime;
+        return initiatorSendProcessingTime.sum();
     }
 
     public long getInitiatorTimeToConnect() {
-        return initiatorTimeToConnect;
+        return initiatorTimeToConnect.sum();
     }
 
     public long getInitiatorTimeToFail() {
-        return initiatorTimeToFail;
+        return initiatorTimeToFail.sum();
     }
 
     public int getNumPings() {
-        return numPings;
+        return (int) numPings.sum();
     }
 
     public int getNumFailedPings() {
-        return numFailedPings;
+        return (int) numFailedPings.sum();
     }
 
     public long getPingTime() {
-        return pingTime;
+        return pingTime.sum();
     }
 
     public long getPingFailedTime() {
-        return pingFailedTime;
+        return pingFailedTime.sum();
     }
 
     public int getNumPingsReceived() {
-        return numPingsReceived;
+        return (int) numPingsReceived.sum();
     }
 
     public int getBytesReceived() {
-        return acceptorBytesReceived + initiatorBytesReceived;
+        return (int) (acceptorBytesReceived.sum() + initiatorBytesReceived.sum());
     }
 
     public int getBytesSent() {
-        return acceptorBytesSent + initiatorBytesSent;
+        return (int) (acceptorBytesSent.sum() + initiatorBytesSent.sum());
     }
 
     public int getConnections() {
-        return acceptorConnections + initiatorConnections;
+        return (int) (acceptorConnections.sum() + initiatorConnections.sum());
     }
 
     public int getConnectionsClosed() {
-        return acceptorConnectionsClosed + initiatorConnectionsClosed;
+        return (int) (acceptorConnectionsClosed.sum() + initiatorConnectionsClosed.sum());
     }
 
     public int getConnectionsDropped() {
-        return acceptorConnectionsDropped + initiatorConnectionsDropped;
+        return (int) (acceptorConnectionsDropped.sum() + initiatorConnectionsDropped.sum());
     }
 
     public int getConnectionsFailed() {
-        return acceptorConnectionsFailed + initiatorConnectionsFailed;
+        return (int) (acceptorConnectionsFailed.sum() + initiatorConnectionsFailed.sum());
     }
 
     public int getMessagesReceived() {
-        return acceptorMessagesReceived + initiatorMessagesReceived;
+        return (int) (acceptorMessagesReceived.sum() + initiatorMessagesReceived.sum());
     }
 
     public int getMessagesSent() {
-        return acceptorMessagesSent + initiatorMessagesSent;
+        return (int) (acceptorMessagesSent.sum() + initiatorMessagesSent.sum());
     }
 
     public long getReceiveFailureProcessingTime() {
-        return acceptorReceiveFailureProcessingTime + initiatorReceiveFailureProcessingTime;
+        return acceptorReceiveFailureProcessingTime.sum() + initiatorReceiveFailureProcessingTime.sum();
     }
 
     public int getReceiveFailures() {
-        return acceptorReceiveFailures + initiatorReceiveFailures;
+        return (int) (acceptorReceiveFailures.sum() + initiatorReceiveFailures.sum());
     }
 
     public long getReceiveProcessingTime() {
-        return acceptorReceiveProcessingTime + initiatorReceiveProcessingTime;
+        return acceptorReceiveProcessingTime.sum() + initiatorReceiveProcessingTime.sum();
     }
 
     public long getSendFailureProcessingTime() {
-        return acceptorSendFailureProcessingTime + initiatorSendFailureProcessingTime;
+        return acceptorSendFailureProcessingTime.sum() + initiatorSendFailureProcessingTime.sum();
     }
 
     public int getSendFailures() {
-        return acceptorSendFailures + initiatorSendFailures;
+        return (int) (acceptorSendFailures.sum() + initiatorSendFailures.sum());
     }
 
     public long getSendProcessingTime() {
-        return acceptorSendProcessingTime + initiatorSendProcessingTime;
+        return acceptorSendProcessingTime.sum() + initiatorSendProcessingTime.sum();
     }
 
     public long getTotalTimeConnected() {
-        return acceptorTotalTimeConnected + initiatorTotalTimeConnected;
+        return acceptorTotalTimeConnected.sum() + initiatorTotalTimeConnected.sum();
     }
 
     public long getTimeToConnect() {
-        return acceptorTimeToConnect + initiatorTimeToConnect;
+        return acceptorTimeToConnect.sum() + initiatorTimeToConnect.sum();
     }
 
     public long getTimeToFail() {
-        return acceptorTimeToFail + initiatorTimeToFail;
+        return acceptorTimeToFail.sum() + initiatorTimeToFail.sum();
     }
 
     public int getAveragePingTime() {
-        return (int) ((numPings != 0) ? (pingTime / numPings) : 0);
+        return (int) ((numPings.sum() != 0) ? (pingTime.sum() / numPings.sum()) : 0);
     }
 
     public int getAveragePingFailedTime() {
-        return (int) ((numFailedPings != 0) ? (pingFailedTime / numFailedPings) : 0);
+        return (int) ((numFailedPings.sum() != 0) ? (pingFailedTime.sum() / numFailedPings.sum()) : 0);
     }
 
     public int getAverageAcceptorReceiveFailureProcessingTime() {
-        return (int) ((acceptorReceiveFailures != 0) ? (acceptorReceiveFailureProcessingTime / acceptorReceiveFailures) : 0);
+        return (int) ((acceptorReceiveFailures.sum() != 0) ? (acceptorReceiveFailureProcessingTime.sum() / acceptorReceiveFailures.sum()) : 0);
     }
 
     public int getAverageAcceptorReceiveProcessingTime() {
-        return (int) ((acceptorMessagesReceived != 0) ? (acceptorReceiveProcessingTime / acceptorMessagesReceived) : 0);
+        return (int) ((acceptorMessagesReceived.sum() != 0) ? (acceptorReceiveProcessingTime.sum() / acceptorMessagesReceived.sum()) : 0);
     }
 
     public int getAverageAcceptorSendFailureProcessingTime() {
-        return (int) ((acceptorSendFailures != 0) ? (acceptorSendFailureProcessingTime / acceptorSendFailures) : 0);
+        return (int) ((acceptorSendFailures.sum() != 0) ? (acceptorSendFailureProcessingTime.sum() / acceptorSendFailures.sum()) : 0);
     }
 
     public int getAverageAcceptorSendProcessingTime() {
-        return (int) ((acceptorMessagesSent != 0) ? (acceptorSendProcessingTime / acceptorMessagesSent) : 0);
+        return (int) ((acceptorMessagesSent.sum() != 0) ? (acceptorSendProcessingTime.sum() / acceptorMessagesSent.sum()) : 0);
     }
 
     public int getAverageAcceptorTimeToConnect() {
-        return (int) ((acceptorConnections != 0) ? (acceptorTimeToConnect / acceptorConnections) : 0);
+        return (int) ((acceptorConnections.sum() != 0) ? (acceptorTimeToConnect.sum() / acceptorConnections.sum()) : 0);
     }
 
     public int getAverageAcceptorTimeToFail() {
-        return (int) ((acceptorConnectionsFailed != 0) ? (acceptorTimeToFail / acceptorConnectionsFailed) : 0);
+        return (int) ((acceptorConnectionsFailed.sum() != 0) ? (acceptorTimeToFail.sum() / acceptorConnectionsFailed.sum()) : 0);
     }
 
     public int getAverageInitiatorReceiveFailureProcessingTime() {
-        return (int) ((initiatorReceiveFailures != 0) ? (initiatorReceiveFailureProcessingTime / initiatorReceiveFailures) : 0);
+        return (int) ((initiatorReceiveFailures.sum() != 0) ? (initiatorReceiveFailureProcessingTime.sum() / initiatorReceiveFailures.sum()) : 0);
     }
 
     public int getAverageInitiatorReceiveProcessingTime() {
-        return (int) ((initiatorMessagesReceived != 0) ? (initiatorReceiveProcessingTime / initiatorMessagesReceived) : 0);
+        return (int) ((initiatorMessagesReceived.sum() != 0) ? (initiatorReceiveProcessingTime.sum() / initiatorMessagesReceived.sum()) : 0);
     }
 
     public int getAverageInitiatorSendFailureProcessingTime() {
-        return (int) ((initiatorSendFailures != 0) ? (initiatorSendFailureProcessingTime / initiatorSendFailures) : 0);
+        return (int) ((initiatorSendFailures.sum() != 0) ? (initiatorSendFailureProcessingTime.sum() / initiatorSendFailures.sum()) : 0);
     }
 
     public int getAverageInitiatorSendProcessingTime() {
-        return (int) ((initiatorMessagesSent != 0) ? (initiatorSendProcessingTime / initiatorMessagesSent) : 0);
+        return (int) ((initiatorMessagesSent.sum() != 0) ? (initiatorSendProcessingTime.sum() / initiatorMessagesSent.sum()) : 0);
     }
 
     public int getAverageInitiatorTimeToConnect() {
-        return (int) ((initiatorConnections != 0) ? (initiatorTimeToConnect / initiatorConnections) : 0);
+        return (int) ((initiatorConnections.sum() != 0) ? (initiatorTimeToConnect.sum() / initiatorConnections.sum()) : 0);
     }
 
     public int getAverageInitiatorTimeToFail() {
-        return (int) ((initiatorConnectionsFailed != 0) ? (initiatorTimeToFail / initiatorConnectionsFailed) : 0);
+        return (int) ((initiatorConnectionsFailed.sum() != 0) ? (initiatorTimeToFail.sum() / initiatorConnectionsFailed.sum()) : 0);
     }
 
     public int getAverageReceiveFailureProcessingTime() {
-        return (int) (((initiatorReceiveFailures + acceptorReceiveFailures) != 0)
-                ? ((initiatorReceiveFailureProcessingTime + acceptorReceiveFailureProcessingTime)
-                        / (initiatorReceiveFailures + acceptorReceiveFailures))
+        return (int) (((initiatorReceiveFailures.sum() + acceptorReceiveFailures.sum()) != 0)
+                ? ((initiatorReceiveFailureProcessingTime.sum() + acceptorReceiveFailureProcessingTime.sum())
+                        / (initiatorReceiveFailures.sum() + acceptorReceiveFailures.sum()))
                         : 0);
     }
 
     public int getAverageReceiveProcessingTime() {
-        return (int) (((initiatorMessagesReceived + acceptorMessagesReceived) != 0)
-                ? ((initiatorReceiveProcessingTime + acceptorReceiveProcessingTime)
-                        / (initiatorMessagesReceived + acceptorMessagesReceived))
+        return (int) (((initiatorMessagesReceived.sum() + acceptorMessagesReceived.sum()) != 0)
+                ? ((initiatorReceiveProcessingTime.sum() + acceptorReceiveProcessingTime.sum())
+                        / (initiatorMessagesReceived.sum() + acceptorMessagesReceived.sum()))
                         : 0);
     }
 
     public int getAverageSendFailureProcessingTime() {
-        return (int) (((initiatorSendFailures + acceptorSendFailures) != 0)
-                ? ((initiatorSendFailureProcessingTime + acceptorSendFailureProcessingTime)
-                        / (initiatorSendFailures + acceptorSendFailures))
+        return (int) (((initiatorSendFailures.sum() + acceptorSendFailures.sum()) != 0)
+                ? ((initiatorSendFailureProcessingTime.sum() + acceptorSendFailureProcessingTime.sum())
+                        / (initiatorSendFailures.sum() + acceptorSendFailures.sum()))
                         : 0);
     }
 
     public int getAverageSendProcessingTime() {
-        return (int) (((initiatorMessagesSent + acceptorMessagesSent) != 0)
-                ? ((initiatorSendProcessingTime + acceptorSendProcessingTime) / (initiatorMessagesSent + acceptorMessagesSent))
+        return (int) (((initiatorMessagesSent.sum() + acceptorMessagesSent.sum()) != 0)
+                ? ((initiatorSendProcessingTime.sum() + acceptorSendProcessingTime.sum()) / (initiatorMessagesSent.sum() + acceptorMessagesSent.sum()))
                 : 0);
     }
 
     public int getAverageTimeToConnect() {
-        return (int) (((initiatorConnections + acceptorConnections) != 0)
-                ? ((initiatorTimeToConnect + acceptorTimeToConnect) / (initiatorConnections + acceptorConnections))
+        return (int) (((initiatorConnections.sum() + acceptorConnections.sum()) != 0)
+                ? ((initiatorTimeToConnect.sum() + acceptorTimeToConnect.sum()) / (initiatorConnections.sum() + acceptorConnections.sum()))
                 : 0);
     }
 
     public int getAverageTimeToFail() {
-        return (int) (((initiatorConnectionsFailed + acceptorConnectionsFailed) != 0)
-                ? ((initiatorTimeToFail + acceptorTimeToFail) / (initiatorConnectionsFailed + acceptorConnectionsFailed))
+        return (int) (((initiatorConnectionsFailed.sum() + acceptorConnectionsFailed.sum()) != 0)
+                ? ((initiatorTimeToFail.sum() + acceptorTimeToFail.sum()) / (initiatorConnectionsFailed.sum() + acceptorConnectionsFailed.sum()))
                 : 0);
     }
 
@@ -541,7 +542,7 @@ public class TransportBindingMetric implements DocumentSerializable {
      * @see #getTotalTimeConnected()
      */
     public long getInitiatorTotalTimeConnected() {
-        return initiatorTotalTimeConnected;
+        return initiatorTotalTimeConnected.sum();
     }
 
     /**
@@ -554,7 +555,7 @@ public class TransportBindingMetric implements DocumentSerializable {
      * @see #getTotalTimeConnected()
      */
     public long getInitiatorTotalTimeConnected(long adjustmentTime) {
-        long result = initiatorTotalTimeConnected;
+        long result = initiatorTotalTimeConnected.sum();
 
         if (isInitiatorConnected()) {
             result += (adjustmentTime - this.initiatorTransitionTime);
@@ -599,7 +600,7 @@ public class TransportBindingMetric implements DocumentSerializable {
      * @see #getTotalTimeConnected()
      */
     public long getAcceptorTotalTimeConnected() {
-        return acceptorTotalTimeConnected;
+        return acceptorTotalTimeConnected.sum();
     }
 
     /**
@@ -612,7 +613,7 @@ public class TransportBindingMetric implements DocumentSerializable {
      * @see #getTotalTimeConnected()
      */
     public long getAcceptorTotalTimeConnected(long adjustmentTime) {
-        long result = acceptorTotalTimeConnected;
+        long result = acceptorTotalTimeConnected.sum();
 
         if (isAcceptorConnected()) {
             result += (adjustmentTime - this.acceptorTransitionTime);
@@ -650,7 +651,7 @@ public class TransportBindingMetric implements DocumentSerializable {
 
     void resetInitiatorState(String state, long transitionTime) {
         if (isInitiatorConnected()) {
-            acceptorTotalTimeConnected += (System.currentTimeMillis() - this.initiatorTransitionTime);
+            acceptorTotalTimeConnected.add((System.currentTimeMillis() - this.initiatorTransitionTime));
         }
 
         this.initiatorState = state;
@@ -660,7 +661,7 @@ public class TransportBindingMetric implements DocumentSerializable {
 
     void resetAcceptorState(String state, long transitionTime) {
         if (isAcceptorConnected()) {
-            initiatorTotalTimeConnected += (System.currentTimeMillis() - this.acceptorTransitionTime);
+            initiatorTotalTimeConnected.add((System.currentTimeMillis() - this.acceptorTransitionTime));
         }
 
         this.acceptorState = state;
@@ -671,12 +672,12 @@ public class TransportBindingMetric implements DocumentSerializable {
     void connectionEstablished(boolean initiator, long timeToConnect, long transitionTime) {
         if (initiator) {
             resetInitiatorState(CONNECTED, transitionTime);
-            initiatorConnections++;
-            initiatorTimeToConnect += timeToConnect;
+            initiatorConnections.increment();
+            initiatorTimeToConnect.add(timeToConnect);
         } else {
             resetAcceptorState(CONNECTED, transitionTime);
-            acceptorConnections++;
-            acceptorTimeToConnect += timeToConnect;
+            acceptorConnections.increment();
+            acceptorTimeToConnect.add(timeToConnect);
         }
 
     }
@@ -684,110 +685,110 @@ public class TransportBindingMetric implements DocumentSerializable {
     void connectionFailed(boolean initiator, long timeToConnect, long transitionTime) {
         if (initiator) {
             resetInitiatorState(FAILED, transitionTime);
-            initiatorConnectionsFailed++;
-            initiatorTimeToFail += timeToConnect;
+            initiatorConnectionsFailed.increment();
+            initiatorTimeToFail.add(timeToConnect);
         } else {
             resetAcceptorState(FAILED, transitionTime);
-            acceptorConnectionsFailed++;
-            acceptorTimeToFail += timeToConnect;
+            acceptorConnectionsFailed.increment();
+            acceptorTimeToFail.add(timeToConnect);
         }
     }
 
     void connectionClosed(boolean initiator, long transitionTime) {
         if (initiator) {
             resetInitiatorState(CLOSED, transitionTime);
-            initiatorConnectionsClosed++;
+            initiatorConnectionsClosed.increment();
         } else {
             resetAcceptorState(CLOSED, transitionTime);
-            acceptorConnectionsClosed++;
+            acceptorConnectionsClosed.increment();
         }
     }
 
     void connectionDropped(boolean initiator, long transitionTime) {
         if (initiator) {
             resetInitiatorState(DROPPED, transitionTime);
-            initiatorConnectionsDropped++;
+            initiatorConnectionsDropped.increment();
         } else {
             resetAcceptorState(DROPPED, transitionTime);
-            acceptorConnectionsDropped++;
+            acceptorConnectionsDropped.increment();
         }
     }
 
     void pingReceived() {
-        numPingsReceived++;
+        numPingsReceived.increment();
     }
 
     void ping(long time) {
-        numPings++;
-        pingTime += time;
+        numPings.increment();
+        pingTime.add(time);
     }
 
     void pingFailed(long time) {
-        numFailedPings++;
-        pingFailedTime += time;
+        numFailedPings.increment();
+        pingFailedTime.add(time);
     }
 
     void dataReceived(boolean initiator, int size) {
         if (initiator) {
-            initiatorBytesReceived += size;
+            initiatorBytesReceived.add(size);
         } else {
-            acceptorBytesReceived += size;
+            acceptorBytesReceived.add(size);
         }
     }
 
     void messageReceived(boolean initiator, Message message, long time, long size) {
         if (initiator) {
-            initiatorMessagesReceived++;
-            initiatorReceiveProcessingTime += time;
-            initiatorBytesReceived += size;
+            initiatorMessagesReceived.increment();
+            initiatorReceiveProcessingTime.add(time);
+            initiatorBytesReceived.add(size);
         } else {
-            acceptorMessagesReceived++;
-            acceptorReceiveProcessingTime += time;
-            acceptorBytesReceived += size;
+            acceptorMessagesReceived.increment();
+            acceptorReceiveProcessingTime.add(time);
+            acceptorBytesReceived.add(size);
         }
     }
 
     void receiveFailure(boolean initiator, long time, long size) {
         if (initiator) {
-            initiatorReceiveFailures++;
-            initiatorReceiveFailureProcessingTime += time;
-            initiatorBytesReceived += size;
+            initiatorReceiveFailures.increment();
+            initiatorReceiveFailureProcessingTime.add(time);
+            initiatorBytesReceived.add(size);
         } else {
-            acceptorReceiveFailures++;
-            acceptorReceiveFailureProcessingTime += time;
-            acceptorBytesReceived += size;
+            acceptorReceiveFailures.increment();
+            acceptorReceiveFailureProcessingTime.add(time);
+            acceptorBytesReceived.add(size);
         }
     }
 
     void dataSent(boolean initiator, long size) {
         if (initiator) {
-            initiatorBytesSent += size;
+            initiatorBytesSent.add(size);
         } else {
-            acceptorBytesSent += size;
+            acceptorBytesSent.add(size);
         }
     }
 
     void sendFailure(boolean initiator, Message message, long time, long size) {
         if (initiator) {
-            initiatorSendFailures++;
-            initiatorSendFailureProcessingTime += time;
-            initiatorBytesSent += size;
+            initiatorSendFailures.increment();
+            initiatorSendFailureProcessingTime.add(time);
+            initiatorBytesSent.add(size);
         } else {
-            acceptorSendFailures++;
-            acceptorSendFailureProcessingTime += time;
-            acceptorBytesSent += size;
+            acceptorSendFailures.increment();
+            acceptorSendFailureProcessingTime.add(time);
+            acceptorBytesSent.add(size);
         }
     }
 
     void messageSent(boolean initiator, Message message, long time, long size) {
         if (initiator) {
-            initiatorMessagesSent++;
-            initiatorSendProcessingTime += time;
-            initiatorBytesSent += size;
+            initiatorMessagesSent.increment();
+            initiatorSendProcessingTime.add(time);
+            initiatorBytesSent.add(size);
         } else {
-            acceptorMessagesSent++;
-            acceptorSendProcessingTime += time;
-            acceptorBytesSent += size;
+            acceptorMessagesSent.increment();
+            acceptorSendProcessingTime.add(time);
+            acceptorBytesSent.add(size);
         }
     }
 
@@ -810,48 +811,113 @@ public class TransportBindingMetric implements DocumentSerializable {
             acceptorTransitionTime = other.acceptorTransitionTime;
         }
 
-        acceptorBytesReceived += other.acceptorBytesReceived;
-        acceptorBytesSent += other.acceptorBytesSent;
-        acceptorConnections += other.acceptorConnections;
-        acceptorConnectionsClosed += other.acceptorConnectionsClosed;
-        acceptorConnectionsDropped += other.acceptorConnectionsDropped;
-        acceptorConnectionsFailed += other.acceptorConnectionsFailed;
-        acceptorMessagesReceived += other.acceptorMessagesReceived;
-        acceptorMessagesSent += other.acceptorMessagesSent;
-        acceptorReceiveFailureProcessingTime += other.acceptorReceiveFailureProcessingTime;
-        acceptorReceiveFailures += other.acceptorReceiveFailures;
-        acceptorReceiveProcessingTime += other.acceptorReceiveProcessingTime;
-        acceptorSendFailureProcessingTime += other.acceptorSendFailureProcessingTime;
-        acceptorSendFailures += other.acceptorSendFailures;
-        acceptorSendProcessingTime += other.acceptorSendProcessingTime;
-        acceptorTotalTimeConnected += other.acceptorTotalTimeConnected;
-        acceptorTimeToConnect += other.acceptorTimeToConnect;
-        acceptorTimeToFail += other.acceptorTimeToFail;
-        initiatorBytesReceived += other.initiatorBytesReceived;
-        initiatorBytesSent += other.initiatorBytesSent;
-        initiatorTotalTimeConnected += other.initiatorTotalTimeConnected;
-        initiatorConnections += other.initiatorConnections;
-        initiatorConnectionsClosed += other.initiatorConnectionsClosed;
-        initiatorConnectionsDropped += other.initiatorConnectionsDropped;
-        initiatorConnectionsFailed += other.initiatorConnectionsFailed;
-        initiatorMessagesReceived += other.initiatorMessagesReceived;
-        initiatorMessagesSent += other.initiatorMessagesSent;
-        initiatorReceiveFailureProcessingTime += other.initiatorReceiveFailureProcessingTime;
-        initiatorReceiveFailures += other.initiatorReceiveFailures;
-        initiatorReceiveProcessingTime += other.initiatorReceiveProcessingTime;
-        initiatorSendFailureProcessingTime += other.initiatorSendFailureProcessingTime;
-        initiatorSendFailures += other.initiatorSendFailures;
-        initiatorSendProcessingTime += other.initiatorSendProcessingTime;
-        initiatorTimeToConnect += other.initiatorTimeToConnect;
-        initiatorTimeToFail += other.initiatorTimeToFail;
-        numPings += other.numPings;
-        numFailedPings += other.numFailedPings;
-        pingTime += other.pingTime;
-        pingFailedTime += other.pingFailedTime;
-        numPingsReceived += other.numPingsReceived;
+        acceptorBytesReceived.add(other.acceptorBytesReceived.sum());
+        acceptorBytesSent.add(other.acceptorBytesSent.sum());
+        acceptorConnections.add(other.acceptorConnections.sum());
+        acceptorConnectionsClosed.add(other.acceptorConnectionsClosed.sum());
+        acceptorConnectionsDropped.add(other.acceptorConnectionsDropped.sum());
+        acceptorConnectionsFailed.add(other.acceptorConnectionsFailed.sum());
+        acceptorMessagesReceived.add(other.acceptorMessagesReceived.sum());
+        acceptorMessagesSent.add(other.acceptorMessagesSent.sum());
+        acceptorReceiveFailureProcessingTime.add(other.acceptorReceiveFailureProcessingTime.sum());
+        acceptorReceiveFailures.add(other.acceptorReceiveFailures.sum());
+        acceptorReceiveProcessingTime.add(other.acceptorReceiveProcessingTime.sum());
+        acceptorSendFailureProcessingTime.add(other.acceptorSendFailureProcessingTime.sum());
+        acceptorSendFailures.add(other.acceptorSendFailures.sum());
+        acceptorSendProcessingTime.add(other.acceptorSendProcessingTime.sum());
+        acceptorTotalTimeConnected.add(other.acceptorTotalTimeConnected.sum());
+        acceptorTimeToConnect.add(other.acceptorTimeToConnect.sum());
+        acceptorTimeToFail.add(other.acceptorTimeToFail.sum());
+        initiatorBytesReceived.add(other.initiatorBytesReceived.sum());
+        initiatorBytesSent.add(other.initiatorBytesSent.sum());
+        initiatorTotalTimeConnected.add(other.initiatorTotalTimeConnected.sum());
+        initiatorConnections.add(other.initiatorConnections.sum());
+        initiatorConnectionsClosed.add(other.initiatorConnectionsClosed.sum());
+        initiatorConnectionsDropped.add(other.initiatorConnectionsDropped.sum());
+        initiatorConnectionsFailed.add(other.initiatorConnectionsFailed.sum());
+        initiatorMessagesReceived.add(other.initiatorMessagesReceived.sum());
+        initiatorMessagesSent.add(other.initiatorMessagesSent.sum());
+        initiatorReceiveFailureProcessingTime.add(other.initiatorReceiveFailureProcessingTime.sum());
+        initiatorReceiveFailures.add(other.initiatorReceiveFailures.sum());
+        initiatorReceiveProcessingTime.add(other.initiatorReceiveProcessingTime.sum());
+        initiatorSendFailureProcessingTime.add(other.initiatorSendFailureProcessingTime.sum());
+        initiatorSendFailures.add(other.initiatorSendFailures.sum());
+        initiatorSendProcessingTime.add(other.initiatorSendProcessingTime.sum());
+        initiatorTimeToConnect.add(other.initiatorTimeToConnect.sum());
+        initiatorTimeToFail.add(other.initiatorTimeToFail.sum());
+        numPings.add(other.numPings.sum());
+        numFailedPings.add(other.numFailedPings.sum());
+        pingTime.add(other.pingTime.sum());
+        pingFailedTime.add(other.pingFailedTime.sum());
+        numPingsReceived.add(other.numPingsReceived.sum());
 
     }
 
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(TransportBindingMetric other) {
+        peerID = other.peerID;
+
+        if (other.initiatorState != null) {
+            initiatorState = other.initiatorState;
+        }
+
+        if (other.initiatorTransitionTime != 0) {
+            initiatorTransitionTime = other.initiatorTransitionTime;
+        }
+
+        if (other.acceptorState != null) {
+            acceptorState = other.acceptorState;
+        }
+
+        if (other.acceptorTransitionTime != 0) {
+            acceptorTransitionTime = other.acceptorTransitionTime;
+        }
+
+        acceptorBytesReceived.add(other.acceptorBytesReceived.sumThenReset());
+        acceptorBytesSent.add(other.acceptorBytesSent.sumThenReset());
+        acceptorConnections.add(other.acceptorConnections.sumThenReset());
+        acceptorConnectionsClosed.add(other.acceptorConnectionsClosed.sumThenReset());
+        acceptorConnectionsDropped.add(other.acceptorConnectionsDropped.sumThenReset());
+        acceptorConnectionsFailed.add(other.acceptorConnectionsFailed.sumThenReset());
+        acceptorMessagesReceived.add(other.acceptorMessagesReceived.sumThenReset());
+        acceptorMessagesSent.add(other.acceptorMessagesSent.sumThenReset());
+        acceptorReceiveFailureProcessingTime.add(other.acceptorReceiveFailureProcessingTime.sumThenReset());
+        acceptorReceiveFailures.add(other.acceptorReceiveFailures.sumThenReset());
+        acceptorReceiveProcessingTime.add(other.acceptorReceiveProcessingTime.sumThenReset());
+        acceptorSendFailureProcessingTime.add(other.acceptorSendFailureProcessingTime.sumThenReset());
+        acceptorSendFailures.add(other.acceptorSendFailures.sumThenReset());
+        acceptorSendProcessingTime.add(other.acceptorSendProcessingTime.sumThenReset());
+        acceptorTotalTimeConnected.add(other.acceptorTotalTimeConnected.sumThenReset());
+        acceptorTimeToConnect.add(other.acceptorTimeToConnect.sumThenReset());
+        acceptorTimeToFail.add(other.acceptorTimeToFail.sumThenReset());
+        initiatorBytesReceived.add(other.initiatorBytesReceived.sumThenReset());
+        initiatorBytesSent.add(other.initiatorBytesSent.sumThenReset());
+        initiatorTotalTimeConnected.add(other.initiatorTotalTimeConnected.sumThenReset());
+        initiatorConnections.add(other.initiatorConnections.sumThenReset());
+        initiatorConnectionsClosed.add(other.initiatorConnectionsClosed.sumThenReset());
+        initiatorConnectionsDropped.add(other.initiatorConnectionsDropped.sumThenReset());
+        initiatorConnectionsFailed.add(other.initiatorConnectionsFailed.sumThenReset());
+        initiatorMessagesReceived.add(other.initiatorMessagesReceived.sumThenReset());
+        initiatorMessagesSent.add(other.initiatorMessagesSent.sumThenReset());
+        initiatorReceiveFailureProcessingTime.add(other.initiatorReceiveFailureProcessingTime.sumThenReset());
+        initiatorReceiveFailures.add(other.initiatorReceiveFailures.sumThenReset());
+        initiatorReceiveProcessingTime.add(other.initiatorReceiveProcessingTime.sumThenReset());
+        initiatorSendFailureProcessingTime.add(other.initiatorSendFailureProcessingTime.sumThenReset());
+        initiatorSendFailures.add(other.initiatorSendFailures.sumThenReset());
+        initiatorSendProcessingTime.add(other.initiatorSendProcessingTime.sumThenReset());
+        initiatorTimeToConnect.add(other.initiatorTimeToConnect.sumThenReset());
+        initiatorTimeToFail.add(other.initiatorTimeToFail.sumThenReset());
+        numPings.add(other.numPings.sumThenReset());
+        numFailedPings.add(other.numFailedPings.sumThenReset());
+        pingTime.add(other.pingTime.sumThenReset());
+        pingFailedTime.add(other.pingFailedTime.sumThenReset());
+        numPingsReceived.add(other.numPingsReceived.sumThenReset());
+    }
+
     public void serializeTo(Element element) throws DocumentSerializationException {
 
         DocumentSerializableUtilities.addString(element, "peerID", peerID.toString());
@@ -871,166 +937,166 @@ public class TransportBindingMetric implements DocumentSerializable {
             DocumentSerializableUtilities.addLong(element, "acceptorTransitionTime", acceptorTransitionTime);
         }
 
-        if (acceptorBytesReceived != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorBytesReceived", acceptorBytesReceived);
+        if (acceptorBytesReceived.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorBytesReceived", (int) acceptorBytesReceived.sum());
         }
 
-        if (acceptorBytesSent != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorBytesSent", acceptorBytesSent);
+        if (acceptorBytesSent.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorBytesSent", (int) acceptorBytesSent.sum());
         }
 
-        if (acceptorConnections != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorConnections", acceptorConnections);
+        if (acceptorConnections.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorConnections", (int) acceptorConnections.sum());
         }
 
-        if (acceptorConnectionsClosed != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorConnectionsClosed", acceptorConnectionsClosed);
+        if (acceptorConnectionsClosed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorConnectionsClosed", (int) acceptorConnectionsClosed.sum());
         }
 
-        if (acceptorConnectionsDropped != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorConnectionsDropped", acceptorConnectionsDropped);
+        if (acceptorConnectionsDropped.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorConnectionsDropped", (int) acceptorConnectionsDropped.sum());
         }
 
-        if (acceptorConnectionsFailed != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorConnectionsFailed", acceptorConnectionsFailed);
+        if (acceptorConnectionsFailed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorConnectionsFailed", (int) acceptorConnectionsFailed.sum());
         }
 
-        if (acceptorMessagesReceived != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorMessagesReceived", acceptorMessagesReceived);
+        if (acceptorMessagesReceived.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorMessagesReceived", (int) acceptorMessagesReceived.sum());
         }
 
-        if (acceptorMessagesSent != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorMessagesSent", acceptorMessagesSent);
+        if (acceptorMessagesSent.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorMessagesSent", (int) acceptorMessagesSent.sum());
         }
 
-        if (acceptorReceiveFailureProcessingTime != 0) {
+        if (acceptorReceiveFailureProcessingTime.sum() != 0) {
             DocumentSerializableUtilities.addLong(element, "acceptorReceiveFailureProcessingTime"
                     ,
-                    acceptorReceiveFailureProcessingTime);
+                    acceptorReceiveFailureProcessingTime.sum());
         }
 
-        if (acceptorReceiveFailures != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorReceiveFailures", acceptorReceiveFailures);
+        if (acceptorReceiveFailures.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorReceiveFailures", (int) acceptorReceiveFailures.sum());
         }
 
-        if (acceptorReceiveProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "acceptorReceiveProcessingTime", acceptorReceiveProcessingTime);
+        if (acceptorReceiveProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "acceptorReceiveProcessingTime", acceptorReceiveProcessingTime.sum());
         }
 
-        if (acceptorSendFailureProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "acceptorSendFailureProcessingTime", acceptorSendFailureProcessingTime);
+        if (acceptorSendFailureProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "acceptorSendFailureProcessingTime", acceptorSendFailureProcessingTime.sum());
         }
 
-        if (acceptorSendFailures != 0) {
-            DocumentSerializableUtilities.addInt(element, "acceptorSendFailures", acceptorSendFailures);
+        if (acceptorSendFailures.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "acceptorSendFailures", (int) acceptorSendFailures.sum());
         }
 
-        if (acceptorSendProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "acceptorSendProcessingTime", acceptorSendProcessingTime);
+        if (acceptorSendProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "acceptorSendProcessingTime", acceptorSendProcessingTime.sum());
         }
 
-        if (acceptorTotalTimeConnected != 0) {
-            DocumentSerializableUtilities.addLong(element, "acceptorTotalTimeConnected", acceptorTotalTimeConnected);
+        if (acceptorTotalTimeConnected.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "acceptorTotalTimeConnected", acceptorTotalTimeConnected.sum());
         }
 
-        if (acceptorTimeToConnect != 0) {
-            DocumentSerializableUtilities.addLong(element, "acceptorTimeToConnect", acceptorTimeToConnect);
+        if (acceptorTimeToConnect.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "acceptorTimeToConnect", acceptorTimeToConnect.sum());
         }
 
-        if (acceptorTimeToFail != 0) {
-            DocumentSerializableUtilities.addLong(element, "acceptorTimeToFail", acceptorTimeToFail);
+        if (acceptorTimeToFail.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "acceptorTimeToFail", acceptorTimeToFail.sum());
         }
 
-        if (initiatorBytesReceived != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorBytesReceived", initiatorBytesReceived);
+        if (initiatorBytesReceived.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorBytesReceived", (int) initiatorBytesReceived.sum());
         }
 
-        if (initiatorBytesSent != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorBytesSent", initiatorBytesSent);
+        if (initiatorBytesSent.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorBytesSent", (int) initiatorBytesSent.sum());
         }
 
-        if (initiatorTotalTimeConnected != 0) {
-            DocumentSerializableUtilities.addLong(element, "initiatorTotalTimeConnected", initiatorTotalTimeConnected);
+        if (initiatorTotalTimeConnected.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "initiatorTotalTimeConnected", initiatorTotalTimeConnected.sum());
         }
 
-        if (initiatorConnections != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorConnections", initiatorConnections);
+        if (initiatorConnections.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorConnections", (int) initiatorConnections.sum());
         }
 
-        if (initiatorConnectionsClosed != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorConnectionsClosed", initiatorConnectionsClosed);
+        if (initiatorConnectionsClosed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorConnectionsClosed", (int) initiatorConnectionsClosed.sum());
         }
 
-        if (initiatorConnectionsDropped != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorConnectionsDropped", initiatorConnectionsDropped);
+        if (initiatorConnectionsDropped.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorConnectionsDropped", (int) initiatorConnectionsDropped.sum());
         }
 
-        if (initiatorConnectionsFailed != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorConnectionsFailed", initiatorConnectionsFailed);
+        if (initiatorConnectionsFailed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorConnectionsFailed", (int) initiatorConnectionsFailed.sum());
         }
 
-        if (initiatorMessagesReceived != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorMessagesReceived", initiatorMessagesReceived);
+        if (initiatorMessagesReceived.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorMessagesReceived", (int) initiatorMessagesReceived.sum());
         }
 
-        if (initiatorMessagesSent != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorMessagesSent", initiatorMessagesSent);
+        if (initiatorMessagesSent.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorMessagesSent", (int) initiatorMessagesSent.sum());
         }
 
-        if (initiatorReceiveFailureProcessingTime != 0) {
+        if (initiatorReceiveFailureProcessingTime.sum() != 0) {
             DocumentSerializableUtilities.addLong(element, "initiatorReceiveFailureProcessingTime"
                     ,
-                    initiatorReceiveFailureProcessingTime);
+                    initiatorReceiveFailureProcessingTime.sum());
         }
 
-        if (initiatorReceiveFailures != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorReceiveFailures", initiatorReceiveFailures);
+        if (initiatorReceiveFailures.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorReceiveFailures", (int) initiatorReceiveFailures.sum());
         }
 
-        if (initiatorReceiveProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "initiatorReceiveProcessingTime", initiatorReceiveProcessingTime);
+        if (initiatorReceiveProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "initiatorReceiveProcessingTime", initiatorReceiveProcessingTime.sum());
         }
 
-        if (initiatorSendFailureProcessingTime != 0) {
+        if (initiatorSendFailureProcessingTime.sum() != 0) {
             DocumentSerializableUtilities.addLong(element, "initiatorSendFailureProcessingTime"
                     ,
-                    initiatorSendFailureProcessingTime);
+                    initiatorSendFailureProcessingTime.sum());
         }
 
-        if (initiatorSendFailures != 0) {
-            DocumentSerializableUtilities.addInt(element, "initiatorSendFailures", initiatorSendFailures);
+        if (initiatorSendFailures.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "initiatorSendFailures", (int) initiatorSendFailures.sum());
         }
 
-        if (initiatorSendProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "initiatorSendProcessingTime", initiatorSendProcessingTime);
+        if (initiatorSendProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "initiatorSendProcessingTime", initiatorSendProcessingTime.sum());
         }
 
-        if (initiatorTimeToConnect != 0) {
-            DocumentSerializableUtilities.addLong(element, "initiatorTimeToConnect", initiatorTimeToConnect);
+        if (initiatorTimeToConnect.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "initiatorTimeToConnect", initiatorTimeToConnect.sum());
         }
 
-        if (initiatorTimeToFail != 0) {
-            DocumentSerializableUtilities.addLong(element, "initiatorTimeToFail", initiatorTimeToFail);
+        if (initiatorTimeToFail.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "initiatorTimeToFail", initiatorTimeToFail.sum());
         }
 
-        if (numPings != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPings", numPings);
+        if (numPings.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPings", (int) numPings.sum());
         }
 
-        if (numFailedPings != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedPings", numFailedPings);
+        if (numFailedPings.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedPings", (int) numFailedPings.sum());
         }
 
-        if (pingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "pingTime", pingTime);
+        if (pingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "pingTime", pingTime.sum());
         }
 
-        if (pingFailedTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "pingFailedTime", pingFailedTime);
+        if (pingFailedTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "pingFailedTime", pingFailedTime.sum());
         }
 
-        if (initiatorTimeToFail != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPingsReceived", numPingsReceived);
+        if (initiatorTimeToFail.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPingsReceived", (int) numPingsReceived.sum());
         }
 
     }
@@ -1050,83 +1116,83 @@ public class TransportBindingMetric implements DocumentSerializable {
 
                 endpointAddress = new EndpointAddress(endpointAddressString);
             } else if (tagName.equals("acceptorBytesReceived")) {
-                acceptorBytesReceived = DocumentSerializableUtilities.getInt(childElement);
+                acceptorBytesReceived.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorBytesSent")) {
-                acceptorBytesSent = DocumentSerializableUtilities.getInt(childElement);
+                acceptorBytesSent.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorConnections")) {
-                acceptorConnections = DocumentSerializableUtilities.getInt(childElement);
+                acceptorConnections.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorConnectionsClosed")) {
-                acceptorConnectionsClosed = DocumentSerializableUtilities.getInt(childElement);
+                acceptorConnectionsClosed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorConnectionsDropped")) {
-                acceptorConnectionsDropped = DocumentSerializableUtilities.getInt(childElement);
+                acceptorConnectionsDropped.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorConnectionsFailed")) {
-                acceptorConnectionsFailed = DocumentSerializableUtilities.getInt(childElement);
+                acceptorConnectionsFailed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorMessagesReceived")) {
-                acceptorMessagesReceived = DocumentSerializableUtilities.getInt(childElement);
+                acceptorMessagesReceived.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorMessagesSent")) {
-                acceptorMessagesSent = DocumentSerializableUtilities.getInt(childElement);
+                acceptorMessagesSent.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorReceiveFailureProcessingTime")) {
-                acceptorReceiveFailureProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                acceptorReceiveFailureProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("acceptorReceiveFailures")) {
-                acceptorReceiveFailures = DocumentSerializableUtilities.getInt(childElement);
+                acceptorReceiveFailures.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorReceiveProcessingTime")) {
-                acceptorReceiveProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                acceptorReceiveProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("acceptorSendFailureProcessingTime")) {
-                acceptorSendFailureProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                acceptorSendFailureProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("acceptorSendFailures")) {
-                acceptorSendFailures = DocumentSerializableUtilities.getInt(childElement);
+                acceptorSendFailures.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("acceptorSendProcessingTime")) {
-                acceptorSendProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                acceptorSendProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("acceptorTotalTimeConnected")) {
-                acceptorTotalTimeConnected = DocumentSerializableUtilities.getLong(childElement);
+                acceptorTotalTimeConnected.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("acceptorTimeToConnect")) {
-                acceptorTimeToConnect = DocumentSerializableUtilities.getLong(childElement);
+                acceptorTimeToConnect.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("acceptorTimeToFail")) {
-                acceptorTimeToFail = DocumentSerializableUtilities.getLong(childElement);
+                acceptorTimeToFail.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorBytesReceived")) {
-                initiatorBytesReceived = DocumentSerializableUtilities.getInt(childElement);
+                initiatorBytesReceived.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorBytesSent")) {
-                initiatorBytesSent = DocumentSerializableUtilities.getInt(childElement);
+                initiatorBytesSent.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorTotalTimeConnected")) {
-                initiatorTotalTimeConnected = DocumentSerializableUtilities.getLong(childElement);
+                initiatorTotalTimeConnected.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorConnections")) {
-                initiatorConnections = DocumentSerializableUtilities.getInt(childElement);
+                initiatorConnections.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorConnectionsClosed")) {
-                initiatorConnectionsClosed = DocumentSerializableUtilities.getInt(childElement);
+                initiatorConnectionsClosed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorConnectionsDropped")) {
-                initiatorConnectionsDropped = DocumentSerializableUtilities.getInt(childElement);
+                initiatorConnectionsDropped.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorConnectionsFailed")) {
-                initiatorConnectionsFailed = DocumentSerializableUtilities.getInt(childElement);
+                initiatorConnectionsFailed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorMessagesReceived")) {
-                initiatorMessagesReceived = DocumentSerializableUtilities.getInt(childElement);
+                initiatorMessagesReceived.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorMessagesSent")) {
-                initiatorMessagesSent = DocumentSerializableUtilities.getInt(childElement);
+                initiatorMessagesSent.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorReceiveFailureProcessingTime")) {
-                initiatorReceiveFailureProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                initiatorReceiveFailureProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorReceiveFailures")) {
-                initiatorReceiveFailures = DocumentSerializableUtilities.getInt(childElement);
+                initiatorReceiveFailures.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorReceiveProcessingTime")) {
-                initiatorReceiveProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                initiatorReceiveProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorSendFailureProcessingTime")) {
-                initiatorSendFailureProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                initiatorSendFailureProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorSendFailures")) {
-                initiatorSendFailures = DocumentSerializableUtilities.getInt(childElement);
+                initiatorSendFailures.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("initiatorSendProcessingTime")) {
-                initiatorSendProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                initiatorSendProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorTimeToConnect")) {
-                initiatorTimeToConnect = DocumentSerializableUtilities.getLong(childElement);
+                initiatorTimeToConnect.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("initiatorTimeToFail")) {
-                initiatorTimeToFail = DocumentSerializableUtilities.getLong(childElement);
+                initiatorTimeToFail.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numPingsReceived")) {
-                numPingsReceived = DocumentSerializableUtilities.getInt(childElement);
+                numPingsReceived.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPings")) {
-                numPings = DocumentSerializableUtilities.getInt(childElement);
+                numPings.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedPings")) {
-                numFailedPings = DocumentSerializableUtilities.getInt(childElement);
+                numFailedPings.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("pingTime")) {
-                pingTime = DocumentSerializableUtilities.getLong(childElement);
+                pingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("pingFailedTime")) {
-                pingFailedTime = DocumentSerializableUtilities.getLong(childElement);
+                pingFailedTime.add(DocumentSerializableUtilities.getLong(childElement));
             }
         }
     }
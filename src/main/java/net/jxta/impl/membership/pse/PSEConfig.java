@@ -74,8 +74,14 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -98,6 +104,13 @@ public final class PSEConfig implements Closeable{
      */
     private char[] keystore_password = null;
 
+    /**
+     * The decoded trusted certificates and keys of the keystore, or
+     * {@code null} if the keystore must be loaded again. Replaced whenever
+     * this PSE changes the keystore.
+     */
+    private volatile TrustSnapshot trust = null;
+
     /**
      * Standard constructor.
      *
@@ -128,6 +141,8 @@ public final class PSEConfig implements Closeable{
         } else {
             this.keystore_password = store_password.clone();
         }
+
+        trust = null;
     }
 
     /**
@@ -137,6 +152,8 @@ public final class PSEConfig implements Closeable{
         if (null != keystore_password) {
             Arrays.fill(keystore_password, '\0');
         }
+
+        trust = null;
     }
 
     /**
@@ -171,6 +188,8 @@ public final class PSEConfig implements Closeable{
         Logging.logCheckedInfo(LOG, "Initializing new PSE keystore...");
 
         synchronized (keystore_manager) {
+            trust = null;
+
             try {
 
                 if (keystore_manager.isInitialized(keystore_password)) return;
@@ -194,6 +213,7 @@ public final class PSEConfig implements Closeable{
      */
     public void erase() throws IOException {
         synchronized (keystore_manager) {
+            trust = null;
             keystore_manager.eraseKeyStore();
         }
     }
@@ -325,28 +345,7 @@ public final class PSEConfig implements Closeable{
      * @throws IOException       For errors related to processing the keystore.
      */
     public ID[] getTrustedCertsList() throws KeyStoreException, IOException {
-        List<ID> trustedCertsList = new ArrayList<ID>();
-
-        synchronized (keystore_manager) {
-            KeyStore store = keystore_manager.loadKeyStore(keystore_password);
-
-            Enumeration<String> eachAlias = store.aliases();
-
-            while (eachAlias.hasMoreElements()) {
-                String anAlias = eachAlias.nextElement();
-
-                if (store.isCertificateEntry(anAlias) || store.isKeyEntry(anAlias)) {
-                    try {
-                        URI id = new URI(anAlias);
-
-                        trustedCertsList.add(IDFactory.fromURI(id));
-                    } catch (URISyntaxException badID) {// ignored
-                    }
-                }
-            }
-
-            return trustedCertsList.toArray(new ID[trustedCertsList.size()]);
-        }
+        return getTrustSnapshot().trustedIds.clone();
     }
 
     /**
@@ -372,6 +371,10 @@ public final class PSEConfig implements Closeable{
      * @throws IOException       For errors related to processing the keystore.
      */
     ID[] getKeysList(char[] store_password) throws KeyStoreException, IOException {
+        if (Arrays.equals(store_password, keystore_password)) {
+            return getTrustSnapshot().keyIds.clone();
+        }
+
         List<ID> keyedRootsList = new ArrayList<ID>();
 
         synchronized (keystore_manager) {
@@ -408,26 +411,7 @@ public final class PSEConfig implements Closeable{
      */
     public ID getTrustedCertificateID(X509Certificate cert) throws KeyStoreException, IOException {
 
-        String anAlias = null;
-
-        synchronized (keystore_manager) {
-            KeyStore store = keystore_manager.loadKeyStore(keystore_password);
-
-            anAlias = store.getCertificateAlias(cert);
-        }
-
-        // not found.
-        if (null == anAlias) {
-            return null;
-        }
-
-        try {
-            URI id = new URI(anAlias);
-
-            return IDFactory.fromURI(id);
-        } catch (URISyntaxException badID) {
-            return null;
-        }
+        return getTrustSnapshot().ids.get(cert);
     }
 
     /**
@@ -459,6 +443,10 @@ public final class PSEConfig implements Closeable{
 
         String alias = id.toString();
 
+        if (Arrays.equals(store_password, keystore_password)) {
+            return getTrustSnapshot().certificates.get(TrustSnapshot.key(alias));
+        }
+
         synchronized (keystore_manager) {
             KeyStore store = keystore_manager.loadKeyStore(store_password);
 
@@ -481,27 +469,9 @@ public final class PSEConfig implements Closeable{
      */
     public X509Certificate[] getTrustedCertificateChain(ID id) throws KeyStoreException, IOException {
 
-        String alias = id.toString();
+        X509Certificate x509certs[] = getTrustSnapshot().chains.get(TrustSnapshot.key(id.toString()));
 
-        synchronized (keystore_manager) {
-            KeyStore store = keystore_manager.loadKeyStore(keystore_password);
-
-            if (!store.containsAlias(alias)) {
-                return null;
-            }
-
-            Certificate certs[] = store.getCertificateChain(alias);
-
-            if (null == certs) {
-                return null;
-            }
-
-            X509Certificate x509certs[] = new X509Certificate[certs.length];
-
-            System.arraycopy(certs, 0, x509certs, 0, certs.length);
-
-            return x509certs;
-        }
+        return (null == x509certs) ? null : x509certs.clone();
     }
 
     /**
@@ -519,16 +489,15 @@ public final class PSEConfig implements Closeable{
         String alias = id.toString();
 
         try {
-            synchronized (keystore_manager) {
-                KeyStore store = keystore_manager.loadKeyStore(keystore_password);
+            TrustSnapshot snapshot = getTrustSnapshot();
 
-                if (!store.containsAlias(alias) || !store.isKeyEntry(alias)) {
-                    return null;
-                }
-
-                return (PrivateKey) store.getKey(alias, key_password);
+            if (!snapshot.keyAliases.contains(TrustSnapshot.key(alias))) {
+                return null;
             }
 
+            // Only the requested key is decrypted, the keystore itself is not loaded again.
+            return (PrivateKey) snapshot.store.getKey(alias, key_password);
+
         } catch (NoSuchAlgorithmException failed) {
 
             Logging.logCheckedSevere(LOG, "Something failed\n", failed);
@@ -578,6 +547,10 @@ public final class PSEConfig implements Closeable{
     public boolean isKey(ID id, char[] store_password) throws KeyStoreException, IOException {
         String alias = id.toString();
 
+        if (Arrays.equals(store_password, keystore_password)) {
+            return getTrustSnapshot().keyAliases.contains(TrustSnapshot.key(alias));
+        }
+
         synchronized (keystore_manager) {
             KeyStore store = keystore_manager.loadKeyStore(store_password);
 
@@ -606,6 +579,8 @@ public final class PSEConfig implements Closeable{
             store.setCertificateEntry(alias, cert);
 
             keystore_manager.saveKeyStore(store, keystore_password);
+
+            trust = new TrustSnapshot(store);
         }
     }
 
@@ -636,6 +611,8 @@ public final class PSEConfig implements Closeable{
             store.setKeyEntry(alias, key, key_password, certchain);
 
             keystore_manager.saveKeyStore(store, keystore_password);
+
+            trust = new TrustSnapshot(store);
         }
     }
 
@@ -656,6 +633,123 @@ public final class PSEConfig implements Closeable{
             store.deleteEntry(alias);
 
             keystore_manager.saveKeyStore(store, keystore_password);
+
+            trust = new TrustSnapshot(store);
+        }
+    }
+
+    /**
+     * Returns the decoded trusted certificates and keys, loading the keystore
+     * if it has not been loaded since it last changed.
+     *
+     * @return The current snapshot of the keystore.
+     * @throws KeyStoreException When the wrong keystore has been provided.
+     * @throws IOException       For errors related to processing the keystore.
+     */
+    private TrustSnapshot getTrustSnapshot() throws KeyStoreException, IOException {
+        TrustSnapshot snapshot = trust;
+
+        if (null != snapshot) {
+            return snapshot;
+        }
+
+        synchronized (keystore_manager) {
+            if (null == trust) {
+                Logging.logCheckedFine(LOG, "Loading trusted certificates from keystore");
+
+                trust = new TrustSnapshot(keystore_manager.loadKeyStore(keystore_password));
+            }
+
+            return trust;
+        }
+    }
+
+    /**
+     * An immutable view of the certificates and keys of a loaded keystore,
+     * indexed by ID and by certificate. The keystore is retained only to
+     * recover private keys and is never modified.
+     */
+    private static final class TrustSnapshot {
+
+        final KeyStore store;
+
+        final Map<String, X509Certificate> certificates = new HashMap<String, X509Certificate>();
+
+        final Map<String, X509Certificate[]> chains = new HashMap<String, X509Certificate[]>();
+
+        final Map<X509Certificate, ID> ids = new HashMap<X509Certificate, ID>();
+
+        final Set<String> keyAliases = new HashSet<String>();
+
+        final ID[] trustedIds;
+
+        final ID[] keyIds;
+
+        TrustSnapshot(KeyStore store) throws KeyStoreException {
+            this.store = store;
+
+            List<ID> trustedCertsList = new ArrayList<ID>();
+            List<ID> keyedRootsList = new ArrayList<ID>();
+
+            for (String anAlias : Collections.list(store.aliases())) {
+                boolean isKey = store.isKeyEntry(anAlias);
+
+                if (!isKey && !store.isCertificateEntry(anAlias)) {
+                    continue;
+                }
+
+                ID id;
+
+                try {
+                    id = IDFactory.fromURI(new URI(anAlias));
+                } catch (URISyntaxException badID) {
+                    id = null;
+                }
+
+                Certificate cert = store.getCertificate(anAlias);
+
+                if (cert instanceof X509Certificate) {
+                    certificates.put(key(anAlias), (X509Certificate) cert);
+
+                    if ((null != id) && !ids.containsKey(cert)) {
+                        ids.put((X509Certificate) cert, id);
+                    }
+                }
+
+                if (isKey) {
+                    keyAliases.add(key(anAlias));
+
+                    Certificate certs[] = store.getCertificateChain(anAlias);
+
+                    if (null != certs) {
+                        X509Certificate x509certs[] = new X509Certificate[certs.length];
+
+                        System.arraycopy(certs, 0, x509certs, 0, certs.length);
+                        chains.put(key(anAlias), x509certs);
+                    }
+                }
+
+                if (null != id) {
+                    trustedCertsList.add(id);
+
+                    if (isKey) {
+                        keyedRootsList.add(id);
+                    }
+                }
+            }
+
+            trustedIds = trustedCertsList.toArray(new ID[trustedCertsList.size()]);
+            keyIds = keyedRootsList.toArray(new ID[keyedRootsList.size()]);
+        }
+
+        /**
+         * Keystores such as JKS match aliases regardless of case.
+         *
+         * @param alias The alias of a keystore entry.
+         * @return The key under which the entry is indexed.
+         */
+        static String key(String alias) {
+            return alias.toLowerCase(Locale.ENGLISH);
         }
     }
 }
@@ -84,6 +84,7 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -116,6 +117,8 @@ import net.jxta.membership.MembershipService;
 import net.jxta.peer.PeerID;
 import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.platform.ModuleSpecID;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
@@ -128,7 +131,7 @@ import net.jxta.util.Base64Utils;
  *
  *  @see net.jxta.membership.MembershipService
  **/
-public final class PSEMembershipService implements MembershipService {
+public final class PSEMembershipService implements MembershipService, DependentModule {
 
     /**
      *  Log4J Logger
@@ -322,6 +325,13 @@ public final class PSEMembershipService implements MembershipService {
         return implAdvertisement;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Collections.<ModuleClassID>emptyList();
+    }
+
     /**
      * {@inheritDoc}
      *
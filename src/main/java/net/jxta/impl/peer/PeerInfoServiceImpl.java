@@ -83,7 +83,9 @@ import net.jxta.meter.PeerMonitorInfo;
 import net.jxta.meter.PeerMonitorInfoListener;
 import net.jxta.peer.PeerID;
 import net.jxta.peer.PeerInfoService;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
 import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ModuleImplAdvertisement;
@@ -96,6 +98,8 @@ import net.jxta.resolver.ResolverService;
 import net.jxta.service.Service;
 import net.jxta.util.documentSerializable.DocumentSerializable;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Random;
@@ -107,7 +111,7 @@ import java.util.logging.Logger;
  *
  */
 
-public class PeerInfoServiceImpl implements PeerInfoService {
+public class PeerInfoServiceImpl implements PeerInfoService, DependentModule {
 
     private final static Logger LOG = Logger.getLogger(PeerInfoServiceImpl.class.getName());
 
@@ -181,6 +185,13 @@ public class PeerInfoServiceImpl implements PeerInfoService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.resolverClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
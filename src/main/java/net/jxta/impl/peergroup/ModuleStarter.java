@@ -0,0 +1,329 @@
+package net.jxta.impl.peergroup;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jxta.logging.Logging;
+import net.jxta.platform.DependentModule;
+import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
+
+/**
+ * Starts a set of peer group modules in dependency order, running the
+ * {@link Module#startApp(String[])} of modules which do not depend on each
+ * other in parallel.
+ * <p/>
+ * A module is started once the modules it declares as
+ * {@link DependentModule#getStartDependencies() dependencies} have left the
+ * set, whether they started, declined or failed. Modules which do not declare
+ * their dependencies are started right away. A module which returns
+ * {@link Module#START_AGAIN_PROGRESS} or {@link Module#START_AGAIN_STALLED}
+ * is started again once another module has left the set, rather than in
+ * rounds over the whole set.
+ * <p/>
+ * When no module is running and none may be started, the remaining modules
+ * are started regardless of their declared dependencies, which breaks
+ * dependency cycles, then retried in rounds as modules used to be. As before,
+ * the start fails after N^2 + 1 rounds without a module leaving the set, N
+ * being the number of modules left.
+ * <p/>
+ * The bookkeeping, including {@link #moduleStarted(ModuleClassID, Module)},
+ * happens on the calling thread. While it waits for the modules being started
+ * the caller releases the monitor of the group, which modules may need to
+ * start.
+ */
+abstract class ModuleStarter {
+
+    private final static Logger LOG = Logger.getLogger(ModuleStarter.class.getName());
+
+    private final Object monitor;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final ModuleStartupTrace trace;
+
+    /**
+     * The attempts which have completed, guarded by the monitor.
+     */
+    private final Queue<Attempt> completed = new ArrayDeque<Attempt>();
+
+    /**
+     * @param monitor the monitor released while waiting, usually the group.
+     * @param executor the executor running the modules' {@code startApp()}.
+     * @param parallelism the maximum number of modules started at once. With
+     * 1 the modules are started on the calling thread.
+     * @param trace records the startup of the modules.
+     */
+    ModuleStarter(Object monitor, Executor executor, int parallelism, ModuleStartupTrace trace) {
+        this.monitor = monitor;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.trace = trace;
+    }
+
+    /**
+     * Called on the calling thread when a module has started, before the
+     * modules depending on it are started.
+     *
+     * @param mcid the class ID of the module.
+     * @param module the module.
+     */
+    protected abstract void moduleStarted(ModuleClassID mcid, Module module);
+
+    /**
+     * Starts the modules. The modules which started, declined to start or
+     * failed are removed from the map.
+     *
+     * @param modules the modules to start, in their preferred order.
+     * @return {@link Module#START_OK} if all the modules left the map, -1 if
+     * some of them could not be started.
+     */
+    int start(Map<ModuleClassID, Object> modules) {
+        Map<ModuleClassID, Module> remaining = new LinkedHashMap<ModuleClassID, Module>();
+        Map<ModuleClassID, Set<ModuleClassID>> dependencies = new HashMap<ModuleClassID, Set<ModuleClassID>>();
+
+        for (Map.Entry<ModuleClassID, Object> anEntry : modules.entrySet()) {
+            remaining.put(anEntry.getKey(), (Module) anEntry.getValue());
+        }
+
+        for (Map.Entry<ModuleClassID, Module> anEntry : remaining.entrySet()) {
+            Set<ModuleClassID> needed = new HashSet<ModuleClassID>();
+
+            if (anEntry.getValue() instanceof DependentModule) {
+                Collection<ModuleClassID> declared = ((DependentModule) anEntry.getValue()).getStartDependencies();
+
+                if (null != declared) {
+                    needed.addAll(declared);
+                }
+            }
+
+            needed.retainAll(remaining.keySet());
+            needed.remove(anEntry.getKey());
+            dependencies.put(anEntry.getKey(), needed);
+        }
+
+        // For each module, the number of modules which had left when it was last attempted.
+        Map<ModuleClassID, Integer> attemptedAt = new HashMap<ModuleClassID, Integer>();
+        Set<ModuleClassID> running = new HashSet<ModuleClassID>();
+        boolean ignoreDependencies = false;
+        int left = 0;
+        int rounds = 0;
+
+        while (!remaining.isEmpty()) {
+
+            // Start whatever may be started.
+            Iterator<Map.Entry<ModuleClassID, Module>> eachModule = remaining.entrySet().iterator();
+
+            while ((running.size() < parallelism) && eachModule.hasNext()) {
+                Map.Entry<ModuleClassID, Module> anEntry = eachModule.next();
+                ModuleClassID mcid = anEntry.getKey();
+                Integer lastAttempt = attemptedAt.get(mcid);
+
+                if (running.contains(mcid) || ((null != lastAttempt) && (lastAttempt >= left))) {
+                    continue;
+                }
+
+                if (!ignoreDependencies && !disjoint(dependencies.get(mcid), remaining.keySet())) {
+                    continue;
+                }
+
+                attemptedAt.put(mcid, left);
+                running.add(mcid);
+                submit(new Attempt(mcid, anEntry.getValue()));
+            }
+
+            if (running.isEmpty()) {
+                // Nothing is running and nothing can be started.
+                if (!ignoreDependencies && !attemptedAt.keySet().containsAll(remaining.keySet())) {
+
+                    Logging.logCheckedFine(LOG, "Module dependencies cannot be met, starting the remaining modules regardless : ", remaining.keySet());
+                    ignoreDependencies = true;
+                    continue;
+
+                }
+
+                int maxRounds = remaining.size() * remaining.size() + 1;
+
+                if (rounds >= maxRounds) {
+                    break;
+                }
+
+                rounds++;
+
+                Logging.logCheckedFine(LOG, "Module startApp() round ", rounds, " of ", maxRounds, "(max)");
+
+                attemptedAt.clear();
+                ignoreDependencies = true;
+                continue;
+            }
+
+            Attempt attempt = await();
+            ModuleClassID mcid = attempt.mcid;
+            Module aModule = attempt.module;
+
+            running.remove(mcid);
+
+            switch (attempt.result) {
+
+                case Module.START_OK:
+
+                    Logging.logCheckedFine(LOG, "Module started : ", aModule);
+
+                    moduleStarted(mcid, aModule);
+                    break;
+
+                case Module.START_AGAIN_PROGRESS:
+
+                    Logging.logCheckedFiner(LOG, "Service made progress during start : ", aModule);
+                    continue;
+
+                case Module.START_AGAIN_STALLED:
+
+                    Logging.logCheckedFiner(LOG, "Service stalled during start : ", aModule);
+                    continue;
+
+                case Module.START_DISABLED:
+
+                    Logging.logCheckedFine(LOG, "Service declined to start : ", aModule);
+                    break;
+
+                default: // (negative)
+
+                    Logging.logCheckedWarning(LOG, "Service failed to start (", attempt.result, ") : ", aModule);
+                    break;
+
+            }
+
+            // The module left the set : the others may now make progress.
+            remaining.remove(mcid);
+            modules.remove(mcid);
+            left++;
+            rounds = 0;
+        }
+
+        // Uh-oh. Services co-dependency prevented them from starting.
+        if (!remaining.isEmpty()) {
+
+            if (Logging.SHOW_SEVERE && LOG.isLoggable(Level.SEVERE)) {
+                StringBuilder failed = new StringBuilder("No progress is being made in starting services after "
+                        + rounds + " rounds. Giving up.");
+
+                failed.append("\nThe following services could not be started : ");
+
+                for (Map.Entry<ModuleClassID, Module> aService : remaining.entrySet()) {
+                    failed.append("\n\t");
+                    failed.append(aService.getKey());
+                    failed.append(" : ");
+                    failed.append(aService.getValue());
+                }
+
+                LOG.severe(failed.toString());
+            }
+
+            return -1;
+        }
+
+        return Module.START_OK;
+    }
+
+    private static boolean disjoint(Set<ModuleClassID> some, Set<ModuleClassID> others) {
+        for (ModuleClassID each : some) {
+            if (others.contains(each)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void submit(Attempt attempt) {
+        if (1 == parallelism) {
+            attempt.run();
+            return;
+        }
+
+        try {
+            executor.execute(attempt);
+        } catch (RejectedExecutionException rejected) {
+            attempt.run();
+        }
+    }
+
+    /**
+     * Waits for an attempt to complete, releasing the monitor meanwhile.
+     */
+    private Attempt await() {
+        boolean interrupted = false;
+
+        try {
+            synchronized (monitor) {
+                while (completed.isEmpty()) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException woken) {
+                        // The modules are started regardless, as they were before.
+                        interrupted = true;
+                    }
+                }
+
+                return completed.poll();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * One invocation of a module's {@code startApp()}.
+     */
+    private final class Attempt implements Runnable {
+
+        final ModuleClassID mcid;
+
+        final Module module;
+
+        int result = -1;
+
+        Attempt(ModuleClassID mcid, Module module) {
+            this.mcid = mcid;
+            this.module = module;
+        }
+
+        public void run() {
+            long began = System.nanoTime();
+
+            try {
+
+                result = module.startApp(null);
+
+            } catch (Throwable all) {
+
+                Logging.logCheckedWarning(LOG, "Exception in startApp() : ", module, "\n", all);
+                result = -1;
+
+            }
+
+            trace.started(mcid, module, began, System.nanoTime(), result);
+
+            synchronized (monitor) {
+                completed.add(this);
+                monitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package net.jxta.impl.peergroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
+
+/**
+ * Records how long each module of a peer group took to initialize and to
+ * start, so that slow services can be spotted in the group startup.
+ */
+public final class ModuleStartupTrace {
+
+    private final long createdAt = System.nanoTime();
+
+    private final Map<ModuleClassID, Entry> entries = new LinkedHashMap<ModuleClassID, Entry>();
+
+    /**
+     * The startup record of one module.
+     */
+    public static final class Entry {
+
+        private final ModuleClassID classID;
+        private String module;
+        private long initNanos = 0;
+        private long startNanos = 0;
+        private long firstStartAt = -1;
+        private long startedAt = -1;
+        private int attempts = 0;
+        private int result = Module.START_AGAIN_STALLED;
+
+        Entry(ModuleClassID classID) {
+            this.classID = classID;
+        }
+
+        Entry(Entry copy) {
+            this.classID = copy.classID;
+            this.module = copy.module;
+            this.initNanos = copy.initNanos;
+            this.startNanos = copy.startNanos;
+            this.firstStartAt = copy.firstStartAt;
+            this.startedAt = copy.startedAt;
+            this.attempts = copy.attempts;
+            this.result = copy.result;
+        }
+
+        public ModuleClassID getClassID() {
+            return classID;
+        }
+
+        /**
+         * @return the class name of the module.
+         */
+        public String getModule() {
+            return module;
+        }
+
+        /**
+         * @return the time spent in the {@code init()} of the module, in milliseconds.
+         */
+        public long getInitTime() {
+            return TimeUnit.NANOSECONDS.toMillis(initNanos);
+        }
+
+        /**
+         * @return the time spent in all the {@code startApp()} calls of the
+         * module, in milliseconds.
+         */
+        public long getStartTime() {
+            return TimeUnit.NANOSECONDS.toMillis(startNanos);
+        }
+
+        /**
+         * @return when {@code startApp()} was first called, in milliseconds
+         * since the trace was created, or -1 if it was never called.
+         */
+        public long getFirstStartAt() {
+            return (firstStartAt < 0) ? -1 : TimeUnit.NANOSECONDS.toMillis(firstStartAt);
+        }
+
+        /**
+         * @return when the last {@code startApp()} call returned, in
+         * milliseconds since the trace was created, or -1 if it was never called.
+         */
+        public long getStartedAt() {
+            return (startedAt < 0) ? -1 : TimeUnit.NANOSECONDS.toMillis(startedAt);
+        }
+
+        /**
+         * @return the number of times {@code startApp()} was called.
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return the result of the last {@code startApp()} call.
+         */
+        public int getResult() {
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return classID + " " + module + " : init " + getInitTime() + "ms, start " + getStartTime() + "ms in "
+                    + attempts + " attempt(s) from " + getFirstStartAt() + "ms to " + getStartedAt() + "ms, result " + result;
+        }
+    }
+
+    /**
+     * Records the initialization of a module.
+     *
+     * @param classID the class ID of the module.
+     * @param module the module.
+     * @param nanos the time {@code init()} took, in nanoseconds.
+     */
+    synchronized void initialized(ModuleClassID classID, Module module, long nanos) {
+        Entry entry = entry(classID, module);
+
+        entry.initNanos += nanos;
+    }
+
+    /**
+     * Records a call to the {@code startApp()} of a module.
+     *
+     * @param classID the class ID of the module.
+     * @param module the module.
+     * @param began when the call began, in {@link System#nanoTime()} terms.
+     * @param ended when the call returned, in {@link System#nanoTime()} terms.
+     * @param result the result of the call.
+     */
+    synchronized void started(ModuleClassID classID, Module module, long began, long ended, int result) {
+        Entry entry = entry(classID, module);
+
+        if (entry.firstStartAt < 0) {
+            entry.firstStartAt = began - createdAt;
+        }
+        entry.startedAt = ended - createdAt;
+        entry.startNanos += ended - began;
+        entry.attempts++;
+        entry.result = result;
+    }
+
+    private Entry entry(ModuleClassID classID, Module module) {
+        Entry entry = entries.get(classID);
+
+        if (null == entry) {
+            entry = new Entry(classID);
+            entries.put(classID, entry);
+        }
+        entry.module = module.getClass().getName();
+
+        return entry;
+    }
+
+    /**
+     * @return a snapshot of the records, in the order the modules were first seen.
+     */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> copy = new ArrayList<Entry>(entries.size());
+
+        for (Entry entry : entries.values()) {
+            copy.add(new Entry(entry));
+        }
+
+        return Collections.unmodifiableList(copy);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder trace = new StringBuilder("Module startup trace :");
+
+        for (Entry entry : getEntries()) {
+            trace.append("\n\t").append(entry);
+        }
+
+        return trace.toString();
+    }
+}
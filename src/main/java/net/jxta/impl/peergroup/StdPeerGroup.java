@@ -55,7 +55,6 @@
  */
 package net.jxta.impl.peergroup;
 
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -91,6 +90,7 @@ import net.jxta.logging.Logging;
 import net.jxta.membership.MembershipService;
 import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.IJxtaLoader;
 import net.jxta.platform.Module;
 import net.jxta.platform.ModuleClassID;
@@ -193,6 +193,19 @@ public class StdPeerGroup extends GenericPeerGroup {
      */
     private CacheManager cm = null;
 
+    /**
+     * The maximum number of modules started at once. With 1 the modules are
+     * started one at a time on the thread initializing the group.
+     */
+    static final String START_PARALLELISM_SYSPROP = "net.jxta.impl.peergroup.StdPeerGroup.startParallelism";
+
+    private static final int START_PARALLELISM = Integer.getInteger(START_PARALLELISM_SYSPROP, 4);
+
+    /**
+     * How long each module took to initialize and start.
+     */
+    private final ModuleStartupTrace startupTrace = new ModuleStartupTrace();
+
     /**
      *  Create and populate the default module impl Advertisement for this class.
      *
@@ -285,6 +298,7 @@ public class StdPeerGroup extends GenericPeerGroup {
             // Try and load it.
             try {
                 Module theModule = null;
+                long loadStart = System.nanoTime();
 
                 if (value instanceof ModuleImplAdvertisement) {
                     // Load module will republish locally but not in the
@@ -307,6 +321,7 @@ public class StdPeerGroup extends GenericPeerGroup {
 
                 if (theModule == null) throw new PeerGroupException("Could not find a loadable implementation for : " + classID);
 
+                startupTrace.initialized(classID, theModule, System.nanoTime() - loadStart);
                 anEntry.setValue(theModule);
 
             } catch (Exception e) {
@@ -412,123 +427,46 @@ public class StdPeerGroup extends GenericPeerGroup {
 
     /**
      * Given a list of all the modules we need to start attempt to start them.
-     * There is an a-priori order, but we'll iterate over the list until all
-     * where able to complete their start phase or no progress is made. Since we
-     * give modules the opportunity to pretend that they are making progress, we
-     * need to have a safeguard: we will not iterate through the list more than
-     * N^2 + 1 times without at least one module completing;  N being the number
-     * of modules still in the list. This should cover the worst case scenario
-     * and still allow the process to eventually fail if it has no chance of
-     * success.
+     * Modules which declare their dependencies as {@link DependentModule}s
+     * are started once their dependencies have started, in parallel with the
+     * other modules which may start. A module which cannot start yet is
+     * started again when another module completes its start phase. When no
+     * module can make progress the remaining ones are iterated over as
+     * before: we will not iterate through the list more than N^2 + 1 times
+     * without at least one module completing;  N being the number of modules
+     * still in the list. This should cover the worst case scenario and still
+     * allow the process to eventually fail if it has no chance of success.
      *
      * @param services The services to start.
      */
     private int startModules(Map<ModuleClassID, Object> services) {
-        int iterations = 0;
-        int maxIterations = services.size() * services.size() + iterations + 1;
-
-        boolean progress = true;
-
-        while (!services.isEmpty() && (progress || (iterations < maxIterations))) {
-
-            progress = false;
-            iterations++;
-
-            Logging.logCheckedFine(LOG, MessageFormat.format("Service startApp() round {0} of {1}(max)", iterations, maxIterations));
-
-            Iterator<Map.Entry<ModuleClassID, Object>> eachService = services.entrySet().iterator();
-
-            while (eachService.hasNext()) {
-                Map.Entry<ModuleClassID, Object> anEntry = eachService.next();
-                ModuleClassID mcid = anEntry.getKey();
-                Module aModule = (Module) anEntry.getValue();
-
-                int res;
-
-                try {
-
-                    res = aModule.startApp(null);
-
-                } catch (Throwable all) {
-
-                    Logging.logCheckedWarning(LOG, "Exception in startApp() : ", aModule, "\n", all);
-                    res = -1;
-
-                }
-
-                switch (res) {
-
-                    case Module.START_OK:
-
-                        Logging.logCheckedFine(LOG, "Module started : ", aModule);
-
-                        if (aModule instanceof Service) {
-                            addService(mcid, (Service) aModule);
-                        } else {
-                            messageTransports.put(mcid, aModule);
-                        }
-
-                        moduleStartOrder.add(mcid);
-                        eachService.remove();
-                        progress = true;
-                        break;
-
-                    case Module.START_AGAIN_PROGRESS:
-
-                        Logging.logCheckedFiner(LOG, "Service made progress during start : ", aModule);
-                        progress = true;
-                        break;
-
-                    case Module.START_AGAIN_STALLED:
-
-                        Logging.logCheckedFiner(LOG, "Service stalled during start : ", aModule);
-                        break;
-
-                    case Module.START_DISABLED:
-
-                        Logging.logCheckedFine(LOG, "Service declined to start : ", aModule);
-                        eachService.remove();
-                        progress = true;
-                        break;
-
-                    default: // (negative)
-
-                        Logging.logCheckedWarning(LOG, "Service failed to start (", res, ") : ", aModule);
-                        eachService.remove();
-                        progress = true;
-                        break;
-
+        ModuleStarter starter = new ModuleStarter(this, getTaskManager().getExecutorService(), START_PARALLELISM, startupTrace) {
+            @Override
+            protected void moduleStarted(ModuleClassID mcid, Module aModule) {
+                if (aModule instanceof Service) {
+                    addService(mcid, (Service) aModule);
+                } else {
+                    messageTransports.put(mcid, aModule);
                 }
-            }
 
-            if (progress) {
-                maxIterations = services.size() * services.size() + iterations + 1;
+                moduleStartOrder.add(mcid);
             }
-        }
+        };
 
-        // Uh-oh. Services co-dependency prevented them from starting.
-        if (!services.isEmpty()) {
+        int res = starter.start(services);
 
-            if (Logging.SHOW_SEVERE && LOG.isLoggable(Level.SEVERE)) {
-                StringBuilder failed = new StringBuilder( "No progress is being made in starting services after "
-                        + iterations + " iterations. Giving up.");
+        Logging.logCheckedConfig(LOG, "Group ", getPeerGroupName(), " ", startupTrace);
 
-                failed.append("\nThe following services could not be started : ");
-
-                for (Map.Entry<ModuleClassID, Object> aService : services.entrySet()) {
-                    failed.append("\n\t");
-                    failed.append(aService.getKey());
-                    failed.append(" : ");
-                    failed.append(aService.getValue());
-                }
-
-                LOG.severe(failed.toString());
-            }
-
-            return -1;
-        }
+        return res;
+    }
 
-        return Module.START_OK;
+    /**
+     * Returns how long each module of the group took to initialize and start.
+     *
+     * @return the startup trace of the group.
+     */
+    public ModuleStartupTrace getStartupTrace() {
+        return startupTrace;
     }
 
     /**
@@ -536,10 +474,14 @@ public class StdPeerGroup extends GenericPeerGroup {
      * <p/>
      * This method loads and initializes all of the peer group modules
      * described in the provided implementation advertisement. Then, all modules
-     * are placed in a list and the list is processed iteratively. During each
-     * iteration, the {@link Module#startApp(String[])} method of each module
-     * is invoked once. Iterations continue until no progress is being made or
-     * the list is empty.
+     * are placed in a list and started, those which declare their dependencies
+     * as {@link DependentModule}s only once their dependencies have started,
+     * and modules which do not depend on each other in parallel. The
+     * {@link Module#startApp(String[])} method of a module which did not
+     * complete its start phase is invoked again once another module has, or
+     * during the next iteration through the list once no progress is being
+     * made. Starting continues until no progress is being made or the list is
+     * empty.
      * <p/>
      * The status returned by the {@link Module#startApp(String[])} method
      * of each module is considered as follows:
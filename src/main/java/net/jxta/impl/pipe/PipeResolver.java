@@ -371,7 +371,7 @@ class PipeResolver implements SrdiPushEntriesInterface, InternalQueryHandler, Sr
         srdiIndex = new Srdi(myGroup, srdiIndexerFileName, GcDelay);
 
         srdiManager = new SrdiManager(myGroup, PipeResolverName, this, srdiIndex);
-        srdiManager.startPush(myGroup.getTaskManager().getScheduledExecutorService(), 1 * TimeUtils.AYEAR);
+        srdiManager.startPush(myGroup.getTaskManager().getCoarseScheduledExecutorService(), 1 * TimeUtils.AYEAR);
 
         resolver.registerSrdiHandler(PipeResolverName, this);
         synchronized (this) {
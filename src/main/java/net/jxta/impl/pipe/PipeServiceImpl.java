@@ -62,6 +62,7 @@ import net.jxta.id.IDFactory;
 import net.jxta.impl.util.TimeUtils;
 import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
 import net.jxta.pipe.InputPipe;
 import net.jxta.pipe.OutputPipe;
@@ -70,7 +71,9 @@ import net.jxta.pipe.OutputPipeListener;
 import net.jxta.pipe.PipeID;
 import net.jxta.pipe.PipeMsgListener;
 import net.jxta.pipe.PipeService;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.PipeAdvertisement;
 import net.jxta.service.Service;
@@ -78,6 +81,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -103,7 +107,7 @@ import java.util.logging.Logger;
  *      href="https://jxta-spec.dev.java.net/nonav/JXTAProtocols.html#proto-pbp"
  *      target="_blank">JXTA Protocols Specification : Pipe Binding Protocol</a>
  */
-public class PipeServiceImpl implements PipeService, PipeResolver.Listener {
+public class PipeServiceImpl implements PipeService, PipeResolver.Listener, DependentModule {
 
 	/**
 	 * The Logger
@@ -271,6 +275,13 @@ public class PipeServiceImpl implements PipeService, PipeResolver.Listener {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Collection<ModuleClassID> getStartDependencies() {
+		return Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.resolverClassID, IModuleDefinitions.membershipClassID, IModuleDefinitions.rendezvousClassID);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p/>
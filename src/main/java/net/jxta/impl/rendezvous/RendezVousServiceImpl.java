@@ -99,9 +99,12 @@ import net.jxta.impl.util.TimeUtils;
 import net.jxta.logging.Logging;
 import net.jxta.meter.MonitorResources;
 import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
 import net.jxta.peergroup.PeerGroupID;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ConfigParams;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.PeerAdvertisement;
@@ -120,7 +123,7 @@ import net.jxta.service.Service;
  * @see net.jxta.rendezvous.RendezVousService
  * @see <a href="https://jxta-spec.dev.java.net/nonav/JXTAProtocols.html#proto-rvp" target="_blank">JXTA Protocols Specification : Rendezvous Protocol</a>
  */
-public final class RendezVousServiceImpl implements RendezVousService {
+public final class RendezVousServiceImpl implements RendezVousService, DependentModule {
 
     /**
      * Logger
@@ -290,6 +293,13 @@ public final class RendezVousServiceImpl implements RendezVousService {
         rdvProviderSwitchStatus.set(true);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.membershipClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
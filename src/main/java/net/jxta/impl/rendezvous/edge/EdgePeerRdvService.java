@@ -61,7 +61,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +84,7 @@ import net.jxta.endpoint.Messenger;
 import net.jxta.endpoint.TextDocumentMessageElement;
 import net.jxta.id.ID;
 import net.jxta.id.IDFactory;
+import net.jxta.impl.endpoint.EndpointUtils;
 import net.jxta.impl.endpoint.relay.RelayReferralSeedingManager;
 import net.jxta.impl.protocol.RdvConfigAdv;
 import net.jxta.impl.rendezvous.PeerConnection;
@@ -130,6 +133,19 @@ public class EdgePeerRdvService extends StdRendezVousService {
      */
     private final int MAX_RDV_CONNECTIONS = 1;
 
+    /**
+     * The number of seeds to which lease requests are sent at once when we
+     * need a rendezvous. The first to answer is the one we connect to.
+     */
+    public final static String PROBE_FANOUT_SYSPROP = "net.jxta.impl.rendezvous.edge.EdgePeerRdvService.probeFanout";
+
+    private final static int DEFAULT_PROBE_FANOUT = 8;
+
+    /**
+     * Minimum interval in milliseconds between two rounds of lease requests.
+     */
+    private final static long MIN_PROBE_INTERVAL = TimeUtils.ASECOND;
+
     /**
      * The default amount of time we will attempt to renew a lease before it
      * expires.
@@ -146,6 +162,22 @@ public class EdgePeerRdvService extends StdRendezVousService {
      */
     private final List<RouteAdvertisement> seeds = new ArrayList<RouteAdvertisement>();
 
+    /**
+     * The number of seeds probed at once.
+     */
+    private final int probeFanout = Math.max(1, Integer.getInteger(PROBE_FANOUT_SYSPROP, DEFAULT_PROBE_FANOUT));
+
+    /**
+     * How fast the rendezvous answered our lease requests, by peer ID and by
+     * address. Used to probe the fastest seeds first.
+     */
+    private final RoundTripTimes<String> roundTripTimes = new RoundTripTimes<String>();
+
+    /**
+     * When we last sent lease requests to seeds, guarded by {@link #seeds}.
+     */
+    private long lastProbeAt = 0;
+
     /**
      * Our current connections with RendezVous peers.
      */
@@ -271,8 +303,8 @@ public class EdgePeerRdvService extends StdRendezVousService {
 
     private void scheduleMonitor(long delayInMs) {
         stopMonitor();
-        ScheduledExecutorService scheduledExecutor = group.getTaskManager().getScheduledExecutorService();
-        MonitorTask monitorTask = new MonitorTask();
+        ScheduledExecutorService scheduledExecutor = group.getTaskManager().getCoarseScheduledExecutorService();
+        monitorTask = new MonitorTask();
         monitorTask.setHandle(scheduledExecutor.scheduleAtFixedRate(monitorTask, delayInMs, MONITOR_INTERVAL, TimeUnit.MILLISECONDS));
     }
 
@@ -516,8 +548,10 @@ public class EdgePeerRdvService extends StdRendezVousService {
      *
      * @param padv  PeerAdvertisement for the rendezvous peer.
      * @param lease The duration of the lease in relative milliseconds.
+     * @return {@code false} if the rendezvous is new and we already have
+     * enough of them.
      */
-    private void addRdv(PeerAdvertisement padv, long lease) {
+    private boolean addRdv(PeerAdvertisement padv, long lease) {
 
         int eventType;
 
@@ -527,6 +561,11 @@ public class EdgePeerRdvService extends StdRendezVousService {
             rdvConnection = rendezVous.get(padv.getPeerID());
 
             if (null == rdvConnection) {
+                if (rendezVous.size() >= MAX_RDV_CONNECTIONS) {
+                    // Another rendezvous answered first.
+                    return false;
+                }
+
                 rdvConnection = new RdvConnection(group, rdvService, padv.getPeerID());
                 rendezVous.put(padv.getPeerID(), rdvConnection);
                 eventType = RendezvousEvent.RDVCONNECT;
@@ -565,6 +604,8 @@ public class EdgePeerRdvService extends StdRendezVousService {
         rdvConnection.connect(padv, lease, Math.min(LEASE_MARGIN, (lease / 2)));
 
         rdvService.generateEvent(eventType, padv.getPeerID());
+
+        return true;
     }
 
     /**
@@ -583,11 +624,26 @@ public class EdgePeerRdvService extends StdRendezVousService {
             rdvConnection = rendezVous.remove(rdvid);
         }
 
+        if (!requested) {
+            roundTripTimes.forget(rdvid.toString());
+        }
+
         if (null != rdvConnection) {
             if (rdvConnection.isConnected()) {
                 rdvConnection.setConnected(false);
                 sendDisconnect(rdvConnection);
             }
+
+            if (!closed) {
+                // Look for another rendezvous right away rather than at the next check.
+                group.getTaskManager().getScheduledExecutorService().execute(new Runnable() {
+                    public void run() {
+                        if (!closed) {
+                            probeSeeds(true);
+                        }
+                    }
+                });
+            }
         }
 
         rdvService.generateEvent(requested ? RendezvousEvent.RDVDISCONNECT : RendezvousEvent.RDVFAILED, rdvid);
@@ -692,24 +748,27 @@ public class EdgePeerRdvService extends StdRendezVousService {
         if (lease <= 0) {
             removeRdv(pId, false);
         } else {
-            if (rendezVous.containsKey(pId) || (rendezVous.size() < MAX_RDV_CONNECTIONS)) {
-                PeerAdvertisement padv = null;
+            PeerAdvertisement padv = null;
 
-                try {
+            try {
 
-                    XMLDocument asDoc = (XMLDocument) StructuredDocumentFactory.newStructuredDocument(peerElem);
-                    padv = (PeerAdvertisement) AdvertisementFactory.newAdvertisement(asDoc);
+                XMLDocument asDoc = (XMLDocument) StructuredDocumentFactory.newStructuredDocument(peerElem);
+                padv = (PeerAdvertisement) AdvertisementFactory.newAdvertisement(asDoc);
 
-                } catch (Exception failed) {
+            } catch (Exception failed) {
 
-                    Logging.logCheckedWarning(LOG, "Failed processing peer advertisement");
+                Logging.logCheckedWarning(LOG, "Failed processing peer advertisement");
 
-                }
+            }
 
-                if (null == padv) {
-                    Logging.logCheckedFine(LOG, "Missing rendezvous peer advertisement");
-                    return;
-                }
+            if (null == padv) {
+                Logging.logCheckedFine(LOG, "Missing rendezvous peer advertisement");
+                return;
+            }
+
+            long roundTripTime = roundTripTimes.replied(getReplyKeys(pId, padv));
+
+            if (rendezVous.containsKey(pId) || (rendezVous.size() < MAX_RDV_CONNECTIONS)) {
 
                 if (!seedingManager.isAcceptablePeer(padv)) {
 
@@ -720,7 +779,10 @@ public class EdgePeerRdvService extends StdRendezVousService {
 
                 }
 
-                addRdv(padv, lease);
+                if (!addRdv(padv, lease)) {
+                    declineLease(pId, padv, roundTripTime);
+                    return;
+                }
 
                 try {
                     DiscoveryService discovery = group.getDiscoveryService();
@@ -742,13 +804,153 @@ public class EdgePeerRdvService extends StdRendezVousService {
                     rdvName = pId.toString();
                 }
 
-                Logging.logCheckedFine(LOG, "RDV Connect Response : peer=", rdvName, " lease=", lease, "ms");
+                Logging.logCheckedFine(LOG, "RDV Connect Response : peer=", rdvName, " lease=", lease, "ms rtt=", roundTripTime, "ms");
 
             } else {
 
-                Logging.logCheckedFine(LOG, "Ignoring lease offer from ", pId);
-                // XXX bondolo 20040423 perhaps we should send a disconnect here.
+                declineLease(pId, padv, roundTripTime);
+
+            }
+        }
+    }
+
+    /**
+     * Declines a lease offer we do not need.
+     *
+     * @param pId the rendezvous which offered the lease.
+     * @param padv its peer advertisement.
+     * @param roundTripTime the round trip time of the offer, -1 if we did not ask for it.
+     */
+    private void declineLease(ID pId, PeerAdvertisement padv, long roundTripTime) {
+
+        Logging.logCheckedFine(LOG, "Ignoring lease offer from ", pId, " rtt=", roundTripTime, "ms");
+
+        if (roundTripTime >= 0) {
+            // One of our lease requests was granted but a faster rendezvous answered first.
+            sendDisconnect(pId, padv);
+        }
+    }
+
+    /**
+     * @param pId the rendezvous which replied.
+     * @param padv its peer advertisement.
+     * @return the keys under which the rendezvous may have been probed.
+     */
+    private Collection<String> getReplyKeys(ID pId, PeerAdvertisement padv) {
+        List<String> keys = new ArrayList<String>();
+
+        keys.add(pId.toString());
+
+        RouteAdvertisement route = EndpointUtils.extractRouteAdv(padv);
+
+        if ((null != route) && (null != route.getDest())) {
+            for (String anAddress : route.getDest().getVectorEndpointAddresses()) {
+                keys.add(new EndpointAddress(anAddress).toString());
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * @param aSeed a seed.
+     * @return the key under which the seed is probed, {@code null} if the seed has no address.
+     */
+    private static String getSeedKey(RouteAdvertisement aSeed) {
+        if (null != aSeed.getDestPeerID()) {
+            return aSeed.getDestPeerID().toString();
+        }
+
+        List<String> seed_eas = aSeed.getDest().getVectorEndpointAddresses();
+
+        return seed_eas.isEmpty() ? null : new EndpointAddress(seed_eas.get(0)).toString();
+    }
 
+    /**
+     * Sends lease requests to the next seeds, the fastest known first, if we
+     * need a rendezvous.
+     *
+     * @param refresh if {@code true} the seeds are fetched and ranked again.
+     */
+    private void probeSeeds(boolean refresh) {
+
+        synchronized (seeds) {
+            if (rendezVous.size() >= MAX_RDV_CONNECTIONS) {
+                // We don't need any of the current seeds. Get new ones when we need them.
+                seeds.clear();
+                return;
+            }
+
+            if (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), lastProbeAt) < MIN_PROBE_INTERVAL) {
+                return;
+            }
+
+            roundTripTimes.expireProbes(MONITOR_INTERVAL);
+
+            if (refresh || seeds.isEmpty()) {
+                seeds.clear();
+                seeds.addAll(Arrays.asList(seedingManager.getActiveSeedRoutes()));
+
+                // The fastest first. Seeds we know nothing about keep their order, after those.
+                Collections.sort(seeds, new Comparator<RouteAdvertisement>() {
+                    public int compare(RouteAdvertisement one, RouteAdvertisement other) {
+                        return Long.compare(getEstimate(one), getEstimate(other));
+                    }
+
+                    private long getEstimate(RouteAdvertisement aSeed) {
+                        String key = getSeedKey(aSeed);
+                        long estimate = (null == key) ? -1 : roundTripTimes.getEstimate(key);
+
+                        return (estimate < 0) ? Long.MAX_VALUE : estimate;
+                    }
+                });
+            }
+
+            int sentLeaseRequests = 0;
+
+            while (!seeds.isEmpty() && (sentLeaseRequests < probeFanout)) {
+                RouteAdvertisement aSeed = seeds.remove(0);
+
+                Message msg = new Message();
+
+                // The lease request simply includes the local peer advertisement.
+                msg.addMessageElement(RendezVousServiceProvider.RDV_MSG_NAMESPACE_NAME
+                        ,
+                        new TextDocumentMessageElement(ConnectRequest, getPeerAdvertisementDoc(), null));
+
+                Messenger msgr = null;
+
+                if (null == aSeed.getDestPeerID()) {
+                    // It is an incomplete route advertisement. We are going to assume that it is only a wrapper for a single ea.
+                    List<String> seed_eas = aSeed.getDest().getVectorEndpointAddresses();
+
+                    if (!seed_eas.isEmpty()) {
+                        EndpointAddress aSeedHost = new EndpointAddress(seed_eas.get(0));
+
+                        msgr = rdvService.endpoint.getMessengerImmediate(aSeedHost, null);
+                    }
+                } else {
+                    // We have a full route, send it to the virtual address of the route!
+                    EndpointAddress aSeedHost = new EndpointAddress(aSeed.getDestPeerID(), null, null);
+
+                    msgr = rdvService.endpoint.getMessengerImmediate(aSeedHost, aSeed);
+                }
+
+                String key = getSeedKey(aSeed);
+
+                if ((null != msgr) && (null != key)) {
+                    try {
+                        roundTripTimes.probed(key);
+                        msgr.sendMessageN(msg, pName, pParam);
+                        sentLeaseRequests++;
+                    } catch (Exception failed) {
+                        // ignored
+                    }
+                }
+            }
+
+            if (sentLeaseRequests > 0) {
+                lastProbeAt = TimeUtils.timeNow();
             }
         }
     }
@@ -810,55 +1012,7 @@ public class EdgePeerRdvService extends StdRendezVousService {
                 }
 
                 // Not enough Rdvs? Try finding more.
-                if (rendezVous.size() < MAX_RDV_CONNECTIONS) {
-                    if (seeds.isEmpty()) {
-                        seeds.addAll(Arrays.asList(EdgePeerRdvService.this.seedingManager.getActiveSeedRoutes()));
-                    }
-
-                    int sentLeaseRequests = 0;
-
-                    while (!seeds.isEmpty() && (sentLeaseRequests < 3)) {
-                        RouteAdvertisement aSeed = seeds.remove(0);
-
-                        Message msg = new Message();
-
-                        // The lease request simply includes the local peer advertisement.
-                        msg.addMessageElement(RendezVousServiceProvider.RDV_MSG_NAMESPACE_NAME
-                                ,
-                                new TextDocumentMessageElement(ConnectRequest, getPeerAdvertisementDoc(), null));
-
-                        Messenger msgr = null;
-
-                        if (null == aSeed.getDestPeerID()) {
-                            // It is an incomplete route advertisement. We are going to assume that it is only a wrapper for a single ea.
-                            List<String> seed_eas = aSeed.getDest().getVectorEndpointAddresses();
-
-                            if (!seed_eas.isEmpty()) {
-                                EndpointAddress aSeedHost = new EndpointAddress(seed_eas.get(0));
-
-                                msgr = rdvService.endpoint.getMessengerImmediate(aSeedHost, null);
-                            }
-                        } else {
-                            // We have a full route, send it to the virtual address of the route!
-                            EndpointAddress aSeedHost = new EndpointAddress(aSeed.getDestPeerID(), null, null);
-
-                            msgr = rdvService.endpoint.getMessengerImmediate(aSeedHost, aSeed);
-                        }
-
-                        if (null != msgr) {
-                            try {
-                                msgr.sendMessageN(msg, pName, pParam);
-                                sentLeaseRequests++;
-                            } catch (Exception failed) {
-                                // ignored
-                            }
-                        }
-                    }
-                } else {
-
-                    // We don't need any of the current seeds. Get new ones when we need them.
-                    seeds.clear();
-                }
+                probeSeeds(false);
 
             } catch (Throwable t) {
 
@@ -0,0 +1,130 @@
+package net.jxta.impl.rendezvous.edge;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time rendezvous take to answer lease requests and keeps a
+ * smoothed estimate for each of them, as TCP does for its retransmission
+ * timer: each new sample accounts for 1/8th of the estimate.
+ * <p/>
+ * A rendezvous may be known under several keys, its peer ID and the
+ * addresses it was probed at. A reply is matched against all of them, and
+ * they are all forgotten together.
+ *
+ * @param <K> the type of the keys.
+ */
+final class RoundTripTimes<K> {
+
+    /**
+     * When the outstanding probes were sent, in {@link System#nanoTime()} terms.
+     */
+    private final Map<K, Long> probedAt = new HashMap<K, Long>();
+
+    /**
+     * The smoothed round trip times, in nanoseconds.
+     */
+    private final Map<K, Long> estimates = new HashMap<K, Long>();
+
+    /**
+     * All the keys of the rendezvous which replied, by each of their keys.
+     */
+    private final Map<K, Collection<K>> aliases = new HashMap<K, Collection<K>>();
+
+    /**
+     * Records that a probe was sent.
+     *
+     * @param key the rendezvous probed.
+     */
+    synchronized void probed(K key) {
+        probedAt.put(key, System.nanoTime());
+    }
+
+    /**
+     * Records a reply to a probe.
+     *
+     * @param keys the keys of the rendezvous which replied.
+     * @return the round trip time of the reply in milliseconds, or -1 if no
+     * probe was outstanding for the rendezvous.
+     */
+    synchronized long replied(Collection<K> keys) {
+        long now = System.nanoTime();
+        long sample = -1;
+
+        for (K key : keys) {
+            Long sentAt = probedAt.remove(key);
+
+            if ((null != sentAt) && (-1 == sample)) {
+                sample = now - sentAt;
+            }
+        }
+
+        if (-1 == sample) {
+            return -1;
+        }
+
+        Collection<K> allKeys = new ArrayList<K>(keys);
+
+        for (K key : keys) {
+            Long estimate = estimates.get(key);
+
+            aliases.put(key, allKeys);
+
+            estimates.put(key, (null == estimate) ? sample : estimate + (sample - estimate) / 8);
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(sample);
+    }
+
+    /**
+     * @param key a rendezvous.
+     * @return the estimated round trip time of the rendezvous in
+     * milliseconds, or -1 if it is unknown.
+     */
+    synchronized long getEstimate(K key) {
+        Long estimate = estimates.get(key);
+
+        return (null == estimate) ? -1 : TimeUnit.NANOSECONDS.toMillis(estimate);
+    }
+
+    /**
+     * Forgets a rendezvous which failed, so that it is probed after those
+     * known to answer. All the keys under which it replied are forgotten.
+     *
+     * @param key the rendezvous.
+     */
+    synchronized void forget(K key) {
+        Collection<K> allKeys = aliases.get(key);
+
+        if (null == allKeys) {
+            allKeys = Collections.singleton(key);
+        }
+
+        for (K aKey : allKeys) {
+            probedAt.remove(aKey);
+            estimates.remove(aKey);
+            aliases.remove(aKey);
+        }
+    }
+
+    /**
+     * Forgets the probes which went unanswered.
+     *
+     * @param timeout how long a probe may be outstanding, in milliseconds.
+     */
+    synchronized void expireProbes(long timeout) {
+        long oldest = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(timeout);
+        Iterator<Long> eachProbe = probedAt.values().iterator();
+
+        while (eachProbe.hasNext()) {
+            if (eachProbe.next() - oldest < 0) {
+                eachProbe.remove();
+            }
+        }
+    }
+}
@@ -65,7 +65,8 @@ public class ClientConnectionMeter {
     private PeerID peerID;
 
     private ClientConnectionMetric cumulativeMetrics;
-    private ClientConnectionMetric deltaMetrics;
+    private final ClientConnectionMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     private long transitionTime = 0;
     private long lastLeaseRenewalTime = 0;
@@ -73,6 +74,7 @@ public class ClientConnectionMeter {
     public ClientConnectionMeter(PeerID peerID) {
         this.peerID = peerID;
         cumulativeMetrics = new ClientConnectionMetric(peerID);
+        deltaMetrics = createDeltaMetric();
     }
 
     public ClientConnectionMetric getCumulativeMetrics() {
@@ -80,76 +82,73 @@ public class ClientConnectionMeter {
     }
 	
     public synchronized ClientConnectionMetric collectMetrics() {
-        ClientConnectionMetric prevDelta = deltaMetrics;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
 
-        deltaMetrics = null;
-        return prevDelta;
+        ClientConnectionMetric collected = createDeltaMetric();
+
+        collected.drainMetrics(deltaMetrics);
+        return collected;
     }
 	
-    private void createDeltaMetric() {
-        deltaMetrics = new ClientConnectionMetric(cumulativeMetrics);
+    private ClientConnectionMetric createDeltaMetric() {
+        return new ClientConnectionMetric(cumulativeMetrics);
     }
 
-    public void clientConnectionEstablished(long lease) {
-        transitionTime = System.currentTimeMillis();
-		
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
         }
+    }
 
+    public void clientConnectionEstablished(long lease) {
+        transitionTime = System.currentTimeMillis();
         deltaMetrics.clientConnectionEstablished(transitionTime, lease);
         cumulativeMetrics.clientConnectionEstablished(transitionTime, lease);
+
+        markDeltaChanged();
     }
 
     public void clientLeaseRenewed(long lease) {
         lastLeaseRenewalTime = System.currentTimeMillis();
-
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.clientLeaseRenewed(lastLeaseRenewalTime, lease);
         cumulativeMetrics.clientLeaseRenewed(lastLeaseRenewalTime, lease);
+
+        markDeltaChanged();
     }
 
     public void errorAddingClient() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.errorAddingClient();
         cumulativeMetrics.errorAddingClient();
+
+        markDeltaChanged();
     }	
 
     public void clientConnectionDisconnected(boolean normal) {
         transitionTime = System.currentTimeMillis();
-	
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.clientConnectionDisconnected(normal, transitionTime);
         cumulativeMetrics.clientConnectionDisconnected(normal, transitionTime);
+
+        markDeltaChanged();
     }
 
     public void unableToRespondToConnectRequest() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.unableToRespondToConnectRequest();
         cumulativeMetrics.unableToRespondToConnectRequest();
+
+        markDeltaChanged();
     }
 
     public void clientConnectionRefused() { 
         transitionTime = System.currentTimeMillis();
-
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.clientConnectionRefused(transitionTime);
         cumulativeMetrics.clientConnectionRefused(transitionTime);
+
+        markDeltaChanged();
     }
 
     @Override
@@ -65,6 +65,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The rendezvous's metric for a client peer interacting with a it
@@ -81,14 +82,14 @@ public class ClientConnectionMetric implements DocumentSerializable {
     private long lastLeaseRenewalTime;
 	
     private long lease;
-    private int numConnects;
-    private int numLeaseRenewals;
-    private int numDisconnects;	
-    private int numConnectionsRefused;
-    private int numErrorsAddingClient;
-    private int numUnableToRespondToConnectRequest;
-
-    private long totalTimeConnected;
+    private final LongAdder numConnects = new LongAdder();
+    private final LongAdder numLeaseRenewals = new LongAdder();
+    private final LongAdder numDisconnects = new LongAdder();	
+    private final LongAdder numConnectionsRefused = new LongAdder();
+    private final LongAdder numErrorsAddingClient = new LongAdder();
+    private final LongAdder numUnableToRespondToConnectRequest = new LongAdder();
+
+    private final LongAdder totalTimeConnected = new LongAdder();
 	
     public ClientConnectionMetric() {}
 
@@ -165,32 +166,32 @@ public class ClientConnectionMetric implements DocumentSerializable {
 
     /** Get number of granted connect messages received from this peer **/
     public int getNumConnects() {
-        return numConnects;
+        return (int) numConnects.sum();
     }
 
     /** Get number of granted lease renewal messages received from this peer **/
     public int getNumLeaseRenewals() {
-        return numLeaseRenewals;
+        return (int) numLeaseRenewals.sum();
     }
 
     /** Get number of disconnect messages received from this peer **/
     public int getNumDisconnects() {
-        return numDisconnects;
+        return (int) numDisconnects.sum();
     }
 
     /** Get number of refused connect/lease-renewal messages received from this peer **/
     public int getNumConnectionsRefused() {
-        return numConnectionsRefused;
+        return (int) numConnectionsRefused.sum();
     }
 
     /** Get number of errors when attempting to add this peer as a client **/
     public int getNumErrorsAddingClient() {
-        return numErrorsAddingClient;
+        return (int) numErrorsAddingClient.sum();
     }
 
     /** Get number of errors when attempting to respond to this peer's request**/
     public int getNumUnableToRespondToConnectRequest() {
-        return numUnableToRespondToConnectRequest;
+        return (int) numUnableToRespondToConnectRequest.sum();
     }
 	
     /** Get the total time this peer has been connected.
@@ -200,7 +201,7 @@ public class ClientConnectionMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalTimeConnected() {
-        return totalTimeConnected;
+        return totalTimeConnected.sum();
     }
 
     /** Get the total time this peer has been connected.  If it is currently 
@@ -211,7 +212,7 @@ public class ClientConnectionMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalTimeConnected(long adjustmentTime) { 
-        long result = totalTimeConnected;
+        long result = totalTimeConnected.sum();
 
         if (isConnected()) { 
             result += (adjustmentTime - this.transitionTime);
@@ -246,7 +247,7 @@ public class ClientConnectionMetric implements DocumentSerializable {
 
     private void resetState(String state, long transitionTime) {
         if (isConnected()) { 
-            totalTimeConnected += (System.currentTimeMillis() - this.transitionTime);
+            totalTimeConnected.add((System.currentTimeMillis() - this.transitionTime));
         }
 
         this.state = state;
@@ -256,12 +257,12 @@ public class ClientConnectionMetric implements DocumentSerializable {
     void clientConnectionEstablished(long transitionTime, long lease) {
         resetState(CONNECTED, transitionTime);
 			
-        this.numConnects++;
+        this.numConnects.increment();
         this.lease = lease;
     }
 
     void clientLeaseRenewed(long lastLeaseRenewalTime, long lease) {
-        this.numLeaseRenewals++;
+        this.numLeaseRenewals.increment();
         this.lease = lease;
         this.lastLeaseRenewalTime = System.currentTimeMillis();
 
@@ -271,18 +272,18 @@ public class ClientConnectionMetric implements DocumentSerializable {
     }
 
     void errorAddingClient() {
-        this.numErrorsAddingClient++;
+        this.numErrorsAddingClient.increment();
         ;
     }
 	
     void clientConnectionDisconnected(boolean normal, long transitionTime) {
         resetState(DISCONNECTED, transitionTime);
-        this.numDisconnects++;
+        this.numDisconnects.increment();
         this.lease = 0;
     }
 
     void unableToRespondToConnectRequest() {
-        this.numUnableToRespondToConnectRequest++;
+        this.numUnableToRespondToConnectRequest.increment();
     }	
 
     void clientConnectionRefused(long transitionTime) {
@@ -291,7 +292,7 @@ public class ClientConnectionMetric implements DocumentSerializable {
         }
 			
         this.transitionTime = transitionTime;
-        this.numConnectionsRefused++;		
+        this.numConnectionsRefused.increment();		
     }	
 
     public void serializeTo(Element element) throws DocumentSerializationException {
@@ -310,26 +311,26 @@ public class ClientConnectionMetric implements DocumentSerializable {
         if (lease != 0) {
             DocumentSerializableUtilities.addLong(element, "lease", lease);
         }
-        if (numConnects != 0) {
-            DocumentSerializableUtilities.addInt(element, "numConnects", numConnects);
+        if (numConnects.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numConnects", (int) numConnects.sum());
         }
-        if (numLeaseRenewals != 0) {
-            DocumentSerializableUtilities.addInt(element, "numLeaseRenewals", numLeaseRenewals);
+        if (numLeaseRenewals.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numLeaseRenewals", (int) numLeaseRenewals.sum());
         }
-        if (numDisconnects != 0) {
-            DocumentSerializableUtilities.addInt(element, "numDisconnects", numDisconnects);
+        if (numDisconnects.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numDisconnects", (int) numDisconnects.sum());
         }
-        if (numConnectionsRefused != 0) {
-            DocumentSerializableUtilities.addInt(element, "numConnectionsRefused", numConnectionsRefused);
+        if (numConnectionsRefused.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numConnectionsRefused", (int) numConnectionsRefused.sum());
         }
-        if (numErrorsAddingClient != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsAddingClient", numErrorsAddingClient);
+        if (numErrorsAddingClient.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsAddingClient", (int) numErrorsAddingClient.sum());
         }
-        if (numUnableToRespondToConnectRequest != 0) {
-            DocumentSerializableUtilities.addInt(element, "numUnableToRespondToConnectRequest", numUnableToRespondToConnectRequest);
+        if (numUnableToRespondToConnectRequest.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numUnableToRespondToConnectRequest", (int) numUnableToRespondToConnectRequest.sum());
         }
-        if (totalTimeConnected != 0) {
-            DocumentSerializableUtilities.addLong(element, "totalTimeConnected", totalTimeConnected);
+        if (totalTimeConnected.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "totalTimeConnected", totalTimeConnected.sum());
         }
     }
 
@@ -353,19 +354,19 @@ public class ClientConnectionMetric implements DocumentSerializable {
             } else if (tagName.equals("lease")) { 
                 lease = DocumentSerializableUtilities.getLong(childElement);
             } else if (tagName.equals("numConnects")) { 
-                numConnects = DocumentSerializableUtilities.getInt(childElement);
+                numConnects.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numLeaseRenewals")) { 
-                numLeaseRenewals = DocumentSerializableUtilities.getInt(childElement);
+                numLeaseRenewals.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numDisconnects")) { 
-                numDisconnects = DocumentSerializableUtilities.getInt(childElement);
+                numDisconnects.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numConnectionsRefused")) { 
-                numConnectionsRefused = DocumentSerializableUtilities.getInt(childElement);
+                numConnectionsRefused.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsAddingClient")) { 
-                numErrorsAddingClient = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsAddingClient.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numUnableToRespondToConnectRequest")) { 
-                numUnableToRespondToConnectRequest = DocumentSerializableUtilities.getInt(childElement);
+                numUnableToRespondToConnectRequest.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("totalTimeConnected")) { 
-                totalTimeConnected = DocumentSerializableUtilities.getLong(childElement);
+                totalTimeConnected.add(DocumentSerializableUtilities.getLong(childElement));
             }
         }
     }
@@ -385,12 +386,37 @@ public class ClientConnectionMetric implements DocumentSerializable {
 
         lease = otherClientConnectionMetric.lease;
 
-        numConnects += otherClientConnectionMetric.numConnects;
-        numLeaseRenewals += otherClientConnectionMetric.numLeaseRenewals;
-        numDisconnects += otherClientConnectionMetric.numDisconnects;
-        numConnectionsRefused += otherClientConnectionMetric.numConnectionsRefused;
-        numErrorsAddingClient += otherClientConnectionMetric.numErrorsAddingClient;
-        numUnableToRespondToConnectRequest += otherClientConnectionMetric.numUnableToRespondToConnectRequest;
-        totalTimeConnected += otherClientConnectionMetric.totalTimeConnected;
+        numConnects.add(otherClientConnectionMetric.numConnects.sum());
+        numLeaseRenewals.add(otherClientConnectionMetric.numLeaseRenewals.sum());
+        numDisconnects.add(otherClientConnectionMetric.numDisconnects.sum());
+        numConnectionsRefused.add(otherClientConnectionMetric.numConnectionsRefused.sum());
+        numErrorsAddingClient.add(otherClientConnectionMetric.numErrorsAddingClient.sum());
+        numUnableToRespondToConnectRequest.add(otherClientConnectionMetric.numUnableToRespondToConnectRequest.sum());
+        totalTimeConnected.add(otherClientConnectionMetric.totalTimeConnected.sum());
+    }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(ClientConnectionMetric otherClientConnectionMetric) {
+        if (otherClientConnectionMetric.state != null) {
+            state = otherClientConnectionMetric.state;
+        }
+
+        if (otherClientConnectionMetric.transitionTime != 0) {
+            transitionTime = otherClientConnectionMetric.transitionTime;
+        }
+
+        lease = otherClientConnectionMetric.lease;
+
+        numConnects.add(otherClientConnectionMetric.numConnects.sumThenReset());
+        numLeaseRenewals.add(otherClientConnectionMetric.numLeaseRenewals.sumThenReset());
+        numDisconnects.add(otherClientConnectionMetric.numDisconnects.sumThenReset());
+        numConnectionsRefused.add(otherClientConnectionMetric.numConnectionsRefused.sumThenReset());
+        numErrorsAddingClient.add(otherClientConnectionMetric.numErrorsAddingClient.sumThenReset());
+        numUnableToRespondToConnectRequest.add(otherClientConnectionMetric.numUnableToRespondToConnectRequest.sumThenReset());
+        totalTimeConnected.add(otherClientConnectionMetric.totalTimeConnected.sumThenReset());
     }
 }
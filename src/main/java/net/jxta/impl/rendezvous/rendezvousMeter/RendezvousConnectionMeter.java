@@ -65,7 +65,8 @@ public class RendezvousConnectionMeter {
     private PeerID peerID;
 
     private RendezvousConnectionMetric cumulativeMetrics;
-    private RendezvousConnectionMetric deltaMetrics;
+    private final RendezvousConnectionMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     private long transitionTime = 0;
     private long lastLeaseRenewalTime = 0;
@@ -73,6 +74,7 @@ public class RendezvousConnectionMeter {
     public RendezvousConnectionMeter(PeerID peerID) {
         this.peerID = peerID;
         cumulativeMetrics = new RendezvousConnectionMetric(peerID);
+        deltaMetrics = createDeltaMetric();
     }
 
     public RendezvousConnectionMetric getCumulativeMetrics() {
@@ -88,14 +90,27 @@ public class RendezvousConnectionMeter {
     }
 
     public synchronized RendezvousConnectionMetric collectMetrics() {
-        RendezvousConnectionMetric prevDelta = deltaMetrics;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        RendezvousConnectionMetric collected = createDeltaMetric();
 
-        deltaMetrics = null;
-        return prevDelta;
+        collected.drainMetrics(deltaMetrics);
+        return collected;
     }
 
-    private void createDeltaMetric() {
-        deltaMetrics = new RendezvousConnectionMetric(cumulativeMetrics);
+    private RendezvousConnectionMetric createDeltaMetric() {
+        return new RendezvousConnectionMetric(cumulativeMetrics);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     @Override
@@ -105,13 +120,10 @@ public class RendezvousConnectionMeter {
 
     public void beginConnection() {
         transitionTime = System.currentTimeMillis();
-		
-        if (deltaMetrics == null) {
-            createDeltaMetric();
-        }
-
         deltaMetrics.beginConnection(transitionTime);
         cumulativeMetrics.beginConnection(transitionTime);
+
+        markDeltaChanged();
     }
 
     public void connectionEstablished(long lease) {
@@ -119,45 +131,33 @@ public class RendezvousConnectionMeter {
         long timeToConnect = now - transitionTime;
 
         transitionTime = now;
-		
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.connectionEstablished(transitionTime, timeToConnect, lease);
         cumulativeMetrics.connectionEstablished(transitionTime, timeToConnect, lease);
+
+        markDeltaChanged();
     }	
 
     public void leaseRenewed(long lease) {
         lastLeaseRenewalTime = System.currentTimeMillis();
-
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.leaseRenewed(lastLeaseRenewalTime, lease);
         cumulativeMetrics.leaseRenewed(lastLeaseRenewalTime, lease);
+
+        markDeltaChanged();
     }
 
     public void connectionRefused() {
         transitionTime = System.currentTimeMillis();
-		
-        if (deltaMetrics == null) {
-            createDeltaMetric();
-        }
-
         deltaMetrics.connectionRefused(transitionTime);
         cumulativeMetrics.connectionRefused(transitionTime);
+
+        markDeltaChanged();
     }
 
     public void connectionDisconnected() {
         transitionTime = System.currentTimeMillis();
-		
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.connectionDisconnected(transitionTime);
         cumulativeMetrics.connectionDisconnected(transitionTime);
+
+        markDeltaChanged();
     }
 }
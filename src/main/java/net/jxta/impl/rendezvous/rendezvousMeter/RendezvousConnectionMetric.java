@@ -65,6 +65,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The metrics about a client peer's connection to a rendezvous
@@ -81,16 +82,16 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
     private long transitionTime;
 
     private long lease;
-    private int numConnectionsBegun = 0;
-    private int numConnectionsEstablished = 0;
-    private int numConnectionsRefused = 0;
-    private long totalTimesToConnect;
-    private long totalTimeConnected;
+    private final LongAdder numConnectionsBegun = new LongAdder();
+    private final LongAdder numConnectionsEstablished = new LongAdder();
+    private final LongAdder numConnectionsRefused = new LongAdder();
+    private final LongAdder totalTimesToConnect = new LongAdder();
+    private final LongAdder totalTimeConnected = new LongAdder();
 
     private long lastLeaseRenewalTime;
-    private int numLeaseRenewals;
+    private final LongAdder numLeaseRenewals = new LongAdder();
 
-    private int numDisconnects;
+    private final LongAdder numDisconnects = new LongAdder();
 
     public RendezvousConnectionMetric() {}
 
@@ -158,22 +159,22 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
 
     /** Get Number of Connections begun with Rendezvous **/
     public int getNumConnectionsBegun() {
-        return numConnectionsBegun;
+        return (int) numConnectionsBegun.sum();
     }
 
     /** Get Number of Connections established with Rendezvous **/
     public int getNumConnectionsEstablished() {
-        return numConnectionsEstablished;
+        return (int) numConnectionsEstablished.sum();
     }
 
     /** Get Number of Connections refused by Rendezvous **/
     public int getNumConnectionsRefused() {
-        return numConnectionsRefused;
+        return (int) numConnectionsRefused.sum();
     }
 
     /** Get Sum of times it took to connect **/
     public long getTotalTimesToConnect() {
-        return totalTimesToConnect;
+        return totalTimesToConnect.sum();
     }
 
     /** Get Last Lease Renewal Time **/
@@ -183,12 +184,12 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
 
     /** Get Number of lease Renewals **/
     public int getNumLeaseRenewals() {
-        return numLeaseRenewals;
+        return (int) numLeaseRenewals.sum();
     }
 
     /** Get Number of Disconnects **/
     public int getNumDisconnects() {
-        return numDisconnects;
+        return (int) numDisconnects.sum();
     }
 
     /** Get time disconnected to Rendezvous 
@@ -210,7 +211,7 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalTimeConnected() {
-        return totalTimeConnected;
+        return totalTimeConnected.sum();
     }
 
     /** Get the total time this peer has been connected.  If it is currently 
@@ -221,7 +222,7 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalTimeConnected(long adjustmentTime) { 
-        long result = totalTimeConnected;
+        long result = totalTimeConnected.sum();
 
         if (isConnected()) { 
             result += (adjustmentTime - this.transitionTime);
@@ -256,7 +257,7 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
 
     private void resetState(String state, long transitionTime) {
         if (isConnected()) { 
-            totalTimeConnected += (System.currentTimeMillis() - this.transitionTime);
+            totalTimeConnected.add((System.currentTimeMillis() - this.transitionTime));
         }
 
         this.state = state;
@@ -266,19 +267,19 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
     void beginConnection(long transitionTime) {
         resetState(CONNECTING, transitionTime);
 
-        this.numConnectionsBegun++;
+        this.numConnectionsBegun.increment();
     }
 
     void connectionEstablished(long transitionTime, long timeToConnectTime, long lease) {
         resetState(CONNECTED, transitionTime);
-        this.totalTimesToConnect += timeToConnectTime;
-        this.numConnectionsEstablished++;
+        this.totalTimesToConnect.add(timeToConnectTime);
+        this.numConnectionsEstablished.increment();
 		
         this.lease = lease;	 
     }
 
     void leaseRenewed(long lastLeaseRenewalTime, long lease) {
-        this.numLeaseRenewals++;
+        this.numLeaseRenewals.increment();
 		
         this.lastLeaseRenewalTime = lastLeaseRenewalTime;
         this.lease = lease;
@@ -290,13 +291,13 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
 	
     void connectionRefused(long transitionTime) {
         resetState(REFUSED, lastLeaseRenewalTime);
-        numConnectionsRefused++;
+        numConnectionsRefused.increment();
     }
 	
     void connectionDisconnected(long transitionTime) {
         resetState(DISCONNECTED, lastLeaseRenewalTime);
 
-        numDisconnects++;
+        numDisconnects.increment();
     }
 
     @Override
@@ -328,29 +329,29 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
         if (lease != 0) {
             DocumentSerializableUtilities.addLong(element, "lease", lease);
         }
-        if (numConnectionsBegun != 0) {
-            DocumentSerializableUtilities.addInt(element, "numConnectionsBegun", numConnectionsBegun);
+        if (numConnectionsBegun.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numConnectionsBegun", (int) numConnectionsBegun.sum());
         }
-        if (numConnectionsEstablished != 0) {
-            DocumentSerializableUtilities.addInt(element, "numConnectionsEstablished", numConnectionsEstablished);
+        if (numConnectionsEstablished.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numConnectionsEstablished", (int) numConnectionsEstablished.sum());
         }
-        if (numConnectionsRefused != 0) {
-            DocumentSerializableUtilities.addInt(element, "numConnectionsRefused", numConnectionsRefused);
+        if (numConnectionsRefused.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numConnectionsRefused", (int) numConnectionsRefused.sum());
         }
-        if (totalTimesToConnect != 0) {
-            DocumentSerializableUtilities.addLong(element, "totalTimesToConnect", totalTimesToConnect);
+        if (totalTimesToConnect.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "totalTimesToConnect", totalTimesToConnect.sum());
         }
-        if (totalTimeConnected != 0) {
-            DocumentSerializableUtilities.addLong(element, "totalTimeConnected", totalTimeConnected);
+        if (totalTimeConnected.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "totalTimeConnected", totalTimeConnected.sum());
         }
         if (lastLeaseRenewalTime != 0) {
             DocumentSerializableUtilities.addLong(element, "lastLeaseRenewalTime", lastLeaseRenewalTime);
         }
-        if (numLeaseRenewals != 0) {
-            DocumentSerializableUtilities.addInt(element, "numLeaseRenewals", numLeaseRenewals);
+        if (numLeaseRenewals.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numLeaseRenewals", (int) numLeaseRenewals.sum());
         }
-        if (numDisconnects != 0) {
-            DocumentSerializableUtilities.addInt(element, "numDisconnects", numDisconnects);
+        if (numDisconnects.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numDisconnects", (int) numDisconnects.sum());
         }
     }
 
@@ -370,21 +371,21 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
             } else if (tagName.equals("lease")) { 
                 lease = DocumentSerializableUtilities.getLong(childElement);
             } else if (tagName.equals("numConnectionsBegun")) { 
-                numConnectionsBegun = DocumentSerializableUtilities.getInt(childElement);
+                numConnectionsBegun.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numConnectionsEstablished")) { 
-                numConnectionsEstablished = DocumentSerializableUtilities.getInt(childElement);
+                numConnectionsEstablished.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numConnectionsRefused")) { 
-                numConnectionsRefused = DocumentSerializableUtilities.getInt(childElement);
+                numConnectionsRefused.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("totalTimesToConnect")) { 
-                totalTimesToConnect = DocumentSerializableUtilities.getLong(childElement);
+                totalTimesToConnect.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("totalTimeConnected")) { 
-                totalTimeConnected = DocumentSerializableUtilities.getLong(childElement);
+                totalTimeConnected.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("lastLeaseRenewalTime")) { 
                 lastLeaseRenewalTime = DocumentSerializableUtilities.getLong(childElement);
             } else if (tagName.equals("numLeaseRenewals")) { 
-                numLeaseRenewals = DocumentSerializableUtilities.getInt(childElement);
+                numLeaseRenewals.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numDisconnects")) { 
-                numDisconnects = DocumentSerializableUtilities.getInt(childElement);
+                numDisconnects.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
     }
@@ -403,18 +404,47 @@ public class RendezvousConnectionMetric implements DocumentSerializable {
         }
 
         if (otherRendezvousConnectionMetric.lastLeaseRenewalTime != 0) {
-            lastLeaseRenewalTime = otherRendezvousConnectionMetric.transitionTime;
+            lastLeaseRenewalTime = otherRendezvousConnectionMetric.lastLeaseRenewalTime;
         }
 	
         lease = otherRendezvousConnectionMetric.lease;
 			
-        numConnectionsBegun += otherRendezvousConnectionMetric.numConnectionsBegun;
-        numConnectionsEstablished += otherRendezvousConnectionMetric.numConnectionsEstablished;
-        numConnectionsRefused += otherRendezvousConnectionMetric.numConnectionsRefused;
-        totalTimeConnected += otherRendezvousConnectionMetric.totalTimeConnected;
+        numConnectionsBegun.add(otherRendezvousConnectionMetric.numConnectionsBegun.sum());
+        numConnectionsEstablished.add(otherRendezvousConnectionMetric.numConnectionsEstablished.sum());
+        numConnectionsRefused.add(otherRendezvousConnectionMetric.numConnectionsRefused.sum());
+        totalTimeConnected.add(otherRendezvousConnectionMetric.totalTimeConnected.sum());
 	
-        numLeaseRenewals += otherRendezvousConnectionMetric.numLeaseRenewals;
+        numLeaseRenewals.add(otherRendezvousConnectionMetric.numLeaseRenewals.sum());
 	
-        numDisconnects += otherRendezvousConnectionMetric.numDisconnects;
+        numDisconnects.add(otherRendezvousConnectionMetric.numDisconnects.sum());
+    }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(RendezvousConnectionMetric otherRendezvousConnectionMetric) {
+        if (otherRendezvousConnectionMetric.state != null) {
+            state = otherRendezvousConnectionMetric.state;
+        }
+
+        if (otherRendezvousConnectionMetric.transitionTime != 0) {
+            transitionTime = otherRendezvousConnectionMetric.transitionTime;
+        }
+
+        if (otherRendezvousConnectionMetric.lastLeaseRenewalTime != 0) {
+            lastLeaseRenewalTime = otherRendezvousConnectionMetric.lastLeaseRenewalTime;
+        }
+	
+        lease = otherRendezvousConnectionMetric.lease;
+
+        numConnectionsBegun.add(otherRendezvousConnectionMetric.numConnectionsBegun.sumThenReset());
+        numConnectionsEstablished.add(otherRendezvousConnectionMetric.numConnectionsEstablished.sumThenReset());
+        numConnectionsRefused.add(otherRendezvousConnectionMetric.numConnectionsRefused.sumThenReset());
+        totalTimesToConnect.add(otherRendezvousConnectionMetric.totalTimesToConnect.sumThenReset());
+        totalTimeConnected.add(otherRendezvousConnectionMetric.totalTimeConnected.sumThenReset());
+        numLeaseRenewals.add(otherRendezvousConnectionMetric.numLeaseRenewals.sumThenReset());
+        numDisconnects.add(otherRendezvousConnectionMetric.numDisconnects.sumThenReset());
     }
 }
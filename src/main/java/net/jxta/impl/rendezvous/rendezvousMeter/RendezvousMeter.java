@@ -61,28 +61,42 @@ package net.jxta.impl.rendezvous.rendezvousMeter;
  **/
 public class RendezvousMeter {
     private RendezvousMetric cumulativeMetrics;
-    private RendezvousMetric deltaMetrics;
+    private final RendezvousMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     private long transitionTime = System.currentTimeMillis();
 
     public RendezvousMeter() {
         cumulativeMetrics = new RendezvousMetric(null);
+        deltaMetrics = createDeltaMetric();
     }
 
     public RendezvousMetric getCumulativeMetrics() { 
         return cumulativeMetrics; 
     }
 
-    public synchronized RendezvousMetric collectMetrics() {	
-        RendezvousMetric prevDelta = deltaMetrics;
+    public synchronized RendezvousMetric collectMetrics() {
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
 
-        deltaMetrics = null;
+        RendezvousMetric collected = createDeltaMetric();
+
+        collected.drainMetrics(deltaMetrics);
+        return collected;
+    }
 
-        return prevDelta;
+    private RendezvousMetric createDeltaMetric() {
+        return new RendezvousMetric(cumulativeMetrics);
     }
 
-    private void createDeltaMetric() {
-        deltaMetrics = new RendezvousMetric(cumulativeMetrics);
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     @Override
@@ -91,20 +105,14 @@ public class RendezvousMeter {
     }
 
     public void startEdge() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         transitionTime = System.currentTimeMillis();
         deltaMetrics.startEdge(transitionTime);
         cumulativeMetrics.startEdge(transitionTime);
+
+        markDeltaChanged();
     }
 	
     public void stopEdge() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         long now = System.currentTimeMillis();
         long timeAsEdge = now - transitionTime;
 		
@@ -116,23 +124,19 @@ public class RendezvousMeter {
 		
         deltaMetrics.stopEdge(now, timeAsEdge);
         cumulativeMetrics.stopEdge(now, timeAsEdge);
+
+        markDeltaChanged();
     }
 
     public void startRendezvous() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         transitionTime = System.currentTimeMillis();
         deltaMetrics.startRendezvous(transitionTime);
         cumulativeMetrics.startRendezvous(transitionTime);
+
+        markDeltaChanged();
     }
 
     public void stopRendezvous() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         long now = System.currentTimeMillis();
         long timeAsRendezvous = cumulativeMetrics.isRendezvous() ? (now - transitionTime) : 0;
 		
@@ -140,131 +144,105 @@ public class RendezvousMeter {
 
         deltaMetrics.stopRendezvous(now, timeAsRendezvous);
         cumulativeMetrics.stopRendezvous(now, timeAsRendezvous);
+
+        markDeltaChanged();
     }
 
     public void invalidMessageReceived() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.invalidMessageReceived();
         cumulativeMetrics.invalidMessageReceived();
+
+        markDeltaChanged();
     }
 
     public void receivedMessageProcessedLocally() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.receivedMessageProcessedLocally();
         cumulativeMetrics.receivedMessageProcessedLocally();
+
+        markDeltaChanged();
     }
 
     public void receivedMessageRepropagatedInGroup() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.receivedMessageRepropagatedInGroup();
         cumulativeMetrics.receivedMessageRepropagatedInGroup();
+
+        markDeltaChanged();
     }
 
     public void receivedDeadMessage() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.receivedDeadMessage();
         cumulativeMetrics.receivedDeadMessage();
+
+        markDeltaChanged();
     }
 
     public void receivedLoopbackMessage() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.receivedLoopbackMessage();
         cumulativeMetrics.receivedLoopbackMessage();
+
+        markDeltaChanged();
     }
 
     public void receivedDuplicateMessage() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.receivedDuplicateMessage();
         cumulativeMetrics.receivedDuplicateMessage();
+
+        markDeltaChanged();
     }
 
     public void propagateToPeers(int numPeers) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.propagateToPeers(numPeers);
         cumulativeMetrics.propagateToPeers(numPeers);
+
+        markDeltaChanged();
     }
 
     public void propagateToNeighbors() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.propagateToNeighbors();
         cumulativeMetrics.propagateToNeighbors();
+
+        markDeltaChanged();
     }
 	
     public void propagateToNeighborsFailed() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.propagateToNeighborsFailed();
         cumulativeMetrics.propagateToNeighborsFailed();
+
+        markDeltaChanged();
     }
 
     public void propagateToGroup() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.propagateToGroup();
         cumulativeMetrics.propagateToGroup();
+
+        markDeltaChanged();
     }
 
     public void walk() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.walk();
         cumulativeMetrics.walk();
+
+        markDeltaChanged();
     }
 
     public void walkFailed() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.walkFailed();
         cumulativeMetrics.walkFailed();
+
+        markDeltaChanged();
     }
 
     public void walkToPeers(int numPeers) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.walkToPeers(numPeers);
         cumulativeMetrics.walkToPeers(numPeers);
+
+        markDeltaChanged();
     }
 
     public void walkToPeersFailed() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.walkToPeersFailed();
         cumulativeMetrics.walkToPeersFailed();
+
+        markDeltaChanged();
     }
 }
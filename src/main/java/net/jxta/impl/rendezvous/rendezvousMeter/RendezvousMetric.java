@@ -63,6 +63,7 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  The Metric corresponding to the state and aggregate information of a Rendezvous Service
@@ -76,39 +77,39 @@ public class RendezvousMetric implements DocumentSerializable {
     private String state = null;
     private long transitionTime = 0;
 
-    private long totalEdgeTime;
-    private int numEdgeTransitions;
+    private final LongAdder totalEdgeTime = new LongAdder();
+    private final LongAdder numEdgeTransitions = new LongAdder();
 
-    private long totalRendezvousTime;
-    private long numRendezvousTransitions;
+    private final LongAdder totalRendezvousTime = new LongAdder();
+    private final LongAdder numRendezvousTransitions = new LongAdder();
 
-    private int numReceivedProcessedLocally;
-    private int numReceivedRepropagatedInGroup;
-    private int numReceivedInvalid;
-    private int numReceivedDead;
-    private int numReceivedLoopback;
-    private int numReceivedDuplicate;
+    private final LongAdder numReceivedProcessedLocally = new LongAdder();
+    private final LongAdder numReceivedRepropagatedInGroup = new LongAdder();
+    private final LongAdder numReceivedInvalid = new LongAdder();
+    private final LongAdder numReceivedDead = new LongAdder();
+    private final LongAdder numReceivedLoopback = new LongAdder();
+    private final LongAdder numReceivedDuplicate = new LongAdder();
 
-    private int numPropagated;
-    private int numFailedPropagating;
-    private int numRepropagated;
-    private int numFailedRepropagating;
+    private final LongAdder numPropagated = new LongAdder();
+    private final LongAdder numFailedPropagating = new LongAdder();
+    private final LongAdder numRepropagated = new LongAdder();
+    private final LongAdder numFailedRepropagating = new LongAdder();
 	
-    private int numPropagatedToPeers;
-    private int numFailedPropagatingToPeers;
-    private int numPeersPropagatedTo;
+    private final LongAdder numPropagatedToPeers = new LongAdder();
+    private final LongAdder numFailedPropagatingToPeers = new LongAdder();
+    private final LongAdder numPeersPropagatedTo = new LongAdder();
 	
-    private int numPropagatedInGroup;
+    private final LongAdder numPropagatedInGroup = new LongAdder();
 	
-    private int numPropagatedToNeighbors;
-    private int numFailedPropagatingToNeighbors;
+    private final LongAdder numPropagatedToNeighbors = new LongAdder();
+    private final LongAdder numFailedPropagatingToNeighbors = new LongAdder();
 	
-    private int numWalks;
-    private int numFailedWalks;
+    private final LongAdder numWalks = new LongAdder();
+    private final LongAdder numFailedWalks = new LongAdder();
 	
-    private int numWalkedToPeers;
-    private int numFailedWalkToPeers;
-    private int numPeersWalkedTo;
+    private final LongAdder numWalkedToPeers = new LongAdder();
+    private final LongAdder numFailedWalkToPeers = new LongAdder();
+    private final LongAdder numPeersWalkedTo = new LongAdder();
 
     public RendezvousMetric() {}
 	
@@ -159,7 +160,7 @@ public class RendezvousMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalEdgeTime() {
-        return totalEdgeTime;
+        return totalEdgeTime.sum();
     }
 
     /** Get the total time it began operating as an Edge.  If it is currently operating as
@@ -170,7 +171,7 @@ public class RendezvousMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalEdgeTime(long adjustmentTime) {
-        long result = totalEdgeTime;
+        long result = totalEdgeTime.sum();
 
         if (isEdge()) { 
             result += (adjustmentTime - this.transitionTime);
@@ -181,7 +182,7 @@ public class RendezvousMetric implements DocumentSerializable {
 
     /** The number of times the peer has become an edge **/
     public int getNumEdgeTransitions() {
-        return numEdgeTransitions;
+        return (int) numEdgeTransitions.sum();
     }
 	
     /** Get the time that it began operating as an Rendezvous
@@ -198,7 +199,7 @@ public class RendezvousMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalRendezvousTime() {
-        return totalRendezvousTime;
+        return totalRendezvousTime.sum();
     }
 
     /** Get the total time it began operating as an Rendezvous.  If it is currently operating as
@@ -209,7 +210,7 @@ public class RendezvousMetric implements DocumentSerializable {
      * @return time in ms (see note above)
      **/
     public long getTotalRendezvousTime(long adjustmentTime) {
-        long result = totalRendezvousTime;
+        long result = totalRendezvousTime.sum();
 
         if (isRendezvous()) { 
             result += (adjustmentTime - this.transitionTime);
@@ -220,122 +221,122 @@ public class RendezvousMetric implements DocumentSerializable {
 
     /** The number of times the peer has become an rendezvous **/
     public long getNumRendezvousTransitions() {
-        return numRendezvousTransitions;
+        return numRendezvousTransitions.sum();
     }
 
     /** The number of messages received that were sent to local listeners **/
     public int getNumReceivedProcessedLocally() {
-        return numReceivedProcessedLocally;
+        return (int) numReceivedProcessedLocally.sum();
     }
 
     /** The number of messages received that were repropagated to the group **/
     public int getNumReceivedRepropagatedInGroup() {
-        return numReceivedRepropagatedInGroup;
+        return (int) numReceivedRepropagatedInGroup.sum();
     }
 
     /** The number of invalid messages received **/
     public int getNumReceivedInvalid() {
-        return numReceivedInvalid;
+        return (int) numReceivedInvalid.sum();
     }
 
     /** The number of TTL Dead messages received **/
     public int getNumReceivedDead() {
-        return numReceivedDead;
+        return (int) numReceivedDead.sum();
     }
 
     /** The number of messages received that originated at peer **/
     public int getNumReceivedLoopback() {
-        return numReceivedLoopback;
+        return (int) numReceivedLoopback.sum();
     }
 
     /** The number of duplicate messages received **/
     public int getNumReceivedDuplicate() {
-        return numReceivedDuplicate;
+        return (int) numReceivedDuplicate.sum();
     }
 
     /** The total number of inbound messages to the rendezvous service that could not be delivered**/
     public int getTotalReceivedUndelivered() {
-        return numReceivedInvalid + numReceivedDead + numReceivedLoopback + numReceivedDuplicate;
+        return (int) (numReceivedInvalid.sum() + numReceivedDead.sum() + numReceivedLoopback.sum() + numReceivedDuplicate.sum());
     }
 
     /** The total number of inbound messages to the rendezvous service **/
     public int getTotalReceived() {
-        return getTotalReceivedUndelivered() + numReceivedProcessedLocally + numReceivedRepropagatedInGroup;
+        return (int) (getTotalReceivedUndelivered() + numReceivedProcessedLocally.sum() + numReceivedRepropagatedInGroup.sum());
     }
 
     /** The number of outbound messages propagated **/
     public int getNumPropagated() {
-        return numPropagated;
+        return (int) numPropagated.sum();
     }
 
     /** The number of outbound messages failed during propagation **/
     public int getNumFailedPropagating() {
-        return numFailedPropagating;
+        return (int) numFailedPropagating.sum();
     }
 
     /** The number of outbound messages repropagated **/
     public int getNumRepropagated() {
-        return numRepropagated;
+        return (int) numRepropagated.sum();
     }
 
     /** The number of outbound messages failed during repropagation **/
     public int getNumFailedRepropagating() {
-        return numFailedRepropagating;
+        return (int) numFailedRepropagating.sum();
     }
 
     /** The number of outbound messages propagated to peers **/
     public int getNumPropagatedToPeers() {
-        return numPropagatedToPeers;
+        return (int) numPropagatedToPeers.sum();
     }
 
     /** The number of outbound messages failed when propagated to peers **/
     public int getNumFailedPropagatingToPeers() {
-        return numFailedPropagatingToPeers;
+        return (int) numFailedPropagatingToPeers.sum();
     }
 
     /** The number of peers that outbound messages were propagated to **/
     public int getNumPeersPropagatedTo() {
-        return numPeersPropagatedTo;
+        return (int) numPeersPropagatedTo.sum();
     }
 
     /** The number of outbound messages propagated in group **/
     public int getNumPropagatedInGroup() {
-        return numPropagatedInGroup;
+        return (int) numPropagatedInGroup.sum();
     }
 
     /** The number of outbound messages propagated to neighbors **/
     public int getNumPropagatedToNeighbors() {
-        return numPropagatedToNeighbors;
+        return (int) numPropagatedToNeighbors.sum();
     }
 
     /** The number of outbound messages failed when propagated to neighbors **/
     public int getNumFailedPropagatingToNeighbors() {
-        return numFailedPropagatingToNeighbors;
+        return (int) numFailedPropagatingToNeighbors.sum();
     }
 
     /** The number of outbound messages walked  **/
     public int getNumWalks() {
-        return numWalks;
+        return (int) numWalks.sum();
     }
 
     /** The number of outbound messages failed attempting walk **/
     public int getNumFailedWalks() {
-        return numFailedWalks;
+        return (int) numFailedWalks.sum();
     }
 
     /** The number of outbound messages walked to a set of peers **/
     public int getNumWalkedToPeers() {
-        return numWalkedToPeers;
+        return (int) numWalkedToPeers.sum();
     }
 
     /** The number of outbound messages failed in an attempt to walk to a set of peers **/
     public int getNumFailedWalkToPeers() {
-        return numFailedWalkToPeers;
+        return (int) numFailedWalkToPeers.sum();
     }
 
     /** The number of peers that outbound messages were walked to **/
     public int getNumPeersWalkedTo() {
-        return numPeersWalkedTo;
+        return (int) numPeersWalkedTo.sum();
     }
 
     /** Get the duration of current transition to an edge
@@ -387,83 +388,83 @@ public class RendezvousMetric implements DocumentSerializable {
     void startEdge(long transitionTime) {
         this.transitionTime = transitionTime;
         this.state = EDGE;
-        this.numEdgeTransitions++;
+        this.numEdgeTransitions.increment();
     }
 
     void stopEdge(long transitionTime, long timeAsEdge) {
         this.state = STOPPED;
         this.transitionTime = transitionTime;
-        this.totalEdgeTime += timeAsEdge;
+        this.totalEdgeTime.add(timeAsEdge);
     }
 
     void startRendezvous(long transitionTime) {
         this.state = RENDEZVOUS;
         this.transitionTime = transitionTime;
-        this.numRendezvousTransitions++;
+        this.numRendezvousTransitions.increment();
     }
 
     void stopRendezvous(long transitionTime, long timeAsRendezvous) {
         this.state = STOPPED;
         this.transitionTime = transitionTime;
-        this.totalRendezvousTime += timeAsRendezvous;
+        this.totalRendezvousTime.add(timeAsRendezvous);
     }
 
     void invalidMessageReceived() {
-        numReceivedInvalid++;
+        numReceivedInvalid.increment();
     }
 
     void receivedMessageProcessedLocally() {
-        numReceivedProcessedLocally++;
+        numReceivedProcessedLocally.increment();
     }
 
     void receivedMessageRepropagatedInGroup() {
-        numReceivedRepropagatedInGroup++;
+        numReceivedRepropagatedInGroup.increment();
     }
 
     void receivedDeadMessage() {
-        numReceivedDead++;
+        numReceivedDead.increment();
     }
 
     void receivedLoopbackMessage() {
-        numReceivedLoopback++;
+        numReceivedLoopback.increment();
     }
 
     void receivedDuplicateMessage() {
-        numReceivedDuplicate++;
+        numReceivedDuplicate.increment();
     } 
 	
     void propagateToPeers(int numPeers) {
-        numPropagatedToPeers++;
-        numPeersPropagatedTo += numPeers;
+        numPropagatedToPeers.increment();
+        numPeersPropagatedTo.add(numPeers);
     }
 
     void propagateToNeighbors() {
-        numPropagatedToNeighbors++;
+        numPropagatedToNeighbors.increment();
     }
 	
     void propagateToNeighborsFailed() {
-        numFailedPropagatingToNeighbors++;
+        numFailedPropagatingToNeighbors.increment();
     }
 
     void propagateToGroup() {
-        numPropagatedInGroup++;
+        numPropagatedInGroup.increment();
     }
 
     void walk() {
-        numWalks++;
+        numWalks.increment();
     }
 
     void walkFailed() {
-        numFailedWalks++;
+        numFailedWalks.increment();
     }
 
     void walkToPeers(int numPeers) {
-        numWalkedToPeers++;
-        numPeersWalkedTo += numPeers;
+        numWalkedToPeers.increment();
+        numPeersWalkedTo.add(numPeers);
     }
 
     void walkToPeersFailed() {
-        numFailedWalkToPeers++;
+        numFailedWalkToPeers.increment();
     }
 
     public void mergeMetrics(RendezvousMetric otherRendezvousMetric) {	
@@ -479,41 +480,82 @@ public class RendezvousMetric implements DocumentSerializable {
             transitionTime = otherRendezvousMetric.transitionTime;
         }
 			
-        this.totalEdgeTime += otherRendezvousMetric.totalEdgeTime;
-        this.numEdgeTransitions += otherRendezvousMetric.numEdgeTransitions;
+        this.totalEdgeTime.add(otherRendezvousMetric.totalEdgeTime.sum());
+        this.numEdgeTransitions.add(otherRendezvousMetric.numEdgeTransitions.sum());
 
-        this.totalRendezvousTime += otherRendezvousMetric.totalRendezvousTime;
-        this.numRendezvousTransitions += otherRendezvousMetric.numRendezvousTransitions;
+        this.totalRendezvousTime.add(otherRendezvousMetric.totalRendezvousTime.sum());
+        this.numRendezvousTransitions.add(otherRendezvousMetric.numRendezvousTransitions.sum());
 
-        this.numReceivedProcessedLocally += otherRendezvousMetric.numReceivedProcessedLocally;
-        this.numReceivedRepropagatedInGroup += otherRendezvousMetric.numReceivedRepropagatedInGroup;
+        this.numReceivedProcessedLocally.add(otherRendezvousMetric.numReceivedProcessedLocally.sum());
+        this.numReceivedRepropagatedInGroup.add(otherRendezvousMetric.numReceivedRepropagatedInGroup.sum());
 
-        this.numReceivedInvalid += otherRendezvousMetric.numReceivedInvalid;
+        this.numReceivedInvalid.add(otherRendezvousMetric.numReceivedInvalid.sum());
 
-        this.numReceivedDead += otherRendezvousMetric.numReceivedDead;
-        this.numReceivedLoopback += otherRendezvousMetric.numReceivedLoopback;
-        this.numReceivedDuplicate += otherRendezvousMetric.numReceivedDuplicate;
+        this.numReceivedDead.add(otherRendezvousMetric.numReceivedDead.sum());
+        this.numReceivedLoopback.add(otherRendezvousMetric.numReceivedLoopback.sum());
+        this.numReceivedDuplicate.add(otherRendezvousMetric.numReceivedDuplicate.sum());
 	
-        this.numPropagated += otherRendezvousMetric.numPropagated;
-        this.numFailedPropagating += otherRendezvousMetric.numFailedPropagating;
-        this.numRepropagated += otherRendezvousMetric.numRepropagated;
-        this.numFailedRepropagating += otherRendezvousMetric.numFailedRepropagating;
+        this.numPropagated.add(otherRendezvousMetric.numPropagated.sum());
+        this.numFailedPropagating.add(otherRendezvousMetric.numFailedPropagating.sum());
+        this.numRepropagated.add(otherRendezvousMetric.numRepropagated.sum());
+        this.numFailedRepropagating.add(otherRendezvousMetric.numFailedRepropagating.sum());
 		
-        this.numPropagatedToPeers += otherRendezvousMetric.numPropagatedToPeers;
-        this.numFailedPropagatingToPeers += otherRendezvousMetric.numFailedPropagatingToPeers;
-        this.numPeersPropagatedTo += otherRendezvousMetric.numPeersPropagatedTo;
+        this.numPropagatedToPeers.add(otherRendezvousMetric.numPropagatedToPeers.sum());
+        this.numFailedPropagatingToPeers.add(otherRendezvousMetric.numFailedPropagatingToPeers.sum());
+        this.numPeersPropagatedTo.add(otherRendezvousMetric.numPeersPropagatedTo.sum());
 		
-        this.numPropagatedInGroup += otherRendezvousMetric.numPropagatedInGroup;
+        this.numPropagatedInGroup.add(otherRendezvousMetric.numPropagatedInGroup.sum());
 		
-        this.numPropagatedToNeighbors += otherRendezvousMetric.numPropagatedToNeighbors;
-        this.numFailedPropagatingToNeighbors += otherRendezvousMetric.numFailedPropagatingToNeighbors;
+        this.numPropagatedToNeighbors.add(otherRendezvousMetric.numPropagatedToNeighbors.sum());
+        this.numFailedPropagatingToNeighbors.add(otherRendezvousMetric.numFailedPropagatingToNeighbors.sum());
 		
-        this.numWalks += otherRendezvousMetric.numWalks;
-        this.numFailedWalks += otherRendezvousMetric.numFailedWalks;
+        this.numWalks.add(otherRendezvousMetric.numWalks.sum());
+        this.numFailedWalks.add(otherRendezvousMetric.numFailedWalks.sum());
 		
-        this.numWalkedToPeers += otherRendezvousMetric.numWalkedToPeers;
-        this.numFailedWalkToPeers += otherRendezvousMetric.numFailedWalkToPeers;
-        this.numPeersWalkedTo += otherRendezvousMetric.numPeersWalkedTo;
+        this.numWalkedToPeers.add(otherRendezvousMetric.numWalkedToPeers.sum());
+        this.numFailedWalkToPeers.add(otherRendezvousMetric.numFailedWalkToPeers.sum());
+        this.numPeersWalkedTo.add(otherRendezvousMetric.numPeersWalkedTo.sum());
+    }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(RendezvousMetric otherRendezvousMetric) {	
+        if (otherRendezvousMetric.state != null) {
+            state = otherRendezvousMetric.state;
+        }
+
+        if (otherRendezvousMetric.transitionTime != 0) {
+            transitionTime = otherRendezvousMetric.transitionTime;
+        }
+
+        totalEdgeTime.add(otherRendezvousMetric.totalEdgeTime.sumThenReset());
+        numEdgeTransitions.add(otherRendezvousMetric.numEdgeTransitions.sumThenReset());
+        totalRendezvousTime.add(otherRendezvousMetric.totalRendezvousTime.sumThenReset());
+        numRendezvousTransitions.add(otherRendezvousMetric.numRendezvousTransitions.sumThenReset());
+        numReceivedProcessedLocally.add(otherRendezvousMetric.numReceivedProcessedLocally.sumThenReset());
+        numReceivedRepropagatedInGroup.add(otherRendezvousMetric.numReceivedRepropagatedInGroup.sumThenReset());
+        numReceivedInvalid.add(otherRendezvousMetric.numReceivedInvalid.sumThenReset());
+        numReceivedDead.add(otherRendezvousMetric.numReceivedDead.sumThenReset());
+        numReceivedLoopback.add(otherRendezvousMetric.numReceivedLoopback.sumThenReset());
+        numReceivedDuplicate.add(otherRendezvousMetric.numReceivedDuplicate.sumThenReset());
+        numPropagated.add(otherRendezvousMetric.numPropagated.sumThenReset());
+        numFailedPropagating.add(otherRendezvousMetric.numFailedPropagating.sumThenReset());
+        numRepropagated.add(otherRendezvousMetric.numRepropagated.sumThenReset());
+        numFailedRepropagating.add(otherRendezvousMetric.numFailedRepropagating.sumThenReset());
+        numPropagatedToPeers.add(otherRendezvousMetric.numPropagatedToPeers.sumThenReset());
+        numFailedPropagatingToPeers.add(otherRendezvousMetric.numFailedPropagatingToPeers.sumThenReset());
+        numPeersPropagatedTo.add(otherRendezvousMetric.numPeersPropagatedTo.sumThenReset());
+        numPropagatedInGroup.add(otherRendezvousMetric.numPropagatedInGroup.sumThenReset());
+        numPropagatedToNeighbors.add(otherRendezvousMetric.numPropagatedToNeighbors.sumThenReset());
+        numFailedPropagatingToNeighbors.add(otherRendezvousMetric.numFailedPropagatingToNeighbors.sumThenReset());
+        numWalks.add(otherRendezvousMetric.numWalks.sumThenReset());
+        numFailedWalks.add(otherRendezvousMetric.numFailedWalks.sumThenReset());
+        numWalkedToPeers.add(otherRendezvousMetric.numWalkedToPeers.sumThenReset());
+        numFailedWalkToPeers.add(otherRendezvousMetric.numFailedWalkToPeers.sumThenReset());
+        numPeersWalkedTo.add(otherRendezvousMetric.numPeersWalkedTo.sumThenReset());
     }
 	
     public void serializeTo(Element element) throws DocumentSerializationException {
@@ -523,80 +565,80 @@ public class RendezvousMetric implements DocumentSerializable {
         if (transitionTime != 0) {
             DocumentSerializableUtilities.addLong(element, "transitionTime", transitionTime);
         }
-        if (totalEdgeTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "totalEdgeTime", totalEdgeTime);
+        if (totalEdgeTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "totalEdgeTime", totalEdgeTime.sum());
         }
-        if (numEdgeTransitions != 0) {
-            DocumentSerializableUtilities.addInt(element, "numEdgeTransitions", numEdgeTransitions);
+        if (numEdgeTransitions.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numEdgeTransitions", (int) numEdgeTransitions.sum());
         }
-        if (totalRendezvousTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "totalRendezvousTime", totalRendezvousTime);
+        if (totalRendezvousTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "totalRendezvousTime", totalRendezvousTime.sum());
         }
-        if (numRendezvousTransitions != 0) {
-            DocumentSerializableUtilities.addLong(element, "numRendezvousTransitions", numRendezvousTransitions);
+        if (numRendezvousTransitions.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "numRendezvousTransitions", numRendezvousTransitions.sum());
         }
-        if (numReceivedProcessedLocally != 0) {
-            DocumentSerializableUtilities.addInt(element, "numReceivedProcessedLocally", numReceivedProcessedLocally);
+        if (numReceivedProcessedLocally.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numReceivedProcessedLocally", (int) numReceivedProcessedLocally.sum());
         }
-        if (numReceivedRepropagatedInGroup != 0) {
-            DocumentSerializableUtilities.addInt(element, "numReceivedRepropagatedInGroup", numReceivedRepropagatedInGroup);
+        if (numReceivedRepropagatedInGroup.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numReceivedRepropagatedInGroup", (int) numReceivedRepropagatedInGroup.sum());
         }
-        if (numReceivedInvalid != 0) {
-            DocumentSerializableUtilities.addInt(element, "numReceivedInvalid", numReceivedInvalid);
+        if (numReceivedInvalid.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numReceivedInvalid", (int) numReceivedInvalid.sum());
         }
-        if (numReceivedDead != 0) {
-            DocumentSerializableUtilities.addInt(element, "numReceivedDead", numReceivedDead);
+        if (numReceivedDead.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numReceivedDead", (int) numReceivedDead.sum());
         }
-        if (numReceivedLoopback != 0) {
-            DocumentSerializableUtilities.addInt(element, "numReceivedLoopback", numReceivedLoopback);
+        if (numReceivedLoopback.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numReceivedLoopback", (int) numReceivedLoopback.sum());
         }
-        if (numReceivedDuplicate != 0) {
-            DocumentSerializableUtilities.addInt(element, "numReceivedDuplicate", numReceivedDuplicate);
+        if (numReceivedDuplicate.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numReceivedDuplicate", (int) numReceivedDuplicate.sum());
         }
-        if (numPropagated != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagated", numPropagated);
+        if (numPropagated.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagated", (int) numPropagated.sum());
         }
-        if (numFailedPropagating != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedPropagating", numFailedPropagating);
+        if (numFailedPropagating.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedPropagating", (int) numFailedPropagating.sum());
         }
-        if (numRepropagated != 0) {
-            DocumentSerializableUtilities.addInt(element, "numRepropagated", numRepropagated);
+        if (numRepropagated.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numRepropagated", (int) numRepropagated.sum());
         }
-        if (numFailedRepropagating != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedRepropagating", numFailedRepropagating);
+        if (numFailedRepropagating.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedRepropagating", (int) numFailedRepropagating.sum());
         }
-        if (numPropagatedToPeers != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagatedToPeers", numPropagatedToPeers);
+        if (numPropagatedToPeers.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagatedToPeers", (int) numPropagatedToPeers.sum());
         }
-        if (numFailedPropagatingToPeers != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedPropagatingToPeers", numFailedPropagatingToPeers);
+        if (numFailedPropagatingToPeers.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedPropagatingToPeers", (int) numFailedPropagatingToPeers.sum());
         }
-        if (numPeersPropagatedTo != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPeersPropagatedTo", numPeersPropagatedTo);
+        if (numPeersPropagatedTo.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPeersPropagatedTo", (int) numPeersPropagatedTo.sum());
         }
-        if (numPropagatedInGroup != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagatedInGroup", numPropagatedInGroup);
+        if (numPropagatedInGroup.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagatedInGroup", (int) numPropagatedInGroup.sum());
         }
-        if (numPropagatedToNeighbors != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagatedToNeighbors", numPropagatedToNeighbors);
+        if (numPropagatedToNeighbors.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagatedToNeighbors", (int) numPropagatedToNeighbors.sum());
         }
-        if (numFailedPropagatingToNeighbors != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedPropagatingToNeighbors", numFailedPropagatingToNeighbors);
+        if (numFailedPropagatingToNeighbors.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedPropagatingToNeighbors", (int) numFailedPropagatingToNeighbors.sum());
         }
-        if (numWalks != 0) {
-            DocumentSerializableUtilities.addInt(element, "numWalks", numWalks);
+        if (numWalks.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numWalks", (int) numWalks.sum());
         }
-        if (numFailedWalks != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedWalks", numFailedWalks);
+        if (numFailedWalks.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedWalks", (int) numFailedWalks.sum());
         }
-        if (numWalkedToPeers != 0) {
-            DocumentSerializableUtilities.addInt(element, "numWalkedToPeers", numWalkedToPeers);
+        if (numWalkedToPeers.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numWalkedToPeers", (int) numWalkedToPeers.sum());
         }
-        if (numFailedWalkToPeers != 0) {
-            DocumentSerializableUtilities.addInt(element, "numFailedWalkToPeers", numFailedWalkToPeers);
+        if (numFailedWalkToPeers.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numFailedWalkToPeers", (int) numFailedWalkToPeers.sum());
         }
-        if (numPeersWalkedTo != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPeersWalkedTo", numPeersWalkedTo);
+        if (numPeersWalkedTo.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPeersWalkedTo", (int) numPeersWalkedTo.sum());
         }
     }
 
@@ -610,55 +652,55 @@ public class RendezvousMetric implements DocumentSerializable {
             } else if (tagName.equals("transitionTime")) { 
                 transitionTime = DocumentSerializableUtilities.getLong(childElement);
             } else if (tagName.equals("totalEdgeTime")) { 
-                totalEdgeTime = DocumentSerializableUtilities.getLong(childElement);
+                totalEdgeTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numEdgeTransitions")) { 
-                numEdgeTransitions = DocumentSerializableUtilities.getInt(childElement);
+                numEdgeTransitions.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("totalRendezvousTime")) { 
-                totalRendezvousTime = DocumentSerializableUtilities.getLong(childElement);
+                totalRendezvousTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numRendezvousTransitions")) { 
-                numRendezvousTransitions = DocumentSerializableUtilities.getLong(childElement);
+                numRendezvousTransitions.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numReceivedProcessedLocally")) { 
-                numReceivedProcessedLocally = DocumentSerializableUtilities.getInt(childElement);
+                numReceivedProcessedLocally.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numReceivedRepropagatedInGroup")) { 
-                numReceivedRepropagatedInGroup = DocumentSerializableUtilities.getInt(childElement);
+                numReceivedRepropagatedInGroup.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numReceivedInvalid")) { 
-                numReceivedInvalid = DocumentSerializableUtilities.getInt(childElement);
+                numReceivedInvalid.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numReceivedDead")) { 
-                numReceivedDead = DocumentSerializableUtilities.getInt(childElement);
+                numReceivedDead.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numReceivedLoopback")) { 
-                numReceivedLoopback = DocumentSerializableUtilities.getInt(childElement);
+                numReceivedLoopback.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numReceivedDuplicate")) { 
-                numReceivedDuplicate = DocumentSerializableUtilities.getInt(childElement);
+                numReceivedDuplicate.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagated")) { 
-                numPropagated = DocumentSerializableUtilities.getInt(childElement);
+                numPropagated.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedPropagating")) { 
-                numFailedPropagating = DocumentSerializableUtilities.getInt(childElement);
+                numFailedPropagating.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numRepropagated")) { 
-                numRepropagated = DocumentSerializableUtilities.getInt(childElement);
+                numRepropagated.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedRepropagating")) { 
-                numFailedRepropagating = DocumentSerializableUtilities.getInt(childElement);
+                numFailedRepropagating.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagatedToPeers")) { 
-                numPropagatedToPeers = DocumentSerializableUtilities.getInt(childElement);
+                numPropagatedToPeers.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedPropagatingToPeers")) { 
-                numFailedPropagatingToPeers = DocumentSerializableUtilities.getInt(childElement);
+                numFailedPropagatingToPeers.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPeersPropagatedTo")) { 
-                numPeersPropagatedTo = DocumentSerializableUtilities.getInt(childElement);
+                numPeersPropagatedTo.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagatedInGroup")) { 
-                numPropagatedInGroup = DocumentSerializableUtilities.getInt(childElement);
+                numPropagatedInGroup.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagatedToNeighbors")) { 
-                numPropagatedToNeighbors = DocumentSerializableUtilities.getInt(childElement);
+                numPropagatedToNeighbors.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedPropagatingToNeighbors")) { 
-                numFailedPropagatingToNeighbors = DocumentSerializableUtilities.getInt(childElement);
+                numFailedPropagatingToNeighbors.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numWalks")) { 
-                numWalks = DocumentSerializableUtilities.getInt(childElement);
+                numWalks.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedWalks")) { 
-                numFailedWalks = DocumentSerializableUtilities.getInt(childElement);
+                numFailedWalks.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numWalkedToPeers")) { 
-                numWalkedToPeers = DocumentSerializableUtilities.getInt(childElement);
+                numWalkedToPeers.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numFailedWalkToPeers")) { 
-                numFailedWalkToPeers = DocumentSerializableUtilities.getInt(childElement);
+                numFailedWalkToPeers.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPeersWalkedTo")) { 
-                numPeersWalkedTo = DocumentSerializableUtilities.getInt(childElement);
+                numPeersWalkedTo.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
     }
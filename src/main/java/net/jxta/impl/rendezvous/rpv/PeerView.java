@@ -56,6 +56,8 @@
 
 package net.jxta.impl.rendezvous.rpv;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -101,6 +103,7 @@ import net.jxta.impl.rendezvous.RendezVousServiceImpl;
 import net.jxta.impl.util.SeedingManager;
 import net.jxta.impl.util.TimeUtils;
 import net.jxta.impl.util.URISeedingManager;
+import net.jxta.impl.util.WarmRestartSnapshot;
 import net.jxta.logging.Logging;
 import net.jxta.peer.PeerID;
 import net.jxta.peergroup.PeerGroup;
@@ -210,6 +213,36 @@ public final class PeerView implements EndpointListener, RendezvousListener {
      */
     static final MessageElement FAILURE_ELEMENT = new StringMessageElement(FAILURE_ELEMENT_NAME, Boolean.TRUE.toString(), null);
 
+    /**
+     * Message element name of the SWIM failure detector messages.
+     */
+    static final String SWIM_ELEMENT_NAME = "PeerView.Swim";
+
+    /**
+     * How the members of the peerview are checked. {@code "diffusion"}, the
+     * default, only probes the up and down peers and notices the other
+     * failures when sending to them. {@code "swim"} runs a
+     * {@link SwimFailureDetector} which probes every member, directly and
+     * through other members, and disseminates the failures it detects.
+     */
+    public final static String MAINTENANCE_SYSPROP = "net.jxta.impl.rendezvous.rpv.PeerView.maintenance";
+
+    /**
+     * The protocol period of the SWIM failure detector, in milliseconds.
+     */
+    public final static String SWIM_PERIOD_SYSPROP = "net.jxta.impl.rendezvous.rpv.PeerView.swimPeriod";
+
+    static final String SWIM_MAINTENANCE = "swim";
+
+    private static final long DEFAULT_SWIM_PERIOD = 5 * TimeUtils.ASECOND;
+
+    private static final long MIN_SWIM_PERIOD = 500;
+
+    /**
+     * Name of the warm restart snapshot of the peerview members.
+     */
+    private static final String SNAPSHOT_NAME = "PeerView";
+
     /**
      * This is the interval between adv exchange in seconds. This is
      * the main tunable runtime parameter for the diffusion
@@ -361,6 +394,22 @@ public final class PeerView implements EndpointListener, RendezvousListener {
      */
     private WatchdogTask watchdogTask = null;
 
+    /**
+     * The SWIM failure detector, or {@code null} if the peerview is
+     * maintained by diffusion. See {@link #MAINTENANCE_SYSPROP}.
+     */
+    private final SwimFailureDetector<ID> swim;
+
+    /**
+     * How often the SWIM failure detector runs, in milliseconds.
+     */
+    private final long swimTickInterval;
+
+    /**
+     * A task which runs the SWIM failure detector.
+     */
+    private SwimTask swimTask = null;
+
     /**
      * This is the accumulated view by an instance of this class.
      */
@@ -482,6 +531,16 @@ public final class PeerView implements EndpointListener, RendezvousListener {
 
         self = new PeerViewElement(endpoint, radv);
 
+        if (SWIM_MAINTENANCE.equalsIgnoreCase(System.getProperty(MAINTENANCE_SYSPROP))) {
+            long swimPeriod = Math.max(MIN_SWIM_PERIOD, Long.getLong(SWIM_PERIOD_SYSPROP, DEFAULT_SWIM_PERIOD));
+
+            swimTickInterval = swimPeriod / 4;
+            swim = new SwimFailureDetector<ID>(self.getPeerID(), new SwimTransport(), new SwimListener(), swimPeriod, swimTickInterval, random);
+        } else {
+            swimTickInterval = 0;
+            swim = null;
+        }
+
         // setup endpoint listener
         endpoint.addIncomingMessageListener(this, SERVICE_NAME, uniqueGroupId);
 
@@ -517,6 +576,13 @@ public final class PeerView implements EndpointListener, RendezvousListener {
      */
     public void processIncomingMessage(Message msg, EndpointAddress srcAddr, EndpointAddress dstAddr) {
 
+        MessageElement swimElement = msg.getMessageElement(MESSAGE_NAMESPACE, SWIM_ELEMENT_NAME);
+
+        if (null != swimElement) {
+            processSwimMessage(swimElement);
+            return;
+        }
+
         // check what kind of message this is (response or not).
         boolean isResponse = false;
         MessageElement me = msg.getMessageElement(MESSAGE_NAMESPACE, MESSAGE_ELEMENT_NAME);
@@ -804,6 +870,12 @@ public final class PeerView implements EndpointListener, RendezvousListener {
                     taskHandle.cancel(false);
                     watchdogTask = null;
                 }
+
+                if (null != swimTask) {
+                    ScheduledFuture<?> taskHandle = removeTask(swimTask);
+                    taskHandle.cancel(false);
+                    swimTask = null;
+                }
             }
 
             switch (theEventType) {
@@ -821,6 +893,10 @@ public final class PeerView implements EndpointListener, RendezvousListener {
                 openWirePipes();
                 watchdogTask = new WatchdogTask();
                 addTask(watchdogTask, WATCHDOG_PERIOD, WATCHDOG_PERIOD);
+                if (null != swim) {
+                    swimTask = new SwimTask();
+                    addTask(swimTask, swimTickInterval, swimTickInterval);
+                }
                 rescheduleKick(true);
                 break;
 
@@ -850,8 +926,11 @@ public final class PeerView implements EndpointListener, RendezvousListener {
         }
     }
 
-    public void start() {// do nothing for now... all the good stuff happens as a result of
-        // rendezvous events.
+    public void start() {
+        // Most of the good stuff happens as a result of rendezvous events.
+        // After a warm restart we begin with the members we knew when we
+        // stopped.
+        restoreView();
     }
 
     public void stop() {
@@ -864,6 +943,8 @@ public final class PeerView implements EndpointListener, RendezvousListener {
             closed = true;
         }
 
+        saveView();
+
         // notify other rendezvous peers that we are going down
         notifyFailure(self, true);
 
@@ -876,6 +957,12 @@ public final class PeerView implements EndpointListener, RendezvousListener {
                 watchdogTask = null;
             }
 
+            if (swimTask != null) {
+                ScheduledFuture<?> taskHandle = removeTask(swimTask);
+                taskHandle.cancel(false);
+                swimTask = null;
+            }
+
             // Remove message listener.
             endpoint.removeIncomingMessageListener(SERVICE_NAME, uniqueGroupId);
 
@@ -1078,6 +1165,115 @@ public final class PeerView implements EndpointListener, RendezvousListener {
         }
     }
 
+    /**
+     * Saves the members of the peerview, for a warm restart.
+     */
+    private void saveView() {
+        final List<RdvAdvertisement> members = new ArrayList<RdvAdvertisement>();
+
+        for (PeerViewElement pve : getView()) {
+            RdvAdvertisement radv = pve.getRdvAdvertisement();
+
+            if ((pve != self) && (null != radv)) {
+                members.add(radv);
+            }
+        }
+
+        if (members.isEmpty()) {
+            return;
+        }
+
+        WarmRestartSnapshot.save(group, SNAPSHOT_NAME, new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                out.writeInt(members.size());
+
+                for (RdvAdvertisement radv : members) {
+                    WarmRestartSnapshot.writeAdvertisement(out, radv);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds the members saved by {@link #saveView()} to the peerview and
+     * probes them. The members which do not answer are removed as usual.
+     */
+    private void restoreView() {
+        final List<PeerViewElement> restored = new ArrayList<PeerViewElement>();
+
+        WarmRestartSnapshot.load(group, SNAPSHOT_NAME, new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                int count = in.readInt();
+
+                for (int each = 0; each < count; each++) {
+                    Advertisement adv = WarmRestartSnapshot.readAdvertisement(in);
+
+                    if (!(adv instanceof RdvAdvertisement)) {
+                        continue;
+                    }
+
+                    RdvAdvertisement radv = (RdvAdvertisement) adv;
+
+                    if (self.getPeerID().equals(radv.getPeerID()) || !group.getPeerGroupID().equals(radv.getGroupID())) {
+                        continue;
+                    }
+
+                    PeerViewElement pve = new PeerViewElement(endpoint, radv);
+
+                    if (addPeerViewElement(pve)) {
+                        restored.add(pve);
+                    }
+                }
+            }
+        });
+
+        if (restored.isEmpty()) {
+            return;
+        }
+
+        Logging.logCheckedFine(LOG, "[", group.getPeerGroupName(), "] Restored ", restored.size(), " peerview members");
+
+        for (PeerViewElement pve : restored) {
+            generateEvent(PeerViewEvent.ADD, pve);
+        }
+
+        addTask(new ProbeRestoredTask(restored), 0, -1);
+    }
+
+    /**
+     * Probes the members restored from a snapshot.
+     */
+    private class ProbeRestoredTask implements Runnable {
+
+        private final List<PeerViewElement> restored;
+
+        ProbeRestoredTask(List<PeerViewElement> restored) {
+            this.restored = restored;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void run() {
+            try {
+
+                for (PeerViewElement pve : restored) {
+                    if (closed) return;
+                    send(pve, self, false, false);
+                }
+
+            } catch (Throwable all) {
+
+                Logging.logCheckedSevere(LOG, "Uncaught Throwable in thread: ", Thread.currentThread().getName(), "\n", all);
+
+            } finally {
+
+                removeTask(this);
+
+            }
+        }
+    }
+
     private void scheduleOpenPipes(long delay) {
 
         Logging.logCheckedFine(LOG, "Scheduling open pipes attempt in ", delay, "ms.");
@@ -1816,6 +2012,10 @@ public final class PeerView implements EndpointListener, RendezvousListener {
 
         if (added) {
             pve.setPeerView(this);
+
+            if (null != swim) {
+                swim.addMember(pve.getPeerID());
+            }
         }
 
         return added;
@@ -1842,6 +2042,10 @@ public final class PeerView implements EndpointListener, RendezvousListener {
 
         if (removed) {
             pve.setPeerView(null);
+
+            if (null != swim) {
+                swim.removeMember(pve.getPeerID());
+            }
         }
 
         return removed;
@@ -1963,6 +2167,132 @@ public final class PeerView implements EndpointListener, RendezvousListener {
         }
     }
 
+    /**
+     * Passes a message to the SWIM failure detector.
+     *
+     * @param element the message element holding the SWIM message.
+     */
+    private void processSwimMessage(MessageElement element) {
+        if ((null == swim) || closed) {
+            Logging.logCheckedFine(LOG, "Discarding SWIM message, SWIM maintenance is not active.");
+            return;
+        }
+
+        SwimFailureDetector.Packet<ID> packet;
+
+        try {
+
+            packet = SwimFailureDetector.Packet.decode(element.toString(), new SwimFailureDetector.KeyParser<ID>() {
+                public ID parse(String text) {
+                    try {
+                        return IDFactory.fromURI(new URI(text));
+                    } catch (URISyntaxException badID) {
+                        throw new IllegalArgumentException("Bad peer id : " + text, badID);
+                    }
+                }
+            });
+
+        } catch (IllegalArgumentException damaged) {
+
+            Logging.logCheckedWarning(LOG, "Discarding damaged SWIM message\n", damaged);
+            return;
+
+        }
+
+        swim.receive(packet, TimeUtils.timeNow());
+    }
+
+    /**
+     * Sends the SWIM messages to the members of the peerview, or directly to
+     * the peers which are not members.
+     */
+    private final class SwimTransport implements SwimFailureDetector.Transport<ID> {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void send(ID to, SwimFailureDetector.Packet<ID> packet) {
+            if (closed) {
+                return;
+            }
+
+            Message msg = new Message();
+
+            msg.addMessageElement(MESSAGE_NAMESPACE, new StringMessageElement(SWIM_ELEMENT_NAME, packet.encode(), null));
+
+            PeerViewElement pve = getPeerViewElement(to);
+
+            if (null != pve) {
+                pve.sendMessage(msg, SERVICE_NAME, uniqueGroupId);
+                return;
+            }
+
+            EndpointAddress dest = new EndpointAddress("jxta", to.getUniqueValue().toString(), SERVICE_NAME, uniqueGroupId);
+            Messenger messenger = endpoint.getMessengerImmediate(dest, null);
+
+            if (null == messenger) {
+                Logging.logCheckedFine(LOG, "Could not get messenger for SWIM message to ", to);
+                return;
+            }
+
+            try {
+                messenger.sendMessage(msg);
+            } catch (IOException failed) {
+                Logging.logCheckedFine(LOG, "Could not send SWIM message to ", to, "\n", failed);
+            }
+        }
+    }
+
+    /**
+     * Removes the members the SWIM failure detector declared failed. The
+     * failure detector disseminates the failure itself.
+     */
+    private final class SwimListener implements SwimFailureDetector.Listener<ID> {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void suspected(ID member) {
+            Logging.logCheckedFine(LOG, "SWIM suspects ", member);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void failed(ID member) {
+            PeerViewElement pve = getPeerViewElement(member);
+
+            if (null != pve) {
+                Logging.logCheckedInfo(LOG, "SWIM detected the failure of ", pve);
+                notifyFailure(pve, false);
+            }
+        }
+    }
+
+    /**
+     * A task that runs the SWIM failure detector.
+     */
+    private final class SwimTask implements Runnable {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void run() {
+
+            try {
+
+                if (closed) return;
+
+                swim.tick(TimeUtils.timeNow());
+
+            } catch (Throwable all) {
+
+                Logging.logCheckedSevere(LOG, "Uncaught Throwable in thread :", Thread.currentThread().getName(), "\n", all);
+
+            }
+        }
+    }
+
     /**
      * A task that checks on upPeer and downPeer.
      */
@@ -1995,39 +2325,44 @@ public final class PeerView implements EndpointListener, RendezvousListener {
                     }
                 }
 
-                PeerViewElement up = PeerView.this.getUpPeer();
+                // The SWIM failure detector probes every member, the up and
+                // down peers included.
+                if (null == swim) {
 
-                if (up != null) {
+                    PeerViewElement up = PeerView.this.getUpPeer();
 
-                    if (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), up.getLastUpdateTime()) > WATCHDOG_GRACE_DELAY) {
+                    if (up != null) {
 
-                        Logging.logCheckedWarning(LOG, "UP peer has gone MIA : ", up);
-                        notifyFailure(up, true);
+                        if (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), up.getLastUpdateTime()) > WATCHDOG_GRACE_DELAY) {
 
-                    } else {
+                            Logging.logCheckedWarning(LOG, "UP peer has gone MIA : ", up);
+                            notifyFailure(up, true);
+
+                        } else {
 
-                        Logging.logCheckedFine(LOG, "Checking on UP peer : ", up);
-                        PeerView.this.send(up, PeerView.this.getSelf(), false, false);
+                            Logging.logCheckedFine(LOG, "Checking on UP peer : ", up);
+                            PeerView.this.send(up, PeerView.this.getSelf(), false, false);
 
+                        }
                     }
-                }
 
-                PeerViewElement down = PeerView.this.getDownPeer();
+                    PeerViewElement down = PeerView.this.getDownPeer();
 
-                if (down != null) {
+                    if (down != null) {
 
-                    if (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), down.getLastUpdateTime()) > WATCHDOG_GRACE_DELAY) {
+                        if (TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), down.getLastUpdateTime()) > WATCHDOG_GRACE_DELAY) {
 
-                        Logging.logCheckedWarning(LOG, "DOWN peer has gone MIA : ", down);
-                        notifyFailure(down, true);
+                            Logging.logCheckedWarning(LOG, "DOWN peer has gone MIA : ", down);
+                            notifyFailure(down, true);
 
-                    } else {
+                        } else {
 
-                        Logging.logCheckedFine(LOG, "Checking on DOWN peer : ", down);
-                        PeerView.this.send(down, PeerView.this.getSelf(), false, false);
+                            Logging.logCheckedFine(LOG, "Checking on DOWN peer : ", down);
+                            PeerView.this.send(down, PeerView.this.getSelf(), false, false);
 
-                    }
+                        }
 
+                    }
                 }
 
             } catch (Throwable all) {
@@ -0,0 +1,650 @@
+package net.jxta.impl.rendezvous.rpv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A SWIM failure detector: "SWIM: Scalable Weakly-consistent Infection-style
+ * Process Group Membership Protocol", Das, Gupta and Motivala, 2002.
+ * <p/>
+ * Every protocol period each member pings one other member, chosen round
+ * robin over a shuffled list. If no ack arrives within the ping timeout it
+ * asks a few other members to ping it on its behalf. A member which did not
+ * answer by the end of the period is suspected; if it does not refute the
+ * suspicion with a higher incarnation number within the suspicion timeout it
+ * is declared failed. Suspicions, refutations and failures are piggybacked
+ * on the probe messages and retransmitted about log(n) times each, so the
+ * number of messages a member sends per period does not depend on the size
+ * of the group.
+ * <p/>
+ * The detector neither has threads nor reads a clock: the time is passed to
+ * {@link #tick(long)} and {@link #receive(Packet, long)}, which must be called
+ * at least every ping timeout. Messages and notifications are delivered
+ * outside the lock of the detector. The members are added and removed by the
+ * owner of the detector; failures learnt from other members are only
+ * applied to the known members.
+ *
+ * @param <K> the type of the member identifiers. Their string form must not
+ * contain white space.
+ */
+final class SwimFailureDetector<K> {
+
+    /**
+     * The number of members asked to ping an unresponsive member.
+     */
+    static final int DEFAULT_INDIRECT_PROBES = 3;
+
+    /**
+     * The suspicion timeout, in protocol periods, for a group of 10 members.
+     * It grows with the logarithm of the size of the group.
+     */
+    static final int DEFAULT_SUSPICION_MULTIPLIER = 4;
+
+    /**
+     * How many times each update is piggybacked, times log2 of the size of
+     * the group.
+     */
+    static final int DEFAULT_RETRANSMIT_MULTIPLIER = 3;
+
+    /**
+     * The maximum number of updates piggybacked on a message.
+     */
+    static final int MAX_PIGGYBACK = 6;
+
+    /**
+     * The kinds of messages.
+     */
+    enum Type {
+        PING, PING_REQ, ACK
+    }
+
+    /**
+     * The states of a member, as disseminated.
+     */
+    enum Status {
+        ALIVE, SUSPECT, CONFIRM
+    }
+
+    /**
+     * Sends messages to members.
+     */
+    interface Transport<K> {
+
+        /**
+         * Sends a message. Delivery is not guaranteed.
+         *
+         * @param to the recipient.
+         * @param packet the message.
+         */
+        void send(K to, Packet<K> packet);
+    }
+
+    /**
+     * Receives the changes of the members' state.
+     */
+    interface Listener<K> {
+
+        /**
+         * @param member a member which is now suspected.
+         */
+        void suspected(K member);
+
+        /**
+         * @param member a member which failed and was removed.
+         */
+        void failed(K member);
+    }
+
+    /**
+     * Parses the string form of member identifiers.
+     */
+    interface KeyParser<K> {
+
+        /**
+         * @param text the string form of an identifier.
+         * @return the identifier.
+         * @throws IllegalArgumentException if the text is not a valid identifier.
+         */
+        K parse(String text);
+    }
+
+    /**
+     * The state of a member, as disseminated.
+     */
+    static final class Update<K> {
+
+        final K member;
+
+        final Status status;
+
+        final long incarnation;
+
+        Update(K member, Status status, long incarnation) {
+            this.member = member;
+            this.status = status;
+            this.incarnation = incarnation;
+        }
+    }
+
+    /**
+     * A message of the protocol.
+     */
+    static final class Packet<K> {
+
+        final Type type;
+
+        final long seq;
+
+        final K from;
+
+        /**
+         * The member to ping, for {@link Type#PING_REQ}.
+         */
+        final K target;
+
+        final List<Update<K>> updates;
+
+        Packet(Type type, long seq, K from, K target, List<Update<K>> updates) {
+            this.type = type;
+            this.seq = seq;
+            this.from = from;
+            this.target = target;
+            this.updates = updates;
+        }
+
+        /**
+         * @return the text form of the message.
+         */
+        String encode() {
+            StringBuilder text = new StringBuilder();
+
+            text.append(type.name()).append(' ').append(seq).append(' ').append(from).append(' ');
+            text.append((null == target) ? "-" : target.toString()).append('\n');
+
+            for (Update<K> update : updates) {
+                text.append(update.status.name()).append(' ').append(update.incarnation).append(' ').append(update.member).append('\n');
+            }
+
+            return text.toString();
+        }
+
+        /**
+         * @param text the text form of a message.
+         * @param parser parses the member identifiers.
+         * @return the message.
+         * @throws IllegalArgumentException if the text is not a valid message.
+         */
+        static <K> Packet<K> decode(String text, KeyParser<K> parser) {
+            String[] lines = text.split("\n");
+            String[] header = lines[0].split(" ");
+
+            if (4 != header.length) {
+                throw new IllegalArgumentException("Bad SWIM message header : " + lines[0]);
+            }
+
+            List<Update<K>> updates = new ArrayList<Update<K>>(lines.length - 1);
+
+            for (int each = 1; each < lines.length; each++) {
+                String[] fields = lines[each].split(" ");
+
+                if (3 != fields.length) {
+                    throw new IllegalArgumentException("Bad SWIM update : " + lines[each]);
+                }
+
+                updates.add(new Update<K>(parser.parse(fields[2]), Status.valueOf(fields[0]), Long.parseLong(fields[1])));
+            }
+
+            K target = "-".equals(header[3]) ? null : parser.parse(header[3]);
+
+            return new Packet<K>(Type.valueOf(header[0]), Long.parseLong(header[1]), parser.parse(header[2]), target, updates);
+        }
+    }
+
+    private static final class Member {
+
+        Status status = Status.ALIVE;
+
+        long incarnation = 0;
+
+        long suspectedAt = 0;
+    }
+
+    private static final class Gossip<K> {
+
+        final Update<K> update;
+
+        int transmissions = 0;
+
+        Gossip(Update<K> update) {
+            this.update = update;
+        }
+    }
+
+    /**
+     * A ping sent on behalf of another member.
+     */
+    private static final class Relay<K> {
+
+        final K origin;
+
+        final long seq;
+
+        final long expiresAt;
+
+        Relay(K origin, long seq, long expiresAt) {
+            this.origin = origin;
+            this.seq = seq;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * What to do once the lock is released.
+     */
+    private final class Outbox {
+
+        final List<K> recipients = new ArrayList<K>();
+
+        final List<Packet<K>> packets = new ArrayList<Packet<K>>();
+
+        final List<K> suspected = new ArrayList<K>();
+
+        final List<K> failed = new ArrayList<K>();
+
+        void send(K to, Type type, long seq, K target) {
+            recipients.add(to);
+            packets.add(new Packet<K>(type, seq, self, target, piggyback()));
+        }
+
+        void deliver() {
+            for (int each = 0; each < packets.size(); each++) {
+                transport.send(recipients.get(each), packets.get(each));
+            }
+
+            for (K member : suspected) {
+                listener.suspected(member);
+            }
+
+            for (K member : failed) {
+                listener.failed(member);
+            }
+        }
+    }
+
+    private final K self;
+
+    private final Transport<K> transport;
+
+    private final Listener<K> listener;
+
+    private final Random random;
+
+    private final long protocolPeriod;
+
+    private final long pingTimeout;
+
+    private final int indirectProbes = DEFAULT_INDIRECT_PROBES;
+
+    private final Map<K, Member> members = new HashMap<K, Member>();
+
+    /**
+     * The members in the order they are probed.
+     */
+    private final List<K> probeOrder = new ArrayList<K>();
+
+    private int probeIndex = 0;
+
+    /**
+     * The updates being disseminated, by member.
+     */
+    private final Map<K, Gossip<K>> gossip = new LinkedHashMap<K, Gossip<K>>();
+
+    private final Map<Long, Relay<K>> relays = new HashMap<Long, Relay<K>>();
+
+    private long incarnation = 0;
+
+    private long nextSeq = 1;
+
+    private long nextProbeAt = Long.MIN_VALUE;
+
+    private K probeTarget = null;
+
+    private long probeSeq = 0;
+
+    private long probeSentAt = 0;
+
+    private boolean probeAcked = false;
+
+    private boolean indirectSent = false;
+
+    /**
+     * @param self the identifier of the local member.
+     * @param transport sends the messages.
+     * @param listener receives the changes of the members' state.
+     * @param protocolPeriod the protocol period, in milliseconds.
+     * @param pingTimeout how long to wait for an ack before asking other
+     * members to ping, in milliseconds. Less than half the protocol period.
+     * @param random chooses the members to probe.
+     */
+    SwimFailureDetector(K self, Transport<K> transport, Listener<K> listener, long protocolPeriod, long pingTimeout, Random random) {
+        if (pingTimeout * 2 > protocolPeriod) {
+            throw new IllegalArgumentException("The ping timeout must be less than half the protocol period");
+        }
+
+        this.self = self;
+        this.transport = transport;
+        this.listener = listener;
+        this.protocolPeriod = protocolPeriod;
+        this.pingTimeout = pingTimeout;
+        this.random = random;
+    }
+
+    /**
+     * Adds a member to probe.
+     *
+     * @param member the member.
+     */
+    synchronized void addMember(K member) {
+        if (self.equals(member) || members.containsKey(member)) {
+            return;
+        }
+
+        members.put(member, new Member());
+
+        // A random position keeps the time to the first probe of the newcomer fair.
+        int position = random.nextInt(probeOrder.size() + 1);
+
+        probeOrder.add(position, member);
+
+        if (position < probeIndex) {
+            probeIndex++;
+        }
+    }
+
+    /**
+     * Stops probing a member.
+     *
+     * @param member the member.
+     */
+    synchronized void removeMember(K member) {
+        if (null == members.remove(member)) {
+            return;
+        }
+
+        int position = probeOrder.indexOf(member);
+
+        probeOrder.remove(position);
+
+        if (position < probeIndex) {
+            probeIndex--;
+        }
+    }
+
+    /**
+     * @return the number of members, not counting the local member.
+     */
+    synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * @param member a member.
+     * @return its status, or {@code null} if it is not a member.
+     */
+    synchronized Status getStatus(K member) {
+        Member state = members.get(member);
+
+        return (null == state) ? null : state.status;
+    }
+
+    /**
+     * @return the incarnation number of the local member.
+     */
+    synchronized long getIncarnation() {
+        return incarnation;
+    }
+
+    /**
+     * Runs the protocol.
+     *
+     * @param now the current time, in milliseconds.
+     */
+    void tick(long now) {
+        Outbox outbox = new Outbox();
+
+        synchronized (this) {
+            expireRelays(now);
+            expireSuspicions(now, outbox);
+
+            if (now >= nextProbeAt) {
+                endProbe(now, outbox);
+                startProbe(now, outbox);
+                nextProbeAt = now + protocolPeriod;
+            } else if ((null != probeTarget) && !probeAcked && !indirectSent && (now - probeSentAt >= pingTimeout)) {
+                probeIndirectly(outbox);
+            }
+        }
+
+        outbox.deliver();
+    }
+
+    /**
+     * Processes a message from another member.
+     *
+     * @param packet the message.
+     * @param now the current time, in milliseconds.
+     */
+    void receive(Packet<K> packet, long now) {
+        Outbox outbox = new Outbox();
+
+        synchronized (this) {
+            for (Update<K> update : packet.updates) {
+                apply(update, now, outbox);
+            }
+
+            switch (packet.type) {
+                case PING:
+                    outbox.send(packet.from, Type.ACK, packet.seq, null);
+                    break;
+
+                case PING_REQ:
+                    long relaySeq = nextSeq++;
+
+                    relays.put(relaySeq, new Relay<K>(packet.from, packet.seq, now + protocolPeriod));
+                    outbox.send(packet.target, Type.PING, relaySeq, null);
+                    break;
+
+                case ACK:
+                    if ((null != probeTarget) && (packet.seq == probeSeq)) {
+                        probeAcked = true;
+                    } else {
+                        Relay<K> relay = relays.remove(packet.seq);
+
+                        if (null != relay) {
+                            outbox.send(relay.origin, Type.ACK, relay.seq, null);
+                        }
+                    }
+                    break;
+            }
+        }
+
+        outbox.deliver();
+    }
+
+    private void apply(Update<K> update, long now, Outbox outbox) {
+        if (self.equals(update.member)) {
+            if ((Status.ALIVE != update.status) && (update.incarnation >= incarnation)) {
+                // Refute : we are alive.
+                incarnation = update.incarnation + 1;
+                disseminate(new Update<K>(self, Status.ALIVE, incarnation));
+            }
+            return;
+        }
+
+        Member member = members.get(update.member);
+
+        if (null == member) {
+            return;
+        }
+
+        switch (update.status) {
+            case ALIVE:
+                if (update.incarnation > member.incarnation) {
+                    member.status = Status.ALIVE;
+                    member.incarnation = update.incarnation;
+                    disseminate(update);
+                }
+                break;
+
+            case SUSPECT:
+                if (((Status.ALIVE == member.status) && (update.incarnation >= member.incarnation))
+                        || (update.incarnation > member.incarnation)) {
+                    suspect(update.member, member, update.incarnation, now, outbox);
+                }
+                break;
+
+            case CONFIRM:
+                fail(update.member, member.incarnation, outbox);
+                break;
+        }
+    }
+
+    private void suspect(K key, Member member, long memberIncarnation, long now, Outbox outbox) {
+        member.status = Status.SUSPECT;
+        member.incarnation = memberIncarnation;
+        member.suspectedAt = now;
+        disseminate(new Update<K>(key, Status.SUSPECT, memberIncarnation));
+        outbox.suspected.add(key);
+    }
+
+    private void fail(K key, long memberIncarnation, Outbox outbox) {
+        removeMember(key);
+        disseminate(new Update<K>(key, Status.CONFIRM, memberIncarnation));
+        outbox.failed.add(key);
+    }
+
+    private void endProbe(long now, Outbox outbox) {
+        if ((null == probeTarget) || probeAcked) {
+            return;
+        }
+
+        Member member = members.get(probeTarget);
+
+        if ((null != member) && (Status.ALIVE == member.status)) {
+            suspect(probeTarget, member, member.incarnation, now, outbox);
+        }
+    }
+
+    private void startProbe(long now, Outbox outbox) {
+        probeTarget = null;
+
+        if (probeOrder.isEmpty()) {
+            return;
+        }
+
+        if (probeIndex >= probeOrder.size()) {
+            Collections.shuffle(probeOrder, random);
+            probeIndex = 0;
+        }
+
+        probeTarget = probeOrder.get(probeIndex++);
+        probeSeq = nextSeq++;
+        probeSentAt = now;
+        probeAcked = false;
+        indirectSent = false;
+
+        outbox.send(probeTarget, Type.PING, probeSeq, null);
+    }
+
+    private void probeIndirectly(Outbox outbox) {
+        indirectSent = true;
+
+        List<K> helpers = new ArrayList<K>(probeOrder);
+
+        helpers.remove(probeTarget);
+        Collections.shuffle(helpers, random);
+
+        for (K helper : helpers.subList(0, Math.min(indirectProbes, helpers.size()))) {
+            outbox.send(helper, Type.PING_REQ, probeSeq, probeTarget);
+        }
+    }
+
+    private void expireSuspicions(long now, Outbox outbox) {
+        long timeout = getSuspicionTimeout();
+        List<K> expired = new ArrayList<K>();
+
+        for (Map.Entry<K, Member> anEntry : members.entrySet()) {
+            Member member = anEntry.getValue();
+
+            if ((Status.SUSPECT == member.status) && (now - member.suspectedAt >= timeout)) {
+                expired.add(anEntry.getKey());
+            }
+        }
+
+        for (K key : expired) {
+            fail(key, members.get(key).incarnation, outbox);
+        }
+    }
+
+    private void expireRelays(long now) {
+        Iterator<Relay<K>> eachRelay = relays.values().iterator();
+
+        while (eachRelay.hasNext()) {
+            if (now - eachRelay.next().expiresAt >= 0) {
+                eachRelay.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the suspicion timeout in milliseconds, which grows with the logarithm of the group size.
+     */
+    long getSuspicionTimeout() {
+        double scale = Math.max(1.0, Math.log10(members.size() + 1));
+
+        return (long) (DEFAULT_SUSPICION_MULTIPLIER * scale * protocolPeriod);
+    }
+
+    private void disseminate(Update<K> update) {
+        // A newer update about a member replaces the older one.
+        gossip.remove(update.member);
+        gossip.put(update.member, new Gossip<K>(update));
+    }
+
+    /**
+     * @return the updates to piggyback on the next message, the least transmitted first.
+     */
+    private List<Update<K>> piggyback() {
+        if (gossip.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int limit = DEFAULT_RETRANSMIT_MULTIPLIER * (32 - Integer.numberOfLeadingZeros(members.size() + 1));
+        List<Gossip<K>> pending = new ArrayList<Gossip<K>>(gossip.values());
+
+        Collections.sort(pending, new Comparator<Gossip<K>>() {
+            public int compare(Gossip<K> one, Gossip<K> other) {
+                return one.transmissions - other.transmissions;
+            }
+        });
+
+        List<Update<K>> updates = new ArrayList<Update<K>>(Math.min(MAX_PIGGYBACK, pending.size()));
+
+        for (Gossip<K> each : pending.subList(0, Math.min(MAX_PIGGYBACK, pending.size()))) {
+            updates.add(each.update);
+
+            if (++each.transmissions >= limit) {
+                gossip.remove(each.update.member);
+            }
+        }
+
+        return updates;
+    }
+}
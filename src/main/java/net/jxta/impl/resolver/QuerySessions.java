@@ -0,0 +1,390 @@
+package net.jxta.impl.resolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.id.ID;
+import net.jxta.impl.util.TimeUtils;
+import net.jxta.logging.Logging;
+import net.jxta.protocol.ResolverQueryMsg;
+import net.jxta.protocol.ResolverResponseMsg;
+
+/**
+ * Tracks the resolver queries this peer sent or forwarded to other peers, by
+ * handler, source peer and query id.
+ * <p/>
+ * For each query it remembers which peers it was sent to, so that a query
+ * which reaches this peer again, by another path or because it was
+ * re-issued, is not sent twice to the same peer. It also limits the number of
+ * queries of the local peer in flight to each peer: a query is in flight
+ * until the peer responds or for {@link #DEFAULT_IN_FLIGHT_TIMEOUT}. The
+ * queries of other peers are not limited, their responses do not come back
+ * through the local peer.
+ * <p/>
+ * The originator of a query may give the number of peers it wants responses
+ * from. Once that many peers responded the query is no longer forwarded and
+ * the later responses are dropped before they reach the handler.
+ */
+public final class QuerySessions {
+
+    /**
+     * Logger
+     */
+    private final static transient Logger LOG = Logger.getLogger(QuerySessions.class.getName());
+
+    /**
+     * The maximum number of queries in flight to a peer. 0 means no limit.
+     */
+    public final static String MAX_IN_FLIGHT_SYSPROP = "net.jxta.impl.resolver.QuerySessions.maxInFlightPerPeer";
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    /**
+     * How long a query counts as in flight to a peer which did not respond.
+     */
+    static final long DEFAULT_IN_FLIGHT_TIMEOUT = 5 * TimeUtils.ASECOND;
+
+    /**
+     * How long a query is tracked.
+     */
+    static final long DEFAULT_LIFETIME = 30 * TimeUtils.ASECOND;
+
+    /**
+     * The maximum number of queries tracked. The oldest are forgotten first.
+     */
+    static final int MAX_SESSIONS = 4096;
+
+    private static final class Target {
+
+        final String peer;
+
+        final long sentAt;
+
+        boolean inFlight;
+
+        Target(String peer, long sentAt, boolean inFlight) {
+            this.peer = peer;
+            this.sentAt = sentAt;
+            this.inFlight = inFlight;
+        }
+    }
+
+    private static final class Session {
+
+        final long createdAt;
+
+        /**
+         * The number of peers the originator wants responses from, or 0.
+         */
+        int threshold = 0;
+
+        boolean satisfied = false;
+
+        final Map<String, Target> targets = new HashMap<String, Target>();
+
+        final Set<String> responders = new HashSet<String>();
+
+        Session(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final String localPeer;
+
+    private final int maxInFlight;
+
+    private final long inFlightTimeout;
+
+    private final long lifetime;
+
+    private final Random random = new Random();
+
+    /**
+     * The sessions, oldest first.
+     */
+    private final Map<String, Session> sessions = new LinkedHashMap<String, Session>();
+
+    /**
+     * The targets in flight, oldest first.
+     */
+    private final Queue<Target> sent = new ArrayDeque<Target>();
+
+    private final Map<String, Integer> inFlight = new HashMap<String, Integer>();
+
+    /**
+     * @param localPeer the id of the local peer.
+     */
+    public QuerySessions(ID localPeer) {
+        this(localPeer, Integer.getInteger(MAX_IN_FLIGHT_SYSPROP, DEFAULT_MAX_IN_FLIGHT), DEFAULT_IN_FLIGHT_TIMEOUT, DEFAULT_LIFETIME);
+    }
+
+    QuerySessions(ID localPeer, int maxInFlight, long inFlightTimeout, long lifetime) {
+        this.localPeer = localPeer.toString();
+        this.maxInFlight = maxInFlight;
+        this.inFlightTimeout = inFlightTimeout;
+        this.lifetime = lifetime;
+    }
+
+    /**
+     * Sets the number of peers the originator of a query wants responses
+     * from.
+     *
+     * @param query the query, originated by the local peer.
+     * @param threshold the number of peers.
+     */
+    public synchronized void open(ResolverQueryMsg query, int threshold) {
+        long now = TimeUtils.timeNow();
+
+        expire(now);
+        getSession(query, now).threshold = threshold;
+    }
+
+    /**
+     * @param query a query.
+     * @return {@code true} if enough peers responded to the query.
+     */
+    public synchronized boolean isSatisfied(ResolverQueryMsg query) {
+        expire(TimeUtils.timeNow());
+
+        Session session = sessions.get(getKey(query));
+
+        return (null != session) && session.satisfied;
+    }
+
+    /**
+     * Chooses the peers to send a query to, at random, and records them as
+     * targets of the query. Peers which were already sent the query are
+     * skipped. For a query of the local peer, peers with too many queries in
+     * flight are skipped too, unless there is no other peer to send it to.
+     *
+     * @param query the query.
+     * @param candidates the peers the query could be sent to.
+     * @param count the number of peers wanted.
+     * @return the peers to send the query to, at most {@code count}.
+     */
+    public synchronized <T extends ID> List<T> selectTargets(ResolverQueryMsg query, List<T> candidates, int count) {
+        long now = TimeUtils.timeNow();
+
+        expire(now);
+
+        Session session = getSession(query, now);
+
+        if (session.satisfied) {
+            return Collections.emptyList();
+        }
+
+        List<T> shuffled = new ArrayList<T>(new LinkedHashSet<T>(candidates));
+
+        if (count < shuffled.size()) {
+            Collections.shuffle(shuffled, random);
+        }
+
+        boolean local = isLocal(query);
+        List<T> selected = new ArrayList<T>(Math.min(count, shuffled.size()));
+        List<T> busy = new ArrayList<T>();
+
+        for (T candidate : shuffled) {
+            if (selected.size() >= count) {
+                break;
+            }
+
+            String peer = candidate.getUniqueValue().toString();
+
+            if (session.targets.containsKey(peer)) {
+                continue;
+            }
+
+            if (local && (maxInFlight > 0) && (getInFlight(peer) >= maxInFlight)) {
+                busy.add(candidate);
+                continue;
+            }
+
+            addTarget(session, peer, local, now);
+            selected.add(candidate);
+        }
+
+        if (!busy.isEmpty()) {
+            if (selected.isEmpty()) {
+                Logging.logCheckedFine(LOG, "No other peer for query ", query.getQueryId(), ", sending it to peers with ", maxInFlight, " queries in flight");
+
+                for (T candidate : busy.subList(0, Math.min(count, busy.size()))) {
+                    addTarget(session, candidate.getUniqueValue().toString(), local, now);
+                    selected.add(candidate);
+                }
+            } else {
+                Logging.logCheckedFine(LOG, "Query ", query.getQueryId(), " not sent to ", busy.size(), " peers with ", maxInFlight, " queries in flight");
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Records a peer as a target of a query which must reach that peer, like
+     * a query forwarded to the replica of an index entry. A query of the
+     * local peer is counted as in flight but, unlike {@link #selectTargets},
+     * the peer is not refused because it has too many queries in flight.
+     *
+     * @param query the query.
+     * @param peer the peer to send the query to.
+     * @return {@code false} if the peer was already sent the query or enough
+     * peers responded to it.
+     */
+    public synchronized boolean addTarget(ResolverQueryMsg query, ID peer) {
+        long now = TimeUtils.timeNow();
+
+        expire(now);
+
+        Session session = getSession(query, now);
+        String key = peer.getUniqueValue().toString();
+
+        if (session.satisfied || session.targets.containsKey(key)) {
+            return false;
+        }
+
+        addTarget(session, key, isLocal(query), now);
+        return true;
+    }
+
+    /**
+     * Records a response to a query of the local peer.
+     *
+     * @param response the response.
+     * @param srcAddr who sent the response.
+     * @return {@code false} if the response arrived after enough peers
+     * responded and should be dropped.
+     */
+    public synchronized boolean responseReceived(ResolverResponseMsg response, EndpointAddress srcAddr) {
+        expire(TimeUtils.timeNow());
+
+        Session session = sessions.get(getKey(response.getHandlerName(), localPeer, response.getQueryId()));
+
+        if (null == session) {
+            return true;
+        }
+
+        if (session.satisfied) {
+            return false;
+        }
+
+        String responder = (null == srcAddr) ? "" : srcAddr.getProtocolAddress();
+        Target target = session.targets.get(responder);
+
+        if (null != target) {
+            release(target);
+        }
+
+        session.responders.add(responder);
+
+        if ((session.threshold > 0) && (session.responders.size() >= session.threshold)) {
+            session.satisfied = true;
+
+            for (Target each : session.targets.values()) {
+                release(each);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param peer a peer.
+     * @return the number of queries in flight to the peer.
+     */
+    synchronized int getInFlight(ID peer) {
+        return getInFlight(peer.getUniqueValue().toString());
+    }
+
+    private int getInFlight(String peer) {
+        Integer count = inFlight.get(peer);
+
+        return (null == count) ? 0 : count;
+    }
+
+    private void addTarget(Session session, String peer, boolean local, long now) {
+        Target target = new Target(peer, now, local);
+
+        session.targets.put(peer, target);
+
+        if (local) {
+            sent.add(target);
+            inFlight.put(peer, getInFlight(peer) + 1);
+        }
+    }
+
+    private boolean isLocal(ResolverQueryMsg query) {
+        return localPeer.equals(String.valueOf(query.getSrcPeer()));
+    }
+
+    private void release(Target target) {
+        if (!target.inFlight) {
+            return;
+        }
+
+        target.inFlight = false;
+
+        int count = getInFlight(target.peer) - 1;
+
+        if (count > 0) {
+            inFlight.put(target.peer, count);
+        } else {
+            inFlight.remove(target.peer);
+        }
+    }
+
+    private Session getSession(ResolverQueryMsg query, long now) {
+        String key = getKey(query);
+        Session session = sessions.get(key);
+
+        if (null == session) {
+            if (sessions.size() >= MAX_SESSIONS) {
+                Iterator<Session> oldest = sessions.values().iterator();
+
+                oldest.next();
+                oldest.remove();
+            }
+
+            session = new Session(now);
+            sessions.put(key, session);
+        }
+
+        return session;
+    }
+
+    private void expire(long now) {
+        while (!sent.isEmpty() && (TimeUtils.toRelativeTimeMillis(now, sent.peek().sentAt) >= inFlightTimeout)) {
+            release(sent.poll());
+        }
+
+        Iterator<Session> eachSession = sessions.values().iterator();
+
+        while (eachSession.hasNext()) {
+            if (TimeUtils.toRelativeTimeMillis(now, eachSession.next().createdAt) < lifetime) {
+                break;
+            }
+
+            eachSession.remove();
+        }
+    }
+
+    private static String getKey(ResolverQueryMsg query) {
+        return getKey(query.getHandlerName(), String.valueOf(query.getSrcPeer()), query.getQueryId());
+    }
+
+    private static String getKey(String handlerName, String srcPeer, int queryId) {
+        return handlerName + " " + srcPeer + " " + queryId;
+    }
+}
@@ -79,8 +79,11 @@ import net.jxta.logging.Logging;
 import net.jxta.membership.MembershipService;
 import net.jxta.meter.MonitorResources;
 import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
 import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
 import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
 import net.jxta.protocol.ModuleImplAdvertisement;
 import net.jxta.protocol.ResolverQueryMsg;
 import net.jxta.protocol.ResolverResponseMsg;
@@ -100,6 +103,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -116,7 +120,7 @@ import net.jxta.endpoint.router.RouteController;
  * @see net.jxta.resolver.ResolverService
  * @see <a href="http://spec.jxta.org/v1.0/docbook/JXTAProtocols.html#proto-erp">JXTA Protocols Specification : Endpoint Resolver Protocol</a>
  */
-public class ResolverServiceImpl implements ResolverService {
+public class ResolverServiceImpl implements ResolverService, DependentModule {
 
     /**
      * Logger
@@ -165,6 +169,11 @@ public class ResolverServiceImpl implements ResolverService {
     private ResolverServiceMonitor resolverServiceMonitor;
     private ResolverMeter resolverMeter;
 
+    /**
+     * The queries this peer sent or forwarded.
+     */
+    private QuerySessions querySessions = null;
+
     /**
      * the resolver interface object
      */
@@ -269,6 +278,8 @@ public class ResolverServiceImpl implements ResolverService {
         inQueName = uniqueStr + inQueNameShort;
         srdiQueName = uniqueStr + srdiQueNameShort;
 
+        querySessions = new QuerySessions(group.getPeerID());
+
         if (ResolverMeterBuildSettings.RESOLVER_METERING) { // Fix-Me: This needs to be moved to startApp() when the load order issue is resolved
             resolverServiceMonitor = (ResolverServiceMonitor) MonitorManager.getServiceMonitor(group,
                     MonitorResources.resolverServiceMonitorClassID);
@@ -305,6 +316,13 @@ public class ResolverServiceImpl implements ResolverService {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ModuleClassID> getStartDependencies() {
+        return Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.membershipClassID);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -866,6 +884,13 @@ public class ResolverServiceImpl implements ResolverService {
 
         }
 
+        if (!querySessions.responseReceived(resp, srcAddr)) {
+
+            Logging.logCheckedFine(LOG, "Dropping late response to query #", resp.getQueryId(), " from ", srcAddr);
+            return;
+
+        }
+
         Logging.logCheckedFine(LOG, "Process response to query #", resp.getQueryId(), " with ", handlerName);
 
         QueryHandlerMeter queryHandlerMeter = null;
@@ -1108,6 +1133,16 @@ public class ResolverServiceImpl implements ResolverService {
 
     }
 
+    /**
+     * Returns the queries this peer sent or forwarded. Query handlers use it
+     * to choose the peers they forward queries to.
+     *
+     * @return the query sessions.
+     */
+    public QuerySessions getQuerySessions() {
+        return querySessions;
+    }
+
     private RouteController getRouteControl() {
         if (routeControl == null) {
             routeControl = endpoint.getEndpointRouter().getRouteController();
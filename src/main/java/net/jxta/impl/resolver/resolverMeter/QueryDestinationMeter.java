@@ -61,98 +61,97 @@ import net.jxta.peer.PeerID;
 public class QueryDestinationMeter {
     private PeerID peerID;
     private QueryDestinationMetric cumulativeMetrics;
-    private QueryDestinationMetric deltaMetrics;
+    private final QueryDestinationMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     public QueryDestinationMeter(PeerID peerID) {
         this.peerID = peerID;
         cumulativeMetrics = new QueryDestinationMetric(peerID);
+        deltaMetrics = createDeltaMetric();
     }
 	
     public synchronized QueryDestinationMetric collectMetrics() {
-        QueryDestinationMetric prevDelta = deltaMetrics;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        QueryDestinationMetric collected = createDeltaMetric();
 
-        deltaMetrics = null;
-        return prevDelta;
+        collected.drainMetrics(deltaMetrics);
+        return collected;
     }
 		
     public QueryDestinationMetric getCumulativeMetrics() {
         return cumulativeMetrics;
     }
 
-    private void createDeltaMetric() {
-        deltaMetrics = new QueryDestinationMetric(peerID);
+    private QueryDestinationMetric createDeltaMetric() {
+        return new QueryDestinationMetric(peerID);
     }
 
-    protected void querySentViaUnicast() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
         }
-			
+    }
+
+    protected void querySentViaUnicast() {
         deltaMetrics.querySentViaUnicast();
         cumulativeMetrics.querySentViaUnicast();
+
+        markDeltaChanged();
     }
 
     protected void responseSentViaUnicast() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.responseSentViaUnicast();
         cumulativeMetrics.responseSentViaUnicast();
+
+        markDeltaChanged();
     }
 	
     protected void responseProcessed() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.responseProcessed();
         cumulativeMetrics.responseProcessed();
+
+        markDeltaChanged();
     }
 
     protected void responseToUnregisteredHandler() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.responseToUnregisteredHandler();
         cumulativeMetrics.responseToUnregisteredHandler();
+
+        markDeltaChanged();
     }
 	
     protected void errorWhileProcessingResponse() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.errorWhileProcessingResponse();
         cumulativeMetrics.errorWhileProcessingResponse();
+
+        markDeltaChanged();
     }
 	
     protected void queryProcessed() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.queryProcessed();
         cumulativeMetrics.queryProcessed();
+
+        markDeltaChanged();
     }
 
     protected void queryToUnregisteredHandler() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.queryToUnregisteredHandler();
         cumulativeMetrics.queryToUnregisteredHandler();
+
+        markDeltaChanged();
     }
 		
     protected void errorWhileProcessingQuery() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.errorWhileProcessingQuery();
         cumulativeMetrics.errorWhileProcessingQuery();
+
+        markDeltaChanged();
     }
 
 }
@@ -65,21 +65,22 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Metrics for a specific Query Destination for a specific handler 
  **/
 public class QueryDestinationMetric implements DocumentSerializable {
     private PeerID peerID;
-    private int errorWhileProcessingQuery;
-    private int queryProcessed;
-    private int errorWhileProcessingResponse;
-    private int responseProcessed;
-    private int responseSentViaUnicast;
-    private int querySentViaUnicast;
-
-    private int queryToUnregisteredHandler;
-    private int responseToUnregisteredHandler;
+    private final LongAdder errorWhileProcessingQuery = new LongAdder();
+    private final LongAdder queryProcessed = new LongAdder();
+    private final LongAdder errorWhileProcessingResponse = new LongAdder();
+    private final LongAdder responseProcessed = new LongAdder();
+    private final LongAdder responseSentViaUnicast = new LongAdder();
+    private final LongAdder querySentViaUnicast = new LongAdder();
+
+    private final LongAdder queryToUnregisteredHandler = new LongAdder();
+    private final LongAdder responseToUnregisteredHandler = new LongAdder();
 	
     public QueryDestinationMetric(PeerID pid) {
         this.peerID = pid;
@@ -96,104 +97,104 @@ public class QueryDestinationMetric implements DocumentSerializable {
     }
 
     void querySentViaUnicast() {
-        querySentViaUnicast++;
+        querySentViaUnicast.increment();
     }
 
     /** Get Queries Sent via Unicast to this destinations **/
     public int getQueriesSentViaUnicast() {
-        return querySentViaUnicast;
+        return (int) querySentViaUnicast.sum();
     }
 	
     void responseSentViaUnicast() {
-        responseSentViaUnicast++;
+        responseSentViaUnicast.increment();
     }
 
     /** Get Responses Sent via Unicast to this destinations **/
     public int getResponsesSentViaUnicast() {
-        return responseSentViaUnicast;
+        return (int) responseSentViaUnicast.sum();
     }
 
     void responseToUnregisteredHandler() {
-        responseToUnregisteredHandler++;
+        responseToUnregisteredHandler.increment();
     }
 
     /** Get Responses Recieved to this handler when not registered **/
     public int getResponseToUnregisteredHandler() {
-        return responseToUnregisteredHandler;
+        return (int) responseToUnregisteredHandler.sum();
     }
 		
     void responseProcessed() {
-        responseProcessed++;
+        responseProcessed.increment();
     }
 
     /** Get Responses received and processed locally **/
     public int getResponsesProcessed() {
-        return responseProcessed;
+        return (int) responseProcessed.sum();
     }
 	
     void errorWhileProcessingResponse() {
-        errorWhileProcessingResponse++;
+        errorWhileProcessingResponse.increment();
     }
 
     /** Get Responses received but failing when processed locally **/
     public int getErrorsWhileProcessingResponse() {
-        return errorWhileProcessingResponse;
+        return (int) errorWhileProcessingResponse.sum();
     }
 	
     void queryProcessed() {
-        queryProcessed++;
+        queryProcessed.increment();
     }
 
     /** Get Queries received and processed locally **/
     public int getQueriesProcessed() {
-        return queryProcessed;
+        return (int) queryProcessed.sum();
     }
 
     void queryToUnregisteredHandler() {
-        queryToUnregisteredHandler++;
+        queryToUnregisteredHandler.increment();
     }
 
     /** Get Queries Recieved to this handler when not registered **/
     public int getQueryToUnregisteredHandler() {
-        return queryToUnregisteredHandler;
+        return (int) queryToUnregisteredHandler.sum();
     }
 	
     void errorWhileProcessingQuery() {
-        errorWhileProcessingQuery++;
+        errorWhileProcessingQuery.increment();
     }
 
     /** Get Queries received but failing when processed locally **/
     public int getErrorsWhileProcessingQuery() {
-        return errorWhileProcessingQuery;
+        return (int) errorWhileProcessingQuery.sum();
     }
 
     public void serializeTo(Element element) throws DocumentSerializationException {
         if (peerID != null) {
             DocumentSerializableUtilities.addString(element, "peerID", peerID.toString());
         }
-        if (errorWhileProcessingQuery != 0) {
-            DocumentSerializableUtilities.addInt(element, "errorWhileProcessingQuery", errorWhileProcessingQuery);
+        if (errorWhileProcessingQuery.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "errorWhileProcessingQuery", (int) errorWhileProcessingQuery.sum());
         }
-        if (queryProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "queryProcessed", queryProcessed);
+        if (queryProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "queryProcessed", (int) queryProcessed.sum());
         }
-        if (errorWhileProcessingResponse != 0) {
-            DocumentSerializableUtilities.addInt(element, "errorWhileProcessingResponse", errorWhileProcessingResponse);
+        if (errorWhileProcessingResponse.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "errorWhileProcessingResponse", (int) errorWhileProcessingResponse.sum());
         }
-        if (responseProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "responseProcessed", responseProcessed);
+        if (responseProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "responseProcessed", (int) responseProcessed.sum());
         }
-        if (responseSentViaUnicast != 0) {
-            DocumentSerializableUtilities.addInt(element, "responseSentViaUnicast", responseSentViaUnicast);
+        if (responseSentViaUnicast.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "responseSentViaUnicast", (int) responseSentViaUnicast.sum());
         }
-        if (querySentViaUnicast != 0) {
-            DocumentSerializableUtilities.addInt(element, "querySentViaUnicast", querySentViaUnicast);
+        if (querySentViaUnicast.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "querySentViaUnicast", (int) querySentViaUnicast.sum());
         }
-        if (queryToUnregisteredHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "queryToUnregisteredHandler", queryToUnregisteredHandler);
+        if (queryToUnregisteredHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "queryToUnregisteredHandler", (int) queryToUnregisteredHandler.sum());
         }
-        if (responseToUnregisteredHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "responseToUnregisteredHandler", responseToUnregisteredHandler);
+        if (responseToUnregisteredHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "responseToUnregisteredHandler", (int) responseToUnregisteredHandler.sum());
         }
     }
 
@@ -207,34 +208,50 @@ public class QueryDestinationMetric implements DocumentSerializable {
 
                 peerID = MetricUtilities.getPeerIdFromString(peerIDText);
             } else if (tagName.equals("errorWhileProcessingQuery")) { 
-                errorWhileProcessingQuery = DocumentSerializableUtilities.getInt(childElement);
+                errorWhileProcessingQuery.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("queryProcessed")) { 
-                queryProcessed = DocumentSerializableUtilities.getInt(childElement);
+                queryProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("errorWhileProcessingResponse")) { 
-                errorWhileProcessingResponse = DocumentSerializableUtilities.getInt(childElement);
+                errorWhileProcessingResponse.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("responseProcessed")) { 
-                responseProcessed = DocumentSerializableUtilities.getInt(childElement);
+                responseProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("responseSentViaUnicast")) { 
-                responseSentViaUnicast = DocumentSerializableUtilities.getInt(childElement);
+                responseSentViaUnicast.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("querySentViaUnicast")) { 
-                querySentViaUnicast = DocumentSerializableUtilities.getInt(childElement);
+                querySentViaUnicast.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("queryToUnregisteredHandler")) { 
-                queryToUnregisteredHandler = DocumentSerializableUtilities.getInt(childElement);
+                queryToUnregisteredHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("responseToUnregisteredHandler")) { 
-                responseToUnregisteredHandler = DocumentSerializableUtilities.getInt(childElement);
+                responseToUnregisteredHandler.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
     }
 
     public void mergeMetrics(QueryDestinationMetric otherQueryDestinationMetric) {
-        this.errorWhileProcessingQuery += otherQueryDestinationMetric.errorWhileProcessingQuery;
-        this.queryProcessed += otherQueryDestinationMetric.queryProcessed;
-        this.errorWhileProcessingResponse += otherQueryDestinationMetric.errorWhileProcessingResponse;
-        this.responseProcessed += otherQueryDestinationMetric.responseProcessed;
-        this.responseSentViaUnicast += otherQueryDestinationMetric.responseSentViaUnicast;
-        this.querySentViaUnicast += otherQueryDestinationMetric.querySentViaUnicast;
-        this.queryToUnregisteredHandler += otherQueryDestinationMetric.queryToUnregisteredHandler;
-        this.responseToUnregisteredHandler += otherQueryDestinationMetric.responseToUnregisteredHandler;
+        this.errorWhileProcessingQuery.add(otherQueryDestinationMetric.errorWhileProcessingQuery.sum());
+        this.queryProcessed.add(otherQueryDestinationMetric.queryProcessed.sum());
+        this.errorWhileProcessingResponse.add(otherQueryDestinationMetric.errorWhileProcessingResponse.sum());
+        this.responseProcessed.add(otherQueryDestinationMetric.responseProcessed.sum());
+        this.responseSentViaUnicast.add(otherQueryDestinationMetric.responseSentViaUnicast.sum());
+        this.querySentViaUnicast.add(otherQueryDestinationMetric.querySentViaUnicast.sum());
+        this.queryToUnregisteredHandler.add(otherQueryDestinationMetric.queryToUnregisteredHandler.sum());
+        this.responseToUnregisteredHandler.add(otherQueryDestinationMetric.responseToUnregisteredHandler.sum());
+    }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(QueryDestinationMetric otherQueryDestinationMetric) {
+        errorWhileProcessingQuery.add(otherQueryDestinationMetric.errorWhileProcessingQuery.sumThenReset());
+        queryProcessed.add(otherQueryDestinationMetric.queryProcessed.sumThenReset());
+        errorWhileProcessingResponse.add(otherQueryDestinationMetric.errorWhileProcessingResponse.sumThenReset());
+        responseProcessed.add(otherQueryDestinationMetric.responseProcessed.sumThenReset());
+        responseSentViaUnicast.add(otherQueryDestinationMetric.responseSentViaUnicast.sumThenReset());
+        querySentViaUnicast.add(otherQueryDestinationMetric.querySentViaUnicast.sumThenReset());
+        queryToUnregisteredHandler.add(otherQueryDestinationMetric.queryToUnregisteredHandler.sumThenReset());
+        responseToUnregisteredHandler.add(otherQueryDestinationMetric.responseToUnregisteredHandler.sumThenReset());
     }
 
     @Override
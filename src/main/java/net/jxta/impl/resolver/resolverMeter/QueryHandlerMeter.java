@@ -77,7 +77,8 @@ public class QueryHandlerMeter {
     private final String handlerName;
 
     private QueryHandlerMetric cumulativeMetrics;
-    private QueryHandlerMetric deltaMetrics;
+    private final QueryHandlerMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     private final Map<PeerID, QueryDestinationMeter> queryDestinationMeters = new Hashtable<PeerID, QueryDestinationMeter>();
 
@@ -160,6 +161,7 @@ public class QueryHandlerMeter {
         this.handlerName = handlerName;
         cumulativeMetrics = new QueryHandlerMetric(handlerName);
         this.resolverServiceMonitor = resolverServiceMonitor;
+        deltaMetrics = createDeltaMetric();
     }
 
     public QueryHandlerMetric getCumulativeMetrics() {
@@ -171,28 +173,27 @@ public class QueryHandlerMeter {
     }
 	
     public synchronized QueryHandlerMetric collectMetrics() {
-        QueryHandlerMetric prevDelta = deltaMetrics;
+        QueryHandlerMetric collected = null;
+
+        if (deltaChanged) {
+            deltaChanged = false;
+
+            collected = createDeltaMetric();
+            collected.drainMetrics(deltaMetrics);
+        }
 
         for (QueryDestinationMeter queryDestinationMeter : queryDestinationMeters.values()) {
             QueryDestinationMetric queryDestinationMetric = queryDestinationMeter.collectMetrics();
 
             if (queryDestinationMetric != null) {
-                /*
-                 * Fix-me: while fixing an exception thrown by SrdiHandlerMeter, I noticed that
-                 * a similar problem might occur here if there can be a case where a destinationMtric
-                 * is available even though nothing has happened to create the delta.
-                 * If that is not possible (we need to do a code review!) remove the check for
-                 * a null delta here.
-                 */
-                if (prevDelta == null) {
-                    createDeltaMetric();
-                    prevDelta = deltaMetrics;
+                // a destination may have been metered even though the handler itself was not
+                if (collected == null) {
+                    collected = createDeltaMetric();
                 }
-                prevDelta.addQueryDestinationMetric(queryDestinationMetric);
+                collected.addQueryDestinationMetric(queryDestinationMetric);
             }
         }
-        deltaMetrics = null;
-        return prevDelta;
+        return collected;
     }
 
     public synchronized QueryDestinationMeter getQueryDestinationMeter(EndpointAddress endpointAddress) {
@@ -220,8 +221,15 @@ public class QueryHandlerMeter {
         return queryDestinationMeter;
     }
 	
-    private void createDeltaMetric() {
-        deltaMetrics = new QueryHandlerMetric(handlerName);
+    private QueryHandlerMetric createDeltaMetric() {
+        return new QueryHandlerMetric(handlerName);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     @Override
@@ -230,12 +238,10 @@ public class QueryHandlerMeter {
     }
 
     public void setRegistered(boolean registered) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.setRegistered(registered);
         cumulativeMetrics.setRegistered(registered);
+
+        markDeltaChanged();
     }
 
     private QueryMetric getQueryMetric(int queryId) {
@@ -262,32 +268,24 @@ public class QueryHandlerMeter {
 
 	
     public void querySentInGroup(ResolverQueryMsg query) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         getQueryMetric(query.getQueryId()); // register the query
 
         deltaMetrics.querySentInGroup();
         cumulativeMetrics.querySentInGroup();		
+
+        markDeltaChanged();
     }
 
     public void querySentViaWalker(ResolverQueryMsg query) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         getQueryMetric(query.getQueryId()); // register the query
 
         deltaMetrics.querySentViaWalker();
         cumulativeMetrics.querySentViaWalker();		
+
+        markDeltaChanged();
     }
 
     public void querySentViaUnicast(String peer, ResolverQueryMsg query) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         getQueryMetric(query.getQueryId()); // register the query
 		
         deltaMetrics.querySentViaUnicast(peer);
@@ -296,131 +294,105 @@ public class QueryHandlerMeter {
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(peer);
 
         destinationMeter.querySentViaUnicast();
+
+        markDeltaChanged();
     }
 
     public void querySendError() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.querySendError();
         cumulativeMetrics.querySendError();		
+
+        markDeltaChanged();
     }
 
     public void queryPropagateError() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.queryPropagateError();
         cumulativeMetrics.queryPropagateError();		
+
+        markDeltaChanged();
     }
 
     public void queryHopCountDropped() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.queryHopCountDropped();
         cumulativeMetrics.queryHopCountDropped();		
+
+        markDeltaChanged();
     }
 
     public void unableToPropagate() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.unableToPropagate();
         cumulativeMetrics.unableToPropagate();		
+
+        markDeltaChanged();
     }
 
     // Propagate Query
 
     public void queryPropagatedInGroup() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.queryPropagatedInGroup();
         cumulativeMetrics.queryPropagatedInGroup();		
+
+        markDeltaChanged();
     }
 
     public void queryPropagatedViaWalker() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.queryPropagatedViaWalker();
         cumulativeMetrics.queryPropagatedViaWalker();		
+
+        markDeltaChanged();
     }
 
     public void propagationQueryDropped() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.propagationQueryDropped();
         cumulativeMetrics.propagationQueryDropped();		
+
+        markDeltaChanged();
     }
 	
     // Sent Responses
 
     public void responseSentViaUnicast(String peer, ResolverResponseMsg response) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.responseSentViaUnicast();
         cumulativeMetrics.responseSentViaUnicast();	
 
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(peer);
 
         destinationMeter.responseSentViaUnicast();
+
+        markDeltaChanged();
     }
 
     public void responseSentViaWalker(ResolverResponseMsg response) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.responseSentViaWalker();
         cumulativeMetrics.responseSentViaWalker();		
+
+        markDeltaChanged();
     }
 
     public void responseSentInGroup(ResolverResponseMsg response) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.responseSentInGroup();
         cumulativeMetrics.responseSentInGroup();		
+
+        markDeltaChanged();
     }		
 
     public void responseSendError() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.responseSendError();
         cumulativeMetrics.responseSendError();		
+
+        markDeltaChanged();
     }
 
     public void responsePropagateError() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.responsePropagateError();
         cumulativeMetrics.responsePropagateError();		
+
+        markDeltaChanged();
     }
 
     // Received Responses
 
     public void responseProcessed(ResolverResponseMsg response, long processTime, EndpointAddress srcAddr) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         QueryMetric queryMetric = getQueryMetric(response.getQueryId());
         long now = System.currentTimeMillis();
         long responseTime = now - queryMetric.querySentTime;
@@ -434,73 +406,65 @@ public class QueryHandlerMeter {
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(srcAddr);
 
         destinationMeter.responseProcessed();
+
+        markDeltaChanged();
     }
 
     public void responseToUnregisteredHandler(EndpointAddress src) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.responseToUnregisteredHandler();
         cumulativeMetrics.responseToUnregisteredHandler();
 
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(src);
 
         destinationMeter.responseToUnregisteredHandler();
+
+        markDeltaChanged();
     }
 
     public void errorWhileProcessingResponse(EndpointAddress srcAddr) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.errorWhileProcessingResponse();
         cumulativeMetrics.errorWhileProcessingResponse();
 
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(srcAddr);
 
         destinationMeter.errorWhileProcessingResponse();
+
+        markDeltaChanged();
     }	
 	
     // Received Queries	
 
     public void queryProcessed(ResolverQueryMsg query, int result, long processTime) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.queryProcessed(result, processTime);
         cumulativeMetrics.queryProcessed(result, processTime);
 
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(query.getSrcPeer().toString());
 
         destinationMeter.queryProcessed();
+
+        markDeltaChanged();
     }
 
     public void queryToUnregisteredHandler(ResolverQueryMsg query) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.queryToUnregisteredHandler();
         cumulativeMetrics.queryToUnregisteredHandler();
 
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(query.getSrcPeer().toString());
 
         destinationMeter.queryToUnregisteredHandler();
+
+        markDeltaChanged();
     }
 
     public void errorWhileProcessingQuery(ResolverQueryMsg query) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.errorWhileProcessingQuery();
         cumulativeMetrics.errorWhileProcessingQuery();
 
         QueryDestinationMeter destinationMeter = getQueryDestinationMeter(query.getSrcPeer().toString());
 
         destinationMeter.errorWhileProcessingQuery();
+
+        markDeltaChanged();
     }
 
     public Enumeration getQueryDestinationMeters() {
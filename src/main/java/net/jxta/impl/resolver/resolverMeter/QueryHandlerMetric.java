@@ -67,6 +67,7 @@ import net.jxta.util.documentSerializable.DocumentSerializationException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Metrics for a Registered handler Name
@@ -78,36 +79,36 @@ public class QueryHandlerMetric implements DocumentSerializable {
     private String handlerName;
     private String registered;
 	
-    private int numResponses = 0;
-    private long responseProcessingTime = 0;
-    private long responseTime = 0;
-    private int numResponseErrors = 0;
-
-    private int numQueries = 0;
-    private int numQueriesRepropagated = 0;
-    private long queryProcessingTime = 0;
-    private int numQueryErrors = 0;
-
-    private int numQueriesSentInGroup = 0;
-    private int numQueriesSentViaWalker = 0;
-    private int numQueriesSentViaUnicast = 0;
-    private int numErrorsSendingQueries = 0;
-    private int numErrorsPropagatingQueries = 0;
-    private int numQueriesHopCountDropped = 0;
-
-    private int numPropagationQueriesDropped = 0;	
-    private int numPropagatedInGroup = 0;	
-    private int numPropagatedViaWalker = 0;
-    private int numUnableToPropagate = 0;
+    private final LongAdder numResponses = new LongAdder();
+    private final LongAdder responseProcessingTime = new LongAdder();
+    private final LongAdder responseTime = new LongAdder();
+    private final LongAdder numResponseErrors = new LongAdder();
+
+    private final LongAdder numQueries = new LongAdder();
+    private final LongAdder numQueriesRepropagated = new LongAdder();
+    private final LongAdder queryProcessingTime = new LongAdder();
+    private final LongAdder numQueryErrors = new LongAdder();
+
+    private final LongAdder numQueriesSentInGroup = new LongAdder();
+    private final LongAdder numQueriesSentViaWalker = new LongAdder();
+    private final LongAdder numQueriesSentViaUnicast = new LongAdder();
+    private final LongAdder numErrorsSendingQueries = new LongAdder();
+    private final LongAdder numErrorsPropagatingQueries = new LongAdder();
+    private final LongAdder numQueriesHopCountDropped = new LongAdder();
+
+    private final LongAdder numPropagationQueriesDropped = new LongAdder();	
+    private final LongAdder numPropagatedInGroup = new LongAdder();	
+    private final LongAdder numPropagatedViaWalker = new LongAdder();
+    private final LongAdder numUnableToPropagate = new LongAdder();
 	
-    private int numResponsesToUnregisteredHandler = 0;
-    private int numQueriesToUnregisteredHandler = 0;
+    private final LongAdder numResponsesToUnregisteredHandler = new LongAdder();
+    private final LongAdder numQueriesToUnregisteredHandler = new LongAdder();
 	
-    private int numResponsesSentInGroup = 0;
-    private int numResponsesSentViaWalker = 0;
-    private int numResponsesSentViaUnicast = 0;
-    private int numErrorsSendingResponses = 0;
-    private int numErrorsPropagatingResponses = 0;
+    private final LongAdder numResponsesSentInGroup = new LongAdder();
+    private final LongAdder numResponsesSentViaWalker = new LongAdder();
+    private final LongAdder numResponsesSentViaUnicast = new LongAdder();
+    private final LongAdder numErrorsSendingResponses = new LongAdder();
+    private final LongAdder numErrorsPropagatingResponses = new LongAdder();
 	
     private HashMap destinationMetrics = new HashMap();
 
@@ -122,95 +123,95 @@ public class QueryHandlerMetric implements DocumentSerializable {
     }
 
     void responseProcessed(long responseTime, long processingTime) {
-        numResponses++;
-        responseTime += responseTime;
-        responseProcessingTime += processingTime;
+        numResponses.increment();
+        this.responseTime.add(responseTime);
+        responseProcessingTime.add(processingTime);
     }
 
     void responseToUnregisteredHandler() {
-        numResponsesToUnregisteredHandler++;
+        numResponsesToUnregisteredHandler.increment();
     }
 
     void errorWhileProcessingResponse() {
-        numResponseErrors++;
+        numResponseErrors.increment();
     }
 
     void queryProcessed(int result, long processingTime) {
-        numQueries++;
+        numQueries.increment();
 
         if (result == ResolverService.Repropagate) {
-            numQueriesRepropagated++;
+            numQueriesRepropagated.increment();
         }
 			
-        queryProcessingTime += processingTime;
+        queryProcessingTime.add(processingTime);
     }
 
     void queryToUnregisteredHandler() {
-        numQueriesToUnregisteredHandler++;
+        numQueriesToUnregisteredHandler.increment();
     }
 	
     void errorWhileProcessingQuery() {
-        numQueryErrors++;
+        numQueryErrors.increment();
     }
 
     void querySentInGroup() {
-        numQueriesSentInGroup++;
+        numQueriesSentInGroup.increment();
     }
 
     void querySentViaWalker() {
-        numQueriesSentViaWalker++;
+        numQueriesSentViaWalker.increment();
     }
 
     void querySentViaUnicast(String peer) {
-        numQueriesSentViaUnicast++;
+        numQueriesSentViaUnicast.increment();
     }
 
     void querySendError() {
-        numErrorsSendingQueries++;
+        numErrorsSendingQueries.increment();
     }
 
     void queryPropagateError() {
-        numErrorsPropagatingQueries++;
+        numErrorsPropagatingQueries.increment();
     }
 
     void queryHopCountDropped() {
-        numQueriesHopCountDropped++;
+        numQueriesHopCountDropped.increment();
     }
 
     void responseSentInGroup() {
-        numResponsesSentInGroup++;
+        numResponsesSentInGroup.increment();
     }
 
     void responseSentViaWalker() {
-        numResponsesSentViaWalker++;
+        numResponsesSentViaWalker.increment();
     }
 
     void responseSentViaUnicast() {
-        numResponsesSentViaUnicast++;
+        numResponsesSentViaUnicast.increment();
     }
 
     void responseSendError() {
-        numErrorsSendingResponses++;
+        numErrorsSendingResponses.increment();
     }
 	
     void responsePropagateError() {
-        numErrorsPropagatingResponses++;
+        numErrorsPropagatingResponses.increment();
     }
 
     void propagationQueryDropped() {
-        numPropagationQueriesDropped++;
+        numPropagationQueriesDropped.increment();
     }
 
     void queryPropagatedInGroup() {
-        numPropagatedInGroup++;
+        numPropagatedInGroup.increment();
     }
 
     void queryPropagatedViaWalker() {
-        numPropagatedViaWalker++;
+        numPropagatedViaWalker.increment();
     }
 
     void unableToPropagate() {
-        numUnableToPropagate++;
+        numUnableToPropagate.increment();
     }
 
     @Override
@@ -247,123 +248,123 @@ public class QueryHandlerMetric implements DocumentSerializable {
 
     /** The number of responses received by this Handler **/
     public int getNumResponses() {
-        return numResponses;
+        return (int) numResponses.sum();
     }
 
     /** The total clock time to process all responses received by this Handler **/
     public long getResponseProcessingTime() {
-        return responseProcessingTime;
+        return responseProcessingTime.sum();
     }
 
     /** The average clock time to process responses received by this Handler **/
     public long getAverageResponseProcessingTime() {
-        return (numResponses == 0) ? 0 : (responseProcessingTime / numResponses);
+        return (numResponses.sum() == 0) ? 0 : (responseProcessingTime.sum() / numResponses.sum());
     }
 
     /** The total time to receive all responses to queries sent by this Handler **/
     public long getResponseTime() {
-        return responseTime;
+        return responseTime.sum();
     }
 
     /** The average time to receive responses to queries sent by this Handler **/
     public long getAverageResponseTime() {
-        return (numResponses == 0) ? 0 : (responseTime / numResponses);
+        return (numResponses.sum() == 0) ? 0 : (responseTime.sum() / numResponses.sum());
     }
 
     /** Number of local errors while processing received responses **/
     public int getNumResponseErrors() {
-        return numResponseErrors;
+        return (int) numResponseErrors.sum();
     }
 	
     /** The number of queries received by this Handler **/
     public int getNumQueries() {
-        return numQueries;
+        return (int) numQueries.sum();
     }
 
     /** The number of queries received and repropagated by this Handler **/
     public int getNumQueriesRepropagated() {
-        return numQueriesRepropagated;
+        return (int) numQueriesRepropagated.sum();
     }
 
     /** The total clock time to process all Queries received by this Handler **/
     public long getQueryProcessingTime() {
-        return queryProcessingTime;
+        return queryProcessingTime.sum();
     }
 
     /** The average clock time to process Queries received by this Handler **/
     public long getAverageQueryProcessingTime() {
-        return (numQueries == 0) ? 0 : (queryProcessingTime / numQueries);
+        return (numQueries.sum() == 0) ? 0 : (queryProcessingTime.sum() / numQueries.sum());
     }
 
     /** Number of local errors while processing received Queries **/
     public int getNumQueryErrors() {
-        return numQueryErrors;
+        return (int) numQueryErrors.sum();
     }
 
     /** Number of Queries sent in Group ***/
     public int getNumQueriesSentInGroup() {
-        return numQueriesSentInGroup;
+        return (int) numQueriesSentInGroup.sum();
     }
 
     /** Number of Queries sent via Walker ***/
     public int getNumQueriesSentViaWalker() {
-        return numQueriesSentViaWalker;
+        return (int) numQueriesSentViaWalker.sum();
     }
 
     /** Number of Queries sent via Unicast ***/
     public int getNumQueriesSentViaUnicast() {
-        return numQueriesSentViaUnicast;
+        return (int) numQueriesSentViaUnicast.sum();
     }
 
     /** Number of Errors while sending Queries ***/
     public int getNumErrorsSendingQueries() {
-        return numErrorsSendingQueries;
+        return (int) numErrorsSendingQueries.sum();
     }
 
     /** Number of Errors while propagating Queries ***/
     public int getNumErrorsPropagatingQueries() {
-        return numErrorsPropagatingQueries;
+        return (int) numErrorsPropagatingQueries.sum();
     }
 	
     /** Number of Responses sent in Group ***/
     public int getNumResponsesSentInGroup() {
-        return numResponsesSentInGroup;
+        return (int) numResponsesSentInGroup.sum();
     }
 
     /** Number of Responses sent via Walker ***/
     public int getNumResponsesSentViaWalker() {
-        return numResponsesSentViaWalker;
+        return (int) numResponsesSentViaWalker.sum();
     }
 
     /** Number of Responses sent via Unicast ***/
     public int getNumResponsesSentViaUnicast() {
-        return numResponsesSentViaUnicast;
+        return (int) numResponsesSentViaUnicast.sum();
     }
 
     /** Number of Errors while sending Responses ***/
     public int getNumErrorsSendingResponses() {
-        return numErrorsSendingResponses;
+        return (int) numErrorsSendingResponses.sum();
     }
 
     /** Number of Errors while propagating Responses ***/
     public int getNumErrorsPropagatingResponses() {
-        return numErrorsPropagatingResponses;
+        return (int) numErrorsPropagatingResponses.sum();
     }
 
     public int getNumQueriesSent() {
-        return (numQueriesSentInGroup + numQueriesSentViaWalker + numQueriesSentViaUnicast);
+        return (int) (numQueriesSentInGroup.sum() + numQueriesSentViaWalker.sum() + numQueriesSentViaUnicast.sum());
     }
 
     public int getNumQuerySendErrors() {
-        return (numErrorsSendingQueries + numErrorsPropagatingQueries);
+        return (int) (numErrorsSendingQueries.sum() + numErrorsPropagatingQueries.sum());
     }
 
     public int getNumResponsesSent() {
-        return (numResponsesSentInGroup + numResponsesSentViaWalker + numResponsesSentViaUnicast);
+        return (int) (numResponsesSentInGroup.sum() + numResponsesSentViaWalker.sum() + numResponsesSentViaUnicast.sum());
     }
 
     public int getNumResponseSendErrors() {
-        return (numErrorsSendingResponses + numErrorsPropagatingResponses);
+        return (int) (numErrorsSendingResponses.sum() + numErrorsPropagatingResponses.sum());
     }
 	
     public void addQueryDestinationMetric(QueryDestinationMetric queryDestinationMetric) {
@@ -392,80 +393,80 @@ public class QueryHandlerMetric implements DocumentSerializable {
         if (registered != null) {
             DocumentSerializableUtilities.addString(element, "registered", registered);
         }
-        if (numResponses != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponses", numResponses);
+        if (numResponses.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponses", (int) numResponses.sum());
         }
-        if (responseProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "responseProcessingTime", responseProcessingTime);
+        if (responseProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "responseProcessingTime", responseProcessingTime.sum());
         }
-        if (responseTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "responseTime", responseTime);
+        if (responseTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "responseTime", responseTime.sum());
         }
-        if (numResponseErrors != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponseErrors", numResponseErrors);
+        if (numResponseErrors.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponseErrors", (int) numResponseErrors.sum());
         }
-        if (numQueries != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueries", numQueries);
+        if (numQueries.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueries", (int) numQueries.sum());
         }
-        if (numQueriesRepropagated != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesRepropagated", numQueriesRepropagated);
+        if (numQueriesRepropagated.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesRepropagated", (int) numQueriesRepropagated.sum());
         }
-        if (queryProcessingTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "queryProcessingTime", queryProcessingTime);
+        if (queryProcessingTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "queryProcessingTime", queryProcessingTime.sum());
         }
-        if (numQueryErrors != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueryErrors", numQueryErrors);
+        if (numQueryErrors.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueryErrors", (int) numQueryErrors.sum());
         }
-        if (numQueriesSentInGroup != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesSentInGroup", numQueriesSentInGroup);
+        if (numQueriesSentInGroup.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesSentInGroup", (int) numQueriesSentInGroup.sum());
         }
-        if (numQueriesSentViaWalker != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesSentViaWalker", numQueriesSentViaWalker);
+        if (numQueriesSentViaWalker.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesSentViaWalker", (int) numQueriesSentViaWalker.sum());
         }
-        if (numQueriesSentViaUnicast != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesSentViaUnicast", numQueriesSentViaUnicast);
+        if (numQueriesSentViaUnicast.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesSentViaUnicast", (int) numQueriesSentViaUnicast.sum());
         }
-        if (numErrorsSendingQueries != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsSendingQueries", numErrorsSendingQueries);
+        if (numErrorsSendingQueries.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsSendingQueries", (int) numErrorsSendingQueries.sum());
         }
-        if (numErrorsPropagatingQueries != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsPropagatingQueries", numErrorsPropagatingQueries);
+        if (numErrorsPropagatingQueries.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsPropagatingQueries", (int) numErrorsPropagatingQueries.sum());
         }
-        if (numQueriesHopCountDropped != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesHopCountDropped", numQueriesHopCountDropped);
+        if (numQueriesHopCountDropped.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesHopCountDropped", (int) numQueriesHopCountDropped.sum());
         }
-        if (numPropagationQueriesDropped != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagationQueriesDropped", numPropagationQueriesDropped);
+        if (numPropagationQueriesDropped.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagationQueriesDropped", (int) numPropagationQueriesDropped.sum());
         }
-        if (numPropagatedInGroup != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagatedInGroup", numPropagatedInGroup);
+        if (numPropagatedInGroup.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagatedInGroup", (int) numPropagatedInGroup.sum());
         }
-        if (numPropagatedViaWalker != 0) {
-            DocumentSerializableUtilities.addInt(element, "numPropagatedViaWalker", numPropagatedViaWalker);
+        if (numPropagatedViaWalker.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numPropagatedViaWalker", (int) numPropagatedViaWalker.sum());
         }
-        if (numUnableToPropagate != 0) {
-            DocumentSerializableUtilities.addInt(element, "numUnableToPropagate", numUnableToPropagate);
+        if (numUnableToPropagate.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numUnableToPropagate", (int) numUnableToPropagate.sum());
         }
-        if (numResponsesToUnregisteredHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponsesToUnregisteredHandler", numResponsesToUnregisteredHandler);
+        if (numResponsesToUnregisteredHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponsesToUnregisteredHandler", (int) numResponsesToUnregisteredHandler.sum());
         }
-        if (numQueriesToUnregisteredHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesToUnregisteredHandler", numQueriesToUnregisteredHandler);
+        if (numQueriesToUnregisteredHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesToUnregisteredHandler", (int) numQueriesToUnregisteredHandler.sum());
         }
-        if (numResponsesSentInGroup != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponsesSentInGroup", numResponsesSentInGroup);
+        if (numResponsesSentInGroup.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponsesSentInGroup", (int) numResponsesSentInGroup.sum());
         }
-        if (numResponsesSentViaWalker != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponsesSentViaWalker", numResponsesSentViaWalker);
+        if (numResponsesSentViaWalker.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponsesSentViaWalker", (int) numResponsesSentViaWalker.sum());
         }
-        if (numResponsesSentViaUnicast != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponsesSentViaUnicast", numResponsesSentViaUnicast);
+        if (numResponsesSentViaUnicast.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponsesSentViaUnicast", (int) numResponsesSentViaUnicast.sum());
         }
-        if (numErrorsSendingResponses != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsSendingResponses", numErrorsSendingResponses);
+        if (numErrorsSendingResponses.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsSendingResponses", (int) numErrorsSendingResponses.sum());
         }
-        if (numErrorsPropagatingResponses != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsPropagatingResponses", numErrorsPropagatingResponses);
+        if (numErrorsPropagatingResponses.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsPropagatingResponses", (int) numErrorsPropagatingResponses.sum());
         }
 	
         for (Iterator i = destinationMetrics.values().iterator(); i.hasNext();) {
@@ -486,55 +487,55 @@ public class QueryHandlerMetric implements DocumentSerializable {
             } else if (tagName.equals("registered")) { 
                 registered = DocumentSerializableUtilities.getString(childElement);
             } else if (tagName.equals("numResponses")) { 
-                numResponses = DocumentSerializableUtilities.getInt(childElement);
+                numResponses.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("responseProcessingTime")) { 
-                responseProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                responseProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("responseTime")) { 
-                responseTime = DocumentSerializableUtilities.getLong(childElement);
+                responseTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numResponseErrors")) { 
-                numResponseErrors = DocumentSerializableUtilities.getInt(childElement);
+                numResponseErrors.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueries")) { 
-                numQueries = DocumentSerializableUtilities.getInt(childElement);
+                numQueries.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesRepropagated")) { 
-                numQueriesRepropagated = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesRepropagated.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("queryProcessingTime")) { 
-                queryProcessingTime = DocumentSerializableUtilities.getLong(childElement);
+                queryProcessingTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numQueryErrors")) { 
-                numQueryErrors = DocumentSerializableUtilities.getInt(childElement);
+                numQueryErrors.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesSentInGroup")) { 
-                numQueriesSentInGroup = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesSentInGroup.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesSentViaWalker")) { 
-                numQueriesSentViaWalker = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesSentViaWalker.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesSentViaUnicast")) { 
-                numQueriesSentViaUnicast = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesSentViaUnicast.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsSendingQueries")) { 
-                numErrorsSendingQueries = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsSendingQueries.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsPropagatingQueries")) { 
-                numErrorsPropagatingQueries = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsPropagatingQueries.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesHopCountDropped")) { 
-                numQueriesHopCountDropped = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesHopCountDropped.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagationQueriesDropped")) { 
-                numPropagationQueriesDropped = DocumentSerializableUtilities.getInt(childElement);
+                numPropagationQueriesDropped.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagatedInGroup")) { 
-                numPropagatedInGroup = DocumentSerializableUtilities.getInt(childElement);
+                numPropagatedInGroup.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numPropagatedViaWalker")) { 
-                numPropagatedViaWalker = DocumentSerializableUtilities.getInt(childElement);
+                numPropagatedViaWalker.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numUnableToPropagate")) { 
-                numUnableToPropagate = DocumentSerializableUtilities.getInt(childElement);
+                numUnableToPropagate.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numResponsesToUnregisteredHandler")) { 
-                numResponsesToUnregisteredHandler = DocumentSerializableUtilities.getInt(childElement);
+                numResponsesToUnregisteredHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesToUnregisteredHandler")) { 
-                numQueriesToUnregisteredHandler = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesToUnregisteredHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numResponsesSentInGroup")) { 
-                numResponsesSentInGroup = DocumentSerializableUtilities.getInt(childElement);
+                numResponsesSentInGroup.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numResponsesSentViaWalker")) { 
-                numResponsesSentViaWalker = DocumentSerializableUtilities.getInt(childElement);
+                numResponsesSentViaWalker.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numResponsesSentViaUnicast")) { 
-                numResponsesSentViaUnicast = DocumentSerializableUtilities.getInt(childElement);
+                numResponsesSentViaUnicast.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsSendingResponses")) { 
-                numErrorsSendingResponses = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsSendingResponses.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsPropagatingResponses")) { 
-                numErrorsPropagatingResponses = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsPropagatingResponses.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("destination")) {
                 QueryDestinationMetric queryDestinationMetric = new QueryDestinationMetric();
 
@@ -545,28 +546,28 @@ public class QueryHandlerMetric implements DocumentSerializable {
     }
 
     public void mergeMetrics(QueryHandlerMetric otherQueryHandlerMetric) {
-        this.numResponses += otherQueryHandlerMetric.numResponses;
-        this.responseProcessingTime += otherQueryHandlerMetric.responseProcessingTime;
-        this.responseTime += otherQueryHandlerMetric.responseTime;
-        this.numResponseErrors += otherQueryHandlerMetric.numResponseErrors;
-
-        this.numQueries += otherQueryHandlerMetric.numQueries;
-        this.numQueriesRepropagated += otherQueryHandlerMetric.numQueriesRepropagated;
-        this.queryProcessingTime += otherQueryHandlerMetric.queryProcessingTime;
-        this.numQueryErrors += otherQueryHandlerMetric.numQueryErrors;
-
-        this.numQueriesSentInGroup += otherQueryHandlerMetric.numQueriesSentInGroup;
-        this.numQueriesSentViaWalker += otherQueryHandlerMetric.numQueriesSentViaWalker;
-        this.numQueriesSentViaUnicast += otherQueryHandlerMetric.numQueriesSentViaUnicast;
-        this.numErrorsSendingQueries += otherQueryHandlerMetric.numErrorsSendingQueries;
-        this.numErrorsPropagatingQueries += otherQueryHandlerMetric.numErrorsPropagatingQueries;
-        this.numQueriesHopCountDropped += otherQueryHandlerMetric.numQueriesHopCountDropped;
-
-        this.numResponsesSentInGroup += otherQueryHandlerMetric.numResponsesSentInGroup;
-        this.numResponsesSentViaWalker += otherQueryHandlerMetric.numResponsesSentViaWalker;
-        this.numResponsesSentViaUnicast += otherQueryHandlerMetric.numResponsesSentViaUnicast;
-        this.numErrorsSendingResponses += otherQueryHandlerMetric.numErrorsSendingResponses;
-        this.numErrorsPropagatingResponses += otherQueryHandlerMetric.numErrorsPropagatingResponses;	
+        this.numResponses.add(otherQueryHandlerMetric.numResponses.sum());
+        this.responseProcessingTime.add(otherQueryHandlerMetric.responseProcessingTime.sum());
+        this.responseTime.add(otherQueryHandlerMetric.responseTime.sum());
+        this.numResponseErrors.add(otherQueryHandlerMetric.numResponseErrors.sum());
+
+        this.numQueries.add(otherQueryHandlerMetric.numQueries.sum());
+        this.numQueriesRepropagated.add(otherQueryHandlerMetric.numQueriesRepropagated.sum());
+        this.queryProcessingTime.add(otherQueryHandlerMetric.queryProcessingTime.sum());
+        this.numQueryErrors.add(otherQueryHandlerMetric.numQueryErrors.sum());
+
+        this.numQueriesSentInGroup.add(otherQueryHandlerMetric.numQueriesSentInGroup.sum());
+        this.numQueriesSentViaWalker.add(otherQueryHandlerMetric.numQueriesSentViaWalker.sum());
+        this.numQueriesSentViaUnicast.add(otherQueryHandlerMetric.numQueriesSentViaUnicast.sum());
+        this.numErrorsSendingQueries.add(otherQueryHandlerMetric.numErrorsSendingQueries.sum());
+        this.numErrorsPropagatingQueries.add(otherQueryHandlerMetric.numErrorsPropagatingQueries.sum());
+        this.numQueriesHopCountDropped.add(otherQueryHandlerMetric.numQueriesHopCountDropped.sum());
+
+        this.numResponsesSentInGroup.add(otherQueryHandlerMetric.numResponsesSentInGroup.sum());
+        this.numResponsesSentViaWalker.add(otherQueryHandlerMetric.numResponsesSentViaWalker.sum());
+        this.numResponsesSentViaUnicast.add(otherQueryHandlerMetric.numResponsesSentViaUnicast.sum());
+        this.numErrorsSendingResponses.add(otherQueryHandlerMetric.numErrorsSendingResponses.sum());
+        this.numErrorsPropagatingResponses.add(otherQueryHandlerMetric.numErrorsPropagatingResponses.sum());	
 
         for (Iterator i = otherQueryHandlerMetric.getDestinationMetrics(); i.hasNext();) {
             QueryDestinationMetric otherQueryDestinationMetric = (QueryDestinationMetric) i.next();
@@ -580,4 +581,37 @@ public class QueryHandlerMetric implements DocumentSerializable {
             ourQueryDestinationMetric.mergeMetrics(otherQueryDestinationMetric);
         }
     }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(QueryHandlerMetric otherQueryHandlerMetric) {
+        numResponses.add(otherQueryHandlerMetric.numResponses.sumThenReset());
+        responseProcessingTime.add(otherQueryHandlerMetric.responseProcessingTime.sumThenReset());
+        responseTime.add(otherQueryHandlerMetric.responseTime.sumThenReset());
+        numResponseErrors.add(otherQueryHandlerMetric.numResponseErrors.sumThenReset());
+        numQueries.add(otherQueryHandlerMetric.numQueries.sumThenReset());
+        numQueriesRepropagated.add(otherQueryHandlerMetric.numQueriesRepropagated.sumThenReset());
+        queryProcessingTime.add(otherQueryHandlerMetric.queryProcessingTime.sumThenReset());
+        numQueryErrors.add(otherQueryHandlerMetric.numQueryErrors.sumThenReset());
+        numQueriesSentInGroup.add(otherQueryHandlerMetric.numQueriesSentInGroup.sumThenReset());
+        numQueriesSentViaWalker.add(otherQueryHandlerMetric.numQueriesSentViaWalker.sumThenReset());
+        numQueriesSentViaUnicast.add(otherQueryHandlerMetric.numQueriesSentViaUnicast.sumThenReset());
+        numErrorsSendingQueries.add(otherQueryHandlerMetric.numErrorsSendingQueries.sumThenReset());
+        numErrorsPropagatingQueries.add(otherQueryHandlerMetric.numErrorsPropagatingQueries.sumThenReset());
+        numQueriesHopCountDropped.add(otherQueryHandlerMetric.numQueriesHopCountDropped.sumThenReset());
+        numPropagationQueriesDropped.add(otherQueryHandlerMetric.numPropagationQueriesDropped.sumThenReset());
+        numPropagatedInGroup.add(otherQueryHandlerMetric.numPropagatedInGroup.sumThenReset());
+        numPropagatedViaWalker.add(otherQueryHandlerMetric.numPropagatedViaWalker.sumThenReset());
+        numUnableToPropagate.add(otherQueryHandlerMetric.numUnableToPropagate.sumThenReset());
+        numResponsesToUnregisteredHandler.add(otherQueryHandlerMetric.numResponsesToUnregisteredHandler.sumThenReset());
+        numQueriesToUnregisteredHandler.add(otherQueryHandlerMetric.numQueriesToUnregisteredHandler.sumThenReset());
+        numResponsesSentInGroup.add(otherQueryHandlerMetric.numResponsesSentInGroup.sumThenReset());
+        numResponsesSentViaWalker.add(otherQueryHandlerMetric.numResponsesSentViaWalker.sumThenReset());
+        numResponsesSentViaUnicast.add(otherQueryHandlerMetric.numResponsesSentViaUnicast.sumThenReset());
+        numErrorsSendingResponses.add(otherQueryHandlerMetric.numErrorsSendingResponses.sumThenReset());
+        numErrorsPropagatingResponses.add(otherQueryHandlerMetric.numErrorsPropagatingResponses.sumThenReset());
+    }
 }
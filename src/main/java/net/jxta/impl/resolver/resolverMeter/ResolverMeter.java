@@ -63,11 +63,13 @@ import net.jxta.protocol.ResolverResponseMsg;
 public class ResolverMeter {
     private ResolverServiceMonitor resolverServiceMonitor;
     private ResolverMetric cumulativeMetrics;
-    private ResolverMetric deltaMetrics;
+    private final ResolverMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     public ResolverMeter(ResolverServiceMonitor resolverServiceMonitor) {
         this.resolverServiceMonitor = resolverServiceMonitor;
         cumulativeMetrics = new ResolverMetric();
+        deltaMetrics = createDeltaMetric();
     }
 
     public ResolverMetric getCumulativeMetrics() {
@@ -75,14 +77,27 @@ public class ResolverMeter {
     }
 
     public synchronized ResolverMetric collectMetrics() {
-        ResolverMetric prevDelta = deltaMetrics;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
+
+        ResolverMetric collected = createDeltaMetric();
 
-        deltaMetrics = null;
-        return prevDelta;
+        collected.drainMetrics(deltaMetrics);
+        return collected;
     }
 	
-    private void createDeltaMetric() {
-        deltaMetrics = new ResolverMetric();
+    private ResolverMetric createDeltaMetric() {
+        return new ResolverMetric();
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     @Override
@@ -91,12 +106,10 @@ public class ResolverMeter {
     }
 
     public void invalidSrdiMessageDiscarded(EndpointAddress src) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.invalidSrdiMessageDiscarded();
         cumulativeMetrics.invalidSrdiMessageDiscarded();		
+
+        markDeltaChanged();
     }
 
     public void unknownHandlerForSrdiMessage(EndpointAddress src, String handlerName) {
@@ -110,21 +123,17 @@ public class ResolverMeter {
     }
 
     public void invalidSrdiDiscarded() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.invalidResponseDiscarded();
         cumulativeMetrics.invalidResponseDiscarded();		
+
+        markDeltaChanged();
     }	
 	
     public void invalidResponseDiscarded(EndpointAddress src) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.invalidResponseDiscarded();
         cumulativeMetrics.invalidResponseDiscarded();		
+
+        markDeltaChanged();
     }
 
     public void unknownHandlerForResponse(EndpointAddress src, ResolverResponseMsg resp) {
@@ -144,12 +153,10 @@ public class ResolverMeter {
     }
 	
     public void invalidQueryDiscarded() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.invalidQueryDiscarded();
         cumulativeMetrics.invalidQueryDiscarded();		
+
+        markDeltaChanged();
     }
 
     public void unknownHandlerForQuery(ResolverQueryMsg query) {
@@ -63,19 +63,20 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The general Metric for this resolver 
  **/
 public class ResolverMetric implements DocumentSerializable {
-    private int numInvalidSrdiMessages = 0;
-    private int numSrdiMessagesToUnknownHandler = 0;
+    private final LongAdder numInvalidSrdiMessages = new LongAdder();
+    private final LongAdder numSrdiMessagesToUnknownHandler = new LongAdder();
 		
-    private int numInvalidResponses = 0;
-    private int numResponsesToUnknownHandler = 0;
+    private final LongAdder numInvalidResponses = new LongAdder();
+    private final LongAdder numResponsesToUnknownHandler = new LongAdder();
 	
-    private int numInvalidQueries = 0;
-    private int numQueriesToUnknownHandler = 0;
+    private final LongAdder numInvalidQueries = new LongAdder();
+    private final LongAdder numQueriesToUnknownHandler = new LongAdder();
 
     public ResolverMetric() {}
 
@@ -83,76 +84,76 @@ public class ResolverMetric implements DocumentSerializable {
 
     /** Number of invalid Srdi Messages received */
     public int getNumInvalidSrdiMessages() {
-        return numInvalidSrdiMessages;
+        return (int) numInvalidSrdiMessages.sum();
     }
 
     /** Number of Srdi Messages received for unknown handlers */
     public int getNumSrdiMessagesToUnknownHandler() {
-        return numSrdiMessagesToUnknownHandler;
+        return (int) numSrdiMessagesToUnknownHandler.sum();
     }
 
     /** Number of invalid Query Response Messages received */
     public int getNumInvalidResponses() {
-        return numInvalidResponses;
+        return (int) numInvalidResponses.sum();
     }
 
     /** Number of Response Messages to unknown handlers received */
     public int getNumResponsesToUnknownHandler() {
-        return numResponsesToUnknownHandler;
+        return (int) numResponsesToUnknownHandler.sum();
     }
 
     /** Number of invalid Query Messages received */
     public int getNumInvalidQueries() {
-        return numInvalidQueries;
+        return (int) numInvalidQueries.sum();
     }
 
     /** Number of Query Messages to unknown handlers received */
     public int getNumQueriesToUnknownHandler() {
-        return numQueriesToUnknownHandler;
+        return (int) numQueriesToUnknownHandler.sum();
     }
 
     void invalidSrdiMessageDiscarded() {
-        numInvalidSrdiMessages++;
+        numInvalidSrdiMessages.increment();
     }
 	
     void unknownHandlerForSrdiMessage() {
-        numSrdiMessagesToUnknownHandler++;
+        numSrdiMessagesToUnknownHandler.increment();
     }
 
     void invalidResponseDiscarded() {
-        numInvalidResponses++;
+        numInvalidResponses.increment();
     }
 
     void unknownHandlerForResponse() {
-        numResponsesToUnknownHandler++;
+        numResponsesToUnknownHandler.increment();
     }
 
     void invalidQueryDiscarded() {
-        numInvalidQueries++;
+        numInvalidQueries.increment();
     }
 
     void unknownHandlerForQuery() {
-        numQueriesToUnknownHandler++;
+        numQueriesToUnknownHandler.increment();
     }	
 
     public void serializeTo(Element element) throws DocumentSerializationException {
-        if (numInvalidSrdiMessages != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInvalidSrdiMessages", numInvalidSrdiMessages);
+        if (numInvalidSrdiMessages.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInvalidSrdiMessages", (int) numInvalidSrdiMessages.sum());
         }
-        if (numSrdiMessagesToUnknownHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "numSrdiMessagesToUnknownHandler", numSrdiMessagesToUnknownHandler);
+        if (numSrdiMessagesToUnknownHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numSrdiMessagesToUnknownHandler", (int) numSrdiMessagesToUnknownHandler.sum());
         }
-        if (numInvalidResponses != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInvalidResponses", numInvalidResponses);
+        if (numInvalidResponses.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInvalidResponses", (int) numInvalidResponses.sum());
         }
-        if (numResponsesToUnknownHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "numResponsesToUnknownHandler", numResponsesToUnknownHandler);
+        if (numResponsesToUnknownHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numResponsesToUnknownHandler", (int) numResponsesToUnknownHandler.sum());
         }
-        if (numInvalidQueries != 0) {
-            DocumentSerializableUtilities.addInt(element, "numInvalidQueries", numInvalidQueries);
+        if (numInvalidQueries.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numInvalidQueries", (int) numInvalidQueries.sum());
         }
-        if (numQueriesToUnknownHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "numQueriesToUnknownHandler", numQueriesToUnknownHandler);
+        if (numQueriesToUnknownHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numQueriesToUnknownHandler", (int) numQueriesToUnknownHandler.sum());
         }
     }
 
@@ -162,17 +163,17 @@ public class ResolverMetric implements DocumentSerializable {
             String tagName = (String) childElement.getKey();
 
             if (tagName.equals("numInvalidSrdiMessages")) { 
-                numInvalidSrdiMessages = DocumentSerializableUtilities.getInt(childElement);
+                numInvalidSrdiMessages.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numSrdiMessagesToUnknownHandler")) { 
-                numSrdiMessagesToUnknownHandler = DocumentSerializableUtilities.getInt(childElement);
+                numSrdiMessagesToUnknownHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numInvalidResponses")) { 
-                numInvalidResponses = DocumentSerializableUtilities.getInt(childElement);
+                numInvalidResponses.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numResponsesToUnknownHandler")) { 
-                numResponsesToUnknownHandler = DocumentSerializableUtilities.getInt(childElement);
+                numResponsesToUnknownHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numInvalidQueries")) { 
-                numInvalidQueries = DocumentSerializableUtilities.getInt(childElement);
+                numInvalidQueries.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numQueriesToUnknownHandler")) { 
-                numQueriesToUnknownHandler = DocumentSerializableUtilities.getInt(childElement);
+                numQueriesToUnknownHandler.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
     }
@@ -181,14 +182,28 @@ public class ResolverMetric implements DocumentSerializable {
         if (otherResolverMetric == null) {
             return;
         }
-        this.numInvalidSrdiMessages += otherResolverMetric.numInvalidSrdiMessages;
-        this.numSrdiMessagesToUnknownHandler += otherResolverMetric.numSrdiMessagesToUnknownHandler;
+        this.numInvalidSrdiMessages.add(otherResolverMetric.numInvalidSrdiMessages.sum());
+        this.numSrdiMessagesToUnknownHandler.add(otherResolverMetric.numSrdiMessagesToUnknownHandler.sum());
 
-        this.numInvalidResponses += otherResolverMetric.numInvalidResponses;
-        this.numResponsesToUnknownHandler += otherResolverMetric.numResponsesToUnknownHandler;
+        this.numInvalidResponses.add(otherResolverMetric.numInvalidResponses.sum());
+        this.numResponsesToUnknownHandler.add(otherResolverMetric.numResponsesToUnknownHandler.sum());
 
-        this.numInvalidQueries += otherResolverMetric.numInvalidQueries;
-        this.numQueriesToUnknownHandler += otherResolverMetric.numQueriesToUnknownHandler;
+        this.numInvalidQueries.add(otherResolverMetric.numInvalidQueries.sum());
+        this.numQueriesToUnknownHandler.add(otherResolverMetric.numQueriesToUnknownHandler.sum());
 
     }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(ResolverMetric otherResolverMetric) {	
+        numInvalidSrdiMessages.add(otherResolverMetric.numInvalidSrdiMessages.sumThenReset());
+        numSrdiMessagesToUnknownHandler.add(otherResolverMetric.numSrdiMessagesToUnknownHandler.sumThenReset());
+        numInvalidResponses.add(otherResolverMetric.numInvalidResponses.sumThenReset());
+        numResponsesToUnknownHandler.add(otherResolverMetric.numResponsesToUnknownHandler.sumThenReset());
+        numInvalidQueries.add(otherResolverMetric.numInvalidQueries.sumThenReset());
+        numQueriesToUnknownHandler.add(otherResolverMetric.numQueriesToUnknownHandler.sumThenReset());
+    }
 }
@@ -62,11 +62,13 @@ public class SrdiDestinationMeter {
     private PeerID peerID;
 	
     private SrdiDestinationMetric cumulativeMetrics;
-    private SrdiDestinationMetric deltaMetrics;
+    private final SrdiDestinationMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
 
     public SrdiDestinationMeter(PeerID peerID) {
         this.peerID = peerID;
         cumulativeMetrics = new SrdiDestinationMetric(peerID);
+        deltaMetrics = createDeltaMetric();
     }
 
     /*
@@ -76,18 +78,31 @@ public class SrdiDestinationMeter {
      }
      */	
     public synchronized SrdiDestinationMetric collectMetrics() {
-        SrdiDestinationMetric prevDelta = deltaMetrics;
+        if (!deltaChanged) {
+            return null;
+        }
+
+        deltaChanged = false;
 
-        deltaMetrics = null;
-        return prevDelta;
+        SrdiDestinationMetric collected = createDeltaMetric();
+
+        collected.drainMetrics(deltaMetrics);
+        return collected;
     }
 		
     public SrdiDestinationMetric getCumulativeMetrics() {
         return cumulativeMetrics;
     }
 
-    private void createDeltaMetric() {
-        deltaMetrics = new SrdiDestinationMetric(peerID);
+    private SrdiDestinationMetric createDeltaMetric() {
+        return new SrdiDestinationMetric(peerID);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     public PeerID getPeerID() {
@@ -95,39 +110,31 @@ public class SrdiDestinationMeter {
     }
 
     protected void messageProcessed() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.messageProcessed();
         cumulativeMetrics.messageProcessed();
+
+        markDeltaChanged();
     }
 	
     protected void srdiToUnregisteredHandler() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.srdiToUnregisteredHandler();
         cumulativeMetrics.srdiToUnregisteredHandler();
+
+        markDeltaChanged();
     }	
 	
     protected void errorWhileProcessing() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.errorWhileProcessing();
         cumulativeMetrics.errorWhileProcessing();
+
+        markDeltaChanged();
     }
 	
     protected void messageSentViaUnicast() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.messageSentViaUnicast();
         cumulativeMetrics.messageSentViaUnicast();
+
+        markDeltaChanged();
     }
 
 }
@@ -65,17 +65,18 @@ import net.jxta.util.documentSerializable.DocumentSerializableUtilities;
 import net.jxta.util.documentSerializable.DocumentSerializationException;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Metrics for a specific Srdi Destination for a specific handler 
  **/
 public class SrdiDestinationMetric implements DocumentSerializable {
     private PeerID peerID;
-    private int messageProcessed;
-    private int errorWhileProcessing;
-    private int srdiToUnregisteredHandler = 0;
+    private final LongAdder messageProcessed = new LongAdder();
+    private final LongAdder errorWhileProcessing = new LongAdder();
+    private final LongAdder srdiToUnregisteredHandler = new LongAdder();
 
-    private int messageSentViaUnicast;
+    private final LongAdder messageSentViaUnicast = new LongAdder();
 
     public SrdiDestinationMetric(PeerID peerID) {
         this.peerID = peerID;
@@ -92,56 +93,56 @@ public class SrdiDestinationMetric implements DocumentSerializable {
     }
 
     void messageProcessed() {
-        messageProcessed++;
+        messageProcessed.increment();
     }
 
     /** Messages Received and Processed from this destinations **/
     public int getMessagesProcessed() {
-        return messageProcessed;
+        return (int) messageProcessed.sum();
     }
 	
     void errorWhileProcessing() {
-        errorWhileProcessing++;
+        errorWhileProcessing.increment();
     }
 
     /** Messages Received, but generating errors when processing **/
     public int getErrorsWhileProcessing() {
-        return errorWhileProcessing;
+        return (int) errorWhileProcessing.sum();
     }
 	
     void messageSentViaUnicast() {
-        messageSentViaUnicast++;
+        messageSentViaUnicast.increment();
     }
 
     /** Get Messages Sent via Unicast to this destinations **/
     public int getMessagesSentViaUnicast() {
-        return messageSentViaUnicast;
+        return (int) messageSentViaUnicast.sum();
     }
 	
     public void srdiToUnregisteredHandler() {
-        srdiToUnregisteredHandler++;
+        srdiToUnregisteredHandler.increment();
     }	
 
     /** Messages Received, to this when it was not registered **/
     public int getSrdiToUnregisteredHandler() {
-        return srdiToUnregisteredHandler;
+        return (int) srdiToUnregisteredHandler.sum();
     }
 
     public void serializeTo(Element element) throws DocumentSerializationException {
         if (peerID != null) {
             DocumentSerializableUtilities.addString(element, "peerID", peerID.toString());
         }
-        if (messageProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "messageProcessed", messageProcessed);
+        if (messageProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "messageProcessed", (int) messageProcessed.sum());
         }
-        if (errorWhileProcessing != 0) {
-            DocumentSerializableUtilities.addInt(element, "errorWhileProcessing", errorWhileProcessing);
+        if (errorWhileProcessing.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "errorWhileProcessing", (int) errorWhileProcessing.sum());
         }
-        if (srdiToUnregisteredHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "srdiToUnregisteredHandler", srdiToUnregisteredHandler);
+        if (srdiToUnregisteredHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "srdiToUnregisteredHandler", (int) srdiToUnregisteredHandler.sum());
         }
-        if (messageSentViaUnicast != 0) {
-            DocumentSerializableUtilities.addInt(element, "messageSentViaUnicast", messageSentViaUnicast);
+        if (messageSentViaUnicast.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "messageSentViaUnicast", (int) messageSentViaUnicast.sum());
         }
     }
 
@@ -155,21 +156,33 @@ public class SrdiDestinationMetric implements DocumentSerializable {
 
                 peerID = MetricUtilities.getPeerIdFromString(peerIDText);
             } else if (tagName.equals("messageProcessed")) { 
-                messageProcessed = DocumentSerializableUtilities.getInt(childElement);
+                messageProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("errorWhileProcessing")) { 
-                errorWhileProcessing = DocumentSerializableUtilities.getInt(childElement);
+                errorWhileProcessing.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("srdiToUnregisteredHandler")) { 
-                srdiToUnregisteredHandler = DocumentSerializableUtilities.getInt(childElement);
+                srdiToUnregisteredHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("messageSentViaUnicast")) { 
-                messageSentViaUnicast = DocumentSerializableUtilities.getInt(childElement);
+                messageSentViaUnicast.add(DocumentSerializableUtilities.getInt(childElement));
             }
         }
     }
 
     public void mergeMetrics(SrdiDestinationMetric otherSrdiDestinationMetric) {
-        this.errorWhileProcessing += otherSrdiDestinationMetric.errorWhileProcessing;
-        this.messageProcessed += otherSrdiDestinationMetric.messageProcessed;
-        this.messageSentViaUnicast += otherSrdiDestinationMetric.messageSentViaUnicast;
+        this.errorWhileProcessing.add(otherSrdiDestinationMetric.errorWhileProcessing.sum());
+        this.messageProcessed.add(otherSrdiDestinationMetric.messageProcessed.sum());
+        this.messageSentViaUnicast.add(otherSrdiDestinationMetric.messageSentViaUnicast.sum());
+    }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(SrdiDestinationMetric otherSrdiDestinationMetric) {
+        messageProcessed.add(otherSrdiDestinationMetric.messageProcessed.sumThenReset());
+        errorWhileProcessing.add(otherSrdiDestinationMetric.errorWhileProcessing.sumThenReset());
+        srdiToUnregisteredHandler.add(otherSrdiDestinationMetric.srdiToUnregisteredHandler.sumThenReset());
+        messageSentViaUnicast.add(otherSrdiDestinationMetric.messageSentViaUnicast.sumThenReset());
     }
 
     @Override
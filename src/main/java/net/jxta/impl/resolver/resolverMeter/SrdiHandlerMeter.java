@@ -68,12 +68,14 @@ public class SrdiHandlerMeter {
     private final String handlerName;
 
     private SrdiHandlerMetric cumulativeMetrics;
-    private SrdiHandlerMetric deltaMetrics;
+    private final SrdiHandlerMetric deltaMetrics;
+    private volatile boolean deltaChanged = false;
     private final Map<PeerID, SrdiDestinationMeter> srdiDestinationMeters = new Hashtable<PeerID, SrdiDestinationMeter>();
 
     public SrdiHandlerMeter(String handlerName) {
         this.handlerName = handlerName;
         cumulativeMetrics = new SrdiHandlerMetric(handlerName);
+        deltaMetrics = createDeltaMetric();
     }
 
     public SrdiHandlerMetric getCumulativeMetrics() {
@@ -85,26 +87,27 @@ public class SrdiHandlerMeter {
     }
 	
     public synchronized SrdiHandlerMetric collectMetrics() {
-        SrdiHandlerMetric prevDelta = deltaMetrics;
+        SrdiHandlerMetric collected = null;
+
+        if (deltaChanged) {
+            deltaChanged = false;
+
+            collected = createDeltaMetric();
+            collected.drainMetrics(deltaMetrics);
+        }
 
         for (SrdiDestinationMeter srdiDestinationMeter : srdiDestinationMeters.values()) {
             SrdiDestinationMetric srdiDestinationMetric = srdiDestinationMeter.collectMetrics();
 
             if (srdiDestinationMetric != null) {
-                /*
-                 * Fix-me: Apparantly, we can have a case where NO Srdi mteric is tickled, but a
-                 * destination metric is available.  This may be a bug.  For now, we'll create the
-                 * delta in that case.
-                 */
-                if (prevDelta == null) {
-                    createDeltaMetric();
-                    prevDelta = deltaMetrics;
+                // a destination may have been metered even though the handler itself was not
+                if (collected == null) {
+                    collected = createDeltaMetric();
                 }
-                prevDelta.addSrdiDestinationMetric(srdiDestinationMetric);
+                collected.addSrdiDestinationMetric(srdiDestinationMetric);
             }
         }
-        deltaMetrics = null;
-        return prevDelta;
+        return collected;
     }
 
     public synchronized SrdiDestinationMeter getSrdiDestinationMeter(EndpointAddress endpointAddress) {
@@ -131,8 +134,15 @@ public class SrdiHandlerMeter {
         return srdiDestinationMeter;
     }
 	
-    private void createDeltaMetric() {
-        deltaMetrics = new SrdiHandlerMetric(handlerName);
+    private SrdiHandlerMetric createDeltaMetric() {
+        return new SrdiHandlerMetric(handlerName);
+    }
+
+    private void markDeltaChanged() {
+        // only written once per collection so that updates do not contend for the flag
+        if (!deltaChanged) {
+            deltaChanged = true;
+        }
     }
 
     @Override
@@ -141,93 +151,78 @@ public class SrdiHandlerMeter {
     }
 
     public void setRegistered(boolean registered) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.setRegistered(registered);
         cumulativeMetrics.setRegistered(registered);
+
+        markDeltaChanged();
     }
 
     // received
 
     public void messageProcessed(ResolverSrdiMsg srdi, long processTime, EndpointAddress srcAddr) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.messageProcessed(processTime);
         cumulativeMetrics.messageProcessed(processTime);
 
         SrdiDestinationMeter destinationMeter = getSrdiDestinationMeter(srcAddr);
 
         destinationMeter.messageProcessed();
+
+        markDeltaChanged();
     }
 
     public void errorWhileProcessing(EndpointAddress srcAddr) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
         deltaMetrics.errorWhileProcessing();
         cumulativeMetrics.errorWhileProcessing();
 
         SrdiDestinationMeter destinationMeter = getSrdiDestinationMeter(srcAddr);
 
         destinationMeter.errorWhileProcessing();
+
+        markDeltaChanged();
     }
 
     public void srdiToUnregisteredHandler(EndpointAddress srcAddr) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-			
         deltaMetrics.srdiToUnregisteredHandler();
         cumulativeMetrics.srdiToUnregisteredHandler();
 
         SrdiDestinationMeter destinationMeter = getSrdiDestinationMeter(srcAddr);
 
         destinationMeter.srdiToUnregisteredHandler();
+
+        markDeltaChanged();
     }
 
     // send
 
     public void messageSentViaUnicast(String peer, ResolverSrdiMsg srdi) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.messageSentViaUnicast();
         cumulativeMetrics.messageSentViaUnicast();	
 			
         SrdiDestinationMeter destinationMeter = getSrdiDestinationMeter(peer);
 
         destinationMeter.messageSentViaUnicast();
+
+        markDeltaChanged();
     }
 
     public void messageSentViaWalker(ResolverSrdiMsg srdi) {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.messageSentViaWalker();
         cumulativeMetrics.messageSentViaWalker();		
+
+        markDeltaChanged();
     }
 
     public void errorSendingMessage() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.errorSendingMessage();
         cumulativeMetrics.errorSendingMessage();		
+
+        markDeltaChanged();
     }
 
     public void errorPropagatingMessage() {
-        if (deltaMetrics == null) {	
-            createDeltaMetric();
-        }
-
         deltaMetrics.errorPropagatingMessage();
         cumulativeMetrics.errorPropagatingMessage();		
+
+        markDeltaChanged();
     }
 }
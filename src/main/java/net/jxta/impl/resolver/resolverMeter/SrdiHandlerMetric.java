@@ -68,20 +68,21 @@ import net.jxta.util.documentSerializable.DocumentSerializationException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
 
 public class SrdiHandlerMetric implements DocumentSerializable {
     private String handlerName;
     private boolean registered = true;
-    private int numProcessed = 0;
-    private int numErrorsWhileProcessing = 0;
-    private int numToUnregisteredHandler = 0;
+    private final LongAdder numProcessed = new LongAdder();
+    private final LongAdder numErrorsWhileProcessing = new LongAdder();
+    private final LongAdder numToUnregisteredHandler = new LongAdder();
 	
-    private long totalProcessTime = 0;
+    private final LongAdder totalProcessTime = new LongAdder();
 	
-    private int numMessagesSentViaWalker = 0;
-    private int numMessagesSentViaUnicast = 0;
-    private int numErrorsSendingMessages = 0;
-    private int numErrorsPropagatingMessages = 0;
+    private final LongAdder numMessagesSentViaWalker = new LongAdder();
+    private final LongAdder numMessagesSentViaUnicast = new LongAdder();
+    private final LongAdder numErrorsSendingMessages = new LongAdder();
+    private final LongAdder numErrorsPropagatingMessages = new LongAdder();
 	
     private HashMap destinationMetrics = new HashMap();
 		
@@ -108,31 +109,31 @@ public class SrdiHandlerMetric implements DocumentSerializable {
     }
 
     public int getNumProcessed() {
-        return numProcessed;
+        return (int) numProcessed.sum();
     }
 
     public int getNumErrorsWhileProcessing() {
-        return numErrorsWhileProcessing;
+        return (int) numErrorsWhileProcessing.sum();
     }
 
     public long getTotalProcessTime() {
-        return totalProcessTime;
+        return totalProcessTime.sum();
     }
 
     public int getNumMessagesSentViaWalker() {
-        return numMessagesSentViaWalker;
+        return (int) numMessagesSentViaWalker.sum();
     }
 
     public int getNumMessagesSentViaUnicast() {
-        return numMessagesSentViaUnicast;
+        return (int) numMessagesSentViaUnicast.sum();
     }
 
     public int getNumErrorsSendingMessages() {
-        return numErrorsSendingMessages;
+        return (int) numErrorsSendingMessages.sum();
     }
 
     public int getNumErrorsPropagatingMessages() {
-        return numErrorsPropagatingMessages;
+        return (int) numErrorsPropagatingMessages.sum();
     }
 	
     @Override
@@ -152,32 +153,32 @@ public class SrdiHandlerMetric implements DocumentSerializable {
     }
 
     public void messageProcessed(long processTime) {
-        numProcessed++;
-        totalProcessTime += processTime;
+        numProcessed.increment();
+        totalProcessTime.add(processTime);
     }
 
     public void errorWhileProcessing() {
-        numErrorsWhileProcessing++;
+        numErrorsWhileProcessing.increment();
     }
 
     public void srdiToUnregisteredHandler() {
-        numToUnregisteredHandler++;
+        numToUnregisteredHandler.increment();
     }	
 
     public void messageSentViaWalker() {
-        numMessagesSentViaWalker++;
+        numMessagesSentViaWalker.increment();
     }
 
     public void messageSentViaUnicast() {
-        numMessagesSentViaUnicast++;
+        numMessagesSentViaUnicast.increment();
     }
 
     public void errorSendingMessage() {
-        numErrorsSendingMessages++;
+        numErrorsSendingMessages.increment();
     }
 
     public void errorPropagatingMessage() {
-        numErrorsPropagatingMessages++;
+        numErrorsPropagatingMessages.increment();
     }	
 
     SrdiDestinationMetric getSrdiDestinationMetric(EndpointAddress endpointAddress) {
@@ -211,29 +212,29 @@ public class SrdiHandlerMetric implements DocumentSerializable {
             DocumentSerializableUtilities.addString(element, "handlerName", handlerName);
         }
         DocumentSerializableUtilities.addBoolean(element, "registered", registered);
-        if (numProcessed != 0) {
-            DocumentSerializableUtilities.addInt(element, "numProcessed", numProcessed);
+        if (numProcessed.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numProcessed", (int) numProcessed.sum());
         }
-        if (numErrorsWhileProcessing != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsWhileProcessing", numErrorsWhileProcessing);
+        if (numErrorsWhileProcessing.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsWhileProcessing", (int) numErrorsWhileProcessing.sum());
         }
-        if (numToUnregisteredHandler != 0) {
-            DocumentSerializableUtilities.addInt(element, "numToUnregisteredHandler", numToUnregisteredHandler);
+        if (numToUnregisteredHandler.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numToUnregisteredHandler", (int) numToUnregisteredHandler.sum());
         }
-        if (totalProcessTime != 0) {
-            DocumentSerializableUtilities.addLong(element, "totalProcessTime", totalProcessTime);
+        if (totalProcessTime.sum() != 0) {
+            DocumentSerializableUtilities.addLong(element, "totalProcessTime", totalProcessTime.sum());
         }
-        if (numMessagesSentViaWalker != 0) {
-            DocumentSerializableUtilities.addInt(element, "numMessagesSentViaWalker", numMessagesSentViaWalker);
+        if (numMessagesSentViaWalker.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numMessagesSentViaWalker", (int) numMessagesSentViaWalker.sum());
         }
-        if (numMessagesSentViaUnicast != 0) {
-            DocumentSerializableUtilities.addInt(element, "numMessagesSentViaUnicast", numMessagesSentViaUnicast);
+        if (numMessagesSentViaUnicast.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numMessagesSentViaUnicast", (int) numMessagesSentViaUnicast.sum());
         }
-        if (numErrorsSendingMessages != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsSendingMessages", numErrorsSendingMessages);
+        if (numErrorsSendingMessages.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsSendingMessages", (int) numErrorsSendingMessages.sum());
         }
-        if (numErrorsPropagatingMessages != 0) {
-            DocumentSerializableUtilities.addInt(element, "numErrorsPropagatingMessages", numErrorsPropagatingMessages);
+        if (numErrorsPropagatingMessages.sum() != 0) {
+            DocumentSerializableUtilities.addInt(element, "numErrorsPropagatingMessages", (int) numErrorsPropagatingMessages.sum());
         }
 
         for (Iterator i = destinationMetrics.values().iterator(); i.hasNext();) {
@@ -254,21 +255,21 @@ public class SrdiHandlerMetric implements DocumentSerializable {
             } else if (tagName.equals("registered")) { 
                 registered = DocumentSerializableUtilities.getBoolean(childElement);
             } else if (tagName.equals("numProcessed")) { 
-                numProcessed = DocumentSerializableUtilities.getInt(childElement);
+                numProcessed.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsWhileProcessing")) { 
-                numErrorsWhileProcessing = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsWhileProcessing.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numToUnregisteredHandler")) { 
-                numToUnregisteredHandler = DocumentSerializableUtilities.getInt(childElement);
+                numToUnregisteredHandler.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("totalProcessTime")) { 
-                totalProcessTime = DocumentSerializableUtilities.getLong(childElement);
+                totalProcessTime.add(DocumentSerializableUtilities.getLong(childElement));
             } else if (tagName.equals("numMessagesSentViaWalker")) { 
-                numMessagesSentViaWalker = DocumentSerializableUtilities.getInt(childElement);
+                numMessagesSentViaWalker.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numMessagesSentViaUnicast")) { 
-                numMessagesSentViaUnicast = DocumentSerializableUtilities.getInt(childElement);
+                numMessagesSentViaUnicast.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsSendingMessages")) { 
-                numErrorsSendingMessages = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsSendingMessages.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("numErrorsPropagatingMessages")) { 
-                numErrorsPropagatingMessages = DocumentSerializableUtilities.getInt(childElement);
+                numErrorsPropagatingMessages.add(DocumentSerializableUtilities.getInt(childElement));
             } else if (tagName.equals("destination")) {
                 SrdiDestinationMetric srdiDestinationMetric = new SrdiDestinationMetric();
 
@@ -279,13 +280,13 @@ public class SrdiHandlerMetric implements DocumentSerializable {
     }
 
     public void mergeMetrics(SrdiHandlerMetric otherSrdiHandlerMetric) {
-        numProcessed += otherSrdiHandlerMetric.numProcessed;
-        numErrorsWhileProcessing += otherSrdiHandlerMetric.numErrorsWhileProcessing;
-        totalProcessTime += otherSrdiHandlerMetric.totalProcessTime;
-        numMessagesSentViaWalker += otherSrdiHandlerMetric.numMessagesSentViaWalker;
-        numMessagesSentViaUnicast += otherSrdiHandlerMetric.numMessagesSentViaUnicast;
-        numErrorsSendingMessages += otherSrdiHandlerMetric.numErrorsSendingMessages;
-        numErrorsPropagatingMessages += otherSrdiHandlerMetric.numErrorsPropagatingMessages;
+        numProcessed.add(otherSrdiHandlerMetric.numProcessed.sum());
+        numErrorsWhileProcessing.add(otherSrdiHandlerMetric.numErrorsWhileProcessing.sum());
+        totalProcessTime.add(otherSrdiHandlerMetric.totalProcessTime.sum());
+        numMessagesSentViaWalker.add(otherSrdiHandlerMetric.numMessagesSentViaWalker.sum());
+        numMessagesSentViaUnicast.add(otherSrdiHandlerMetric.numMessagesSentViaUnicast.sum());
+        numErrorsSendingMessages.add(otherSrdiHandlerMetric.numErrorsSendingMessages.sum());
+        numErrorsPropagatingMessages.add(otherSrdiHandlerMetric.numErrorsPropagatingMessages.sum());
         for (Iterator i = otherSrdiHandlerMetric.getDestinationMetrics(); i.hasNext();) {
             SrdiDestinationMetric otherSrdiDestinationMetric = (SrdiDestinationMetric) i.next();
             SrdiDestinationMetric ourSrdiDestinationMetric = getSrdiDestinationMetric(otherSrdiDestinationMetric.getPeerID());
@@ -298,4 +299,20 @@ public class SrdiHandlerMetric implements DocumentSerializable {
             ourSrdiDestinationMetric.mergeMetrics(otherSrdiDestinationMetric);
         }
     }
+
+    /**
+     * Merges the counts of a delta metric into this metric and resets the counts
+     * of the delta. Counts added to the delta concurrently are not lost, they are
+     * left in the delta for the next collection.
+     */
+    void drainMetrics(SrdiHandlerMetric otherSrdiHandlerMetric) {
+        numProcessed.add(otherSrdiHandlerMetric.numProcessed.sumThenReset());
+        numErrorsWhileProcessing.add(otherSrdiHandlerMetric.numErrorsWhileProcessing.sumThenReset());
+        numToUnregisteredHandler.add(otherSrdiHandlerMetric.numToUnregisteredHandler.sumThenReset());
+        totalProcessTime.add(otherSrdiHandlerMetric.totalProcessTime.sumThenReset());
+        numMessagesSentViaWalker.add(otherSrdiHandlerMetric.numMessagesSentViaWalker.sumThenReset());
+        numMessagesSentViaUnicast.add(otherSrdiHandlerMetric.numMessagesSentViaUnicast.sumThenReset());
+        numErrorsSendingMessages.add(otherSrdiHandlerMetric.numErrorsSendingMessages.sumThenReset());
+        numErrorsPropagatingMessages.add(otherSrdiHandlerMetric.numErrorsPropagatingMessages.sumThenReset());
+    }
 }
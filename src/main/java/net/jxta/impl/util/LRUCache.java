@@ -15,7 +15,9 @@
  */
 package net.jxta.impl.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -79,6 +81,20 @@ public class LRUCache<K, V> {
         return null;
     }
 
+    /**
+     * returns a copy of the objects in cache, the most recently used first
+     *
+     * @return the objects in cache
+     */
+    public synchronized List<V> values() {
+        List<V> values = new ArrayList<V>(currentSize);
+
+        for (CacheNode node = first; node != null; node = node.next) {
+            values.add(node.value);
+        }
+        return values;
+    }
+
     public synchronized boolean contains(K key) {
         return nodes.keySet().contains(key);
     }
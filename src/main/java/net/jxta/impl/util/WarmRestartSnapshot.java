@@ -0,0 +1,324 @@
+package net.jxta.impl.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.logging.Logger;
+
+import net.jxta.document.Advertisement;
+import net.jxta.document.AdvertisementFactory;
+import net.jxta.document.MimeMediaType;
+import net.jxta.document.StructuredDocumentFactory;
+import net.jxta.document.XMLDocument;
+import net.jxta.logging.Logging;
+import net.jxta.peergroup.PeerGroup;
+
+/**
+ * Saves the soft state of a peer group service when the group stops, so that
+ * a restarted peer can reload it instead of rebuilding it from the network.
+ * <p/>
+ * Snapshots are optional and disabled by default, see
+ * {@link #ENABLED_SYSPROP}. Each snapshot is a file in the store of the peer
+ * group. It is read at most once: it is deleted when loaded, and ignored when
+ * older than {@link #MAX_AGE_SYSPROP}. The entries of a snapshot carry their
+ * own expiration, which the services check when they reload them.
+ */
+public final class WarmRestartSnapshot {
+
+    private final static transient Logger LOG = Logger.getLogger(WarmRestartSnapshot.class.getName());
+
+    /**
+     * If {@code true} the services save their state when they stop and
+     * reload it when they start.
+     */
+    public static final String ENABLED_SYSPROP = "net.jxta.impl.util.WarmRestartSnapshot.enabled";
+
+    /**
+     * Snapshots older than this many seconds are discarded.
+     */
+    public static final String MAX_AGE_SYSPROP = "net.jxta.impl.util.WarmRestartSnapshot.maxAge";
+
+    static final long DEFAULT_MAX_AGE = 10 * TimeUtils.AMINUTE;
+
+    private static final int MAGIC = 0x4A585753;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The longest string a snapshot may contain, in bytes. Advertisements
+     * and index entries are far smaller; a longer string means the snapshot
+     * is corrupted.
+     */
+    static final int MAX_STRING_LENGTH = 1024 * 1024;
+
+    private static final String SNAPSHOT_DIRECTORY = "snapshot";
+
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    /**
+     * Writes the state of a service.
+     */
+    public interface Writer {
+
+        /**
+         * @param out where to write the state.
+         * @throws IOException if the state could not be written.
+         */
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Reads the state of a service.
+     */
+    public interface Reader {
+
+        /**
+         * @param in where to read the state from.
+         * @param savedAt when the snapshot was saved, in absolute milliseconds.
+         * @throws IOException if the state could not be read.
+         */
+        void read(DataInput in, long savedAt) throws IOException;
+    }
+
+    private WarmRestartSnapshot() {
+        // never instantiated
+    }
+
+    /**
+     * @return {@code true} if snapshots are saved and reloaded.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_SYSPROP);
+    }
+
+    /**
+     * @return the maximum age of a snapshot which may be reloaded, in milliseconds.
+     */
+    public static long getMaxAge() {
+        Long seconds = Long.getLong(MAX_AGE_SYSPROP);
+
+        return (null == seconds) ? DEFAULT_MAX_AGE : seconds * TimeUtils.ASECOND;
+    }
+
+    /**
+     * Saves a snapshot, replacing the previous one of the same name.
+     *
+     * @param group the group of the service.
+     * @param name the name of the snapshot, unique in the group.
+     * @param writer writes the state of the service.
+     * @return {@code true} if the snapshot was saved.
+     */
+    public static boolean save(PeerGroup group, String name, Writer writer) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        File file = getFile(group, name);
+
+        if (null == file) {
+            return false;
+        }
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Could not create " + file.getParentFile());
+            }
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(TimeUtils.timeNow());
+                writer.write(out);
+            } finally {
+                out.close();
+            }
+
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not replace " + file);
+            }
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp + " to " + file);
+            }
+
+            Logging.logCheckedFine(LOG, "Saved snapshot ", file);
+            return true;
+
+        } catch (IOException failed) {
+
+            Logging.logCheckedWarning(LOG, "Could not save snapshot ", file, "\n", failed);
+            temp.delete();
+            return false;
+
+        } catch (RuntimeException failed) {
+
+            Logging.logCheckedWarning(LOG, "Could not save snapshot ", file, "\n", failed);
+            temp.delete();
+            return false;
+
+        }
+    }
+
+    /**
+     * Loads and deletes a snapshot.
+     *
+     * @param group the group of the service.
+     * @param name the name of the snapshot, unique in the group.
+     * @param reader reads the state of the service.
+     * @return {@code true} if a snapshot was found and read.
+     */
+    public static boolean load(PeerGroup group, String name, Reader reader) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        File file = getFile(group, name);
+
+        if ((null == file) || !file.isFile()) {
+            return false;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            try {
+                if ((MAGIC != in.readInt()) || (VERSION != in.readInt())) {
+                    Logging.logCheckedWarning(LOG, "Ignoring unknown snapshot format in ", file);
+                    return false;
+                }
+
+                long savedAt = in.readLong();
+                long age = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), savedAt);
+
+                if ((age < 0) || (age > getMaxAge())) {
+                    Logging.logCheckedFine(LOG, "Ignoring snapshot ", file, " saved ", age, "ms ago");
+                    return false;
+                }
+
+                reader.read(in, savedAt);
+
+                Logging.logCheckedFine(LOG, "Loaded snapshot ", file, " saved ", age, "ms ago");
+                return true;
+            } finally {
+                in.close();
+            }
+
+        } catch (IOException failed) {
+
+            Logging.logCheckedWarning(LOG, "Could not load snapshot ", file, "\n", failed);
+            return false;
+
+        } catch (RuntimeException failed) {
+
+            // The snapshot is read from disk, it may be anything.
+            Logging.logCheckedWarning(LOG, "Could not load snapshot ", file, "\n", failed);
+            return false;
+
+        } finally {
+
+            // A snapshot describes one shutdown, never reuse it.
+            file.delete();
+
+        }
+    }
+
+    /**
+     * Writes a string which may be longer than {@link DataOutput#writeUTF(String)} allows.
+     *
+     * @param out where to write.
+     * @param text the string.
+     * @throws IOException if the string could not be written.
+     */
+    public static void writeString(DataOutput out, String text) throws IOException {
+        byte[] bytes = text.getBytes("UTF-8");
+
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new IOException("String too long for a snapshot : " + bytes.length + " bytes");
+        }
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in where to read from.
+     * @return the string.
+     * @throws IOException if the string could not be read or the snapshot is corrupted.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+
+        if ((length < 0) || (length > MAX_STRING_LENGTH)) {
+            throw new IOException("Corrupted snapshot : string of " + length + " bytes");
+        }
+
+        byte[] bytes = new byte[length];
+
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Writes an advertisement as an XML document.
+     *
+     * @param out where to write.
+     * @param adv the advertisement.
+     * @throws IOException if the advertisement could not be written.
+     */
+    public static void writeAdvertisement(DataOutput out, Advertisement adv) throws IOException {
+        writeString(out, adv.getDocument(MimeMediaType.XMLUTF8).toString());
+    }
+
+    /**
+     * Reads an advertisement written by {@link #writeAdvertisement(DataOutput, Advertisement)}.
+     *
+     * @param in where to read from.
+     * @return the advertisement.
+     * @throws IOException if the advertisement could not be read.
+     */
+    public static Advertisement readAdvertisement(DataInput in) throws IOException {
+        String text = readString(in);
+
+        try {
+
+            XMLDocument<?> asDoc = (XMLDocument<?>) StructuredDocumentFactory.newStructuredDocument(MimeMediaType.XMLUTF8, new StringReader(text));
+
+            return AdvertisementFactory.newAdvertisement(asDoc);
+
+        } catch (RuntimeException failed) {
+
+            throw new IOException("Could not read advertisement", failed);
+
+        }
+    }
+
+    /**
+     * @return the snapshot file, or {@code null} if the group has no store on the file system.
+     */
+    private static File getFile(PeerGroup group, String name) {
+        URI storeHome = group.getStoreHome();
+
+        if ((null == storeHome) || !"file".equalsIgnoreCase(storeHome.getScheme())) {
+            return null;
+        }
+
+        File directory = new File(new File(new File(storeHome), SNAPSHOT_DIRECTORY), group.getPeerGroupID().getUniqueValue().toString());
+
+        return new File(directory, name.replaceAll("[^A-Za-z0-9._-]", "_") + SNAPSHOT_EXTENSION);
+    }
+}
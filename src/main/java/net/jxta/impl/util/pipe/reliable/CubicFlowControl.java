@@ -0,0 +1,269 @@
+package net.jxta.impl.util.pipe.reliable;
+
+import net.jxta.impl.util.TimeUtils;
+
+/**
+ * A congestion control module with TCP style slow start and fast recovery
+ * and the CUBIC window growth function (RFC 8312) for congestion avoidance.
+ * <p/>
+ * The window is counted in packets (messages). Below the slow start
+ * threshold the window grows by one packet per acknowledged packet. Above it
+ * the window follows a cubic function of the time since the last loss,
+ * centered on the window at which that loss happened, but never grows
+ * slower than an equivalent Reno connection would.
+ * <p/>
+ * A hole in the selective acknowledgement list is treated as a loss: the
+ * window is reduced once per loss episode and the holes are retransmitted
+ * immediately. A retry timeout restarts slow start from the minimum window.
+ */
+public class CubicFlowControl extends FlowControl {
+
+    /**
+     * The initial and minimum rwindow.
+     */
+    static final int MIN_RWINDOW = 2;
+
+    /**
+     * The default initial slow start threshold.
+     */
+    static final int DEFAULT_SSTHRESH = 20;
+
+    /**
+     * The CUBIC scaling constant in packets per second cubed.
+     */
+    static final double C = 0.4;
+
+    /**
+     * The multiplicative window decrease factor.
+     */
+    static final double BETA = 0.7;
+
+    /**
+     * The congestion window in packets. Fractional so that sub-packet growth
+     * per ack accumulates.
+     */
+    private double cwnd = MIN_RWINDOW;
+
+    /**
+     * The slow start threshold in packets.
+     */
+    private int ssthresh;
+
+    /**
+     * The window at which the last loss happened.
+     */
+    private double wMax = 0;
+
+    /**
+     * The {@link #wMax} before the last loss. Used for fast convergence.
+     */
+    private double lastWMax = 0;
+
+    /**
+     * The time in seconds the cubic function takes to grow back to
+     * {@link #wMax}.
+     */
+    private double k = 0;
+
+    /**
+     * Absolute time at which the current congestion avoidance epoch started,
+     * or {@code 0} if no epoch is in progress.
+     */
+    private long epochStart = 0;
+
+    /**
+     * The highest sequence number acknowledged so far.
+     */
+    private int highestACKed = 0;
+
+    /**
+     * Holes at or below this sequence number belong to the loss episode
+     * which was already accounted for.
+     */
+    private int recoverUntil = 0;
+
+    /**
+     * The number of packets acknowledged by the current ack message.
+     */
+    private int numberACKed = 0;
+
+    /**
+     * If {@code true} the current ack message reported a new loss.
+     */
+    private boolean newLoss = false;
+
+    /**
+     * Current recommended rwindow.
+     */
+    private volatile int rwindow = MIN_RWINDOW;
+
+    /**
+     * Constructs a cubic flow control module with the default initial slow
+     * start threshold.
+     */
+    public CubicFlowControl() {
+        this(DEFAULT_SSTHRESH);
+    }
+
+    /**
+     * @param ssthresh The initial slow start threshold in packets.
+     */
+    public CubicFlowControl(int ssthresh) {
+        this.ssthresh = Math.max(ssthresh, MIN_RWINDOW);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRwindow() {
+        return rwindow;
+    }
+
+    /**
+     * Returns the current slow start threshold.
+     *
+     * @return the slow start threshold in packets.
+     */
+    int getSsthresh() {
+        return ssthresh;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void ackEventBegin() {
+        numberACKed = 0;
+        newLoss = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void packetACKed(int seqnum) {
+        numberACKed++;
+        highestACKed = Math.max(highestACKed, seqnum);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void packetMissing(int seqnum) {
+        if (seqnum > recoverUntil) {
+            newLoss = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int ackEventEnd(int rQSize, long aveRTT, long lastRTT) {
+
+        if (newLoss) {
+            // Fast recovery. Everything sent so far belongs to this episode.
+            recoverUntil = highestACKed + (int) Math.ceil(cwnd);
+            reduce();
+            cwnd = ssthresh;
+        } else if (numberACKed > 0) {
+            if (cwnd < ssthresh) {
+                // Slow start
+                cwnd = Math.min(cwnd + numberACKed, ssthresh);
+            } else {
+                congestionAvoidance(aveRTT);
+            }
+        }
+
+        return updateRwindow(rQSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Restart from slow start with the minimum window.
+     */
+    @Override
+    public void retransmitTimeout() {
+        recoverUntil = highestACKed + (int) Math.ceil(cwnd);
+        reduce();
+        cwnd = MIN_RWINDOW;
+        rwindow = MIN_RWINDOW;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isFastRetransmit() {
+        return true;
+    }
+
+    /**
+     * Remember the window at which the loss happened and lower the slow start
+     * threshold.
+     */
+    private void reduce() {
+        // Fast convergence: release bandwidth to new flows by remembering a
+        // lower wMax if we lost before reaching the previous one.
+        if (cwnd < lastWMax) {
+            wMax = cwnd * (1.0 + BETA) / 2.0;
+        } else {
+            wMax = cwnd;
+        }
+        lastWMax = cwnd;
+        ssthresh = Math.max((int) (cwnd * BETA), MIN_RWINDOW);
+        epochStart = 0;
+    }
+
+    /**
+     * Grow the window along the cubic function.
+     *
+     * @param aveRTT the latest estimate of the average RTT.
+     */
+    private void congestionAvoidance(long aveRTT) {
+        long now = TimeUtils.timeNow();
+        long rtt = Math.max(aveRTT, 1);
+
+        if (0 == epochStart) {
+            epochStart = now;
+            if (cwnd < wMax) {
+                k = Math.cbrt((wMax - cwnd) / C);
+            } else {
+                k = 0;
+                wMax = cwnd;
+            }
+        }
+
+        double t = TimeUtils.toRelativeTimeMillis(now, epochStart) / 1000.0;
+
+        // The window we want to reach one RTT from now.
+        double target = C * Math.pow(t + rtt / 1000.0 - k, 3) + wMax;
+
+        // The window an equivalent Reno connection would have reached.
+        double reno = wMax * BETA + (3.0 * (1.0 - BETA) / (1.0 + BETA)) * (t * 1000.0 / rtt);
+
+        target = Math.max(target, reno);
+
+        if (target > cwnd) {
+            cwnd += Math.min((target - cwnd) / cwnd, 1.0) * numberACKed;
+        } else {
+            cwnd += 0.01 * numberACKed / cwnd;
+        }
+    }
+
+    /**
+     * Clamp the window to the remote queue size and publish it.
+     *
+     * @param rQSize the last known value of the remote queue size.
+     * @return the new rwindow.
+     */
+    private int updateRwindow(int rQSize) {
+        cwnd = Math.max(Math.min(cwnd, rQSize), MIN_RWINDOW);
+        rwindow = (int) cwnd;
+
+        return rwindow;
+    }
+}
@@ -66,6 +66,56 @@ package net.jxta.impl.util.pipe.reliable;
 
 public abstract class FlowControl {
 
+    /**
+     * The system property used to choose the default flow control module
+     * returned by {@link #newFlowControl(String, int)}.
+     */
+    public static final String FLOW_CONTROL_PROPERTY = "net.jxta.reliable.flowcontrol";
+
+    /**
+     * Name of the {@link FixedFlowControl} module.
+     */
+    public static final String FIXED = "fixed";
+
+    /**
+     * Name of the {@link AdaptiveFlowControl} module.
+     */
+    public static final String ADAPTIVE = "adaptive";
+
+    /**
+     * Name of the {@link CubicFlowControl} module.
+     */
+    public static final String CUBIC = "cubic";
+
+    /**
+     * Creates a new flow control module.
+     *
+     * @param name The name of the module, one of {@link #FIXED},
+     * {@link #ADAPTIVE} or {@link #CUBIC}. If {@code null} then the value of
+     * the {@link #FLOW_CONTROL_PROPERTY} system property is used, and failing
+     * that {@link #FIXED}.
+     * @param windowSize The configured window size. For {@link #FIXED} this is
+     * the maximum rwindow, for {@link #CUBIC} the initial slow start
+     * threshold. Ignored by {@link #ADAPTIVE}.
+     * @return the new flow control module.
+     * @throws IllegalArgumentException if the name is not recognized.
+     */
+    public static FlowControl newFlowControl(String name, int windowSize) {
+        if (null == name) {
+            name = System.getProperty(FLOW_CONTROL_PROPERTY, FIXED);
+        }
+
+        if (FIXED.equalsIgnoreCase(name)) {
+            return new FixedFlowControl(windowSize);
+        } else if (ADAPTIVE.equalsIgnoreCase(name)) {
+            return new AdaptiveFlowControl();
+        } else if (CUBIC.equalsIgnoreCase(name)) {
+            return new CubicFlowControl(windowSize);
+        }
+
+        throw new IllegalArgumentException("Unknown flow control : " + name);
+    }
+
     /**
      * Returns the rwindow size that this flow control module suggests to use
      * at this point in time.
@@ -106,4 +156,22 @@ public abstract class FlowControl {
      */
 
     public abstract int ackEventEnd(int rQSize, long aveRTT, long lastRTT);
+
+    /**
+     * Invoked when unacknowledged packets had to be retransmitted because
+     * the retry timeout expired. The new rwindow is read with
+     * {@link #getRwindow()}.
+     */
+    public void retransmitTimeout() {}
+
+    /**
+     * If {@code true} then the holes reported by an ack message are
+     * retransmitted immediately rather than waiting for the retry timeout.
+     *
+     * @return {@code true} if holes should be retransmitted as soon as they
+     * are reported.
+     */
+    public boolean isFastRetransmit() {
+        return false;
+    }
 }
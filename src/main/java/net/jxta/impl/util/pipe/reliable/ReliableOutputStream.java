@@ -66,6 +66,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -80,7 +81,7 @@ import net.jxta.endpoint.WireFormatMessage;
 import net.jxta.endpoint.WireFormatMessageFactory;
 import net.jxta.impl.membership.pse.PSEUtils;
 import net.jxta.impl.util.TimeUtils;
-import net.jxta.impl.util.threads.SelfCancellingTask;
+import net.jxta.impl.util.threads.HashedTimerWheel;
 import net.jxta.logging.Logging;
 import net.jxta.peergroup.PeerGroup;
 
@@ -295,6 +296,12 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
          */
         long sentAt;
 
+        /**
+         * The retransmission deadline of this msg, cancelled when it is
+         * acknowledged.
+         */
+        HashedTimerWheel.Timeout deadline;
+
         /**
          * Constructor for the RetrQElt object
          *
@@ -313,10 +320,21 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
     /**
      * The collection of messages available for re-transmission.
      */
-    protected final List<RetrQElt> retrQ = new ArrayList<RetrQElt>();
+    protected final RetransmitQueue<RetrQElt> retrQ = new RetransmitQueue<RetrQElt>();
 
     private ScheduledExecutorService executor;
 
+    /**
+     * Schedules the retransmission deadlines. Normally shared by all of the
+     * streams of the peer group.
+     */
+    private final HashedTimerWheel timerWheel;
+
+    /**
+     * If {@code true} then we created {@link #timerWheel} and must stop it.
+     */
+    private final boolean ownTimerWheel;
+
     /**
      * Constructor for the ReliableOutputStream object
      *
@@ -354,6 +372,14 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
         this.outgoing = outgoing;
         this.executor = executor;
 
+        if ((null != group) && (null != group.getTaskManager())) {
+            this.timerWheel = group.getTaskManager().getTimerWheel();
+            this.ownTimerWheel = false;
+        } else {
+            this.timerWheel = new HashedTimerWheel("Reliable Retransmit Timer", executor);
+            this.ownTimerWheel = true;
+        }
+
         String minrto = System.getProperty( "net.jxta.reliable.minrto" );
         if( null != minrto ){
         	this.minRTO = Integer.parseInt( minrto );
@@ -458,10 +484,22 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
 
         // Clear the retry queue. Remote side doesn't care.
         synchronized (retrQ) {
+            for (RetrQElt retrQElt : retrQ) {
+                cancelDeadline(retrQElt);
+            }
             retrQ.clear();
             retrQ.notifyAll();
         }
 
+        Retransmitter current = retransmitter;
+        if (null != current) {
+            current.stop();
+        }
+
+        if (ownTimerWheel) {
+            timerWheel.stop();
+        }
+
         // Clear the write queue. Remote side doesn't care.
         synchronized (writeLock) {
             writeCount = 0;
@@ -621,7 +659,8 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
             Logging.logCheckedFine(LOG, "Reliable WRITE : seqn#", sequenceNumber, " length=", len);
 
             // place copy on retransmission queue
-            retrQ.add(retrQel);
+            retrQ.add(sequenceToUse, retrQel);
+            armDeadline(retrQel);
 
             Logging.logCheckedFine(LOG, "Retrans Enqueue added seqn#", sequenceNumber, " retrQ.size()=", retrQ.size());
 
@@ -677,6 +716,17 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
         return sequenceNumber.get();
     }
 
+    /**
+     * Returns the number of messages which have been retransmitted so far.
+     *
+     * @return The number of retransmissions.
+     */
+    public int getRetransmitCount() {
+        Retransmitter current = retransmitter;
+
+        return (null == current) ? 0 : current.getRetransCount();
+    }
+
     /**
      * Gets the queueFull attribute of the ReliableOutputStream object
      *
@@ -872,6 +922,7 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
         int rttCalcSeqnum = -1;
         long fallBackDt = 0;
         int fallBackSeqnum = -1;
+        int retrans = 0;
 
         // remove acknowledged messages from retrans Q.
         synchronized (retrQ) {
@@ -887,9 +938,10 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                 dumpRETRQ.append("\tRETRQ (size=").append(retrQ.size()).append(")");
                 dumpRETRQ.append(" : ");
 
-                for (int y = 0; y < retrQ.size(); y++) {
-                    if (0 != y) dumpRETRQ.append(", ");
-                    RetrQElt r = retrQ.get(y);
+                boolean first = true;
+                for (RetrQElt r : retrQ) {
+                    if (!first) dumpRETRQ.append(", ");
+                    first = false;
                     dumpRETRQ.append(r.seqnum);
                 }
 
@@ -917,6 +969,7 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                 }
                 // Acknowledged
                 eachRetryQueueEntry.remove();
+                cancelDeadline(retrQElt);
 
                 // Update RTT, RTO. Use only those that where acked
                 // w/o retrans otherwise the number may be phony (ack
@@ -971,78 +1024,74 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
 
             Logging.logCheckedFine(LOG, "remote IQ free space = ", mrrIQFreeSpace, " remote avg IQ occupancy = ", aveIQ);
 
-            int retrans = 0;
-
             if (sackList.length > 0) {
-                Iterator<RetrQElt> eachRetrQElement = retrQ.iterator();
-                int currentSACK = 0;
+                int highestSACK = seqnum;
 
-                while (eachRetrQElement.hasNext()) {
-                    RetrQElt retrQElt = eachRetrQElement.next();
+                // Each selectively acknowledged message is looked up by its
+                // sequence number rather than by walking the retrQ.
+                for (int sacked : sackList) {
+                    highestSACK = Math.max(highestSACK, sacked);
 
-                    while (sackList[currentSACK] < retrQElt.seqnum) {
-                        currentSACK++;
-                        if (currentSACK == sackList.length) {
-                            break;
-                        }
-                    }
-                    if (currentSACK == sackList.length) {
-                        break;
+                    RetrQElt retrQElt = retrQ.remove(sacked);
+
+                    if (null == retrQElt) {
+                        // Already acknowledged.
+                        continue;
                     }
-                    if (sackList[currentSACK] == retrQElt.seqnum) {
-                        fc.packetACKed(retrQElt.seqnum);
-                        numberACKed++;
-                        eachRetrQElement.remove();
-
-                        // Update RTT, RTO. Use only those that where acked w/o retrans
-                        // otherwise the number is completely phony.
-                        // Also, we keep the worst of the bunch we encounter.
-                        long enqueuetime = retrQElt.enqueuedAt;
-                        long dt = TimeUtils.toRelativeTimeMillis(lastACKTime, enqueuetime);
-
-                        // Update RTT, RTO
-                        if (retrQElt.marked == 0) {
-                            if (dt > rttCalcDt) {
-                                rttCalcDt = dt;
-                                rttCalcSeqnum = retrQElt.seqnum;
-                            }
-                        } else {
-                            // In case we find no good candidate, make
-                            // a guess by dividing by the number of attempts
-                            // and keep the worst of them too. Since we
-                            // know it may be too short, we will not use it
-                            // if shortens rtt.
-                            dt /= (retrQElt.marked + 1);
-                            if (dt > fallBackDt) {
-                                fallBackDt = dt;
-                                fallBackSeqnum = retrQElt.seqnum;
-                            }
+
+                    fc.packetACKed(retrQElt.seqnum);
+                    numberACKed++;
+                    cancelDeadline(retrQElt);
+
+                    // Update RTT, RTO. Use only those that where acked w/o retrans
+                    // otherwise the number is completely phony.
+                    // Also, we keep the worst of the bunch we encounter.
+                    long enqueuetime = retrQElt.enqueuedAt;
+                    long dt = TimeUtils.toRelativeTimeMillis(lastACKTime, enqueuetime);
+
+                    // Update RTT, RTO
+                    if (retrQElt.marked == 0) {
+                        if (dt > rttCalcDt) {
+                            rttCalcDt = dt;
+                            rttCalcSeqnum = retrQElt.seqnum;
+                        }
+                    } else {
+                        // In case we find no good candidate, make
+                        // a guess by dividing by the number of attempts
+                        // and keep the worst of them too. Since we
+                        // know it may be too short, we will not use it
+                        // if shortens rtt.
+                        dt /= (retrQElt.marked + 1);
+                        if (dt > fallBackDt) {
+                            fallBackDt = dt;
+                            fallBackSeqnum = retrQElt.seqnum;
                         }
+                    }
 
-                        Logging.logCheckedFine(LOG, "SACKD SEQN = ", retrQElt.seqnum);
+                    Logging.logCheckedFine(LOG, "SACKD SEQN = ", retrQElt.seqnum);
+                }
 
-                        // GC this stuff
-                        retrQElt = null;
+                // Retransmit? Only if there is a hole in the selected
+                // acknowledgement list. Otherwise let RTO deal.
 
-                    } else {
-                        // Retransmit? Only if there is a hole in the selected
-                        // acknowledgement list. Otherwise let RTO deal.
-
-                        // Given that this SACK acknowledged messages still
-                        // in the retrQ:
-                        // seqnum is the max consectively SACKD message.
-                        // seqnum < retrQElt.seqnum means a message has not reached
-                        // receiver. EG: sacklist == 10,11,13 seqnum == 11
-                        // We retransmit 12.
-                        if (seqnum < retrQElt.seqnum) {
-
-                            fc.packetMissing(retrQElt.seqnum);
+                // Given that this SACK acknowledged messages still
+                // in the retrQ:
+                // seqnum is the max consectively SACKD message.
+                // The messages still in the retrQ below the highest SACK have
+                // not reached the receiver. EG: sacklist == 10,11,13 seqnum == 11
+                // We retransmit 12.
+                RetrQElt oldest = retrQ.peekFirst();
+
+                if (null != oldest) {
+                    for (int hole = Math.max(oldest.seqnum, seqnum + 1); hole < highestSACK; hole++) {
+                        if (null != retrQ.get(hole)) {
+
+                            fc.packetMissing(hole);
                             retrans++;
 
-                            Logging.logCheckedFine(LOG, "RETR: Fill hole, SACK, seqn#", retrQElt.seqnum, ", Window =", retrans);
+                            Logging.logCheckedFine(LOG, "RETR: Fill hole, SACK, seqn#", hole, ", Window =", retrans);
 
                         }
-
                     }
                 }
 
@@ -1065,13 +1114,55 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                 // get fc to recompute rwindow
                 rwindow = fc.ackEventEnd(rmaxQSize, aveRTT, fallBackDt);
             }
+            // No need to run the retransmit check: the remaining messages
+            // still have their retransmission deadlines.
             retrQ.notifyAll();
-            if ( retransmitter != null ) {
-                retransmitter.doRetransmitCheck();
+        }
+
+        // Fill the holes now rather than waiting for RTO if the flow control
+        // module asks for it. The holes are at the head of the retrQ.
+        if ((retrans > 0) && fc.isFastRetransmit() && (null != retransmitter)) {
+            int retransed = retransmit(retrans, TimeUtils.timeNow());
+
+            if (retransed > 0) {
+                sackRetransTime = TimeUtils.timeNow();
+                retransmitter.nretransmitted.addAndGet(retransed);
             }
         }
     }
 
+    /**
+     * Schedule the retransmission deadline of a message one RTO after it was
+     * sent. {@code retrQ} must be held.
+     *
+     * @param retrQElt the message.
+     */
+    private void armDeadline(RetrQElt retrQElt) {
+        Retransmitter current = retransmitter;
+
+        if ((null != current) && !current.stopped) {
+            try {
+                retrQElt.deadline = timerWheel.schedule(current.deadlineExpired, RTO, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException stopped) {
+                // The group is shutting down. The periodic check, if any, will deal.
+                retrQElt.deadline = null;
+            }
+        }
+    }
+
+    /**
+     * Cancel the retransmission deadline of a message. {@code retrQ} must be
+     * held.
+     *
+     * @param retrQElt the message.
+     */
+    private void cancelDeadline(RetrQElt retrQElt) {
+        if (null != retrQElt.deadline) {
+            retrQElt.deadline.cancel();
+            retrQElt.deadline = null;
+        }
+    }
+
     /**
      * retransmit unacknowledged  messages
      *
@@ -1092,9 +1183,11 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
 
             Logging.logCheckedFine(LOG, "Number of messages pending retransmit =", numberToRetrans);
 
+            Iterator<RetrQElt> eachRetrQElt = retrQ.iterator();
+
             for (int j = 0; j < numberToRetrans; j++) {
 
-                RetrQElt r = retrQ.get(j);
+                RetrQElt r = eachRetrQElt.next();
 
                 // Mark message as retransmission
                 // need to know if a msg was retr or not for RTT eval
@@ -1150,7 +1243,14 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                     sending = sending.clone();
                     sending.replaceMessageElement(Defs.NAMESPACE, RETELT);
                     if (outgoing.send(sending)) {
-                        r.sentAt = TimeUtils.timeNow();
+                        synchronized (retrQ) {
+                            r.sentAt = TimeUtils.timeNow();
+                            // Still unacknowledged? Push back its deadline.
+                            if (retrQ.get(r.seqnum) == r) {
+                                cancelDeadline(r);
+                                armDeadline(r);
+                            }
+                        }
                         mrrIQFreeSpace--;
                         // assume we have now taken a slot
                         retransmitted++;
@@ -1180,8 +1280,29 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
     private class Retransmitter {
 
         int nAtThisRTO = 0;
-        volatile int nretransmitted = 0;
-        private volatile SelfCancellingTask currentTask;
+        final AtomicInteger nretransmitted = new AtomicInteger(0);
+
+        /**
+         * The next periodic check.
+         */
+        private HashedTimerWheel.Timeout periodicCheck;
+
+        /**
+         * If {@code true} then an immediate check has been submitted but has
+         * not started yet. Further requests are coalesced into it.
+         */
+        private final AtomicBoolean checkPending = new AtomicBoolean(false);
+
+        private volatile boolean stopped = false;
+
+        /**
+         * Runs a check when the deadline of any message expires.
+         */
+        final Runnable deadlineExpired = new Runnable() {
+            public void run() {
+                doRetransmitCheck();
+            }
+        };
 
         /**
          * Constructor for the Retransmitter object
@@ -1198,7 +1319,7 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
          * @return The retransCount value
          */
         public int getRetransCount() {
-            return nretransmitted;
+            return nretransmitted.get();
         }
         private void doRetransmitCheck()
         {
@@ -1227,12 +1348,41 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                 return;
             }
 
-            if(currentTask != null && delay > 0) {
-                currentTask.cancel();
+            if (0 == delay) {
+                if (checkPending.compareAndSet(false, true)) {
+                    executor.execute(new RetransmitTask());
+                }
+                return;
             }
 
-            currentTask = new RetransmitTask();
-            executor.schedule(currentTask, delay, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+
+                if (null != periodicCheck) {
+                    periodicCheck.cancel();
+                }
+
+                try {
+                    periodicCheck = timerWheel.schedule(new RetransmitTask(), delay, TimeUnit.MILLISECONDS);
+                } catch (IllegalStateException shutdown) {
+                    Logging.logCheckedFine(LOG, "Timer stopped, no further retransmit checks for ", outgoing);
+                    periodicCheck = null;
+                }
+            }
+        }
+
+        /**
+         * Cancels the periodic check.
+         */
+        private synchronized void stop() {
+            stopped = true;
+
+            if (null != periodicCheck) {
+                periodicCheck.cancel();
+                periodicCheck = null;
+            }
         }
 
         /**
@@ -1269,7 +1419,7 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                         sinceLastACK = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), lastACKTime);
 
                         if (!retrQ.isEmpty()) {
-                            RetrQElt elt = retrQ.get(0);
+                            RetrQElt elt = retrQ.peekFirst();
 
                             oldestInQueueWait = TimeUtils.toRelativeTimeMillis(TimeUtils.timeNow(), elt.enqueuedAt);
                         } else {
@@ -1308,7 +1458,16 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
                         int retransed = retransmit(rwindow, TimeUtils.timeNow());
 
                         // Total
-                        nretransmitted += retransed;
+                        nretransmitted.addAndGet(retransed);
+
+                        // Let the flow control module react to the loss.
+                        if (retransed > 0) {
+                            synchronized (retrQ) {
+                                fc.retransmitTimeout();
+                                rwindow = fc.getRwindow();
+                            }
+                        }
+
                         // number at this RTO
                         nAtThisRTO += retransed;
                         // See if real wait is too long and queue is non-empty
@@ -1344,12 +1503,14 @@ public class ReliableOutputStream extends OutputStream implements Incoming {
             }
         }
 
-        private class RetransmitTask extends SelfCancellingTask
+        private class RetransmitTask implements Runnable
         {
-            @Override
-            public void execute()
+            public void run()
             {
-                Retransmitter.this.run();
+                checkPending.set(false);
+                if (!stopped) {
+                    Retransmitter.this.run();
+                }
             }
         }
     }
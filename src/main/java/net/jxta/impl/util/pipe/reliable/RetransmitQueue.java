@@ -0,0 +1,245 @@
+package net.jxta.impl.util.pipe.reliable;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The messages awaiting acknowledgement, indexed by sequence number.
+ * <p/>
+ * Entries are kept in a ring buffer covering the sequence numbers from the
+ * oldest unacknowledged message to the most recently sent one, so looking up
+ * or removing an acknowledged message is O(1) regardless of how many
+ * messages are outstanding, and iteration is always in sequence order.
+ * <p/>
+ * Not synchronized. Callers must provide their own locking.
+ *
+ * @param <E> the type of the queued entries.
+ */
+public class RetransmitQueue<E> implements Iterable<E> {
+
+    /**
+     * The ring. Slot {@code seqnum & (slots.length - 1)} holds the entry for
+     * {@code seqnum} if it is within {@code [firstSeqnum, nextSeqnum)}.
+     */
+    private Object[] slots;
+
+    /**
+     * The lowest sequence number which may still be present.
+     */
+    private int firstSeqnum = 0;
+
+    /**
+     * One more than the highest sequence number added.
+     */
+    private int nextSeqnum = 0;
+
+    /**
+     * The number of entries present.
+     */
+    private int size = 0;
+
+    /**
+     * Incremented on every structural modification.
+     */
+    private int modCount = 0;
+
+    /**
+     * Creates a queue with room for 32 outstanding messages. The queue grows
+     * as needed.
+     */
+    public RetransmitQueue() {
+        this(32);
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param initialCapacity the initial number of outstanding messages for
+     * which there is room.
+     */
+    public RetransmitQueue(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 2));
+        if (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        slots = new Object[capacity];
+    }
+
+    /**
+     * Adds an entry. Sequence numbers must be added in increasing order.
+     *
+     * @param seqnum the sequence number of the entry.
+     * @param entry the entry.
+     * @throws IllegalArgumentException if {@code seqnum} is not higher than
+     * every sequence number previously added.
+     */
+    public void add(int seqnum, E entry) {
+        if (null == entry) {
+            throw new NullPointerException("entry");
+        }
+
+        if (0 == size) {
+            firstSeqnum = seqnum;
+        } else if (seqnum < nextSeqnum) {
+            throw new IllegalArgumentException("Sequence number " + seqnum + " added out of order");
+        }
+
+        ensureCapacity(seqnum - firstSeqnum + 1);
+
+        slots[seqnum & (slots.length - 1)] = entry;
+        nextSeqnum = seqnum + 1;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Returns the entry for a sequence number.
+     *
+     * @param seqnum the sequence number.
+     * @return the entry or {@code null} if there is no entry for this
+     * sequence number.
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int seqnum) {
+        if ((seqnum < firstSeqnum) || (seqnum >= nextSeqnum)) {
+            return null;
+        }
+
+        return (E) slots[seqnum & (slots.length - 1)];
+    }
+
+    /**
+     * Removes the entry for a sequence number.
+     *
+     * @param seqnum the sequence number.
+     * @return the removed entry or {@code null} if there was no entry for
+     * this sequence number.
+     */
+    public E remove(int seqnum) {
+        E removed = get(seqnum);
+
+        if (null == removed) {
+            return null;
+        }
+
+        slots[seqnum & (slots.length - 1)] = null;
+        size--;
+        modCount++;
+
+        // Advance past the acknowledged head. Each slot is passed only once.
+        if (0 == size) {
+            firstSeqnum = nextSeqnum;
+        } else if (seqnum == firstSeqnum) {
+            while (null == slots[firstSeqnum & (slots.length - 1)]) {
+                firstSeqnum++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Returns the entry with the lowest sequence number.
+     *
+     * @return the oldest entry or {@code null} if the queue is empty.
+     */
+    public E peekFirst() {
+        return (0 == size) ? null : get(firstSeqnum);
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if there are no entries.
+     */
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        for (int each = 0; each < slots.length; each++) {
+            slots[each] = null;
+        }
+        firstSeqnum = nextSeqnum;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>The iterator returns the entries in sequence order and supports
+     * {@code remove()}.
+     */
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int cursor = firstSeqnum;
+            private int lastReturned = -1;
+            private boolean canRemove = false;
+            private int expectedModCount = modCount;
+
+            public boolean hasNext() {
+                checkForComodification();
+                // Skip the acknowledged gaps.
+                while ((cursor < nextSeqnum) && (null == slots[cursor & (slots.length - 1)])) {
+                    cursor++;
+                }
+                return cursor < nextSeqnum;
+            }
+
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = cursor++;
+                canRemove = true;
+                return get(lastReturned);
+            }
+
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                RetransmitQueue.this.remove(lastReturned);
+                expectedModCount = modCount;
+                canRemove = false;
+            }
+
+            private void checkForComodification() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Grows the ring so that it can hold the given span of sequence numbers.
+     */
+    private void ensureCapacity(int span) {
+        if (span <= slots.length) {
+            return;
+        }
+
+        int capacity = slots.length;
+        while (capacity < span) {
+            capacity <<= 1;
+        }
+
+        Object[] grown = new Object[capacity];
+        for (int seqnum = firstSeqnum; seqnum < nextSeqnum; seqnum++) {
+            grown[seqnum & (capacity - 1)] = slots[seqnum & (slots.length - 1)];
+        }
+        slots = grown;
+    }
+}
@@ -0,0 +1,520 @@
+package net.jxta.impl.util.ternary;
+
+import net.jxta.logging.Logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A ternary search tree whose nodes are held in parallel arrays rather than as one object per node.
+ *
+ * Each node costs a char, three int child indices and a data reference, instead of a node object, a
+ * relatives array and a boxed split character as in {@link TernarySearchTreeImpl}. Nodes freed by
+ * {@link #remove(String)} are kept on a free list and reused.
+ *
+ * The root is always node 0, so a child index of 0 means "no child". Like {@link TernarySearchTreeImpl}
+ * this class is not thread safe, callers synchronize access.
+ */
+public class CompactTernarySearchTree<E> implements TernarySearchTree<E> {
+
+    private final static Logger LOG = Logger.getLogger( CompactTernarySearchTree.class.getName(  ) );
+    private final static int ROOT = 0;
+    private final static int NIL = 0;
+    private final static int INITIAL_CAPACITY = 16;
+
+    private char[] splitchar;
+    private int[] lokid;
+    private int[] eqkid;
+    private int[] hikid;
+    private Object[] data;
+
+    // The number of array slots used, including freed nodes
+    private int allocated;
+
+    // Head of the list of freed nodes, linked through lokid
+    private int freeList;
+    private int freeCount;
+
+    public CompactTernarySearchTree(  ) {
+
+        deleteTree(  );
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#deleteTree()
+     */
+    public void deleteTree(  ) {
+
+        splitchar = new char[ INITIAL_CAPACITY ];
+        lokid = new int[ INITIAL_CAPACITY ];
+        eqkid = new int[ INITIAL_CAPACITY ];
+        hikid = new int[ INITIAL_CAPACITY ];
+        data = new Object[ INITIAL_CAPACITY ];
+        allocated = 0;
+        freeList = NIL;
+        freeCount = 0;
+    }
+
+    /**
+     * @return The number of nodes in the tree
+     */
+    public int getNodeCount(  ) {
+
+        return allocated - freeCount;
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#getOrCreate(java.lang.String, E)
+     */
+    @SuppressWarnings( "unchecked" )
+    public E getOrCreate( final String key, final E valueIfCreate ) {
+
+        int node = getOrCreateNode( key );
+
+        if ( data[node] == null ) {
+
+            data[node] = valueIfCreate;
+        }
+
+        return (E) data[node];
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#put(java.lang.String, E)
+     */
+    public void put( final String key, final E value ) {
+
+        // The arrays may be reallocated while the node is created
+        int node = getOrCreateNode( key );
+
+        data[node] = value;
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#get(java.lang.String)
+     */
+    @SuppressWarnings( "unchecked" )
+    public E get( final String key ) {
+
+        int node = getNode( key );
+
+        return ( node < 0 ) ? null : (E) data[node];
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#remove(java.lang.String)
+     */
+    @SuppressWarnings( "unchecked" )
+    public E remove( final String key ) {
+
+        if ( ( key == null ) || ( key.length(  ) == 0 ) || ( allocated == 0 ) ) {
+
+            return null;
+        }
+
+        // The nodes from the root to the node of the key
+        int[] path = new int[ key.length(  ) + 8 ];
+        int depth = 0;
+        int node = ROOT;
+        int charIndex = 0;
+
+        while ( true ) {
+
+            if ( depth == path.length ) {
+
+                path = Arrays.copyOf( path, depth * 2 );
+            }
+
+            path[depth++] = node;
+
+            int charComp = key.charAt( charIndex ) - splitchar[node];
+            int next;
+
+            if ( charComp == 0 ) {
+
+                if ( ++charIndex == key.length(  ) ) {
+
+                    break;
+                }
+
+                next = eqkid[node];
+            } else {
+
+                next = ( charComp < 0 ) ? lokid[node] : hikid[node];
+            }
+
+            if ( next == NIL ) {
+
+                if ( Logging.SHOW_WARNING && LOG.isLoggable( Level.WARNING ) ) {
+
+                    LOG.log( Level.WARNING, "Failed to find node to remove given key: " + key );
+                }
+
+                return null;
+            }
+
+            node = next;
+        }
+
+        E nodeData = (E) data[node];
+
+        data[node] = null;
+
+        // Prune the nodes which no longer lead to any data, from the bottom up
+        for ( int at = depth - 1; at >= 0; at-- ) {
+
+            int current = path[at];
+
+            if ( ( eqkid[current] != NIL ) || ( data[current] != null ) ) {
+
+                break;
+            }
+
+            int replacement;
+
+            if ( lokid[current] == NIL ) {
+
+                replacement = hikid[current];
+            } else if ( hikid[current] == NIL ) {
+
+                replacement = lokid[current];
+            } else {
+
+                // Everything in the high subtree is greater than everything in the low subtree
+                int highest = lokid[current];
+
+                while ( hikid[highest] != NIL ) {
+
+                    highest = hikid[highest];
+                }
+
+                hikid[highest] = hikid[current];
+                replacement = lokid[current];
+            }
+
+            if ( current == ROOT ) {
+
+                if ( replacement == NIL ) {
+
+                    deleteTree(  );
+                } else {
+
+                    copyNode( replacement, ROOT );
+                    freeNode( replacement );
+                }
+
+                break;
+            }
+
+            int parent = path[at - 1];
+
+            if ( lokid[parent] == current ) {
+
+                lokid[parent] = replacement;
+            } else if ( eqkid[parent] == current ) {
+
+                eqkid[parent] = replacement;
+            } else {
+
+                hikid[parent] = replacement;
+            }
+
+            freeNode( current );
+        }
+
+        return nodeData;
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#matchPrefix(java.lang.String)
+     */
+    public List<E> matchPrefix( final String prefix ) {
+
+        return matchPrefix( prefix, null );
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#matchPrefix(java.lang.String, net.jxta.impl.util.ternary.TernarySearchTreeMatchListener)
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<E> matchPrefix( final String prefix, final TernarySearchTreeMatchListener<E> listener ) {
+
+        List<E> result = new ArrayList<E>(  );
+
+        if ( ( listener != null ) && !listener.continueSearch(  ) ) {
+
+            return result;
+        }
+
+        int startNode = getNode( prefix );
+
+        if ( startNode < 0 ) {
+
+            return result;
+        }
+
+        if ( data[startNode] != null ) {
+
+            result.add( (E) data[startNode] );
+
+            if ( listener != null ) {
+
+                listener.resultFound( prefix, (E) data[startNode] );
+
+                if ( !listener.continueSearch(  ) ) {
+
+                    return result;
+                }
+            }
+        }
+
+        collect( eqkid[startNode], new StringBuilder( prefix ), result, listener );
+
+        return result;
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#walkTree(net.jxta.impl.util.ternary.TernarySearchTreeMatchListener)
+     */
+    public void walkTree( final TernarySearchTreeMatchListener<E> listener ) {
+
+        if ( allocated > 0 ) {
+
+            collect( ROOT, new StringBuilder(  ), null, listener );
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see net.jxta.impl.util.ternary.TernarySearchTree#printTree()
+     */
+    public void printTree(  ) {
+
+        System.out.println( "" );
+
+        if ( allocated == 0 ) {
+
+            System.out.println( "Tree is empty!\n" );
+
+            return;
+        }
+
+        System.out.println( "Note: keys are delimited by vertical lines: |example key|\n" );
+        walkTree( new TernarySearchTreeMatchListener<E>(  ) {
+
+                public void resultFound( String key, E value ) {
+
+                    System.out.println( "|" + key + "|\tnode data:\t" + value );
+                }
+
+                public boolean continueSearch(  ) {
+
+                    return true;
+                }
+            } );
+    }
+
+    /**
+     * Collects the data of a subtree in key order.
+     *
+     * @return false if the listener stopped the search
+     */
+    @SuppressWarnings( "unchecked" )
+    private boolean collect( final int node, final StringBuilder key, final List<E> result,
+        final TernarySearchTreeMatchListener<E> listener ) {
+
+        if ( node == NIL ) {
+
+            return true;
+        }
+
+        if ( !collect( lokid[node], key, result, listener ) ) {
+
+            return false;
+        }
+
+        int length = key.length(  );
+
+        key.append( splitchar[node] );
+
+        if ( data[node] != null ) {
+
+            if ( result != null ) {
+
+                result.add( (E) data[node] );
+            }
+
+            if ( listener != null ) {
+
+                listener.resultFound( key.toString(  ), (E) data[node] );
+
+                if ( !listener.continueSearch(  ) ) {
+
+                    return false;
+                }
+            }
+        }
+
+        boolean more = collect( eqkid[node], key, result, listener );
+
+        key.setLength( length );
+
+        return more && collect( hikid[node], key, result, listener );
+    }
+
+    /**
+     * @return The node indexed by key or -1 if there is none
+     */
+    private int getNode( final String key ) {
+
+        if ( ( key == null ) || ( key.length(  ) == 0 ) || ( allocated == 0 ) ) {
+
+            return -1;
+        }
+
+        int node = ROOT;
+        int charIndex = 0;
+
+        while ( true ) {
+
+            int charComp = key.charAt( charIndex ) - splitchar[node];
+
+            if ( charComp == 0 ) {
+
+                if ( ++charIndex == key.length(  ) ) {
+
+                    return node;
+                }
+
+                node = eqkid[node];
+            } else {
+
+                node = ( charComp < 0 ) ? lokid[node] : hikid[node];
+            }
+
+            if ( node == NIL ) {
+
+                return -1;
+            }
+        }
+    }
+
+    private int getOrCreateNode( final String key ) {
+
+        if ( key == null ) {
+
+            throw new NullPointerException( "Attempt to get or create node with null key" );
+        }
+
+        if ( key.length(  ) == 0 ) {
+
+            throw new IllegalArgumentException( "Attempt to get or create node with key of zero length" );
+        }
+
+        if ( allocated == 0 ) {
+
+            newNode( key.charAt( 0 ) );
+        }
+
+        int node = ROOT;
+        int charIndex = 0;
+
+        while ( true ) {
+
+            char currentChar = key.charAt( charIndex );
+            int charComp = currentChar - splitchar[node];
+
+            if ( charComp == 0 ) {
+
+                if ( ++charIndex == key.length(  ) ) {
+
+                    return node;
+                }
+
+                if ( eqkid[node] == NIL ) {
+
+                    int kid = newNode( key.charAt( charIndex ) );
+
+                    eqkid[node] = kid;
+                }
+
+                node = eqkid[node];
+            } else if ( charComp < 0 ) {
+
+                if ( lokid[node] == NIL ) {
+
+                    int kid = newNode( currentChar );
+
+                    lokid[node] = kid;
+                }
+
+                node = lokid[node];
+            } else {
+
+                if ( hikid[node] == NIL ) {
+
+                    int kid = newNode( currentChar );
+
+                    hikid[node] = kid;
+                }
+
+                node = hikid[node];
+            }
+        }
+    }
+
+    private int newNode( final char split ) {
+
+        int node;
+
+        if ( freeList != NIL ) {
+
+            node = freeList;
+            freeList = lokid[node];
+            freeCount--;
+        } else {
+
+            if ( allocated == splitchar.length ) {
+
+                int capacity = allocated + ( allocated >> 1 );
+
+                splitchar = Arrays.copyOf( splitchar, capacity );
+                lokid = Arrays.copyOf( lokid, capacity );
+                eqkid = Arrays.copyOf( eqkid, capacity );
+                hikid = Arrays.copyOf( hikid, capacity );
+                data = Arrays.copyOf( data, capacity );
+            }
+
+            node = allocated++;
+        }
+
+        splitchar[node] = split;
+        lokid[node] = NIL;
+        eqkid[node] = NIL;
+        hikid[node] = NIL;
+        data[node] = null;
+
+        return node;
+    }
+
+    private void copyNode( final int from, final int to ) {
+
+        splitchar[to] = splitchar[from];
+        lokid[to] = lokid[from];
+        eqkid[to] = eqkid[from];
+        hikid[to] = hikid[from];
+        data[to] = data[from];
+    }
+
+    private void freeNode( final int node ) {
+
+        data[node] = null;
+        eqkid[node] = NIL;
+        hikid[node] = NIL;
+        lokid[node] = freeList;
+        freeList = node;
+        freeCount++;
+    }
+}
@@ -75,10 +75,10 @@ import java.util.regex.Pattern;
 public class WildcardTernarySearchTreeImpl<T> implements WildcardTernarySearchTree<T> {
 
     private static final Logger LOG = Logger.getLogger( WildcardTernarySearchTreeImpl.class.getName(  ) );
-    private TernarySearchTree<T> prefix = new TernarySearchTreeImpl<T>(  );
+    private final TernarySearchTree<T> prefix;
 
     // Duplicate of the prefix tree except all keys are ** reversed **
-    private TernarySearchTree<T> suffix = new TernarySearchTreeImpl<T>(  );
+    private final TernarySearchTree<T> suffix;
     private volatile long size = 0;
     private volatile char wildcard;
 
@@ -95,7 +95,20 @@ public class WildcardTernarySearchTreeImpl<T> implements WildcardTernarySearchTr
      */
     public WildcardTernarySearchTreeImpl( char wildcard ) {
 
+        this( wildcard, new TernarySearchTreeImpl<T>(  ), new TernarySearchTreeImpl<T>(  ) );
+    }
+
+    /**
+     * Build a Wild Card Ternary Search Tree on the given (empty) trees
+     * @param wildcard The character to use as Wild Card
+     * @param prefix The tree holding the keys
+     * @param suffix The tree holding the reversed keys
+     */
+    public WildcardTernarySearchTreeImpl( char wildcard, TernarySearchTree<T> prefix, TernarySearchTree<T> suffix ) {
+
         this.wildcard = wildcard;
+        this.prefix = prefix;
+        this.suffix = suffix;
     }
 
     /* (non-Javadoc)
@@ -0,0 +1,405 @@
+package net.jxta.impl.util.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import net.jxta.logging.Logging;
+
+/**
+ * A named, bounded lane of execution on a pool shared with other lanes.
+ * <p>
+ * At most {@code maxThreads} tasks of a lane run at once, whatever the size
+ * of the pool, so that a slow subsystem cannot take all the threads from the
+ * others. Tasks wait in the lane's own queue, in submission order, until the
+ * lane may run more. When {@code maxQueueDepth} tasks are already waiting the
+ * submitting thread runs the task itself, which slows down the producer rather
+ * than dropping work. Lanes fed by event loops, such as selector threads, must
+ * not run tasks in the caller: for them the task is queued anyway and counted
+ * as an overflow.
+ * <p>
+ * The queue depth, the time tasks wait in the lane and the time they run are
+ * recorded for each lane. As with the {@link SharedThreadPoolExecutor}, tasks
+ * are wrapped in a {@link QueueTimeRunMetricsWrapper} so that excessive queue
+ * and run times are logged.
+ * <p>
+ * Lanes are shared, so they cannot be shut down by their users.
+ */
+public class ExecutorLane extends AbstractExecutorService {
+
+    /**
+     * The number of tasks run in a row for a lane before the pool thread is
+     * given to the other lanes.
+     */
+    private static final int BATCH = 16;
+
+    private final String name;
+
+    private final Executor pool;
+
+    private final ScheduledExecutorService monitoringExecutor;
+
+    private final int maxThreads;
+
+    private final int maxQueueDepth;
+
+    private final boolean callerRuns;
+
+    private final Queue<LaneTask> queue = new ConcurrentLinkedQueue<LaneTask>();
+
+    /**
+     * The number of tasks in the queue.
+     */
+    private final AtomicInteger queued = new AtomicInteger(0);
+
+    /**
+     * The number of drainers scheduled on or running in the pool.
+     */
+    private final AtomicInteger running = new AtomicInteger(0);
+
+    private final AtomicInteger peakQueueDepth = new AtomicInteger(0);
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder callerRunsCount = new LongAdder();
+
+    private final LongAdder overflowCount = new LongAdder();
+
+    private final LongAdder totalQueueNanos = new LongAdder();
+
+    private final AtomicLong maxQueueNanos = new AtomicLong(0);
+
+    private final LongAdder totalRunNanos = new LongAdder();
+
+    private volatile boolean shutdown = false;
+
+    private final Runnable drainer = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param name the name of the lane.
+     * @param pool the pool running the tasks of this lane and of other lanes.
+     * @param monitoringExecutor the executor detecting long running tasks.
+     * @param maxThreads the maximum number of tasks of this lane running at once.
+     * @param maxQueueDepth the maximum number of tasks waiting in this lane.
+     */
+    public ExecutorLane(String name, Executor pool, ScheduledExecutorService monitoringExecutor, int maxThreads, int maxQueueDepth) {
+        this(name, pool, monitoringExecutor, maxThreads, maxQueueDepth, true);
+    }
+
+    /**
+     * @param name the name of the lane.
+     * @param pool the pool running the tasks of this lane and of other lanes.
+     * @param monitoringExecutor the executor detecting long running tasks.
+     * @param maxThreads the maximum number of tasks of this lane running at once.
+     * @param maxQueueDepth the number of waiting tasks beyond which the lane is full.
+     * @param callerRuns if {@code true} the submitting thread runs the tasks
+     * submitted to a full lane, otherwise they are queued.
+     */
+    public ExecutorLane(String name, Executor pool, ScheduledExecutorService monitoringExecutor, int maxThreads, int maxQueueDepth, boolean callerRuns) {
+        this.name = name;
+        this.pool = pool;
+        this.monitoringExecutor = monitoringExecutor;
+        this.maxThreads = Math.max(1, maxThreads);
+        this.maxQueueDepth = Math.max(0, maxQueueDepth);
+        this.callerRuns = callerRuns;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return {@code true} if the submitting thread runs the tasks submitted to a full lane.
+     */
+    public boolean isCallerRuns() {
+        return callerRuns;
+    }
+
+    /**
+     * @return the number of tasks waiting in this lane.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return the largest number of tasks which have waited in this lane at once.
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    /**
+     * @return the number of tasks run by the pool for this lane.
+     */
+    public long getCompletedTaskCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of tasks run by the submitting thread because the lane was full.
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount.sum();
+    }
+
+    /**
+     * @return the number of tasks queued although the lane was full.
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    /**
+     * @return the average time the completed tasks waited in this lane, in milliseconds.
+     */
+    public double getAverageQueueTime() {
+        long count = completed.sum();
+
+        return (0 == count) ? 0 : (double) totalQueueNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the longest time a task waited in this lane, in milliseconds.
+     */
+    public long getMaxQueueTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueNanos.get());
+    }
+
+    /**
+     * @return the average time the completed tasks ran, in milliseconds.
+     */
+    public double getAverageRunTime() {
+        long count = completed.sum();
+
+        return (0 == count) ? 0 : (double) totalRunNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public void execute(Runnable command) {
+        if (null == command) {
+            throw new NullPointerException("null command");
+        }
+
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor lane " + name + " is shut down");
+        }
+
+        int depth = queued.incrementAndGet();
+
+        if (depth > maxQueueDepth) {
+            if (callerRuns) {
+                queued.decrementAndGet();
+                callerRunsCount.increment();
+
+                Logging.logCheckedFine(SharedThreadPoolExecutor.LOG, "Executor lane ", name, " is full, running task in the caller");
+
+                command.run();
+                return;
+            }
+
+            overflowCount.increment();
+
+            Logging.logCheckedFine(SharedThreadPoolExecutor.LOG, "Executor lane ", name, " is full, queueing task anyway");
+        }
+
+        int peak;
+
+        while (depth > (peak = peakQueueDepth.get())) {
+            if (peakQueueDepth.compareAndSet(peak, depth)) {
+                break;
+            }
+        }
+
+        queue.add(new LaneTask(command));
+        schedule();
+    }
+
+    /**
+     * Starts a drainer if the lane has waiting tasks and may run more.
+     */
+    private void schedule() {
+        while (!queue.isEmpty()) {
+            int current = running.get();
+
+            if (current >= maxThreads) {
+                // a running drainer will schedule again when it is done.
+                return;
+            }
+
+            if (running.compareAndSet(current, current + 1)) {
+                try {
+                    pool.execute(drainer);
+                } catch (RejectedExecutionException rejected) {
+                    running.decrementAndGet();
+                    throw rejected;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of waiting tasks in a pool thread.
+     */
+    private void drain() {
+        try {
+            for (int each = 0; each < BATCH; each++) {
+                LaneTask task = queue.poll();
+
+                if (null == task) {
+                    break;
+                }
+
+                queued.decrementAndGet();
+                task.run();
+            }
+        } finally {
+            running.decrementAndGet();
+
+            if (shutdown) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+
+            try {
+                schedule();
+            } catch (RejectedExecutionException rejected) {
+                Logging.logCheckedWarning(SharedThreadPoolExecutor.LOG, "Executor lane ", name, " could not be rescheduled\n", rejected);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        throw new IllegalStateException("shutdown cannot be called on a shared executor lane");
+    }
+
+    /**
+     * Stops accepting tasks. The waiting tasks still run.
+     */
+    public void shutdownShared() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        throw new IllegalStateException("shutdown cannot be called on a shared executor lane");
+    }
+
+    /**
+     * Stops accepting tasks and discards the waiting ones.
+     *
+     * @return the tasks which were waiting.
+     */
+    public List<Runnable> shutdownNowShared() {
+        shutdown = true;
+
+        List<Runnable> waiting = new ArrayList<Runnable>();
+        LaneTask task;
+
+        while (null != (task = queue.poll())) {
+            queued.decrementAndGet();
+            waiting.add(task.command);
+        }
+
+        synchronized (this) {
+            notifyAll();
+        }
+
+        return waiting;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isTerminated() {
+        return shutdown && queue.isEmpty() && (0 == running.get());
+    }
+
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                return false;
+            }
+
+            // drainers notify at the end of each batch, the poll covers tasks run elsewhere.
+            TimeUnit.NANOSECONDS.timedWait(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorLane[" + name + ", queued=" + queued.get() + ", maxThreads=" + maxThreads + ", callerRuns=" + callerRuns + "]";
+    }
+
+    /**
+     * A task waiting in the lane.
+     */
+    private class LaneTask implements Runnable {
+
+        final Runnable command;
+
+        private final QueueTimeRunMetricsWrapper<Void> wrapper;
+
+        private final long queuedAt = System.nanoTime();
+
+        LaneTask(Runnable command) {
+            this.command = command;
+            this.wrapper = new QueueTimeRunMetricsWrapper<Void>(monitoringExecutor, command);
+        }
+
+        public void run() {
+            long start = System.nanoTime();
+            long queueTime = start - queuedAt;
+            long max;
+
+            while (queueTime > (max = maxQueueNanos.get())) {
+                if (maxQueueNanos.compareAndSet(max, queueTime)) {
+                    break;
+                }
+            }
+
+            try {
+                wrapper.call();
+            } catch (Throwable failed) {
+                if (Logging.SHOW_WARNING && SharedThreadPoolExecutor.LOG.isLoggable(Level.WARNING)) {
+                    SharedThreadPoolExecutor.LOG.log(Level.WARNING, "task of type [" + wrapper.getWrappedType() + "] failed in executor lane " + name, failed);
+                }
+            } finally {
+                totalQueueNanos.add(queueTime);
+                totalRunNanos.add(System.nanoTime() - start);
+                completed.increment();
+            }
+        }
+    }
+}
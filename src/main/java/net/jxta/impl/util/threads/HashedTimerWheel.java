@@ -0,0 +1,523 @@
+package net.jxta.impl.util.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hierarchical timer wheel for large numbers of coarse grained timeouts,
+ * most of which are cancelled before they expire (retransmission deadlines for
+ * example).
+ * <p>
+ * Timeouts due within one revolution are hashed by expiry tick into the
+ * buckets of the first wheel. Later timeouts go to the buckets of coarser
+ * wheels, each one revolution of the finer wheel per bucket, and are moved down
+ * a wheel when the finer wheel reaches their bucket. A tick only visits the
+ * timeouts which expire then, however far in the future the other timeouts
+ * are.
+ * <p>
+ * A single daemon thread advances the wheel. Scheduling and cancelling a
+ * timeout link it into or unlink it from its bucket directly, holding the lock
+ * of the wheel only for these few writes whatever the number of timeouts, so
+ * that many threads may arm and cancel timeouts at once and the wheel thread
+ * has no work left behind for each of them. Expired tasks are handed to an
+ * executor so that a slow task cannot delay the other timeouts. Timeouts fire
+ * at most one tick late.
+ */
+public class HashedTimerWheel {
+
+    private static final Logger LOG = Logger.getLogger(HashedTimerWheel.class.getName());
+
+    /**
+     * Default duration of a tick in milliseconds.
+     */
+    static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * Default number of buckets in the wheel.
+     */
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * Number of wheels. With the default tick and wheel size the coarsest
+     * wheel spans more than 21 years; later timeouts wait in its last bucket.
+     */
+    static final int LEVELS = 4;
+
+    private final String name;
+    private final Executor executor;
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+
+    /**
+     * The buckets of each wheel. Guarded by {@link #lock}.
+     */
+    private final Timeout[][] wheels;
+
+    /**
+     * Number of timeouts linked into the buckets. Guarded by {@link #lock}.
+     */
+    private int pending = 0;
+
+    /**
+     * Protects the buckets and the worker state. The wheel thread waits on it
+     * when idle.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Time at which tick 0 began.
+     */
+    private final long startNanos;
+
+    /**
+     * The next tick the worker will process. Guarded by {@link #lock}.
+     */
+    private long nextTick = 0;
+
+    private volatile Thread worker = null;
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a timer wheel with the default tick duration and wheel size.
+     *
+     * @param name the name of the wheel thread.
+     * @param executor the executor which runs expired tasks.
+     */
+    public HashedTimerWheel(String name, Executor executor) {
+        this(name, executor, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Creates a timer wheel.
+     *
+     * @param name the name of the wheel thread.
+     * @param executor the executor which runs expired tasks.
+     * @param tickDuration the resolution of the wheel.
+     * @param unit the unit of {@code tickDuration}.
+     * @param wheelSize the number of buckets, rounded up to a power of two.
+     */
+    public HashedTimerWheel(String name, Executor executor, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be > 0");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("Wheel size must be > 0");
+        }
+
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+
+        this.name = name;
+        this.executor = executor;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheels = new Timeout[LEVELS][size];
+        this.bits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     *
+     * @param task the task.
+     * @param delay the delay after which the task is run.
+     * @param unit the unit of {@code delay}.
+     * @return a handle which may be used to cancel the task.
+     * @throws IllegalStateException if the wheel has been stopped.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, executor);
+    }
+
+    /**
+     * Schedules a task to run once after the given delay on the given
+     * executor rather than on the executor of the wheel.
+     *
+     * @param task the task.
+     * @param delay the delay after which the task is run.
+     * @param unit the unit of {@code delay}.
+     * @param taskExecutor the executor which runs the task when it expires.
+     * @return a handle which may be used to cancel the task.
+     * @throws IllegalStateException if the wheel has been stopped.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor taskExecutor) {
+        if (null == task) {
+            throw new NullPointerException("task");
+        }
+
+        Timeout timeout = new Timeout(this, task, taskExecutor);
+
+        scheduleTimeout(timeout, System.nanoTime(), unit.toNanos(delay));
+        return timeout;
+    }
+
+    /**
+     * Schedules a new or an expired timeout to expire after the given delay.
+     *
+     * @param timeout the timeout.
+     * @param now the current {@link System#nanoTime()}.
+     * @param delayNanos the delay after which the task is run.
+     * @throws IllegalStateException if the wheel has been stopped.
+     */
+    void scheduleTimeout(Timeout timeout, long now, long delayNanos) {
+        long elapsed = now - startNanos;
+
+        delayNanos = Math.max(delayNanos, 0);
+
+        // Beyond the coarsest wheel anyway, the sum must not overflow.
+        long deadline = (delayNanos < Long.MAX_VALUE - tickNanos - elapsed) ? elapsed + delayNanos : Long.MAX_VALUE - tickNanos;
+
+        if (null == worker) {
+            startWorker();
+        }
+
+        synchronized (lock) {
+            if (stopped) {
+                throw new IllegalStateException("Timer wheel " + name + " has been stopped");
+            }
+
+            if (0 == pending) {
+                // The buckets are empty, skip the ticks the idle worker
+                // missed and wake it up.
+                nextTick = Math.max(nextTick, elapsed / tickNanos);
+                lock.notifyAll();
+            }
+
+            timeout.expiryTick = (deadline + tickNanos - 1) / tickNanos;
+            timeout.state = Timeout.PENDING;
+            link(timeout);
+            pending++;
+        }
+    }
+
+    private void startWorker() {
+        synchronized (lock) {
+            if (stopped) {
+                throw new IllegalStateException("Timer wheel " + name + " has been stopped");
+            }
+
+            if (null == worker) {
+                Thread thread = new Thread(new Worker(), name);
+
+                thread.setDaemon(true);
+                worker = thread;
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of timeouts which have neither expired nor been
+     * cancelled.
+     *
+     * @return the number of pending timeouts.
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    /**
+     * Returns the tasks of the pending timeouts which run on the given
+     * executor. Walks all the buckets, this is meant for shutting down the
+     * users of the wheel rather than for frequent use.
+     *
+     * @param taskExecutor the executor given when scheduling the tasks.
+     * @return the tasks, in no particular order.
+     */
+    public List<Runnable> getPendingTasks(Executor taskExecutor) {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+
+        synchronized (lock) {
+            for (Timeout[] buckets : wheels) {
+                for (Timeout timeout : buckets) {
+                    for (; null != timeout; timeout = timeout.next) {
+                        addPendingTask(tasks, timeout, taskExecutor);
+                    }
+                }
+            }
+        }
+
+        return tasks;
+    }
+
+    private static void addPendingTask(List<Runnable> tasks, Timeout timeout, Executor taskExecutor) {
+        if ((Timeout.PENDING == timeout.state) && (taskExecutor == timeout.taskExecutor)) {
+            tasks.add(timeout.getTask());
+        }
+    }
+
+    /**
+     * Stops the wheel. Pending timeouts are discarded without being run.
+     */
+    public void stop() {
+        Thread stopping;
+
+        synchronized (lock) {
+            stopped = true;
+            pending = 0;
+            stopping = worker;
+            worker = null;
+            lock.notifyAll();
+        }
+
+        if (null != stopping) {
+            stopping.interrupt();
+        }
+    }
+
+    /**
+     * Adds the timeout to its bucket, in the finest wheel which reaches its
+     * expiry from {@link #nextTick}.
+     */
+    private void link(Timeout timeout) {
+        // Late timeouts expire on the next tick.
+        long tick = Math.max(timeout.expiryTick, nextTick);
+        int level = 0;
+
+        // The current bucket of a coarser wheel has already been cascaded, a
+        // timeout a full revolution of buckets away needs the next wheel.
+        while ((level < LEVELS - 1) && (buckets(tick, level) >= (mask + 1))) {
+            level++;
+        }
+
+        if (buckets(tick, level) >= (mask + 1)) {
+            // Beyond the coarsest wheel : wait in its last bucket and retry from there.
+            tick = ((nextTick >> (bits * level)) + mask) << (bits * level);
+        }
+
+        int index = (int) ((tick >> (bits * level)) & mask);
+        Timeout[] buckets = wheels[level];
+
+        timeout.level = level;
+        timeout.bucket = index;
+        timeout.prev = null;
+        timeout.next = buckets[index];
+        if (null != timeout.next) {
+            timeout.next.prev = timeout;
+        }
+        buckets[index] = timeout;
+    }
+
+    /**
+     * @return the number of buckets of the given wheel between
+     * {@link #nextTick} and {@code tick}.
+     */
+    private long buckets(long tick, int level) {
+        int shift = bits * level;
+
+        return (tick >> shift) - (nextTick >> shift);
+    }
+
+    /**
+     * Removes the timeout from its bucket.
+     */
+    private void unlink(Timeout timeout) {
+        if (null != timeout.prev) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.bucket] = timeout.next;
+        }
+        if (null != timeout.next) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /**
+     * At the start of each revolution of a wheel, moves the timeouts of the
+     * next bucket of the coarser wheel down, coarsest first. Requires
+     * {@link #nextTick} equal to {@code tick}.
+     */
+    private void cascade(long tick) {
+        int levels = 0;
+
+        while ((levels < LEVELS - 1) && ((tick >> (bits * levels)) & mask) == 0) {
+            levels++;
+        }
+
+        for (int level = levels; level > 0; level--) {
+            int index = (int) ((tick >> (bits * level)) & mask);
+            Timeout timeout = wheels[level][index];
+
+            wheels[level][index] = null;
+            while (null != timeout) {
+                Timeout next = timeout.next;
+
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = -1;
+                if (Timeout.PENDING == timeout.state) {
+                    link(timeout);
+                } else {
+                    pending--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * A scheduled task. The tasks of the package may extend it, to be
+     * scheduled without allocating a timeout of their own, and then return
+     * themselves from {@link #getTask()}.
+     */
+    public static class Timeout {
+
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        /**
+         * Not scheduled yet.
+         */
+        static final int NEW = 3;
+
+        private final HashedTimerWheel wheel;
+        private final Runnable task;
+        private final Executor taskExecutor;
+
+        volatile int state = NEW;
+
+        // Guarded by the lock of the wheel.
+        private long expiryTick;
+        private Timeout prev = null;
+        private Timeout next = null;
+        private int level = 0;
+        private int bucket = -1;
+
+        Timeout(HashedTimerWheel wheel, Runnable task, Executor taskExecutor) {
+            this.wheel = wheel;
+            this.task = task;
+            this.taskExecutor = taskExecutor;
+        }
+
+        /**
+         * @return the task handed to the executor when the timeout expires.
+         */
+        Runnable getTask() {
+            return task;
+        }
+
+        /**
+         * Cancels the timeout.
+         *
+         * @return {@code true} if the timeout was cancelled, {@code false}
+         * if it has already expired or was already cancelled.
+         */
+        public boolean cancel() {
+            if (wheel.stopped || !STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+
+            synchronized (wheel.lock) {
+                // Unless the wheel thread met it first.
+                if (-1 != bucket) {
+                    wheel.unlink(this);
+                    wheel.pending--;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * @return {@code true} if the timeout was cancelled.
+         */
+        public boolean isCancelled() {
+            return (CANCELLED == state) || (wheel.stopped && (PENDING == state));
+        }
+
+        /**
+         * Expires the timeout unless it was cancelled.
+         */
+        boolean expire() {
+            return STATE.compareAndSet(this, PENDING, EXPIRED);
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    /**
+     * Advances the wheel one tick at a time.
+     */
+    private class Worker implements Runnable {
+
+        public void run() {
+            List<Timeout> expired = new ArrayList<Timeout>();
+
+            try {
+                while (!stopped) {
+                    long sleepNanos;
+
+                    synchronized (lock) {
+                        // Nothing to do? Sleep until something is scheduled,
+                        // which skips the ticks we missed.
+                        while (!stopped && (0 == pending)) {
+                            lock.wait();
+                        }
+
+                        long tick = nextTick;
+
+                        sleepNanos = startNanos + tick * tickNanos - System.nanoTime();
+                        if (sleepNanos <= 0) {
+                            cascade(tick);
+
+                            Timeout timeout = wheels[0][(int) (tick & mask)];
+                            while (null != timeout) {
+                                Timeout next = timeout.next;
+                                if (timeout.expiryTick <= tick) {
+                                    // Cancelled ones are being unlinked too.
+                                    unlink(timeout);
+                                    pending--;
+                                    if (timeout.expire()) {
+                                        expired.add(timeout);
+                                    }
+                                }
+                                timeout = next;
+                            }
+
+                            nextTick = tick + 1;
+                        }
+                    }
+
+                    if (sleepNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                        continue;
+                    }
+
+                    for (Timeout each : expired) {
+                        try {
+                            each.taskExecutor.execute(each.getTask());
+                        } catch (RejectedExecutionException rejected) {
+                            LOG.log(Level.WARNING, "Timer wheel " + name + " could not run expired task", rejected);
+                        }
+                    }
+                    expired.clear();
+                }
+            } catch (InterruptedException stopping) {
+                // stop() interrupts us.
+            } catch (Throwable all) {
+                LOG.log(Level.SEVERE, "Uncaught Throwable in thread :" + Thread.currentThread().getName(), all);
+            } finally {
+                synchronized (lock) {
+                    if (worker == Thread.currentThread()) {
+                        worker = null;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -61,6 +61,26 @@ public class ProxiedScheduledExecutorService
                 targetExecutor, true);
     }
     
+    /**
+     * Creates a scheduled executor service which executes all tasks on the
+     * specified executor service.  This form schedules the tasks on the
+     * provided timer wheel, which costs no thread of its own and schedules
+     * and cancels in constant time, with the resolution of one tick of the
+     * wheel.  Shutting this executor down only cancels its own tasks.
+     * 
+     * @param wheel timer wheel to use for scheduling tasks
+     * @param targetExecutor executor service instance to use for task
+     *  execution
+     */
+    public ProxiedScheduledExecutorService(
+            final HashedTimerWheel wheel,
+            final ExecutorService targetExecutor) {
+        // The proxies only hand the tasks off to the target executor, they
+        // can do that on the wheel thread.
+        this(new TimerWheelScheduledExecutorService(wheel, TimerWheelScheduledExecutorService.DirectExecutor.INSTANCE),
+                targetExecutor, true);
+    }
+    
     /**
      * Creates a scheduled executor service which executes all tasks on the
      * specified executor service.  This form creates uses the provided
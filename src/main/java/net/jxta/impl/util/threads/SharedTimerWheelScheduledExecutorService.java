@@ -0,0 +1,34 @@
+package net.jxta.impl.util.threads;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Subclass of TimerWheelScheduledExecutorService which guards against termination
+ * through the public API, as SharedScheduledThreadPoolExecutor does - only the
+ * task manager may shut it down.
+ */
+public class SharedTimerWheelScheduledExecutorService extends TimerWheelScheduledExecutorService {
+
+    public SharedTimerWheelScheduledExecutorService(HashedTimerWheel wheel, Executor targetExecutor) {
+        super(wheel, targetExecutor);
+    }
+
+    @Override
+    public void shutdown() {
+        throw new IllegalStateException("shutdown cannot be called on a shared timer wheel executor");
+    }
+
+    public void shutdownShared() {
+        super.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        throw new IllegalStateException("shutdownNow cannot be called on a shared timer wheel executor");
+    }
+
+    public List<Runnable> shutdownNowShared() {
+        return super.shutdownNow();
+    }
+}
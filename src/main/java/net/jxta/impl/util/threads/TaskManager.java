@@ -1,10 +1,14 @@
 package net.jxta.impl.util.threads;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
@@ -30,16 +34,40 @@ public class TaskManager {
 	static final String MAX_WORKER_POOL_SIZE_SYSPROP = "net.jxta.util.threads.TaskManager.maxWorkerPoolSize";
 	static final String SCHEDULED_POOL_SIZE_SYSPROP = "net.jxta.util.threads.TaskManager.scheduledPoolSize";
 	static final String IDLE_THREAD_TIMEOUT_SYSPROP = "net.jxta.util.threads.TaskManager.idleThreadTimeout";
+	static final String LANE_POOL_SIZE_SYSPROP = "net.jxta.util.threads.TaskManager.lanePoolSize";
+	static final String LANE_SYSPROP_PREFIX = "net.jxta.util.threads.TaskManager.lane.";
 	
 	static final int DEFAULT_CORE_POOL_SIZE =4;
 	static final int DEFAULT_MAX_WORKER_POOL_SIZE = Integer.MAX_VALUE;
 	static final int DEFAULT_SCHEDULED_POOL_SIZE = 2;
 	static final int DEFAULT_IDLE_THREAD_TIMEOUT = 10;
+	static final int DEFAULT_LANE_QUEUE_DEPTH = 10000;
+	
+	/**
+	 * The lane dispatching incoming messages of the endpoint and its transports.
+	 * Its tasks are submitted by selector threads, so by default a full lane
+	 * queues them rather than running them in the caller.
+	 */
+	public static final String ENDPOINT_LANE = "endpoint";
+	
+	/**
+	 * The lane of the cache manager, garbage collection included.
+	 */
+	public static final String CM_LANE = "cm";
+	
+	/**
+	 * The lane of the content service.
+	 */
+	public static final String CONTENT_LANE = "content";
 	
 	private SharedThreadPoolExecutor normalExecutor;
 	private SharedScheduledThreadPoolExecutor scheduledExecutor;
 	private ScheduledExecutorService monitoringExecutor;
         private CachedThreadExecutorService cachedExecutor;
+	private HashedTimerWheel timerWheel;
+	private SharedTimerWheelScheduledExecutorService coarseExecutor;
+	private ForkJoinPool lanePool;
+	private Map<String, ExecutorLane> lanes;
 	
 	private Map<String, ProxiedScheduledExecutorService> proxiedExecutors;
 	
@@ -63,6 +91,27 @@ public class TaskManager {
         return Math.max(0, timeout);
 	}
 	
+	static int getLanePoolSize() {
+	    int size = Integer.getInteger(LANE_POOL_SIZE_SYSPROP, Math.max(DEFAULT_CORE_POOL_SIZE, 2 * Runtime.getRuntime().availableProcessors()));
+	    return Math.max(1, size);
+	}
+	
+	static int getLaneMaxThreads(String laneName, int lanePoolSize) {
+	    // by default no lane may take more than half of the pool.
+	    int size = Integer.getInteger(LANE_SYSPROP_PREFIX + laneName + ".maxThreads", lanePoolSize / 2);
+	    return Math.max(1, size);
+	}
+	
+	static int getLaneMaxQueueDepth(String laneName) {
+	    int depth = Integer.getInteger(LANE_SYSPROP_PREFIX + laneName + ".maxQueueDepth", DEFAULT_LANE_QUEUE_DEPTH);
+	    return Math.max(0, depth);
+	}
+	
+	static boolean getLaneCallerRuns(String laneName) {
+	    String callerRuns = System.getProperty(LANE_SYSPROP_PREFIX + laneName + ".callerRuns");
+	    return (null == callerRuns) ? !ENDPOINT_LANE.equals(laneName) : Boolean.parseBoolean(callerRuns);
+	}
+	
 	static int getMaxWorkerPoolSize(int coreWorkerPoolSize, Integer maxWorkerPoolSize) {
 	    // while core pool size is allowed to be zero, max pool size
 	    // must be greater than the core pool size AND greater than
@@ -107,6 +156,7 @@ public class TaskManager {
             scheduledExecutor = new SharedScheduledThreadPoolExecutor(monitoringExecutor, getScheduledPoolSize(scheduledPoolSize), new NamedThreadFactory("JxtaScheduledWorker"));
             cachedExecutor = new CachedThreadExecutorService(NTF);
             proxiedExecutors = Collections.synchronizedMap(new HashMap<String, ProxiedScheduledExecutorService>());
+            lanes = new HashMap<String, ExecutorLane>();
             started=true;
         }
 	
@@ -137,19 +187,84 @@ public class TaskManager {
 		return scheduledExecutor;
 	}
 	
+	/**
+	 * Provides a shared timer wheel for large numbers of short lived, usually cancelled timeouts
+	 * such as retransmission deadlines. Expired tasks run on the shared executor service.
+	 * The wheel must not be stopped by its users.
+	 */
+	public synchronized HashedTimerWheel getTimerWheel() {
+		if(timerWheel == null) {
+			timerWheel = new HashedTimerWheel("JxtaTimerWheel", normalExecutor);
+		}
+		return timerWheel;
+	}
+	
+	/**
+	 * Provides a shared scheduled executor service for coarse periodic and timeout tasks, such as
+	 * garbage collection of expired entries or periodic publication. The tasks are scheduled on the
+	 * shared timer wheel, so their resolution is one tick of the wheel, and run on the shared
+	 * executor service.
+	 * Note that since this instance could be shared, it is illegal to attempt to shut down the
+	 * provided instance (an IllegalStateException will be thrown).
+	 */
+	public synchronized ScheduledExecutorService getCoarseScheduledExecutorService() {
+		if(coarseExecutor == null) {
+			coarseExecutor = new SharedTimerWheelScheduledExecutorService(getTimerWheel(), normalExecutor);
+		}
+		return coarseExecutor;
+	}
+	
+	/**
+	 * Provides the named, bounded executor lane of a subsystem, such as {@link #ENDPOINT_LANE}. All
+	 * lanes run on one work-stealing pool of {@code lanePoolSize} threads, but no lane runs more than
+	 * its {@code lane.<name>.maxThreads} tasks at once, nor queues more than its
+	 * {@code lane.<name>.maxQueueDepth} tasks; beyond that the submitting thread runs the task,
+	 * unless {@code lane.<name>.callerRuns} is {@code false}, the default for {@link #ENDPOINT_LANE}.
+	 * Each lane records its queue depth and the queue and run times of its tasks.
+	 * Note that since lanes are shared, it is illegal to attempt to shut down the
+	 * provided instance (an IllegalStateException will be thrown).
+	 */
+	public synchronized ExecutorLane getExecutorLane(String laneName) {
+		ExecutorLane lane = lanes.get(laneName);
+		if(lane == null) {
+			if(lanePool == null) {
+				lanePool = new ForkJoinPool(getLanePoolSize(), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+					public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+						ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+						thread.setName("JxtaLaneWorker-" + thread.getPoolIndex());
+						return thread;
+					}
+				}, null, true);
+			}
+			lane = new ExecutorLane(laneName, lanePool, monitoringExecutor,
+			                        getLaneMaxThreads(laneName, lanePool.getParallelism()),
+			                        getLaneMaxQueueDepth(laneName),
+			                        getLaneCallerRuns(laneName));
+			lanes.put(laneName, lane);
+		}
+		return lane;
+	}
+	
+	/**
+	 * @return the executor lanes provided so far.
+	 */
+	public synchronized Collection<ExecutorLane> getExecutorLanes() {
+		return new ArrayList<ExecutorLane>(lanes.values());
+	}
+	
 	/**
 	 * Provides a ScheduledExecutorService which the client can safely shut down independently
 	 * of any other ScheduledExecutor provided by this class.
 	 * 
-	 * NOTE: the current implementation of local scheduled executors incurs a cost of an additional
-	 * thread per service. Please refrain from this unless you genuinely require your own
-	 * executor service.
+	 * The tasks are scheduled on the shared timer wheel, so local scheduled executors cost no
+	 * thread of their own, but their resolution is one tick of the wheel : they are meant for
+	 * coarse, periodic or timeout tasks.
 	 */
 	public ScheduledExecutorService getLocalScheduledExecutorService(String serviceName) {
 		synchronized(proxiedExecutors) {
 			ProxiedScheduledExecutorService service = proxiedExecutors.get(serviceName);
 			if(service == null) {
-				service = new ProxiedScheduledExecutorService(serviceName, normalExecutor);
+				service = new ProxiedScheduledExecutorService(getTimerWheel(), normalExecutor);
 				proxiedExecutors.put(serviceName, service);
 			}
 			return service;
@@ -161,6 +276,24 @@ public class TaskManager {
 		if(!started) {
 			throw new IllegalStateException("Task manager is already shut down");
 		}
+		synchronized(this) {
+			if(coarseExecutor != null) {
+				coarseExecutor.shutdownNowShared();
+				coarseExecutor = null;
+			}
+			if(timerWheel != null) {
+				timerWheel.stop();
+				timerWheel = null;
+			}
+			for(ExecutorLane lane : lanes.values()) {
+				lane.shutdownShared();
+			}
+			lanes.clear();
+			if(lanePool != null) {
+				lanePool.shutdown();
+				lanePool = null;
+			}
+		}
 		normalExecutor.shutdownShared();
 		scheduledExecutor.shutdownShared();
 		monitoringExecutor.shutdownNow();
@@ -0,0 +1,514 @@
+package net.jxta.impl.util.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ScheduledExecutorService implementation which schedules its tasks on a
+ * shared {@link HashedTimerWheel} and runs them on another executor when they
+ * are due. Scheduling and cancelling are O(1) whatever the number of pending
+ * tasks, at the cost of a resolution of one tick of the wheel, so this is
+ * meant for coarse timeouts.
+ * <p>
+ * Many of these may share one wheel. Shutting one down only affects its own
+ * tasks : on {@link #shutdown()} its delayed tasks still run but its periodic
+ * tasks are cancelled, on {@link #shutdownNow()} all its tasks are cancelled.
+ * The executor does not keep its tasks, the wheel finds them by the executor
+ * they were scheduled with when shutting down.
+ */
+public class TimerWheelScheduledExecutorService extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    /**
+     * Wheel used for scheduling.
+     */
+    private final HashedTimerWheel wheel;
+
+    /**
+     * Executor running the tasks when they are due.
+     */
+    private final Executor targetExec;
+
+    /**
+     * Number of the scheduled tasks which are neither done nor cancelled.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * Whether all the tasks are cancelled, not only the periodic ones.
+     */
+    private volatile boolean shutdownNow = false;
+
+    /**
+     * Hands the expired tasks to the target executor, on the wheel thread.
+     */
+    private final Executor dispatcher = new Executor() {
+        public void execute(final Runnable command) {
+            WheelFuture<?> future = (WheelFuture<?>) command;
+
+            try {
+                targetExec.execute(future);
+            } catch (RejectedExecutionException rejected) {
+                future.reject(rejected);
+            }
+        }
+    };
+
+    /**
+     * Creates a scheduled executor service which schedules on the given wheel
+     * and runs the tasks on the given executor.
+     *
+     * @param wheel the wheel used for scheduling.
+     * @param targetExecutor executor to run the tasks on.
+     */
+    public TimerWheelScheduledExecutorService(final HashedTimerWheel wheel, final Executor targetExecutor) {
+        this.wheel = wheel;
+        this.targetExec = targetExecutor;
+    }
+
+    /**
+     * @return the number of tasks which are scheduled and neither done nor
+     * cancelled.
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ScheduledExecutorService interface methods:
+
+    /**
+     * {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+        return start(new WheelFuture<Object>(command, 0), unit.toNanos(delay));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit) {
+        return start(new WheelFuture<V>(callable, 0), unit.toNanos(delay));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period, final TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be > 0");
+        }
+
+        return start(new WheelFuture<Object>(command, unit.toNanos(period)), unit.toNanos(initialDelay));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay, final TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be > 0");
+        }
+
+        return start(new WheelFuture<Object>(command, -unit.toNanos(delay)), unit.toNanos(initialDelay));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ExecutorService interface methods:
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute(final Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+
+        targetExec.execute(command);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Delayed tasks still run, periodic tasks are cancelled.
+     */
+    public void shutdown() {
+        shutdown = true;
+
+        for (WheelFuture<?> future : pendingTasks()) {
+            if (future.isPeriodic()) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * All the pending tasks are cancelled.
+     */
+    public List<Runnable> shutdownNow() {
+        shutdownNow = true;
+        shutdown = true;
+
+        List<Runnable> cancelled = new ArrayList<Runnable>();
+
+        for (WheelFuture<?> future : pendingTasks()) {
+            if (future.cancel(false)) {
+                cancelled.add(future);
+            }
+        }
+
+        return cancelled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isTerminated() {
+        return shutdown && (0 == getPendingCount());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                return false;
+            }
+
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+        }
+
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Private methods:
+
+    private <V> WheelFuture<V> start(final WheelFuture<V> future, final long delayNanos) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+
+        pendingCount.incrementAndGet();
+        future.arm(System.nanoTime(), clamp(delayNanos));
+
+        // Shut down while being armed, the wheel may not have returned it.
+        if (shutdown && (shutdownNow || future.isPeriodic())) {
+            future.cancel(false);
+        }
+
+        return future;
+    }
+
+    private List<WheelFuture<?>> pendingTasks() {
+        List<WheelFuture<?>> tasks = new ArrayList<WheelFuture<?>>();
+
+        for (Runnable task : wheel.getPendingTasks(dispatcher)) {
+            tasks.add((WheelFuture<?>) task);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * A task scheduled on the wheel. It is its own timeout so that a task
+     * costs a single object, a task lives about as long as a coarse timeout
+     * and most are cancelled before they run.
+     */
+    private final class WheelFuture<V> extends HashedTimerWheel.Timeout implements RunnableScheduledFuture<V> {
+
+        private static final int NOT_DONE = 0;
+        private static final int DONE_RAN = 1;
+        private static final int DONE_FAILED = 2;
+        private static final int DONE_CANCELLED = 3;
+
+        /**
+         * The task, a {@link Runnable} or a {@link Callable}.
+         */
+        private final Object task;
+
+        /**
+         * {@code 0} for a one shot task, positive for a fixed rate, negative
+         * for a fixed delay.
+         */
+        private final long period;
+
+        /**
+         * When the task is next due, in {@link System#nanoTime()} terms.
+         */
+        private volatile long deadline;
+
+        /**
+         * {@code NOT_DONE} until the task has completed or was cancelled.
+         * Changed while holding this.
+         */
+        private volatile int outcome = NOT_DONE;
+
+        /**
+         * The result or the failure of the task. Guarded by this.
+         */
+        private Object result = null;
+
+        /**
+         * The thread running the task. Guarded by this.
+         */
+        private Thread runner = null;
+
+        /**
+         * Whether a thread waits for the outcome, most never have any.
+         * Guarded by this.
+         */
+        private boolean waiting = false;
+
+        WheelFuture(final Object task, final long period) {
+            super(wheel, null, dispatcher);
+            if (null == task) {
+                throw new NullPointerException("task");
+            }
+
+            this.task = task;
+            this.period = period;
+        }
+
+        @Override
+        Runnable getTask() {
+            return this;
+        }
+
+        /**
+         * Schedules the next run on the wheel, due after the given delay.
+         */
+        void arm(final long now, final long delayNanos) {
+            deadline = now + delayNanos;
+
+            try {
+                wheel.scheduleTimeout(this, now, delayNanos);
+            } catch (IllegalStateException stopped) {
+                complete(DONE_FAILED, new RejectedExecutionException("Timer wheel has been stopped", stopped));
+                return;
+            }
+
+            if (isCancelled()) {
+                // cancelled while being armed
+                super.cancel();
+            }
+        }
+
+        public boolean isPeriodic() {
+            return 0 != period;
+        }
+
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(final Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+
+            long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+
+            return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+        }
+
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            Thread interrupt = null;
+
+            if (mayInterruptIfRunning) {
+                synchronized (this) {
+                    interrupt = runner;
+                }
+            }
+
+            if (!complete(DONE_CANCELLED, null)) {
+                return false;
+            }
+
+            super.cancel();
+
+            if (null != interrupt) {
+                interrupt.interrupt();
+            }
+
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return DONE_CANCELLED == outcome;
+        }
+
+        public boolean isDone() {
+            return NOT_DONE != outcome;
+        }
+
+        public V get() throws InterruptedException, ExecutionException {
+            synchronized (this) {
+                while (NOT_DONE == outcome) {
+                    waiting = true;
+                    wait();
+                }
+            }
+
+            return report();
+        }
+
+        public V get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long until = System.nanoTime() + unit.toNanos(timeout);
+
+            synchronized (this) {
+                while (NOT_DONE == outcome) {
+                    long remaining = until - System.nanoTime();
+
+                    if (remaining <= 0) {
+                        throw new TimeoutException();
+                    }
+
+                    waiting = true;
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+
+            return report();
+        }
+
+        /**
+         * Runs the task, on the target executor. A periodic task which
+         * completes normally is armed again.
+         */
+        @SuppressWarnings("unchecked")
+        public void run() {
+            synchronized (this) {
+                if ((NOT_DONE != outcome) || (null != runner)) {
+                    return;
+                }
+
+                runner = Thread.currentThread();
+            }
+
+            Object value = null;
+            Throwable failure = null;
+
+            try {
+                if (task instanceof Runnable) {
+                    ((Runnable) task).run();
+                } else {
+                    value = ((Callable<V>) task).call();
+                }
+            } catch (Throwable all) {
+                failure = all;
+            }
+
+            synchronized (this) {
+                runner = null;
+            }
+
+            if (null != failure) {
+                complete(DONE_FAILED, failure);
+            } else if (!isPeriodic()) {
+                complete(DONE_RAN, value);
+            } else if (!isDone()) {
+                deadline = (period > 0) ? deadline + period : System.nanoTime() - period;
+
+                if (shutdown) {
+                    cancel(false);
+                } else {
+                    long now = System.nanoTime();
+
+                    arm(now, deadline - now);
+                }
+            }
+        }
+
+        void reject(final RejectedExecutionException rejected) {
+            complete(DONE_FAILED, rejected);
+        }
+
+        /**
+         * Completes the future unless it already completed.
+         *
+         * @return {@code true} if the future was completed now.
+         */
+        private boolean complete(final int completion, final Object value) {
+            synchronized (this) {
+                if (NOT_DONE != outcome) {
+                    return false;
+                }
+
+                outcome = completion;
+                result = value;
+                if (waiting) {
+                    notifyAll();
+                }
+            }
+
+            pendingCount.decrementAndGet();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized V report() throws ExecutionException {
+            switch (outcome) {
+                case DONE_RAN:
+                    return (V) result;
+
+                case DONE_FAILED:
+                    throw new ExecutionException((Throwable) result);
+
+                default:
+                    throw new CancellationException();
+            }
+        }
+    }
+
+    /**
+     * Bounds a delay so that adding it to {@link System#nanoTime()} does not
+     * overflow, as {@link TimeUnit#toNanos(long)} saturates far delays to
+     * {@link Long#MAX_VALUE}.
+     */
+    private static long clamp(final long delayNanos) {
+        return Math.min(Math.max(0, delayNanos), Long.MAX_VALUE >> 1);
+    }
+
+    /**
+     * Runs tasks in the calling thread. Used as target executor the tasks run
+     * on the thread of the wheel, so they must only hand work off.
+     */
+    enum DirectExecutor implements Executor {
+        INSTANCE;
+
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package net.jxta.platform;
+
+import java.util.Collection;
+
+/**
+ * A Module which declares the other modules of its group which must be
+ * started before its {@link Module#startApp(String[])} method is invoked.
+ * <p/>
+ * Peer groups which know the dependencies of their modules may start the
+ * modules which do not depend on each other in parallel rather than retrying
+ * every module until all of them have started. The declaration is only an
+ * optimization: a module must still return {@link Module#START_AGAIN_STALLED}
+ * if a service it needs is missing when it is started.
+ */
+public interface DependentModule extends Module {
+
+    /**
+     * Returns the class IDs of the modules of the group which must have
+     * started before this module is started. Dependencies on modules which
+     * the group does not load are ignored.
+     *
+     * @return the class IDs of the modules this module depends upon, never
+     * {@code null}.
+     */
+    public Collection<ModuleClassID> getStartDependencies();
+}
@@ -77,7 +77,7 @@ import net.jxta.impl.endpoint.EndpointServiceImpl;
 import net.jxta.impl.membership.pse.PSECredential;
 import net.jxta.impl.membership.pse.PSEMembershipService;
 import net.jxta.impl.membership.pse.PSEUtils;
-import net.jxta.impl.util.pipe.reliable.FixedFlowControl;
+import net.jxta.impl.util.pipe.reliable.FlowControl;
 import net.jxta.impl.util.pipe.reliable.Outgoing;
 import net.jxta.impl.util.pipe.reliable.OutgoingMsgrAdaptor;
 import net.jxta.impl.util.pipe.reliable.ReliableInputStream;
@@ -220,6 +220,14 @@ public class JxtaSocket extends Socket implements PipeMsgListener, OutputPipeLis
      */
     protected int windowSize = 20;
 
+    /**
+     * The name of the reliable flow control module or {@code null} for the
+     * default.
+     *
+     * @see FlowControl#newFlowControl(String, int)
+     */
+    protected String flowControl = null;
+
     /**
      * Lock for output pipe resolution.
      */
@@ -1023,7 +1031,7 @@ public class JxtaSocket extends Socket implements PipeMsgListener, OutputPipeLis
         if (isReliable) {
             outgoing = makeOutgoing(remoteEphemeralPipeMsgr, retryTimeout);
             ris = new ReliableInputStream(group, outgoing, soTimeout, isEncrypt, inputStreamCipher, localSecretKey);
-            ros = new ReliableOutputStream(group, outgoing, new FixedFlowControl(windowSize), group.getTaskManager().getScheduledExecutorService(), isEncrypt, outputStreamCipher, remoteSecretKey);
+            ros = new ReliableOutputStream(group, outgoing, FlowControl.newFlowControl(flowControl, windowSize), group.getTaskManager().getScheduledExecutorService(), isEncrypt, outputStreamCipher, remoteSecretKey);
             try {
                 ros.setSendBufferSize(outputBufferSize);
             } catch (IOException ignored) {// it's only a preference...
@@ -1679,6 +1687,35 @@ public class JxtaSocket extends Socket implements PipeMsgListener, OutputPipeLis
         this.windowSize = windowSize;
     }
 
+    /**
+     * When in reliable mode, gets the name of the Reliable library flow
+     * control module.
+     *
+     * @return The flow control module name or {@code null} for the default.
+     */
+    public String getFlowControl() {
+        return flowControl;
+    }
+
+    /**
+     * When in reliable mode, sets the Reliable library flow control module.
+     *
+     * @param flowControl One of {@link FlowControl#FIXED},
+     * {@link FlowControl#ADAPTIVE} or {@link FlowControl#CUBIC} or
+     * {@code null} for the default.
+     * @throws SocketException if the socket is already bound
+     */
+    public void setFlowControl(String flowControl) throws SocketException {
+        if (isBound()) {
+            throw new SocketException("Socket bound. Can not change the flow control");
+        }
+        if (null != flowControl) {
+            // Fail now rather than when connecting.
+            FlowControl.newFlowControl(flowControl, windowSize);
+        }
+        this.flowControl = flowControl;
+    }
+
     /**
      * Returns the closed state of the JxtaSocket.
      *
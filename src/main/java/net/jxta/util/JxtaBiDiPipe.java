@@ -65,7 +65,7 @@ import net.jxta.endpoint.*;
 import net.jxta.id.ID;
 import net.jxta.impl.endpoint.tcp.TcpMessenger;
 import net.jxta.impl.util.pipe.reliable.Defs;
-import net.jxta.impl.util.pipe.reliable.FixedFlowControl;
+import net.jxta.impl.util.pipe.reliable.FlowControl;
 import net.jxta.impl.util.pipe.reliable.OutgoingMsgrAdaptor;
 import net.jxta.impl.util.pipe.reliable.ReliableInputStream;
 import net.jxta.impl.util.pipe.reliable.ReliableOutputStream;
@@ -562,7 +562,7 @@ public class JxtaBiDiPipe implements PipeMsgListener, OutputPipeListener, Reliab
                 outgoing = new OutgoingMsgrAdaptor(msgr, retryTimeout);
             }
             if (ros == null) {
-                ros = new ReliableOutputStream(group, outgoing, new FixedFlowControl(windowSize), group.getTaskManager().getScheduledExecutorService());
+                ros = new ReliableOutputStream(group, outgoing, FlowControl.newFlowControl(null, windowSize), group.getTaskManager().getScheduledExecutorService());
             }
             if (ris == null) {
                 ris = new ReliableInputStream(group, outgoing, retryTimeout, this);
@@ -0,0 +1,113 @@
+package net.jxse.systemtests.colocated;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.endpoint.Message;
+import net.jxta.pipe.PipeMsgEvent;
+import net.jxta.pipe.PipeMsgListener;
+import net.jxta.platform.NetworkManager;
+
+/**
+ * Sends messages from bob to alice on a pipe and waits for alice to echo
+ * them back, measuring the round trips.
+ */
+public class EchoTester {
+
+	private final BlockingQueue<Message> echoed = new LinkedBlockingQueue<Message>();
+	private final PipeEnds ends;
+
+	public EchoTester(NetworkManager alice, NetworkManager bob) throws Exception {
+		final PipeEnds[] endsRef = new PipeEnds[1];
+
+		PipeMsgListener aliceListener = new PipeMsgListener() {
+			public void pipeMsgEvent(PipeMsgEvent event) {
+				try {
+					endsRef[0].acceptedEnd.sendMessage(event.getMessage());
+				} catch(Exception e) {
+					System.err.println("Failed to echo message : " + e);
+				}
+			}
+		};
+
+		PipeMsgListener bobListener = new PipeMsgListener() {
+			public void pipeMsgEvent(PipeMsgEvent event) {
+				echoed.offer(event.getMessage());
+			}
+		};
+
+		endsRef[0] = SystemTestUtils.createBiDiPipe(alice, bob, aliceListener, bobListener, 15L, TimeUnit.SECONDS);
+		ends = endsRef[0];
+	}
+
+	/**
+	 * Sends the messages one at a time, each once the previous one came back.
+	 *
+	 * @return the round trip time of each message, in milliseconds.
+	 */
+	public long[] roundTrips(int numRoundTrips) throws Exception {
+		long[] millis = new long[numRoundTrips];
+
+		for(int i=0; i < numRoundTrips; i++) {
+			long start = System.nanoTime();
+			send(SystemTestUtils.createMessage("" + i));
+			Message reply = echoed.poll(30L, TimeUnit.SECONDS);
+			assertNotNull("No echo received for message " + i, reply);
+			assertEquals("" + i, SystemTestUtils.getMessageString(reply));
+			millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		}
+
+		return millis;
+	}
+
+	/**
+	 * Sends the messages back to back and waits for all of the echoes.
+	 *
+	 * @return the time until the last echo arrived, in milliseconds.
+	 */
+	public long burst(int numMessages) throws Exception {
+		Set<String> outstanding = new HashSet<String>();
+		long start = System.nanoTime();
+
+		for(int i=0; i < numMessages; i++) {
+			outstanding.add("burst" + i);
+			send(SystemTestUtils.createMessage("burst" + i));
+		}
+
+		while(!outstanding.isEmpty()) {
+			Message reply = echoed.poll(30L, TimeUnit.SECONDS);
+			assertNotNull("No echo received for " + outstanding, reply);
+			outstanding.remove(SystemTestUtils.getMessageString(reply));
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private void send(Message msg) throws Exception {
+		while(ends.clientEnd.sendMessage(msg) != true) {
+			Thread.yield();
+		}
+	}
+
+	public static long average(long[] millis) {
+		long total = 0;
+		for(long each : millis) {
+			total += each;
+		}
+		return total / millis.length;
+	}
+
+	public static long max(long[] millis) {
+		long max = 0;
+		for(long each : millis) {
+			max = Math.max(max, each);
+		}
+		return max;
+	}
+}
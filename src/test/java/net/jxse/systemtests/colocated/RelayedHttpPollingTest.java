@@ -0,0 +1,65 @@
+package net.jxse.systemtests.colocated;
+
+import net.jxse.systemtests.colocated.configs.PeerConfigurator;
+import net.jxta.platform.NetworkManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Echoes messages between two HTTP clients relayed through a local Jetty
+ * based HTTP relay, with the polling back channel, for comparison with
+ * {@link RelayedHttpStreamingTest}.
+ */
+public class RelayedHttpPollingTest {
+
+	static {
+		// Read when the messengers are created. Each test class runs in its own VM.
+		System.setProperty("net.jxta.impl.endpoint.servlethttp.HttpClientMessenger.streaming", "false");
+	}
+
+	private static final int NUM_ROUND_TRIPS = 20;
+
+	private static final int BURST_SIZE = 50;
+
+	@Rule
+	public TemporaryFolder tempStorage = new TemporaryFolder();
+
+	private NetworkManager relayManager;
+	private NetworkManager aliceManager;
+	private NetworkManager bobManager;
+
+	@Before
+	public void initPeers() throws Exception {
+		relayManager = PeerConfigurator.createHttpRdvRelayPeer("relay", 50000, tempStorage);
+		aliceManager = PeerConfigurator.createHttpClientPeer("alice", relayManager, tempStorage);
+		bobManager = PeerConfigurator.createHttpClientPeer("bob", relayManager, tempStorage);
+
+		relayManager.startNetwork();
+		aliceManager.startNetwork();
+		bobManager.startNetwork();
+
+		Thread.sleep(5000);
+	}
+
+	@After
+	public void killPeers() throws Exception {
+		aliceManager.stopNetwork();
+		bobManager.stopNetwork();
+		relayManager.stopNetwork();
+	}
+
+	@Test(timeout=180000)
+	public void testPollingBackChannel() throws Exception {
+		EchoTester tester = new EchoTester(aliceManager, bobManager);
+
+		long[] roundTrips = tester.roundTrips(NUM_ROUND_TRIPS);
+		System.out.println("Polling back channel : average round trip " + EchoTester.average(roundTrips) + " ms, worst " + EchoTester.max(roundTrips) + " ms");
+
+		long burstMillis = tester.burst(BURST_SIZE);
+		System.out.println("Polling back channel : burst of " + BURST_SIZE + " echoed in " + burstMillis + " ms");
+	}
+}
@@ -0,0 +1,81 @@
+package net.jxse.systemtests.colocated;
+
+import static org.junit.Assert.assertTrue;
+
+import net.jxse.systemtests.colocated.configs.PeerConfigurator;
+import net.jxta.platform.NetworkManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Echoes messages between two HTTP clients relayed through a local Jetty
+ * based HTTP relay, with the streaming back channel. The back channel is
+ * held open, so no message waits for the client to poll again.
+ * <p/>
+ * {@link RelayedHttpPollingTest} measures the polling back channel. Each
+ * relay is started in its own class, see {@link RelayedCommsTest}.
+ */
+public class RelayedHttpStreamingTest {
+
+	static {
+		// Read when the messengers are created. Each test class runs in its own VM.
+		System.setProperty("net.jxta.impl.endpoint.servlethttp.HttpClientMessenger.streaming", "true");
+	}
+
+	/**
+	 * The minimum interval between two polls of the HTTP client.
+	 */
+	private static final long MINIMUM_POLL_INTERVAL = 5000;
+
+	private static final int NUM_ROUND_TRIPS = 20;
+
+	private static final int BURST_SIZE = 50;
+
+	@Rule
+	public TemporaryFolder tempStorage = new TemporaryFolder();
+
+	private NetworkManager relayManager;
+	private NetworkManager aliceManager;
+	private NetworkManager bobManager;
+
+	@Before
+	public void initPeers() throws Exception {
+		relayManager = PeerConfigurator.createHttpRdvRelayPeer("relay", 50000, tempStorage);
+		aliceManager = PeerConfigurator.createHttpClientPeer("alice", relayManager, tempStorage);
+		bobManager = PeerConfigurator.createHttpClientPeer("bob", relayManager, tempStorage);
+
+		relayManager.startNetwork();
+		aliceManager.startNetwork();
+		bobManager.startNetwork();
+
+		Thread.sleep(5000);
+	}
+
+	@After
+	public void killPeers() throws Exception {
+		aliceManager.stopNetwork();
+		bobManager.stopNetwork();
+		relayManager.stopNetwork();
+	}
+
+	@Test(timeout=180000)
+	public void testStreamingBackChannel() throws Exception {
+		EchoTester tester = new EchoTester(aliceManager, bobManager);
+
+		long[] roundTrips = tester.roundTrips(NUM_ROUND_TRIPS);
+		System.out.println("Streaming back channel : average round trip " + EchoTester.average(roundTrips) + " ms, worst " + EchoTester.max(roundTrips) + " ms");
+
+		// Each message goes out on the open stream, never after a new poll.
+		assertTrue("A message waited for a poll", EchoTester.max(roundTrips) < MINIMUM_POLL_INTERVAL);
+
+		// Messages queued while the stream is busy follow on the same stream.
+		long burstMillis = tester.burst(BURST_SIZE);
+		System.out.println("Streaming back channel : burst of " + BURST_SIZE + " echoed in " + burstMillis + " ms");
+
+		assertTrue("The burst waited for a poll", burstMillis < MINIMUM_POLL_INTERVAL);
+	}
+}
@@ -680,6 +680,55 @@ public class MessageTest {
         } catch (ConcurrentModificationException failed) {}
     }
 
+	@Test
+    public void testCloneCopyOnWrite() {
+        Message msg1 = new Message();
+
+        MessageElement elm1 = new StringMessageElement("element1", "test1", null);
+        MessageElement elm2 = new StringMessageElement("element2", "test2", null);
+        MessageElement elm3 = new StringMessageElement("element3", "test3", null);
+
+        msg1.addMessageElement(elm1);
+        msg1.addMessageElement("not-default", elm2);
+
+        Message msg2 = msg1.clone();
+        Message msg3 = msg2.clone();
+
+        assertTrue("clone should have been equal()", msg1.equals(msg2));
+
+        // adding to the clone must not change the original
+        msg2.addMessageElement("not-default", elm3);
+
+        assertSame("element should have been added", elm3, msg2.getMessageElement("not-default", "element3"));
+        assertNull("original should not have been changed", msg1.getMessageElement("not-default", "element3"));
+        assertNull("clone of clone should not have been changed", msg3.getMessageElement("not-default", "element3"));
+
+        // removing from the original must not change the clones
+        assertTrue("element should have been removed", msg1.removeMessageElement("not-default", elm2));
+
+        assertNull("element should have been removed", msg1.getMessageElement("not-default", "element2"));
+        assertSame("clone should not have been changed", elm2, msg2.getMessageElement("not-default", "element2"));
+        assertSame("clone of clone should not have been changed", elm2, msg3.getMessageElement("not-default", "element2"));
+
+        // replacing in the clone of the clone must not change the others
+        Message.ElementIterator elements = msg3.getMessageElements();
+
+        assertSame("should have returned elm1", elm1, elements.next());
+        elements.set(elm3);
+
+        assertSame("element should have been replaced", elm3, msg3.getMessageElement("element3"));
+        assertSame("original should not have been changed", elm1, msg1.getMessageElement("element1"));
+        assertSame("clone should not have been changed", elm1, msg2.getMessageElement("element1"));
+
+        // clearing a clone must not change the original
+        Message msg4 = msg1.clone();
+
+        msg4.clear();
+
+        assertTrue("clone should have been cleared", !msg4.getMessageElements().hasNext());
+        assertSame("original should not have been changed", elm1, msg1.getMessageElement("element1"));
+    }
+
 	@Test
     public void testMessageSerialization() {
         Message msg1 = new Message();
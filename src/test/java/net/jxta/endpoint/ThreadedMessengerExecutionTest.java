@@ -0,0 +1,274 @@
+package net.jxta.endpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.Test;
+
+/**
+ * Sends messages to many destinations through {@link ThreadedMessenger}s
+ * driven by dedicated threads, by a shared pool and by virtual threads, checks
+ * that the messages of each destination are sent in order and reports the
+ * peak number of threads and the context switches of each mode.
+ */
+public class ThreadedMessengerExecutionTest {
+
+    private static final int DESTINATIONS = 300;
+    private static final int MESSAGES = 20;
+    private static final int SHARED_THREADS = 8;
+
+    @Test(timeout=120000)
+    public void testDedicatedThreads() throws Exception {
+        int threads = runMessengers("dedicated threads", null);
+
+        // one thread per destination with work
+        assertTrue(threads > SHARED_THREADS);
+    }
+
+    @Test(timeout=120000)
+    public void testSharedPool() throws Exception {
+        ExecutorService pool = MessengerExecution.newSharedExecutor(SHARED_THREADS);
+
+        try {
+            int threads = runMessengers("shared pool", pool);
+
+            assertTrue("too many threads : " + threads, threads <= SHARED_THREADS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(timeout=120000)
+    public void testVirtualThreads() throws Exception {
+        if (!MessengerExecution.isVirtualSupported()) {
+            System.out.println("virtual threads are not supported by this JVM");
+            return;
+        }
+
+        ExecutorService virtual = MessengerExecution.newVirtualExecutor();
+
+        try {
+            runMessengers("virtual threads", virtual);
+        } finally {
+            virtual.shutdownNow();
+        }
+    }
+
+    @Test(timeout=60000)
+    public void testRejectedSend() throws Exception {
+        RejectingExecutor executor = new RejectingExecutor();
+
+        try {
+            RecordingMessenger messenger = new RecordingMessenger(new EndpointAddress("test", "rejected", null, null), executor, new CountDownLatch(1));
+
+            assertTrue(messenger.sendMessageN(new Message(), "service", null));
+            waitForState(messenger, Messenger.CONNECTED);
+            assertEquals(1, messenger.sent.size());
+
+            executor.rejecting = true;
+
+            // The send could not be scheduled, the messenger must not remain sending.
+            messenger.sendMessageN(new Message(), "service", null);
+            assertEquals(Messenger.CONNECTED, messenger.getState());
+            assertEquals(1, messenger.sent.size());
+
+            messenger.close();
+            assertEquals(Messenger.CLOSED, messenger.getState());
+        } finally {
+            executor.pool.shutdownNow();
+        }
+    }
+
+    @Test(timeout=60000)
+    public void testRejectedConnect() throws Exception {
+        RejectingExecutor executor = new RejectingExecutor();
+
+        executor.rejecting = true;
+
+        try {
+            RecordingMessenger messenger = new RecordingMessenger(new EndpointAddress("test", "rejected", null, null), executor, new CountDownLatch(1));
+
+            messenger.sendMessageN(new Message(), "service", null);
+            assertTrue("state " + messenger.getState(), (messenger.getState() & Messenger.TERMINAL) != 0);
+        } finally {
+            executor.pool.shutdownNow();
+        }
+    }
+
+    private static void waitForState(Messenger messenger, int state) throws InterruptedException {
+        while (messenger.getState() != state) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * @return the number of threads started while sending.
+     */
+    private int runMessengers(String mode, Executor executor) throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        CountDownLatch done = new CountDownLatch(DESTINATIONS);
+        List<RecordingMessenger> messengers = new ArrayList<RecordingMessenger>();
+        List<List<Message>> expected = new ArrayList<List<Message>>();
+
+        for (int each = 0; each < DESTINATIONS; each++) {
+            EndpointAddress destination = new EndpointAddress("test", "destination" + each, null, null);
+
+            messengers.add(new RecordingMessenger(destination, executor, done));
+            expected.add(new ArrayList<Message>());
+        }
+
+        long switchesBefore = contextSwitches();
+        int threadsBefore = threadBean.getThreadCount();
+
+        threadBean.resetPeakThreadCount();
+        long start = System.nanoTime();
+
+        for (int round = 0; round < MESSAGES; round++) {
+            for (int each = 0; each < DESTINATIONS; each++) {
+                Message msg = new Message();
+
+                expected.get(each).add(msg);
+                assertTrue(messengers.get(each).sendMessageN(msg, "service", null));
+            }
+        }
+
+        assertTrue("messages were not sent", done.await(60, TimeUnit.SECONDS));
+
+        long elapsed = System.nanoTime() - start;
+        int threads = threadBean.getPeakThreadCount() - threadsBefore;
+        long switches = contextSwitches() - switchesBefore;
+
+        for (int each = 0; each < DESTINATIONS; each++) {
+            assertEquals("out of order for destination " + each, expected.get(each), messengers.get(each).sent);
+            messengers.get(each).close();
+        }
+
+        System.out.printf("%s : %d messages to %d destinations in %d ms, %d threads started, %s context switches%n",
+                mode, DESTINATIONS * MESSAGES, DESTINATIONS, TimeUnit.NANOSECONDS.toMillis(elapsed), threads,
+                (switches < 0) ? "unknown" : Long.toString(switches));
+
+        return threads;
+    }
+
+    /**
+     * @return the context switches of this process so far or -1 if unknown.
+     */
+    private static long contextSwitches() throws IOException {
+        File tasks = new File("/proc/self/task");
+        File[] threads = tasks.listFiles();
+
+        if (null == threads) {
+            return -1;
+        }
+
+        long total = 0;
+
+        for (File thread : threads) {
+            BufferedReader status;
+
+            try {
+                status = new BufferedReader(new FileReader(new File(thread, "status")));
+            } catch (IOException gone) {
+                // the thread has exited
+                continue;
+            }
+
+            try {
+                String line;
+
+                while (null != (line = status.readLine())) {
+                    if (line.startsWith("voluntary_ctxt_switches:") || line.startsWith("nonvoluntary_ctxt_switches:")) {
+                        total += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+                    }
+                }
+            } finally {
+                status.close();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Runs tasks on a single thread until told to reject them, as a shut down
+     * or saturated pool does.
+     */
+    private static class RejectingExecutor implements Executor {
+
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        volatile boolean rejecting = false;
+
+        public void execute(Runnable task) {
+            if (rejecting) {
+                throw new RejectedExecutionException("rejecting");
+            }
+
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Records the messages it sends, spending a little time on each as if it
+     * wrote them to a connection.
+     */
+    private static class RecordingMessenger extends ThreadedMessenger {
+
+        final List<Message> sent = new ArrayList<Message>();
+
+        private final CountDownLatch done;
+
+        RecordingMessenger(EndpointAddress destination, Executor executor, CountDownLatch done) {
+            super(PeerGroupID.defaultNetPeerGroupID, destination, null, MESSAGES, executor);
+            this.done = done;
+        }
+
+        @Override
+        protected void closeImpl() {
+        }
+
+        @Override
+        protected boolean connectImpl() {
+            return true;
+        }
+
+        @Override
+        protected void sendMessageBImpl(Message msg, String service, String param) throws IOException {
+            try {
+                Thread.sleep(0, 100000);
+            } catch (InterruptedException woken) {
+                Thread.interrupted();
+            }
+
+            synchronized (sent) {
+                sent.add(msg);
+
+                if (sent.size() == MESSAGES) {
+                    done.countDown();
+                }
+            }
+        }
+
+        @Override
+        protected EndpointAddress getLogicalDestinationImpl() {
+            return getDestinationAddress();
+        }
+    }
+}
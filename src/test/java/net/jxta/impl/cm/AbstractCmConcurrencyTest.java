@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import net.jxta.impl.util.threads.TaskManager;
 
@@ -17,6 +18,7 @@ public abstract class AbstractCmConcurrencyTest {
 
     private static final int NUM_CACHES = 8;
     private static final int NUM_OPERATIONS = 1000;
+    private static final int BULK_SIZE = 10;
 
     protected TaskManager taskManager;
 
@@ -35,6 +37,15 @@ public abstract class AbstractCmConcurrencyTest {
 
     @Test
     public void testConcurrentSafety_randomLoad() throws Exception {
+        runRandomLoad(1);
+    }
+
+    @Test
+    public void testConcurrentSafety_randomBulkLoad() throws Exception {
+        runRandomLoad(BULK_SIZE);
+    }
+
+    private void runRandomLoad(int bulkSize) throws Exception {
 
         CacheManager[] caches = new CacheManager[NUM_CACHES];
         for(int i=0; i < caches.length; i++) {
@@ -46,15 +57,19 @@ public abstract class AbstractCmConcurrencyTest {
 
         CountDownLatch completionLatch = new CountDownLatch(NUM_CACHES);
 
-        System.out.println("Starting random testers");
+        System.out.println("Starting random testers, " + bulkSize + " advertisement(s) per save");
+        long start = System.nanoTime();
         CmRandomLoadTester[] testers = new CmRandomLoadTester[NUM_CACHES];
         for(int i=0; i < testers.length; i++) {
-            testers[i] = new CmRandomLoadTester(caches[i], NUM_OPERATIONS, completionLatch);
+            testers[i] = new CmRandomLoadTester(caches[i], NUM_OPERATIONS, bulkSize, completionLatch);
             new Thread(testers[i]).start();
         }
 
         System.out.println("Awaiting completion");
         completionLatch.await();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(getClass().getSimpleName() + ": " + (NUM_CACHES * NUM_OPERATIONS) + " operations, "
+                + bulkSize + " advertisement(s) per save, in " + elapsedMillis + "ms");
 
         for(int i=0; i < testers.length; i++) {
             assertTrue("Tester " + i + " failed", testers[i].isSuccessful());
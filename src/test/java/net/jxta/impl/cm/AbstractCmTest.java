@@ -367,6 +367,34 @@ public abstract class AbstractCmTest {
     	assertEquals(20000L, cm.getLifetime("a", "b"));
     }
     
+    @Test
+    public void testSaveAll() throws Exception {
+        List<AdvertisementCache.Publication> publications = new ArrayList<AdvertisementCache.Publication>();
+        publications.add(new AdvertisementCache.Publication("a", "b", createPeerAdvert(groupId, "Peer1"), 100000, 200000));
+        publications.add(new AdvertisementCache.Publication("a", "c", createPeerAdvert(groupId, "Peer2"), 150000, 200000));
+        // replaces the first publication of "b"
+        publications.add(new AdvertisementCache.Publication("a", "b", createPeerAdvert(groupId, "Peer3"), 160000, 200000));
+
+        cm.saveAll(publications);
+
+        assertEquals(2, cm.getRecords("a", 10, null).size());
+        assertEquals(160000L, cm.getLifetime("a", "b"));
+        assertEquals(0, cm.search("a", "Name", "Peer1", 10, null).size());
+        checkContains(extractNames(cm.search("a", "Name", "Peer*", 10, null)), "Peer2", "Peer3");
+    }
+
+    @Test
+    public void testSaveAll_replacesIndexFields() throws Exception {
+        cm.save("a", "b", createPeerAdvert(groupId, "Peer1"), 100000, 200000);
+
+        List<AdvertisementCache.Publication> publications = new ArrayList<AdvertisementCache.Publication>();
+        publications.add(new AdvertisementCache.Publication("a", "b", createPeerAdvert(groupId, "Peer2"), 100000, 200000));
+        cm.saveAll(publications);
+
+        assertEquals(0, cm.search("a", "Name", "Peer1", 10, null).size());
+        assertEquals(1, cm.search("a", "Name", "Peer2", 10, null).size());
+    }
+
     @Test
     public void testSearch_exactMatch() throws IOException {
     	cm.save("a", "b", adv, 100000, 200000);
@@ -417,6 +445,24 @@ public abstract class AbstractCmTest {
     	checkContains(extractNames(results), "Peer1", "Peer2", "Peer3", "Peer4", "SuperPeerX", "other");
     }
 
+	@Test
+    public void testSearch_sqlWildcardsMatchedLiterally() throws IOException {
+    	cm.save("a", "b", createPeerAdvert(groupId, "Peer_1"), 100000, 200000);
+    	cm.save("a", "c", createPeerAdvert(groupId, "Peer%2"), 100000, 200000);
+    	cm.save("a", "d", createPeerAdvert(groupId, "PeerX3"), 100000, 200000);
+    	
+    	List<InputStream> results = cm.search("a", "Name", "Peer_*", 10, null);
+    	assertEquals(1, results.size());
+    	checkContains(extractNames(results), "Peer_1");
+    	
+    	results = cm.search("a", "Name", "*%2", 10, null);
+    	assertEquals(1, results.size());
+    	checkContains(extractNames(results), "Peer%2");
+    	
+    	assertEquals(1, cm.search("a", "Name", "Peer_1", 10, null).size());
+    	assertEquals(0, cm.search("a", "Name", "Peer_3", 10, null).size());
+    }
+
 	private void createTestData() throws IOException {
 		cm.save("a", "b", createPeerAdvert(groupId, "Peer1"), 100000, 200000);
     	cm.save("a", "c", createPeerAdvert(groupId, "Peer2"), 150000, 200000);
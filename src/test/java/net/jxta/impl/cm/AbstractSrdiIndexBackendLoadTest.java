@@ -140,7 +140,7 @@ public abstract class AbstractSrdiIndexBackendLoadTest {
 		writer.write("\r\n");
 	}
 	
-	private PeerGroup createGroup(final PeerGroupID groupId, final String name) {
+	protected PeerGroup createGroup(final PeerGroupID groupId, final String name) {
 		final PeerGroup group = mockContext.mock(PeerGroup.class, name);
 		mockContext.checking(new Expectations() {{
 			ignoring(group).getStoreHome(); will(returnValue(storeRoot.toURI()));
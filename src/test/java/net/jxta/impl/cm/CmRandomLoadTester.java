@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
+import net.jxta.discovery.DiscoveryService;
 import net.jxta.document.AdvertisementFactory;
 import net.jxta.id.IDFactory;
 import net.jxta.peergroup.PeerGroupID;
@@ -44,6 +45,7 @@ public class CmRandomLoadTester implements Runnable {
 	
 	private final CacheManager advCache;
 	private final int numOps;
+	private final int bulkSize;
 	private boolean successful = false;
 	
 	private CountDownLatch completionLatch;
@@ -54,8 +56,18 @@ public class CmRandomLoadTester implements Runnable {
 	private Map<String, String> peerNameForDnAndFn;
 	
 	public CmRandomLoadTester(CacheManager advCache, int numOps, CountDownLatch completionLatch) {
+		this(advCache, numOps, 1, completionLatch);
+	}
+	
+	/**
+	 * @param bulkSize the number of advertisements written by each save operation.
+	 * When greater than one the advertisements are saved with
+	 * {@link CacheManager#saveAll(List)}.
+	 */
+	public CmRandomLoadTester(CacheManager advCache, int numOps, int bulkSize, CountDownLatch completionLatch) {
 		this.advCache = advCache;
 		this.numOps = numOps;
+		this.bulkSize = bulkSize;
 		this.completionLatch = completionLatch;
 		
 		expectedCounts = new HashMap<String, Integer>();
@@ -79,12 +91,17 @@ public class CmRandomLoadTester implements Runnable {
 		try {
 			for(int i=0; i < numOps; i++) {
 				if(Math.random() < 0.8) {
-				    // save peer
-				    String dn = randomDirectory();
-				    String fn = randomFile();
-				    String peerName = randomPeerName();
+				    if(bulkSize > 1) {
+				        // save peers, as from a discovery response
+				        addAll();
+				    } else {
+				        // save peer
+				        String dn = randomDirectory();
+				        String fn = randomFile();
+				        String peerName = randomPeerName();
 				 
-				    add(dn, fn, peerName);
+				        add(dn, fn, peerName);
+				    }
 				} else {
 				    // remove
 				    ArrayList<String> directories = new ArrayList<String>();
@@ -148,6 +165,23 @@ public class CmRandomLoadTester implements Runnable {
         advCache.save(dn, fn, adv);
     }
 
+    private void addAll() throws IOException {
+        List<AdvertisementCache.Publication> publications = new ArrayList<AdvertisementCache.Publication>(bulkSize);
+        for(int i=0; i < bulkSize; i++) {
+            String dn = randomDirectory();
+            String fn = randomFile();
+            String peerName = randomPeerName();
+
+            PeerAdvertisement adv = createPeerAdvert(PeerGroupID.defaultNetPeerGroupID, peerName);
+            expectedCounts.put(dn, expectedCounts.get(dn)+1);
+            expectedFilesInDirectory.get(dn).add(fn);
+            modifyPeerNameCount(dn, peerName, +1);
+            peerNameForDnAndFn.put(dn+'/'+fn, peerName);
+            publications.add(new AdvertisementCache.Publication(dn, fn, adv, DiscoveryService.INFINITE_LIFETIME, DiscoveryService.NO_EXPIRATION));
+        }
+        advCache.saveAll(publications);
+    }
+
     private void remove(String dn, String fn) throws IOException {
         expectedFilesInDirectory.get(dn).remove(fn);
         expectedCounts.put(dn, expectedCounts.get(dn)-1);
@@ -1,6 +1,18 @@
 package net.jxta.impl.cm;
 
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import net.jxta.id.IDFactory;
+import net.jxta.impl.cm.srdi.inmemory.SearchIndex;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroupID;
+
 import org.junit.Ignore;
+import org.junit.Test;
 
 //Make sure your don;t use the default JUNIT VM args to run this test or you'll get OOM
 //I use -XX:MaxPermSize=256m -Xms256m -Xmx512m
@@ -12,9 +24,60 @@ import org.junit.Ignore;
 public class InMemorySrdiLoadTest extends
 		AbstractSrdiIndexBackendLoadTest {
 
+	private static final String TRIGRAM_ATTRIBUTES_SYSPROP = SearchIndex.class.getName() + ".trigramAttributes";
+
 	@Override
 	protected String getSrdiIndexBackendClassname() {
 		return InMemorySrdi.class.getName();
 	}
 
+	/*
+	 * Infix queries such as *foo* cannot use the prefix of the value to narrow the search through
+	 * the ternary trees. Compares the query times with and without the trigram index.
+	 */
+	@Test
+	public void testQuery_infixWildcard() throws IOException {
+		String oldTrigramAttributes = System.getProperty(TRIGRAM_ATTRIBUTES_SYSPROP);
+		try {
+			System.clearProperty(TRIGRAM_ATTRIBUTES_SYSPROP);
+			measureInfixQueries("tree");
+
+			System.setProperty(TRIGRAM_ATTRIBUTES_SYSPROP, "Name");
+			measureInfixQueries("trigram");
+		} finally {
+			if(oldTrigramAttributes != null) {
+				System.setProperty(TRIGRAM_ATTRIBUTES_SYSPROP, oldTrigramAttributes);
+			} else {
+				System.clearProperty(TRIGRAM_ATTRIBUTES_SYSPROP);
+			}
+		}
+	}
+
+	private void measureInfixQueries(String label) throws IOException {
+		Srdi index = new Srdi(createGroup(PeerGroupID.defaultNetPeerGroupID, "group"), "infix_" + label);
+		Random r = new Random(42);
+		int numEntries = 100000;
+		String[] values = new String[numEntries];
+
+		for(int i=0; i < numEntries; i++) {
+			values[i] = "peer-" + String.format("%016x", r.nextLong());
+			index.add("Peers", "Name", values[i], IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID), Long.MAX_VALUE);
+		}
+
+		StatsTracker queryTimeTracker = new StatsTracker();
+		for(int i=0; i < 1000; i++) {
+			String value = values[r.nextInt(numEntries)];
+			int start = 5 + r.nextInt(value.length() - 9);
+			String query = "*" + value.substring(start, start + 4) + "*";
+
+			long startTime = System.nanoTime();
+			List<PeerID> result = index.query("Peers", "Name", query, 10);
+			long endTime = System.nanoTime();
+			assertFalse(result.isEmpty());
+			queryTimeTracker.addResult(endTime - startTime);
+		}
+
+		System.out.printf("Infix query times (%s) - mean: %.1f ns, min: %.1f, max: %.1f, stdev: %.3f\n", label, queryTimeTracker.getMean(), queryTimeTracker.getMin(), queryTimeTracker.getMax(), queryTimeTracker.getStdDev());
+		index.stop();
+	}
 }
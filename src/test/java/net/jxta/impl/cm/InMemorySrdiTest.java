@@ -1,8 +1,11 @@
 package net.jxta.impl.cm;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import net.jxta.impl.cm.Srdi.Entry;
+import net.jxta.impl.util.WarmRestartSnapshot;
+import net.jxta.peer.PeerID;
 import net.jxta.peergroup.PeerGroup;
 import net.jxta.peergroup.PeerGroupID;
 
@@ -102,4 +105,74 @@ public class InMemorySrdiTest extends AbstractSrdiIndexBackendTest {
         // assertContains(group2IndexRestarted.query("a", "b", "c", NO_THRESHOLD), PEER_ID);
         assertContains( srdiIndexForGroup2.query( "a", "b", "c", -1 ), PEER_ID );
     }
+
+    @Test
+    public void testVisitRecords_skipsExpiredEntries() throws Exception {
+
+        InMemorySrdi backend = new InMemorySrdi( group1, "visitIndex" );
+
+        backend.add( "a", "b", "c", PEER_ID, 10000L );
+        backend.add( "a", "d", null, PEER_ID_2, 5000L );
+        backend.add( "a", "b", "x", PEER_ID_3, 20000L );
+        backend.remove( PEER_ID_3 );
+
+        clock.currentTime = 6000L;
+
+        final List<Entry> visited = new ArrayList<Entry>();
+
+        backend.visitRecords( new EnumerableSrdiAPI.Visitor() {
+            public void visit( String primaryKey, String attribute, String value, PeerID pid, long expiration ) {
+
+                assertEquals( "a", primaryKey );
+                assertEquals( "b", attribute );
+                assertEquals( "c", value );
+                visited.add( new Entry( pid, expiration ) );
+            }
+        } );
+
+        assertEquals( 1, visited.size() );
+        assertEquals( PEER_ID, visited.get( 0 ).peerid );
+        assertEquals( 10000L, visited.get( 0 ).expiration );
+
+        backend.stop();
+    }
+
+    @Test
+    public void testWarmRestart_restoresLiveEntries() throws Exception {
+
+        mockContext.checking( new Expectations() {{
+                    ignoring( group1 ).getStoreHome();
+                    will( returnValue( testFileStore.getRoot().toURI() ) );
+                    ignoring( group1 ).getPeerGroupID();
+                    will( returnValue( GROUP_ID_1 ) );
+                }} );
+
+        System.setProperty( WarmRestartSnapshot.ENABLED_SYSPROP, "true" );
+
+        try {
+
+            Srdi before = new Srdi( group1, "warmIndex", Srdi.NO_AUTO_GC );
+
+            before.add( "a", "b", "c", PEER_ID, 10000L );
+            before.add( "a", "b", "c", PEER_ID_2, 1000L );
+            before.stop();
+
+            clock.currentTime = 2000L;
+
+            Srdi after = new Srdi( group1, "warmIndex", Srdi.NO_AUTO_GC );
+
+            assertContains( after.getRecord( "a", "b", "c" ), comparator, new Entry( PEER_ID, 10000L ) );
+            assertEquals( 1, after.getRecord( "a", "b", "c" ).size() );
+            after.stop();
+
+            // A snapshot is only used once.
+            Srdi again = new Srdi( group1, "warmIndex", Srdi.NO_AUTO_GC );
+
+            assertTrue( again.getRecord( "a", "b", "c" ).isEmpty() );
+            again.stop();
+        } finally {
+
+            System.clearProperty( WarmRestartSnapshot.ENABLED_SYSPROP );
+        }
+    }
 }
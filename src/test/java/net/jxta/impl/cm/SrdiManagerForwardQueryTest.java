@@ -0,0 +1,194 @@
+package net.jxta.impl.cm;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.jxta.id.IDFactory;
+import net.jxta.impl.protocol.ResolverQuery;
+import net.jxta.impl.resolver.QuerySessions;
+import net.jxta.impl.resolver.ResolverServiceImpl;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.protocol.ResolverQueryMsg;
+import net.jxta.rendezvous.RendezVousService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Forwards queries through a {@link SrdiManager} whose resolver tracks query
+ * sessions, and checks which peers the queries are sent to.
+ */
+public class SrdiManagerForwardQueryTest {
+
+    private static final String MAX_IN_FLIGHT = "2";
+
+    private PeerID local;
+    private List<PeerID> peers;
+    private final List<String> sentTo = new ArrayList<String>();
+    private String previousMaxInFlight;
+    private SrdiManager srdiManager;
+
+    @Before
+    public void setUp() {
+        previousMaxInFlight = System.setProperty(QuerySessions.MAX_IN_FLIGHT_SYSPROP, MAX_IN_FLIGHT);
+
+        local = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+        peers = new ArrayList<PeerID>();
+
+        for (int each = 0; each < 4; each++) {
+            peers.add(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+        }
+
+        final QuerySessions sessions = new QuerySessions(local);
+        final ResolverServiceImpl resolver = new ResolverServiceImpl() {
+            @Override
+            public QuerySessions getQuerySessions() {
+                return sessions;
+            }
+
+            @Override
+            public void sendQuery(String destPeer, ResolverQueryMsg query) {
+                sentTo.add(destPeer);
+            }
+        };
+        final RendezVousService rendezvous = newProxy(RendezVousService.class, null);
+
+        PeerGroup group = newProxy(PeerGroup.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getResolverService".equals(method.getName())) {
+                    return resolver;
+                } else if ("getRendezVousService".equals(method.getName())) {
+                    return rendezvous;
+                } else if ("getPeerID".equals(method.getName())) {
+                    return local;
+                } else if ("getPeerGroupName".equals(method.getName())) {
+                    return "test";
+                }
+
+                return defaultValue(method);
+            }
+        });
+
+        srdiManager = new SrdiManager(group, "handler", null, null);
+    }
+
+    @After
+    public void tearDown() {
+        srdiManager.stop();
+
+        if (null == previousMaxInFlight) {
+            System.clearProperty(QuerySessions.MAX_IN_FLIGHT_SYSPROP);
+        } else {
+            System.setProperty(QuerySessions.MAX_IN_FLIGHT_SYSPROP, previousMaxInFlight);
+        }
+    }
+
+    @Test
+    public void testForwardToReplicaIsNotCapped() {
+        PeerID replica = peers.get(0);
+
+        for (int each = 0; each < 10; each++) {
+            srdiManager.forwardQuery(replica, newQuery(peers.get(3), each));
+        }
+
+        assertEquals(Collections.nCopies(10, replica.toString()), sentTo);
+    }
+
+    @Test
+    public void testForwardToReplicaSkipsDuplicates() {
+        PeerID replica = peers.get(0);
+
+        srdiManager.forwardQuery(replica, newQuery(peers.get(3), 1));
+        srdiManager.forwardQuery(replica, newQuery(peers.get(3), 1));
+        srdiManager.forwardQuery(peers.get(1), newQuery(peers.get(3), 1));
+
+        assertEquals(Arrays.asList(replica.toString(), peers.get(1).toString()), sentTo);
+    }
+
+    @Test
+    public void testForwardToPeersSkipsCappedPeers() {
+        List<PeerID> one = Collections.singletonList(peers.get(0));
+
+        srdiManager.forwardQuery(one, newQuery(local, 1));
+        srdiManager.forwardQuery(one, newQuery(local, 2));
+        assertEquals(2, sentTo.size());
+
+        // the other peers get our query.
+        srdiManager.forwardQuery(peers, newQuery(local, 3));
+        assertEquals(5, sentTo.size());
+        assertFalse(sentTo.subList(2, 5).contains(peers.get(0).toString()));
+
+        // unless there is no other.
+        srdiManager.forwardQuery(one, newQuery(local, 4));
+        assertEquals(peers.get(0).toString(), sentTo.get(5));
+    }
+
+    @Test
+    public void testForwardedQueriesAreNotCapped() {
+        List<PeerID> one = Collections.singletonList(peers.get(0));
+
+        // Far more than the in flight cap within its timeout. The responses go to their source.
+        for (int each = 0; each < 100; each++) {
+            srdiManager.forwardQuery(one, newQuery(peers.get(3), each));
+        }
+
+        assertEquals(Collections.nCopies(100, peers.get(0).toString()), sentTo);
+    }
+
+    @Test
+    public void testForwardStopsAfterTwoHops() {
+        ResolverQueryMsg query = newQuery(peers.get(3), 1);
+
+        query.incrementHopCount();
+        query.incrementHopCount();
+        srdiManager.forwardQuery(peers.get(0), query);
+
+        assertTrue(sentTo.isEmpty());
+    }
+
+    private ResolverQueryMsg newQuery(PeerID src, int queryId) {
+        ResolverQueryMsg query = new ResolverQuery();
+
+        query.setHandlerName("handler");
+        query.setSrcPeer(src);
+        query.setQueryId(queryId);
+        query.setQuery("query");
+        return query;
+    }
+
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        if (null == handler) {
+            handler = new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return defaultValue(method);
+                }
+            };
+        }
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+
+        if (boolean.class == type) {
+            return Boolean.FALSE;
+        } else if (int.class == type) {
+            return 0;
+        } else if (long.class == type) {
+            return 0L;
+        }
+
+        return null;
+    }
+}
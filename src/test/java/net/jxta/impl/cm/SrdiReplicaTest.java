@@ -55,13 +55,23 @@
  */
 package net.jxta.impl.cm;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import net.jxta.id.IDFactory;
 import net.jxta.impl.util.JxtaHash;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroupID;
 
 /**
  * A SrdiGetReplica unit test
@@ -73,6 +83,8 @@ public class SrdiReplicaTest{
     private static final int ITERATIONS = 10;
     private static final int SIZE = 100;
     private static final String TSTSTR = "This is only a Test, nothing else";
+    private static final int RING_VIEW_SIZE = 50;
+    private static final int RING_KEYS = 20000;
 
 
     /**
@@ -110,6 +122,60 @@ public class SrdiReplicaTest{
         }
     }
 
+    @Test
+    public void testKeysMovedWhenRendezvousJoins() {
+        List<PeerID> view = new ArrayList<PeerID>();
+        for (int i = 0; i < RING_VIEW_SIZE; i++) {
+            view.add(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+        }
+        sortLikeGlobalView(view);
+
+        PeerID joining = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+        List<PeerID> grown = new ArrayList<PeerID>(view);
+        grown.add(joining);
+        sortLikeGlobalView(grown);
+
+        ConsistentHashRing<PeerID> before = new ConsistentHashRing<PeerID>(view, 128);
+        ConsistentHashRing<PeerID> after = new ConsistentHashRing<PeerID>(grown, 128);
+
+        int ringMoved = 0;
+        int legacyMoved = 0;
+
+        for (int i = 0; i < RING_KEYS; i++) {
+            String key = "Peers" + "Name" + TSTSTR + i;
+
+            PeerID owner = before.get(key);
+            PeerID newOwner = after.get(key);
+            if (!owner.equals(newOwner)) {
+                // Keys may only move to the rendezvous which joined.
+                assertEquals(joining, newOwner);
+                ringMoved++;
+            }
+
+            if (!view.get(getReplica2(key, view.size())).equals(grown.get(getReplica2(key, grown.size())))) {
+                legacyMoved++;
+            }
+        }
+
+        double ringFraction = (double) ringMoved / RING_KEYS;
+        double legacyFraction = (double) legacyMoved / RING_KEYS;
+
+        System.out.println("Keys moved when a rendezvous joins a view of " + RING_VIEW_SIZE + " : ring "
+                + ringFraction + ", positional " + legacyFraction);
+
+        // Ideally 1/51 of the keys.
+        assertTrue("ring moved " + ringFraction, ringFraction < 0.05);
+        assertTrue("ring moved " + ringFraction + " positional " + legacyFraction, ringFraction < legacyFraction);
+    }
+
+    private static void sortLikeGlobalView(List<PeerID> view) {
+        Collections.sort(view, new Comparator<PeerID>() {
+            public int compare(PeerID a, PeerID b) {
+                return a.toString().compareTo(b.toString());
+            }
+        });
+    }
+
     /* 2.0 Replica Function */
     private int getReplica1(String expression, int size) {
         jxtaHash.update(expression);
@@ -0,0 +1,60 @@
+package net.jxta.impl.cm.sql;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import net.jxta.impl.cm.AbstractCmTest;
+
+import org.junit.Test;
+
+/**
+ * Extends the advertisement cache tests with checks that searches on the SQL
+ * backends are answered from the value indexes rather than by scanning the
+ * index fields.
+ */
+public abstract class AbstractJdbcCmTest extends AbstractCmTest {
+
+	private static final int NUM_ADVERTS = 500;
+
+	private void createIndexedData() throws IOException {
+		for(int i=0; i < NUM_ADVERTS; i++) {
+			cm.save("a", "f" + i, createPeerAdvert(groupId, "Peer" + i), 100000, 200000);
+			cm.save("b", "f" + i, createPeerAdvert(groupId, "Peer" + i), 100000, 200000);
+		}
+	}
+
+	private String explainSearch(String value) throws IOException {
+		return ((JdbcAdvertisementCache) wrappedCache).explainSearch("a", "Name", value).toUpperCase(Locale.ENGLISH);
+	}
+
+	@Test
+	public void testExactSearchUsesValueIndex() throws IOException {
+		createIndexedData();
+
+		assertEquals(1, cm.search("a", "Name", "Peer42", 10, null).size());
+		String plan = explainSearch("Peer42");
+		assertTrue(plan, plan.contains("INDEXFIELDVALUEINDEX"));
+	}
+
+	@Test
+	public void testPrefixSearchUsesValueIndex() throws IOException {
+		createIndexedData();
+
+		// Peer42 and Peer420 to Peer429
+		assertEquals(11, cm.search("a", "Name", "Peer42*", NUM_ADVERTS, null).size());
+		String plan = explainSearch("Peer42*");
+		assertTrue(plan, plan.contains("INDEXFIELDVALUEINDEX"));
+	}
+
+	@Test
+	public void testSuffixSearchUsesReversedValueIndex() throws IOException {
+		createIndexedData();
+
+		// Peer42, Peer142, ... Peer442
+		assertEquals(5, cm.search("a", "Name", "*42", NUM_ADVERTS, null).size());
+		String plan = explainSearch("*42");
+		assertTrue(plan, plan.contains("INDEXFIELDREVERSEDVALUEINDEX"));
+	}
+}
@@ -0,0 +1,104 @@
+package net.jxta.impl.cm.sql;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.document.AdvertisementFactory;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.cm.AdvertisementCache;
+import net.jxta.impl.cm.XIndiceAdvertisementCache;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.protocol.PeerAdvertisement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compares the time taken by exact, prefix, suffix and contains searches on
+ * the XIndice, H2 and Derby advertisement caches.
+ */
+@Ignore("Load comparison, takes several minutes")
+public class CmSearchLoadComparisonTest {
+
+	private static final int NUM_ADVERTS = 10000;
+	private static final int NUM_SEARCHES = 1000;
+	private static final int BATCH_SIZE = 100;
+
+	private static final String[] QUERIES = { "Peer4242", "Peer42*", "*4242", "*424*" };
+
+	@Rule
+	public TemporaryFolder testFileStore = new TemporaryFolder();
+
+	private TaskManager taskManager;
+
+	@Before
+	public void initTaskManager() {
+		taskManager = new TaskManager();
+	}
+
+	@After
+	public void shutdownTaskManager() {
+		taskManager.shutdown();
+	}
+
+	@Test
+	public void testSearchLoad() throws IOException {
+		runSearchLoad(new XIndiceAdvertisementCache(testFileStore.newFolder("xindice").toURI(), "testArea", taskManager));
+		runSearchLoad(new H2AdvertisementCache(testFileStore.newFolder("h2").toURI(), "testArea", taskManager));
+		runSearchLoad(new DerbyAdvertisementCache(testFileStore.newFolder("derby").toURI(), "testArea", taskManager));
+	}
+
+	private void runSearchLoad(AdvertisementCache cache) throws IOException {
+		String name = cache.getClass().getSimpleName();
+		PeerGroupID groupId = IDFactory.newPeerGroupID();
+
+		try {
+			long start = System.nanoTime();
+			List<AdvertisementCache.Publication> batch = new ArrayList<AdvertisementCache.Publication>(BATCH_SIZE);
+			for(int i=0; i < NUM_ADVERTS; i++) {
+				batch.add(new AdvertisementCache.Publication("a", "f" + i, createPeerAdvert(groupId, "Peer" + i), 1000000, 1000000));
+				if(batch.size() == BATCH_SIZE) {
+					cache.saveAll(batch);
+					batch.clear();
+				}
+			}
+			cache.saveAll(batch);
+			System.out.println(name + ": saved " + NUM_ADVERTS + " advertisements in " + elapsedMillis(start) + "ms");
+
+			for(String query : QUERIES) {
+				start = System.nanoTime();
+				int found = 0;
+				for(int i=0; i < NUM_SEARCHES; i++) {
+					found = cache.search("a", "Name", query, Integer.MAX_VALUE, null).size();
+				}
+				assertTrue("no results for " + query, found > 0);
+				System.out.println(name + ": " + NUM_SEARCHES + " searches for " + query + " (" + found + " results) in " + elapsedMillis(start) + "ms");
+			}
+		} finally {
+			cache.stop();
+		}
+	}
+
+	private long elapsedMillis(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private PeerAdvertisement createPeerAdvert(PeerGroupID pgID, String peerName) {
+		PeerAdvertisement peerAdv = (PeerAdvertisement)
+		AdvertisementFactory.newAdvertisement(PeerAdvertisement.getAdvertisementType());
+
+		peerAdv.setPeerGroupID(pgID);
+		peerAdv.setPeerID(IDFactory.newPeerID(pgID));
+		peerAdv.setName(peerName);
+		return peerAdv;
+	}
+}
@@ -1,11 +1,10 @@
 package net.jxta.impl.cm.sql;
 
-import net.jxta.impl.cm.AbstractCmTest;
 import net.jxta.impl.cm.AdvertisementCache;
 import org.junit.Ignore;
 
 @Ignore("Very long test: 10 min")
-public class DerbyAdvertisementCacheTest extends AbstractCmTest {
+public class DerbyAdvertisementCacheTest extends AbstractJdbcCmTest {
 
 	@Override
 	public AdvertisementCache createWrappedCache(String areaName) throws Exception {
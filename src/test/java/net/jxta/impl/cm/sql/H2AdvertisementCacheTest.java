@@ -1,9 +1,8 @@
 package net.jxta.impl.cm.sql;
 
-import net.jxta.impl.cm.AbstractCmTest;
 import net.jxta.impl.cm.AdvertisementCache;
 
-public class H2AdvertisementCacheTest extends AbstractCmTest {
+public class H2AdvertisementCacheTest extends AbstractJdbcCmTest {
 
 	@Override
 	public AdvertisementCache createWrappedCache(String areaName) throws Exception {
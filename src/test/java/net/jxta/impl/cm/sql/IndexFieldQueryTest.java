@@ -0,0 +1,72 @@
+package net.jxta.impl.cm.sql;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class IndexFieldQueryTest {
+
+	@Test
+	public void testExactValue() {
+		IndexFieldQuery query = new IndexFieldQuery("Peer1");
+		assertTrue(query.sql.contains("IndexField.value = ?"));
+		assertFalse(query.sql.contains("LIKE"));
+		assertEquals(Collections.singletonList("Peer1"), query.getValueParameters());
+	}
+
+	@Test
+	public void testPrefixIsValueRange() {
+		IndexFieldQuery query = new IndexFieldQuery("Peer*");
+		assertTrue(query.sql.contains("IndexField.value >= ?"));
+		assertTrue(query.sql.contains("IndexField.value < ?"));
+		assertFalse(query.sql.contains("LIKE"));
+		assertEquals(Arrays.asList("Peer", "Pees"), query.getValueParameters());
+	}
+
+	@Test
+	public void testSuffixIsReversedValueRange() {
+		IndexFieldQuery query = new IndexFieldQuery("*PeerX");
+		assertTrue(query.sql.contains("IndexField.reversedValue >= ?"));
+		assertTrue(query.sql.contains("IndexField.reversedValue < ?"));
+		assertFalse(query.sql.contains("LIKE"));
+		assertEquals(Arrays.asList("XreeP", "XreeQ"), query.getValueParameters());
+	}
+
+	@Test
+	public void testInnerWildcardsRestrictedByRange() {
+		IndexFieldQuery query = new IndexFieldQuery("P*r1");
+		assertTrue(query.sql.contains("IndexField.value >= ?"));
+		assertTrue(query.sql.contains("LIKE"));
+		assertEquals(Arrays.asList("P", "Q", "P%r1"), query.getValueParameters());
+
+		query = new IndexFieldQuery("*ee*1");
+		assertTrue(query.sql.contains("IndexField.reversedValue >= ?"));
+		assertEquals(Arrays.asList("1", "2", "%ee%1"), query.getValueParameters());
+	}
+
+	@Test
+	public void testContainsAndMatchAnything() {
+		IndexFieldQuery query = new IndexFieldQuery("*Peer*");
+		assertFalse(query.sql.contains(">="));
+		assertEquals(Collections.singletonList("%Peer%"), query.getValueParameters());
+
+		query = new IndexFieldQuery("*");
+		assertFalse(query.sql.contains("IndexField.value"));
+		assertTrue(query.getValueParameters().isEmpty());
+	}
+
+	@Test
+	public void testLikeMetacharactersEscaped() {
+		assertEquals("a\\%b\\_c\\\\%", IndexFieldQuery.toLikePattern("a%b_c\\*"));
+	}
+
+	@Test
+	public void testUpperBound() {
+		assertEquals("ab", IndexFieldQuery.upperBound("aa"));
+		assertEquals("b", IndexFieldQuery.upperBound("a\uffff"));
+		assertNull(IndexFieldQuery.upperBound("\uffff\uffff"));
+	}
+}
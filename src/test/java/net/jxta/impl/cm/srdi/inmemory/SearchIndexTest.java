@@ -0,0 +1,154 @@
+package net.jxta.impl.cm.srdi.inmemory;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.jxta.id.IDFactory;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+	private static final String[] QUERIES = { "*ab*", "*abc*", "*bca", "*a*bc*", "*cab*c", "*abcd*", "*zzz*", "*", "ab*" };
+
+	@Test
+	public void testTrigramSearchMatchesTreeSearch() {
+		SearchIndex tree = new SearchIndex("tree", Collections.<String>emptySet());
+		SearchIndex trigram = new SearchIndex("trigram", Collections.singleton("Name"));
+		Random r = new Random(7);
+
+		for(int i=0; i < 2000; i++) {
+			String value = randomValue(r);
+			PeerID peer = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+			tree.update(new SearchKey("Peers", "Name", value), new PeerIdKey(peer), Long.MAX_VALUE);
+			trigram.update(new SearchKey("Peers", "Name", value), new PeerIdKey(peer), Long.MAX_VALUE);
+			// an attribute with the same values under another primary key must not be matched
+			trigram.update(new SearchKey("Other", "Name", value), new PeerIdKey(peer), Long.MAX_VALUE);
+		}
+
+		for(String query : QUERIES) {
+			SearchKey key = new SearchKey("Peers", "Name", query);
+			assertEquals(query, asSet(tree.search(key, -1, false)), asSet(trigram.search(key, -1, false)));
+		}
+	}
+
+	@Test
+	public void testRemovedValueNotFound() {
+		SearchIndex index = new SearchIndex("trigram", Collections.singleton("Name"));
+		PeerIdKey peer = new PeerIdKey(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+		SearchKey key = new SearchKey("Peers", "Name", "SuperPeerX");
+
+		index.update(key, peer, Long.MAX_VALUE);
+		assertEquals(1, index.search(new SearchKey("Peers", "Name", "*PeerX"), -1, false).size());
+		assertEquals(1, index.search(new SearchKey("Peers", "Name", "*erPe*"), -1, false).size());
+
+		assertTrue(index.remove(key, peer));
+		assertEquals(0, index.search(new SearchKey("Peers", "Name", "*erPe*"), -1, false).size());
+	}
+
+	@Test
+	public void testMatches() {
+		assertTrue(TrigramIndex.matches("abcabc", "*bca*"));
+		assertTrue(TrigramIndex.matches("abcabc", "a*c"));
+		assertTrue(TrigramIndex.matches("abcabc", "*abc"));
+		assertFalse(TrigramIndex.matches("abc", "*abc*abc"));
+		assertFalse(TrigramIndex.matches("abca", "*abc"));
+		assertTrue(TrigramIndex.matches("abc", "abc"));
+	}
+
+	@Test
+	public void testCompactTreesAfterRemovals() {
+		SearchIndex compact = new SearchIndex("compact", Collections.<String>emptySet(), true);
+		Map<PeerIdKey, String> registered = new HashMap<PeerIdKey, String>();
+		Random r = new Random(11);
+
+		for(int round=0; round < 4; round++) {
+			for(int i=0; i < 1000; i++) {
+				String value = randomValue(r);
+				PeerIdKey peer = new PeerIdKey(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+				assertNull(compact.update(new SearchKey("Peers", "Name", value), peer, Long.MAX_VALUE));
+				registered.put(peer, value);
+			}
+
+			// remove half of the registrations so that freed nodes are reused by the next round
+			Iterator<Map.Entry<PeerIdKey, String>> each = registered.entrySet().iterator();
+			while(each.hasNext()) {
+				Map.Entry<PeerIdKey, String> registration = each.next();
+				if(r.nextBoolean()) {
+					assertTrue(compact.remove(new SearchKey("Peers", "Name", registration.getValue()), registration.getKey()));
+					each.remove();
+				}
+			}
+
+			for(String query : QUERIES) {
+				Set<PeerID> expected = new HashSet<PeerID>();
+				for(Map.Entry<PeerIdKey, String> registration : registered.entrySet()) {
+					if(TrigramIndex.matches(registration.getValue(), query)) {
+						expected.add(registration.getKey().getPeerID());
+					}
+				}
+
+				assertEquals(query, expected, asSet(compact.search(new SearchKey("Peers", "Name", query), -1, false)));
+			}
+		}
+	}
+
+	@Test
+	public void testPeerExpirations() {
+		PeerExpirations expirations = new PeerExpirations();
+		List<PeerIdKey> peers = new ArrayList<PeerIdKey>();
+
+		for(int i=0; i < 100; i++) {
+			PeerIdKey peer = new PeerIdKey(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+			peers.add(peer);
+			assertEquals(PeerExpirations.NONE, expirations.put(peer, i));
+		}
+
+		assertEquals(100, expirations.size());
+		assertEquals(7L, expirations.put(peers.get(7), 1000L));
+
+		for(int i=0; i < 100; i += 2) {
+			assertTrue(expirations.remove(peers.get(i)));
+			assertFalse(expirations.remove(peers.get(i)));
+		}
+
+		assertEquals(50, expirations.size());
+
+		int found = 0;
+		for(int slot=0; slot < expirations.capacity(); slot++) {
+			PeerIdKey peer = expirations.keyAt(slot);
+			if(peer != null) {
+				int index = peers.indexOf(peer);
+				assertEquals(1, index % 2);
+				assertEquals((index == 7) ? 1000L : index, expirations.expirationAt(slot));
+				found++;
+			}
+		}
+
+		assertEquals(50, found);
+	}
+
+	private String randomValue(Random r) {
+		StringBuilder value = new StringBuilder();
+		int length = 3 + r.nextInt(6);
+		for(int i=0; i < length; i++) {
+			value.append((char) ('a' + r.nextInt(4)));
+		}
+		return value.toString();
+	}
+
+	private Set<PeerID> asSet(List<PeerID> peers) {
+		return new HashSet<PeerID>(peers);
+	}
+}
@@ -0,0 +1,267 @@
+package net.jxta.impl.endpoint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.security.PrivateKey;
+import java.security.cert.CertPath;
+import java.security.cert.CertificateFactory;
+import java.util.Collections;
+import java.util.Set;
+
+import net.jxta.document.MimeMediaType;
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.MessageElement;
+import net.jxta.endpoint.WireFormatMessage;
+import net.jxta.endpoint.WireFormatMessageFactory;
+import net.jxta.id.ID;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.membership.pse.PSECredential;
+import net.jxta.impl.membership.pse.PSEMembershipService;
+import net.jxta.impl.membership.pse.PSEPeerSecurityEngine;
+import net.jxta.impl.membership.pse.PSEUtils;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Exchanges serialized messages between two peers with CBJX MAC sessions
+ * enabled, as a transport which passes the destination peer and checks the
+ * CBJX trailer of received messages would.
+ */
+public class CbjxMacSessionEndToEndTest {
+
+    static {
+        // Read once, when CbjxSessions is loaded. Each test class runs in its own VM.
+        System.setProperty(WireFormatMessageFactory.class.getName() + ".CBJX_HMAC", "true");
+    }
+
+    private static final MimeMediaType TYPE = WireFormatMessageFactory.DEFAULT_WIRE_MIME;
+
+    private TestPeer a;
+    private TestPeer b;
+
+    @Before
+    public void setUp() throws Exception {
+        a = new TestPeer("a");
+        b = new TestPeer("b");
+    }
+
+    @After
+    public void tearDown() {
+        a.stop();
+        b.stop();
+    }
+
+    @Test
+    public void testUnicastMessagesSwitchToMacs() throws Exception {
+        // A offers a session. B accepts it but A does not know B's key yet.
+        byte[] first = a.send(newMessage("one"), b);
+        assertTrue(isSigned(first));
+        assertReceived(b.receive(first), a, "one");
+
+        // B offers a session echoing A's key, so A may use MACs from now on.
+        byte[] reply = b.send(newMessage("two"), a);
+        assertTrue(isSigned(reply));
+        assertReceived(a.receive(reply), b, "two");
+
+        byte[] second = a.send(newMessage("three"), b);
+        assertTrue(!isSigned(second));
+        assertReceived(b.receive(second), a, "three");
+
+        // A's valid MAC shows B that A knows its key.
+        byte[] secondReply = b.send(newMessage("four"), a);
+        assertTrue(!isSigned(secondReply));
+        assertReceived(a.receive(secondReply), b, "four");
+    }
+
+    @Test
+    public void testTamperedMacIsRejected() throws Exception {
+        b.receive(a.send(newMessage("one"), b));
+        a.receive(b.send(newMessage("two"), a));
+
+        byte[] mac = a.send(newMessage("three"), b);
+        assertTrue(!isSigned(mac));
+
+        int payload = indexOf(mac, "three".getBytes());
+        mac[payload] ^= 1;
+
+        Message received = b.receive(mac);
+        assertNull(received.getMessageElement("test", "payload"));
+        assertTrue(((Set<?>) received.getMessageProperty(EndpointServiceImpl.VERIFIED_ADDRESS_SET)).isEmpty());
+    }
+
+    @Test
+    public void testPropagatedMessagesAreSigned() throws Exception {
+        b.receive(a.send(newMessage("one"), b));
+        a.receive(b.send(newMessage("two"), a));
+
+        WireFormatMessage propagated = WireFormatMessageFactory.toWireExternal(newMessage("three"), TYPE, null, a.group);
+        byte[] bytes = toBytes(propagated);
+
+        assertTrue(isSigned(bytes));
+        assertReceived(b.receive(bytes), a, "three");
+    }
+
+    @Test
+    public void testKeyAgreementIsNotPassedOnByUncheckedReads() throws Exception {
+        byte[] offer = a.send(newMessage("one"), b);
+
+        Message unchecked = WireFormatMessageFactory.fromBuffer(ByteBuffer.wrap(offer), TYPE, null);
+
+        assertNotNull(unchecked.getMessageElement("test", "payload"));
+        assertNull(unchecked.getMessageElement("jxta", CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME));
+    }
+
+    private void assertReceived(Message received, TestPeer from, String payload) {
+        MessageElement element = received.getMessageElement("test", "payload");
+
+        assertNotNull(element);
+        assertArrayEquals(payload.getBytes(), element.getBytes(false));
+        assertNull(received.getMessageElement("jxta", CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME));
+
+        Set<?> verified = (Set<?>) received.getMessageProperty(EndpointServiceImpl.VERIFIED_ADDRESS_SET);
+
+        assertNotNull(verified);
+        assertTrue(verified.contains(new EndpointAddress(from.peerID.toURI().toString())));
+        assertEquals(1, ((Set<?>) received.getMessageProperty(EndpointServiceImpl.MESSAGE_SIGNER_SET)).size());
+    }
+
+    /**
+     * @return {@code true} if the CBJX trailer carries a certificate, rather
+     * than the empty certificate of a MAC trailer.
+     */
+    private static boolean isSigned(byte[] serialized) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(serialized);
+
+        // Reading the message leaves the buffer at the trailer.
+        WireFormatMessageFactory.fromBuffer(buffer, TYPE, null);
+
+        return 0 != buffer.getInt();
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int each = 0; each <= data.length - pattern.length; each++) {
+            int matched = 0;
+
+            while ((matched < pattern.length) && (data[each + matched] == pattern[matched])) {
+                matched++;
+            }
+
+            if (matched == pattern.length) {
+                return each;
+            }
+        }
+
+        throw new AssertionError("not found");
+    }
+
+    private static Message newMessage(String payload) {
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new ByteArrayMessageElement("payload", null, payload.getBytes(), null));
+        return msg;
+    }
+
+    private static byte[] toBytes(WireFormatMessage serialized) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        serialized.sendToStream(bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A peer with a self-signed certificate and a CBID peer id derived from
+     * it, as the PSE membership service would create. The membership service
+     * is not initialized from a keystore, its credential and signing engine
+     * are set directly.
+     */
+    private static final class TestPeer {
+
+        final PeerID peerID;
+        final PeerGroup group;
+        final TaskManager taskManager = new TaskManager();
+
+        TestPeer(String name) throws Exception {
+            final PSEUtils.IssuerInfo info = PSEUtils.genCert(name, null);
+
+            peerID = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID, info.cert.getPublicKey().getEncoded());
+
+            final PSEMembershipService membership = new PSEMembershipService();
+
+            group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if ("getPeerID".equals(method.getName())) {
+                        return peerID;
+                    } else if ("getPeerGroupID".equals(method.getName())) {
+                        return PeerGroupID.defaultNetPeerGroupID;
+                    } else if ("getMembershipService".equals(method.getName())) {
+                        return membership;
+                    } else if ("getTaskManager".equals(method.getName())) {
+                        return taskManager;
+                    }
+
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+            PSEPeerSecurityEngine engine = (PSEPeerSecurityEngine) Proxy.newProxyInstance(PSEPeerSecurityEngine.class.getClassLoader(), new Class<?>[] {PSEPeerSecurityEngine.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                    if ("sign".equals(method.getName())) {
+                        return PSEUtils.computeSignature((String) args[0], info.subjectPkey, (InputStream) args[2]);
+                    }
+
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+            setField(membership, "group", group);
+            setField(membership, "peerSecurityEngine", engine);
+
+            Constructor<PSECredential> local = PSECredential.class.getDeclaredConstructor(PSEMembershipService.class, ID.class, CertPath.class, PrivateKey.class);
+            local.setAccessible(true);
+
+            CertPath chain = CertificateFactory.getInstance("X.509").generateCertPath(Collections.singletonList(info.cert));
+
+            setField(membership, "defaultCredential", local.newInstance(membership, null, chain, info.subjectPkey));
+        }
+
+        byte[] send(Message msg, TestPeer to) throws IOException {
+            return toBytes(WireFormatMessageFactory.toWireExternal(msg, TYPE, null, group, to.peerID));
+        }
+
+        Message receive(byte[] serialized) throws IOException {
+            return WireFormatMessageFactory.fromBufferExternal(ByteBuffer.wrap(serialized), TYPE, null, group);
+        }
+
+        void stop() {
+            taskManager.shutdown();
+        }
+
+        private static void setField(Object target, String name, Object value) throws Exception {
+            Field field = target.getClass().getDeclaredField(name);
+
+            field.setAccessible(true);
+            field.set(target, value);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package net.jxta.impl.endpoint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.WireFormatMessage;
+import net.jxta.endpoint.WireFormatMessageFactory;
+
+import org.junit.Test;
+
+/**
+ * Tests the CBJX MAC session exchange and compares the cost of signing and
+ * verifying messages with RSA signatures and with session MACs.
+ */
+public class CbjxSessionsTest {
+
+    private static final String PEER_A = "urn:jxta:peer-a";
+    private static final String PEER_B = "urn:jxta:peer-b";
+    private static final String PEER_C = "urn:jxta:peer-c";
+
+    private static final int MESSAGES = 2000;
+
+    @Test
+    public void testSessionConfirmedOnlyOnceBothSidesHaveTheKeys() throws Exception {
+        CbjxSessions a = new CbjxSessions();
+        CbjxSessions b = new CbjxSessions();
+
+        // A offers first. B learns A's key, but A does not know B's yet.
+        b.keyAgreementReceived(PEER_A, null, a.getKeyAgreementElement(PEER_B));
+        assertNotNull(b.getSession(PEER_A));
+        assertNull(b.getConfirmedSession(PEER_A));
+
+        // B's offer echoes A's key, so A may use the session right away.
+        a.keyAgreementReceived(PEER_B, null, b.getKeyAgreementElement(PEER_A));
+        CbjxSessions.Session aToB = a.getConfirmedSession(PEER_B);
+        assertNotNull(aToB);
+
+        // B confirms when it sees A's first valid MAC.
+        ByteBuffer[] message = serialize(newMessage());
+        byte[] mac = aToB.mac(message, PEER_A.getBytes());
+        assertTrue(b.getSession(PEER_A).verify(concat(message), PEER_A.getBytes(), mac));
+        assertNotNull(b.getConfirmedSession(PEER_A));
+    }
+
+    @Test
+    public void testTamperedMessageRejected() throws Exception {
+        CbjxSessions a = new CbjxSessions();
+        CbjxSessions b = new CbjxSessions();
+        b.keyAgreementReceived(PEER_A, null, a.getKeyAgreementElement(PEER_B));
+        a.keyAgreementReceived(PEER_B, null, b.getKeyAgreementElement(PEER_A));
+
+        ByteBuffer[] message = serialize(newMessage());
+        byte[] mac = a.getConfirmedSession(PEER_B).mac(message, PEER_A.getBytes());
+
+        ByteBuffer tampered = concat(message);
+        tampered.put(tampered.limit() - 1, (byte) (tampered.get(tampered.limit() - 1) ^ 1));
+
+        assertFalse(b.getSession(PEER_A).verify(tampered, PEER_A.getBytes(), mac));
+        assertNull(b.getConfirmedSession(PEER_A));
+    }
+
+    @Test
+    public void testRestartedPeerFallsBackToSignatures() throws Exception {
+        CbjxSessions a = new CbjxSessions();
+        CbjxSessions b = new CbjxSessions();
+        b.keyAgreementReceived(PEER_A, null, a.getKeyAgreementElement(PEER_B));
+        a.keyAgreementReceived(PEER_B, null, b.getKeyAgreementElement(PEER_A));
+        assertNotNull(a.getConfirmedSession(PEER_B));
+
+        // B restarts with a new key and knows nothing of A.
+        CbjxSessions restarted = new CbjxSessions();
+        a.keyAgreementReceived(PEER_B, null, restarted.getKeyAgreementElement(PEER_A));
+
+        assertNull(a.getConfirmedSession(PEER_B));
+    }
+
+    @Test
+    public void testMacsAreBoundToTheSessionAndTheSource() throws Exception {
+        CbjxSessions a = new CbjxSessions();
+        CbjxSessions b = new CbjxSessions();
+        CbjxSessions c = new CbjxSessions();
+        b.keyAgreementReceived(PEER_A, null, a.getKeyAgreementElement(PEER_B));
+        a.keyAgreementReceived(PEER_B, null, b.getKeyAgreementElement(PEER_A));
+        c.keyAgreementReceived(PEER_A, null, a.getKeyAgreementElement(PEER_C));
+        a.keyAgreementReceived(PEER_C, null, c.getKeyAgreementElement(PEER_A));
+
+        ByteBuffer[] message = serialize(newMessage());
+        byte[] toB = a.getConfirmedSession(PEER_B).mac(message, PEER_A.getBytes());
+
+        // Both ends derive the same key.
+        assertTrue(b.getSession(PEER_A).verify(concat(message), PEER_A.getBytes(), toB));
+        assertArrayEquals(toB, b.getSession(PEER_A).mac(message, PEER_A.getBytes()));
+
+        // The MAC covers the source address.
+        assertFalse(b.getSession(PEER_A).verify(concat(message), PEER_C.getBytes(), toB));
+
+        // Each remote peer has its own key.
+        assertFalse(c.getSession(PEER_A).verify(concat(message), PEER_A.getBytes(), toB));
+        assertFalse(Arrays.equals(toB, a.getConfirmedSession(PEER_C).mac(message, PEER_A.getBytes())));
+    }
+
+    @Test
+    public void testBadKeyAgreementIsIgnored() throws Exception {
+        CbjxSessions b = new CbjxSessions();
+
+        b.keyAgreementReceived(PEER_A, null, new ByteArrayMessageElement(CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME, null, new byte[] {0, 0, 0, 4, 1, 2, 3, 4, 0, 0, 0, 0}, null));
+        assertNull(b.getSession(PEER_A));
+
+        b.keyAgreementReceived(PEER_A, null, new ByteArrayMessageElement(CbjxSessions.KEY_AGREEMENT_ELEMENT_NAME, null, new byte[] {0, 0, 0, 64}, null));
+        assertNull(b.getSession(PEER_A));
+    }
+
+    @Test
+    public void testSignedMessageThroughput() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair rsa = generator.generateKeyPair();
+
+        CbjxSessions a = new CbjxSessions();
+        CbjxSessions b = new CbjxSessions();
+        b.keyAgreementReceived(PEER_A, null, a.getKeyAgreementElement(PEER_B));
+        a.keyAgreementReceived(PEER_B, null, b.getKeyAgreementElement(PEER_A));
+        CbjxSessions.Session sending = a.getConfirmedSession(PEER_B);
+        CbjxSessions.Session receiving = b.getSession(PEER_A);
+
+        ByteBuffer[] message = serialize(newMessage());
+        byte[] src = PEER_A.getBytes();
+
+        long start = System.nanoTime();
+        for (int each = 0; each < MESSAGES; each++) {
+            Signature signer = Signature.getInstance(WireFormatMessageFactory.CBJX_SIG_ALG);
+            signer.initSign(rsa.getPrivate());
+            for (ByteBuffer part : message) {
+                signer.update(part.duplicate());
+            }
+            signer.update(src);
+            byte[] signature = signer.sign();
+
+            Signature verifier = Signature.getInstance(WireFormatMessageFactory.CBJX_SIG_ALG);
+            verifier.initVerify(rsa.getPublic());
+            verifier.update(concat(message));
+            verifier.update(src);
+            assertTrue(verifier.verify(signature));
+        }
+        long signedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int each = 0; each < MESSAGES; each++) {
+            byte[] mac = sending.mac(message, src);
+            assertTrue(receiving.verify(concat(message), src, mac));
+        }
+        long macNanos = System.nanoTime() - start;
+
+        System.out.println("CBJX signatures : " + rate(signedNanos) + " msgs/s, MAC sessions : " + rate(macNanos) + " msgs/s");
+
+        assertTrue("MAC sessions slower than signatures", macNanos < signedNanos);
+    }
+
+    private static long rate(long nanos) {
+        return MESSAGES * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1);
+    }
+
+    private static Message newMessage() {
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new ByteArrayMessageElement("payload", null, new byte[1024], null));
+        msg.addMessageElement("test", new ByteArrayMessageElement("header", null, "a header".getBytes(), null));
+
+        return msg;
+    }
+
+    private static ByteBuffer[] serialize(Message msg) {
+        WireFormatMessage serialed = WireFormatMessageFactory.toWire(msg, WireFormatMessageFactory.DEFAULT_WIRE_MIME, null);
+
+        return serialed.getUnsignedByteBuffers();
+    }
+
+    private static ByteBuffer concat(ByteBuffer[] parts) {
+        int length = 0;
+        for (ByteBuffer part : parts) {
+            length += part.remaining();
+        }
+
+        ByteBuffer result = ByteBuffer.allocate(length);
+        for (ByteBuffer part : parts) {
+            result.put(part.duplicate());
+        }
+        result.flip();
+
+        return result;
+    }
+}
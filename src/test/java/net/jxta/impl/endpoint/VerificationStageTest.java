@@ -0,0 +1,234 @@
+package net.jxta.impl.endpoint;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.StringMessageElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Submits messages whose signature checks are left to the
+ * {@link VerificationStage} and records the messages it dispatches.
+ */
+public class VerificationStageTest {
+
+    private static final EndpointAddress SOURCE_A = new EndpointAddress("tcp", "10.0.0.1:9701", null, null);
+    private static final EndpointAddress SOURCE_B = new EndpointAddress("tcp", "10.0.0.2:9701", null, null);
+    private static final EndpointAddress DESTINATION = new EndpointAddress("jxta", "local", "service", null);
+
+    private final List<String> dispatched = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch[] dispatchedCount = new CountDownLatch[1];
+
+    private VerificationStage stage;
+
+    @Before
+    public void setUp() {
+        EndpointServiceImpl endpoint = new EndpointServiceImpl() {
+            @Override
+            void dispatchIncomingMessage(Message msg, EndpointAddress srcAddress, EndpointAddress dstAddress) {
+                dispatched.add(msg.getMessageElement("test", "name").toString());
+
+                CountDownLatch latch = dispatchedCount[0];
+
+                if (null != latch) {
+                    latch.countDown();
+                }
+            }
+        };
+
+        stage = new VerificationStage(endpoint, 4, 4);
+    }
+
+    @After
+    public void tearDown() {
+        stage.shutdown();
+    }
+
+    @Test(timeout = 30000)
+    public void testMessagesOfASourceAreDispatchedInOrder() throws Exception {
+        expectDispatches(20);
+
+        // The later messages are verified faster than the earlier ones.
+        for (int each = 0; each < 10; each++) {
+            assertTrue(stage.submit(newMessage("a" + each, 10 - each, true), SOURCE_A, DESTINATION));
+            assertTrue(stage.submit(newMessage("b" + each, 10 - each, true), SOURCE_B, DESTINATION));
+        }
+
+        awaitDispatches();
+
+        List<String> fromA = new ArrayList<String>();
+        List<String> fromB = new ArrayList<String>();
+
+        for (String name : dispatched) {
+            (name.startsWith("a") ? fromA : fromB).add(name);
+        }
+
+        assertEquals(Arrays.asList("a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9"), fromA);
+        assertEquals(Arrays.asList("b0", "b1", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "b9"), fromB);
+    }
+
+    @Test(timeout = 30000)
+    public void testVerifiedMessagesWaitForEarlierMessages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        expectDispatches(2);
+
+        assertTrue(stage.submit(newMessage("signed", release, true), SOURCE_A, DESTINATION));
+        // Already verified, but queued behind the signed message.
+        assertTrue(stage.submit(newMessage("mac"), SOURCE_A, DESTINATION));
+        // Nothing to wait for from the other source, the caller dispatches it.
+        assertFalse(stage.submit(newMessage("other"), SOURCE_B, DESTINATION));
+
+        Thread.sleep(100);
+        assertTrue(dispatched.isEmpty());
+
+        release.countDown();
+        awaitDispatches();
+
+        assertEquals(Arrays.asList("signed", "mac"), dispatched);
+
+        // Once the stage is done with the queue, verified messages are dispatched by the caller again.
+        Thread.sleep(100);
+        assertFalse(stage.submit(newMessage("mac2"), SOURCE_A, DESTINATION));
+    }
+
+    @Test(timeout = 30000)
+    public void testSlowVerifierBlocksTheTransport() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        expectDispatches(5);
+
+        // Fill the 4 permits.
+        for (int each = 0; each < 4; each++) {
+            assertTrue(stage.submit(newMessage("m" + each, release, true), SOURCE_A, DESTINATION));
+        }
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        Thread transport = new Thread(new Runnable() {
+            public void run() {
+                stage.submit(newMessage("m4", release, true), SOURCE_A, DESTINATION);
+                submitted.countDown();
+            }
+        }, "transport");
+
+        transport.start();
+
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(Thread.State.WAITING, transport.getState());
+
+        // Interrupts do not abandon the message.
+        transport.interrupt();
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        awaitDispatches();
+
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3", "m4"), dispatched);
+    }
+
+    @Test(timeout = 30000)
+    public void testMessagesFailingVerificationAreDropped() throws Exception {
+        expectDispatches(2);
+
+        assertTrue(stage.submit(newMessage("good", 0, true), SOURCE_A, DESTINATION));
+        assertTrue(stage.submit(newMessage("bad", 0, false), SOURCE_A, DESTINATION));
+        assertTrue(stage.submit(newMessage("malformed", 0, null), SOURCE_A, DESTINATION));
+        assertTrue(stage.submit(newMessage("good too", 0, true), SOURCE_A, DESTINATION));
+
+        awaitDispatches();
+        // Let the stage finish with the queue.
+        Thread.sleep(100);
+
+        assertEquals(Arrays.asList("good", "good too"), dispatched);
+
+        // The permits of the dropped messages were returned.
+        expectDispatches(4);
+
+        for (int each = 0; each < 4; each++) {
+            assertTrue(stage.submit(newMessage("more" + each, 0, true), SOURCE_B, DESTINATION));
+        }
+
+        awaitDispatches();
+    }
+
+    private void expectDispatches(int count) {
+        dispatched.clear();
+        dispatchedCount[0] = new CountDownLatch(count);
+    }
+
+    private void awaitDispatches() throws InterruptedException {
+        assertTrue(dispatchedCount[0].await(10, TimeUnit.SECONDS));
+    }
+
+    private static Message newMessage(String name) {
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new StringMessageElement("name", name, null));
+        return msg;
+    }
+
+    private static Message newMessage(String name, long delay, Boolean verified) {
+        Message msg = newMessage(name);
+
+        msg.setMessageProperty(WireFormatMessageBinary.PendingVerification.class, new TestVerification(msg, delay, null, verified));
+        return msg;
+    }
+
+    private static Message newMessage(String name, CountDownLatch release, Boolean verified) {
+        Message msg = newMessage(name);
+
+        msg.setMessageProperty(WireFormatMessageBinary.PendingVerification.class, new TestVerification(msg, 0, release, verified));
+        return msg;
+    }
+
+    /**
+     * A signature check which takes some time and whose outcome is known in
+     * advance. A {@code null} outcome fails as a malformed trailer would.
+     */
+    private static class TestVerification extends WireFormatMessageBinary.PendingVerification {
+
+        private final long delay;
+        private final CountDownLatch release;
+        private final Boolean verified;
+
+        TestVerification(Message msg, long delay, CountDownLatch release, Boolean verified) {
+            super(msg, null, null, null, null, null, false);
+            this.delay = delay;
+            this.release = release;
+            this.verified = verified;
+        }
+
+        @Override
+        boolean verify() throws IOException {
+            try {
+                if (null != release) {
+                    release.await();
+                }
+
+                Thread.sleep(delay);
+            } catch (InterruptedException woken) {
+                throw new IOException(woken);
+            }
+
+            if (null == verified) {
+                throw new IOException("malformed CBJX trailer");
+            }
+
+            return verified;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package net.jxta.impl.endpoint;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.security.PrivateKey;
+import java.security.cert.CertPath;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Set;
+
+import net.jxta.document.MimeMediaType;
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.MessageElement;
+import net.jxta.endpoint.WireFormatMessageFactory;
+import net.jxta.id.ID;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.membership.pse.PSECredential;
+import net.jxta.impl.membership.pse.PSEMembershipService;
+import net.jxta.impl.membership.pse.PSEPeerSecurityEngine;
+import net.jxta.impl.membership.pse.PSEUtils;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Signs messages with the CBJX trailer and reads them back through the
+ * stream and the buffer paths of {@link WireFormatMessageBinary}.
+ */
+public class WireFormatMessageBinarySignatureTest {
+
+    private static final MimeMediaType TYPE = WireFormatMessageFactory.DEFAULT_WIRE_MIME;
+
+    private static final TaskManager taskManager = new TaskManager();
+
+    private static PeerID senderID;
+    private static PeerGroup sender;
+    private static PeerGroup receiver;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        PSEUtils.IssuerInfo senderInfo = PSEUtils.genCert("sender", null);
+
+        senderID = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID, senderInfo.cert.getPublicKey().getEncoded());
+        sender = newGroup(senderID, senderInfo);
+
+        PSEUtils.IssuerInfo receiverInfo = PSEUtils.genCert("receiver", null);
+
+        receiver = newGroup(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID, receiverInfo.cert.getPublicKey().getEncoded()), receiverInfo);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        taskManager.shutdown();
+    }
+
+    @Test
+    public void testSignedMessageIsVerifiedFromStream() throws Exception {
+        Message received = WireFormatMessageFactory.fromWireExternal(new ByteArrayInputStream(sign("stream")), TYPE, null, receiver);
+
+        assertVerified(received, "stream");
+    }
+
+    @Test
+    public void testSignedMessageIsVerifiedFromBuffer() throws Exception {
+        Message received = WireFormatMessageFactory.fromBufferExternal(ByteBuffer.wrap(sign("buffer")), TYPE, null, receiver);
+
+        assertVerified(received, "buffer");
+    }
+
+    @Test
+    public void testSignedMessageIsVerifiedFromBufferSlice() throws Exception {
+        byte[] signed = sign("slice");
+        ByteBuffer datagram = ByteBuffer.allocate(signed.length + 20);
+
+        // A message which does not start at the beginning of its buffer, as in a datagram of several frames.
+        datagram.position(10);
+        datagram.put(signed);
+        datagram.position(10);
+
+        Message received = WireFormatMessageFactory.fromBufferExternal(datagram, TYPE, null, receiver);
+
+        assertVerified(received, "slice");
+        assertEquals(10, datagram.remaining());
+    }
+
+    @Test
+    public void testDeferredVerification() throws Exception {
+        Message received = WireFormatMessageBinary.INSTANTIATOR.fromBufferExternalDeferred(ByteBuffer.wrap(sign("deferred")), TYPE, null, false, receiver);
+        WireFormatMessageBinary.PendingVerification pending =
+                (WireFormatMessageBinary.PendingVerification) received.getMessageProperty(WireFormatMessageBinary.PendingVerification.class);
+
+        assertNotNull(pending);
+        assertTrue(pending.verify());
+        assertVerified(received, "deferred");
+    }
+
+    @Test
+    public void testTamperedMessageIsRejectedFromStream() throws Exception {
+        byte[] signed = tamper(sign("stream"), "stream");
+
+        assertRejected(WireFormatMessageFactory.fromWireExternal(new ByteArrayInputStream(signed), TYPE, null, receiver));
+    }
+
+    @Test
+    public void testTamperedMessageIsRejectedFromBuffer() throws Exception {
+        byte[] signed = tamper(sign("buffer"), "buffer");
+
+        assertRejected(WireFormatMessageFactory.fromBufferExternal(ByteBuffer.wrap(signed), TYPE, null, receiver));
+    }
+
+    @Test
+    public void testSenderCertificateIsCached() throws Exception {
+        Message first = WireFormatMessageFactory.fromBufferExternal(ByteBuffer.wrap(sign("first")), TYPE, null, receiver);
+        Message second = WireFormatMessageFactory.fromWireExternal(new ByteArrayInputStream(sign("second")), TYPE, null, receiver);
+
+        assertVerified(first, "first");
+        assertVerified(second, "second");
+
+        // The second message was checked against the certificate parsed and validated for the first.
+        assertSame(getSigner(first), getSigner(second));
+    }
+
+    private static byte[] sign(String payload) throws IOException {
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new ByteArrayMessageElement("payload", null, payload.getBytes(), null));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        WireFormatMessageFactory.toWireExternal(msg, TYPE, null, sender).sendToStream(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] tamper(byte[] signed, String payload) {
+        for (int each = 0; each <= signed.length - payload.length(); each++) {
+            if (payload.equals(new String(signed, each, payload.length()))) {
+                signed[each] ^= 1;
+                return signed;
+            }
+        }
+
+        throw new AssertionError("payload not found");
+    }
+
+    private static void assertVerified(Message received, String payload) {
+        MessageElement element = received.getMessageElement("test", "payload");
+
+        assertNotNull(element);
+        assertEquals(payload, new String(element.getBytes(false)));
+
+        Set<?> verified = (Set<?>) received.getMessageProperty(EndpointServiceImpl.VERIFIED_ADDRESS_SET);
+
+        assertNotNull(verified);
+        assertTrue(verified.contains(new EndpointAddress(senderID.toURI().toString())));
+        assertNotNull(getSigner(received));
+    }
+
+    private static void assertRejected(Message received) {
+        assertNull(received.getMessageElement("test", "payload"));
+        assertTrue(((Set<?>) received.getMessageProperty(EndpointServiceImpl.VERIFIED_ADDRESS_SET)).isEmpty());
+        assertTrue(((Set<?>) received.getMessageProperty(EndpointServiceImpl.MESSAGE_SIGNER_SET)).isEmpty());
+    }
+
+    private static X509Certificate getSigner(Message received) {
+        Set<?> signers = (Set<?>) received.getMessageProperty(EndpointServiceImpl.MESSAGE_SIGNER_SET);
+
+        assertEquals(1, signers.size());
+        return (X509Certificate) signers.iterator().next();
+    }
+
+    /**
+     * A group whose PSE membership service signs with the given certificate.
+     * The membership service is not initialized from a keystore, its
+     * credential and signing engine are set directly.
+     */
+    private static PeerGroup newGroup(final PeerID peerID, final PSEUtils.IssuerInfo info) throws Exception {
+        final PSEMembershipService membership = new PSEMembershipService();
+
+        PeerGroup group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getPeerID".equals(method.getName())) {
+                    return peerID;
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return PeerGroupID.defaultNetPeerGroupID;
+                } else if ("getMembershipService".equals(method.getName())) {
+                    return membership;
+                } else if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        PSEPeerSecurityEngine engine = (PSEPeerSecurityEngine) Proxy.newProxyInstance(PSEPeerSecurityEngine.class.getClassLoader(), new Class<?>[] {PSEPeerSecurityEngine.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                if ("sign".equals(method.getName())) {
+                    return PSEUtils.computeSignature((String) args[0], info.subjectPkey, (InputStream) args[2]);
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        setField(membership, "group", group);
+        setField(membership, "peerSecurityEngine", engine);
+
+        Constructor<PSECredential> local = PSECredential.class.getDeclaredConstructor(PSEMembershipService.class, ID.class, CertPath.class, PrivateKey.class);
+        local.setAccessible(true);
+
+        CertPath chain = CertificateFactory.getInstance("X.509").generateCertPath(Collections.singletonList(info.cert));
+
+        setField(membership, "defaultCredential", local.newInstance(membership, null, chain, info.subjectPkey));
+
+        return group;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
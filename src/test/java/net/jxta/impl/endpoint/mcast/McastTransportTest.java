@@ -0,0 +1,255 @@
+package net.jxta.impl.endpoint.mcast;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.EndpointService;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.MessageElement;
+import net.jxta.endpoint.StringMessageElement;
+import net.jxta.endpoint.WireFormatMessageFactory;
+import net.jxta.impl.endpoint.EndpointServiceImpl;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peergroup.PeerGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sends propagated messages through a transport whose channel is bound to the
+ * loopback interface and feeds the datagrams received back to it.
+ */
+public class McastTransportTest {
+
+    static {
+        // Both are read once, when the classes are loaded. Each test class runs in its own VM.
+        System.setProperty(McastTransport.class.getName() + ".batchDelay", "1000");
+        System.setProperty(WireFormatMessageFactory.class.getName() + ".CBJX_DISABLE", "true");
+    }
+
+    private static final int PACKET_SIZE = 16384;
+
+    private static final int MAX_DATAGRAM = 65507;
+
+    private final TaskManager taskManager = new TaskManager();
+    private final List<Message> received = Collections.synchronizedList(new ArrayList<Message>());
+
+    private DatagramSocket receiver;
+    private DatagramChannel channel;
+    private McastTransport transport;
+    private BlockingQueue<ByteBuffer> bufferPool;
+
+    @Before
+    public void setUp() throws Exception {
+        receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        receiver.setSoTimeout(5000);
+
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        EndpointService endpoint = (EndpointService) Proxy.newProxyInstance(EndpointService.class.getClassLoader(), new Class<?>[] {EndpointService.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("processIncomingMessage".equals(method.getName())) {
+                    received.add((Message) args[0]);
+                    return null;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        PeerGroup group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        bufferPool = new ArrayBlockingQueue<ByteBuffer>(4);
+
+        transport = new McastTransport();
+
+        // The state init() and startApp() would set up, without joining a multicast group.
+        setField("group", group);
+        setField("endpoint", endpoint);
+        setField("ourSrcAddr", new EndpointAddress("mcast", "receiver", null, null));
+        setField("msgSrcAddrElement", new StringMessageElement(EndpointServiceImpl.MESSAGE_SOURCE_NAME, "mcast://sender", null));
+        setField("multicastPacketSize", PACKET_SIZE);
+        setField("bufferPool", bufferPool);
+        setField("multicastChannel", channel);
+        setField("multicastSocketAddress", receiver.getLocalSocketAddress());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        channel.close();
+        receiver.close();
+        taskManager.shutdown();
+    }
+
+    @Test
+    public void testDatagramWithSeveralFramesIsParsed() throws Exception {
+        assertTrue(transport.propagate(newMessage("one"), "service", "param", 1));
+        assertTrue(transport.propagate(newMessage("two"), "service", "param", 1));
+        assertTrue(transport.propagate(newMessage("three"), "service", "param", 1));
+
+        transport.processMulticast(receive());
+
+        assertEquals(3, received.size());
+        assertPayload("one", received.get(0));
+        assertPayload("two", received.get(1));
+        assertPayload("three", received.get(2));
+
+        for (Message msg : received) {
+            assertNull(msg.getMessageElement(EndpointServiceImpl.MESSAGE_SOURCE_NS, EndpointServiceImpl.MESSAGE_SOURCE_NAME));
+            assertNull(msg.getMessageElement(EndpointServiceImpl.MESSAGE_DESTINATION_NS, EndpointServiceImpl.MESSAGE_DESTINATION_NAME));
+        }
+    }
+
+    @Test
+    public void testFullBatchIsSentAtOnce() throws Exception {
+        byte[] payload = new byte[PACKET_SIZE / 3];
+        long start = System.currentTimeMillis();
+
+        // The third message does not fit, the first two are sent without waiting for the batch delay.
+        assertTrue(transport.propagate(newMessage(payload), "service", null, 1));
+        assertTrue(transport.propagate(newMessage(payload), "service", null, 1));
+        assertTrue(transport.propagate(newMessage(payload), "service", null, 1));
+
+        transport.processMulticast(receive());
+
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(2, received.size());
+
+        // The third follows after the delay.
+        transport.processMulticast(receive());
+
+        assertEquals(3, received.size());
+    }
+
+    @Test
+    public void testLoopbackMessagesAreDiscarded() throws Exception {
+        setField("ourSrcAddr", new EndpointAddress("mcast", "sender", null, null));
+
+        assertTrue(transport.propagate(newMessage("one"), "service", null, 1));
+
+        transport.processMulticast(receive());
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testDatagramBuffersAreRecycled() throws Exception {
+        assertTrue(transport.propagate(newMessage("one"), "service", null, 1));
+        receive();
+        awaitRecycled(1);
+
+        ByteBuffer recycled = bufferPool.peek();
+
+        assertTrue(transport.propagate(newMessage("two"), "service", null, 1));
+        receive();
+        awaitRecycled(1);
+
+        assertSame(recycled, bufferPool.peek());
+
+        ByteBuffer acquired = transport.acquireBuffer();
+
+        assertSame(recycled, acquired);
+        assertEquals(0, acquired.position());
+        assertEquals(PACKET_SIZE, acquired.limit());
+
+        // Only buffers of the datagram size are kept.
+        transport.releaseBuffer(ByteBuffer.allocate(2 * PACKET_SIZE));
+
+        assertTrue(bufferPool.isEmpty());
+    }
+
+    @Test
+    public void testInterruptDoesNotCloseTheChannel() throws Exception {
+        // Too big to be batched, so it is sent by the calling thread.
+        byte[] payload = new byte[2 * PACKET_SIZE];
+
+        Thread.currentThread().interrupt();
+
+        try {
+            assertTrue(transport.propagate(newMessage(payload), "service", null, 1));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertTrue(channel.isOpen());
+
+        transport.processMulticast(receive());
+
+        assertEquals(1, received.size());
+    }
+
+    private ByteBuffer receive() throws Exception {
+        DatagramPacket packet = new DatagramPacket(new byte[MAX_DATAGRAM], MAX_DATAGRAM);
+
+        receiver.receive(packet);
+
+        return ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+    }
+
+    /**
+     * Waits for the batch flush to return its buffer, which it does after
+     * sending the datagram.
+     */
+    private void awaitRecycled(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while ((bufferPool.size() < expected) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(expected, bufferPool.size());
+    }
+
+    private static void assertPayload(String expected, Message msg) {
+        MessageElement element = msg.getMessageElement("test", "payload");
+
+        assertNotNull(element);
+        assertEquals(expected, new String(element.getBytes(false)));
+    }
+
+    private static Message newMessage(String payload) {
+        return newMessage(payload.getBytes());
+    }
+
+    private static Message newMessage(byte[] payload) {
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new ByteArrayMessageElement("payload", null, payload, null));
+        return msg;
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = McastTransport.class.getDeclaredField(name);
+
+        field.setAccessible(true);
+        field.set(transport, value);
+    }
+}
@@ -0,0 +1,320 @@
+package net.jxta.impl.endpoint.relay;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.Messenger;
+import net.jxta.endpoint.StringMessageElement;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.endpoint.BlockingMessenger;
+import net.jxta.impl.protocol.RelayConfigAdv;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Queues messages for relayed clients and sends them as the relay server's
+ * sender workers would, recording the order in which they reach the
+ * clients.
+ */
+public class RelayServerClientTest {
+
+    private static final long LEASE = 60000;
+
+    private static final int PAYLOAD_SIZE = 1000;
+
+    /**
+     * Room for two of our messages per round.
+     */
+    private static final long QUANTUM = 2 * PAYLOAD_SIZE + 200;
+
+    private final TaskManager taskManager = new TaskManager();
+
+    /**
+     * The names of the messages sent to all clients, in order.
+     */
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+
+    private RelayServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        final PeerID relayID = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+
+        // Without an access control list the relay serves every client.
+        final File storeHome = new File(System.getProperty("java.io.tmpdir"), "RelayServerClientTest-" + relayID.getUniqueValue());
+
+        PeerGroup group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getPeerID".equals(method.getName())) {
+                    return relayID;
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return PeerGroupID.defaultNetPeerGroupID;
+                } else if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                } else if ("getStoreHome".equals(method.getName())) {
+                    return storeHome.toURI();
+                } else if ("toString".equals(method.getName())) {
+                    return "test group";
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        server = new RelayServer(group, "relay", (RelayConfigAdv) new RelayConfigAdv.Instantiator().newInstance());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.selector.close();
+        taskManager.shutdown();
+    }
+
+    @Test
+    public void testChattyClientDoesNotStarveOthers() throws Exception {
+        RelayServerClient chatty = newClient("chatty", 100, Long.MAX_VALUE);
+        RelayServerClient quiet = newClient("quiet", 100, Long.MAX_VALUE);
+
+        for (int each = 0; each < 10; each++) {
+            queue(chatty, "chatty" + each, "pipe");
+        }
+
+        queue(quiet, "quiet0", "pipe");
+
+        sendRoundRobin(chatty, quiet);
+
+        // The quiet client gets its turn once the chatty one has used its quantum.
+        assertEquals(Arrays.asList("chatty0", "chatty1", "quiet0",
+                "chatty2", "chatty3", "chatty4", "chatty5", "chatty6", "chatty7", "chatty8", "chatty9"), sent);
+    }
+
+    @Test
+    public void testClientStopsAtItsQuantum() throws Exception {
+        RelayServerClient client = newClient("client", 100, Long.MAX_VALUE);
+
+        for (int each = 0; each < 5; each++) {
+            queue(client, "m" + each, "pipe");
+        }
+
+        assertTrue(client.sendQueued(QUANTUM));
+        assertEquals(Arrays.asList("m0", "m1"), sent);
+
+        assertTrue(client.sendQueued(QUANTUM));
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3"), sent);
+
+        // Drained, the client goes back to waiting on the selector.
+        assertFalse(client.sendQueued(QUANTUM));
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3", "m4"), sent);
+    }
+
+    @Test
+    public void testLargeMessageIsSentOnceEnoughCreditAccumulated() throws Exception {
+        RelayServerClient client = newClient("client", 100, Long.MAX_VALUE);
+
+        queue(client, "large", "pipe", 5 * PAYLOAD_SIZE);
+
+        assertTrue(client.sendQueued(QUANTUM));
+        assertTrue(client.sendQueued(QUANTUM));
+        assertTrue(sent.isEmpty());
+
+        assertFalse(client.sendQueued(QUANTUM));
+        assertEquals(Arrays.asList("large"), sent);
+    }
+
+    @Test
+    public void testOldestDroppableMessageIsEvictedFirst() throws Exception {
+        RelayServerClient client = newClient("client", 4, Long.MAX_VALUE);
+
+        queue(client, "propagate0", "JxtaPropagate");
+        queue(client, "reliable0", "pipe");
+        queue(client, "propagate1", "JxtaPropagate");
+        queue(client, "reliable1", "pipe");
+
+        // The queue is full, the oldest propagated message makes room.
+        queue(client, "reliable2", "pipe");
+        queue(client, "reliable3", "pipe");
+
+        // Nothing left to drop, the new message is discarded.
+        queue(client, "reliable4", "pipe");
+
+        drain(client);
+
+        assertEquals(Arrays.asList("reliable0", "reliable1", "reliable2", "reliable3"), sent);
+    }
+
+    @Test
+    public void testOldestDroppableMessagesAreEvictedForBytes() throws Exception {
+        RelayServerClient client = newClient("client", 100, 4 * PAYLOAD_SIZE + 400);
+
+        queue(client, "propagate0", "JxtaPropagate");
+        queue(client, "propagate1", "JxtaPropagate");
+        queue(client, "reliable0", "pipe");
+        queue(client, "propagate2", "JxtaPropagate");
+
+        // Needs the room of two of the queued messages.
+        queue(client, "large", "pipe", 2 * PAYLOAD_SIZE);
+
+        drain(client);
+
+        assertEquals(Arrays.asList("reliable0", "propagate2", "large"), sent);
+    }
+
+    @Test(timeout=10000)
+    public void testBlockedMessengerDoesNotHoldOthers() throws Exception {
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final RecordingMessenger blocking = new RecordingMessenger(new EndpointAddress("jxta", "blocked", null, null), taskManager) {
+            @Override
+            protected void sendMessageBImpl(Message message, String service, String param) throws IOException {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.sendMessageBImpl(message, service, param);
+            }
+        };
+
+        RelayServerClient blocked = newClient(100, Long.MAX_VALUE, blocking);
+        RelayServerClient other = newClient("other", 100, Long.MAX_VALUE);
+
+        // The transport is stuck writing a message.
+        final Message stuck = newMessage("stuck", PAYLOAD_SIZE);
+
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    blocking.sendMessageB(stuck, "pipe", null);
+                } catch (IOException ignored) {
+                }
+            }
+        }, "stuck sender").start();
+
+        while (0 == (blocking.getState() & Messenger.SATURATED)) {
+            Thread.sleep(10);
+        }
+
+        queue(blocked, "blocked0", "pipe");
+
+        for (int each = 0; each < 4; each++) {
+            queue(other, "other" + each, "pipe");
+        }
+
+        sendRoundRobin(blocked, other);
+
+        // The blocked client is parked, not selectable until its messenger frees up.
+        assertEquals(Arrays.asList("other0", "other1", "other2", "other3"), sent);
+        assertEquals(0, blocked.readyOps());
+
+        unblock.countDown();
+
+        while (SelectionKey.OP_WRITE != blocked.readyOps()) {
+            Thread.sleep(10);
+        }
+
+        drain(blocked);
+
+        assertEquals(Arrays.asList("other0", "other1", "other2", "other3", "stuck", "blocked0"), sent);
+    }
+
+    private RelayServerClient newClient(String name, int queueSize, long queueBytes) throws IOException {
+        return newClient(queueSize, queueBytes, new RecordingMessenger(new EndpointAddress("jxta", name, null, null), taskManager));
+    }
+
+    private RelayServerClient newClient(int queueSize, long queueBytes, Messenger messenger) throws IOException {
+        PeerID clientID = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+
+        RelayServerClient client = new RelayServerClient(server, clientID, LEASE, LEASE, queueSize, queueBytes);
+
+        assertTrue(client.addMessenger(messenger));
+        return client;
+    }
+
+    private void queue(RelayServerClient client, String name, String service) throws IOException {
+        queue(client, name, service, PAYLOAD_SIZE);
+    }
+
+    private void queue(RelayServerClient client, String name, String service, int size) throws IOException {
+        Messenger relayed = client.getMessenger(new EndpointAddress("jxta", "client", null, null), false);
+
+        relayed.sendMessageB(newMessage(name, size), service, null);
+    }
+
+    private static Message newMessage(String name, int size) {
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new StringMessageElement("name", name, null));
+        msg.addMessageElement("test", new ByteArrayMessageElement("payload", null, new byte[size], null));
+        return msg;
+    }
+
+    /**
+     * Serves the clients in turn, as the sender workers do.
+     */
+    private void sendRoundRobin(RelayServerClient... clients) {
+        Queue<RelayServerClient> ready = new LinkedList<RelayServerClient>(Arrays.asList(clients));
+        RelayServerClient client;
+
+        while (null != (client = ready.poll())) {
+            if (client.sendQueued(QUANTUM)) {
+                ready.offer(client);
+            }
+        }
+    }
+
+    private void drain(RelayServerClient client) {
+        while (client.sendQueued(Long.MAX_VALUE / 2)) {
+            // until empty
+        }
+    }
+
+    /**
+     * Records the name of each message sent to the client.
+     */
+    private class RecordingMessenger extends BlockingMessenger {
+
+        RecordingMessenger(EndpointAddress dest, TaskManager taskManager) {
+            super(PeerGroupID.defaultNetPeerGroupID, dest, taskManager, false);
+        }
+
+        @Override
+        protected void closeImpl() {
+        }
+
+        @Override
+        protected void sendMessageBImpl(Message message, String service, String param) throws IOException {
+            sent.add(message.getMessageElement("test", "name").toString());
+        }
+
+        @Override
+        protected boolean isIdleImpl() {
+            return false;
+        }
+
+        @Override
+        protected EndpointAddress getLogicalDestinationImpl() {
+            return getDestinationAddress();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package net.jxta.impl.endpoint.router;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.EndpointService;
+import net.jxta.endpoint.Message;
+import net.jxta.impl.endpoint.BlockingMessenger;
+import net.jxta.impl.util.FakeSystemClock;
+import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.WarmRestartSnapshot;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Closes and recreates the destinations of a router with warm restart
+ * snapshots enabled.
+ */
+public class DestinationsTest {
+
+    private static final long NOW = 1000000L;
+
+    private static final EndpointAddress PEER_A = new EndpointAddress("jxta", "peerA", null, null);
+    private static final EndpointAddress PEER_B = new EndpointAddress("jxta", "peerB", null, null);
+    private static final EndpointAddress PEER_C = new EndpointAddress("jxta", "peerC", null, null);
+
+    private static final EndpointAddress TCP_A = new EndpointAddress("tcp", "10.0.0.1:9701", null, null);
+    private static final EndpointAddress TCP_B = new EndpointAddress("tcp", "10.0.0.2:9701", null, null);
+    private static final EndpointAddress TCP_C = new EndpointAddress("tcp", "10.0.0.3:9701", null, null);
+
+    @Rule
+    public TemporaryFolder storeHome = new TemporaryFolder();
+
+    private final TaskManager taskManager = new TaskManager();
+
+    private FakeSystemClock clock;
+
+    private EndpointService endpoint;
+
+    /**
+     * The transport addresses of the messengers obtained again.
+     */
+    private final List<EndpointAddress> reopened = new ArrayList<EndpointAddress>();
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new FakeSystemClock();
+        clock.currentTime = NOW;
+        TimeUtils.setClock(clock);
+
+        final PeerGroup group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getStoreHome".equals(method.getName())) {
+                    return storeHome.getRoot().toURI();
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return PeerGroupID.defaultNetPeerGroupID;
+                } else if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        endpoint = (EndpointService) Proxy.newProxyInstance(EndpointService.class.getClassLoader(), new Class<?>[] {EndpointService.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getGroup".equals(method.getName())) {
+                    return group;
+                } else if ("getMessengerImmediate".equals(method.getName())) {
+                    EndpointAddress xportDest = (EndpointAddress) args[0];
+
+                    reopened.add(xportDest);
+                    return new TestMessenger(xportDest, taskManager);
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        System.setProperty(WarmRestartSnapshot.ENABLED_SYSPROP, "true");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+        TimeUtils.resetClock();
+        taskManager.shutdown();
+    }
+
+    @Test
+    public void testWarmRestart_restoresOutgoingWisdom() throws Exception {
+        Destinations before = new Destinations(endpoint);
+
+        before.addOutgoingMessenger(PEER_A, new TestMessenger(TCP_A, taskManager));
+
+        // Only outgoing messengers may be obtained again.
+        before.addIncomingMessenger(PEER_B, new TestMessenger(TCP_B, taskManager));
+
+        before.addOutgoingMessenger(PEER_C, new TestMessenger(TCP_C, taskManager));
+        before.noOutgoingMessenger(PEER_C);
+
+        before.close();
+
+        clock.currentTime = NOW + TimeUtils.AMINUTE;
+
+        Destinations after = new Destinations(endpoint);
+
+        assertEquals(Arrays.asList(PEER_A), after.allDestinations());
+        assertTrue(reopened.isEmpty());
+
+        // The messenger is obtained again when first needed.
+        assertTrue(after.isNormallyReachable(PEER_A));
+        assertEquals(Arrays.asList(TCP_A), reopened);
+        after.close();
+    }
+
+    @Test
+    public void testWarmRestart_skipsExpiredWisdom() throws Exception {
+        Destinations before = new Destinations(endpoint);
+
+        before.addOutgoingMessenger(PEER_A, new TestMessenger(TCP_A, taskManager));
+
+        clock.currentTime = NOW + 5 * TimeUtils.AMINUTE;
+
+        before.addOutgoingMessenger(PEER_B, new TestMessenger(TCP_B, taskManager));
+        before.close();
+
+        // Past the expiration of the wisdom about A, not that about B.
+        clock.currentTime = NOW + 12 * TimeUtils.AMINUTE;
+
+        Destinations after = new Destinations(endpoint);
+
+        assertEquals(Arrays.asList(PEER_B), after.allDestinations());
+        after.close();
+    }
+
+    @Test
+    public void testWarmRestart_disabled() throws Exception {
+        Destinations before = new Destinations(endpoint);
+
+        before.addOutgoingMessenger(PEER_A, new TestMessenger(TCP_A, taskManager));
+        before.addOutgoingMessenger(PEER_B, new TestMessenger(TCP_B, taskManager));
+        before.close();
+
+        // Saved once, restored once.
+        Destinations after = new Destinations(endpoint);
+
+        assertEquals(new HashSet<EndpointAddress>(Arrays.asList(PEER_A, PEER_B)), new HashSet<EndpointAddress>(after.allDestinations()));
+
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+        after.close();
+
+        System.setProperty(WarmRestartSnapshot.ENABLED_SYSPROP, "true");
+
+        Destinations again = new Destinations(endpoint);
+
+        assertTrue(again.allDestinations().isEmpty());
+        again.close();
+    }
+
+    /**
+     * A connected messenger which sends nothing.
+     */
+    private static class TestMessenger extends BlockingMessenger {
+
+        TestMessenger(EndpointAddress dest, TaskManager taskManager) {
+            super(PeerGroupID.defaultNetPeerGroupID, dest, taskManager, false);
+        }
+
+        @Override
+        protected void closeImpl() {
+        }
+
+        @Override
+        protected void sendMessageBImpl(Message message, String service, String param) {
+        }
+
+        @Override
+        protected boolean isIdleImpl() {
+            return false;
+        }
+
+        @Override
+        protected EndpointAddress getLogicalDestinationImpl() {
+            return getDestinationAddress();
+        }
+    }
+}
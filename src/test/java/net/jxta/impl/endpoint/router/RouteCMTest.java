@@ -0,0 +1,161 @@
+package net.jxta.impl.endpoint.router;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import net.jxta.discovery.DiscoveryService;
+import net.jxta.document.AdvertisementFactory;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.util.FakeSystemClock;
+import net.jxta.impl.util.TimeUtils;
+import net.jxta.impl.util.WarmRestartSnapshot;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.protocol.RouteAdvertisement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Stops and restarts the route CM with warm restart snapshots enabled.
+ */
+public class RouteCMTest {
+
+    private static final long NOW = 1000000L;
+
+    @Rule
+    public TemporaryFolder storeHome = new TemporaryFolder();
+
+    private FakeSystemClock clock;
+
+    private PeerGroup group;
+
+    /**
+     * The routes published and looked up in the discovery service.
+     */
+    private final List<Object> published = new ArrayList<Object>();
+    private final List<Object> lookedUp = new ArrayList<Object>();
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new FakeSystemClock();
+        clock.currentTime = NOW;
+        TimeUtils.setClock(clock);
+
+        final DiscoveryService discovery = (DiscoveryService) Proxy.newProxyInstance(DiscoveryService.class.getClassLoader(), new Class<?>[] {DiscoveryService.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("publish".equals(method.getName())) {
+                    published.add(args[0]);
+                    return null;
+                } else if ("getLocalAdvertisements".equals(method.getName())) {
+                    lookedUp.add(args[2]);
+                    return Collections.enumeration(Collections.emptyList());
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getStoreHome".equals(method.getName())) {
+                    return storeHome.getRoot().toURI();
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return PeerGroupID.defaultNetPeerGroupID;
+                } else if ("getDiscoveryService".equals(method.getName())) {
+                    return discovery;
+                } else if ("getConfigAdvertisement".equals(method.getName())) {
+                    return null;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        System.setProperty(WarmRestartSnapshot.ENABLED_SYSPROP, "true");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+        System.clearProperty(WarmRestartSnapshot.MAX_AGE_SYSPROP);
+        TimeUtils.resetClock();
+    }
+
+    @Test
+    public void testWarmRestart_restoresRecentRoutes() throws Exception {
+        RouteAdvertisement routeA = newRoute("10.0.0.1");
+        RouteAdvertisement routeB = newRoute("10.0.0.2");
+
+        RouteCM before = newRouteCM();
+
+        before.publishRoute(routeA);
+        before.publishRoute(routeB);
+        assertEquals(2, published.size());
+        before.stopApp();
+
+        clock.currentTime = NOW + TimeUtils.AMINUTE;
+
+        RouteCM after = newRouteCM();
+
+        // Known to be published, neither published nor looked up again.
+        after.publishRoute(routeA);
+        assertEquals(2, published.size());
+
+        Collection<RouteAdvertisement> found = after.getRouteAdv(routeB.getDestPeerID());
+
+        assertEquals(1, found.size());
+        assertEquals(routeB.getDestPeerID(), found.iterator().next().getDestPeerID());
+        assertEquals(routeB.getDest().getVectorEndpointAddresses(), found.iterator().next().getDest().getVectorEndpointAddresses());
+        assertTrue(lookedUp.isEmpty());
+        after.stopApp();
+    }
+
+    @Test
+    public void testWarmRestart_skipsExpiredPublication() throws Exception {
+        // Older than the publication of the routes in the CM, but not too old a snapshot.
+        System.setProperty(WarmRestartSnapshot.MAX_AGE_SYSPROP, Long.toString(2 * RouteCM.DEFAULT_EXPIRATION / TimeUtils.ASECOND));
+
+        RouteAdvertisement routeA = newRoute("10.0.0.1");
+
+        RouteCM before = newRouteCM();
+
+        before.publishRoute(routeA);
+        before.stopApp();
+
+        clock.currentTime = NOW + RouteCM.DEFAULT_EXPIRATION;
+
+        RouteCM after = newRouteCM();
+
+        after.publishRoute(routeA);
+        assertEquals(2, published.size());
+        after.stopApp();
+    }
+
+    private RouteCM newRouteCM() throws Exception {
+        RouteCM routeCM = new RouteCM();
+
+        routeCM.init(group, IDFactory.newModuleClassID(), null);
+        routeCM.startApp(null);
+        return routeCM;
+    }
+
+    private static RouteAdvertisement newRoute(String host) {
+        RouteAdvertisement route = (RouteAdvertisement) AdvertisementFactory.newAdvertisement(RouteAdvertisement.getAdvertisementType());
+
+        route.setDestPeerID(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+        route.addDestEndpointAddress(new EndpointAddress("tcp", host + ":9701", null, null));
+        return route;
+    }
+}
@@ -0,0 +1,246 @@
+package net.jxta.impl.endpoint.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Connects thousands of loopback peers to a set of
+ * {@link MessengerSelectorLoop}s, has every peer send length prefixed
+ * frames and reports the rate at which the loops read and frame them and hand
+ * them to a worker pool, for one loop and for one loop per processor.
+ * <p/>
+ * The connections need 4000 file descriptors, more than many hosts allow by
+ * default. {@link TcpMessengerSelectorLoopTest} covers the messengers on the
+ * loops.
+ */
+@Ignore("benchmark, needs 4000 file descriptors")
+public class MessengerSelectorLoopBenchmarkTest {
+
+    private static final int CONNECTIONS = 2000;
+    private static final int FRAMES_PER_CONNECTION = 50;
+    private static final int FRAME_SIZE = 512;
+    private static final int WRITERS = 4;
+
+    private ServerSocketChannel server;
+    private final List<SocketChannel> clients = new ArrayList<SocketChannel>();
+    private final List<SocketChannel> accepted = new ArrayList<SocketChannel>();
+    private ExecutorService workers;
+
+    @Before
+    public void setUp() throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), CONNECTIONS);
+
+        for (int each = 0; each < CONNECTIONS; each++) {
+            SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+
+            clients.add(client);
+            accepted.add(server.accept());
+        }
+
+        workers = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        workers.shutdownNow();
+
+        for (SocketChannel channel : clients) {
+            channel.close();
+        }
+
+        for (SocketChannel channel : accepted) {
+            channel.close();
+        }
+
+        server.close();
+    }
+
+    @Test(timeout=300000)
+    public void testSingleLoop() throws Exception {
+        runBenchmark(1);
+    }
+
+    @Test(timeout=300000)
+    public void testLoopPerProcessor() throws Exception {
+        runBenchmark(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private void runBenchmark(int loopCount) throws Exception {
+        final long totalFrames = (long) CONNECTIONS * FRAMES_PER_CONNECTION;
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicLong delivered = new AtomicLong();
+
+        Runnable deliver = new Runnable() {
+            public void run() {
+                if (delivered.incrementAndGet() == totalFrames) {
+                    done.countDown();
+                }
+            }
+        };
+
+        MessengerSelectorLoop[] loops = new MessengerSelectorLoop[loopCount];
+
+        for (int each = 0; each < loopCount; each++) {
+            loops[each] = new MessengerSelectorLoop("benchmark loop " + each);
+
+            Thread loopThread = new Thread(loops[each], loops[each].toString());
+
+            loopThread.setDaemon(true);
+            loopThread.start();
+        }
+
+        try {
+            for (SocketChannel channel : accepted) {
+                channel.configureBlocking(false);
+
+                MessengerSelectorLoop least = loops[0];
+
+                for (MessengerSelectorLoop loop : loops) {
+                    if (loop.getChannelCount() < least.getChannelCount()) {
+                        least = loop;
+                    }
+                }
+
+                least.register(channel, new FrameReader(channel, deliver));
+            }
+
+            awaitRegistered(loops);
+
+            long start = System.nanoTime();
+
+            startWriters();
+
+            assertTrue("frames were lost", done.await(240, TimeUnit.SECONDS));
+
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%d loops, %d connections : %d frames in %d ms, %.0f frames/s%n",
+                    loopCount, CONNECTIONS, totalFrames, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    totalFrames * 1e9 / elapsed);
+        } finally {
+            for (MessengerSelectorLoop loop : loops) {
+                loop.close();
+            }
+        }
+    }
+
+    /**
+     * Waits for the loops to register every connection. A connection being
+     * registered may briefly be counted twice.
+     */
+    private void awaitRegistered(MessengerSelectorLoop[] loops) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        int total;
+
+        do {
+            Thread.sleep(10);
+
+            total = 0;
+
+            for (MessengerSelectorLoop loop : loops) {
+                total += loop.getChannelCount();
+            }
+        } while ((total != CONNECTIONS) && (System.currentTimeMillis() < deadline));
+
+        assertEquals(CONNECTIONS, total);
+    }
+
+    /**
+     * Each writer sends to its share of the connections in turn, a frame at a
+     * time, so that many connections are readable at once.
+     */
+    private void startWriters() {
+        for (int writer = 0; writer < WRITERS; writer++) {
+            final int first = writer;
+
+            Thread writerThread = new Thread(new Runnable() {
+                public void run() {
+                    ByteBuffer frame = ByteBuffer.allocate(4 + FRAME_SIZE);
+
+                    try {
+                        for (int round = 0; round < FRAMES_PER_CONNECTION; round++) {
+                            for (int each = first; each < CONNECTIONS; each += WRITERS) {
+                                frame.clear();
+                                frame.putInt(FRAME_SIZE);
+                                frame.position(frame.limit());
+                                frame.flip();
+
+                                while (frame.hasRemaining()) {
+                                    clients.get(each).write(frame);
+                                }
+                            }
+                        }
+                    } catch (IOException failed) {
+                        failed.printStackTrace();
+                    }
+                }
+            }, "benchmark writer " + writer);
+
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Reads length prefixed frames inline and hands each complete frame to
+     * the workers, as {@link TcpMessenger} does with messages.
+     */
+    private class FrameReader implements MessengerSelectorLoop.ReadHandler {
+
+        private final SocketChannel channel;
+        private final Runnable deliver;
+        private final ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+
+        FrameReader(SocketChannel channel, Runnable deliver) {
+            this.channel = channel;
+            this.deliver = deliver;
+        }
+
+        public void readAvailable() {
+            try {
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+
+                    while (buffer.remaining() >= 4 && buffer.remaining() >= 4 + buffer.getInt(buffer.position())) {
+                        int length = buffer.getInt();
+
+                        buffer.position(buffer.position() + length);
+                        workers.execute(deliver);
+                    }
+
+                    buffer.compact();
+                }
+            } catch (IOException failed) {
+                close();
+            }
+        }
+
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // ignored
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package net.jxta.impl.endpoint.tcp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.endpoint.ByteArrayMessageElement;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.EndpointService;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.MessageElement;
+import net.jxta.endpoint.MessengerEventListener;
+import net.jxta.endpoint.WireFormatMessage;
+import net.jxta.endpoint.WireFormatMessageFactory;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.endpoint.msgframing.MessagePackageHeader;
+import net.jxta.impl.endpoint.msgframing.WelcomeMessage;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Accepts loopback connections as {@link TcpMessenger}s of a transport
+ * running two {@link MessengerSelectorLoop}s and checks the messages the
+ * messengers read on the loops.
+ */
+public class TcpMessengerSelectorLoopTest {
+
+    static {
+        // Read once, when the class is loaded. Each test class runs in its own VM.
+        System.setProperty(WireFormatMessageFactory.class.getName() + ".CBJX_DISABLE", "true");
+    }
+
+    private static final EndpointAddress SERVER_ADDRESS = new EndpointAddress("tcp", "127.0.0.1:9701", null, null);
+
+    private final TaskManager taskManager = new TaskManager();
+    private final BlockingQueue<Message> received = new LinkedBlockingQueue<Message>();
+    private final List<SocketChannel> clients = new ArrayList<SocketChannel>();
+
+    private ServerSocketChannel server;
+    private ExecutorService executor;
+    private MessengerSelectorLoop[] loops;
+    private TcpTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+
+        final PeerID serverID = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+
+        PeerGroup group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getPeerGroupID".equals(method.getName())) {
+                    return PeerGroupID.defaultNetPeerGroupID;
+                } else if ("getPeerID".equals(method.getName())) {
+                    return serverID;
+                } else if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        EndpointService endpoint = (EndpointService) Proxy.newProxyInstance(EndpointService.class.getClassLoader(), new Class<?>[] {EndpointService.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("processIncomingMessage".equals(method.getName())) {
+                    received.add((Message) args[0]);
+                    return null;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        MessengerEventListener listener = (MessengerEventListener) Proxy.newProxyInstance(MessengerEventListener.class.getClassLoader(), new Class<?>[] {MessengerEventListener.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("messengerReady".equals(method.getName())) {
+                    return Boolean.TRUE;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        loops = new MessengerSelectorLoop[2];
+
+        for (int each = 0; each < loops.length; each++) {
+            loops[each] = new MessengerSelectorLoop("test loop " + each);
+
+            Thread loopThread = new Thread(loops[each], loops[each].toString());
+
+            loopThread.setDaemon(true);
+            loopThread.start();
+        }
+
+        // A single thread keeps the messages of a connection in order.
+        executor = Executors.newSingleThreadExecutor();
+
+        // The state init() and startApp() would set up, without listening.
+        transport = new TcpTransport();
+        transport.group = group;
+        transport.endpoint = endpoint;
+        transport.executor = executor;
+        setField("publicAddress", SERVER_ADDRESS);
+        setField("messengerEventListener", listener);
+        setField("selectorLoops", loops);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+
+        for (MessengerSelectorLoop loop : loops) {
+            loop.close();
+        }
+
+        server.close();
+        executor.shutdownNow();
+        taskManager.shutdown();
+    }
+
+    @Test(timeout = 30000)
+    public void testMessagesAreReadInOrder() throws Exception {
+        SocketChannel client = connect();
+        TcpMessenger messenger = accept();
+
+        // Many more bytes than the messenger reads from a selection, in one write.
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+
+        for (int each = 0; each < 200; each++) {
+            frames.write(frame(newMessage(each, 1024)));
+        }
+
+        write(client, frames.toByteArray());
+
+        for (int each = 0; each < 200; each++) {
+            assertPayload(each, 1024, received.poll(10, TimeUnit.SECONDS));
+        }
+
+        assertFalse(messenger.isClosed());
+    }
+
+    @Test(timeout = 30000)
+    public void testMessageLargerThanTheReadBuffer() throws Exception {
+        SocketChannel client = connect();
+
+        accept();
+
+        byte[] frame = frame(newMessage(1, 64 * 1024));
+
+        // In pieces, so that the message is framed across several selections.
+        for (int offset = 0; offset < frame.length; offset += 1000) {
+            write(client, Arrays.copyOfRange(frame, offset, Math.min(frame.length, offset + 1000)));
+            Thread.sleep(1);
+        }
+
+        write(client, frame(newMessage(2, 16)));
+
+        assertPayload(1, 64 * 1024, received.poll(10, TimeUnit.SECONDS));
+        assertPayload(2, 16, received.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 30000)
+    public void testConnectionsAreSharedBetweenLoops() throws Exception {
+        SocketChannel first = connect();
+        TcpMessenger firstMessenger = accept();
+
+        awaitChannelCount(1, 0);
+
+        SocketChannel second = connect();
+        TcpMessenger secondMessenger = accept();
+
+        awaitChannelCount(1, 1);
+
+        write(first, frame(newMessage(1, 16)));
+        assertPayload(1, 16, received.poll(10, TimeUnit.SECONDS));
+
+        write(second, frame(newMessage(2, 16)));
+        assertPayload(2, 16, received.poll(10, TimeUnit.SECONDS));
+
+        // The remote end closing is read by the loop, the messenger closes and unregisters.
+        first.close();
+        awaitChannelCount(0, 1);
+        assertTrue(firstMessenger.isClosed());
+
+        // Closing the messenger unregisters its channel.
+        secondMessenger.close();
+        awaitChannelCount(0, 0);
+    }
+
+    /**
+     * Connects to the server and sends our welcome, which the messenger
+     * waits for before it registers with a loop.
+     */
+    private SocketChannel connect() throws IOException {
+        SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+
+        clients.add(client);
+
+        PeerID clientID = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+        WelcomeMessage welcome = new WelcomeMessage(SERVER_ADDRESS, new EndpointAddress("tcp", "127.0.0.1:9702", null, null), clientID, false);
+
+        write(client, toBytes(welcome.getByteBuffer()));
+
+        return client;
+    }
+
+    /**
+     * Accepts a connection as the incoming unicast server does and reads
+     * the server's welcome on the client side.
+     */
+    private TcpMessenger accept() throws IOException {
+        TcpMessenger messenger = new TcpMessenger(server.accept(), transport);
+
+        InputStream in = Channels.newInputStream(clients.get(clients.size() - 1));
+
+        new WelcomeMessage(in);
+
+        return messenger;
+    }
+
+    private void awaitChannelCount(int first, int second) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (((loops[0].getChannelCount() != first) || (loops[1].getChannelCount() != second)) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(first, loops[0].getChannelCount());
+        assertEquals(second, loops[1].getChannelCount());
+    }
+
+    private static byte[] frame(Message msg) throws IOException {
+        WireFormatMessage serialized = WireFormatMessageFactory.toWire(msg, WireFormatMessageFactory.DEFAULT_WIRE_MIME, null);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        serialized.sendToStream(body);
+
+        MessagePackageHeader header = new MessagePackageHeader();
+
+        header.setContentTypeHeader(serialized.getMimeType());
+        header.setContentLengthHeader(body.size());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        bytes.write(toBytes(header.getByteBuffer()));
+        body.writeTo(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static Message newMessage(int number, int size) {
+        byte[] payload = new byte[size];
+
+        payload[0] = (byte) number;
+        payload[size - 1] = (byte) (number >> 8);
+
+        Message msg = new Message();
+
+        msg.addMessageElement("test", new ByteArrayMessageElement("payload", null, payload, null));
+        return msg;
+    }
+
+    private static void assertPayload(int number, int size, Message msg) {
+        assertNotNull(msg);
+
+        MessageElement element = msg.getMessageElement("test", "payload");
+
+        assertNotNull(element);
+
+        byte[] payload = element.getBytes(false);
+
+        assertEquals(size, payload.length);
+        assertEquals((byte) number, payload[0]);
+        assertEquals((byte) (number >> 8), payload[size - 1]);
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void write(SocketChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = TcpTransport.class.getDeclaredField(name);
+
+        field.setAccessible(true);
+        field.set(transport, value);
+    }
+}
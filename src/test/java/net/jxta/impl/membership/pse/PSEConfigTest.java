@@ -0,0 +1,170 @@
+package net.jxta.impl.membership.pse;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+import net.jxta.id.ID;
+import net.jxta.id.IDFactory;
+import net.jxta.peergroup.PeerGroupID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PSEConfigTest {
+
+    private static final String CERTIFICATE =
+            "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBvzCCASigAwIBAgIJAJf+30nsGUzhMA0GCSqGSIb3DQEBCwUAMA8xDTALBgNV\n"
+            + "BAMTBHRlc3QwIBcNMjYxMDE5MTcwMzU1WhgPMjEyNjA5MjUxNzAzNTVaMA8xDTAL\n"
+            + "BgNVBAMTBHRlc3QwgZ8wDQYJKoZIhvcNAQEBBQADgY0AMIGJAoGBAJZXcQpGlhFo\n"
+            + "TOE8nTRTU+pj5qvaJZHoAWmzti4p+DOuFk/JxC2NzWTHQSgES34ipNPt76/Data9\n"
+            + "iC7CLZoDaCh0HdnkvCCyCpEa/8Y31bwPIzdJ8wDH4g2H5IVKrUuC7iXXkIz2cP+q\n"
+            + "MC/mBeplfjiPQdlDqoRVvymg0NSpyKiTAgMBAAGjITAfMB0GA1UdDgQWBBSxnz/Z\n"
+            + "gvgB/LHZWt34inI/nNzYsDANBgkqhkiG9w0BAQsFAAOBgQBmZWGb03lKQdbaSvRd\n"
+            + "fcyWPdyNPBTiXYpHfrBu+OsvcC0i5Hn0hhfh4aVJqKGVadZnh3uPdVwGlpjxnKUf\n"
+            + "fSL8VytMpHT9nuWoUpQQv1Vsj3U+Wwmx7j6eEJmjsQmFjAwsiKpLouyElOWtSUWi\n"
+            + "YvibzfyFRNJ+buGv8MReBzuzlw==\n"
+            + "-----END CERTIFICATE-----\n";
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private CountingKeyStoreManager manager;
+    private PSEConfig config;
+    private X509Certificate cert;
+    private ID id;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new CountingKeyStoreManager();
+        config = new PSEConfig(manager, PASSWORD);
+        config.initialize();
+
+        cert = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(CERTIFICATE.getBytes("US-ASCII")));
+        id = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+    }
+
+    @Test
+    public void testLookupsDoNotReloadKeyStore() throws Exception {
+        config.setTrustedCertificate(id, cert);
+
+        int loads = manager.loads;
+
+        for (int each = 0; each < 100; each++) {
+            assertEquals(cert, config.getTrustedCertificate(id));
+            assertEquals(id, config.getTrustedCertificateID(cert));
+            assertFalse(config.isKey(id));
+            assertNull(config.getKey(id, PASSWORD));
+        }
+
+        assertEquals(loads, manager.loads);
+        assertTrue(Arrays.asList(config.getTrustedCertsList()).contains(id));
+        assertEquals(0, config.getKeysList().length);
+    }
+
+    @Test
+    public void testSnapshotFollowsChanges() throws Exception {
+        assertNull(config.getTrustedCertificate(id));
+        assertNull(config.getTrustedCertificateID(cert));
+
+        config.setTrustedCertificate(id, cert);
+
+        assertEquals(cert, config.getTrustedCertificate(id));
+
+        config.erase(id);
+
+        assertNull(config.getTrustedCertificate(id));
+        assertNull(config.getTrustedCertificateID(cert));
+
+        config.setTrustedCertificate(id, cert);
+        config.erase();
+        config.initialize();
+
+        assertNull(config.getTrustedCertificate(id));
+    }
+
+    @Test
+    public void testOtherPasswordLoadsKeyStore() throws Exception {
+        config.setTrustedCertificate(id, cert);
+
+        int loads = manager.loads;
+
+        assertEquals(cert, config.getTrustedCertificate(id, PASSWORD.clone()));
+        assertEquals(loads, manager.loads);
+
+        try {
+            config.getTrustedCertificate(id, "wrong".toCharArray());
+            fail("The keystore should not open with the wrong password");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertEquals(loads + 1, manager.loads);
+    }
+
+    /**
+     * Keeps the keystore serialized in memory and counts how often it is
+     * decoded.
+     */
+    private static class CountingKeyStoreManager implements KeyStoreManager {
+
+        byte[] serialized = null;
+
+        int loads = 0;
+
+        public boolean isInitialized() {
+            return null != serialized;
+        }
+
+        public boolean isInitialized(char[] password) {
+            return null != serialized;
+        }
+
+        public void createKeyStore(char[] password) throws IOException, KeyStoreException {
+            try {
+                KeyStore store = KeyStore.getInstance("JKS");
+
+                store.load(null, password);
+                saveKeyStore(store, password);
+            } catch (Exception failed) {
+                throw new KeyStoreException(failed);
+            }
+        }
+
+        public KeyStore loadKeyStore(char[] password) throws IOException, KeyStoreException {
+            loads++;
+
+            try {
+                KeyStore store = KeyStore.getInstance("JKS");
+
+                store.load(new ByteArrayInputStream(serialized), password);
+                return store;
+            } catch (IOException failed) {
+                throw failed;
+            } catch (Exception failed) {
+                throw new KeyStoreException(failed);
+            }
+        }
+
+        public void saveKeyStore(KeyStore store, char[] password) throws IOException, KeyStoreException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+            try {
+                store.store(bos, password);
+            } catch (Exception failed) {
+                throw new KeyStoreException(failed);
+            }
+            serialized = bos.toByteArray();
+        }
+
+        public void eraseKeyStore() {
+            serialized = null;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package net.jxta.impl.peergroup;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jxta.document.Advertisement;
+import net.jxta.id.ID;
+import net.jxta.peergroup.IModuleDefinitions;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.platform.DependentModule;
+import net.jxta.platform.Module;
+import net.jxta.platform.ModuleClassID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModuleStarterTest {
+
+    private ExecutorService executor;
+    private ModuleStartupTrace trace;
+    private Set<ModuleClassID> started;
+    private List<ModuleClassID> order;
+    private AtomicInteger early;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        trace = new ModuleStartupTrace();
+        started = Collections.newSetFromMap(new ConcurrentHashMap<ModuleClassID, Boolean>());
+        order = new CopyOnWriteArrayList<ModuleClassID>();
+        early = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout=30000)
+    public void testDependenciesStartFirst() {
+        Map<ModuleClassID, Object> modules = new LinkedHashMap<ModuleClassID, Object>();
+
+        // listed in the wrong order on purpose.
+        modules.put(IModuleDefinitions.discoveryClassID, new TestModule(IModuleDefinitions.discoveryClassID, 0,
+                IModuleDefinitions.resolverClassID, IModuleDefinitions.rendezvousClassID));
+        modules.put(IModuleDefinitions.rendezvousClassID, new TestModule(IModuleDefinitions.rendezvousClassID, 0,
+                IModuleDefinitions.endpointClassID));
+        modules.put(IModuleDefinitions.resolverClassID, new TestModule(IModuleDefinitions.resolverClassID, 0,
+                IModuleDefinitions.endpointClassID));
+        modules.put(IModuleDefinitions.endpointClassID, new TestModule(IModuleDefinitions.endpointClassID, 0));
+
+        assertEquals(Module.START_OK, newStarter(4).start(modules));
+        assertTrue(modules.isEmpty());
+        assertEquals(IModuleDefinitions.endpointClassID, order.get(0));
+        assertEquals(IModuleDefinitions.discoveryClassID, order.get(3));
+        assertEquals(0, early.get());
+
+        // nobody had to be started twice.
+        for (ModuleStartupTrace.Entry entry : trace.getEntries()) {
+            assertEquals(entry.toString(), 1, entry.getAttempts());
+            assertEquals(Module.START_OK, entry.getResult());
+        }
+    }
+
+    @Test(timeout=30000)
+    public void testIndependentModulesStartInParallel() {
+        Map<ModuleClassID, Object> modules = new LinkedHashMap<ModuleClassID, Object>();
+
+        modules.put(IModuleDefinitions.tcpProtoClassID, new TestModule(IModuleDefinitions.tcpProtoClassID, 300));
+        modules.put(IModuleDefinitions.httpProtoClassID, new TestModule(IModuleDefinitions.httpProtoClassID, 300));
+        modules.put(IModuleDefinitions.multicastProtoClassID, new TestModule(IModuleDefinitions.multicastProtoClassID, 300));
+        modules.put(IModuleDefinitions.relayProtoClassID, new TestModule(IModuleDefinitions.relayProtoClassID, 300));
+
+        long begin = System.currentTimeMillis();
+
+        assertEquals(Module.START_OK, newStarter(4).start(modules));
+
+        long elapsed = System.currentTimeMillis() - begin;
+
+        assertTrue("took " + elapsed + "ms", elapsed < 1000);
+        assertEquals(4, started.size());
+    }
+
+    @Test(timeout=30000)
+    public void testUndeclaredModulesAreRetried() {
+        Map<ModuleClassID, Object> modules = new LinkedHashMap<ModuleClassID, Object>();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // a legacy module which stalls until the endpoint is started.
+        modules.put(IModuleDefinitions.resolverClassID, new TestModule(IModuleDefinitions.resolverClassID, 0) {
+            @Override
+            public int startApp(String[] args) {
+                attempts.incrementAndGet();
+
+                if (!started.contains(IModuleDefinitions.endpointClassID)) {
+                    return START_AGAIN_STALLED;
+                }
+
+                return super.startApp(args);
+            }
+
+            @Override
+            public Collection<ModuleClassID> getStartDependencies() {
+                return null;
+            }
+        });
+        modules.put(IModuleDefinitions.endpointClassID, new TestModule(IModuleDefinitions.endpointClassID, 0));
+
+        assertEquals(Module.START_OK, newStarter(1).start(modules));
+        assertEquals(2, attempts.get());
+        assertEquals(Arrays.asList(IModuleDefinitions.endpointClassID, IModuleDefinitions.resolverClassID), order);
+    }
+
+    @Test(timeout=30000)
+    public void testStalledModulesEventuallyFail() {
+        Map<ModuleClassID, Object> modules = new LinkedHashMap<ModuleClassID, Object>();
+
+        // a dependency cycle, and a module which never starts.
+        modules.put(IModuleDefinitions.pipeClassID, new TestModule(IModuleDefinitions.pipeClassID, 0, IModuleDefinitions.peerinfoClassID));
+        modules.put(IModuleDefinitions.peerinfoClassID, new TestModule(IModuleDefinitions.peerinfoClassID, 0, IModuleDefinitions.pipeClassID));
+        modules.put(IModuleDefinitions.accessClassID, new TestModule(IModuleDefinitions.accessClassID, 0) {
+            @Override
+            public int startApp(String[] args) {
+                return START_AGAIN_STALLED;
+            }
+        });
+
+        assertEquals(-1, newStarter(4).start(modules));
+
+        // the cycle was broken, only the stalled module is left.
+        assertEquals(Collections.singleton(IModuleDefinitions.accessClassID), modules.keySet());
+        assertEquals(2, started.size());
+        assertTrue(early.get() > 0);
+    }
+
+    private ModuleStarter newStarter(int parallelism) {
+        return new ModuleStarter(this, executor, parallelism, trace) {
+            @Override
+            protected void moduleStarted(ModuleClassID mcid, Module module) {
+                order.add(mcid);
+            }
+        };
+    }
+
+    /**
+     * Counts the starts which happen before the dependencies have started.
+     */
+    private class TestModule implements DependentModule {
+
+        private final ModuleClassID mcid;
+        private final long startMillis;
+        private final List<ModuleClassID> dependencies;
+
+        TestModule(ModuleClassID mcid, long startMillis, ModuleClassID... dependencies) {
+            this.mcid = mcid;
+            this.startMillis = startMillis;
+            this.dependencies = Arrays.asList(dependencies);
+        }
+
+        public Collection<ModuleClassID> getStartDependencies() {
+            return dependencies;
+        }
+
+        public void init(PeerGroup group, ID assignedID, Advertisement implAdv) {
+        }
+
+        public int startApp(String[] args) {
+            if (!started.containsAll(dependencies)) {
+                early.incrementAndGet();
+            }
+
+            try {
+                Thread.sleep(startMillis);
+            } catch (InterruptedException woken) {
+                Thread.currentThread().interrupt();
+            }
+
+            started.add(mcid);
+            return START_OK;
+        }
+
+        public void stopApp() {
+        }
+    }
+}
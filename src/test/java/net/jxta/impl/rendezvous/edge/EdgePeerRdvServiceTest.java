@@ -0,0 +1,267 @@
+package net.jxta.impl.rendezvous.edge;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import net.jxta.document.AdvertisementFactory;
+import net.jxta.document.MimeMediaType;
+import net.jxta.document.StructuredDocumentFactory;
+import net.jxta.document.StructuredDocumentUtils;
+import net.jxta.document.XMLDocument;
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.endpoint.EndpointService;
+import net.jxta.endpoint.Message;
+import net.jxta.endpoint.StringMessageElement;
+import net.jxta.endpoint.TextDocumentMessageElement;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.endpoint.BlockingMessenger;
+import net.jxta.impl.rendezvous.RendezVousServiceImpl;
+import net.jxta.impl.rendezvous.StdRendezVousService;
+import net.jxta.impl.util.URISeedingManager;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.IModuleDefinitions;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.protocol.PeerAdvertisement;
+import net.jxta.protocol.RouteAdvertisement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Probes two seeds and receives their lease offers.
+ */
+public class EdgePeerRdvServiceTest {
+
+    private static final EndpointAddress SEED_A = new EndpointAddress("tcp", "10.0.0.1:9701", null, null);
+    private static final EndpointAddress SEED_B = new EndpointAddress("tcp", "10.0.0.2:9701", null, null);
+
+    /**
+     * The namespace of the rendezvous protocol elements.
+     */
+    private static final String NAMESPACE = "jxta";
+
+    private static final long LEASE = 20 * 60 * 1000L;
+
+    private final TaskManager taskManager = new TaskManager();
+
+    private final PeerGroupID groupID = IDFactory.newPeerGroupID();
+
+    private final PeerID selfID = IDFactory.newPeerID(groupID);
+
+    private final PeerID rdvA = IDFactory.newPeerID(groupID);
+    private final PeerID rdvB = IDFactory.newPeerID(groupID);
+
+    private PeerGroup group;
+
+    private EdgePeerRdvService edge;
+
+    /**
+     * The messages sent, as "address element".
+     */
+    private final List<String> sent = new ArrayList<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        final PeerAdvertisement selfAdv = newPeerAdvertisement(selfID, null);
+
+        final EndpointService endpoint = (EndpointService) Proxy.newProxyInstance(EndpointService.class.getClassLoader(), new Class<?>[] {EndpointService.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getMessengerImmediate".equals(method.getName()) || "getMessenger".equals(method.getName())) {
+                    return new RecordingMessenger((EndpointAddress) args[0], taskManager);
+                } else if ("getGroup".equals(method.getName())) {
+                    return group;
+                } else if ("getAllMessageTransports".equals(method.getName())) {
+                    return Collections.emptyList().iterator();
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getEndpointService".equals(method.getName())) {
+                    return endpoint;
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return groupID;
+                } else if ("getPeerID".equals(method.getName())) {
+                    return selfID;
+                } else if ("getPeerAdvertisement".equals(method.getName())) {
+                    return selfAdv;
+                } else if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                } else if ("getConfigAdvertisement".equals(method.getName()) || "getDiscoveryService".equals(method.getName())) {
+                    return null;
+                } else if ("toString".equals(method.getName())) {
+                    return "test";
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        RendezVousServiceImpl rdvService = new RendezVousServiceImpl();
+
+        rdvService.init(group, IDFactory.newModuleClassID(), null);
+        rdvService.endpoint = endpoint;
+
+        edge = new EdgePeerRdvService(group, rdvService);
+
+        URISeedingManager seedingManager = (URISeedingManager) getField("seedingManager");
+
+        seedingManager.addSeed(new URI(SEED_A.toString()));
+        seedingManager.addSeed(new URI(SEED_B.toString()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskManager.shutdown();
+    }
+
+    @Test
+    public void testFirstOfferWins() throws Exception {
+        invoke("probeSeeds", boolean.class, true);
+
+        // In no particular order, we know nothing about either seed.
+        assertEquals(new HashSet<String>(Arrays.asList(SEED_A + " " + StdRendezVousService.ConnectRequest, SEED_B + " " + StdRendezVousService.ConnectRequest)), new HashSet<String>(sent));
+        sent.clear();
+
+        invoke("processConnectedReply", Message.class, newLeaseOffer(rdvA, SEED_A));
+        invoke("processConnectedReply", Message.class, newLeaseOffer(rdvB, SEED_B));
+
+        assertEquals(Arrays.asList(rdvA), edge.getConnectedPeerIDs());
+
+        // The lease we asked B for is given back.
+        assertEquals(Arrays.asList(new EndpointAddress(rdvB, null, null) + " " + StdRendezVousService.DisconnectRequest), sent);
+    }
+
+    @Test
+    public void testFailedRendezvousIsForgotten() throws Exception {
+        invoke("probeSeeds", boolean.class, true);
+        invoke("processConnectedReply", Message.class, newLeaseOffer(rdvA, SEED_A));
+
+        @SuppressWarnings("unchecked")
+        RoundTripTimes<String> roundTripTimes = (RoundTripTimes<String>) getField("roundTripTimes");
+
+        assertTrue(roundTripTimes.getEstimate(SEED_A.toString()) >= 0);
+
+        // A no longer grants leases.
+        invoke("processConnectedReply", Message.class, newLeaseOffer(rdvA, SEED_A, 0));
+
+        assertTrue(edge.getConnectedPeerIDs().isEmpty());
+        assertEquals(-1, roundTripTimes.getEstimate(rdvA.toString()));
+        assertEquals(-1, roundTripTimes.getEstimate(SEED_A.toString()));
+    }
+
+    @Test
+    public void testUnsolicitedOfferIsIgnored() throws Exception {
+        invoke("processConnectedReply", Message.class, newLeaseOffer(rdvA, SEED_A));
+        invoke("processConnectedReply", Message.class, newLeaseOffer(rdvB, SEED_B));
+
+        assertEquals(Arrays.asList(rdvA), edge.getConnectedPeerIDs());
+
+        // We did not ask B for a lease, nothing to give back.
+        assertTrue(sent.isEmpty());
+    }
+
+    private Object getField(String name) throws Exception {
+        Field field = EdgePeerRdvService.class.getDeclaredField(name);
+
+        field.setAccessible(true);
+        return field.get(edge);
+    }
+
+    private void invoke(String name, Class<?> parameterType, Object arg) throws Exception {
+        Method method = EdgePeerRdvService.class.getDeclaredMethod(name, parameterType);
+
+        method.setAccessible(true);
+        method.invoke(edge, arg);
+    }
+
+    private Message newLeaseOffer(PeerID rdv, EndpointAddress address) {
+        return newLeaseOffer(rdv, address, LEASE);
+    }
+
+    private Message newLeaseOffer(PeerID rdv, EndpointAddress address, long lease) {
+        Message msg = new Message();
+
+        msg.addMessageElement(NAMESPACE, new TextDocumentMessageElement(StdRendezVousService.ConnectedRdvAdvReply, (XMLDocument) newPeerAdvertisement(rdv, address).getDocument(MimeMediaType.XMLUTF8), null));
+        msg.addMessageElement(NAMESPACE, new StringMessageElement(StdRendezVousService.ConnectedPeerReply, rdv.toString(), null));
+        msg.addMessageElement(NAMESPACE, new StringMessageElement(StdRendezVousService.ConnectedLeaseReply, Long.toString(lease), null));
+        return msg;
+    }
+
+    private PeerAdvertisement newPeerAdvertisement(PeerID peerID, EndpointAddress address) {
+        PeerAdvertisement padv = (PeerAdvertisement) AdvertisementFactory.newAdvertisement(PeerAdvertisement.getAdvertisementType());
+
+        padv.setPeerID(peerID);
+        padv.setPeerGroupID(groupID);
+        padv.setName(peerID.getUniqueValue().toString());
+
+        if (null != address) {
+            RouteAdvertisement route = (RouteAdvertisement) AdvertisementFactory.newAdvertisement(RouteAdvertisement.getAdvertisementType());
+
+            route.addDestEndpointAddress(address);
+
+            XMLDocument param = (XMLDocument) StructuredDocumentFactory.newStructuredDocument(MimeMediaType.XMLUTF8, "Parm");
+
+            StructuredDocumentUtils.copyElements(param, param, (XMLDocument) route.getDocument(MimeMediaType.XMLUTF8));
+            padv.putServiceParam(IModuleDefinitions.endpointClassID, param);
+        }
+
+        return padv;
+    }
+
+    /**
+     * A connected messenger which records the element of the rendezvous
+     * protocol each message carries.
+     */
+    private class RecordingMessenger extends BlockingMessenger {
+
+        RecordingMessenger(EndpointAddress dest, TaskManager taskManager) {
+            super(PeerGroupID.defaultNetPeerGroupID, dest, taskManager, false);
+        }
+
+        @Override
+        protected void closeImpl() {
+        }
+
+        @Override
+        protected void sendMessageBImpl(Message message, String service, String param) {
+            String element = null;
+
+            if (null != message.getMessageElement(NAMESPACE, StdRendezVousService.ConnectRequest)) {
+                element = StdRendezVousService.ConnectRequest;
+            } else if (null != message.getMessageElement(NAMESPACE, StdRendezVousService.DisconnectRequest)) {
+                element = StdRendezVousService.DisconnectRequest;
+            }
+
+            synchronized (sent) {
+                sent.add(getDestinationAddress() + " " + element);
+            }
+        }
+
+        @Override
+        protected boolean isIdleImpl() {
+            return false;
+        }
+
+        @Override
+        protected EndpointAddress getLogicalDestinationImpl() {
+            return getDestinationAddress();
+        }
+    }
+}
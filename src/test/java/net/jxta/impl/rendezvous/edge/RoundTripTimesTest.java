@@ -0,0 +1,81 @@
+package net.jxta.impl.rendezvous.edge;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class RoundTripTimesTest {
+
+    private final RoundTripTimes<String> times = new RoundTripTimes<String>();
+
+    @Test
+    public void testReplyWithoutProbeIsNotASample() {
+        assertEquals(-1, times.replied(Collections.singleton("rdv")));
+        assertEquals(-1, times.getEstimate("rdv"));
+    }
+
+    @Test
+    public void testReplyMatchesAnyKey() throws Exception {
+        // probed by address, answered with its peer ID and addresses.
+        times.probed("tcp://10.0.0.1:9701");
+        Thread.sleep(50);
+
+        long sample = times.replied(Arrays.asList("urn:jxta:rdv", "tcp://10.0.0.1:9701"));
+
+        assertTrue("sample " + sample, sample >= 50);
+        assertEquals(sample, times.getEstimate("urn:jxta:rdv"));
+        assertEquals(sample, times.getEstimate("tcp://10.0.0.1:9701"));
+
+        // the probe was consumed.
+        assertEquals(-1, times.replied(Collections.singleton("urn:jxta:rdv")));
+    }
+
+    @Test
+    public void testEstimateIsSmoothed() throws Exception {
+        times.probed("rdv");
+        Thread.sleep(400);
+        long first = times.replied(Collections.singleton("rdv"));
+
+        times.probed("rdv");
+        long second = times.replied(Collections.singleton("rdv"));
+
+        long estimate = times.getEstimate("rdv");
+
+        assertTrue(second < first);
+        assertTrue("estimate " + estimate, (estimate > second) && (estimate < first));
+        assertTrue("estimate " + estimate, estimate >= first - (first - second) / 8 - 1);
+    }
+
+    @Test
+    public void testForgetAndExpire() throws Exception {
+        times.probed("rdv");
+        times.replied(Collections.singleton("rdv"));
+        times.forget("rdv");
+
+        assertEquals(-1, times.getEstimate("rdv"));
+
+        times.probed("slow");
+        Thread.sleep(20);
+        times.expireProbes(10);
+
+        assertEquals(-1, times.replied(Collections.singleton("slow")));
+    }
+
+    @Test
+    public void testForgetAllKeys() throws Exception {
+        // A seed known only by its address which replied with its peer ID.
+        times.probed("tcp://10.0.0.1:9701");
+        times.replied(Arrays.asList("urn:jxta:rdv", "tcp://10.0.0.1:9701"));
+        times.probed("tcp://10.0.0.2:9701");
+        times.replied(Arrays.asList("urn:jxta:other", "tcp://10.0.0.2:9701"));
+
+        times.forget("urn:jxta:rdv");
+
+        assertEquals(-1, times.getEstimate("urn:jxta:rdv"));
+        assertEquals(-1, times.getEstimate("tcp://10.0.0.1:9701"));
+        assertTrue(times.getEstimate("tcp://10.0.0.2:9701") >= 0);
+    }
+}
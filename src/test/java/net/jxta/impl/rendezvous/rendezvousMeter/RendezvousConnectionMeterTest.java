@@ -0,0 +1,30 @@
+package net.jxta.impl.rendezvous.rendezvousMeter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RendezvousConnectionMeterTest {
+
+    @Test
+    public void testCollectKeepsLastLeaseRenewalTime() throws Exception {
+        RendezvousConnectionMeter meter = new RendezvousConnectionMeter(null);
+
+        meter.beginConnection();
+        meter.connectionEstablished(60000);
+
+        // the renewal must not be confused with the connection
+        Thread.sleep(20);
+
+        meter.leaseRenewed(60000);
+
+        RendezvousConnectionMetric delta = meter.collectMetrics();
+        RendezvousConnectionMetric cumulative = meter.getCumulativeMetrics();
+
+        assertTrue(cumulative.getLastLeaseRenewalTime() > cumulative.getTransitionTime());
+        assertEquals(cumulative.getLastLeaseRenewalTime(), delta.getLastLeaseRenewalTime());
+        assertEquals(cumulative.getTransitionTime(), delta.getTransitionTime());
+        assertEquals(1, delta.getNumLeaseRenewals());
+        assertNull(meter.collectMetrics());
+    }
+}
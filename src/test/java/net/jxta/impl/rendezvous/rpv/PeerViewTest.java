@@ -0,0 +1,199 @@
+package net.jxta.impl.rendezvous.rpv;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.jxta.document.AdvertisementFactory;
+import net.jxta.endpoint.EndpointService;
+import net.jxta.id.ID;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.rendezvous.RendezVousServiceImpl;
+import net.jxta.impl.util.WarmRestartSnapshot;
+import net.jxta.impl.util.threads.TaskManager;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.protocol.PeerAdvertisement;
+import net.jxta.protocol.RdvAdvertisement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Stops and restarts peerviews with warm restart snapshots enabled.
+ */
+public class PeerViewTest {
+
+    private static final String NAME = "test";
+
+    @Rule
+    public TemporaryFolder storeHome = new TemporaryFolder();
+
+    private TaskManager taskManager;
+
+    private final PeerGroupID groupID = IDFactory.newPeerGroupID();
+
+    private final PeerID selfID = IDFactory.newPeerID(groupID);
+
+    private PeerGroup group;
+
+    private RendezVousServiceImpl rdvService;
+
+    @Before
+    public void setUp() throws Exception {
+        taskManager = new TaskManager();
+
+        final PeerAdvertisement selfAdv = newPeerAdvertisement(selfID, groupID);
+
+        final EndpointService endpoint = (EndpointService) Proxy.newProxyInstance(EndpointService.class.getClassLoader(), new Class<?>[] {EndpointService.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getGroup".equals(method.getName())) {
+                    return group;
+                }
+
+                // No listener is kept and no messenger is available.
+                return (boolean.class == method.getReturnType()) ? Boolean.FALSE : null;
+            }
+        });
+
+        group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getEndpointService".equals(method.getName())) {
+                    return endpoint;
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return groupID;
+                } else if ("getPeerGroupName".equals(method.getName())) {
+                    return NAME;
+                } else if ("getPeerID".equals(method.getName())) {
+                    return selfID;
+                } else if ("getPeerAdvertisement".equals(method.getName())) {
+                    return selfAdv;
+                } else if ("getTaskManager".equals(method.getName())) {
+                    return taskManager;
+                } else if ("getStoreHome".equals(method.getName())) {
+                    return storeHome.getRoot().toURI();
+                } else if ("getConfigAdvertisement".equals(method.getName())) {
+                    return null;
+                } else if ("toString".equals(method.getName())) {
+                    return NAME;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        rdvService = new RendezVousServiceImpl();
+
+        System.setProperty(WarmRestartSnapshot.ENABLED_SYSPROP, "true");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+        taskManager.shutdown();
+    }
+
+    @Test
+    public void testWarmRestart_restoresMembers() throws Exception {
+        PeerID memberID = IDFactory.newPeerID(groupID);
+        PeerGroupID otherGroupID = IDFactory.newPeerGroupID();
+
+        final RdvAdvertisement member = newRdvAdvertisement(memberID, groupID);
+        final RdvAdvertisement self = newRdvAdvertisement(selfID, groupID);
+        final RdvAdvertisement stranger = newRdvAdvertisement(IDFactory.newPeerID(otherGroupID), otherGroupID);
+
+        // As saved by a previous instance, along with entries which must not be restored.
+        assertTrue(WarmRestartSnapshot.save(group, "PeerView", new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                out.writeInt(3);
+                WarmRestartSnapshot.writeAdvertisement(out, self);
+                WarmRestartSnapshot.writeAdvertisement(out, stranger);
+                WarmRestartSnapshot.writeAdvertisement(out, member);
+            }
+        }));
+
+        PeerView first = new PeerView(group, null, rdvService, NAME);
+
+        first.start();
+        assertEquals(setOf(memberID), memberIDs(first));
+        first.stop();
+        restart();
+
+        // The restored member was saved again.
+        PeerView second = new PeerView(group, null, rdvService, NAME);
+
+        second.start();
+        assertEquals(setOf(memberID), memberIDs(second));
+        second.stop();
+    }
+
+    @Test
+    public void testWarmRestart_disabled() throws Exception {
+        PeerID memberID = IDFactory.newPeerID(groupID);
+        final RdvAdvertisement member = newRdvAdvertisement(memberID, groupID);
+
+        assertTrue(WarmRestartSnapshot.save(group, "PeerView", new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                out.writeInt(1);
+                WarmRestartSnapshot.writeAdvertisement(out, member);
+            }
+        }));
+
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+
+        PeerView view = new PeerView(group, null, rdvService, NAME);
+
+        view.start();
+        assertTrue(memberIDs(view).isEmpty());
+        view.stop();
+    }
+
+    /**
+     * The local executors of a task manager cannot be used again once
+     * stopped, a restarted peer has a new one.
+     */
+    private void restart() {
+        taskManager.shutdown();
+        taskManager = new TaskManager();
+    }
+
+    private static Set<ID> memberIDs(PeerView view) {
+        Set<ID> result = new HashSet<ID>();
+
+        for (PeerViewElement pve : view.getView()) {
+            result.add(pve.getPeerID());
+        }
+
+        return result;
+    }
+
+    private static Set<ID> setOf(ID id) {
+        Set<ID> result = new HashSet<ID>();
+
+        result.add(id);
+        return result;
+    }
+
+    private static PeerAdvertisement newPeerAdvertisement(PeerID peerID, PeerGroupID groupID) {
+        PeerAdvertisement padv = (PeerAdvertisement) AdvertisementFactory.newAdvertisement(PeerAdvertisement.getAdvertisementType());
+
+        padv.setPeerID(peerID);
+        padv.setPeerGroupID(groupID);
+        padv.setName(peerID.getUniqueValue().toString());
+        return padv;
+    }
+
+    private static RdvAdvertisement newRdvAdvertisement(PeerID peerID, PeerGroupID groupID) {
+        return PeerView.createRdvAdvertisement(newPeerAdvertisement(peerID, groupID), NAME);
+    }
+}
@@ -0,0 +1,268 @@
+package net.jxta.impl.rendezvous.rpv;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Runs groups of 10 to 200 rendezvous in a simulated network, with a
+ * simulated clock, and measures how long the group takes to detect a crash
+ * and how much each rendezvous sends.
+ */
+public class SwimFailureDetectorTest {
+
+    private static final long PERIOD = 1000;
+    private static final long PING_TIMEOUT = 250;
+    private static final double LOSS = 0.01;
+
+    private static final SwimFailureDetector.KeyParser<String> PARSER = new SwimFailureDetector.KeyParser<String>() {
+        public String parse(String text) {
+            return text;
+        }
+    };
+
+    @Test
+    public void testEncodeDecode() {
+        List<SwimFailureDetector.Update<String>> updates = new ArrayList<SwimFailureDetector.Update<String>>();
+
+        updates.add(new SwimFailureDetector.Update<String>("c", SwimFailureDetector.Status.SUSPECT, 3));
+
+        SwimFailureDetector.Packet<String> packet = new SwimFailureDetector.Packet<String>(SwimFailureDetector.Type.PING_REQ, 42, "a", "b", updates);
+        SwimFailureDetector.Packet<String> decoded = SwimFailureDetector.Packet.decode(packet.encode(), PARSER);
+
+        assertEquals(SwimFailureDetector.Type.PING_REQ, decoded.type);
+        assertEquals(42, decoded.seq);
+        assertEquals("a", decoded.from);
+        assertEquals("b", decoded.target);
+        assertEquals(1, decoded.updates.size());
+        assertEquals("c", decoded.updates.get(0).member);
+        assertEquals(SwimFailureDetector.Status.SUSPECT, decoded.updates.get(0).status);
+        assertEquals(3, decoded.updates.get(0).incarnation);
+    }
+
+    @Test
+    public void testSuspicionIsRefuted() {
+        Network network = new Network(3, 0.0, 1);
+        String suspect = network.keys.get(2);
+
+        network.run(5 * PERIOD);
+
+        // Another member wrongly suspects the third one.
+        network.deliver(network.keys.get(1), network.keys.get(0), new SwimFailureDetector.Packet<String>(SwimFailureDetector.Type.PING, 999, network.keys.get(1), null,
+                singleUpdate(suspect, SwimFailureDetector.Status.SUSPECT, 0)));
+        assertEquals(SwimFailureDetector.Status.SUSPECT, network.nodes.get(network.keys.get(0)).getStatus(suspect));
+
+        network.run(10 * PERIOD);
+
+        assertTrue(network.nodes.get(suspect).getIncarnation() > 0);
+        assertEquals(SwimFailureDetector.Status.ALIVE, network.nodes.get(network.keys.get(0)).getStatus(suspect));
+        assertTrue(network.failures.isEmpty());
+    }
+
+    @Test
+    public void testDetectionScales() {
+        double[] sentPerPeriod = new double[4];
+        int[] sizes = {10, 50, 100, 200};
+
+        for (int each = 0; each < sizes.length; each++) {
+            int size = sizes[each];
+            Network network = new Network(size, LOSS, size);
+
+            network.run(10 * PERIOD);
+
+            String victim = network.keys.get(size / 2);
+            long crashedAt = network.now;
+            long messages = network.messages;
+            long bytes = network.bytes;
+
+            network.crash(victim);
+            network.runUntilDetected(victim, 60 * PERIOD);
+
+            long elapsed = network.now - crashedAt;
+            Long first = network.firstDetection(victim);
+
+            assertTrue("size " + size + " did not converge", network.detected(victim));
+            assertNotNull(first);
+            assertTrue("size " + size + " no false positives " + network.failures, network.failures.keySet().equals(Collections.singleton(victim)));
+
+            double periods = (double) elapsed / PERIOD;
+
+            sentPerPeriod[each] = (network.messages - messages) / (periods * size);
+
+            double bytesPerSecond = (network.bytes - bytes) * 1000.0 / (elapsed * size);
+
+            System.out.printf("SWIM n=%3d : first detection %5.1fs, converged %5.1fs, %.2f msgs and %5.0f bytes/s per rendezvous%n",
+                    size, (first - crashedAt) / 1000.0, elapsed / 1000.0, sentPerPeriod[each], bytesPerSecond);
+
+            // Detection is bounded by the suspicion timeout, plus dissemination.
+            assertTrue("size " + size + " converged in " + elapsed, elapsed <= 30 * PERIOD);
+        }
+
+        // The number of messages a rendezvous sends does not grow with the group.
+        for (double sent : sentPerPeriod) {
+            assertTrue("sent " + sent, sent < 4.0);
+            assertTrue("sent " + sent, sent < sentPerPeriod[0] * 1.5);
+        }
+    }
+
+    private static List<SwimFailureDetector.Update<String>> singleUpdate(String member, SwimFailureDetector.Status status, long incarnation) {
+        List<SwimFailureDetector.Update<String>> updates = new ArrayList<SwimFailureDetector.Update<String>>();
+
+        updates.add(new SwimFailureDetector.Update<String>(member, status, incarnation));
+        return updates;
+    }
+
+    private static final class Event implements Comparable<Event> {
+
+        final long at;
+        final long order;
+        final String node;
+        final String from;
+        final String text;
+
+        Event(long at, long order, String node, String from, String text) {
+            this.at = at;
+            this.order = order;
+            this.node = node;
+            this.from = from;
+            this.text = text;
+        }
+
+        public int compareTo(Event other) {
+            if (at != other.at) {
+                return (at < other.at) ? -1 : 1;
+            }
+            return (order < other.order) ? -1 : ((order == other.order) ? 0 : 1);
+        }
+    }
+
+    /**
+     * A fully connected group with random latency and loss. Ticks are events
+     * without text.
+     */
+    private static final class Network {
+
+        final Random random;
+        final double loss;
+        final List<String> keys = new ArrayList<String>();
+        final Map<String, SwimFailureDetector<String>> nodes = new HashMap<String, SwimFailureDetector<String>>();
+        final Set<String> crashed = new HashSet<String>();
+        final Map<String, Set<String>> detectedBy = new HashMap<String, Set<String>>();
+        final Map<String, Long> failures = new HashMap<String, Long>();
+        final PriorityQueue<Event> events = new PriorityQueue<Event>();
+        long now = 0;
+        long order = 0;
+        long messages = 0;
+        long bytes = 0;
+
+        Network(int size, double loss, long seed) {
+            this.random = new Random(seed);
+            this.loss = loss;
+
+            for (int each = 0; each < size; each++) {
+                // as long as a peer id URN.
+                keys.add(String.format("urn:jxta:uuid-59616261646162614A78746150325033%032X03", each));
+            }
+
+            for (final String key : keys) {
+                SwimFailureDetector<String> node = new SwimFailureDetector<String>(key, new SwimFailureDetector.Transport<String>() {
+                    public void send(String to, SwimFailureDetector.Packet<String> packet) {
+                        String text = packet.encode();
+
+                        messages++;
+                        bytes += text.length();
+
+                        if (random.nextDouble() >= Network.this.loss) {
+                            events.add(new Event(now + 5 + random.nextInt(55), order++, to, key, text));
+                        }
+                    }
+                }, new SwimFailureDetector.Listener<String>() {
+                    public void suspected(String member) {
+                    }
+
+                    public void failed(String member) {
+                        Set<String> by = detectedBy.get(member);
+
+                        if (null == by) {
+                            by = new HashSet<String>();
+                            detectedBy.put(member, by);
+                            failures.put(member, now);
+                        }
+                        by.add(key);
+                    }
+                }, PERIOD, PING_TIMEOUT, new Random(random.nextLong()));
+
+                nodes.put(key, node);
+            }
+
+            for (String key : keys) {
+                for (String other : keys) {
+                    nodes.get(key).addMember(other);
+                }
+
+                events.add(new Event(random.nextInt((int) PING_TIMEOUT), order++, key, null, null));
+            }
+        }
+
+        void crash(String key) {
+            crashed.add(key);
+        }
+
+        void deliver(String from, String to, SwimFailureDetector.Packet<String> packet) {
+            nodes.get(to).receive(packet, now);
+        }
+
+        boolean detected(String victim) {
+            Set<String> by = detectedBy.get(victim);
+
+            return (null != by) && (by.size() == keys.size() - crashed.size());
+        }
+
+        Long firstDetection(String victim) {
+            return failures.get(victim);
+        }
+
+        void run(long duration) {
+            runUntilDetected(null, duration);
+        }
+
+        void runUntilDetected(String victim, long duration) {
+            long until = now + duration;
+
+            while (!events.isEmpty() && (events.peek().at <= until)) {
+                if ((null != victim) && detected(victim)) {
+                    return;
+                }
+
+                Event event = events.poll();
+
+                now = event.at;
+
+                if (crashed.contains(event.node)) {
+                    continue;
+                }
+
+                SwimFailureDetector<String> node = nodes.get(event.node);
+
+                if (null == event.text) {
+                    node.tick(now);
+                    events.add(new Event(now + PING_TIMEOUT, order++, event.node, null, null));
+                } else {
+                    node.receive(SwimFailureDetector.Packet.decode(event.text, PARSER), now);
+                }
+            }
+
+            now = Math.max(now, until);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package net.jxta.impl.resolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import net.jxta.endpoint.EndpointAddress;
+import net.jxta.id.IDFactory;
+import net.jxta.impl.protocol.ResolverQuery;
+import net.jxta.impl.protocol.ResolverResponse;
+import net.jxta.peer.PeerID;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.protocol.ResolverQueryMsg;
+import net.jxta.protocol.ResolverResponseMsg;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuerySessionsTest {
+
+    private PeerID local;
+    private List<PeerID> peers;
+
+    @Before
+    public void setUp() {
+        local = IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID);
+        peers = new ArrayList<PeerID>();
+
+        for (int each = 0; each < 10; each++) {
+            peers.add(IDFactory.newPeerID(PeerGroupID.defaultNetPeerGroupID));
+        }
+    }
+
+    @Test
+    public void testTargetsAreNotSentTheQueryTwice() {
+        QuerySessions sessions = new QuerySessions(local, 0, 5000, 30000);
+        ResolverQueryMsg query = newQuery(peers.get(9), 1);
+
+        List<PeerID> first = sessions.selectTargets(query, peers, 4);
+        List<PeerID> second = sessions.selectTargets(query, peers, 4);
+
+        assertEquals(4, first.size());
+        assertEquals(4, new HashSet<PeerID>(first).size());
+        assertEquals(4, second.size());
+
+        for (PeerID peer : second) {
+            assertFalse(first.contains(peer));
+        }
+
+        // the same query from another source is another session.
+        assertEquals(10, sessions.selectTargets(newQuery(peers.get(8), 1), peers, 10).size());
+    }
+
+    @Test
+    public void testInFlightQueriesPerPeerAreCapped() {
+        QuerySessions sessions = new QuerySessions(local, 1, 5000, 30000);
+        List<PeerID> one = Arrays.asList(peers.get(0));
+        List<PeerID> two = Arrays.asList(peers.get(0), peers.get(1));
+
+        assertEquals(one, sessions.selectTargets(newQuery(local, 1), one, 1));
+        assertEquals(Arrays.asList(peers.get(1)), sessions.selectTargets(newQuery(local, 2), two, 1));
+        assertEquals(1, sessions.getInFlight(peers.get(0)));
+
+        // a response frees a slot.
+        assertTrue(sessions.responseReceived(newResponse(1), addressOf(peers.get(0))));
+        assertEquals(0, sessions.getInFlight(peers.get(0)));
+        assertEquals(one, sessions.selectTargets(newQuery(local, 3), two, 1));
+    }
+
+    @Test
+    public void testCappedPeerIsUsedWhenThereIsNoOther() {
+        QuerySessions sessions = new QuerySessions(local, 1, 5000, 30000);
+        List<PeerID> one = Arrays.asList(peers.get(0));
+
+        assertEquals(one, sessions.selectTargets(newQuery(local, 1), one, 1));
+        assertEquals(one, sessions.selectTargets(newQuery(local, 2), one, 1));
+        assertEquals(2, sessions.getInFlight(peers.get(0)));
+    }
+
+    @Test
+    public void testForwardedQueriesAreNotCapped() {
+        QuerySessions sessions = new QuerySessions(local, 2, 5000, 30000);
+        List<PeerID> two = Arrays.asList(peers.get(0), peers.get(1));
+
+        // Their responses go to their source, the peers never leave flight.
+        for (int each = 0; each < 100; each++) {
+            assertEquals(2, sessions.selectTargets(newQuery(peers.get(5), each), two, 2).size());
+        }
+
+        assertEquals(0, sessions.getInFlight(peers.get(0)));
+
+        // nor do they count against our own queries.
+        assertEquals(2, sessions.selectTargets(newQuery(local, 1), two, 2).size());
+    }
+
+    @Test
+    public void testAddedTargetsAreNotCapped() {
+        QuerySessions sessions = new QuerySessions(local, 1, 5000, 30000);
+        ResolverQueryMsg query = newQuery(local, 2);
+
+        assertTrue(sessions.addTarget(newQuery(local, 1), peers.get(0)));
+        assertTrue(sessions.addTarget(query, peers.get(0)));
+        assertEquals(2, sessions.getInFlight(peers.get(0)));
+
+        // but the same query is still not sent twice.
+        assertFalse(sessions.addTarget(query, peers.get(0)));
+        assertTrue(sessions.selectTargets(query, Arrays.asList(peers.get(0)), 1).isEmpty());
+    }
+
+    @Test
+    public void testInFlightQueriesTimeOut() {
+        QuerySessions sessions = new QuerySessions(local, 1, 0, 30000);
+        List<PeerID> one = Arrays.asList(peers.get(0));
+
+        assertEquals(one, sessions.selectTargets(newQuery(local, 1), one, 1));
+        assertEquals(1, sessions.selectTargets(newQuery(local, 2), Arrays.asList(peers.get(1)), 1).size());
+        assertEquals(0, sessions.getInFlight(peers.get(0)));
+    }
+
+    @Test
+    public void testLateResponsesAreDropped() {
+        QuerySessions sessions = new QuerySessions(local, 0, 5000, 30000);
+        ResolverQueryMsg query = newQuery(local, 7);
+
+        sessions.open(query, 2);
+        assertEquals(5, sessions.selectTargets(query, peers, 5).size());
+
+        assertTrue(sessions.responseReceived(newResponse(7), addressOf(peers.get(0))));
+        assertFalse(sessions.isSatisfied(query));
+        assertTrue(sessions.responseReceived(newResponse(7), addressOf(peers.get(1))));
+        assertTrue(sessions.isSatisfied(query));
+
+        assertFalse(sessions.responseReceived(newResponse(7), addressOf(peers.get(2))));
+        assertFalse(sessions.responseReceived(newResponse(7), addressOf(peers.get(1))));
+
+        // no more forwarding, and the other targets are no longer in flight.
+        assertTrue(sessions.selectTargets(query, peers, 5).isEmpty());
+        assertEquals(0, sessions.getInFlight(peers.get(2)));
+
+        // responses to unknown queries are not tracked.
+        assertTrue(sessions.responseReceived(newResponse(8), addressOf(peers.get(2))));
+    }
+
+    @Test
+    public void testSessionsExpire() {
+        QuerySessions sessions = new QuerySessions(local, 0, 0, 0);
+        ResolverQueryMsg query = newQuery(local, 7);
+
+        sessions.open(query, 1);
+        sessions.selectTargets(query, peers, 1);
+        assertTrue(sessions.responseReceived(newResponse(7), addressOf(peers.get(0))));
+        assertTrue(sessions.responseReceived(newResponse(7), addressOf(peers.get(1))));
+        assertEquals(1, sessions.selectTargets(query, peers, 1).size());
+    }
+
+    private ResolverQueryMsg newQuery(PeerID src, int queryId) {
+        ResolverQueryMsg query = new ResolverQuery();
+
+        query.setHandlerName("handler");
+        query.setSrcPeer(src);
+        query.setQueryId(queryId);
+        query.setQuery("query");
+        return query;
+    }
+
+    private ResolverResponseMsg newResponse(int queryId) {
+        ResolverResponseMsg response = new ResolverResponse();
+
+        response.setHandlerName("handler");
+        response.setQueryId(queryId);
+        response.setResponse("response");
+        return response;
+    }
+
+    private static EndpointAddress addressOf(PeerID peer) {
+        return new EndpointAddress("jxta", peer.getUniqueValue().toString(), null, null);
+    }
+}
@@ -0,0 +1,77 @@
+package net.jxta.impl.resolver.resolverMeter;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ResolverMeterTest {
+
+    private static final int THREADS = 4;
+    private static final int UPDATES = 50000;
+
+    @Test
+    public void testNothingToCollect() {
+        ResolverMeter meter = new ResolverMeter(null);
+
+        assertNull(meter.collectMetrics());
+
+        meter.invalidResponseDiscarded(null);
+
+        assertEquals(1, meter.collectMetrics().getNumInvalidResponses());
+        assertNull(meter.collectMetrics());
+        assertEquals(1, meter.getCumulativeMetrics().getNumInvalidResponses());
+    }
+
+    @Test
+    public void testCollectWhileUpdating() throws Exception {
+        final ResolverMeter meter = new ResolverMeter(null);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int each = 0; each < UPDATES; each++) {
+                        meter.invalidQueryDiscarded(null);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+
+        long collected = 0;
+
+        while (!executor.isTerminated()) {
+            ResolverMetric delta = meter.collectMetrics();
+
+            if (delta != null) {
+                collected += delta.getNumInvalidQueries();
+            }
+
+            executor.awaitTermination(1, TimeUnit.MILLISECONDS);
+        }
+
+        ResolverMetric last = meter.collectMetrics();
+
+        if (last != null) {
+            collected += last.getNumInvalidQueries();
+        }
+
+        // no update is lost between two collections, nor reported twice
+        assertEquals(THREADS * UPDATES, collected);
+        assertEquals(THREADS * UPDATES, meter.getCumulativeMetrics().getNumInvalidQueries());
+    }
+}
@@ -0,0 +1,268 @@
+package net.jxta.impl.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import net.jxta.document.AdvertisementFactory;
+import net.jxta.id.IDFactory;
+import net.jxta.peergroup.PeerGroup;
+import net.jxta.peergroup.PeerGroupID;
+import net.jxta.pipe.PipeService;
+import net.jxta.protocol.PipeAdvertisement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WarmRestartSnapshotTest {
+
+    private static final long NOW = 1000000L;
+
+    @Rule
+    public TemporaryFolder storeHome = new TemporaryFolder();
+
+    private FakeSystemClock clock;
+
+    private PeerGroup group;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new FakeSystemClock();
+        clock.currentTime = NOW;
+        TimeUtils.setClock(clock);
+
+        group = (PeerGroup) Proxy.newProxyInstance(PeerGroup.class.getClassLoader(), new Class<?>[] {PeerGroup.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getStoreHome".equals(method.getName())) {
+                    return storeHome.getRoot().toURI();
+                } else if ("getPeerGroupID".equals(method.getName())) {
+                    return PeerGroupID.defaultNetPeerGroupID;
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        System.setProperty(WarmRestartSnapshot.ENABLED_SYSPROP, "true");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+        System.clearProperty(WarmRestartSnapshot.MAX_AGE_SYSPROP);
+        TimeUtils.resetClock();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        char[] chars = new char[100000];
+
+        Arrays.fill(chars, '\u00e9');
+
+        // Longer than writeUTF allows.
+        final String longText = new String(chars);
+
+        assertTrue(WarmRestartSnapshot.save(group, "test", new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                out.writeInt(42);
+                WarmRestartSnapshot.writeString(out, "short");
+                WarmRestartSnapshot.writeString(out, longText);
+            }
+        }));
+
+        clock.currentTime = NOW + 1000L;
+
+        final Object[] read = new Object[4];
+
+        assertTrue(WarmRestartSnapshot.load(group, "test", new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                read[0] = savedAt;
+                read[1] = in.readInt();
+                read[2] = WarmRestartSnapshot.readString(in);
+                read[3] = WarmRestartSnapshot.readString(in);
+            }
+        }));
+
+        assertEquals(NOW, read[0]);
+        assertEquals(42, read[1]);
+        assertEquals("short", read[2]);
+        assertEquals(longText, read[3]);
+    }
+
+    @Test
+    public void testAdvertisementRoundTrip() throws Exception {
+        final PipeAdvertisement pipeAdv = (PipeAdvertisement) AdvertisementFactory.newAdvertisement(PipeAdvertisement.getAdvertisementType());
+
+        pipeAdv.setPipeID(IDFactory.newPipeID(PeerGroupID.defaultNetPeerGroupID));
+        pipeAdv.setType(PipeService.UnicastType);
+        pipeAdv.setName("snapshot");
+
+        assertTrue(WarmRestartSnapshot.save(group, "test", new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                WarmRestartSnapshot.writeAdvertisement(out, pipeAdv);
+            }
+        }));
+
+        final PipeAdvertisement[] read = new PipeAdvertisement[1];
+
+        assertTrue(WarmRestartSnapshot.load(group, "test", new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                read[0] = (PipeAdvertisement) WarmRestartSnapshot.readAdvertisement(in);
+            }
+        }));
+
+        assertEquals(pipeAdv.getPipeID(), read[0].getPipeID());
+        assertEquals(pipeAdv.getType(), read[0].getType());
+        assertEquals(pipeAdv.getName(), read[0].getName());
+    }
+
+    @Test
+    public void testSnapshotIsLoadedOnce() throws Exception {
+        save(group, "test");
+
+        assertTrue(load(group, "test"));
+        assertFalse(load(group, "test"));
+    }
+
+    @Test
+    public void testNothingSavedWhenDisabled() throws Exception {
+        System.clearProperty(WarmRestartSnapshot.ENABLED_SYSPROP);
+
+        assertFalse(WarmRestartSnapshot.save(group, "test", new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                fail("Saved while disabled");
+            }
+        }));
+
+        System.setProperty(WarmRestartSnapshot.ENABLED_SYSPROP, "true");
+
+        assertFalse(load(group, "test"));
+    }
+
+    @Test
+    public void testStaleSnapshotIsIgnored() throws Exception {
+        System.setProperty(WarmRestartSnapshot.MAX_AGE_SYSPROP, "60");
+
+        save(group, "test");
+
+        clock.currentTime = NOW + 61 * TimeUtils.ASECOND;
+
+        assertFalse(load(group, "test"));
+
+        // Nor is it kept for later.
+        clock.currentTime = NOW;
+
+        assertFalse(load(group, "test"));
+    }
+
+    @Test
+    public void testSnapshotFromTheFutureIsIgnored() throws Exception {
+        save(group, "test");
+
+        clock.currentTime = NOW - 1000L;
+
+        assertFalse(load(group, "test"));
+    }
+
+    @Test
+    public void testCorruptedStringLengthIsRejected() throws Exception {
+        assertFalse(loadStringWithLength(Integer.MAX_VALUE));
+        assertFalse(loadStringWithLength(WarmRestartSnapshot.MAX_STRING_LENGTH + 1));
+        assertFalse(loadStringWithLength(-1));
+        assertFalse(snapshotFile("test").exists());
+    }
+
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws Exception {
+        assertFalse(loadStringWithLength(10));
+        assertFalse(snapshotFile("test").exists());
+    }
+
+    @Test
+    public void testUnknownFormatIsRejected() throws Exception {
+        DataOutputStream out = openSnapshotFile("test");
+
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeInt(1);
+            out.writeLong(NOW);
+        } finally {
+            out.close();
+        }
+
+        assertFalse(load(group, "test"));
+        assertFalse(snapshotFile("test").exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteStringRejectsTooLongStrings() throws Exception {
+        WarmRestartSnapshot.writeString(new DataOutputStream(new ByteArrayOutputStream()), new String(new char[WarmRestartSnapshot.MAX_STRING_LENGTH + 1]));
+    }
+
+    private static void save(PeerGroup group, String name) {
+        assertTrue(WarmRestartSnapshot.save(group, name, new WarmRestartSnapshot.Writer() {
+            public void write(DataOutput out) throws IOException {
+                out.writeInt(42);
+            }
+        }));
+    }
+
+    private static boolean load(PeerGroup group, String name) {
+        return WarmRestartSnapshot.load(group, name, new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                assertEquals(42, in.readInt());
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot holding a string of the given length, without the
+     * string itself, and loads it.
+     */
+    private boolean loadStringWithLength(int length) throws IOException {
+        DataOutputStream out = openSnapshotFile("test");
+
+        try {
+            // The format written by WarmRestartSnapshot.save()
+            out.writeInt(0x4A585753);
+            out.writeInt(1);
+            out.writeLong(NOW);
+            out.writeInt(length);
+        } finally {
+            out.close();
+        }
+
+        return WarmRestartSnapshot.load(group, "test", new WarmRestartSnapshot.Reader() {
+            public void read(DataInput in, long savedAt) throws IOException {
+                WarmRestartSnapshot.readString(in);
+                fail("Read a string of " + length + " bytes");
+            }
+        });
+    }
+
+    private File snapshotFile(String name) {
+        File directory = new File(new File(storeHome.getRoot(), "snapshot"), PeerGroupID.defaultNetPeerGroupID.getUniqueValue().toString());
+
+        return new File(directory, name + ".snapshot");
+    }
+
+    private DataOutputStream openSnapshotFile(String name) throws IOException {
+        File file = snapshotFile(name);
+
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        return new DataOutputStream(new FileOutputStream(file));
+    }
+}
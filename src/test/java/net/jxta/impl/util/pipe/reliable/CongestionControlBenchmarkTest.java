@@ -0,0 +1,195 @@
+package net.jxta.impl.util.pipe.reliable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jxta.endpoint.Message;
+import net.jxta.impl.util.TimeUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pushes a stream through a {@link ReliableOutputStream} and
+ * {@link ReliableInputStream} pair connected by a simulated lossy,
+ * bandwidth limited link and reports throughput and retransmission ratio for
+ * each of the flow control modules.
+ */
+public class CongestionControlBenchmarkTest {
+
+	private static final int TOTAL_BYTES = 2 * 1024 * 1024;
+	private static final int CHUNK_SIZE = 4 * 1024;
+	private static final int WINDOW_SIZE = 20;
+
+	/** One way latency of the simulated link in milliseconds. */
+	private static final long LATENCY = 20;
+	/** Bandwidth of the simulated link in bytes per second. */
+	private static final long BANDWIDTH = 4 * 1024 * 1024;
+	/** Probability that a message is lost in transit. */
+	private static final double LOSS_RATE = 0.02;
+	/** Number of messages the link will hold before dropping. */
+	private static final int LINK_CAPACITY = 48;
+
+	private ScheduledThreadPoolExecutor executor;
+
+	@Before
+	public void setUp() {
+		executor = new ScheduledThreadPoolExecutor(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test(timeout=300000)
+	public void testFixedFlowControl() throws Exception {
+		runTransfer(FlowControl.FIXED);
+	}
+
+	@Test(timeout=300000)
+	public void testAdaptiveFlowControl() throws Exception {
+		runTransfer(FlowControl.ADAPTIVE);
+	}
+
+	@Test(timeout=300000)
+	public void testCubicFlowControl() throws Exception {
+		runTransfer(FlowControl.CUBIC);
+	}
+
+	private void runTransfer(String flowControl) throws Exception {
+		SimulatedLink toReceiver = new SimulatedLink(new Random(1));
+		SimulatedLink toSender = new SimulatedLink(new Random(2));
+
+		final ReliableOutputStream ros = new ReliableOutputStream(null, toReceiver, FlowControl.newFlowControl(flowControl, WINDOW_SIZE), executor);
+		ReliableInputStream ris = new ReliableInputStream(null, toSender, 0);
+		toReceiver.destination = ris;
+		toSender.destination = ros;
+
+		ros.setSendBufferSize(CHUNK_SIZE);
+
+		final IOException[] writeFailure = new IOException[1];
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					byte[] chunk = new byte[CHUNK_SIZE];
+					for (int written = 0; written < TOTAL_BYTES; written += chunk.length) {
+						for (int each = 0; each < chunk.length; each++) {
+							chunk[each] = (byte) ((written + each) % 251);
+						}
+						ros.write(chunk);
+					}
+					ros.flush();
+				} catch (IOException failed) {
+					writeFailure[0] = failed;
+				}
+			}
+		}, "Benchmark writer");
+
+		long start = System.nanoTime();
+		writer.start();
+
+		byte[] buffer = new byte[CHUNK_SIZE];
+		int received = 0;
+		while (received < TOTAL_BYTES) {
+			int read = ris.read(buffer, 0, buffer.length);
+			assertTrue("Stream ended early", read > 0);
+			for (int each = 0; each < read; each++) {
+				assertEquals("Corrupt byte at " + (received + each), (byte) ((received + each) % 251), buffer[each]);
+			}
+			received += read;
+		}
+
+		long elapsed = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 1);
+		writer.join();
+		assertTrue("Write failed : " + writeFailure[0], null == writeFailure[0]);
+
+		int sent = ros.getSeqNumber();
+		int retransmitted = ros.getRetransmitCount();
+
+		System.out.println(flowControl + " : " + (TOTAL_BYTES / 1024) * 1000L / elapsed + " KB/s, "
+				+ retransmitted + " of " + sent + " messages retransmitted ("
+				+ (100 * retransmitted / Math.max(sent, 1)) + "%), "
+				+ toReceiver.dropped.get() + " dropped by link");
+
+		ros.hardClose();
+		ris.close();
+	}
+
+	/**
+	 * A one way link with fixed latency, limited bandwidth, a bounded queue
+	 * and random loss.
+	 */
+	private class SimulatedLink implements Outgoing {
+
+		private final Random random;
+		private final AtomicInteger inFlight = new AtomicInteger(0);
+		final AtomicInteger dropped = new AtomicInteger(0);
+
+		volatile Incoming destination;
+
+		private long nextDepartureNanos = 0;
+		private volatile long lastAccessed = TimeUtils.timeNow();
+
+		SimulatedLink(Random random) {
+			this.random = random;
+		}
+
+		public synchronized boolean send(Message msg) throws IOException {
+			if ((inFlight.get() >= LINK_CAPACITY) || (random.nextDouble() < LOSS_RATE)) {
+				dropped.incrementAndGet();
+				return true;
+			}
+
+			// Serialize the message onto the link, then add the latency.
+			long now = System.nanoTime();
+			long transmitNanos = msg.getByteLength() * TimeUnit.SECONDS.toNanos(1) / BANDWIDTH;
+			nextDepartureNanos = Math.max(nextDepartureNanos, now) + transmitNanos;
+			long deliverIn = nextDepartureNanos - now + TimeUnit.MILLISECONDS.toNanos(LATENCY);
+
+			final Message delivering = msg.clone();
+			inFlight.incrementAndGet();
+			executor.schedule(new Runnable() {
+				public void run() {
+					inFlight.decrementAndGet();
+					destination.recv(delivering);
+				}
+			}, deliverIn, TimeUnit.NANOSECONDS);
+
+			return true;
+		}
+
+		public void close() {
+		}
+
+		public long getMinIdleReconnectTime() {
+			return TimeUnit.SECONDS.toMillis(10);
+		}
+
+		public void setTimeout(int timeout) {
+		}
+
+		public long getIdleTimeout() {
+			return TimeUnit.MINUTES.toMillis(10);
+		}
+
+		public long getMaxRetryAge() {
+			return TimeUnit.SECONDS.toMillis(30);
+		}
+
+		public long getLastAccessed() {
+			return lastAccessed;
+		}
+
+		public void setLastAccessed(long time) {
+			lastAccessed = time;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package net.jxta.impl.util.pipe.reliable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CubicFlowControlTest {
+
+	private static final int RQSIZE = Defs.MAXQUEUESIZE;
+
+	private int nextSeqnum = 1;
+
+	@Test
+	public void testSlowStartDoublesUntilThreshold() {
+		CubicFlowControl fc = new CubicFlowControl(16);
+
+		assertEquals(CubicFlowControl.MIN_RWINDOW, fc.getRwindow());
+		assertEquals(4, ackRound(fc, -1));
+		assertEquals(8, ackRound(fc, -1));
+		assertEquals(16, ackRound(fc, -1));
+		// Reached the threshold, from now on growth is cubic.
+		assertTrue(ackRound(fc, -1) < 32);
+	}
+
+	@Test
+	public void testHoleReducesWindowOncePerEpisode() {
+		CubicFlowControl fc = new CubicFlowControl(16);
+
+		while (fc.getRwindow() < 16) {
+			ackRound(fc, -1);
+		}
+
+		int reduced = ackRound(fc, 3);
+		assertEquals((int) (16 * CubicFlowControl.BETA), reduced);
+
+		// Still missing: the same loss episode must not reduce again.
+		fc.ackEventBegin();
+		fc.packetMissing(nextSeqnum - 14);
+		fc.packetACKed(nextSeqnum++);
+		assertTrue(fc.ackEventEnd(RQSIZE, 50, 50) >= reduced);
+	}
+
+	@Test
+	public void testRetransmitTimeoutRestartsSlowStart() {
+		CubicFlowControl fc = new CubicFlowControl(16);
+
+		while (fc.getRwindow() < 16) {
+			ackRound(fc, -1);
+		}
+
+		fc.retransmitTimeout();
+		assertEquals(CubicFlowControl.MIN_RWINDOW, fc.getRwindow());
+		assertEquals((int) (16 * CubicFlowControl.BETA), fc.getSsthresh());
+		assertEquals(4, ackRound(fc, -1));
+	}
+
+	@Test
+	public void testWindowLimitedByRemoteQueue() {
+		CubicFlowControl fc = new CubicFlowControl(1000);
+
+		for (int round = 0; round < 20; round++) {
+			ackRound(fc, -1);
+		}
+
+		assertEquals(RQSIZE, fc.getRwindow());
+	}
+
+	/**
+	 * Acknowledge a full window of packets in one ack message.
+	 *
+	 * @param fc the flow control module.
+	 * @param missing index within the window of a packet reported missing
+	 * or -1 for none.
+	 * @return the new rwindow.
+	 */
+	private int ackRound(CubicFlowControl fc, int missing) {
+		int window = fc.getRwindow();
+
+		fc.ackEventBegin();
+		for (int each = 0; each < window; each++) {
+			if (each == missing) {
+				fc.packetMissing(nextSeqnum++);
+			} else {
+				fc.packetACKed(nextSeqnum++);
+			}
+		}
+
+		return fc.ackEventEnd(RQSIZE, 50, 50);
+	}
+}
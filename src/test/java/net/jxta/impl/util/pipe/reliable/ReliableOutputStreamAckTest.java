@@ -0,0 +1,162 @@
+package net.jxta.impl.util.pipe.reliable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.jxta.endpoint.Message;
+import net.jxta.impl.util.TimeUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Acknowledges the messages of a {@link ReliableOutputStream} directly and
+ * checks what the flow control is told.
+ */
+public class ReliableOutputStreamAckTest {
+
+	private ScheduledThreadPoolExecutor executor;
+	private RecordingFlowControl fc;
+	private ReliableOutputStream ros;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = new ScheduledThreadPoolExecutor(1);
+		fc = new RecordingFlowControl();
+		ros = new ReliableOutputStream(null, new DiscardingOutgoing(), fc, executor);
+
+		for (int each = 1; each <= 8; each++) {
+			ros.write(each);
+			ros.flush();
+		}
+
+		assertEquals(8, ros.getSeqNumber());
+	}
+
+	@After
+	public void tearDown() {
+		ros.hardClose();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testSelectiveAcksRemoveOnlyTheAckedMessages() {
+		ros.ackReceived(2, new int[] {4, 6});
+
+		assertEquals(Arrays.asList(1, 2, 4, 6), fc.acked);
+		// 3 and 5 are below the highest SACK, 7 and 8 may still be on their way.
+		assertEquals(Arrays.asList(3, 5), fc.missing);
+
+		fc.clear();
+		ros.ackReceived(6, new int[] {8});
+
+		assertEquals(Arrays.asList(3, 5, 8), fc.acked);
+		assertEquals(Arrays.asList(7), fc.missing);
+		assertFalse(ros.isQueueEmpty());
+
+		fc.clear();
+		ros.ackReceived(8, new int[0]);
+
+		assertEquals(Arrays.asList(7), fc.acked);
+		assertTrue(ros.isQueueEmpty());
+	}
+
+	@Test
+	public void testRepeatedSelectiveAcksAreIgnored() {
+		ros.ackReceived(0, new int[] {3, 5});
+		fc.clear();
+
+		ros.ackReceived(0, new int[] {3, 5, 7});
+
+		assertEquals(Arrays.asList(7), fc.acked);
+		assertEquals(Arrays.asList(1, 2, 4, 6), fc.missing);
+	}
+
+	@Test
+	public void testSelectiveAcksOutsideTheQueueAreIgnored() {
+		ros.ackReceived(4, new int[] {2, 6, 42});
+
+		assertEquals(Arrays.asList(1, 2, 3, 4, 6), fc.acked);
+		assertEquals(Arrays.asList(5, 7, 8), fc.missing);
+	}
+
+	/**
+	 * Records the acknowledged and missing sequence numbers.
+	 */
+	private static class RecordingFlowControl extends FlowControl {
+
+		final List<Integer> acked = new ArrayList<Integer>();
+		final List<Integer> missing = new ArrayList<Integer>();
+
+		@Override
+		public int getRwindow() {
+			return 100;
+		}
+
+		@Override
+		public void packetACKed(int seqnum) {
+			acked.add(seqnum);
+		}
+
+		@Override
+		public void packetMissing(int seqnum) {
+			missing.add(seqnum);
+		}
+
+		@Override
+		public int ackEventEnd(int rQSize, long aveRTT, long lastRTT) {
+			return 100;
+		}
+
+		void clear() {
+			acked.clear();
+			missing.clear();
+		}
+	}
+
+	/**
+	 * Accepts every message and delivers none.
+	 */
+	private static class DiscardingOutgoing implements Outgoing {
+
+		private volatile long lastAccessed = TimeUtils.timeNow();
+
+		public boolean send(Message msg) {
+			return true;
+		}
+
+		public void close() {
+		}
+
+		public long getMinIdleReconnectTime() {
+			return TimeUnit.SECONDS.toMillis(10);
+		}
+
+		public void setTimeout(int timeout) {
+		}
+
+		public long getIdleTimeout() {
+			return TimeUnit.MINUTES.toMillis(10);
+		}
+
+		public long getMaxRetryAge() {
+			return TimeUnit.MINUTES.toMillis(10);
+		}
+
+		public long getLastAccessed() {
+			return lastAccessed;
+		}
+
+		public void setLastAccessed(long time) {
+			lastAccessed = time;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package net.jxta.impl.util.pipe.reliable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class RetransmitQueueTest {
+
+	@Test
+	public void testRemoveAdvancesHead() {
+		RetransmitQueue<String> queue = new RetransmitQueue<String>(4);
+
+		for (int seqnum = 1; seqnum <= 5; seqnum++) {
+			queue.add(seqnum, "m" + seqnum);
+		}
+
+		assertEquals(5, queue.size());
+		assertEquals("m1", queue.peekFirst());
+
+		// Selective ack of 2 and 3 leaves a hole at 1.
+		assertEquals("m2", queue.remove(2));
+		assertEquals("m3", queue.remove(3));
+		assertNull(queue.remove(3));
+		assertEquals("m1", queue.peekFirst());
+
+		assertEquals("m1", queue.remove(1));
+		assertEquals("m4", queue.peekFirst());
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testIterationInSequenceOrderAcrossGrowth() {
+		RetransmitQueue<Integer> queue = new RetransmitQueue<Integer>(2);
+
+		for (int seqnum = 10; seqnum < 50; seqnum++) {
+			queue.add(seqnum, seqnum);
+			if (0 == seqnum % 3) {
+				queue.remove(seqnum);
+			}
+		}
+
+		int last = 0;
+		int count = 0;
+		Iterator<Integer> each = queue.iterator();
+		while (each.hasNext()) {
+			int seqnum = each.next();
+			assertTrue(seqnum > last);
+			assertTrue(0 != seqnum % 3);
+			if (0 == seqnum % 2) {
+				each.remove();
+			}
+			last = seqnum;
+			count++;
+		}
+
+		assertEquals(count - queue.size(), countEven(10, 50));
+		for (Integer remaining : queue) {
+			assertTrue(0 != remaining % 2);
+		}
+	}
+
+	@Test
+	public void testClear() {
+		RetransmitQueue<String> queue = new RetransmitQueue<String>();
+
+		queue.add(7, "m7");
+		queue.add(9, "m9");
+		queue.clear();
+
+		assertTrue(queue.isEmpty());
+		assertNull(queue.peekFirst());
+		assertFalse(queue.iterator().hasNext());
+
+		queue.add(10, "m10");
+		assertEquals("m10", queue.get(10));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testOutOfOrderAdd() {
+		RetransmitQueue<String> queue = new RetransmitQueue<String>();
+
+		queue.add(5, "m5");
+		queue.add(4, "m4");
+	}
+
+	private static int countEven(int from, int to) {
+		int count = 0;
+		for (int each = from; each < to; each++) {
+			if ((0 == each % 2) && (0 != each % 3)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,144 @@
+package net.jxta.impl.util.ternary;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class CompactTernarySearchTreeTest {
+
+	@Test
+	public void testPutGetRemove() {
+		CompactTernarySearchTree<String> tree = new CompactTernarySearchTree<String>();
+		tree.put("abc", "1");
+		tree.put("ab", "2");
+		tree.put("abd", "3");
+
+		assertEquals("1", tree.get("abc"));
+		assertEquals("2", tree.get("ab"));
+		assertNull(tree.get("a"));
+		assertNull(tree.get("abcd"));
+
+		assertEquals("2", tree.getOrCreate("ab", "other"));
+		assertEquals("4", tree.getOrCreate("b", "4"));
+
+		assertEquals("1", tree.remove("abc"));
+		assertNull(tree.get("abc"));
+		assertEquals("3", tree.get("abd"));
+		assertNull(tree.remove("abc"));
+
+		tree.remove("ab");
+		tree.remove("abd");
+		tree.remove("b");
+		assertEquals(0, tree.getNodeCount());
+	}
+
+	@Test
+	public void testRandomOperationsMatchSortedMap() {
+		CompactTernarySearchTree<String> tree = new CompactTernarySearchTree<String>();
+		TreeMap<String, String> expected = new TreeMap<String, String>();
+		Random r = new Random(3);
+
+		for(int op=0; op < 20000; op++) {
+			String key = randomKey(r);
+			if(r.nextInt(3) == 0) {
+				assertEquals(key, expected.remove(key), tree.remove(key));
+			} else {
+				String value = Integer.toString(op);
+				expected.put(key, value);
+				tree.put(key, value);
+			}
+
+			if(op % 1000 == 0) {
+				checkContents(tree, expected, r);
+			}
+		}
+
+		checkContents(tree, expected, r);
+	}
+
+	@Test
+	public void testMatchPrefixListenerStops() {
+		CompactTernarySearchTree<String> tree = new CompactTernarySearchTree<String>();
+		for(int i=0; i < 100; i++) {
+			tree.put("key" + i, Integer.toString(i));
+		}
+
+		final List<String> found = new ArrayList<String>();
+		tree.matchPrefix("key", new TernarySearchTreeMatchListener<String>() {
+			public void resultFound(String key, String data) {
+				assertEquals("key" + data, key);
+				found.add(data);
+			}
+
+			public boolean continueSearch() {
+				return found.size() < 10;
+			}
+		});
+
+		assertEquals(10, found.size());
+	}
+
+	@Test
+	public void testHeapFootprint() {
+		int keys = 20000;
+		long legacy = footprint(new TernarySearchTreeImpl<Object>(), keys);
+		long compact = footprint(new CompactTernarySearchTree<Object>(), keys);
+
+		System.out.println("Ternary trees holding " + keys + " SRDI keys: " + (legacy / 1024) + "KB with one object per node, " + (compact / 1024) + "KB compact");
+		assertTrue(compact < legacy);
+	}
+
+	private long footprint(TernarySearchTree<Object> tree, int keys) {
+		Object value = new Object();
+		Random r = new Random(5);
+		long before = usedHeap();
+
+		for(int i=0; i < keys; i++) {
+			tree.put("Peers.Name=peer-" + Long.toHexString(r.nextLong()), value);
+		}
+
+		long after = usedHeap();
+		// keep the tree reachable until measured
+		assertNotNull(tree.get("Peers.Name=peer-" + Long.toHexString(new Random(5).nextLong())));
+		return after - before;
+	}
+
+	private long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i=0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private void checkContents(CompactTernarySearchTree<String> tree, TreeMap<String, String> expected, Random r) {
+		for(Map.Entry<String, String> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), tree.get(entry.getKey()));
+		}
+
+		String prefix = randomKey(r).substring(0, 1);
+		List<String> values = new ArrayList<String>();
+		for(Map.Entry<String, String> entry : expected.entrySet()) {
+			if(entry.getKey().startsWith(prefix)) {
+				values.add(entry.getValue());
+			}
+		}
+		// matchPrefix returns values in key order
+		assertEquals(values, tree.matchPrefix(prefix));
+	}
+
+	private String randomKey(Random r) {
+		StringBuilder key = new StringBuilder();
+		int length = 1 + r.nextInt(5);
+		for(int i=0; i < length; i++) {
+			key.append((char) ('a' + r.nextInt(5)));
+		}
+		return key.toString();
+	}
+}
@@ -0,0 +1,236 @@
+package net.jxta.impl.util.threads;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutorLaneTest {
+
+    private ForkJoinPool pool;
+    private ScheduledExecutorService monitor;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(8, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        monitor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        monitor.shutdownNow();
+    }
+
+    @Test(timeout=30000)
+    public void testConcurrencyIsBounded() throws Exception {
+        ExecutorLane lane = new ExecutorLane("bounded", pool, monitor, 2, 1000);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(100);
+
+        for (int each = 0; each < 100; each++) {
+            lane.execute(new Runnable() {
+                public void run() {
+                    int now = running.incrementAndGet();
+                    int max;
+
+                    while (now > (max = peak.get()) && !peak.compareAndSet(max, now)) {
+                        // retry
+                    }
+
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException ignored) {
+                        Thread.interrupted();
+                    }
+
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(20, TimeUnit.SECONDS));
+        assertTrue("lane ran " + peak.get() + " tasks at once", peak.get() <= 2);
+        assertEquals(0, lane.getCallerRunsCount());
+
+        // the metrics are updated once the task returns
+        while (lane.getCompletedTaskCount() < 100) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(0, lane.getQueueDepth());
+        assertTrue(lane.getPeakQueueDepth() > 2);
+        assertTrue(lane.getAverageRunTime() >= 1);
+    }
+
+    @Test(timeout=30000)
+    public void testSlowLaneDoesNotBlockOthers() throws Exception {
+        ExecutorLane slow = new ExecutorLane("slow", pool, monitor, 4, 1000);
+        ExecutorLane fast = new ExecutorLane("fast", pool, monitor, 4, 1000);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fastDone = new CountDownLatch(10);
+
+        for (int each = 0; each < 50; each++) {
+            slow.execute(new Runnable() {
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                        Thread.interrupted();
+                    }
+                }
+            });
+        }
+
+        for (int each = 0; each < 10; each++) {
+            fast.execute(new Runnable() {
+                public void run() {
+                    fastDone.countDown();
+                }
+            });
+        }
+
+        try {
+            assertTrue(fastDone.await(10, TimeUnit.SECONDS));
+            assertEquals(46, slow.getQueueDepth());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(timeout=30000)
+    public void testFullLaneRunsInCaller() throws Exception {
+        ExecutorLane lane = new ExecutorLane("full", pool, monitor, 1, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger inCaller = new AtomicInteger();
+
+        Runnable blocked = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    Thread.interrupted();
+                }
+            }
+        };
+
+        // one running, two waiting
+        lane.execute(blocked);
+
+        while (lane.getQueueDepth() != 0) {
+            Thread.sleep(1);
+        }
+
+        lane.execute(blocked);
+        lane.execute(blocked);
+
+        lane.execute(new Runnable() {
+            public void run() {
+                if (Thread.currentThread() == caller) {
+                    inCaller.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(1, inCaller.get());
+        assertEquals(1, lane.getCallerRunsCount());
+        assertEquals(2, lane.getQueueDepth());
+
+        release.countDown();
+    }
+
+    @Test(timeout=30000)
+    public void testFullLaneQueuesWithoutCallerRuns() throws Exception {
+        ExecutorLane lane = new ExecutorLane("selector", pool, monitor, 1, 2, false);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger inCaller = new AtomicInteger();
+        final CountDownLatch ran = new CountDownLatch(2);
+
+        Runnable blocked = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    Thread.interrupted();
+                }
+            }
+        };
+
+        Runnable overflow = new Runnable() {
+            public void run() {
+                if (Thread.currentThread() == caller) {
+                    inCaller.incrementAndGet();
+                }
+
+                ran.countDown();
+            }
+        };
+
+        // one running, two waiting
+        lane.execute(blocked);
+
+        while (lane.getQueueDepth() != 0) {
+            Thread.sleep(1);
+        }
+
+        lane.execute(blocked);
+        lane.execute(blocked);
+
+        lane.execute(overflow);
+        lane.execute(overflow);
+
+        assertEquals(0, lane.getCallerRunsCount());
+        assertEquals(2, lane.getOverflowCount());
+        assertEquals(4, lane.getQueueDepth());
+
+        release.countDown();
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertEquals(0, inCaller.get());
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testCannotShutdown() {
+        new ExecutorLane("shared", pool, monitor, 1, 1).shutdown();
+    }
+
+    @Test(timeout=30000)
+    public void testShutdownShared() throws Exception {
+        ExecutorLane lane = new ExecutorLane("stopping", pool, monitor, 1, 10);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        lane.execute(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        });
+
+        lane.shutdownShared();
+
+        assertTrue(lane.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, ran.getCount());
+        assertTrue(lane.isTerminated());
+
+        try {
+            lane.execute(new Runnable() {
+                public void run() {
+                }
+            });
+            fail("a shut down lane accepted a task");
+        } catch (java.util.concurrent.RejectedExecutionException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package net.jxta.impl.util.threads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedTimerWheelTest {
+
+	private ExecutorService executor;
+	private HashedTimerWheel wheel;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		wheel = new HashedTimerWheel("Test Timer Wheel", executor, 5, TimeUnit.MILLISECONDS, 16);
+	}
+
+	@After
+	public void tearDown() {
+		wheel.stop();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testTimeoutFiresAfterDelay() throws Exception {
+		final CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+
+		wheel.schedule(new Runnable() {
+			public void run() {
+				fired.countDown();
+			}
+		}, 50, TimeUnit.MILLISECONDS);
+
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+		assertEquals(0, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testCancelledTimeoutDoesNotFire() throws Exception {
+		final AtomicInteger runs = new AtomicInteger(0);
+		Runnable counter = new Runnable() {
+			public void run() {
+				runs.incrementAndGet();
+			}
+		};
+
+		HashedTimerWheel.Timeout cancelled = wheel.schedule(counter, 30, TimeUnit.MILLISECONDS);
+		wheel.schedule(counter, 30, TimeUnit.MILLISECONDS);
+		assertEquals(2, wheel.getPendingCount());
+
+		assertTrue(cancelled.cancel());
+		assertTrue(cancelled.isCancelled());
+		assertFalse(cancelled.cancel());
+		assertEquals(1, wheel.getPendingCount());
+
+		Thread.sleep(200);
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void testTimeoutsLongerThanOneRevolution() throws Exception {
+		// 16 buckets of 5ms: these wrap the wheel several times.
+		final CountDownLatch fired = new CountDownLatch(3);
+		final long start = System.nanoTime();
+		final AtomicInteger early = new AtomicInteger(0);
+
+		for (final long delay : new long[] {100, 170, 250}) {
+			wheel.schedule(new Runnable() {
+				public void run() {
+					if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < delay) {
+						early.incrementAndGet();
+					}
+					fired.countDown();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		assertEquals(0, early.get());
+	}
+
+	@Test
+	public void testTimeoutsCascadeThroughAllWheels() throws Exception {
+		// 4 buckets of 1ms: wheels of 4, 16, 64 and 256ms, and beyond.
+		HashedTimerWheel small = new HashedTimerWheel("Small Timer Wheel", executor, 1, TimeUnit.MILLISECONDS, 4);
+		final long[] delays = new long[] {3, 10, 40, 150, 400};
+		final CountDownLatch fired = new CountDownLatch(delays.length);
+		final long start = System.nanoTime();
+		final AtomicInteger early = new AtomicInteger(0);
+		final AtomicInteger late = new AtomicInteger(0);
+
+		try {
+			for (final long delay : delays) {
+				small.schedule(new Runnable() {
+					public void run() {
+						long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+						if (elapsed < delay) {
+							early.incrementAndGet();
+						} else if (elapsed > delay + 200) {
+							late.incrementAndGet();
+						}
+						fired.countDown();
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			}
+
+			HashedTimerWheel.Timeout cancelled = small.schedule(new Runnable() {
+				public void run() {
+				}
+			}, 300, TimeUnit.MILLISECONDS);
+
+			assertTrue(cancelled.cancel());
+			assertEquals(delays.length, small.getPendingCount());
+
+			assertTrue(fired.await(5, TimeUnit.SECONDS));
+			assertEquals(0, early.get());
+			assertEquals(0, late.get());
+			assertEquals(0, small.getPendingCount());
+		} finally {
+			small.stop();
+		}
+	}
+
+	@Test
+	public void testTimeoutAfterIdlePeriod() throws Exception {
+		// 16 buckets of 1ms: wheels of 16ms, 256ms and 4s.
+		HashedTimerWheel small = new HashedTimerWheel("Idle Timer Wheel", executor, 1, TimeUnit.MILLISECONDS, 16);
+
+		try {
+			final CountDownLatch first = new CountDownLatch(1);
+
+			small.schedule(new Runnable() {
+				public void run() {
+					first.countDown();
+				}
+			}, 5, TimeUnit.MILLISECONDS);
+			assertTrue(first.await(2, TimeUnit.SECONDS));
+
+			// Idle for more than a revolution of the second wheel.
+			Thread.sleep(600);
+
+			final CountDownLatch fired = new CountDownLatch(1);
+			long start = System.nanoTime();
+
+			small.schedule(new Runnable() {
+				public void run() {
+					fired.countDown();
+				}
+			}, 100, TimeUnit.MILLISECONDS);
+
+			assertTrue(fired.await(2, TimeUnit.SECONDS));
+
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			assertTrue("fired after " + elapsed + "ms", (elapsed >= 100) && (elapsed < 1000));
+		} finally {
+			small.stop();
+		}
+	}
+
+	@Test
+	public void testHugeDelaysDoNotOverflow() throws Exception {
+		final AtomicInteger runs = new AtomicInteger(0);
+		Runnable counter = new Runnable() {
+			public void run() {
+				runs.incrementAndGet();
+			}
+		};
+
+		// Let the wheel run for a while, the deadline adds the time elapsed.
+		Thread.sleep(20);
+
+		HashedTimerWheel.Timeout nanos = wheel.schedule(counter, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		HashedTimerWheel.Timeout days = wheel.schedule(counter, Long.MAX_VALUE, TimeUnit.DAYS);
+		assertEquals(2, wheel.getPendingCount());
+
+		Thread.sleep(200);
+		assertEquals(0, runs.get());
+
+		assertTrue(nanos.cancel());
+		assertTrue(days.cancel());
+		assertEquals(0, wheel.getPendingCount());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testScheduleAfterStop() {
+		wheel.stop();
+		wheel.schedule(new Runnable() {
+			public void run() {
+			}
+		}, 10, TimeUnit.MILLISECONDS);
+	}
+}
@@ -1,6 +1,9 @@
 package net.jxta.impl.util.threads;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import static org.junit.Assert.*;
 
 import java.util.Properties;
@@ -168,4 +171,53 @@ public class TaskManagerTest {
 
     }
 
+    @Test
+    public void testExecutorLanes() {
+        setSysProp(TaskManager.LANE_POOL_SIZE_SYSPROP, "6");
+        setSysProp(TaskManager.LANE_SYSPROP_PREFIX + TaskManager.CM_LANE + ".maxThreads", "1");
+
+        TaskManager t = new TaskManager();
+
+        try {
+            ExecutorLane endpoint = t.getExecutorLane(TaskManager.ENDPOINT_LANE);
+            ExecutorLane cm = t.getExecutorLane(TaskManager.CM_LANE);
+
+            assertSame(endpoint, t.getExecutorLane(TaskManager.ENDPOINT_LANE));
+            assertEquals(3, endpoint.getMaxThreads());
+            assertEquals(1, cm.getMaxThreads());
+            assertEquals(TaskManager.DEFAULT_LANE_QUEUE_DEPTH, cm.getMaxQueueDepth());
+            // the endpoint lane is fed by selector threads, which must not run its tasks.
+            assertFalse(endpoint.isCallerRuns());
+            assertTrue(cm.isCallerRuns());
+            assertEquals(2, t.getExecutorLanes().size());
+        } finally {
+            t.shutdown();
+        }
+    }
+
+    @Test
+    public void testCoarseScheduledExecutorService() throws Exception {
+        TaskManager t = new TaskManager();
+
+        try {
+            ScheduledExecutorService coarse = t.getCoarseScheduledExecutorService();
+
+            assertSame(coarse, t.getCoarseScheduledExecutorService());
+            assertEquals("done", coarse.schedule(new Callable<String>() {
+                public String call() {
+                    return "done";
+                }
+            }, 10, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+
+            try {
+                coarse.shutdown();
+                fail("the coarse executor is shared");
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+        } finally {
+            t.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,232 @@
+package net.jxta.impl.util.threads;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimerWheelScheduledExecutorServiceTest {
+
+    private static final int PENDING = 100000;
+    private static final int OPERATIONS = 500000;
+    private static final int THREADS = 4;
+
+    private ExecutorService executor;
+    private HashedTimerWheel wheel;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        wheel = new HashedTimerWheel("Test Timer Wheel", executor);
+    }
+
+    @After
+    public void tearDown() {
+        wheel.stop();
+        executor.shutdownNow();
+    }
+
+    @Test(timeout=10000)
+    public void testScheduleCallable() throws Exception {
+        TimerWheelScheduledExecutorService service = new TimerWheelScheduledExecutorService(wheel, executor);
+
+        ScheduledFuture<String> future = service.schedule(new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+
+        assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test(timeout=10000)
+    public void testFixedRateUntilCancelled() throws Exception {
+        TimerWheelScheduledExecutorService service = new TimerWheelScheduledExecutorService(wheel, executor);
+        final CountDownLatch runs = new CountDownLatch(5);
+
+        ScheduledFuture<?> future = service.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                runs.countDown();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test(timeout=10000)
+    public void testShutdownOnlyAffectsOwnTasks() throws Exception {
+        TimerWheelScheduledExecutorService first = new TimerWheelScheduledExecutorService(wheel, executor);
+        TimerWheelScheduledExecutorService second = new TimerWheelScheduledExecutorService(wheel, executor);
+        final AtomicInteger ran = new AtomicInteger();
+        final CountDownLatch delayedRan = new CountDownLatch(2);
+
+        Runnable count = new Runnable() {
+            public void run() {
+                ran.incrementAndGet();
+            }
+        };
+
+        Runnable delayed = new Runnable() {
+            public void run() {
+                delayedRan.countDown();
+            }
+        };
+
+        ScheduledFuture<?> periodic = first.scheduleWithFixedDelay(count, 1, 1, TimeUnit.HOURS);
+        ScheduledFuture<?> cancelled = first.schedule(count, 1, TimeUnit.HOURS);
+
+        first.schedule(delayed, 50, TimeUnit.MILLISECONDS);
+        second.schedule(delayed, 50, TimeUnit.MILLISECONDS);
+
+        first.shutdown();
+
+        assertTrue(periodic.isCancelled());
+        assertFalse(cancelled.isCancelled());
+        assertTrue(first.isShutdown());
+        assertFalse(second.isShutdown());
+
+        // delayed tasks of both still run.
+        assertTrue(delayedRan.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, first.shutdownNow().size());
+        assertTrue(cancelled.isCancelled());
+        assertTrue(first.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, ran.get());
+    }
+
+    @Test(timeout=10000)
+    public void testProxiedOnWheel() throws Exception {
+        ProxiedScheduledExecutorService service = new ProxiedScheduledExecutorService(wheel, executor);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final Thread[] runner = new Thread[1];
+
+        service.schedule(new Runnable() {
+            public void run() {
+                runner[0] = Thread.currentThread();
+                ran.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertFalse("task ran on the wheel thread", "Test Timer Wheel".equals(runner[0].getName()));
+
+        service.shutdownNow();
+        assertTrue(service.isShutdown());
+    }
+
+    /**
+     * With 100k timeouts pending, measures how fast timeouts are armed and
+     * cancelled on a wheel and on scheduled thread pools, from one thread and
+     * from several. The shared scheduled executor of the task manager keeps
+     * the cancelled tasks until they are due, as the second pool does.
+     */
+    @Test(timeout=300000)
+    public void testScheduleCancelThroughput() throws Exception {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1);
+        ScheduledThreadPoolExecutor keeping = new ScheduledThreadPoolExecutor(1);
+
+        pool.setRemoveOnCancelPolicy(true);
+
+        try {
+            for (int threads : new int[] {1, THREADS}) {
+                // the first round warms up
+                measure("scheduled thread pool", pool, threads);
+                measure("scheduled thread pool keeping cancelled tasks", keeping, threads);
+                measure("timer wheel", new TimerWheelScheduledExecutorService(wheel, executor), threads);
+
+                double poolRate = measure("scheduled thread pool", pool, threads);
+                double keepingRate = measure("scheduled thread pool keeping cancelled tasks", keeping, threads);
+                double wheelRate = measure("timer wheel", new TimerWheelScheduledExecutorService(wheel, executor), threads);
+
+                System.out.printf("%d threads, timer wheel / scheduled thread pool : %.1f, timer wheel / pool keeping cancelled tasks : %.1f%n",
+                        threads, wheelRate / poolRate, wheelRate / keepingRate);
+            }
+        } finally {
+            pool.shutdownNow();
+            keeping.shutdownNow();
+        }
+    }
+
+    private double measure(String name, final ScheduledExecutorService service, int threads) throws Exception {
+        final Runnable nothing = new Runnable() {
+            public void run() {
+            }
+        };
+
+        final ScheduledFuture<?>[] futures = new ScheduledFuture<?>[PENDING];
+        Random random = new Random(42);
+
+        // coarse timeouts between 10 seconds and 10 minutes.
+        for (int each = 0; each < PENDING; each++) {
+            futures[each] = service.schedule(nothing, 10000 + random.nextInt(590000), TimeUnit.MILLISECONDS);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final int share = PENDING / threads;
+        final int operations = OPERATIONS / threads;
+
+        for (int thread = 0; thread < threads; thread++) {
+            final int first = thread * share;
+
+            new Thread(new Runnable() {
+                public void run() {
+                    Random random = new Random(first);
+
+                    try {
+                        start.await();
+                    } catch (InterruptedException woken) {
+                        return;
+                    }
+
+                    for (int each = 0; each < operations; each++) {
+                        int slot = first + random.nextInt(share);
+
+                        futures[slot].cancel(false);
+                        futures[slot] = service.schedule(nothing, 10000 + random.nextInt(590000), TimeUnit.MILLISECONDS);
+                    }
+
+                    done.countDown();
+                }
+            }, name + " benchmark " + thread).start();
+        }
+
+        long begin = System.nanoTime();
+
+        start.countDown();
+        done.await();
+
+        long elapsed = System.nanoTime() - begin;
+        double rate = OPERATIONS * 1e9 / elapsed;
+        int kept = (service instanceof ScheduledThreadPoolExecutor) ? ((ScheduledThreadPoolExecutor) service).getQueue().size() : wheel.getPendingCount();
+
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+
+        if (service instanceof ScheduledThreadPoolExecutor) {
+            ((ScheduledThreadPoolExecutor) service).purge();
+        }
+
+        System.out.printf("%s, %d threads, %d pending : %d cancel+schedule in %d ms, %.0f per second, %d tasks kept%n",
+                name, threads, PENDING, OPERATIONS, TimeUnit.NANOSECONDS.toMillis(elapsed), rate, kept);
+
+        return rate;
+    }
+}